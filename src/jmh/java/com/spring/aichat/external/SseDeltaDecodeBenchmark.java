@@ -0,0 +1,108 @@
+package com.spring.aichat.external;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.spring.aichat.service.stream.ReplyFixtures;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SSE 델타 청크 1개 디코드 비용: readTree(기존) vs {@link SseDeltaDecoder}(pull-parser 재사용).
+ *
+ * <p>1 op = 청크 1개. 실제 OpenRouter 청크 포맷(id/provider/model/choices[0].delta.content/finish_reason)을
+ * {@link ReplyFixtures}의 한국어 응답 토큰으로 채워 순환 재생한다.
+ *
+ * <pre>./gradlew jmh -Pjmh.includes=SseDeltaDecodeBenchmark -Pjmh.profilers=gc</pre>
+ * ns/op = ns/chunk, gc.alloc.rate.norm = bytes/chunk.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SseDeltaDecodeBenchmark {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private String[] lines;
+    private byte[][] payloads;
+    private int cursor;
+
+    private SseDeltaDecoder decoder;
+    private StringBuilder sinkBuffer;
+    private SseDeltaDecoder.ContentSink sink;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        List<String> tokens = ReplyFixtures.tokenize(ReplyFixtures.reply(4096), 42L);
+        lines = new String[tokens.size()];
+        payloads = new byte[tokens.size()][];
+        for (int i = 0; i < tokens.size(); i++) {
+            ObjectNode chunk = JsonNodeFactory.instance.objectNode();
+            chunk.put("id", "gen-1760000000-AbCdEfGhIjKlMnOpQrSt");
+            chunk.put("provider", "Google AI Studio");
+            chunk.put("model", "google/gemini-2.5-flash");
+            chunk.put("object", "chat.completion.chunk");
+            chunk.put("created", 1760000000L);
+            ObjectNode choice = chunk.putArray("choices").addObject();
+            choice.put("index", 0);
+            ObjectNode delta = choice.putObject("delta");
+            delta.put("role", "assistant");
+            delta.put("content", tokens.get(i));
+            choice.putNull("finish_reason");
+            choice.putNull("native_finish_reason");
+            choice.putNull("logprobs");
+            String json = objectMapper.writeValueAsString(chunk);
+            lines[i] = "data: " + json;
+            payloads[i] = json.getBytes(StandardCharsets.UTF_8);
+        }
+        decoder = new SseDeltaDecoder(objectMapper.getFactory());
+        sinkBuffer = new StringBuilder(8192);
+        sink = sinkBuffer::append;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        decoder.close();
+    }
+
+    private int nextIndex() {
+        int i = cursor;
+        cursor = (i + 1 == lines.length) ? 0 : i + 1;
+        if (cursor == 0) sinkBuffer.setLength(0);
+        return i;
+    }
+
+    /** 기존 OpenRouterStreamClient 경로: substring + trim + readTree + get 체인 + asText */
+    @Benchmark
+    public void readTree(Blackhole bh) {
+        String data = lines[nextIndex()].substring(6).trim();
+        try {
+            JsonNode root = objectMapper.readTree(data);
+            JsonNode choices = root.get("choices");
+            if (choices == null || !choices.isArray() || choices.isEmpty()) return;
+            JsonNode delta = choices.get(0).get("delta");
+            if (delta == null) return;
+            JsonNode content = delta.get("content");
+            if (content == null || content.isNull()) return;
+            sinkBuffer.append(content.asText());
+        } catch (Exception e) {
+            bh.consume(e);
+        }
+        bh.consume(sinkBuffer.length());
+    }
+
+    @Benchmark
+    public void pullParser(Blackhole bh) {
+        byte[] payload = payloads[nextIndex()];
+        decoder.decode(payload, 0, payload.length, sink);
+        bh.consume(sinkBuffer.length());
+    }
+}
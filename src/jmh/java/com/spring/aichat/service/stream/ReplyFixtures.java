@@ -0,0 +1,72 @@
+package com.spring.aichat.service.stream;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * 벤치마크용 합성 LLM 응답 픽스처.
+ *
+ * <p>실제 V1 출력 포맷(reasoning → event_status → scenes[] → 부가 필드)을 따르는 한국어 JSON을
+ * 목표 UTF-8 바이트 크기까지 씬을 늘려 만든 뒤, OpenRouter delta와 비슷한 2~6자 토큰으로 자른다.
+ * 시드 고정 — 실행 간 동일 입력 보장.
+ */
+public final class ReplyFixtures {
+
+    private static final String[] NARRATIONS = {
+        "창밖으로 늦은 오후의 햇살이 비스듬히 들어와 책상 위에 길게 늘어진다. 그녀는 잠시 펜을 내려놓고 당신 쪽을 바라본다.",
+        "카페 안은 커피 머신 소리와 낮은 대화 소리로 가득하다. 그녀는 컵을 두 손으로 감싸 쥔 채 \\\"음...\\\" 하고 작게 중얼거린다.",
+        "비가 그친 골목에는 물웅덩이마다 가로등 불빛이 {흔들리며} 비친다. 그녀의 발걸음이 조금 느려진다.",
+        "교실 뒤편 창가 자리, 바람에 커튼이 부풀었다가 가라앉는다. 그녀는 턱을 괴고 운동장을 내려다본다."
+    };
+    private static final String[] DIALOGUES = {
+        "있잖아, 오늘은 왠지 너랑 좀 더 이야기하고 싶었어. 이상하지?",
+        "그, 그런 말을 갑자기 하면 어떡해... 준비도 안 됐는데.",
+        "괜찮아. 천천히 말해도 돼. 나 여기 있을게.",
+        "흥, 딱히 기다린 건 아니거든? 그냥... 우연히 지나가다 본 거야."
+    };
+    private static final String[] EMOTIONS = {"NEUTRAL", "SHY", "JOY", "SAD", "ANGRY"};
+
+    private ReplyFixtures() {}
+
+    /** 목표 UTF-8 바이트 수 이상이 될 때까지 씬을 추가한 V1 응답 JSON */
+    public static String reply(int targetBytes) {
+        StringBuilder scenes = new StringBuilder();
+        int i = 0;
+        String json;
+        do {
+            if (i > 0) scenes.append(",\n    ");
+            scenes.append("{\"speaker\": \"아이리\", \"narration\": \"")
+                .append(NARRATIONS[i % NARRATIONS.length])
+                .append("\", \"dialogue\": \"")
+                .append(DIALOGUES[i % DIALOGUES.length])
+                .append("\", \"emotion\": \"")
+                .append(EMOTIONS[i % EMOTIONS.length])
+                .append("\", \"location\": null, \"time\": null, \"outfit\": null, \"bgmMode\": null}");
+            i++;
+            json = "```json\n{\n  \"reasoning\": \"유저가 먼저 다가왔으므로 호감도를 소폭 올리고, 장면은 차분하게 유지한다.\",\n"
+                + "  \"event_status\": \"ONGOING\",\n"
+                + "  \"scenes\": [\n    " + scenes + "\n  ],\n"
+                + "  \"affection_change\": 2,\n"
+                + "  \"stat_changes\": {\"intimacy\": 1, \"affection\": 2, \"dependency\": 0, \"playfulness\": 0, \"trust\": 1},\n"
+                + "  \"inner_thought\": \"오늘따라 왜 이렇게 신경 쓰이지... {괜히} 두근거려.\",\n"
+                + "  \"topic_concluded\": false\n}\n```";
+        } while (json.getBytes(StandardCharsets.UTF_8).length < targetBytes);
+        return json;
+    }
+
+    /** 2~6자 단위 delta 토큰으로 분할 (시드 고정) */
+    public static List<String> tokenize(String reply, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        List<String> tokens = new ArrayList<>(reply.length() / 3 + 1);
+        int pos = 0;
+        while (pos < reply.length()) {
+            int len = 2 + random.nextInt(5);
+            int end = Math.min(reply.length(), pos + len);
+            tokens.add(reply.substring(pos, end));
+            pos = end;
+        }
+        return tokens;
+    }
+}
@@ -0,0 +1,73 @@
+package com.spring.aichat.service.stream;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 스트리밍 씬 추출 비교: {@link SceneStreamExtractor}(기존) vs {@link SceneStreamScanner}(증분).
+ *
+ * <p>기존 경로는 OpenRouterStreamClient의 과거 루프를 그대로 재현한다 —
+ * 토큰마다 {@code fullBuffer.toString()} 후 event_status / first_scene 재탐색.
+ * 한 번의 벤치마크 호출 = 응답 1건 전체 스트리밍.
+ *
+ * <pre>./gradlew jmh -Pjmh.includes=SceneStreamScanBenchmark -Pjmh.profilers=gc</pre>
+ * (gc 프로파일러의 gc.alloc.rate.norm 으로 응답당 할당 바이트 비교)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SceneStreamScanBenchmark {
+
+    /** 응답 크기 (UTF-8 바이트) — 실서비스 V1 응답 2~6KB 구간 */
+    @Param({"2048", "4096", "6144"})
+    public int replyBytes;
+
+    private List<String> tokens;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        tokens = ReplyFixtures.tokenize(ReplyFixtures.reply(replyBytes), 42L);
+    }
+
+    @Benchmark
+    public void legacyExtractor(Blackhole bh) {
+        StringBuilder fullBuffer = new StringBuilder(4096);
+        SceneStreamExtractor extractor = new SceneStreamExtractor();
+        for (String token : tokens) {
+            fullBuffer.append(token);
+            String bufferStr = fullBuffer.toString();
+            if (!extractor.isEventStatusExtracted()) {
+                bh.consume(extractor.tryExtractEventStatus(bufferStr));
+            }
+            if (!extractor.isFirstSceneExtracted()) {
+                bh.consume(extractor.tryExtractFirstScene(bufferStr));
+            }
+        }
+        bh.consume(fullBuffer.toString());
+    }
+
+    @Benchmark
+    public void incrementalScanner(Blackhole bh) {
+        SceneStreamScanner scanner = new SceneStreamScanner(new SceneStreamScanner.Listener() {
+            @Override
+            public void onEventStatus(String eventStatus) {
+                bh.consume(eventStatus);
+            }
+
+            @Override
+            public void onScene(int index, String sceneJson) {
+                bh.consume(sceneJson);
+            }
+        });
+        for (String token : tokens) {
+            scanner.append(token);
+        }
+        bh.consume(scanner.fullText());
+    }
+}
@@ -0,0 +1,283 @@
+package com.spring.aichat.config;
+
+import com.spring.aichat.external.LlmCircuitBreaker;
+import com.spring.aichat.external.LlmHedgedStreamer;
+import com.spring.aichat.service.cache.ChatContextCache;
+import com.spring.aichat.service.cache.NearCache;
+import com.spring.aichat.service.memory.MemoryCompactor;
+import com.spring.aichat.service.memory.SemanticMemoryIndex;
+import com.spring.aichat.service.memory.SummarizationCoordinator;
+import com.spring.aichat.service.prompt.ContextBudgeter;
+import com.spring.aichat.service.prompt.PromptFragmentCache;
+import com.spring.aichat.service.stream.ChatPreflight;
+import com.spring.aichat.service.theater.TheaterPrefetchScheduler;
+import com.spring.aichat.service.theater.TheaterSceneLogWriter;
+import com.spring.aichat.service.theater.TheaterSnapshotCompactor;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * [Metrics] 상태 게이지 바인딩 — 요청 경로 타이머는 {@link com.spring.aichat.service.metrics.ChatMetrics}
+ *
+ * <ul>
+ *   <li>서킷 브레이커 — {@code llm.circuit.state{state}} (현재 상태만 1), 연속 실패 수, 헤지 발사/승/패, 헤지 기준 TTFT 백분위</li>
+ *   <li>Executor 거부 — {@code executor.rejected{name, policy}}. CallerRuns도 "포화" 신호라 함께 센다.
+ *       큐 깊이·활성 스레드({@code executor.queued} 등)는 Actuator가 ThreadPoolTaskExecutor 빈마다 자동 바인딩한다.</li>
+ *   <li>vthreads 프로필 — 포화 거부 Executor({@link VirtualThreadConfig.SaturatingExecutor})의 실행 중 수와 거부 수</li>
+ *   <li>Spring 빈이 아닌 전용 JDK 풀 (preflight · 헤지 · 메모리/스냅샷 압축 · 씬 로그 flush) — {@code executor.*}
+ *       ({@link ExecutorServiceMetrics}, name 태그) + {@code executor.rejected{name, policy}}</li>
+ *   <li>Theater 선행 생성 — {@code theater.prefetch.queued} (예약·대기 중), {@code theater.prefetch.in_flight}</li>
+ *   <li>Theater 씬 로그 write-behind — {@code theater.scene_log.buffered} (Mongo 미기록 문서 수)</li>
+ *   <li>L1 near cache — {@code near_cache.gets{family, result}}, {@code near_cache.evictions},
+ *       {@code near_cache.invalidations}, {@code near_cache.size} (family = 키 prefix에서 ':' 제외)</li>
+ *   <li>메모리 요약 single-flight — {@code memory.summarize.requests}, {@code memory.summarize.runs},
+ *       {@code memory.summarize.suppressed{reason=coalesced|lease|stale}} (합 = 중복 억제 수)</li>
+ *   <li>채팅 컨텍스트 캐시 — {@code chat_context_cache.loads{source=local|redis|mongo}}, {@code chat_context_cache.local.rooms}</li>
+ *   <li>장기 기억 — {@code memory.semantic.*} (검색 · 임베딩 · 실패 · 열린 방 인덱스),
+ *       {@code memory.compaction.*} (병합 · 접힌 노드 · 합쳐진 트리거 · 충돌 · 실패 · 대기 방)</li>
+ *   <li>프롬프트 — {@code prompt.fragment_cache.gets{level, result}} · {@code prompt.fragment_cache.size{level}},
+ *       {@code prompt.budget.plans} · {@code prompt.budget.trimmed{unit=plans|messages}}</li>
+ * </ul>
+ */
+@Slf4j
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public MeterBinder llmCircuitMetrics(LlmCircuitBreaker circuitBreaker) {
+        return registry -> {
+            for (LlmCircuitBreaker.State state : LlmCircuitBreaker.State.values()) {
+                Gauge.builder("llm.circuit.state", circuitBreaker, cb -> cb.getState() == state ? 1 : 0)
+                    .description("LLM provider circuit state (1 = current)")
+                    .tag("state", state.name())
+                    .register(registry);
+            }
+            Gauge.builder("llm.circuit.consecutive.failures", circuitBreaker, LlmCircuitBreaker::getConsecutiveFailures)
+                .register(registry);
+            FunctionCounter.builder("llm.hedge.launched", circuitBreaker, cb -> cb.getHedgeStats().launched())
+                .register(registry);
+            FunctionCounter.builder("llm.hedge.outcome", circuitBreaker, cb -> cb.getHedgeStats().won())
+                .tag("winner", "hedge").register(registry);
+            FunctionCounter.builder("llm.hedge.outcome", circuitBreaker, cb -> cb.getHedgeStats().lost())
+                .tag("winner", "primary").register(registry);
+            Gauge.builder("llm.hedge.ttft.percentile", circuitBreaker, cb -> cb.getHedgeStats().ttftPercentileMs())
+                .description("TTFT percentile used as hedge delay (ms, -1 = not enough samples)")
+                .register(registry);
+        };
+    }
+
+    @Bean
+    public MeterBinder executorRejectionMetrics(Map<String, Executor> executors) {
+        return registry -> executors.forEach((name, executor) -> {
+            if (executor instanceof ThreadPoolTaskExecutor pool) {
+                ThreadPoolExecutor tpe;
+                try {
+                    tpe = pool.getThreadPoolExecutor();
+                } catch (IllegalStateException notInitialized) {
+                    log.warn("📈 [METRICS] executor not initialized, rejection counter skipped: {}", name);
+                    return;
+                }
+                RejectedExecutionHandler delegate = tpe.getRejectedExecutionHandler();
+                Counter rejected = Counter.builder("executor.rejected")
+                    .description("tasks rejected by a saturated executor (CallerRuns included)")
+                    .tags("name", name, "policy", delegate.getClass().getSimpleName())
+                    .register(registry);
+                tpe.setRejectedExecutionHandler((task, e) -> {
+                    rejected.increment();
+                    delegate.rejectedExecution(task, e);
+                });
+            } else if (executor instanceof VirtualThreadConfig.SaturatingExecutor saturating) {
+                FunctionCounter.builder("executor.rejected", saturating, VirtualThreadConfig.SaturatingExecutor::rejected)
+                    .tags("name", name, "policy", "Abort")
+                    .register(registry);
+                Gauge.builder("executor.active", saturating, VirtualThreadConfig.SaturatingExecutor::inFlight)
+                    .tag("name", name)
+                    .register(registry);
+            }
+        });
+    }
+
+    @Bean
+    public MeterBinder nearCacheMetrics(NearCache nearCache) {
+        return registry -> nearCache.getStats().keySet().forEach(prefix -> {
+            String family = prefix.endsWith(":") ? prefix.substring(0, prefix.length() - 1) : prefix;
+            FunctionCounter.builder("near_cache.gets", nearCache, c -> c.getStats().get(prefix).hits())
+                .description("L1 near cache lookups")
+                .tags("family", family, "result", "hit").register(registry);
+            FunctionCounter.builder("near_cache.gets", nearCache, c -> c.getStats().get(prefix).misses())
+                .description("L1 near cache lookups")
+                .tags("family", family, "result", "miss").register(registry);
+            FunctionCounter.builder("near_cache.evictions", nearCache, c -> c.getStats().get(prefix).evictions())
+                .description("L1 entries evicted by size")
+                .tag("family", family).register(registry);
+            FunctionCounter.builder("near_cache.invalidations", nearCache, c -> c.getStats().get(prefix).invalidations())
+                .description("L1 entries invalidated locally or via pub/sub")
+                .tag("family", family).register(registry);
+            Gauge.builder("near_cache.size", nearCache, c -> c.getStats().get(prefix).size())
+                .tag("family", family).register(registry);
+        });
+    }
+
+    @Bean
+    public MeterBinder theaterPrefetchMetrics(TheaterPrefetchScheduler scheduler) {
+        return registry -> {
+            Gauge.builder("theater.prefetch.queued", scheduler, TheaterPrefetchScheduler::queuedCount)
+                .description("prefetch jobs scheduled or waiting for a slot")
+                .register(registry);
+            Gauge.builder("theater.prefetch.in_flight", scheduler, TheaterPrefetchScheduler::inFlightCount)
+                .description("prefetch batch generations running")
+                .register(registry);
+        };
+    }
+
+    @Bean
+    public MeterBinder theaterSceneLogMetrics(TheaterSceneLogWriter writer) {
+        return registry -> Gauge.builder("theater.scene_log.buffered", writer, TheaterSceneLogWriter::bufferedCount)
+            .description("theater scene logs buffered (spooled) but not yet in Mongo")
+            .register(registry);
+    }
+
+    @Bean
+    public MeterBinder summarizationMetrics(SummarizationCoordinator coordinator) {
+        return registry -> {
+            FunctionCounter.builder("memory.summarize.requests", coordinator, c -> c.getStats().requests())
+                .description("memory summarization requests")
+                .register(registry);
+            FunctionCounter.builder("memory.summarize.runs", coordinator, c -> c.getStats().summarized())
+                .description("memory summarization LLM runs")
+                .register(registry);
+            FunctionCounter.builder("memory.summarize.suppressed", coordinator, c -> c.getStats().coalesced())
+                .description("duplicate summarization requests suppressed")
+                .tag("reason", "coalesced").register(registry);
+            FunctionCounter.builder("memory.summarize.suppressed", coordinator, c -> c.getStats().leaseContended())
+                .description("duplicate summarization requests suppressed")
+                .tag("reason", "lease").register(registry);
+            FunctionCounter.builder("memory.summarize.suppressed", coordinator, c -> c.getStats().staleWindows())
+                .description("duplicate summarization requests suppressed")
+                .tag("reason", "stale").register(registry);
+        };
+    }
+
+    /**
+     * 전용 JDK 풀 — 거부 시 동작이 풀마다 달라 policy 태그로 구분한다:
+     * CallerRuns(호출 스레드에서 실행), Fallback(헤지 없이 중단 후 재시도), Discard(다음 트리거에 맡기고 버림).
+     */
+    @Bean
+    public MeterBinder jdkExecutorMetrics(ChatPreflight preflight,
+                                          LlmHedgedStreamer hedgedStreamer,
+                                          MemoryCompactor memoryCompactor,
+                                          TheaterSnapshotCompactor snapshotCompactor,
+                                          TheaterSceneLogWriter sceneLogWriter) {
+        return registry -> {
+            monitor(registry, "chatPreflight", preflight.getExecutor());
+            FunctionCounter.builder("executor.rejected", preflight, ChatPreflight::getRejectedCount)
+                .tags("name", "chatPreflight", "policy", "CallerRuns").register(registry);
+
+            monitor(registry, "llmHedge", hedgedStreamer.getHedgeExecutor());
+            FunctionCounter.builder("executor.rejected", hedgedStreamer, LlmHedgedStreamer::getHedgeRejectedCount)
+                .tags("name", "llmHedge", "policy", "Fallback").register(registry);
+
+            monitor(registry, "memoryCompaction", memoryCompactor.getExecutor());
+            FunctionCounter.builder("executor.rejected", memoryCompactor, c -> c.getStats().rejected())
+                .tags("name", "memoryCompaction", "policy", "Discard").register(registry);
+
+            monitor(registry, "theaterSnapshotCompaction", snapshotCompactor.getExecutor());
+            FunctionCounter.builder("executor.rejected", snapshotCompactor, TheaterSnapshotCompactor::getRejectedCount)
+                .tags("name", "theaterSnapshotCompaction", "policy", "Discard").register(registry);
+
+            monitor(registry, "theaterSceneLogFlush", sceneLogWriter.getTimer());
+        };
+    }
+
+    /** vthreads 프로필 · 기능 비활성으로 풀이 없으면(null) 건너뛴다 */
+    private static void monitor(MeterRegistry registry, String name, ExecutorService executor) {
+        if (executor != null) new ExecutorServiceMetrics(executor, name, Tags.empty()).bindTo(registry);
+    }
+
+    @Bean
+    public MeterBinder chatContextCacheMetrics(ChatContextCache contextCache) {
+        return registry -> {
+            FunctionCounter.builder("chat_context_cache.loads", contextCache, c -> c.getStats().localHits())
+                .description("chat context window loads by source")
+                .tag("source", "local").register(registry);
+            FunctionCounter.builder("chat_context_cache.loads", contextCache, c -> c.getStats().redisHits())
+                .description("chat context window loads by source")
+                .tag("source", "redis").register(registry);
+            FunctionCounter.builder("chat_context_cache.loads", contextCache, c -> c.getStats().mongoLoads())
+                .description("chat context window loads by source")
+                .tag("source", "mongo").register(registry);
+            Gauge.builder("chat_context_cache.local.rooms", contextCache, c -> c.getStats().localRooms())
+                .register(registry);
+        };
+    }
+
+    @Bean
+    public MeterBinder memoryMetrics(SemanticMemoryIndex semanticIndex, MemoryCompactor compactor) {
+        return registry -> {
+            FunctionCounter.builder("memory.semantic.searches", semanticIndex, i -> i.getStats().searches())
+                .register(registry);
+            FunctionCounter.builder("memory.semantic.embedded", semanticIndex, i -> i.getStats().embedded())
+                .description("memory summaries embedded into the room index")
+                .register(registry);
+            FunctionCounter.builder("memory.semantic.failures", semanticIndex, i -> i.getStats().failures())
+                .register(registry);
+            Gauge.builder("memory.semantic.open_rooms", semanticIndex, i -> i.getStats().openRooms())
+                .register(registry);
+
+            FunctionCounter.builder("memory.compaction.merges", compactor, c -> c.getStats().merges())
+                .register(registry);
+            FunctionCounter.builder("memory.compaction.folded", compactor, c -> c.getStats().folded())
+                .description("memory nodes folded into a higher tier")
+                .register(registry);
+            FunctionCounter.builder("memory.compaction.coalesced", compactor, c -> c.getStats().coalesced())
+                .register(registry);
+            FunctionCounter.builder("memory.compaction.conflicts", compactor, c -> c.getStats().conflicts())
+                .register(registry);
+            FunctionCounter.builder("memory.compaction.failures", compactor, c -> c.getStats().failures())
+                .register(registry);
+            Gauge.builder("memory.compaction.in_flight", compactor, c -> c.getStats().inFlight())
+                .description("rooms with a compaction running or pending")
+                .register(registry);
+        };
+    }
+
+    @Bean
+    public MeterBinder promptMetrics(PromptFragmentCache fragmentCache, ContextBudgeter budgeter) {
+        return registry -> {
+            FunctionCounter.builder("prompt.fragment_cache.gets", fragmentCache, c -> c.getStats().fragmentHits())
+                .tags("level", "fragment", "result", "hit").register(registry);
+            FunctionCounter.builder("prompt.fragment_cache.gets", fragmentCache, c -> c.getStats().fragmentMisses())
+                .tags("level", "fragment", "result", "miss").register(registry);
+            FunctionCounter.builder("prompt.fragment_cache.gets", fragmentCache, c -> c.getStats().prefixHits())
+                .tags("level", "prefix", "result", "hit").register(registry);
+            FunctionCounter.builder("prompt.fragment_cache.gets", fragmentCache, c -> c.getStats().prefixMisses())
+                .tags("level", "prefix", "result", "miss").register(registry);
+            Gauge.builder("prompt.fragment_cache.size", fragmentCache, c -> c.getStats().fragments())
+                .tag("level", "fragment").register(registry);
+            Gauge.builder("prompt.fragment_cache.size", fragmentCache, c -> c.getStats().prefixes())
+                .tag("level", "prefix").register(registry);
+
+            FunctionCounter.builder("prompt.budget.plans", budgeter, b -> b.getStats().plans())
+                .register(registry);
+            FunctionCounter.builder("prompt.budget.trimmed", budgeter, b -> b.getStats().trimmedPlans())
+                .tag("unit", "plans").register(registry);
+            FunctionCounter.builder("prompt.budget.trimmed", budgeter, b -> b.getStats().trimmedMessages())
+                .tag("unit", "messages").register(registry);
+        };
+    }
+}
@@ -0,0 +1,24 @@
+package com.spring.aichat.config;
+
+import com.spring.aichat.service.cache.NearCache;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+/**
+ * [Perf] L1 near cache 노드 간 무효화 구독 — {@link NearCache#INVALIDATION_CHANNEL}
+ */
+@Configuration
+public class NearCacheConfig {
+
+    @Bean
+    public RedisMessageListenerContainer nearCacheListenerContainer(RedisConnectionFactory connectionFactory,
+                                                                   NearCache nearCache) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(nearCache, new ChannelTopic(NearCache.INVALIDATION_CHANNEL));
+        return container;
+    }
+}
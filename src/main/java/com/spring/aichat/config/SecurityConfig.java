@@ -4,6 +4,7 @@ import com.spring.aichat.security.GuestBrowseRateLimitFilter;
 import com.spring.aichat.security.JwtBlacklistFilter;
 import com.spring.aichat.service.auth.OAuth2LoginSuccessHandler;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
@@ -41,6 +42,10 @@ public class SecurityConfig {
     private final JwtBlacklistFilter jwtBlacklistFilter;
     private final GuestBrowseRateLimitFilter guestBrowseRateLimitFilter;
 
+    /** 관리(actuator) 포트 — 미설정이면 -1 (서비스 포트 공유, 스크레이프도 ADMIN 필요) */
+    @Value("${management.server.port:-1}")
+    private int managementPort;
+
     @Bean
     public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
 
@@ -60,7 +65,7 @@ public class SecurityConfig {
                 "/oauth2/**",           // OAuth2 엔드포인트
                 "/login/**",            // 로그인 페이지 등
                 "/swagger-ui/**", "/v3/api-docs/**", // Swagger
-                "/actuator/**",          // (선택) 헬스 체크 등
+                "/actuator/health",      // 헬스 체크 (상세는 show-details 기본값 never)
                 "/api/v1/payments/webhook",   // Phase 5: PortOne webhook (no JWT)
                 "/api/v1/webhook/**",
                 "/health"                // 헬스 체크 엔드포인트
@@ -85,6 +90,11 @@ public class SecurityConfig {
             // [Phase 6] 백오피스 — 별도 admin SPA에서 호출. ROLE_ADMIN 만 접근.
             //   authorityPrefix="" + role 클레임이 "ROLE_ADMIN" 문자열이라 hasRole("ADMIN")이 정확히 매칭됨.
             .requestMatchers("/api/v1/admin/**").hasRole("ADMIN")
+            // [Metrics] 스크레이프는 관리 포트(management.server.port — ALB · 외부 미노출)로 들어온 요청만 익명 허용.
+            //   같은 경로가 서비스 포트로 들어오면 그 외 actuator와 같이 ADMIN 전용.
+            .requestMatchers(request -> request.getLocalPort() == managementPort
+                && "/actuator/prometheus".equals(request.getRequestURI())).permitAll()
+            .requestMatchers("/actuator/**").hasRole("ADMIN")
             .anyRequest().authenticated()
         );
 
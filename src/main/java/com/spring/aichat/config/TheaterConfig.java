@@ -2,6 +2,8 @@ package com.spring.aichat.config;
 
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.task.support.ContextPropagatingTaskDecorator;
 import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
@@ -13,6 +15,8 @@ import java.util.concurrent.ThreadPoolExecutor;
  *
  * - Prefetch 비동기 실행을 위한 전용 Executor
  * - 메인 요청 스레드와 격리하여 prefetch가 막힐 때 본 흐름에 영향 없도록
+ *
+ * [Perf] vthreads 프로필에서는 동일 이름의 가상 스레드 Executor가 {@link VirtualThreadConfig}에서 등록된다.
  */
 @Configuration
 @EnableAsync
@@ -22,9 +26,10 @@ public class TheaterConfig {
      * Theater prefetch 전용 Executor
      * - Core pool: 2 (로우 트래픽 전제)
      * - Max pool: 8
-     * - Queue: 32 (초과 시 CallerRuns 정책)
+     * - Queue: 32 (기본 AbortPolicy — 동시 실행 상한 · 대기열은 {@code TheaterPrefetchScheduler}가 먼저 관리)
      */
     @Bean(name = "theaterPrefetchExecutor")
+    @Profile("!vthreads")
     public Executor theaterPrefetchExecutor() {
         ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
         executor.setCorePoolSize(2);
@@ -32,6 +37,26 @@ public class TheaterConfig {
         executor.setQueueCapacity(32);
         executor.setThreadNamePrefix("theater-prefetch-");
         executor.setKeepAliveSeconds(60);
+        executor.setTaskDecorator(new ContextPropagatingTaskDecorator());  // [Tracing] 트레이스 컨텍스트 전파
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * [Perf] 분기 선택지별 추측 배치 생성 전용 Executor ({@code TheaterBranchSpeculator}).
+     *   순수 투기 작업이라 포화 시 AbortPolicy — 분기 응답 스레드에서 대신 돌면(CallerRuns) 선택지 표시가 늦어진다.
+     *   거부된 선택지는 추측 없이 기존 경로(선택 후 동기 생성)로 간다.
+     */
+    @Bean(name = "theaterSpeculationExecutor")
+    @Profile("!vthreads")
+    public Executor theaterSpeculationExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(2);
+        executor.setMaxPoolSize(6);
+        executor.setQueueCapacity(0);
+        executor.setThreadNamePrefix("theater-spec-");
+        executor.setKeepAliveSeconds(60);
+        executor.setTaskDecorator(new ContextPropagatingTaskDecorator());  // [Tracing] 트레이스 컨텍스트 전파
         executor.initialize();
         return executor;
     }
@@ -43,6 +68,7 @@ public class TheaterConfig {
      *   포화 시 CallerRuns로 호출 스레드에서 직접 실행 → 백프레셔.
      */
     @Bean(name = "backgroundGenExecutor")
+    @Profile("!vthreads")
     public Executor backgroundGenExecutor() {
         ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
         executor.setCorePoolSize(4);
@@ -50,6 +76,7 @@ public class TheaterConfig {
         executor.setQueueCapacity(50);
         executor.setThreadNamePrefix("bg-gen-");
         executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setTaskDecorator(new ContextPropagatingTaskDecorator());  // [Tracing] 트레이스 컨텍스트 전파
         executor.initialize();
         return executor;
     }
@@ -59,6 +86,7 @@ public class TheaterConfig {
      *   IllustrationService의 generateAutoIllustration 등에서 사용.
      */
     @Bean(name = "illustrationExecutor")
+    @Profile("!vthreads")
     public Executor illustrationExecutor() {
         ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
         executor.setCorePoolSize(4);
@@ -66,6 +94,7 @@ public class TheaterConfig {
         executor.setQueueCapacity(50);
         executor.setThreadNamePrefix("illust-");
         executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setTaskDecorator(new ContextPropagatingTaskDecorator());  // [Tracing] 트레이스 컨텍스트 전파
         executor.initialize();
         return executor;
     }
@@ -76,6 +105,7 @@ public class TheaterConfig {
      *   포화 시 AbortPolicy — 씬 렌더는 유실돼도 채팅을 막으면 안 된다(호출측이 실패 마킹).
      */
     @Bean(name = "sceneRenderExecutor")
+    @Profile("!vthreads")
     public Executor sceneRenderExecutor() {
         ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
         executor.setCorePoolSize(2);
@@ -83,6 +113,7 @@ public class TheaterConfig {
         executor.setQueueCapacity(32);
         executor.setThreadNamePrefix("scene-render-");
         executor.setKeepAliveSeconds(120);
+        executor.setTaskDecorator(new ContextPropagatingTaskDecorator());  // [Tracing] 트레이스 컨텍스트 전파
         executor.initialize();
         return executor;
     }
@@ -0,0 +1,52 @@
+package com.spring.aichat.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * [Perf] 모델별 프롬프트 토큰 예산 — {@link com.spring.aichat.service.prompt.ContextBudgeter}가 사용.
+ *
+ * <p>컨텍스트 창 한도가 아니라 <b>비용·지연 예산</b>이다. 시스템 규칙 + 기억 + 최근 대화 + 출력 몫이
+ * 이 안에 들어오도록 오래된 대화부터 덜어낸다.
+ *
+ * <pre>
+ * llm:
+ *   token-budget:
+ *     enabled: true
+ *     context-tokens: 48000                       # 기본 예산
+ *     models:
+ *       "[google/gemini-3.1-pro-preview]": 40000  # 모델 id 접두사 → 예산 (가장 긴 접두사 우선)
+ * </pre>
+ */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "llm.token-budget")
+public class TokenBudgetProperties {
+
+    /** false면 히스토리 트리밍 없이 모드별 max_tokens 상한 고정 (기존 동작) */
+    private boolean enabled = true;
+
+    private int contextTokens = 48000;
+
+    private Map<String, Integer> models = new LinkedHashMap<>();
+
+    public int contextTokensFor(String model) {
+        int budget = contextTokens;
+        int matched = -1;
+        if (model != null) {
+            for (Map.Entry<String, Integer> e : models.entrySet()) {
+                if (model.startsWith(e.getKey()) && e.getKey().length() > matched) {
+                    matched = e.getKey().length();
+                    budget = e.getValue();
+                }
+            }
+        }
+        return budget;
+    }
+}
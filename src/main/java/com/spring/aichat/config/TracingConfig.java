@@ -0,0 +1,79 @@
+package com.spring.aichat.config;
+
+import io.lettuce.core.tracing.MicrometerTracing;
+import io.micrometer.context.ContextRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import io.micrometer.tracing.Tracer;
+import io.micrometer.tracing.contextpropagation.ObservationAwareSpanThreadLocalAccessor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.data.redis.ClientResourcesBuilderCustomizer;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.task.support.ContextPropagatingTaskDecorator;
+import org.springframework.data.mongodb.observability.ContextProviderFactory;
+import org.springframework.data.mongodb.observability.MongoObservationCommandListener;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * [Tracing] 저장소 명령 스팬 + @Async 컨텍스트 전파 — 파이프라인 단계 스팬은 {@link com.spring.aichat.service.metrics.ChatTracing}
+ *
+ * <ul>
+ *   <li>Mongo — 명령마다 스팬 (채팅 로그 조회·저장). contextProvider가 호출 스레드의 현재 스팬을 부모로 넘긴다.</li>
+ *   <li>Redis — Lettuce 명령 스팬 (캐시 · 리스 · 락)</li>
+ *   <li>Postgres — datasource-micrometer 자동 구성 (커넥션 획득 · 쿼리 · 행 잠금 대기가 쿼리 스팬에 드러난다)</li>
+ *   <li>@Async — 전용 Executor 빈이 있으면 Boot의 기본 풀(applicationTaskExecutor)이 물러나고 @Async는 데코레이터 없는
+ *       SimpleAsyncTaskExecutor로 떨어진다. 그래서 기본 {@code taskExecutor}를 여기서 직접 등록한다 (vthreads 프로필은
+ *       {@link VirtualThreadConfig}). 전용 Executor({@link TheaterConfig})도 각자 같은 데코레이터를 건다.</li>
+ *   <li>{@code ChatTracing} 스팬은 Observation 없이 Tracer로 직접 연다 — 데코레이터가 그 스팬도 옮기도록
+ *       {@link ObservationAwareSpanThreadLocalAccessor}를 컨텍스트 레지스트리에 올린다.</li>
+ * </ul>
+ */
+@Configuration
+public class TracingConfig {
+
+    /**
+     * 기본 @Async — 채팅 스트림(V1/V2) · 메모리 요약 · UGC 파이프라인.
+     * 태스크가 길게(스트림 최대 120초) 스레드를 잡으므로 대기 큐 없이 상한까지 스레드를 늘리고,
+     * 상한에 닿으면 CallerRuns로 호출측 백프레셔 (vthreads 프로필의 동시 실행 상한과 같은 동작).
+     */
+    @Bean(name = "taskExecutor")
+    @Profile("!vthreads")
+    public ThreadPoolTaskExecutor taskExecutor(
+        @Value("${async.default.core-threads:16}") int coreThreads,
+        @Value("${async.default.max-threads:512}") int maxThreads) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(coreThreads);
+        executor.setMaxPoolSize(Math.max(coreThreads, maxThreads));
+        executor.setQueueCapacity(0);
+        executor.setKeepAliveSeconds(60);
+        executor.setThreadNamePrefix("async-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setTaskDecorator(new ContextPropagatingTaskDecorator());  // [Tracing] 트레이스 컨텍스트 전파
+        executor.initialize();
+        return executor;
+    }
+
+    /** Tracer로 직접 연 스팬(ChatTracing)을 ContextPropagatingTaskDecorator가 캡처 · 복원하도록 등록 (같은 키는 교체) */
+    @Bean
+    public ObservationAwareSpanThreadLocalAccessor spanThreadLocalAccessor(Tracer tracer) {
+        ObservationAwareSpanThreadLocalAccessor accessor = new ObservationAwareSpanThreadLocalAccessor(tracer);
+        ContextRegistry.getInstance().registerThreadLocalAccessor(accessor);
+        return accessor;
+    }
+
+    @Bean
+    public MongoClientSettingsBuilderCustomizer mongoTracing(ObservationRegistry observationRegistry) {
+        return settings -> settings
+            .contextProvider(ContextProviderFactory.create(observationRegistry))
+            .addCommandListener(new MongoObservationCommandListener(observationRegistry));
+    }
+
+    @Bean
+    public ClientResourcesBuilderCustomizer lettuceTracing(ObservationRegistry observationRegistry) {
+        return resources -> resources.tracing(new MicrometerTracing(observationRegistry, "lucidchat-redis"));
+    }
+}
@@ -0,0 +1,151 @@
+package com.spring.aichat.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.support.ContextPropagatingTaskDecorator;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * [Perf] 가상 스레드 실행 프로필 (opt-in: {@code vthreads}, JDK 21+ 런타임 필수)
+ *
+ * <p>SSE 스트림 1건은 {@code readNext()} 블로킹으로 최대 120초 스레드를 점유한다.
+ * 플랫폼 스레드에서는 동시 채팅 수가 곧 스레드 수(스택 ~1MB)라 노드당 상한이 낮다.
+ * 이 프로필은 블로킹 LLM/SSE/폴링 경로를 가상 스레드로 옮긴다:
+ * <ul>
+ *   <li>{@code taskExecutor} — 기본 {@code @Async} (채팅 스트림 V1/V2, 메모리 요약, 히로인 메모리)</li>
+ *   <li>{@code chatPreflightExecutor} — 채팅 pre-flight 병렬 단계 ({@code ChatPreflight})</li>
+ *   <li>{@code theaterPrefetchExecutor} — 극장 배치 prefetch</li>
+ *   <li>{@code theaterSpeculationExecutor} — 극장 분기 추측 배치 (포화 시 즉시 거부)</li>
+ *   <li>{@code backgroundGenExecutor} / {@code illustrationExecutor} / {@code sceneRenderExecutor} — 이미지 폴링</li>
+ * </ul>
+ * 풀 크기 대신 동시 실행 상한(concurrency limit)으로 외부 API 보호를 유지한다.
+ * 상한 도달 시 기존 풀의 거부 정책과 맞춘다 — CallerRuns였던 곳은 호출측 대기(백프레셔),
+ * Abort였던 씬 렌더는 즉시 {@link RejectedExecutionException}.
+ *
+ * <p>JDK 17에서 이 프로필을 켜면 Executor 생성 시점에 실패한다 (fail-fast).
+ * 피닝(synchronized/네이티브 구간에서 캐리어 고정)은 {@link VirtualThreadPinningMonitor}가 JFR로 감시한다.
+ */
+@Slf4j
+@Configuration
+@Profile("vthreads")
+public class VirtualThreadConfig {
+
+    /** 기본 @Async — 이름이 taskExecutor면 Executor 빈이 여러 개여도 기본값으로 선택된다 */
+    @Bean(name = "taskExecutor")
+    public AsyncTaskExecutor taskExecutor(
+        @Value("${vthreads.chat-concurrency-limit:4096}") int concurrencyLimit) {
+        log.info("🧵 [VTHREADS] @Async default executor → virtual threads | limit={}", concurrencyLimit);
+        return virtualExecutor("chat-vt-", concurrencyLimit);
+    }
+
+    /** pre-flight 단계 — 요청당 2~4개 fork, 대부분 DB/Redis/Mongo 대기 */
+    @Bean(name = "chatPreflightExecutor")
+    public Executor chatPreflightExecutor(
+        @Value("${vthreads.chat-preflight-limit:1024}") int concurrencyLimit) {
+        return virtualExecutor("chat-preflight-vt-", concurrencyLimit);
+    }
+
+    @Bean(name = "theaterPrefetchExecutor")
+    public Executor theaterPrefetchExecutor(
+        @Value("${vthreads.theater-prefetch-limit:64}") int concurrencyLimit) {
+        return virtualExecutor("theater-prefetch-vt-", concurrencyLimit);
+    }
+
+    /** 분기 추측 배치 — 순수 투기 작업이라 포화 시 즉시 거부 (TheaterConfig와 동일 정책) */
+    @Bean(name = "theaterSpeculationExecutor")
+    public Executor theaterSpeculationExecutor(
+        @Value("${vthreads.theater-speculation-limit:6}") int concurrencyLimit) {
+        return rejectWhenSaturated(virtualExecutor("theater-spec-vt-", -1), concurrencyLimit, "theaterSpeculationExecutor");
+    }
+
+    @Bean(name = "backgroundGenExecutor")
+    public Executor backgroundGenExecutor(
+        @Value("${vthreads.image-polling-limit:16}") int concurrencyLimit) {
+        return virtualExecutor("bg-gen-vt-", concurrencyLimit);
+    }
+
+    @Bean(name = "illustrationExecutor")
+    public Executor illustrationExecutor(
+        @Value("${vthreads.image-polling-limit:16}") int concurrencyLimit) {
+        return virtualExecutor("illust-vt-", concurrencyLimit);
+    }
+
+    /** 씬 렌더는 기존과 같이 포화 시 즉시 거부 — 호출측(SceneRenderService)이 실패 마킹 */
+    @Bean(name = "sceneRenderExecutor")
+    public Executor sceneRenderExecutor(
+        @Value("${vthreads.scene-render-limit:40}") int concurrencyLimit) {
+        return rejectWhenSaturated(virtualExecutor("scene-render-vt-", -1), concurrencyLimit, "sceneRenderExecutor");
+    }
+
+    /**
+     * 태스크마다 새 가상 스레드. {@code concurrencyLimit} 초과 제출은 슬롯이 날 때까지 호출 스레드가 대기한다.
+     *
+     * @param concurrencyLimit 동시 실행 상한 (음수면 무제한)
+     */
+    public static SimpleAsyncTaskExecutor virtualExecutor(String threadNamePrefix, int concurrencyLimit) {
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor(threadNamePrefix);
+        executor.setVirtualThreads(true);
+        executor.setConcurrencyLimit(concurrencyLimit);
+        executor.setTaskDecorator(new ContextPropagatingTaskDecorator());  // [Tracing] 트레이스 컨텍스트 전파
+        // 종료 시 진행 중인 스트림이 마무리될 시간을 준다 (SSE 타임아웃 이내)
+        executor.setTaskTerminationTimeout(30_000);
+        return executor;
+    }
+
+    static Executor rejectWhenSaturated(Executor delegate, int permits, String name) {
+        return new SaturatingExecutor(delegate, permits, name);
+    }
+
+    /** 동시 실행 상한 초과 시 즉시 거부 — 실행 중 수 · 누적 거부 수는 {@link MetricsConfig}가 게이지로 노출 */
+    public static final class SaturatingExecutor implements Executor {
+        private final Executor delegate;
+        private final int permits;
+        private final String name;
+        private final Semaphore slots;
+        private final LongAdder rejected = new LongAdder();
+
+        SaturatingExecutor(Executor delegate, int permits, String name) {
+            this.delegate = delegate;
+            this.permits = permits;
+            this.name = name;
+            this.slots = new Semaphore(permits);
+        }
+
+        @Override
+        public void execute(Runnable task) {
+            if (!slots.tryAcquire()) {
+                rejected.increment();
+                throw new RejectedExecutionException(name + " saturated (limit=" + permits + ")");
+            }
+            try {
+                delegate.execute(() -> {
+                    try {
+                        task.run();
+                    } finally {
+                        slots.release();
+                    }
+                });
+            } catch (RuntimeException e) {
+                slots.release();
+                throw e;
+            }
+        }
+
+        public int inFlight() {
+            return permits - slots.availablePermits();
+        }
+
+        public long rejected() {
+            return rejected.sum();
+        }
+    }
+}
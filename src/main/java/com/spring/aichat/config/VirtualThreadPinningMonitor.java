@@ -0,0 +1,152 @@
+package com.spring.aichat.config;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingStream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * [Perf] 가상 스레드 피닝 감시 — JFR {@code jdk.VirtualThreadPinned} 이벤트 인프로세스 스트리밍
+ *
+ * <p>가상 스레드가 {@code synchronized} 블록이나 네이티브 프레임 안에서 블로킹하면 캐리어 스레드에 고정되어
+ * 다른 가상 스레드가 그 캐리어를 쓰지 못한다. 캐리어 수(= CPU 코어)만큼 동시에 피닝되면 전체가 멈춘다.
+ * 주요 의심 구간: JDBC 드라이버/커넥션 풀 내부 모니터, 레거시 라이브러리의 synchronized I/O.
+ *
+ * <p>이벤트의 스택에서 첫 번째 애플리케이션 프레임({@code com.spring.aichat.*})을 피닝 지점으로 집계한다
+ * (없으면 최상위 프레임). 지점별 첫 발생과 이후 {@value #LOG_EVERY}회마다 WARN 로그.
+ *
+ * <p>JDK 17 런타임에는 이벤트 타입이 없어 조용히 아무것도 수집하지 않는다.
+ * 부하 테스트 하네스에서는 Spring 없이 직접 생성해 {@link #start()} / {@link #close()}로 사용한다.
+ */
+@Slf4j
+@Component
+@Profile("vthreads")
+public class VirtualThreadPinningMonitor implements AutoCloseable {
+
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+    private static final String APP_PACKAGE = "com.spring.aichat.";
+    private static final int LOG_EVERY = 100;
+    private static final int STACK_DEPTH_IN_LOG = 8;
+
+    private final long thresholdMs;
+    private final ConcurrentHashMap<String, LongAdder> pinnedBySite = new ConcurrentHashMap<>();
+    private final LongAdder totalPinned = new LongAdder();
+    private final LongAdder totalPinnedNanos = new LongAdder();
+    private RecordingStream stream;
+
+    /** @param thresholdMs 이 시간 이상 피닝된 경우만 기록 (0이면 전부) */
+    public VirtualThreadPinningMonitor(@Value("${vthreads.pinning-threshold-ms:20}") long thresholdMs) {
+        this.thresholdMs = thresholdMs;
+    }
+
+    @PostConstruct
+    public synchronized void start() {
+        if (stream != null) return;
+        try {
+            RecordingStream rs = new RecordingStream();
+            rs.enable(PINNED_EVENT).withThreshold(Duration.ofMillis(thresholdMs)).withStackTrace();
+            rs.onEvent(PINNED_EVENT, this::onPinned);
+            rs.startAsync();
+            stream = rs;
+            log.info("🧵 [VTHREADS] pinning monitor started | threshold={}ms", thresholdMs);
+        } catch (Exception e) {
+            // JFR 비활성 JVM 등 — 감시만 포기하고 앱은 계속
+            log.warn("⚠️ [VTHREADS] pinning monitor unavailable: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    @Override
+    public synchronized void close() {
+        if (stream == null) return;
+        stream.close();
+        stream = null;
+        if (totalPinned.sum() > 0) {
+            log.warn("🧵 [VTHREADS] pinning summary | total={} | sites={}", totalPinned.sum(), snapshot());
+        }
+    }
+
+    private void onPinned(RecordedEvent event) {
+        RecordedStackTrace stackTrace = event.getStackTrace();
+        List<RecordedFrame> frames = stackTrace != null ? stackTrace.getFrames() : List.of();
+        String site = pinningSite(frames);
+
+        LongAdder counter = pinnedBySite.computeIfAbsent(site, k -> new LongAdder());
+        counter.increment();
+        totalPinned.increment();
+        totalPinnedNanos.add(event.getDuration().toNanos());
+
+        long count = counter.sum();
+        if (count == 1 || count % LOG_EVERY == 0) {
+            log.warn("🧵 [VTHREADS] virtual thread pinned {}ms | site={} | count={} | thread={}\n{}",
+                event.getDuration().toMillis(), site, count,
+                event.getThread("eventThread") != null ? event.getThread("eventThread").getJavaName() : "?",
+                formatStack(frames));
+        }
+    }
+
+    private static String pinningSite(List<RecordedFrame> frames) {
+        for (RecordedFrame frame : frames) {
+            if (frame.getMethod() != null && frame.getMethod().getType().getName().startsWith(APP_PACKAGE)) {
+                return frameName(frame);
+            }
+        }
+        return frames.isEmpty() ? "unknown" : frameName(frames.get(0));
+    }
+
+    private static String frameName(RecordedFrame frame) {
+        if (frame.getMethod() == null) return "native";
+        return frame.getMethod().getType().getName() + "." + frame.getMethod().getName() + ":" + frame.getLineNumber();
+    }
+
+    private static String formatStack(List<RecordedFrame> frames) {
+        StringBuilder sb = new StringBuilder();
+        int n = Math.min(frames.size(), STACK_DEPTH_IN_LOG);
+        for (int i = 0; i < n; i++) {
+            sb.append("    at ").append(frameName(frames.get(i))).append('\n');
+        }
+        if (frames.size() > n) sb.append("    ... ").append(frames.size() - n).append(" more");
+        return sb.toString();
+    }
+
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+    //  조회
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+
+    /** 피닝 지점별 누적 횟수 (정렬된 사본) */
+    public Map<String, Long> snapshot() {
+        Map<String, Long> result = new TreeMap<>();
+        pinnedBySite.forEach((site, c) -> result.put(site, c.sum()));
+        return result;
+    }
+
+    /** 애플리케이션 코드가 원인인 피닝 횟수 (JDK/라이브러리 내부 지점 제외) */
+    public long appPinnedCount() {
+        long sum = 0;
+        for (Map.Entry<String, LongAdder> e : pinnedBySite.entrySet()) {
+            if (e.getKey().startsWith(APP_PACKAGE)) sum += e.getValue().sum();
+        }
+        return sum;
+    }
+
+    public long totalPinnedCount() {
+        return totalPinned.sum();
+    }
+
+    public Duration totalPinnedDuration() {
+        return Duration.ofNanos(totalPinnedNanos.sum());
+    }
+}
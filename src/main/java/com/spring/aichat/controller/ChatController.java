@@ -9,6 +9,7 @@ import com.spring.aichat.dto.chat.SendChatRequest;
 import com.spring.aichat.exception.RateLimitException;
 import com.spring.aichat.security.ApiRateLimiter;
 import com.spring.aichat.service.ChatService;
+import com.spring.aichat.service.metrics.ChatMetrics;
 import com.spring.aichat.service.stream.ChatStreamService;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.Size;
@@ -47,6 +48,7 @@ public class ChatController {
     private final ChatStreamService chatStreamService;
     private final ChatLogMongoRepository chatLogRepository;
     private final ApiRateLimiter rateLimiter;
+    private final ChatMetrics chatMetrics;
 
     // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
     //  SSE 스트리밍 메시지 전송 (유일한 채팅 경로)
@@ -66,7 +68,7 @@ public class ChatController {
 
         // [Phase6/Tier4 / H-18] SSE timeout = LLM timeout(120s) + 30s buffer.
         //   동일 timeout 시 LLM이 119초 응답에도 SSE 만료로 클라이언트 timeout 발생.
-        SseEmitter emitter = new SseEmitter(150_000L);
+        SseEmitter emitter = chatMetrics.trackSse(new SseEmitter(150_000L), "chat");
         emitter.onTimeout(() -> {
             log.warn("⏱️ [SSE] Emitter timeout: roomId={}", roomId);
             emitter.complete();
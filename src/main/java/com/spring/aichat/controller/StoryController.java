@@ -4,6 +4,7 @@ import com.spring.aichat.dto.director.DirectorDirective;
 import com.spring.aichat.exception.RateLimitException;
 import com.spring.aichat.security.ApiRateLimiter;
 import com.spring.aichat.service.director.DirectorService;
+import com.spring.aichat.service.metrics.ChatMetrics;
 import com.spring.aichat.service.stream.ChatStreamService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.MediaType;
@@ -36,6 +37,7 @@ public class StoryController {
     private final DirectorService directorService;
     private final ChatStreamService chatStreamService;
     private final ApiRateLimiter rateLimiter;
+    private final ChatMetrics chatMetrics;
 
     // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
     //  디렉터 엔드포인트
@@ -104,7 +106,7 @@ public class StoryController {
         }
 
         // [Phase6/Tier4 / H-18] SSE timeout 150s — LLM timeout 120s + 30s buffer
-        SseEmitter emitter = new SseEmitter(150_000L);
+        SseEmitter emitter = chatMetrics.trackSse(new SseEmitter(150_000L), "director");
         emitter.onTimeout(emitter::complete);
         emitter.onError(ex -> {});
 
@@ -128,7 +130,7 @@ public class StoryController {
         }
 
         // [Phase6/Tier4 / H-18] SSE timeout 150s — LLM timeout 120s + 30s buffer
-        SseEmitter emitter = new SseEmitter(150_000L);
+        SseEmitter emitter = chatMetrics.trackSse(new SseEmitter(150_000L), "director");
         emitter.onTimeout(emitter::complete);
         emitter.onError(ex -> {});
         chatStreamService.sendDirectorWatchStream(roomId, emitter);
@@ -146,7 +148,7 @@ public class StoryController {
         }
 
         // [Phase6/Tier4 / H-18] SSE timeout 150s — LLM timeout 120s + 30s buffer
-        SseEmitter emitter = new SseEmitter(150_000L);
+        SseEmitter emitter = chatMetrics.trackSse(new SseEmitter(150_000L), "director");
         emitter.onTimeout(emitter::complete);
         emitter.onError(ex -> {});
         chatStreamService.sendTimeSkipStream(roomId, emitter);
@@ -12,6 +12,7 @@ import com.spring.aichat.dto.story.StoryV2Responses.StoryRoomV2DetailResponse;
 import com.spring.aichat.exception.NotFoundException;
 import com.spring.aichat.exception.RateLimitException;
 import com.spring.aichat.security.ApiRateLimiter;
+import com.spring.aichat.service.metrics.ChatMetrics;
 import com.spring.aichat.service.story.ChatStreamServiceV2;
 import com.spring.aichat.service.story.OffscreenNotificationService;
 import com.spring.aichat.service.story.StoryV2Service;
@@ -58,6 +59,7 @@ public class StoryV2Controller {
     private final OffscreenNotificationService notificationService;
     private final UserRepository userRepository;
     private final ApiRateLimiter rateLimiter;
+    private final ChatMetrics chatMetrics;
 
     // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
     //  CreateFlow
@@ -159,7 +161,7 @@ public class StoryV2Controller {
             throw new RateLimitException("요청이 너무 빠릅니다.", 3);
         }
 
-        SseEmitter emitter = new SseEmitter(150_000L);
+        SseEmitter emitter = chatMetrics.trackSse(new SseEmitter(150_000L), "story_v2");
         emitter.onTimeout(() -> {
             log.warn("⏱️ [V2-SSE] Emitter timeout: roomId={}", roomId);
             emitter.complete();
@@ -181,7 +183,7 @@ public class StoryV2Controller {
         produces = MediaType.TEXT_EVENT_STREAM_VALUE)
     @PreAuthorize("@authGuard.checkRoomOwnership(#roomId, principal.subject)")
     public SseEmitter openingStream(@PathVariable Long roomId) {
-        SseEmitter emitter = new SseEmitter(150_000L);
+        SseEmitter emitter = chatMetrics.trackSse(new SseEmitter(150_000L), "story_v2_opening");
         emitter.onTimeout(() -> {
             log.warn("⏱️ [V2-OPENING] Emitter timeout: roomId={}", roomId);
             emitter.complete();
@@ -2,13 +2,18 @@ package com.spring.aichat.controller;
 
 import com.spring.aichat.dto.theater.TheaterRequests.*;
 import com.spring.aichat.dto.theater.TheaterResponses.*;
+import com.spring.aichat.service.metrics.ChatMetrics;
+import com.spring.aichat.service.theater.TheaterBatchStreamService;
 import com.spring.aichat.service.theater.TheaterService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.Map;
 
@@ -20,17 +25,21 @@ import java.util.Map;
  *
  * [Endpoints]
  * POST   /api/v1/theater/rooms/{roomId}/next-batch         — 다음 배치 요청
+ * POST   /api/v1/theater/rooms/{roomId}/next-batch/stream  — 다음 배치 SSE (씬 단위 전달)
  * POST   /api/v1/theater/rooms/{roomId}/batch-consumed     — 배치 소비 완료 신호
  * POST   /api/v1/theater/rooms/{roomId}/chapter-end        — Chapter 종료 처리 (리포트 반환)
  * POST   /api/v1/theater/rooms/{roomId}/prefetch           — 비동기 prefetch 트리거
  * PATCH  /api/v1/theater/rooms/{roomId}/play-settings      — 재생 설정 변경
  */
+@Slf4j
 @RestController
 @RequiredArgsConstructor
 @RequestMapping("/api/v1/theater/rooms")
 public class TheaterController {
 
     private final TheaterService theaterService;
+    private final TheaterBatchStreamService batchStreamService;
+    private final ChatMetrics chatMetrics;
 
     // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
     //  배치 요청
@@ -51,6 +60,32 @@ public class TheaterController {
         return theaterService.requestNextBatch(roomId, authentication.getName(), prefetch);
     }
 
+    /**
+     * [Perf] 다음 Scene 배치 — SSE로 씬이 완성되는 대로 전달 (항상 에너지 차감 경로).
+     * <p>SSE 이벤트: {@code batch_meta} → {@code first_scene} → {@code scene}… → {@code batch_complete}.
+     * prefetch가 같은 배치를 만드는 중이면 새로 생성하지 않고 그 진행을 따라잡는다.
+     * <p>[Timeout 정책] 다른 SSE 엔드포인트와 동일 — LLM timeout(120s) + 30s buffer = 150s.
+     */
+    @PostMapping(value = "/{roomId}/next-batch/stream",
+        produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @PreAuthorize("@authGuard.checkRoomOwnership(#roomId, principal.subject)")
+    public SseEmitter streamNextBatch(
+        @PathVariable Long roomId,
+        Authentication authentication
+    ) {
+        SseEmitter emitter = chatMetrics.trackSse(new SseEmitter(150_000L), "theater_batch");
+        emitter.onTimeout(() -> {
+            log.warn("⏱️ [THEATER-SSE] Emitter timeout: roomId={}", roomId);
+            emitter.complete();
+        });
+        emitter.onError(ex ->
+            log.warn("⚠️ [THEATER-SSE] Emitter error: roomId={} | {}", roomId, ex.getMessage())
+        );
+
+        batchStreamService.streamNextBatch(roomId, authentication.getName(), emitter);
+        return emitter;
+    }
+
     // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
     //  배치 소비 완료 신호
     // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
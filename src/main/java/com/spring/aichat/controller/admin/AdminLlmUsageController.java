@@ -0,0 +1,31 @@
+package com.spring.aichat.controller.admin;
+
+import com.spring.aichat.dto.admin.LlmUsageRollup;
+import com.spring.aichat.service.admin.AdminLlmUsageService;
+import com.spring.aichat.service.metering.LlmUsageStore.Dimension;
+import com.spring.aichat.service.metering.LlmUsageStore.SortBy;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+/** 관리자 LLM 토큰·비용 대시보드. */
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/api/v1/admin/llm-usage")
+public class AdminLlmUsageController {
+
+    private final AdminLlmUsageService adminLlmUsageService;
+
+    /** 예) /top?dimension=CALLER&hours=24&sort=COST&limit=20 */
+    @GetMapping("/top")
+    public List<LlmUsageRollup> top(@RequestParam(defaultValue = "CALLER") Dimension dimension,
+                                    @RequestParam(defaultValue = "24") int hours,
+                                    @RequestParam(defaultValue = "COST") SortBy sort,
+                                    @RequestParam(defaultValue = "20") int limit) {
+        return adminLlmUsageService.top(dimension, hours, sort, limit);
+    }
+}
@@ -0,0 +1,29 @@
+package com.spring.aichat.controller.admin;
+
+import com.spring.aichat.service.theater.TheaterPrefetchScheduler;
+import com.spring.aichat.service.theater.TheaterPrefetchScheduler.RoomStallStats;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+/**
+ * 관리자 Theater 선행 생성 현황 — 방별 배치 대기(정체) 상위 목록.
+ * roomId는 Prometheus 태그로 못 쓰므로(카디널리티) 노드 로컬 집계를 여기서 노출한다. 전역 분포는 {@code theater.batch.stall}.
+ */
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/api/v1/admin/theater-prefetch")
+public class AdminTheaterPrefetchController {
+
+    private final TheaterPrefetchScheduler prefetchScheduler;
+
+    /** 예) /stalls?limit=20 */
+    @GetMapping("/stalls")
+    public List<RoomStallStats> stalls(@RequestParam(defaultValue = "20") int limit) {
+        return prefetchScheduler.topStalls(limit);
+    }
+}
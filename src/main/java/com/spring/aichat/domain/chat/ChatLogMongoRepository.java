@@ -42,8 +42,12 @@ import java.util.Optional;
  *
  * 7. deleteByRoomId
  *    → 사용처: ChatService.deleteChatRoom (방 초기화 시 전체 삭제)
+ *
+ * 8. findTurnRange ({@link ChatLogTurnRangeRepository})
+ *    → idx_room_created 활용 (생성순 skip/limit)
+ *    → 사용처: MemoryService(요약 창 [fromTurn, toTurn))
  */
-public interface ChatLogMongoRepository extends MongoRepository<ChatLogDocument, String> {
+public interface ChatLogMongoRepository extends MongoRepository<ChatLogDocument, String>, ChatLogTurnRangeRepository {
 
     /**
      * 최근 20건 조회 (히스토리 구성용)
@@ -0,0 +1,17 @@
+package com.spring.aichat.domain.chat;
+
+import java.util.List;
+
+/**
+ * [Perf] 턴 번호(방 안 생성순 0부터) 구간 조회 — {@link ChatLogMongoRepository} 커스텀 프래그먼트
+ *
+ * 요약 워터마크가 로그 수 기준 턴 번호라 "최근 N건"으로 읽으면 그 사이 새로 쌓인 로그가 창에 섞인다.
+ */
+public interface ChatLogTurnRangeRepository {
+
+    /**
+     * [fromTurn, toTurn) 구간 로그 (오래된 → 최신)
+     * Covered by: idx_room_created (역방향 스캔 + skip)
+     */
+    List<ChatLogDocument> findTurnRange(Long roomId, int fromTurn, int toTurn);
+}
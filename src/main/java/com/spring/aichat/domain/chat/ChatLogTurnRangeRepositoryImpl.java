@@ -0,0 +1,28 @@
+package com.spring.aichat.domain.chat;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.List;
+
+/**
+ * {@link ChatLogTurnRangeRepository} 구현 — Spring Data가 이름 규칙(…Impl)으로 리포지토리에 합성한다.
+ */
+@RequiredArgsConstructor
+class ChatLogTurnRangeRepositoryImpl implements ChatLogTurnRangeRepository {
+
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public List<ChatLogDocument> findTurnRange(Long roomId, int fromTurn, int toTurn) {
+        if (toTurn <= fromTurn) return List.of();
+        Query query = Query.query(Criteria.where("roomId").is(roomId))
+            .with(Sort.by(Sort.Order.asc("createdAt"), Sort.Order.asc("_id")))
+            .skip(Math.max(0, fromTurn))
+            .limit(toTurn - Math.max(0, fromTurn));
+        return mongoTemplate.find(query, ChatLogDocument.class);
+    }
+}
@@ -296,6 +296,34 @@ public final class ChatModePolicy {
         return mode == ChatMode.SANDBOX;
     }
 
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+    //  [Perf] 출력 토큰 예산 — ContextBudgeter가 프롬프트 크기에 맞춰 이 범위에서 max_tokens 결정
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+
+    /**
+     * max_tokens 상한 (= 컨텍스트 예산에서 먼저 떼어 두는 출력 몫).
+     * <p>STORY V2: 멀티씬(4~5)+system_updates 한글 JSON. SANDBOX: 멀티씬(2~3)+location. THEATER: 배치 5~8씬.
+     */
+    public static int getMaxOutputTokens(ChatMode mode) {
+        return switch (mode) {
+            case STORY -> 8192;
+            case SANDBOX -> 6144;
+            case THEATER -> 4000;
+        };
+    }
+
+    /**
+     * max_tokens 하한 — 프롬프트가 예산을 넘겨 출력 몫을 줄여야 할 때도 이 아래로는 내리지 않는다.
+     * <p>그 아래는 scenes 배열 중간 잘림(JSON 파스 에러) 구간.
+     */
+    public static int getMinOutputTokens(ChatMode mode) {
+        return switch (mode) {
+            case STORY -> 6144;
+            case SANDBOX -> 4096;
+            case THEATER -> 4000;
+        };
+    }
+
     // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
     //  Director Constants — SANDBOX로 이관됨
     // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
@@ -40,6 +40,8 @@ import java.time.LocalDateTime;
  * <p>[조회 인덱스]
  * - 디렉터 prompt 빌딩 시 자주 조회: {@code (room_id, character_id, created_at DESC)}.
  * - 캐싱 ({@code MemoryService}의 Redis 패턴 동일 활용).
+ *
+ * <p>[Perf] 계층 압축 — {@link MemorySummary}와 동일한 tier 구조 (MemoryCompactor). 정렬은 (turn_number, id).
  */
 @Getter
 @NoArgsConstructor
@@ -86,6 +88,17 @@ public class HeroineMemorySummary {
     @Column(name = "source_mode", nullable = false, length = 20)
     private String sourceMode;
 
+    /** 압축 단계 — 0 = 원본 요약 */
+    @Column(name = "tier", nullable = false)
+    private int tier;
+
+    /** 병합 행이 대체한 자식 id 범위 (tier 0은 null) */
+    @Column(name = "source_from_id")
+    private Long sourceFromId;
+
+    @Column(name = "source_to_id")
+    private Long sourceToId;
+
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
 
@@ -121,4 +134,21 @@ public class HeroineMemorySummary {
         m.sourceMode = "THEATER";
         return m;
     }
+
+    /** 병합 행 — 자식 [fromId..toId]를 대체. sourceMode는 마지막 자식 것을 승계 */
+    public static HeroineMemorySummary compacted(Long roomId, Long characterId, Long userId, String summary,
+                                                 int turnNumber, String sourceMode,
+                                                 int tier, Long fromId, Long toId) {
+        HeroineMemorySummary m = new HeroineMemorySummary();
+        m.roomId = roomId;
+        m.characterId = characterId;
+        m.userId = userId;
+        m.summary = summary;
+        m.turnNumber = turnNumber;
+        m.sourceMode = sourceMode;
+        m.tier = tier;
+        m.sourceFromId = fromId;
+        m.sourceToId = toId;
+        return m;
+    }
 }
\ No newline at end of file
@@ -1,6 +1,9 @@
 package com.spring.aichat.domain.memory;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.util.List;
 
@@ -22,8 +25,10 @@ public interface HeroineMemorySummaryRepository extends JpaRepository<HeroineMem
     /**
      * 특정 방-캐릭터의 메모리 — 시간순 오름차순.
      * 디렉터 prompt [8] 섹션의 *그 캐릭터의 누적 기억* 빌딩.
+     *
+     * <p>[Perf] 병합 행은 created_at이 병합 시각이라 turn_number 기준으로 정렬.
      */
-    List<HeroineMemorySummary> findByRoomIdAndCharacterIdOrderByCreatedAtAsc(Long roomId, Long characterId);
+    List<HeroineMemorySummary> findByRoomIdAndCharacterIdOrderByTurnNumberAscIdAsc(Long roomId, Long characterId);
 
     /**
      * 방의 모든 메모리 — 디버그/관리자용.
@@ -40,4 +45,11 @@ public interface HeroineMemorySummaryRepository extends JpaRepository<HeroineMem
 
     /** 특정 방-캐릭터 단위 삭제 — 향후 *특정 캐릭터만 기억 리셋* 같은 기능 대비 */
     void deleteByRoomIdAndCharacterId(Long roomId, Long characterId);
+
+    /** [Perf] 계층 압축 커밋 — 병합된 자식 삭제 (반환 건수로 중복 병합 감지) */
+    @Modifying
+    @Query("DELETE FROM HeroineMemorySummary m WHERE m.roomId = :roomId AND m.characterId = :characterId "
+        + "AND m.tier = :tier AND m.id IN :ids")
+    int deleteCompacted(@Param("roomId") Long roomId, @Param("characterId") Long characterId,
+                        @Param("tier") int tier, @Param("ids") List<Long> ids);
 }
\ No newline at end of file
@@ -20,6 +20,9 @@ import java.time.LocalDateTime;
  * [인덱스]
  * - {room_id, created_at}: 방별 시간순 조회 (가장 빈번)
  * - {user_id}: 유저별 전체 기억 조회 (관리용)
+ *
+ * [Perf] 계층 압축 (MemoryCompactor) — tier 0 = LLM 요약 원본, tier n+1 = tier n 요약 fanout개 병합본.
+ * 병합 행의 turn_number는 마지막 자식의 턴이라 시간순 정렬은 (turn_number, id) 기준.
  */
 @Getter
 @NoArgsConstructor
@@ -45,10 +48,25 @@ public class MemorySummary {
     @Column(name = "summary", nullable = false, columnDefinition = "TEXT")
     private String summary;
 
-    /** 이 요약이 생성된 시점의 유저 턴 수 */
+    /** 이 요약이 덮는 마지막 로그 번호 (= 요약 시점의 로그 수, 구간 [turnFrom, turnNumber)의 끝) */
     @Column(name = "turn_number", nullable = false)
     private int turnNumber;
 
+    /** [Perf] 요약 구간 시작 로그 번호 — SummarizationCoordinator 도입 이전 행·병합 행은 null */
+    @Column(name = "turn_from")
+    private Integer turnFrom;
+
+    /** 압축 단계 — 0 = 원본 요약 */
+    @Column(name = "tier", nullable = false)
+    private int tier;
+
+    /** 병합 행이 대체한 자식 id 범위 (tier 0은 null). (room_id, tier, source_from_id) 유니크 — 중복 병합 방지 */
+    @Column(name = "source_from_id")
+    private Long sourceFromId;
+
+    @Column(name = "source_to_id")
+    private Long sourceToId;
+
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
 
@@ -63,4 +81,21 @@ public class MemorySummary {
         this.summary = summary;
         this.turnNumber = turnNumber;
     }
+
+    /** 원본 요약 행 — 로그 구간 [turnFrom, turnTo) */
+    public static MemorySummary window(Long roomId, Long userId, String summary, int turnFrom, int turnTo) {
+        MemorySummary m = new MemorySummary(roomId, userId, summary, turnTo);
+        m.turnFrom = turnFrom;
+        return m;
+    }
+
+    /** 병합 행 — 자식 요약 [fromId..toId]를 대체 */
+    public static MemorySummary compacted(Long roomId, Long userId, String summary, int turnNumber,
+                                          int tier, Long fromId, Long toId) {
+        MemorySummary m = new MemorySummary(roomId, userId, summary, turnNumber);
+        m.tier = tier;
+        m.sourceFromId = fromId;
+        m.sourceToId = toId;
+        return m;
+    }
 }
\ No newline at end of file
@@ -1,6 +1,9 @@
 package com.spring.aichat.domain.memory;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.util.List;
 
@@ -16,8 +19,23 @@ public interface MemorySummaryRepository extends JpaRepository<MemorySummary, Lo
     /**
      * 방별 장기 기억 전체 조회 (시간순 오름차순)
      * Redis 캐시 미스 시 폴백으로 사용.
+     *
+     * [Perf] 병합 행은 created_at이 병합 시각이라 turn_number 기준으로 정렬
      */
-    List<MemorySummary> findByRoomIdOrderByCreatedAtAsc(Long roomId);
+    List<MemorySummary> findByRoomIdOrderByTurnNumberAscIdAsc(Long roomId);
+
+    /**
+     * [Perf] 계층 압축 커밋 — 병합된 자식 삭제. 반환 건수가 자식 수와 다르면 이미 다른 곳에서 접힌 것
+     */
+    @Modifying
+    @Query("DELETE FROM MemorySummary m WHERE m.roomId = :roomId AND m.tier = :tier AND m.id IN :ids")
+    int deleteCompacted(@Param("roomId") Long roomId, @Param("tier") int tier, @Param("ids") List<Long> ids);
+
+    /**
+     * [Perf] 요약 워터마크 — 이미 요약된 마지막 로그 번호 (병합 행도 마지막 자식의 턴을 가지므로 MAX가 보존됨)
+     */
+    @Query("SELECT COALESCE(MAX(m.turnNumber), 0) FROM MemorySummary m WHERE m.roomId = :roomId")
+    int findSummarizedTurn(@Param("roomId") Long roomId);
 
     /**
      * 방별 기억 삭제 (대화 초기화 시)
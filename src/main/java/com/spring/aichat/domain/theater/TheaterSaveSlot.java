@@ -23,6 +23,9 @@ import java.time.LocalDateTime;
  *   "savedAt": "ISO-8601"
  * }
  *
+ * [Perf] 새 세이브는 snapshot_json 대신 snapshot_manifest_id — 청크 · 델타 저장소(V31, TheaterSnapshotStore)의 체인 끝.
+ *   둘 중 하나만 채워진다. 기존 슬롯(snapshot_json)은 그대로 로드된다.
+ *
  * [스냅샷의 범위]
  * - ChatRoom 엔티티 전체를 복제하지 않고, Theater 관련 상태만 저장
  * - ChatLog는 MongoDB에 있으며 커서 시점까지 되감는 방식이 아닌 "append-only 참조"
@@ -80,10 +83,14 @@ public class TheaterSaveSlot {
     @Column(name = "lead_heroine_id")
     private Long leadHeroineId;
 
-    /** 전체 스냅샷 JSON (PG — LONGTEXT는 MySQL 전용이라 테이블 생성 자체가 실패했음, V24 참조) */
-    @Column(name = "snapshot_json", nullable = false, columnDefinition = "TEXT")
+    /** 전체 스냅샷 JSON (PG — LONGTEXT는 MySQL 전용이라 테이블 생성 자체가 실패했음, V24 참조). V31 이후 레거시 슬롯만 */
+    @Column(name = "snapshot_json", columnDefinition = "TEXT")
     private String snapshotJson;
 
+    /** [Perf] 스냅샷 매니페스트 체인 끝 (theater_snapshot_manifests.id, V31) */
+    @Column(name = "snapshot_manifest_id")
+    private Long snapshotManifestId;
+
     /** Quick Save 여부 */
     @Column(name = "is_quick_save", nullable = false)
     private boolean quickSave = false;
@@ -98,7 +105,8 @@ public class TheaterSaveSlot {
 
     public static TheaterSaveSlot create(ChatRoom room, int slotNumber, String label,
                                          String previewText, int actNumber, int chapterNumber,
-                                         Long leadHeroineId, String snapshotJson, boolean quickSave) {
+                                         Long leadHeroineId, String snapshotJson, Long snapshotManifestId,
+                                         boolean quickSave) {
         TheaterSaveSlot s = new TheaterSaveSlot();
         s.room = room;
         s.slotNumber = slotNumber;
@@ -108,18 +116,20 @@ public class TheaterSaveSlot {
         s.chapterNumber = chapterNumber;
         s.leadHeroineId = leadHeroineId;
         s.snapshotJson = snapshotJson;
+        s.snapshotManifestId = snapshotManifestId;
         s.quickSave = quickSave;
         return s;
     }
 
     public void overwrite(String label, String previewText, int actNumber, int chapterNumber,
-                          Long leadHeroineId, String snapshotJson) {
+                          Long leadHeroineId, String snapshotJson, Long snapshotManifestId) {
         this.label = label;
         this.previewText = previewText;
         this.actNumber = actNumber;
         this.chapterNumber = chapterNumber;
         this.leadHeroineId = leadHeroineId;
         this.snapshotJson = snapshotJson;
+        this.snapshotManifestId = snapshotManifestId;
         this.savedAt = LocalDateTime.now();
     }
 }
\ No newline at end of file
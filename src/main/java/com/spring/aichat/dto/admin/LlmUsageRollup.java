@@ -0,0 +1,24 @@
+package com.spring.aichat.dto.admin;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.math.BigDecimal;
+
+/**
+ * LLM 사용량 롤업 1행. key 는 조회 차원 값(caller / model / provider / roomId / userId — 태그 없으면 null).
+ * cachedTokens 는 promptTokens 중 프롬프트 캐시 적중분.
+ */
+public record LlmUsageRollup(
+    String key,
+    long calls,
+    long promptTokens,
+    long completionTokens,
+    long cachedTokens,
+    BigDecimal costUsd
+) {
+    /** [Perf] 프롬프트 캐시 적중률 (cachedTokens / promptTokens) — caller 차원으로 보면 경로별 prefix 안정성 */
+    @JsonProperty("cachedRate")
+    public double cachedRate() {
+        return promptTokens == 0 ? 0.0 : (double) cachedTokens / promptTokens;
+    }
+}
@@ -0,0 +1,20 @@
+package com.spring.aichat.dto.chat;
+
+/**
+ * [Perf] SSE {@code scene} 이벤트 페이로드 — LLM 스트림에서 scenes[index]가 닫히는 즉시 전송.
+ *
+ * <p>V1(SANDBOX) / V2(STORY) 공용. {@code scene}은 final_result와 동일한 sanitize
+ * (화자 prefix 제거 + 대문자 정규화)를 거친 값이다.
+ *
+ * <p>프론트 계약:
+ * <ul>
+ *   <li>index 순서대로 도착 (0부터 연속)</li>
+ *   <li>final_result.scenes가 null이면 스트림으로 모든 씬이 전달된 것 — 받은 씬을 그대로 확정</li>
+ *   <li>final_result.scenes가 있으면(파싱 실패 등으로 누락 발생) 그 목록으로 교체</li>
+ * </ul>
+ * 기존 {@code first_scene} 이벤트는 구버전 클라이언트 호환을 위해 index 0에서 함께 발송된다.
+ */
+public record SceneStreamEvent(
+    int index,
+    SendChatResponse.SceneResponse scene
+) {}
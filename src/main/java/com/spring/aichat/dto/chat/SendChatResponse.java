@@ -11,6 +11,7 @@ import java.util.List;
  *   - V2 ChatStreamServiceV2.buildSendChatResponseV2가 채움
  *   - V1 호출자는 null 전달 (모든 기존 생성자 갱신됨)
  *   - V1 프론트는 미사용, V2 프론트는 디렉터 선택지 chip 노출용
+ * [Perf] SSE final_result의 scenes는 scene 이벤트({@link SceneStreamEvent})로 전부 전달됐으면 null
  */
 public record SendChatResponse(
     Long roomId, List<SceneResponse> scenes,
@@ -13,6 +13,9 @@ import java.util.Map;
  *   - frequency_penalty: 이미 등장한 토큰의 반복을 억제 (중복 대사 방지)
  *   - presence_penalty: 새로운 주제/표현을 유도 (다양성 향상)
  *   - null이면 JSON 직렬화에서 제외 (기존 동작 유지)
+ *
+ * [Metering] usage 추가 — {@code {"include": true}}면 OpenRouter가 응답(스트리밍은 마지막 청크)에
+ *   토큰 수 + cost를 실어 준다. 클라이언트가 {@link #withUsageAccounting()}으로 일괄 주입.
  */
 @JsonInclude(JsonInclude.Include.NON_NULL)
 public record OpenAiChatRequest(
@@ -24,8 +27,20 @@ public record OpenAiChatRequest(
     @JsonProperty("presence_penalty")  Double presencePenalty,
     Map<String, Object> provider,
     @JsonProperty("response_format") Map<String, String> responseFormat,
-    @JsonProperty("max_tokens") Integer maxTokens   // [Q2-Fix] 미지정(null) 시 직렬화 제외(NON_NULL) → 기존 동작 보존
+    @JsonProperty("max_tokens") Integer maxTokens,  // [Q2-Fix] 미지정(null) 시 직렬화 제외(NON_NULL) → 기존 동작 보존
+    Map<String, Object> usage                       // [Metering] usage accounting 요청
 ) {
+    private static final Map<String, Object> USAGE_ACCOUNTING = Map.of("include", true);
+
+    /** 하위 호환: usage 없는 9-인자 (기존 호출처 보존) */
+    public OpenAiChatRequest(String model, List<OpenAiMessage> messages, Double temperature,
+                             Boolean stream, Double frequencyPenalty, Double presencePenalty,
+                             Map<String, Object> provider, Map<String, String> responseFormat,
+                             Integer maxTokens) {
+        this(model, messages, temperature, stream, frequencyPenalty, presencePenalty,
+            provider, responseFormat, maxTokens, null);
+    }
+
     /** 하위 호환: maxTokens 없는 8-인자 (기존 호출처 보존) */
     public OpenAiChatRequest(String model, List<OpenAiMessage> messages, Double temperature,
                              Boolean stream, Double frequencyPenalty, Double presencePenalty,
@@ -52,4 +67,10 @@ public record OpenAiChatRequest(
     public static OpenAiChatRequest withoutPenalty(String model, List<OpenAiMessage> messages, Double temperature) {
         return new OpenAiChatRequest(model, messages, temperature, false, null, null, null, null);
     }
+
+    /** [Metering] usage accounting을 켠 사본 (나머지 필드 동일) */
+    public OpenAiChatRequest withUsageAccounting() {
+        return new OpenAiChatRequest(model, messages, temperature, stream, frequencyPenalty, presencePenalty,
+            provider, responseFormat, maxTokens, USAGE_ACCOUNTING);
+    }
 }
\ No newline at end of file
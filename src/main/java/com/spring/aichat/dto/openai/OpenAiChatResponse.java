@@ -6,10 +6,14 @@ import java.util.List;
 
 /**
  * OpenAI 호환 ChatCompletion 응답 DTO
+ *
+ * [Metering] provider(OpenRouter가 실제 라우팅한 프로바이더) / usage 추가 — 미제공 시 null
  */
 @JsonIgnoreProperties(ignoreUnknown = true)
 public record OpenAiChatResponse(
-    List<Choice> choices
+    List<Choice> choices,
+    String provider,
+    OpenAiUsage usage
 ) {
     @JsonIgnoreProperties(ignoreUnknown = true)
     public record Choice(Message message) {}
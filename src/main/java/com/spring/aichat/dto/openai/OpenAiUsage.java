@@ -0,0 +1,33 @@
+package com.spring.aichat.dto.openai;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * OpenAI 호환 usage 블록 (OpenRouter 확장 필드 포함)
+ *
+ * <pre>
+ * "usage": {
+ *   "prompt_tokens": 5120, "completion_tokens": 812, "total_tokens": 5932,
+ *   "prompt_tokens_details": { "cached_tokens": 4096 },
+ *   "cost": 0.00231
+ * }
+ * </pre>
+ * 스트리밍에서는 마지막 청크에만 실려 온다.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record OpenAiUsage(
+    @JsonProperty("prompt_tokens") long promptTokens,
+    @JsonProperty("completion_tokens") long completionTokens,
+    @JsonProperty("total_tokens") long totalTokens,
+    @JsonProperty("prompt_tokens_details") PromptTokensDetails promptTokensDetails,
+    /** OpenRouter 청구 금액 (USD, credits). 미제공 시 null */
+    Double cost
+) {
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record PromptTokensDetails(@JsonProperty("cached_tokens") long cachedTokens) {}
+
+    public long cachedTokens() {
+        return promptTokensDetails != null ? promptTokensDetails.cachedTokens() : 0L;
+    }
+}
@@ -18,6 +18,10 @@ import java.util.List;
  * <p><b>프론트 계약(무수정)</b> — JSON 키 {@code scenes / dialogueOptions / topicConcluded /
  * locationTransition}는 V1 DTO와 동일하게 유지되므로 프론트엔드 변경이 필요 없다.
  * {@code roomId / hasInnerThought / assistantLogId}는 추가 메타(프론트가 무시해도 무방).
+ *
+ * <p>[Perf] 씬은 SSE {@code scene} 이벤트({@link com.spring.aichat.dto.chat.SceneStreamEvent})로
+ * 완성 즉시 전달된다. 모든 씬이 스트림으로 전달됐으면 {@code scenes}는 null이고,
+ * 누락이 있을 때만 전체 목록이 실린다(클라이언트는 그 목록으로 교체).
  */
 public record StoryV2SendResponse(
     Long roomId,
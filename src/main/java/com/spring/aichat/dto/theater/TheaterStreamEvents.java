@@ -79,7 +79,9 @@ public final class TheaterStreamEvents {
         /** 이 배치에서 변경된 히로인 호감도 */
         Map<Long, Integer> heroineAffectionDeltas,
         /** 이 배치에서 발동된 아바타 스탯 노출량 (UI 힌트) */
-        Map<String, Integer> avatarStatReflection
+        Map<String, Integer> avatarStatReflection,
+        /** [Perf] 배치 말미 분기 신호 — 스트리밍 경로에선 씬이 먼저 나가므로 여기서 전달 */
+        TheaterResponses.BranchSignal branchSignal
     ) {}
 
     @JsonInclude(JsonInclude.Include.NON_NULL)
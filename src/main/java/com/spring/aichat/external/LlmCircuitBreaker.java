@@ -1,12 +1,16 @@
 package com.spring.aichat.external;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.util.Arrays;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * [Phase 5.5-Stability] TTFT 기반 LLM Provider 서킷 브레이커
@@ -44,6 +48,17 @@ import java.util.concurrent.atomic.AtomicReference;
  *    1) 해당 요청은 즉시 스트림 중단 → Vertex로 재시도
  *    2) 실패 카운트 1 증가
  *    → 연속 3회 도달 시 서킷이 OPEN으로 전환
+ *
+ * ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+ *  [Hedge] 지연 헤지 요청 (llm.hedge.enabled=true)
+ * ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+ *
+ *  중단 후 재시도 대신, 최근 AI Studio TTFT의 p90(설정값)이 지나도 첫 토큰이 없으면
+ *  Vertex 요청을 병렬로 띄우고 먼저 첫 토큰을 낸 쪽을 채택, 나머지는 취소한다.
+ *    - 헤지 지연 = 슬라이딩 윈도우(최근 N건) TTFT 백분위, [최소 지연, 현재 데드라인]으로 클램프
+ *    - 표본 부족 시 기본 지연 사용
+ *    - 헤지가 이기면 primary는 실패로 기록 (연속 3회 → OPEN, 이후 헤지 없이 Vertex 직행)
+ *    - 실행 자체는 {@link LlmHedgedStreamer}, 여기서는 지연 산출 + 승패/비용 지표만 관리
  */
 @Component
 @Slf4j
@@ -88,6 +103,30 @@ public class LlmCircuitBreaker {
     public static final String PROVIDER_AI_STUDIO = "google-ai-studio";
     public static final String PROVIDER_VERTEX = "google-vertex";
 
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+    //  [Hedge] 설정값 (new LlmCircuitBreaker()로 만든 경우 필드 기본값 사용)
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+
+    /** TTFT 슬라이딩 윈도우 크기 (최근 N건) */
+    private static final int TTFT_WINDOW_SIZE = 200;
+
+    @Value("${llm.hedge.enabled:false}")
+    private boolean hedgeEnabled = false;
+
+    /** 헤지 발사 시점 = 최근 TTFT의 이 백분위 */
+    @Value("${llm.hedge.percentile:90}")
+    private int hedgePercentile = 90;
+
+    /** 백분위 산출에 필요한 최소 표본 수 — 미만이면 기본 지연 */
+    @Value("${llm.hedge.min-samples:20}")
+    private int hedgeMinSamples = 20;
+
+    @Value("${llm.hedge.min-delay-ms:300}")
+    private long hedgeMinDelayMs = 300;
+
+    @Value("${llm.hedge.default-delay-ms:1000}")
+    private long hedgeDefaultDelayMs = 1_000;
+
     // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
     //  Thread-safe 상태 변수
     // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
@@ -101,6 +140,24 @@ public class LlmCircuitBreaker {
     /** 프로브 시작 시각 — 교착 방지용 */
     private final AtomicLong probeStartedAt = new AtomicLong(0);
 
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+    //  [Hedge] TTFT 윈도우 + 헤지 지표
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+
+    /**
+     * AI Studio TTFT 링 버퍼 (ms). 첫 토큰이 실제로 도착한 요청만 담는다 — 데드라인 초과 · 헤지 패배로 끊긴 요청은
+     * 실제 TTFT를 모르므로 표본에서 뺀다 (recordFailure(-1)). 그래서 p90은 데드라인 안쪽 TTFT만의 백분위이고,
+     * AI Studio가 느려지면 느린 꼬리가 빠진 채 낮게 잡혀 헤지가 더 일찍 뜬다 (비용 쪽으로 치우침, 지연 쪽은 안전).
+     */
+    private final AtomicLongArray ttftWindow = new AtomicLongArray(TTFT_WINDOW_SIZE);
+    private final AtomicLong ttftSamples = new AtomicLong(0);
+
+    private final LongAdder hedgesLaunched = new LongAdder();
+    private final LongAdder hedgeWins = new LongAdder();
+    private final LongAdder hedgeLosses = new LongAdder();
+    /** 취소된 쪽이 이미 청구됐을 것으로 추정되는 prompt 토큰 (승자 usage 기준 추정치) */
+    private final LongAdder hedgeWastedPromptTokens = new LongAdder();
+
     // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
     //  핵심 API: Provider 결정
     // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
@@ -172,6 +229,7 @@ public class LlmCircuitBreaker {
     public void recordSuccess(long ttftMs) {
         State current = state.get();
         consecutiveFailures.set(0);
+        recordTtftSample(ttftMs);
 
         if (current == State.HALF_OPEN) {
             state.set(State.CLOSED);
@@ -191,6 +249,7 @@ public class LlmCircuitBreaker {
      */
     public void recordFailure(long ttftMs) {
         State current = state.get();
+        recordTtftSample(ttftMs);
 
         if (current == State.HALF_OPEN) {
             // 프로브 실패 → 즉시 OPEN 복귀
@@ -221,6 +280,65 @@ public class LlmCircuitBreaker {
         }
     }
 
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+    //  [Hedge] 헤지 지연 산출 + 승패 기록
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+
+    public boolean isHedgingEnabled() {
+        return hedgeEnabled;
+    }
+
+    /**
+     * 헤지 요청을 띄울 시점 (primary 요청 시작 기준 ms).
+     * 최근 TTFT 백분위를 [hedgeMinDelayMs, 데드라인]으로 클램프 — 데드라인보다 늦게 헤지할 이유는 없다.
+     */
+    public long hedgeDelayMs(ProviderDecision decision) {
+        long ceiling = decision.hasTtftDeadline() ? decision.ttftDeadlineMs() : Long.MAX_VALUE;
+        long percentile = ttftPercentile(hedgePercentile);
+        long delay = percentile < 0 ? hedgeDefaultDelayMs : percentile;
+        return Math.min(ceiling, Math.max(hedgeMinDelayMs, delay));
+    }
+
+    /** 윈도우 내 TTFT 백분위 (ms). 표본이 hedgeMinSamples 미만이면 -1 */
+    public long ttftPercentile(int percentile) {
+        int size = (int) Math.min(ttftSamples.get(), TTFT_WINDOW_SIZE);
+        if (size < hedgeMinSamples || size == 0) return -1;
+        long[] values = new long[size];
+        for (int i = 0; i < size; i++) {
+            values[i] = ttftWindow.get(i);
+        }
+        Arrays.sort(values);
+        int index = (int) Math.ceil(percentile / 100.0 * size) - 1;
+        return values[Math.max(0, Math.min(size - 1, index))];
+    }
+
+    public void recordHedgeLaunched() {
+        hedgesLaunched.increment();
+    }
+
+    /**
+     * 헤지 승패 기록.
+     *
+     * @param hedgeWon            true면 Vertex 헤지가 먼저 첫 토큰 도달
+     * @param wastedPromptTokens  취소된 쪽의 추정 prompt 토큰 (알 수 없으면 0)
+     */
+    public void recordHedgeOutcome(boolean hedgeWon, long wastedPromptTokens) {
+        if (hedgeWon) hedgeWins.increment();
+        else hedgeLosses.increment();
+        if (wastedPromptTokens > 0) hedgeWastedPromptTokens.add(wastedPromptTokens);
+    }
+
+    public HedgeStats getHedgeStats() {
+        return new HedgeStats(hedgesLaunched.sum(), hedgeWins.sum(), hedgeLosses.sum(),
+            hedgeWastedPromptTokens.sum(), ttftPercentile(hedgePercentile));
+    }
+
+    private void recordTtftSample(long ttftMs) {
+        if (ttftMs < 0) return; // 연결 실패 등 TTFT 미측정
+        long slot = ttftSamples.getAndIncrement();
+        ttftWindow.set((int) (slot % TTFT_WINDOW_SIZE), ttftMs);
+    }
+
     // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
     //  상태 조회 (모니터링/로깅용)
     // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
@@ -235,7 +353,7 @@ public class LlmCircuitBreaker {
 
     public String getStatusSummary() {
         State s = state.get();
-        return switch (s) {
+        String circuit = switch (s) {
             case CLOSED -> "CLOSED (AI Studio, failures=" + consecutiveFailures.get() + "/" + FAILURE_THRESHOLD + ")";
             case OPEN -> {
                 long remaining = OPEN_DURATION_MS - (System.currentTimeMillis() - circuitOpenedAt.get());
@@ -243,6 +361,10 @@ public class LlmCircuitBreaker {
             }
             case HALF_OPEN -> "HALF_OPEN (probing=" + halfOpenProbeActive.get() + ")";
         };
+        if (!hedgeEnabled) return circuit;
+        HedgeStats h = getHedgeStats();
+        return circuit + " | hedge p" + hedgePercentile + "=" + h.ttftPercentileMs() + "ms launched=" + h.launched()
+            + " won=" + h.won() + " lost=" + h.lost() + " wastedPromptTokens=" + h.wastedPromptTokens();
     }
 
     // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
@@ -273,6 +395,22 @@ public class LlmCircuitBreaker {
         }
     }
 
+    /**
+     * [Hedge] 누적 헤지 지표 스냅샷.
+     *
+     * @param launched            헤지(Vertex 병렬 요청) 발사 수
+     * @param won                 헤지가 먼저 첫 토큰을 낸 횟수 (= primary 취소)
+     * @param lost                primary가 이겨 헤지를 취소한 횟수 (= 헤지 비용만 발생)
+     * @param wastedPromptTokens  취소된 쪽 추정 prompt 토큰 합
+     * @param ttftPercentileMs    현재 윈도우의 헤지 기준 백분위 TTFT (표본 부족 시 -1)
+     */
+    public record HedgeStats(long launched, long won, long lost, long wastedPromptTokens, long ttftPercentileMs) {
+
+        public double winRate() {
+            return launched == 0 ? 0 : (double) won / launched;
+        }
+    }
+
     // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
     //  TTFT 타임아웃 예외
     // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
@@ -0,0 +1,331 @@
+package com.spring.aichat.external;
+
+import com.spring.aichat.dto.openai.OpenAiChatRequest;
+import com.spring.aichat.dto.openai.OpenAiUsage;
+import com.spring.aichat.external.LlmCircuitBreaker.ProviderDecision;
+import com.spring.aichat.external.LlmCircuitBreaker.TtftTimeoutException;
+import com.spring.aichat.external.OpenRouterStreamClient.StreamCancelledException;
+import com.spring.aichat.external.OpenRouterStreamClient.StreamControl;
+import com.spring.aichat.external.OpenRouterStreamClient.StreamResult;
+import com.spring.aichat.service.metering.LlmUsageContext;
+import com.spring.aichat.service.metering.LlmUsageMeter;
+import com.spring.aichat.service.metrics.ChatTracing;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * [Hedge] 서킷 브레이커 결정에 따른 LLM 스트리밍 실행기 (V1/V2 공용)
+ *
+ * ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+ *  llm.hedge.enabled=false (기본) — 기존 중단 후 재시도
+ * ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+ *   AI Studio(데드라인) → TTFT 초과 시 Vertex 재시도. 최악 TTFT = 데드라인 + Vertex TTFT.
+ *
+ * ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+ *  llm.hedge.enabled=true — 지연 헤지
+ * ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+ *   t=0         AI Studio 시작 (호출 스레드, 데드라인 워치독 유지)
+ *   t=hedgeDelay  아직 첫 토큰 없음 → Vertex 병렬 시작 (헤지 스레드)
+ *   먼저 첫 토큰을 낸 쪽이 게이트를 차지, 진 쪽은 즉시 취소 — 씬 콜백은 승자만 발화
+ *   primary가 첫 토큰 전에 실패(TTFT 초과/5xx)하면 헤지를 기다리지 않고 바로 발사
+ *   헤지 스레드는 llm.hedge.max-threads 상한 — 포화 시 헤지 없이 기존 중단 후 재시도로 처리
+ *
+ * 서킷 기록은 여기서 일괄 처리한다 (호출부는 결정만 넘긴다).
+ * TTFT 표본(헤지 지연 p90)에는 실제로 첫 토큰을 받은 경우만 넣는다 — 취소·초과 시점은 하한값일 뿐이라 넣지 않는다.
+ */
+@Component
+@Slf4j
+public class LlmHedgedStreamer {
+
+    private final OpenRouterStreamClient streamClient;
+    private final LlmCircuitBreaker circuitBreaker;
+    private final LlmUsageMeter usageMeter;
+
+    /** 부하 하네스 등 수동 생성 시 헤지 스레드 상한 */
+    static final int DEFAULT_MAX_HEDGE_THREADS = 64;
+
+    /** 헤지 대기·스트림 스레드 (대부분 I/O 대기, 데몬). 큐 없이 상한까지만 — 넘치면 거부 */
+    private final ThreadPoolExecutor hedgeExecutor;
+    /** [Tracing] 헤지 레그의 llm.stream 스팬이 요청 트레이스 아래 붙도록 제출 시점 컨텍스트를 싣는다 */
+    private final Executor tracedHedgeExecutor;
+    private final LongAdder hedgeRejected = new LongAdder();
+
+    /** 부하 하네스 등 수동 생성용 — 트레이싱 없음 */
+    public LlmHedgedStreamer(OpenRouterStreamClient streamClient, LlmCircuitBreaker circuitBreaker,
+                             LlmUsageMeter usageMeter) {
+        this(streamClient, circuitBreaker, usageMeter, ChatTracing.noop(), DEFAULT_MAX_HEDGE_THREADS);
+    }
+
+    @Autowired
+    public LlmHedgedStreamer(OpenRouterStreamClient streamClient, LlmCircuitBreaker circuitBreaker,
+                             LlmUsageMeter usageMeter, ChatTracing tracing,
+                             @Value("${llm.hedge.max-threads:64}") int maxHedgeThreads) {
+        this.streamClient = streamClient;
+        this.circuitBreaker = circuitBreaker;
+        this.usageMeter = usageMeter;
+
+        AtomicInteger seq = new AtomicInteger();
+        this.hedgeExecutor = new ThreadPoolExecutor(0, Math.max(1, maxHedgeThreads), 60, TimeUnit.SECONDS,
+            new SynchronousQueue<>(), r -> {
+                Thread t = new Thread(r, "llm-hedge-" + seq.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            }, new ThreadPoolExecutor.AbortPolicy());
+        this.tracedHedgeExecutor = tracing.wrap(hedgeExecutor);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        hedgeExecutor.shutdownNow();
+    }
+
+    /**
+     * 결정된 provider로 스트리밍한다.
+     *
+     * @param decision        {@link LlmCircuitBreaker#decide()} 결과
+     * @param requestFactory  provider → 라우팅이 고정된 요청 (헤지 시 Vertex용으로 한 번 더 호출)
+     * @throws RuntimeException  폴백/헤지까지 모두 실패한 경우 마지막 실패 (ExternalApiException 등)
+     */
+    public StreamResult stream(ProviderDecision decision,
+                               Function<String, OpenAiChatRequest> requestFactory,
+                               BiConsumer<Integer, String> onScene,
+                               Consumer<String> onEventStatus) throws IOException {
+        return stream(decision, requestFactory, onScene, onEventStatus, new StreamControl(null));
+    }
+
+    /**
+     * [Perf] 외부 abort 핸들을 받는 오버로드 — 투기 실행(쓰기와 병렬 시작한 스트림)을 호출측이 중단할 때.
+     * abort.cancel()은 진행 중인 모든 레그(primary/폴백/헤지)를 끊고 {@link StreamCancelledException}으로 끝난다.
+     * abort로 인한 중단은 provider 실패가 아니므로 서킷에 기록하지 않는다.
+     */
+    public StreamResult stream(ProviderDecision decision,
+                               Function<String, OpenAiChatRequest> requestFactory,
+                               BiConsumer<Integer, String> onScene,
+                               Consumer<String> onEventStatus,
+                               StreamControl abort) throws IOException {
+        if (!decision.isPrimary()) {
+            log.info("🔀 [CIRCUIT] Vertex 직행 | circuit={}", circuitBreaker.getStatusSummary());
+            return streamClient.streamScenes(requestFactory.apply(decision.provider()), onScene, onEventStatus, 0,
+                abort.link(new StreamControl(null)));
+        }
+        return circuitBreaker.isHedgingEnabled()
+            ? hedged(decision, requestFactory, onScene, onEventStatus, abort)
+            : cancelThenRetry(decision, requestFactory, onScene, onEventStatus, abort);
+    }
+
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+    //  기존: 중단 후 재시도
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+
+    private StreamResult cancelThenRetry(ProviderDecision decision,
+                                         Function<String, OpenAiChatRequest> requestFactory,
+                                         BiConsumer<Integer, String> onScene,
+                                         Consumer<String> onEventStatus,
+                                         StreamControl abort) throws IOException {
+        try {
+            StreamResult result = streamClient.streamScenes(requestFactory.apply(decision.provider()),
+                onScene, onEventStatus, decision.ttftDeadlineMs(), abort.link(new StreamControl(null)));
+            circuitBreaker.recordSuccess(result.ttft());
+            return result;
+        } catch (TtftTimeoutException e) {
+            circuitBreaker.recordFailure(-1);  // 데드라인은 실제 TTFT가 아님 — 헤지 p90 표본 제외
+            log.warn("🔄 [CIRCUIT] AI Studio TTFT 초과 ({}ms) → Vertex 폴백 | circuit={}",
+                e.getDeadlineMs(), circuitBreaker.getStatusSummary());
+            return streamClient.streamScenes(requestFactory.apply(LlmCircuitBreaker.PROVIDER_VERTEX),
+                onScene, onEventStatus, 0, abort.link(new StreamControl(null)));
+        } catch (IOException | RuntimeException e) {
+            if (!abort.isCancelled()) circuitBreaker.recordFailure(-1);
+            throw e;
+        }
+    }
+
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+    //  [Hedge] 지연 헤지
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+
+    private enum Leg { PRIMARY, HEDGE }
+
+    private enum HedgeState { WAITING, SKIPPED, LAUNCHED }
+
+    /** 요청 1건의 경쟁 상태 — 승자/헤지 발사 여부는 각각 CAS로 한 번만 확정 */
+    private static final class Race {
+        final AtomicReference<Leg> winner = new AtomicReference<>();
+        final AtomicReference<HedgeState> hedgeState = new AtomicReference<>(HedgeState.WAITING);
+        /** primary가 첫 토큰을 차지했거나 실패하면 해제 → 헤지 스레드 즉시 기상 */
+        final CountDownLatch primarySettled = new CountDownLatch(1);
+        /** true면 지연 만료로 발사된 헤지, false면 primary 실패 후 폴백으로 발사 */
+        volatile boolean launchedAsHedge;
+        final StreamControl primary;
+        final StreamControl hedge;
+
+        Race() {
+            this.primary = new StreamControl(() -> claim(Leg.PRIMARY));
+            this.hedge = new StreamControl(() -> claim(Leg.HEDGE));
+        }
+
+        private boolean claim(Leg leg) {
+            if (!winner.compareAndSet(null, leg)) return false;
+            if (leg == Leg.PRIMARY) {
+                hedgeState.compareAndSet(HedgeState.WAITING, HedgeState.SKIPPED);
+                hedge.cancel();
+                primarySettled.countDown();
+            } else {
+                primary.cancel();
+            }
+            return true;
+        }
+    }
+
+    private StreamResult hedged(ProviderDecision decision,
+                                Function<String, OpenAiChatRequest> requestFactory,
+                                BiConsumer<Integer, String> onScene,
+                                Consumer<String> onEventStatus,
+                                StreamControl abort) throws IOException {
+        Race race = new Race();
+        long hedgeDelayMs = circuitBreaker.hedgeDelayMs(decision);
+        OpenAiChatRequest primaryRequest = requestFactory.apply(decision.provider());
+        OpenAiChatRequest hedgeRequest = requestFactory.apply(LlmCircuitBreaker.PROVIDER_VERTEX);
+        LlmUsageContext.Tag usageTag = LlmUsageContext.current();
+        long startedAt = System.currentTimeMillis();
+
+        CompletableFuture<StreamResult> hedgeFuture;
+        try {
+            hedgeFuture = CompletableFuture.supplyAsync(() -> {
+                boolean primarySettled;
+                try {
+                    primarySettled = race.primarySettled.await(hedgeDelayMs, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new StreamCancelledException();
+                }
+                race.launchedAsHedge = !primarySettled;
+                if (!race.hedgeState.compareAndSet(HedgeState.WAITING, HedgeState.LAUNCHED)) {
+                    throw new StreamCancelledException();
+                }
+                if (race.launchedAsHedge) {
+                    circuitBreaker.recordHedgeLaunched();
+                    log.info("🪁 [HEDGE] AI Studio 첫 토큰 없음 ({}ms) → Vertex 헤지 발사", hedgeDelayMs);
+                }
+                try (var usageScope = LlmUsageContext.open(usageTag.caller(), usageTag.roomId(), usageTag.userId())) {
+                    return streamClient.streamScenes(hedgeRequest, onScene, onEventStatus, 0, race.hedge);
+                } catch (IOException e) {
+                    throw new CompletionException(e);
+                }
+            }, tracedHedgeExecutor);
+        } catch (RejectedExecutionException e) {
+            // 헤지 스레드 포화 — 이 요청은 헤지 없이 기존 중단 후 재시도
+            hedgeRejected.increment();
+            log.warn("🪁 [HEDGE] 헤지 스레드 포화 (max={}) → 중단 후 재시도로 처리", hedgeExecutor.getMaximumPoolSize());
+            return cancelThenRetry(decision, requestFactory, onScene, onEventStatus, abort);
+        }
+        abort.link(race.primary);
+        abort.link(race.hedge);
+
+        try {
+            StreamResult result = streamClient.streamScenes(primaryRequest, onScene, onEventStatus,
+                decision.ttftDeadlineMs(), race.primary);
+            // primary 승리 — 게이트에서 헤지 취소 완료
+            circuitBreaker.recordSuccess(result.ttft());
+            if (race.hedgeState.get() == HedgeState.LAUNCHED) {
+                long wasted = recordWastedLoser(hedgeRequest, LlmCircuitBreaker.PROVIDER_VERTEX, result.usage());
+                circuitBreaker.recordHedgeOutcome(false, wasted);
+                log.info("🪁 [HEDGE] primary 승리 (TTFT={}ms) — 헤지 취소 | {}",
+                    result.ttft(), circuitBreaker.getHedgeStats());
+            }
+            return result;
+
+        } catch (StreamCancelledException e) {
+            if (abort.isCancelled()) throw e;  // 호출측 abort — 경쟁 결과 아님
+            // 헤지가 먼저 첫 토큰 도달 → primary는 게이트에서 취소됨.
+            // 늦게 출발한 Vertex에 졌다 = p90 + Vertex TTFT보다 느림 → 데드라인 전이라도 실패로 센다
+            // (안 세면 느린 AI Studio가 계속 헤지 비용만 치르고 서킷은 영영 열리지 않는다)
+            // 경과 시간은 primary TTFT의 하한일 뿐이므로 TTFT 표본에는 넣지 않는다 (-1)
+            long elapsed = System.currentTimeMillis() - startedAt;
+            circuitBreaker.recordFailure(-1);
+            StreamResult result = awaitHedge(hedgeFuture, e);
+            long wasted = recordWastedLoser(primaryRequest, decision.provider(), result.usage());
+            circuitBreaker.recordHedgeOutcome(true, wasted);
+            log.info("🪁 [HEDGE] Vertex 헤지 승리 (primary {}ms 무응답) | {}", elapsed, circuitBreaker.getHedgeStats());
+            return result;
+
+        } catch (IOException | RuntimeException e) {
+            if (abort.isCancelled()) throw e;
+            circuitBreaker.recordFailure(-1);  // TTFT 초과여도 데드라인은 하한값 — 표본 제외
+            if (race.winner.get() == Leg.PRIMARY) {
+                // 첫 토큰 이후 스트림 중 실패 — 헤지는 이미 취소됨, 씬이 나갔을 수 있으므로 재시도 불가
+                throw e;
+            }
+            race.primarySettled.countDown();
+            log.warn("🔄 [HEDGE] AI Studio 실패 ({}) → Vertex {} | circuit={}",
+                e.getClass().getSimpleName(), race.hedgeState.get() == HedgeState.LAUNCHED ? "헤지 대기" : "폴백 발사",
+                circuitBreaker.getStatusSummary());
+            StreamResult result = awaitHedge(hedgeFuture, e);
+            if (race.launchedAsHedge) circuitBreaker.recordHedgeOutcome(true, 0);
+            return result;
+
+        } finally {
+            race.primarySettled.countDown();
+        }
+    }
+
+    /** 스레드 상한으로 헤지 없이 처리된 요청 수 (기동 이후 누적) */
+    public long getHedgeRejectedCount() {
+        return hedgeRejected.sum();
+    }
+
+    /** [Metrics] 헤지 스레드 풀 — MetricsConfig가 게이지로 바인딩 */
+    public ThreadPoolExecutor getHedgeExecutor() {
+        return hedgeExecutor;
+    }
+
+    /** 헤지 결과 대기 — 실패 시 헤지 쪽 원인을 던지고 primary 원인은 suppressed로 남긴다 */
+    private StreamResult awaitHedge(CompletableFuture<StreamResult> hedgeFuture, Exception primaryError)
+        throws IOException {
+        try {
+            return hedgeFuture.get();
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            hedgeFuture.cancel(true);
+            throw new StreamCancelledException();
+        } catch (ExecutionException ee) {
+            Throwable cause = ee.getCause() instanceof CompletionException ce && ce.getCause() != null
+                ? ce.getCause() : ee.getCause();
+            if (cause != primaryError) cause.addSuppressed(primaryError);
+            if (cause instanceof IOException io) throw io;
+            if (cause instanceof RuntimeException re) throw re;
+            throw new CompletionException(cause);
+        }
+    }
+
+    /**
+     * 취소된 쪽 비용 추정 기록 — 첫 토큰 전 취소라 usage 청크를 받지 못한다.
+     * 같은 메시지이므로 승자 prompt 토큰을 진 쪽 청구분으로 본다 (completion 0, cost 미상).
+     */
+    private long recordWastedLoser(OpenAiChatRequest loserRequest, String loserProvider, OpenAiUsage winnerUsage) {
+        long promptTokens = winnerUsage != null ? winnerUsage.promptTokens() : 0;
+        OpenAiUsage estimated = winnerUsage == null ? null
+            : new OpenAiUsage(promptTokens, 0, promptTokens, null, null);
+        usageMeter.record(loserRequest.model(), loserProvider, estimated);
+        return promptTokens;
+    }
+}
@@ -7,7 +7,10 @@ import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.spring.aichat.config.OpenAiProperties;
 import com.spring.aichat.dto.openai.OpenAiChatRequest;
 import com.spring.aichat.dto.openai.OpenAiChatResponse;
+import com.spring.aichat.dto.openai.OpenAiMessage;
+import com.spring.aichat.dto.openai.OpenAiUsage;
 import com.spring.aichat.exception.ExternalApiException;
+import com.spring.aichat.service.metering.LlmUsageMeter;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -21,6 +24,7 @@ import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.time.Duration;
+import java.util.List;
 
 /**
  * [Phase 5.5-Theater] OpenRouter 비스트리밍 JSON 응답 클라이언트
@@ -32,6 +36,9 @@ import java.time.Duration;
  * - Theater Scene Batch 생성 (5~8 Scene JSON 완성 응답)
  * - Chapter 종료 리포트 생성
  * - 감독 노트 자동 캡처 요약
+ *
+ * [Metering] 모든 호출에 usage accounting을 요청하고, 응답 usage를 {@link LlmUsageMeter}에 기록
+ *   (caller/room/user 태그는 호출처가 연 LlmUsageContext 스코프에서 읽는다)
  */
 @Slf4j
 @Component
@@ -41,10 +48,13 @@ public class OpenRouterClient {
     private final ObjectMapper objectMapper;
     private final OpenAiProperties properties;
     private final RestClient openRouterRestClient;
+    private final LlmUsageMeter usageMeter;
 
     @Autowired
-    public OpenRouterClient(ObjectMapper objectMapper, OpenAiProperties properties, RestClient openRouterRestClient) {
+    public OpenRouterClient(ObjectMapper objectMapper, OpenAiProperties properties, RestClient openRouterRestClient,
+                            LlmUsageMeter usageMeter) {
         this.openRouterRestClient = openRouterRestClient;
+        this.usageMeter = usageMeter;
         this.httpClient = HttpClient.newBuilder()
             .connectTimeout(Duration.ofSeconds(15))
             .build();
@@ -75,13 +85,14 @@ public class OpenRouterClient {
 
                 OpenAiChatResponse response = openRouterRestClient.post()
                     .uri("/chat/completions")
-                    .body(request)
+                    .body(request.withUsageAccounting())
                     .retrieve()
                     .body(OpenAiChatResponse.class);
 
                 if (response == null) {
                     throw new ExternalApiException("OpenRouter 응답이 null입니다.");
                 }
+                usageMeter.record(request.model(), response.provider(), response.usage());
 
                 if (attempt > 0) {
                     log.info("✅ [RETRY] OpenRouter succeeded on attempt {}", attempt + 1);
@@ -147,14 +158,24 @@ public class OpenRouterClient {
      */
     public String completeJson(String model, String systemPrompt, String userMessage,
                                int maxTokens, double temperature) {
-        CompletionResult first = completeJsonOnce(model, systemPrompt, userMessage, maxTokens, temperature);
+        return completeJson(model, List.of(OpenAiMessage.system(systemPrompt)), userMessage,
+            maxTokens, temperature);
+    }
+
+    /**
+     * [Perf] 시스템 프롬프트를 여러 메시지로 나눠 보내는 버전 — 메시지별 cache_control을 그대로 직렬화.
+     * 고정 파트를 앞 메시지(breakpoint)로 분리하면 프로바이더 prompt cache가 배치 간 재사용된다.
+     */
+    public String completeJson(String model, List<OpenAiMessage> systemMessages, String userMessage,
+                               int maxTokens, double temperature) {
+        CompletionResult first = completeJsonOnce(model, systemMessages, userMessage, maxTokens, temperature);
         if (!first.truncated()) {
             return first.content();
         }
         int retryBudget = Math.min(Math.max(maxTokens * 2, maxTokens + 4096), LENGTH_RETRY_MAX_TOKENS);
         log.warn("🤖 [LLM-JSON] finish_reason=length — 응답 잘림 (model={}, max_tokens={}, 사고 모델이면 reasoning이 예산 잠식). "
             + "예산 {}로 1회 재시도", model, maxTokens, retryBudget);
-        CompletionResult retry = completeJsonOnce(model, systemPrompt, userMessage, retryBudget, temperature);
+        CompletionResult retry = completeJsonOnce(model, systemMessages, userMessage, retryBudget, temperature);
         if (retry.truncated()) {
             log.warn("🤖 [LLM-JSON] 재시도에도 finish_reason=length (model={}, max_tokens={}) — 잘린 응답 반환(하류 파싱 실패 예상). "
                 + "모델 교체 또는 예산 상향 필요", model, retryBudget);
@@ -174,6 +195,7 @@ public class OpenRouterClient {
         body.put("max_tokens", maxTokens);
         body.put("temperature", temperature);
         body.put("stream", false);
+        body.putObject("usage").put("include", true);  // [Metering]
 
         ObjectNode responseFormat = objectMapper.createObjectNode();
         responseFormat.put("type", "json_object");
@@ -220,6 +242,7 @@ public class OpenRouterClient {
                 throw new ExternalApiException("LLM 비전 호출 실패 (HTTP " + response.statusCode() + ")");
             }
             JsonNode root = objectMapper.readTree(response.body());
+            recordUsage(model, root);
             JsonNode choices = root.path("choices");
             if (!choices.isArray() || choices.isEmpty()) {
                 throw new ExternalApiException("LLM 응답에 choices가 없습니다.");
@@ -236,19 +259,34 @@ public class OpenRouterClient {
         }
     }
 
+    /** [Metering] 트리 응답에서 provider/usage 추출 후 기록 — 계측 실패는 호출 흐름에 영향 없음 */
+    private void recordUsage(String model, JsonNode root) {
+        OpenAiUsage usage = null;
+        JsonNode usageNode = root.get("usage");
+        if (usageNode != null && usageNode.isObject()) {
+            try {
+                usage = objectMapper.treeToValue(usageNode, OpenAiUsage.class);
+            } catch (Exception e) {
+                log.debug("[METERING] usage parse failed: {}", e.getMessage());
+            }
+        }
+        usageMeter.record(model, root.path("provider").asText(null), usage);
+    }
+
     private record CompletionResult(String content, String finishReason) {
         boolean truncated() {
             return "length".equalsIgnoreCase(finishReason);
         }
     }
 
-    private CompletionResult completeJsonOnce(String model, String systemPrompt, String userMessage,
-                                              int maxTokens, double temperature) {
+    private CompletionResult completeJsonOnce(String model, List<OpenAiMessage> systemMessages,
+                                              String userMessage, int maxTokens, double temperature) {
         ObjectNode body = objectMapper.createObjectNode();
         body.put("model", model);
         body.put("max_tokens", maxTokens);
         body.put("temperature", temperature);
         body.put("stream", false);
+        body.putObject("usage").put("include", true);  // [Metering]
 
         // response_format = {"type": "json_object"} — JSON 강제
         ObjectNode responseFormat = objectMapper.createObjectNode();
@@ -257,10 +295,14 @@ public class OpenRouterClient {
 
         ArrayNode messages = objectMapper.createArrayNode();
 
-        ObjectNode systemMsg = objectMapper.createObjectNode();
-        systemMsg.put("role", "system");
-        systemMsg.put("content", systemPrompt);
-        messages.add(systemMsg);
+        for (OpenAiMessage message : systemMessages) {
+            ObjectNode systemMsg = messages.addObject();
+            systemMsg.put("role", message.role());
+            systemMsg.put("content", message.content());
+            if (message.cache_control() != null) {
+                systemMsg.set("cache_control", objectMapper.valueToTree(message.cache_control()));
+            }
+        }
 
         ObjectNode userMsg = objectMapper.createObjectNode();
         userMsg.put("role", "user");
@@ -290,6 +332,7 @@ public class OpenRouterClient {
             }
 
             JsonNode root = objectMapper.readTree(response.body());
+            recordUsage(model, root);
             JsonNode choices = root.path("choices");
             if (!choices.isArray() || choices.isEmpty()) {
                 throw new ExternalApiException("LLM 응답에 choices가 없습니다.");
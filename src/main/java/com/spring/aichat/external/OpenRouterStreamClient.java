@@ -1,28 +1,32 @@
 package com.spring.aichat.external;
 
-import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.spring.aichat.config.OpenAiProperties;
 import com.spring.aichat.dto.openai.OpenAiChatRequest;
+import com.spring.aichat.dto.openai.OpenAiUsage;
 import com.spring.aichat.exception.ExternalApiException;
 import com.spring.aichat.external.LlmCircuitBreaker.TtftTimeoutException;
-import com.spring.aichat.service.stream.SceneStreamExtractor;
+import com.spring.aichat.service.metering.LlmUsageMeter;
+import com.spring.aichat.service.metrics.ChatTracing;
+import com.spring.aichat.service.stream.SceneStreamScanner;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.time.Duration;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+import java.util.function.BooleanSupplier;
 import java.util.function.Consumer;
 
 /**
@@ -32,12 +36,29 @@ import java.util.function.Consumer;
  *   - onEventStatus: event_status가 추출되는 즉시 호출 (first_scene보다 먼저)
  *   - 기존 onFirstScene 콜백은 그대로 유지
  *
+ * [Perf] 씬 단위 스트리밍 콜백 (onScene)
+ *   - scenes 배열의 각 원소가 닫히는 즉시 (index, sceneJson) 전달
+ *   - 기존 onFirstScene 오버로드는 index 0만 전달하는 어댑터로 유지
+ *
+ * [Perf] SSE 델타 디코딩 — 청크마다 readTree() 대신 {@link SseDeltaDecoder} (pull-parser 1개 재사용)
+ *   - content는 char[] 구간 그대로 스캐너에 누적, 마지막 청크의 usage 캡처
+ *
+ * [Metering] usage accounting 요청 + 완료 시 {@link LlmUsageMeter} 기록
+ *   (provider = 요청 라우팅 order[0] = 서킷 브레이커 ProviderDecision)
+ *
  * [Phase 5.5-Stability] TTFT 데드라인 워치독
  *   - sendAsync() 기반 비동기 HTTP → 워치독이 연결 단계부터 포괄
  *   - 워치독 발동 시:
  *     1) CompletableFuture.cancel() → 아직 HTTP 연결 대기 중이면 즉시 중단
  *     2) InputStream.close() → 이미 연결되어 스트림 읽기 중이면 즉시 중단
  *   - 예외 발생 → watchdogTriggered 플래그로 TtftTimeoutException 전환
+ *
+ * [Hedge] {@link StreamControl} — 헤지 경쟁용 외부 취소 + 첫 토큰 게이트
+ *   - 첫 content를 스캐너에 넣기 직전 게이트 통과 필요 → 진 쪽은 씬 콜백을 한 번도 발화하지 않음
+ *   - cancel() → 워치독과 같은 이중 중단, StreamCancelledException으로 전환
+ *
+ * [Tracing] 호출 1건 = {@code llm.stream} 스팬 (model · provider · ttft/ttfs 태그, first_token · first_scene 이벤트)
+ *   - 워치독 태스크는 호출 스레드의 컨텍스트를 싣고 실행 → 발동 시 같은 스팬에 ttft_deadline_exceeded 이벤트
  */
 @Component
 @Slf4j
@@ -49,11 +70,20 @@ public class OpenRouterStreamClient {
     private final String apiKey;
     private final String appReferer;
     private final String appTitle;
+    private final LlmUsageMeter usageMeter;
+    private final ChatTracing tracing;
 
     /** TTFT 데드라인 워치독 스케줄러 (데몬 스레드) */
     private final ScheduledExecutorService ttftWatchdog;
 
-    public OpenRouterStreamClient(OpenAiProperties props, ObjectMapper objectMapper) {
+    /** 부하 하네스 등 수동 생성용 — 트레이싱 없음 */
+    public OpenRouterStreamClient(OpenAiProperties props, ObjectMapper objectMapper, LlmUsageMeter usageMeter) {
+        this(props, objectMapper, usageMeter, ChatTracing.noop());
+    }
+
+    @Autowired
+    public OpenRouterStreamClient(OpenAiProperties props, ObjectMapper objectMapper, LlmUsageMeter usageMeter,
+                                  ChatTracing tracing) {
         this.httpClient = HttpClient.newBuilder()
             .connectTimeout(Duration.ofSeconds(10))
             .build();
@@ -62,6 +92,8 @@ public class OpenRouterStreamClient {
         this.apiKey = props.apiKey();
         this.appReferer = props.appReferer();
         this.appTitle = props.appTitle();
+        this.usageMeter = usageMeter;
+        this.tracing = tracing;
 
         this.ttftWatchdog = Executors.newSingleThreadScheduledExecutor(r -> {
             Thread t = new Thread(r, "ttft-watchdog");
@@ -74,7 +106,9 @@ public class OpenRouterStreamClient {
         String fullResponse,
         String firstSceneJson,
         long ttft,
-        long ttfs
+        long ttfs,
+        int streamedSceneCount,  // 스트림 중 onScene으로 전달된 씬 수
+        OpenAiUsage usage        // 마지막 청크 usage (프로바이더 미제공 시 null)
     ) {}
 
     // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
@@ -91,32 +125,55 @@ public class OpenRouterStreamClient {
         return streamCompletion(request, onFirstScene, onEventStatus, 0);
     }
 
+    public StreamResult streamCompletion(OpenAiChatRequest request,
+                                         Consumer<String> onFirstScene,
+                                         Consumer<String> onEventStatus,
+                                         long ttftDeadlineMs) throws IOException {
+        BiConsumer<Integer, String> onScene = onFirstScene == null ? null
+            : (index, sceneJson) -> { if (index == 0) onFirstScene.accept(sceneJson); };
+        return streamScenes(request, onScene, onEventStatus, ttftDeadlineMs);
+    }
+
     // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
     //  [Phase 5.5-Stability] 메인 스트리밍 (TTFT 데드라인 지원)
     // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
 
     /**
-     * 스트리밍 호출 + event_status 선행 추출 + TTFT 데드라인
+     * 스트리밍 호출 + event_status 선행 추출 + 씬 단위 콜백 + TTFT 데드라인
      *
      * @param request          ChatCompletion 요청
-     * @param onFirstScene     첫 번째 씬 JSON 완성 시 콜백
-     * @param onEventStatus    event_status 추출 시 콜백 (first_scene보다 먼저 발화)
+     * @param onScene          scenes[index] JSON 완성 시 콜백 (index 0 = 첫 씬)
+     * @param onEventStatus    event_status 추출 시 콜백 (첫 씬보다 먼저 발화)
      * @param ttftDeadlineMs   TTFT 데드라인 (ms). 0이면 데드라인 비활성.
      *                         HTTP 연결 대기 + 첫 토큰 대기 전체 구간을 포괄.
      * @throws TtftTimeoutException  TTFT 데드라인 초과 시
      * @throws ExternalApiException  기타 스트리밍 오류 시
      */
-    public StreamResult streamCompletion(OpenAiChatRequest request,
-                                         Consumer<String> onFirstScene,
-                                         Consumer<String> onEventStatus,
-                                         long ttftDeadlineMs) throws IOException {
+    public StreamResult streamScenes(OpenAiChatRequest request,
+                                     BiConsumer<Integer, String> onScene,
+                                     Consumer<String> onEventStatus,
+                                     long ttftDeadlineMs) throws IOException {
+        return streamScenes(request, onScene, onEventStatus, ttftDeadlineMs, null);
+    }
+
+    /**
+     * [Hedge] 외부 취소/첫 토큰 게이트를 받는 오버로드
+     *
+     * @param control  null이면 기존 동작과 동일
+     * @throws StreamCancelledException  control.cancel() 또는 첫 토큰 게이트 탈락 시
+     */
+    public StreamResult streamScenes(OpenAiChatRequest request,
+                                     BiConsumer<Integer, String> onScene,
+                                     Consumer<String> onEventStatus,
+                                     long ttftDeadlineMs,
+                                     StreamControl control) throws IOException {
         long startTime = System.currentTimeMillis();
 
         OpenAiChatRequest streamRequest = new OpenAiChatRequest(
             request.model(), request.messages(), request.temperature(),
             true, request.frequencyPenalty(), request.presencePenalty(), request.provider(), Map.of("type", "json_object"),
             request.maxTokens()   // [Q2-Fix] 호출부 지정 max_tokens 통과 — 출력 잘림(JSON 파스 에러) 방지
-        );
+        ).withUsageAccounting();
 
         String jsonBody;
         try {
@@ -136,10 +193,46 @@ public class OpenRouterStreamClient {
             .POST(HttpRequest.BodyPublishers.ofString(jsonBody))
             .build();
 
-        StringBuilder fullBuffer = new StringBuilder(4096);
-        SceneStreamExtractor extractor = new SceneStreamExtractor();
+        // [Perf] 증분 스캐너 — 토큰마다 버퍼 전체 toString() + 재탐색하던 O(n²) 경로 제거
+        long[] ttfs = {-1};
+        ChatTracing.Span span = tracing.start("llm.stream", null)
+            .tag("llm.model", request.model())
+            .tag("llm.provider", resolveProvider(request));
+        SceneStreamScanner scanner = new SceneStreamScanner(new SceneStreamScanner.Listener() {
+            @Override
+            public void onEventStatus(String eventStatus) {
+                // [Fix 2] event_status 선행 추출 (first_scene보다 먼저)
+                log.info("🎬 [STREAM] event_status extracted early: {}", eventStatus);
+                if (onEventStatus == null) return;
+                try {
+                    onEventStatus.accept(eventStatus);
+                } catch (Exception cbErr) {
+                    log.warn("⚠️ [STREAM] onEventStatus callback failed", cbErr);
+                }
+            }
+
+            @Override
+            public void onScene(int index, String sceneJson) {
+                long elapsed = System.currentTimeMillis() - startTime;
+                if (index == 0) {
+                    ttfs[0] = elapsed;
+                    span.event("first_scene");
+                    log.info("🎬 [STREAM] First scene extracted: {}ms | chars={}",
+                        elapsed, sceneJson.length());
+                } else {
+                    log.debug("🎬 [STREAM] Scene[{}] extracted: {}ms | chars={}",
+                        index, elapsed, sceneJson.length());
+                }
+                if (onScene == null) return;
+                try {
+                    onScene.accept(index, sceneJson);
+                } catch (Exception cbErr) {
+                    log.warn("⚠️ [STREAM] onScene callback failed | index={}", index, cbErr);
+                }
+            }
+        });
         long ttft = -1;
-        long ttfs = -1;
+        OpenAiUsage usage = null;
 
         // ━━━ [Stability] 워치독 상태 변수 ━━━
         AtomicBoolean firstTokenReceived = new AtomicBoolean(false);
@@ -166,9 +259,10 @@ public class OpenRouterStreamClient {
 
             // ── 워치독: HTTP 요청 직후 즉시 스케줄링 (연결 대기 포함) ──
             if (ttftDeadlineMs > 0) {
-                watchdogTask = ttftWatchdog.schedule(() -> {
+                watchdogTask = ttftWatchdog.schedule(tracing.wrap(() -> {
                     if (!firstTokenReceived.get()) {
                         watchdogTriggered.set(true);
+                        tracing.event("ttft_deadline_exceeded");
                         long elapsed = System.currentTimeMillis() - startTime;
                         log.warn("⏱️ [CIRCUIT] TTFT 워치독 발동: {}ms 데드라인 초과 (elapsed={}ms) — 강제 중단 | model={}",
                             ttftDeadlineMs, elapsed, request.model());
@@ -182,7 +276,18 @@ public class OpenRouterStreamClient {
                             try { s.close(); } catch (Exception ignored) {}
                         }
                     }
-                }, ttftDeadlineMs, TimeUnit.MILLISECONDS);
+                }), ttftDeadlineMs, TimeUnit.MILLISECONDS);
+            }
+
+            // ── [Hedge] 외부 취소: 워치독과 같은 이중 중단 ──
+            if (control != null) {
+                control.bind(() -> {
+                    asyncFuture.cancel(true);
+                    InputStream s = streamRef.get();
+                    if (s != null) {
+                        try { s.close(); } catch (Exception ignored) {}
+                    }
+                });
             }
 
             // ── HTTP 응답 대기 (워치독이 cancel() 시 CancellationException) ──
@@ -216,79 +321,73 @@ public class OpenRouterStreamClient {
 
             InputStream responseBody = response.body();
             streamRef.set(responseBody); // 워치독이 스트림 단계에서도 중단 가능
+            if (control != null && control.isCancelled()) {
+                // bind() 이후 ~ streamRef 설정 전 사이의 취소는 스트림을 닫지 못했다
+                try { responseBody.close(); } catch (Exception ignored) {}
+                throw new StreamCancelledException();
+            }
 
             // ── SSE 스트림 읽기 ──
-            try (BufferedReader reader = new BufferedReader(new InputStreamReader(responseBody))) {
-
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    if (!line.startsWith("data: ")) continue;
-
-                    String data = line.substring(6).trim();
-                    if ("[DONE]".equals(data)) break;
-                    if (data.isEmpty()) continue;
-
-                    String token = extractDeltaContent(data);
-                    if (token == null || token.isEmpty()) continue;
-
-                    // ━━━ 첫 토큰 도착: TTFT 기록 + 워치독 즉시 해제 ━━━
-                    if (ttft < 0) {
-                        ttft = System.currentTimeMillis() - startTime;
-                        firstTokenReceived.set(true);
-
-                        if (watchdogTask != null) {
-                            watchdogTask.cancel(false);
+            SseDeltaDecoder decoder = new SseDeltaDecoder(objectMapper.getFactory());
+            try (InputStream in = responseBody) {
+                // [Hedge] 게이트 탈락 시 content를 버리고 루프에서 중단 (디코더 안에서 throw하면 malformed로 삼켜짐)
+                boolean[] gateLost = {false};
+                SseDeltaDecoder.ContentSink sink = control == null ? scanner::append
+                    : (chars, offset, length) -> {
+                        if (gateLost[0]) return;
+                        if (scanner.length() == 0 && length > 0 && !control.tryFirstToken()) {
+                            gateLost[0] = true;
+                            return;
                         }
+                        scanner.append(chars, offset, length);
+                    };
+                while (decoder.readNext(in, sink)) {
+                    if (gateLost[0]) throw new StreamCancelledException();
+                    if (ttft >= 0 || scanner.length() == 0) continue;
 
-                        log.info("⏱️ [STREAM] TTFT: {}ms | model={} | deadline={}",
-                            ttft, request.model(),
-                            ttftDeadlineMs > 0 ? ttftDeadlineMs + "ms" : "none");
-                    }
-
-                    fullBuffer.append(token);
-
-                    String bufferStr = fullBuffer.toString();
+                    // ━━━ 첫 토큰 도착: TTFT 기록 + 워치독 즉시 해제 ━━━
+                    ttft = System.currentTimeMillis() - startTime;
+                    firstTokenReceived.set(true);
+                    span.event("first_token").tag("llm.ttft_ms", ttft);
 
-                    // [Fix 2] event_status 선행 추출 (first_scene보다 먼저)
-                    if (!extractor.isEventStatusExtracted() && onEventStatus != null) {
-                        String eventStatus = extractor.tryExtractEventStatus(bufferStr);
-                        if (eventStatus != null) {
-                            try {
-                                onEventStatus.accept(eventStatus);
-                            } catch (Exception cbErr) {
-                                log.warn("⚠️ [STREAM] onEventStatus callback failed", cbErr);
-                            }
-                        }
+                    if (watchdogTask != null) {
+                        watchdogTask.cancel(false);
                     }
 
-                    // 첫 번째 씬 추출
-                    if (!extractor.isFirstSceneExtracted()) {
-                        String firstScene = extractor.tryExtractFirstScene(bufferStr);
-                        if (firstScene != null) {
-                            ttfs = System.currentTimeMillis() - startTime;
-                            log.info("🎬 [STREAM] First scene extracted: {}ms | chars={}",
-                                ttfs, firstScene.length());
-
-                            if (onFirstScene != null) {
-                                try {
-                                    onFirstScene.accept(firstScene);
-                                } catch (Exception cbErr) {
-                                    log.warn("⚠️ [STREAM] onFirstScene callback failed", cbErr);
-                                }
-                            }
-                        }
-                    }
+                    log.info("⏱️ [STREAM] TTFT: {}ms | model={} | deadline={}",
+                        ttft, request.model(),
+                        ttftDeadlineMs > 0 ? ttftDeadlineMs + "ms" : "none");
                 }
+            } finally {
+                decoder.close();
+            }
+            usage = decoder.getUsage();
+            if (decoder.getMalformedCount() > 0) {
+                log.warn("⚠️ [STREAM] malformed SSE chunks skipped: {}/{} | model={}",
+                    decoder.getMalformedCount(), decoder.getChunkCount(), request.model());
             }
 
             long totalTime = System.currentTimeMillis() - startTime;
-            log.info("⏱️ [STREAM] Complete: {}ms | ttft={}ms | ttfs={}ms | chars={} | model={}",
-                totalTime, ttft, ttfs, fullBuffer.length(), request.model());
+            log.info("⏱️ [STREAM] Complete: {}ms | ttft={}ms | ttfs={}ms | chars={} | model={} | tokens={}",
+                totalTime, ttft, ttfs[0], scanner.length(), request.model(),
+                usage != null ? usage.promptTokens() + "/" + usage.completionTokens() : "n/a");
+
+            usageMeter.record(request.model(), resolveProvider(request), usage);
+            span.tag("llm.ttfs_ms", ttfs[0]).tag("llm.scenes", scanner.getSceneCount());
 
-            return new StreamResult(fullBuffer.toString(), null, ttft, ttfs);
+            return new StreamResult(scanner.fullText(), null, ttft, ttfs[0], scanner.getSceneCount(), usage);
 
         } catch (Exception e) {
+            // ━━━ [Hedge] 경쟁에서 진 쪽 — 워치독보다 우선 (취소가 원인이므로) ━━━
+            if (e instanceof StreamCancelledException
+                || (control != null && control.isCancelled() && !(e instanceof TtftTimeoutException))) {
+                span.event("cancelled");
+                log.info("🪓 [HEDGE] stream cancelled after {}ms | provider={}",
+                    System.currentTimeMillis() - startTime, resolveProvider(request));
+                throw e instanceof StreamCancelledException sce ? sce : new StreamCancelledException();
+            }
             // ━━━ [Stability] 워치독 중단에 의한 예외 → TtftTimeoutException 전환 ━━━
+            span.error(e);
             if (watchdogTriggered.get() && !(e instanceof TtftTimeoutException)) {
                 long elapsed = System.currentTimeMillis() - startTime;
                 log.warn("⏱️ [CIRCUIT] TTFT 데드라인 초과 확정: elapsed={}ms, deadline={}ms | model={}",
@@ -304,21 +403,73 @@ public class OpenRouterStreamClient {
             if (watchdogTask != null && !watchdogTask.isDone()) {
                 watchdogTask.cancel(false);
             }
+            span.close();
         }
     }
 
-    private String extractDeltaContent(String jsonChunk) {
-        try {
-            JsonNode root = objectMapper.readTree(jsonChunk);
-            JsonNode choices = root.get("choices");
-            if (choices == null || !choices.isArray() || choices.isEmpty()) return null;
-            JsonNode delta = choices.get(0).get("delta");
-            if (delta == null) return null;
-            JsonNode content = delta.get("content");
-            if (content == null || content.isNull()) return null;
-            return content.asText();
-        } catch (Exception e) {
-            return null;
+    /** 라우팅 order의 첫 프로바이더 (서킷 브레이커 결정값). 라우팅 미지정이면 null → "default" */
+    private static String resolveProvider(OpenAiChatRequest request) {
+        if (request.provider() == null) return null;
+        Object order = request.provider().get("order");
+        if (order instanceof java.util.List<?> list && !list.isEmpty()) {
+            return String.valueOf(list.get(0));
+        }
+        return null;
+    }
+
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+    //  [Hedge] 외부 취소 핸들
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+
+    /**
+     * 스트림 1건의 외부 제어 핸들.
+     *
+     * @implNote firstTokenGate는 첫 content 직전 1회 호출된다. false면 이 스트림은 경쟁에서 진 것으로 보고 중단.
+     *           cancel()은 어느 스레드에서든 호출 가능하며, 스트림 시작 전 호출돼도 시작 즉시 중단된다.
+     */
+    public static final class StreamControl {
+        private final BooleanSupplier firstTokenGate;
+        private final AtomicBoolean cancelled = new AtomicBoolean(false);
+        private volatile Runnable canceller;
+        /** [Perf] 상위 핸들(투기 실행 abort 등) 취소 시 함께 취소되는 하위 핸들 — 헤지 레그/재시도 레그 */
+        private final List<StreamControl> children = new CopyOnWriteArrayList<>();
+
+        public StreamControl(BooleanSupplier firstTokenGate) {
+            this.firstTokenGate = firstTokenGate;
+        }
+
+        public void cancel() {
+            if (!cancelled.compareAndSet(false, true)) return;
+            Runnable c = canceller;
+            if (c != null) c.run();
+            for (StreamControl child : children) child.cancel();
+        }
+
+        /** child를 이 핸들에 묶는다 — 이미 취소됐으면 즉시 취소 */
+        public StreamControl link(StreamControl child) {
+            children.add(child);
+            if (cancelled.get()) child.cancel();
+            return child;
+        }
+
+        public boolean isCancelled() {
+            return cancelled.get();
+        }
+
+        void bind(Runnable canceller) {
+            this.canceller = canceller;
+            if (cancelled.get()) canceller.run(); // bind 이전 취소분 처리
+        }
+
+        boolean tryFirstToken() {
+            return !cancelled.get() && (firstTokenGate == null || firstTokenGate.getAsBoolean());
+        }
+    }
+
+    /** {@link StreamControl}로 취소됐거나 첫 토큰 경쟁에서 진 스트림 */
+    public static class StreamCancelledException extends RuntimeException {
+        public StreamCancelledException() {
+            super("LLM stream cancelled (hedge race lost)");
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,324 @@
+package com.spring.aichat.external;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import com.spring.aichat.dto.openai.OpenAiUsage;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * [Perf] OpenRouter SSE 델타 디코더 — 청크마다 readTree()로 JsonNode 트리를 만들던 경로 대체
+ *
+ * <p>스트림 1개당 non-blocking {@link JsonParser} 1개를 재사용한다.
+ * 각 {@code data:} 페이로드 바이트를 그대로 feed하고, 필요한 필드만 토큰 단위로 읽는다:
+ * <ul>
+ *   <li>{@code choices[0].delta.content} → {@link ContentSink}로 char[] 구간을 직접 전달 (String 미생성)</li>
+ *   <li>{@code choices[0].finish_reason}</li>
+ *   <li>{@code usage} (마지막 청크) → {@link OpenAiUsage}</li>
+ * </ul>
+ * 나머지 필드(id, model, role, provider 등)는 토큰만 넘겨 건너뛴다.
+ *
+ * <p>SSE 라인 읽기도 바이트 단위로 처리한다 ({@link #readLine}) — BufferedReader.readLine() +
+ * substring + trim으로 청크마다 String 3개를 만들던 비용 제거.
+ *
+ * <p>스레드 안전하지 않다 — 스트림 1개당 인스턴스 1개.
+ */
+public class SseDeltaDecoder {
+
+    /** content 구간 수신자. chars 배열은 다음 decode 호출 시 재사용되므로 즉시 복사/소비해야 한다. */
+    @FunctionalInterface
+    public interface ContentSink {
+        void accept(char[] chars, int offset, int length);
+    }
+
+    private static final byte[] DATA_PREFIX = "data:".getBytes();
+    private static final byte[] DONE = "[DONE]".getBytes();
+
+    private final JsonFactory jsonFactory;
+    private JsonParser parser;
+
+    // ── SSE 라인 버퍼 (재사용) ──
+    private byte[] lineBuf = new byte[8192];
+    private final byte[] readBuf = new byte[8192];
+    private int readPos = 0;
+    private int readLimit = 0;
+    private int lineLength = 0;
+
+    // ── 결과 ──
+    private OpenAiUsage usage;
+    private String finishReason;
+    private long chunkCount = 0;
+    private long malformedCount = 0;
+    private boolean done = false;
+
+    public SseDeltaDecoder(JsonFactory jsonFactory) {
+        this.jsonFactory = jsonFactory;
+    }
+
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+    //  SSE 라인 단위 읽기
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+
+    /**
+     * 다음 {@code data:} 페이로드를 읽어 디코드한다. 주석/이벤트명/빈 줄은 건너뛴다.
+     *
+     * @return 페이로드를 처리했으면 true, 스트림 종료 또는 {@code [DONE]}이면 false ({@code [DONE]} 이후 호출도 false)
+     */
+    public boolean readNext(InputStream in, ContentSink sink) throws IOException {
+        if (done) return false;
+        while (readLine(in)) {
+            int start = payloadStart();
+            if (start < 0) continue;
+            int end = lineLength;
+            while (end > start && isWhitespace(lineBuf[end - 1])) end--;
+            if (end == start) continue;
+            if (regionEquals(lineBuf, start, end, DONE)) {
+                done = true;
+                return false;
+            }
+            decode(lineBuf, start, end - start, sink);
+            return true;
+        }
+        return false;
+    }
+
+    /** LF 단위로 한 줄을 lineBuf에 채운다 (CR은 payload trim에서 제거). EOF면 false. */
+    private boolean readLine(InputStream in) throws IOException {
+        lineLength = 0;
+        boolean any = false;
+        while (true) {
+            if (readPos >= readLimit) {
+                readLimit = in.read(readBuf, 0, readBuf.length);
+                readPos = 0;
+                if (readLimit <= 0) {
+                    readLimit = 0;
+                    return any;
+                }
+            }
+            any = true;
+            int i = readPos;
+            while (i < readLimit && readBuf[i] != '\n') i++;
+            appendLine(readBuf, readPos, i - readPos);
+            if (i < readLimit) {
+                readPos = i + 1;
+                return true;
+            }
+            readPos = readLimit;
+        }
+    }
+
+    private void appendLine(byte[] src, int off, int len) {
+        if (len == 0) return;
+        if (lineLength + len > lineBuf.length) {
+            byte[] grown = new byte[Math.max(lineBuf.length * 2, lineLength + len)];
+            System.arraycopy(lineBuf, 0, grown, 0, lineLength);
+            lineBuf = grown;
+        }
+        System.arraycopy(src, off, lineBuf, lineLength, len);
+        lineLength += len;
+    }
+
+    /** "data:" 접두사 뒤 첫 비공백 위치. data 라인이 아니면 -1 */
+    private int payloadStart() {
+        if (lineLength < DATA_PREFIX.length || !regionEquals(lineBuf, 0, DATA_PREFIX.length, DATA_PREFIX)) {
+            return -1;
+        }
+        int i = DATA_PREFIX.length;
+        while (i < lineLength && isWhitespace(lineBuf[i])) i++;
+        return i;
+    }
+
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+    //  청크 디코드
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+
+    /**
+     * 완결된 JSON 청크 1개를 디코드한다. 형식 오류 청크는 무시(기존 동작)하고 파서를 재생성한다.
+     *
+     * @return content를 sink로 전달했으면 true
+     */
+    public boolean decode(byte[] buf, int offset, int length, ContentSink sink) {
+        chunkCount++;
+        try {
+            JsonParser p = parser();
+            ((ByteArrayFeeder) p.getNonBlockingInputFeeder()).feedInput(buf, offset, offset + length);
+            if (next(p) != JsonToken.START_OBJECT) {
+                throw new IOException("chunk is not an object");
+            }
+            boolean emitted = false;
+            JsonToken t;
+            while ((t = next(p)) == JsonToken.FIELD_NAME) {
+                String field = p.currentName();
+                JsonToken value = next(p);
+                if ("choices".equals(field) && value == JsonToken.START_ARRAY) {
+                    emitted = readChoices(p, sink);
+                } else if ("usage".equals(field) && value == JsonToken.START_OBJECT) {
+                    usage = readUsage(p);
+                } else {
+                    skip(p);
+                }
+            }
+            if (t != JsonToken.END_OBJECT) {
+                throw new IOException("unexpected token: " + t);
+            }
+            return emitted;
+        } catch (Exception e) {
+            // 파서 상태가 어긋났을 수 있으므로 폐기 — 다음 청크부터 새 파서
+            malformedCount++;
+            closeParser();
+            return false;
+        }
+    }
+
+    private boolean readChoices(JsonParser p, ContentSink sink) throws IOException {
+        boolean emitted = false;
+        int index = 0;
+        JsonToken t;
+        while ((t = next(p)) != JsonToken.END_ARRAY) {
+            if (t == JsonToken.START_OBJECT && index == 0) {
+                emitted = readFirstChoice(p, sink);
+            } else {
+                skip(p);
+            }
+            index++;
+        }
+        return emitted;
+    }
+
+    private boolean readFirstChoice(JsonParser p, ContentSink sink) throws IOException {
+        boolean emitted = false;
+        while (next(p) == JsonToken.FIELD_NAME) {
+            String field = p.currentName();
+            JsonToken value = next(p);
+            if ("delta".equals(field) && value == JsonToken.START_OBJECT) {
+                while (next(p) == JsonToken.FIELD_NAME) {
+                    String deltaField = p.currentName();
+                    JsonToken deltaValue = next(p);
+                    if ("content".equals(deltaField) && deltaValue == JsonToken.VALUE_STRING) {
+                        int len = p.getTextLength();
+                        if (len > 0 && sink != null) {
+                            sink.accept(p.getTextCharacters(), p.getTextOffset(), len);
+                            emitted = true;
+                        }
+                    } else {
+                        skip(p);
+                    }
+                }
+            } else if ("finish_reason".equals(field) && value == JsonToken.VALUE_STRING) {
+                finishReason = p.getText();
+            } else {
+                skip(p);
+            }
+        }
+        return emitted;
+    }
+
+    private OpenAiUsage readUsage(JsonParser p) throws IOException {
+        long prompt = 0, completion = 0, total = 0, cached = 0;
+        Double cost = null;
+        while (next(p) == JsonToken.FIELD_NAME) {
+            String field = p.currentName();
+            JsonToken value = next(p);
+            switch (field) {
+                case "prompt_tokens" -> prompt = longValue(p, value);
+                case "completion_tokens" -> completion = longValue(p, value);
+                case "total_tokens" -> total = longValue(p, value);
+                case "cost" -> cost = value.isNumeric() ? p.getDoubleValue() : null;
+                case "prompt_tokens_details" -> {
+                    if (value == JsonToken.START_OBJECT) {
+                        while (next(p) == JsonToken.FIELD_NAME) {
+                            String detail = p.currentName();
+                            JsonToken detailValue = next(p);
+                            if ("cached_tokens".equals(detail)) cached = longValue(p, detailValue);
+                            else skip(p);
+                        }
+                    }
+                }
+                default -> skip(p);
+            }
+        }
+        return new OpenAiUsage(prompt, completion, total,
+            new OpenAiUsage.PromptTokensDetails(cached), cost);
+    }
+
+    /**
+     * non-blocking 파서는 입력이 모자라면 NOT_AVAILABLE을 반환한다 — 청크는 항상 완결된 JSON이어야 하므로
+     * 잘린 청크는 즉시 예외로 끊는다 (skipChildren()은 NOT_AVAILABLE에서 무한 루프).
+     */
+    private static JsonToken next(JsonParser p) throws IOException {
+        JsonToken t = p.nextToken();
+        if (t == null || t == JsonToken.NOT_AVAILABLE) {
+            throw new IOException("incomplete chunk");
+        }
+        return t;
+    }
+
+    private static void skip(JsonParser p) throws IOException {
+        if (!p.currentToken().isStructStart()) return;
+        int open = 1;
+        while (open > 0) {
+            JsonToken t = next(p);
+            if (t.isStructStart()) open++;
+            else if (t.isStructEnd()) open--;
+        }
+    }
+
+    private static long longValue(JsonParser p, JsonToken value) throws IOException {
+        return value.isNumeric() ? p.getLongValue() : 0L;
+    }
+
+    private JsonParser parser() throws IOException {
+        if (parser == null) {
+            parser = jsonFactory.createNonBlockingByteArrayParser();
+        }
+        return parser;
+    }
+
+    private void closeParser() {
+        if (parser != null) {
+            try { parser.close(); } catch (IOException ignored) {}
+            parser = null;
+        }
+    }
+
+    /** 스트림 종료 시 호출 — 파서 버퍼 반환 */
+    public void close() {
+        closeParser();
+    }
+
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+    //  조회
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+
+    /** 마지막 청크의 usage. 프로바이더가 보내지 않았으면 null */
+    public OpenAiUsage getUsage() {
+        return usage;
+    }
+
+    public String getFinishReason() {
+        return finishReason;
+    }
+
+    public long getChunkCount() {
+        return chunkCount;
+    }
+
+    public long getMalformedCount() {
+        return malformedCount;
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\t' || b == '\r' || b == '\n';
+    }
+
+    private static boolean regionEquals(byte[] buf, int start, int end, byte[] expected) {
+        if (end - start != expected.length) return false;
+        for (int i = 0; i < expected.length; i++) {
+            if (buf[start + i] != expected[i]) return false;
+        }
+        return true;
+    }
+}
@@ -17,6 +17,7 @@ import com.spring.aichat.exception.NotFoundException;
 import com.spring.aichat.exception.BadRequestException;
 import com.spring.aichat.external.OpenRouterClient;
 import com.spring.aichat.security.PromptInjectionGuard;
+import com.spring.aichat.service.cache.ChatContextCache;
 import com.spring.aichat.service.cache.RedisCacheService;
 import com.spring.aichat.service.payment.SecretModeService;
 import lombok.RequiredArgsConstructor;
@@ -50,6 +51,7 @@ public class ChatService {
     private final ChatRoomRepository chatRoomRepository;
     private final com.spring.aichat.config.LegacyFeatureProperties legacy;
     private final ChatLogMongoRepository chatLogRepository;
+    private final ChatContextCache chatContextCache;
     private final OpenRouterClient openRouterClient;
     private final OpenAiProperties props;
     private final ObjectMapper objectMapper;
@@ -329,6 +331,7 @@ public class ChatService {
     @Transactional
     public void deleteChatRoom(Long roomId) {
         chatLogRepository.deleteByRoomId(roomId);
+        chatContextCache.invalidate(roomId);
         ChatRoom room = chatRoomRepository.findById(roomId).orElseThrow(
             () -> new NotFoundException("채팅방이 존재하지 않습니다. roomId=" + roomId)
         );
@@ -354,12 +357,12 @@ public class ChatService {
         //   — null 콘텐츠 로그가 저장되던 문제 방지.
         String introNarration = character.getIntroNarration();
         if (introNarration != null && !introNarration.isBlank()) {
-            chatLogRepository.save(ChatLogDocument.system(roomId, introNarration));
+            chatContextCache.append(chatLogRepository.save(ChatLogDocument.system(roomId, introNarration)));
         }
 
         String firstGreeting = character.getFirstGreeting();
-        chatLogRepository.save(ChatLogDocument.of(
-            roomId, ChatRole.ASSISTANT, firstGreeting, firstGreeting, EmotionTag.NEUTRAL, null));
+        chatContextCache.append(chatLogRepository.save(ChatLogDocument.of(
+            roomId, ChatRole.ASSISTANT, firstGreeting, firstGreeting, EmotionTag.NEUTRAL, null)));
     }
 
     // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
@@ -411,6 +414,7 @@ public class ChatService {
         }
 
         chatLogRepository.deleteById(logId);
+        chatContextCache.invalidate(roomId);
         log.info("🗑️ [DELETE] Single log deleted: logId={}, roomId={}, role={}",
             logId, roomId, doc.getRole());
     }
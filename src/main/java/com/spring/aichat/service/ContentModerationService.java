@@ -3,6 +3,7 @@ package com.spring.aichat.service;
 import com.spring.aichat.external.OpenAiModerationClient;
 import com.spring.aichat.external.OpenAiModerationClient.ModerationResult;
 import com.spring.aichat.security.KeywordFilter;
+import com.spring.aichat.service.metrics.ChatMetrics;
 import com.spring.aichat.security.KeywordFilter.FilterResult;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -54,6 +55,7 @@ public class ContentModerationService {
 
     private final KeywordFilter keywordFilter;
     private final OpenAiModerationClient moderationClient;
+    private final ChatMetrics chatMetrics;
 
     /**
      * [2026-08-06 종원 확정 B안] 채팅 모더레이션 전체 게이트 — 기본 off.
@@ -93,10 +95,12 @@ public class ContentModerationService {
         if (!keywordResult.passed()) {
             log.info("[MODERATION] Blocked by Step 1 (keyword): category={}, keyword='{}'",
                 keywordResult.category(), keywordResult.matchedKeyword());
+            long elapsed = System.currentTimeMillis() - totalStart;
+            chatMetrics.recordModeration("blocked_keyword", elapsed);
             return new ModerationVerdict(
                 false, 1, keywordResult.category().name(),
                 keywordResult.userMessage(),
-                System.currentTimeMillis() - totalStart
+                elapsed
             );
         }
 
@@ -105,14 +109,17 @@ public class ContentModerationService {
         if (!apiResult.passed()) {
             log.info("[MODERATION] Blocked by Step 2 (OpenAI): category={}, score={:.3f}, latency={}ms",
                 apiResult.flaggedCategory(), apiResult.score(), apiResult.latencyMs());
+            long elapsed = System.currentTimeMillis() - totalStart;
+            chatMetrics.recordModeration("blocked_api", elapsed);
             return new ModerationVerdict(
                 false, 2, apiResult.flaggedCategory(),
                 apiResult.userMessage(),
-                System.currentTimeMillis() - totalStart
+                elapsed
             );
         }
 
         long totalElapsed = System.currentTimeMillis() - totalStart;
+        chatMetrics.recordModeration("pass", totalElapsed);
         if (totalElapsed > 500) {
             log.warn("[MODERATION] Slow moderation pipeline: {}ms", totalElapsed);
         }
@@ -17,6 +17,7 @@ import com.spring.aichat.dto.openai.OpenAiChatRequest;
 import com.spring.aichat.dto.openai.OpenAiMessage;
 import com.spring.aichat.exception.NotFoundException;
 import com.spring.aichat.external.OpenRouterClient;
+import com.spring.aichat.service.cache.ChatContextCache;
 import com.spring.aichat.service.prompt.EndingPromptAssembler;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -50,6 +51,7 @@ public class EndingService {
 
     private final ChatRoomRepository chatRoomRepository;
     private final ChatLogMongoRepository chatLogRepository;   // [Phase 5.5-Perf] MongoDB로 전환
+    private final ChatContextCache chatContextCache;
     private final EndingPromptAssembler endingPromptAssembler;
     private final OpenRouterClient openRouterClient;
     private final OpenAiProperties props;
@@ -141,7 +143,7 @@ public class EndingService {
 
         // ── 7. 엔딩 로그 저장 — MongoDB + JPA(ChatRoom 상태만) ──
         String endingNarration = "[ENDING:" + endingType.name() + "] " + endingTitle;
-        chatLogRepository.save(ChatLogDocument.system(roomId, endingNarration));
+        chatContextCache.append(chatLogRepository.save(ChatLogDocument.system(roomId, endingNarration)));
 
         txTemplate.execute(status -> {
             ChatRoom freshRoom = chatRoomRepository.findById(roomId)
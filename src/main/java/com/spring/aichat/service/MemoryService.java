@@ -1,8 +1,6 @@
 package com.spring.aichat.service;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.spring.aichat.config.OpenAiProperties;
 import com.spring.aichat.domain.chat.ChatLogDocument;
 import com.spring.aichat.domain.chat.ChatLogMongoRepository;
@@ -11,17 +9,32 @@ import com.spring.aichat.domain.memory.MemorySummaryRepository;
 import com.spring.aichat.dto.openai.OpenAiChatRequest;
 import com.spring.aichat.dto.openai.OpenAiMessage;
 import com.spring.aichat.external.OpenRouterClient;
+import com.spring.aichat.service.cache.RedisPayloadCodec;
+import com.spring.aichat.service.memory.HnswIndex;
+import com.spring.aichat.service.memory.MemoryCompactor;
+import com.spring.aichat.service.memory.SemanticMemoryIndex;
+import com.spring.aichat.service.memory.SummarizationCoordinator;
+import com.spring.aichat.service.metering.LlmCaller;
+import com.spring.aichat.service.metering.LlmUsageContext;
+import com.spring.aichat.service.metrics.ChatMetrics;
+import com.spring.aichat.service.prompt.TokenEstimator;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.io.IOException;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
-import java.util.concurrent.TimeUnit;
+import java.util.Map;
+import java.util.TreeSet;
 import java.util.stream.Collectors;
 
 /**
@@ -40,55 +53,154 @@ public class MemoryService {
     private final OpenRouterClient openRouterClient;
     private final ChatLogMongoRepository chatLogRepository;
     private final StringRedisTemplate redisTemplate;
-    private final ObjectMapper objectMapper;
+    private final RedisPayloadCodec codec;
     private final OpenAiProperties props;  // [Fix] 추가 — 모델명 참조용
 
-    private static final String MEMORY_CACHE_PREFIX = "memory:";
+    private final SemanticMemoryIndex semanticIndex;
+    private final TokenEstimator tokenEstimator;
+    private final MemoryCompactor memoryCompactor;
+    private final SummarizationCoordinator summarizationCoordinator;
+    private final TransactionTemplate txTemplate;
+    /** [Metrics] memory.retrieval{path} */
+    private final ChatMetrics chatMetrics;
+    private final MemoryCompactor.Store compactionStore = new RoomMemoryStore();
+
+    @Value("${memory.vector.top-k:6}")
+    private int memoryTopK;
+
+    @Value("${memory.vector.token-budget:1200}")
+    private int memoryTokenBudget;
+
+    @Value("${memory.summarize.max-window-logs:40}")
+    private int maxWindowLogs;
+
+    /** v2: {@link MemoryEntry} 목록 (v1은 본문 문자열 목록 — 포맷이 달라 키 분리) */
+    private static final String MEMORY_CACHE_PREFIX = "memory:v2:";
+    private static final String MEMORY_CACHE_FAMILY = "memory";
     private static final long MEMORY_CACHE_TTL_HOURS = 2;
 
     // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
     //  [READ] 장기 기억 조회 — Redis 우선, RDB 폴백
     // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
 
+    /**
+     * @param text      프롬프트에 넣을 기억 블록 ("- " 목록)
+     * @param selective 전체가 아닌 질의 관련 일부만 골랐는지 — 턴마다 내용이 바뀌므로 캐시 prefix에 두면 안 된다
+     */
+    public record MemoryContext(String text, boolean selective) {
+        static final MemoryContext EMPTY = new MemoryContext("", false);
+    }
+
+    /** 캐시 항목 — 시맨틱 인덱스 동기화에 id가 필요 */
+    record MemoryEntry(long id, String summary) {}
+
+    /** 전체 기억 (시간순) — 엔딩 등 전체 회고용 */
     public String retrieveContext(Long roomId) {
+        List<MemoryEntry> entries = loadEntries(roomId);
+        return entries == null ? "" : formatMemories(entries);
+    }
+
+    /**
+     * [Perf] 질의 관련 기억 — 토큰 예산 안이면 전부, 넘으면 최신 1건 + 시맨틱 top-k
+     *
+     * 요약이 쌓이면 "전부 주입"은 매 턴 수천 토큰이 된다. 예산(memory.vector.token-budget)을 넘는
+     * 방만 {@link SemanticMemoryIndex}로 질의와 가까운 요약을 골라 예산까지 채운다.
+     * 최신 요약은 관련도와 무관하게 항상 포함 (직전 관계 흐름), 출력은 시간순.
+     * 인덱스가 꺼져 있으면 (기본) 예산과 무관하게 전부 — 기존 주입과 같다.
+     */
+    public MemoryContext retrieveContext(Long roomId, String query) {
+        List<MemoryEntry> entries = loadEntries(roomId);
+        if (entries == null || entries.isEmpty()) return MemoryContext.EMPTY;
+
+        String full = formatMemories(entries);
+        if (!semanticIndex.isEnabled() || tokenEstimator.estimate(full, props.model()) <= memoryTokenBudget) {
+            return new MemoryContext(full, false);
+        }
+
+        long start = System.currentTimeMillis();
+        List<SemanticMemoryIndex.Item> items = entries.stream()
+            .map(e -> new SemanticMemoryIndex.Item(e.id(), e.summary()))
+            .toList();
+        List<HnswIndex.Hit> hits = semanticIndex.search(roomId, query, memoryTopK, items);
+
+        Map<Long, Integer> position = new HashMap<>(entries.size() * 2);
+        for (int i = 0; i < entries.size(); i++) position.put(entries.get(i).id(), i);
+
+        // 후보 순서: 최신 1건 → 시맨틱 hit(유사도순) → (hit 부족 시) 최신순
+        List<Integer> candidates = new ArrayList<>();
+        candidates.add(entries.size() - 1);
+        for (HnswIndex.Hit hit : hits) {
+            Integer i = position.get(hit.id());
+            if (i != null) candidates.add(i);
+        }
+        for (int i = entries.size() - 2; i >= 0 && candidates.size() < memoryTopK + 1; i--) {
+            candidates.add(i);
+        }
+
+        TreeSet<Integer> chosen = new TreeSet<>();
+        int used = 0;
+        for (int i : candidates) {
+            if (chosen.contains(i) || chosen.size() > memoryTopK) continue;
+            int cost = tokenEstimator.estimate("- " + entries.get(i).summary() + "\n", props.model());
+            if (used + cost > memoryTokenBudget && !chosen.isEmpty()) continue;
+            chosen.add(i);
+            used += cost;
+        }
+
+        String text = chosen.stream()
+            .map(i -> "- " + entries.get(i).summary())
+            .collect(Collectors.joining("\n"));
+        long elapsed = System.currentTimeMillis() - start;
+        chatMetrics.recordMemoryRetrieval("selective", elapsed);
+        log.info("⏱️ [MEMORY] Selective: roomId={} | {}ms | picked={}/{} | hits={} | ≈{} tokens",
+            roomId, elapsed, chosen.size(), entries.size(), hits.size(), used);
+        return new MemoryContext(text, true);
+    }
+
+    /** @return 시간순 요약 목록, 조회 실패 시 null */
+    private List<MemoryEntry> loadEntries(Long roomId) {
         long start = System.currentTimeMillis();
         String cacheKey = MEMORY_CACHE_PREFIX + roomId;
 
         try {
             // 1. Redis 캐시 조회
-            String cached = redisTemplate.opsForValue().get(cacheKey);
+            List<MemoryEntry> cached = codec.read(MEMORY_CACHE_FAMILY, cacheKey, new TypeReference<List<MemoryEntry>>() {});
             if (cached != null) {
-                List<String> summaries = objectMapper.readValue(cached, new TypeReference<>() {});
-                String result = formatMemories(summaries);
+                long elapsed = System.currentTimeMillis() - start;
+                chatMetrics.recordMemoryRetrieval("cache_hit", elapsed);
                 log.info("⏱️ [MEMORY] Cache HIT: roomId={} | {}ms | memories={}",
-                    roomId, System.currentTimeMillis() - start, summaries.size());
-                return result;
+                    roomId, elapsed, cached.size());
+                return cached;
             }
 
             // 2. 캐시 미스 → RDB 조회
-            List<MemorySummary> memories = memorySummaryRepository.findByRoomIdOrderByCreatedAtAsc(roomId);
+            List<MemorySummary> memories = memorySummaryRepository.findByRoomIdOrderByTurnNumberAscIdAsc(roomId);
             if (memories.isEmpty()) {
-                log.info("⏱️ [MEMORY] No memories: roomId={} | {}ms",
-                    roomId, System.currentTimeMillis() - start);
-                return "";
+                long elapsed = System.currentTimeMillis() - start;
+                chatMetrics.recordMemoryRetrieval("empty", elapsed);
+                log.info("⏱️ [MEMORY] No memories: roomId={} | {}ms", roomId, elapsed);
+                return List.of();
             }
 
             // 3. 캐시 워밍
-            List<String> summaryTexts = memories.stream()
-                .map(MemorySummary::getSummary)
+            List<MemoryEntry> entries = memories.stream()
+                .map(m -> new MemoryEntry(m.getId(), m.getSummary()))
                 .collect(Collectors.toList());
 
-            cacheMemories(roomId, summaryTexts);
+            cacheMemories(roomId, entries);
 
-            String result = formatMemories(summaryTexts);
+            long elapsed = System.currentTimeMillis() - start;
+            chatMetrics.recordMemoryRetrieval("db", elapsed);
             log.info("⏱️ [MEMORY] Cache MISS → DB loaded: roomId={} | {}ms | memories={}",
-                roomId, System.currentTimeMillis() - start, summaryTexts.size());
-            return result;
+                roomId, elapsed, entries.size());
+            return entries;
 
         } catch (Exception e) {
+            long elapsed = System.currentTimeMillis() - start;
+            chatMetrics.recordMemoryRetrieval("error", elapsed);
             log.warn("⏱️ [MEMORY] retrieveContext failed (non-blocking): roomId={} | {}ms | {}",
-                roomId, System.currentTimeMillis() - start, e.getMessage());
-            return "";
+                roomId, elapsed, e.getMessage());
+            return null;
         }
     }
 
@@ -96,68 +208,105 @@ public class MemoryService {
     //  [WRITE] 장기 기억 생성 — LLM 요약 → RDB 저장 → 캐시 무효화
     // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
 
+    /**
+     * [Perf] 트리거는 중복될 수 있다 (재시도 · 연타 · V1/V2 후처리 중첩) — 실제 실행 여부는
+     * {@link SummarizationCoordinator}가 결정한다: 방 단위 single-flight + Redis 리스 + DB 워터마크.
+     * 워터마크(이미 요약된 마지막 로그 번호) 이후 새 로그가 충분할 때만 그 구간을 정확히 1회 요약한다.
+     */
     @Async
     public void summarizeAndSaveMemory(Long roomId, Long userId) {
-        long asyncStart = System.currentTimeMillis();
         String threadName = Thread.currentThread().getName();
-        log.info("⏱️ [MEMORY-WRITE] START | thread={} | roomId={}", threadName, roomId);
-
         if (threadName.contains("http-nio") || threadName.contains("tomcat")) {
             log.error("🚨 [MEMORY-WRITE] Running on HTTP thread — @Async NOT working!");
         }
 
         try {
-            // 1. 요약 대상 로드 (MongoDB — 최근 20턴)
-            long t1 = System.currentTimeMillis();
-            List<ChatLogDocument> recentLogs = chatLogRepository.findTop20ByRoomIdOrderByCreatedAtDesc(roomId);
-            List<ChatLogDocument> sortedLogs = new ArrayList<>(recentLogs);
-            sortedLogs.sort((a, b) -> a.getCreatedAt().compareTo(b.getCreatedAt()));
-            log.info("⏱️ [MEMORY-WRITE] [1] Load logs: {}ms | count={}",
-                System.currentTimeMillis() - t1, sortedLogs.size());
-
-            if (sortedLogs.isEmpty()) return;
-
-            String conversationText = sortedLogs.stream()
-                .map(doc -> String.format("%s: %s", doc.getRole(), doc.getCleanContent()))
-                .collect(Collectors.joining("\n"));
-
-            // 2. LLM 요약 생성
-            // [Fix] props.sentimentModel() 사용 — 기존 "gpt-4o-mini" 하드코딩은
-            //        OpenRouter에서 400 Bad Request를 발생시켜 메모리 저장이 실패했음
-            long t2 = System.currentTimeMillis();
-            String summaryPrompt = buildSummaryPrompt(conversationText);
-            String model = props.sentimentModel();
-
-            log.info("⏱️ [MEMORY-WRITE] [2] LLM summarize START | model={}", model);
-
-            String summary = openRouterClient.chatCompletion(
+            summarizationCoordinator.run(roomId,
+                () -> memorySummaryRepository.findSummarizedTurn(roomId),
+                () -> (int) chatLogRepository.countByRoomId(roomId),
+                (fromTurn, toTurn) -> summarizeWindow(roomId, userId, fromTurn, toTurn));
+        } catch (Exception e) {
+            log.error("❌ [MEMORY-WRITE] FAILED | roomId={} | error={}", roomId, e.getMessage(), e);
+        }
+        backfillSemanticIndex(roomId);
+    }
+
+    /** [Perf] 조회 경로가 미룬 시맨틱 인덱스 누락분 임베딩 — 요약 실행 여부와 무관하게 이 비동기 경로에서 처리 */
+    private void backfillSemanticIndex(Long roomId) {
+        if (!semanticIndex.needsBackfill(roomId)) return;
+        List<MemoryEntry> entries = loadEntries(roomId);
+        if (entries == null) return;
+        semanticIndex.backfill(roomId, entries.stream()
+            .map(e -> new SemanticMemoryIndex.Item(e.id(), e.summary()))
+            .toList());
+    }
+
+    /** 로그 구간 [fromTurn, toTurn) 요약 — 구간이 max-window-logs보다 길면 최신 쪽만 (오래된 쪽은 이미 흐려진 대화) */
+    private void summarizeWindow(Long roomId, Long userId, int fromTurn, int toTurn) {
+        long asyncStart = System.currentTimeMillis();
+        int windowSize = Math.min(toTurn - fromTurn, maxWindowLogs);
+        int windowFrom = toTurn - windowSize;
+        log.info("⏱️ [MEMORY-WRITE] START | thread={} | roomId={} | turns=[{}, {})",
+            Thread.currentThread().getName(), roomId, windowFrom, toTurn);
+
+        // 1. 요약 대상 로드 (MongoDB — 워터마크 이후 구간)
+        long t1 = System.currentTimeMillis();
+        // 턴 구간 그대로 — 워터마크 판정 이후 쌓인 로그(toTurn 이후)는 다음 창 몫
+        List<ChatLogDocument> sortedLogs = chatLogRepository.findTurnRange(roomId, windowFrom, toTurn);
+        log.info("⏱️ [MEMORY-WRITE] [1] Load logs: {}ms | count={}",
+            System.currentTimeMillis() - t1, sortedLogs.size());
+
+        if (sortedLogs.isEmpty()) return;
+
+        String conversationText = sortedLogs.stream()
+            .map(doc -> String.format("%s: %s", doc.getRole(), doc.getCleanContent()))
+            .collect(Collectors.joining("\n"));
+
+        // 2. LLM 요약 생성
+        // [Fix] props.sentimentModel() 사용 — 기존 "gpt-4o-mini" 하드코딩은
+        //        OpenRouter에서 400 Bad Request를 발생시켜 메모리 저장이 실패했음
+        long t2 = System.currentTimeMillis();
+        String summaryPrompt = buildSummaryPrompt(conversationText);
+        String model = props.sentimentModel();
+
+        log.info("⏱️ [MEMORY-WRITE] [2] LLM summarize START | model={}", model);
+
+        String summary;
+        try (var usageScope = LlmUsageContext.open(LlmCaller.MEMORY_SUMMARY, roomId, userId)) {
+            summary = openRouterClient.chatCompletion(
                 OpenAiChatRequest.withoutPenalty(
                     model,
                     List.of(OpenAiMessage.system(summaryPrompt)),
                     0.5
                 )
             );
-            log.info("⏱️ [MEMORY-WRITE] [2] LLM summarize: {}ms | model={}",
-                System.currentTimeMillis() - t2, model);
+        }
+        log.info("⏱️ [MEMORY-WRITE] [2] LLM summarize: {}ms | model={}",
+            System.currentTimeMillis() - t2, model);
+        if (summary == null || summary.isBlank()) {
+            throw new IllegalStateException("empty memory summary");  // 워터마크 미전진 → 다음 트리거가 같은 구간 재시도
+        }
 
-            // 3. RDB 저장
-            long t3 = System.currentTimeMillis();
-            int turnNumber = (int) chatLogRepository.countByRoomId(roomId);
-            MemorySummary entity = new MemorySummary(roomId, userId, summary.trim(), turnNumber);
-            memorySummaryRepository.save(entity);
-            log.info("⏱️ [MEMORY-WRITE] [3] RDB save: {}ms", System.currentTimeMillis() - t3);
+        // 3. RDB 저장
+        long t3 = System.currentTimeMillis();
+        MemorySummary entity = MemorySummary.window(roomId, userId, summary.trim(), windowFrom, toTurn);
+        memorySummaryRepository.save(entity);
+        log.info("⏱️ [MEMORY-WRITE] [3] RDB save: {}ms", System.currentTimeMillis() - t3);
 
-            // 4. Redis 캐시 무효화 (다음 읽기 시 재캐싱)
-            evictMemoryCache(roomId);
+        // [Perf] 시맨틱 인덱스 즉시 반영 (임베딩 비용을 읽기 경로에서 제거)
+        semanticIndex.add(roomId, new SemanticMemoryIndex.Item(entity.getId(), entity.getSummary()));
 
-            log.info("✅ [MEMORY-WRITE] DONE: {}ms total | roomId={} | model={} | summary='{}'",
-                System.currentTimeMillis() - asyncStart, roomId, model,
-                summary.substring(0, Math.min(80, summary.length())));
+        // 4. Redis 캐시 무효화 (다음 읽기 시 재캐싱)
+        evictMemoryCache(roomId);
 
-        } catch (Exception e) {
-            log.error("❌ [MEMORY-WRITE] FAILED after {}ms | roomId={} | error={}",
-                System.currentTimeMillis() - asyncStart, roomId, e.getMessage(), e);
-        }
+        // 5. [Perf] 계층 압축 트리거 (비동기 · 방 단위 single-flight)
+        memoryCompactor.submit(compactionStore, new MemoryCompactor.Scope(roomId, null, userId));
+
+        long totalMs = System.currentTimeMillis() - asyncStart;
+        chatMetrics.recordMemorySummary(model, totalMs);
+        log.info("✅ [MEMORY-WRITE] DONE: {}ms total | roomId={} | model={} | summary='{}'",
+            totalMs, roomId, model,
+            summary.substring(0, Math.min(80, summary.length())));
     }
 
     // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
@@ -168,6 +317,7 @@ public class MemoryService {
     public void clearMemories(Long roomId) {
         memorySummaryRepository.deleteByRoomId(roomId);
         evictMemoryCache(roomId);
+        semanticIndex.drop(roomId);
         log.info("🗑️ [MEMORY] Cleared all memories: roomId={}", roomId);
     }
 
@@ -175,29 +325,87 @@ public class MemoryService {
         redisTemplate.delete(MEMORY_CACHE_PREFIX + roomId);
     }
 
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+    //  [Perf] 계층 압축 저장소 어댑터
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+
+    private class RoomMemoryStore implements MemoryCompactor.Store {
+
+        @Override
+        public String name() {
+            return "memory";
+        }
+
+        @Override
+        public LlmCaller caller() {
+            return LlmCaller.MEMORY_COMPACTION;
+        }
+
+        @Override
+        public List<MemoryCompactor.Node> load(MemoryCompactor.Scope scope) {
+            return memorySummaryRepository.findByRoomIdOrderByTurnNumberAscIdAsc(scope.roomId()).stream()
+                .map(m -> new MemoryCompactor.Node(m.getId(), m.getTier(), m.getTurnNumber(), m.getSummary()))
+                .toList();
+        }
+
+        @Override
+        public String prompt(MemoryCompactor.Run run) {
+            return buildCompactionPrompt(MemoryCompactor.bulletList(run), run.targetTier());
+        }
+
+        @Override
+        public void commit(MemoryCompactor.Scope scope, MemoryCompactor.Run run, String summary) {
+            MemorySummary merged = txTemplate.execute(status -> {
+                int deleted = memorySummaryRepository.deleteCompacted(scope.roomId(), run.tier(), run.ids());
+                if (deleted != run.nodes().size()) {
+                    throw new IllegalStateException("children changed: deleted " + deleted + "/" + run.nodes().size());
+                }
+                return memorySummaryRepository.save(MemorySummary.compacted(scope.roomId(), scope.userId(),
+                    summary, run.turnNumber(), run.targetTier(), run.fromId(), run.toId()));
+            });
+            evictMemoryCache(scope.roomId());
+            semanticIndex.add(scope.roomId(), new SemanticMemoryIndex.Item(merged.getId(), merged.getSummary()));
+        }
+    }
+
     // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
     //  Private Helpers
     // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
 
-    private void cacheMemories(Long roomId, List<String> summaryTexts) {
+    private void cacheMemories(Long roomId, List<MemoryEntry> entries) {
         try {
-            String json = objectMapper.writeValueAsString(summaryTexts);
-            redisTemplate.opsForValue().set(
-                MEMORY_CACHE_PREFIX + roomId, json,
-                MEMORY_CACHE_TTL_HOURS, TimeUnit.HOURS
-            );
-        } catch (JsonProcessingException e) {
+            // [Perf] Smile+LZ4 — 요약 누적 시 수 KB 한글 본문
+            codec.write(MEMORY_CACHE_FAMILY, MEMORY_CACHE_PREFIX + roomId, entries,
+                Duration.ofHours(MEMORY_CACHE_TTL_HOURS));
+        } catch (IOException e) {
             log.warn("[MEMORY] Cache write failed: roomId={}", roomId, e);
         }
     }
 
-    private String formatMemories(List<String> summaries) {
-        if (summaries == null || summaries.isEmpty()) return "";
-        return summaries.stream()
-            .map(s -> "- " + s)
+    private String formatMemories(List<MemoryEntry> entries) {
+        if (entries == null || entries.isEmpty()) return "";
+        return entries.stream()
+            .map(e -> "- " + e.summary())
             .collect(Collectors.joining("\n"));
     }
 
+    /** tier가 높을수록 더 긴 기간 — 사건 나열보다 관계 흐름 위주로 */
+    private String buildCompactionPrompt(String summaries, int tier) {
+        return """
+            The following are chronological memory summaries of a conversation between User and AI Character.
+            Merge them into ONE higher-level memory (level %d).
+
+            [Summaries]
+            %s
+
+            [Output Rule]
+            - Korean, within %d sentences.
+            - Keep every durable fact about the User (name, job, preferences, promises) and key turning points.
+            - Keep dates/times of important events; drop details that later summaries superseded.
+            - Preserve chronological order. Output the merged memory only.
+            """.formatted(tier, summaries, Math.min(3 + tier, 6));
+    }
+
     private String buildSummaryPrompt(String conversationText) {
         return """
             Analyze the following conversation between User and AI Character.
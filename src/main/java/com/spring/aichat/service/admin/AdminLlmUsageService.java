@@ -0,0 +1,31 @@
+package com.spring.aichat.service.admin;
+
+import com.spring.aichat.dto.admin.LlmUsageRollup;
+import com.spring.aichat.service.metering.LlmUsageStore;
+import com.spring.aichat.service.metering.LlmUsageStore.Dimension;
+import com.spring.aichat.service.metering.LlmUsageStore.SortBy;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * LLM 토큰·비용 대시보드. 어느 caller / model / provider / 방 / 유저가 예산을 쓰는지 top-N 롤업.
+ * (메모리 집계분은 flush 주기만큼 지연 반영)
+ */
+@Service
+@RequiredArgsConstructor
+public class AdminLlmUsageService {
+
+    private static final int MAX_HOURS = 24 * 31;
+    private static final int MAX_LIMIT = 100;
+
+    private final LlmUsageStore llmUsageStore;
+
+    public List<LlmUsageRollup> top(Dimension dimension, int hours, SortBy sortBy, int limit) {
+        int window = Math.min(Math.max(hours, 1), MAX_HOURS);
+        int n = Math.min(Math.max(limit, 1), MAX_LIMIT);
+        return llmUsageStore.topN(dimension, LocalDateTime.now().minusHours(window), sortBy, n);
+    }
+}
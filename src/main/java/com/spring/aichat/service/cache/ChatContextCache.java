@@ -0,0 +1,420 @@
+package com.spring.aichat.service.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.spring.aichat.domain.chat.ChatLogDocument;
+import com.spring.aichat.domain.chat.ChatLogMongoRepository;
+import com.spring.aichat.domain.enums.ChatRole;
+import com.spring.aichat.dto.openai.OpenAiMessage;
+import com.spring.aichat.service.util.LlmOutputParser;
+import com.spring.aichat.service.util.LlmOutputParser.SanitizedScene;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * [Perf] 방 단위 대화 컨텍스트 캐시 — 턴마다 Mongo 최근 20개 조회 + ASSISTANT JSON 재파싱 제거
+ *
+ * ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+ *  구조 (write-through)
+ * ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+ *  L1  로컬 LRU (방 N개) — Snapshot(gen, 최근 20개 Entry, 역할별 카운트)
+ *  L2  Redis
+ *      chat_ctx:gen:{roomId}  세대 카운터 — 저장/삭제마다 INCR
+ *      chat_ctx:log:{roomId}  Entry JSON 리스트 (RPUSH + LTRIM 20)
+ *      chat_ctx:cnt:{roomId}  해시 {gen, total, USER, ASSISTANT, SYSTEM}
+ *  원본 Mongo — L2 미스(최초/만료/무효화) 때만 조회 후 채움
+ *
+ * ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+ *  정합성 — 세대(gen) 비교
+ * ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+ *  - 조회: GET gen 1회. L1 gen과 같으면 L1 그대로 (정상 턴의 유일한 원격 호출)
+ *  - 추가: Lua로 INCR gen + (cnt.gen == gen-1일 때만) RPUSH/카운트 증가 — 이미 어긋난 캐시는 건드리지 않음
+ *        Mongo 저장 뒤 ~ INCR 전에 다른 노드가 적재(populate)하면 그 윈도우에 이미 이 로그가 있다
+ *        → 같은 id가 윈도우에 있으면 gen만 올리고 RPUSH/카운트는 건너뛴다 (L1도 동일)
+ *  - Mongo 적재: 읽기 전 gen을 기억하고, 채우는 시점에 gen이 그대로일 때만 기록 (적재 중 저장분 유실 방지)
+ *  - 삭제(단건/방 초기화/보상 롤백): INCR gen + 키 삭제 → 다른 노드 L1도 다음 조회에서 자연 무효화
+ *
+ * Entry는 ASSISTANT 정제 결과(씬별 speaker/본문)를 저장 시점에 한 번만 계산해 담는다.
+ * 캐릭터 이름(speaker 생략)·속마음 포함 여부는 조회 시 문자열 조립만으로 적용.
+ *
+ * Redis 장애 시 Mongo 직행 (캐시 없이 기존 동작).
+ */
+@Component
+@Slf4j
+public class ChatContextCache {
+
+    /** 컨텍스트 윈도우 — 기존 findTop20ByRoomIdOrderByCreatedAtDesc와 동일 */
+    public static final int WINDOW_SIZE = 20;
+
+    private static final String GEN_PREFIX = "chat_ctx:gen:";
+    private static final String LOG_PREFIX = "chat_ctx:log:";
+    private static final String COUNT_PREFIX = "chat_ctx:cnt:";
+
+    /**
+     * KEYS[1]=gen, KEYS[2]=log, KEYS[3]=cnt
+     * ARGV[1]=entry JSON, ARGV[2]=role, ARGV[3]=window, ARGV[4]=ttl(s), ARGV[5]=entry id ('' = 중복 검사 안 함)
+     * Returns: 새 gen
+     */
+    private static final String APPEND_LUA = """
+        local g = redis.call('INCR', KEYS[1])
+        redis.call('EXPIRE', KEYS[1], ARGV[4])
+        if redis.call('HGET', KEYS[3], 'gen') == tostring(g - 1) then
+            local present = false
+            if ARGV[5] ~= '' then
+                for _, row in ipairs(redis.call('LRANGE', KEYS[2], 0, -1)) do
+                    if cjson.decode(row)['id'] == ARGV[5] then
+                        present = true
+                        break
+                    end
+                end
+            end
+            if not present then
+                redis.call('RPUSH', KEYS[2], ARGV[1])
+                redis.call('LTRIM', KEYS[2], -tonumber(ARGV[3]), -1)
+                redis.call('HINCRBY', KEYS[3], 'total', 1)
+                redis.call('HINCRBY', KEYS[3], ARGV[2], 1)
+            end
+            redis.call('HSET', KEYS[3], 'gen', g)
+            redis.call('EXPIRE', KEYS[2], ARGV[4])
+            redis.call('EXPIRE', KEYS[3], ARGV[4])
+        end
+        return g
+        """;
+
+    /**
+     * KEYS[1]=gen, KEYS[2]=log, KEYS[3]=cnt
+     * ARGV[1]=읽기 전 gen, ARGV[2]=ttl(s), ARGV[3..6]=total/USER/ASSISTANT/SYSTEM, ARGV[7..]=entry JSON
+     * Returns: 1 = 기록, 0 = 적재 중 gen 변경으로 포기
+     */
+    private static final String POPULATE_LUA = """
+        local current = redis.call('GET', KEYS[1]) or '0'
+        if current ~= ARGV[1] then
+            return 0
+        end
+        redis.call('DEL', KEYS[2], KEYS[3])
+        for i = 7, #ARGV do
+            redis.call('RPUSH', KEYS[2], ARGV[i])
+        end
+        redis.call('HSET', KEYS[3], 'gen', ARGV[1], 'total', ARGV[3], 'USER', ARGV[4],
+            'ASSISTANT', ARGV[5], 'SYSTEM', ARGV[6])
+        redis.call('EXPIRE', KEYS[2], ARGV[2])
+        redis.call('EXPIRE', KEYS[3], ARGV[2])
+        return 1
+        """;
+
+    static final DefaultRedisScript<Long> APPEND_SCRIPT = new DefaultRedisScript<>(APPEND_LUA, Long.class);
+    static final DefaultRedisScript<Long> POPULATE_SCRIPT = new DefaultRedisScript<>(POPULATE_LUA, Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final ChatLogMongoRepository chatLogRepository;
+    private final ObjectMapper objectMapper;
+    private final long ttlSeconds;
+
+    /** L1 — access-order LRU. 스냅샷은 불변이라 교체만 동기화하면 된다 */
+    private final Map<Long, Snapshot> local;
+
+    /** Redis 장애로 무효화를 못 한 방 — 다음 조회 시 재시도 */
+    private final Set<Long> pendingInvalidations = ConcurrentHashMap.newKeySet();
+
+    private final LongAdder localHits = new LongAdder();
+    private final LongAdder redisHits = new LongAdder();
+    private final LongAdder mongoLoads = new LongAdder();
+
+    public ChatContextCache(StringRedisTemplate redisTemplate,
+                            ChatLogMongoRepository chatLogRepository,
+                            ObjectMapper objectMapper,
+                            @Value("${chat.context-cache.local-rooms:10000}") int localRooms,
+                            @Value("${chat.context-cache.ttl-hours:24}") long ttlHours) {
+        this.redisTemplate = redisTemplate;
+        this.chatLogRepository = chatLogRepository;
+        this.objectMapper = objectMapper;
+        this.ttlSeconds = TimeUnit.HOURS.toSeconds(ttlHours);
+        this.local = Collections.synchronizedMap(new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Snapshot> eldest) {
+                return size() > localRooms;
+            }
+        });
+    }
+
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+    //  조회
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+
+    /** 최근 20개(오래된 → 최신) + 역할별 카운트 */
+    public Snapshot snapshot(Long roomId) {
+        try {
+            if (pendingInvalidations.remove(roomId)) {
+                invalidateRemote(roomId);
+            }
+            long gen = currentGen(roomId);
+
+            Snapshot cached = local.get(roomId);
+            if (cached != null && cached.gen() == gen) {
+                localHits.increment();
+                return cached;
+            }
+
+            Snapshot fromRedis = readRedis(roomId, gen);
+            if (fromRedis != null) {
+                redisHits.increment();
+                local.put(roomId, fromRedis);
+                return fromRedis;
+            }
+
+            Snapshot loaded = loadFromMongo(roomId, gen);
+            if (populateRedis(roomId, loaded)) {
+                local.put(roomId, loaded);
+            }
+            return loaded;
+
+        } catch (Exception e) {
+            log.warn("[CHAT-CTX] cache unavailable, falling back to Mongo | roomId={} | err={}",
+                roomId, e.getMessage());
+            local.remove(roomId);
+            return loadFromMongo(roomId, -1);
+        }
+    }
+
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+    //  갱신 (write-through)
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+
+    /**
+     * 새로 저장된 로그를 윈도우 끝에 추가한다. 기존 로그 수정(평가·해금 등)에는 호출하지 않는다.
+     * 실패해도 채팅 흐름은 깨지 않는다 — 해당 방 캐시만 무효화.
+     */
+    public void append(ChatLogDocument saved) {
+        if (saved == null || saved.getRoomId() == null || saved.getRole() == null) return;
+        Long roomId = saved.getRoomId();
+        try {
+            Entry entry = Entry.from(objectMapper, saved);
+            Long gen = redisTemplate.execute(APPEND_SCRIPT,
+                List.of(GEN_PREFIX + roomId, LOG_PREFIX + roomId, COUNT_PREFIX + roomId),
+                objectMapper.writeValueAsString(entry), saved.getRole().name(),
+                String.valueOf(WINDOW_SIZE), String.valueOf(ttlSeconds), entry.id() != null ? entry.id() : "");
+
+            synchronized (local) {
+                Snapshot cached = local.get(roomId);
+                if (gen != null && cached != null && cached.gen() == gen - 1) {
+                    local.put(roomId, cached.append(entry, gen));
+                } else {
+                    local.remove(roomId);
+                }
+            }
+        } catch (Exception e) {
+            log.warn("[CHAT-CTX] append failed — invalidating | roomId={} | err={}", roomId, e.getMessage());
+            invalidate(roomId);
+        }
+    }
+
+    /**
+     * [Perf] 아직 저장되지 않은 로그를 덧붙인 스냅샷 사본 — 캐시에는 반영하지 않는다.
+     * 투기 실행(USER 저장과 LLM 요청을 병렬 시작)에서 저장 후 스냅샷과 같은 히스토리를 미리 만들 때.
+     */
+    public Snapshot withPending(Snapshot base, ChatLogDocument unsaved) {
+        return base.append(Entry.from(objectMapper, unsaved), base.gen());
+    }
+
+    /** 단건 삭제·방 초기화·보상 롤백 — 모든 노드의 L1과 L2를 무효화 */
+    public void invalidate(Long roomId) {
+        if (roomId == null) return;
+        local.remove(roomId);
+        try {
+            invalidateRemote(roomId);
+        } catch (Exception e) {
+            log.warn("[CHAT-CTX] invalidate failed — retry on next read | roomId={} | err={}",
+                roomId, e.getMessage());
+            pendingInvalidations.add(roomId);
+        }
+    }
+
+    public Stats getStats() {
+        return new Stats(localHits.sum(), redisHits.sum(), mongoLoads.sum(), local.size());
+    }
+
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+    //  내부
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+
+    private long currentGen(Long roomId) {
+        String gen = redisTemplate.opsForValue().get(GEN_PREFIX + roomId);
+        return gen != null ? Long.parseLong(gen) : 0L;
+    }
+
+    private void invalidateRemote(Long roomId) {
+        redisTemplate.opsForValue().increment(GEN_PREFIX + roomId);
+        redisTemplate.expire(GEN_PREFIX + roomId, ttlSeconds, TimeUnit.SECONDS);
+        redisTemplate.delete(List.of(LOG_PREFIX + roomId, COUNT_PREFIX + roomId));
+    }
+
+    private Snapshot readRedis(Long roomId, long gen) throws Exception {
+        Map<Object, Object> counts = redisTemplate.opsForHash().entries(COUNT_PREFIX + roomId);
+        if (counts.isEmpty() || !String.valueOf(gen).equals(counts.get("gen"))) return null;
+
+        List<String> rows = redisTemplate.opsForList().range(LOG_PREFIX + roomId, 0, -1);
+        List<Entry> window = new ArrayList<>(rows != null ? rows.size() : 0);
+        if (rows != null) {
+            for (String row : rows) {
+                window.add(objectMapper.readValue(row, Entry.class));
+            }
+        }
+        return new Snapshot(gen, List.copyOf(window),
+            count(counts, "total"), count(counts, ChatRole.USER.name()),
+            count(counts, ChatRole.ASSISTANT.name()), count(counts, ChatRole.SYSTEM.name()));
+    }
+
+    private Snapshot loadFromMongo(Long roomId, long gen) {
+        mongoLoads.increment();
+        List<ChatLogDocument> recent = chatLogRepository.findTop20ByRoomIdOrderByCreatedAtDesc(roomId);
+        List<Entry> window = new ArrayList<>(recent.size());
+        for (int i = recent.size() - 1; i >= 0; i--) {
+            window.add(Entry.from(objectMapper, recent.get(i)));
+        }
+        return new Snapshot(gen, List.copyOf(window),
+            chatLogRepository.countByRoomId(roomId),
+            chatLogRepository.countByRoomIdAndRole(roomId, ChatRole.USER),
+            chatLogRepository.countByRoomIdAndRole(roomId, ChatRole.ASSISTANT),
+            chatLogRepository.countByRoomIdAndRole(roomId, ChatRole.SYSTEM));
+    }
+
+    private boolean populateRedis(Long roomId, Snapshot snapshot) throws Exception {
+        List<String> args = new ArrayList<>(6 + snapshot.window().size());
+        args.add(String.valueOf(snapshot.gen()));
+        args.add(String.valueOf(ttlSeconds));
+        args.add(String.valueOf(snapshot.total()));
+        args.add(String.valueOf(snapshot.userCount()));
+        args.add(String.valueOf(snapshot.assistantCount()));
+        args.add(String.valueOf(snapshot.systemCount()));
+        for (Entry entry : snapshot.window()) {
+            args.add(objectMapper.writeValueAsString(entry));
+        }
+        Long written = redisTemplate.execute(POPULATE_SCRIPT,
+            List.of(GEN_PREFIX + roomId, LOG_PREFIX + roomId, COUNT_PREFIX + roomId), args.toArray());
+        return written != null && written == 1L;
+    }
+
+    private static long count(Map<Object, Object> counts, String field) {
+        Object value = counts.get(field);
+        return value != null ? Long.parseLong(value.toString()) : 0L;
+    }
+
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+    //  DTO
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+
+    /**
+     * 방 컨텍스트 스냅샷 (불변).
+     *
+     * @param gen     Redis 세대 (-1 = 캐시 우회 결과)
+     * @param window  최근 {@value #WINDOW_SIZE}개, 오래된 → 최신
+     */
+    public record Snapshot(long gen, List<Entry> window,
+                           long total, long userCount, long assistantCount, long systemCount) {
+
+        public long count(ChatRole role) {
+            return switch (role) {
+                case USER -> userCount;
+                case ASSISTANT -> assistantCount;
+                case SYSTEM -> systemCount;
+            };
+        }
+
+        /** 같은 id가 이미 윈도우에 있으면(적재가 먼저 담음) 세대만 올린다 */
+        Snapshot append(Entry entry, long newGen) {
+            if (contains(entry.id())) {
+                return new Snapshot(newGen, window, total, userCount, assistantCount, systemCount);
+            }
+            List<Entry> next = new ArrayList<>(Math.min(window.size() + 1, WINDOW_SIZE));
+            int skip = Math.max(0, window.size() + 1 - WINDOW_SIZE);
+            next.addAll(window.subList(skip, window.size()));
+            next.add(entry);
+            return new Snapshot(newGen, List.copyOf(next), total + 1,
+                userCount + (entry.role() == ChatRole.USER ? 1 : 0),
+                assistantCount + (entry.role() == ChatRole.ASSISTANT ? 1 : 0),
+                systemCount + (entry.role() == ChatRole.SYSTEM ? 1 : 0));
+        }
+
+        private boolean contains(String id) {
+            if (id == null) return false;
+            for (Entry e : window) {
+                if (id.equals(e.id())) return true;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * 로그 1건의 컨텍스트용 사전 계산본.
+     *
+     * @param rawContent    USER/SYSTEM 원문 (ASSISTANT는 원본 JSON을 싣지 않는다)
+     * @param scenes        ASSISTANT 정제 씬 — raw 비었거나 파스 실패 시 null
+     * @param fallback      ASSISTANT 정제 결과가 비었을 때의 대체 텍스트 (기존 정제 규칙과 동일)
+     * @param storyContent  V2 히스토리 본문 (hidden이면 raw, 아니면 clean). 히스토리 제외 대상이면 null
+     */
+    public record Entry(String id, ChatRole role, boolean hidden, String rawContent,
+                        List<SanitizedScene> scenes, String fallback, String innerThought,
+                        String storyContent) {
+
+        static Entry from(ObjectMapper objectMapper, ChatLogDocument doc) {
+            String raw = doc.getRawContent();
+            String clean = doc.getCleanContent();
+
+            // V2 규칙: [ACTION:*]이 아닌 hidden 로그는 제외
+            String story = doc.isHidden() ? raw : clean;
+            if (doc.isHidden() && (raw == null || !raw.startsWith("[ACTION:"))) story = null;
+
+            if (doc.getRole() != ChatRole.ASSISTANT) {
+                return new Entry(doc.getId(), doc.getRole(), doc.isHidden(), raw, null, null, null, story);
+            }
+
+            List<SanitizedScene> scenes = null;
+            String fallback = clean != null ? clean : "";
+            if (raw != null && !raw.isBlank()) {
+                try {
+                    scenes = LlmOutputParser.parseSanitizedScenes(objectMapper, raw);
+                } catch (Exception e) {
+                    fallback = clean != null ? clean : raw;
+                }
+            }
+            return new Entry(doc.getId(), ChatRole.ASSISTANT, doc.isHidden(), null, scenes, fallback,
+                doc.getInnerThought(), story);
+        }
+
+        /** V1 히스토리 메시지 — LlmOutputParser.buildSanitizedAssistantContent와 동일 결과 */
+        public OpenAiMessage toChatMessage(String characterName, boolean includeInnerThought) {
+            return switch (role) {
+                case USER -> OpenAiMessage.user(rawContent);
+                case ASSISTANT -> OpenAiMessage.assistant(scenes == null ? fallback
+                    : LlmOutputParser.renderSanitizedAssistant(
+                        scenes, characterName, innerThought, includeInnerThought, fallback));
+                case SYSTEM -> OpenAiMessage.system("[NARRATION] " + rawContent);
+            };
+        }
+
+        /** V2 히스토리 메시지 — 제외 대상(hidden 비액션·빈 본문)이면 null */
+        public OpenAiMessage toStoryMessage() {
+            if (storyContent == null || storyContent.isBlank()) return null;
+            String openAiRole = switch (role) {
+                case USER -> "user";
+                case ASSISTANT -> "assistant";
+                case SYSTEM -> "system";
+            };
+            return new OpenAiMessage(openAiRole, storyContent, null);
+        }
+    }
+
+    public record Stats(long localHits, long redisHits, long mongoLoads, int localRooms) {}
+}
@@ -0,0 +1,181 @@
+package com.spring.aichat.service.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * [Perf] RedisCacheService 앞단 L1 near cache (Caffeine, W-TinyLFU 교체 정책)
+ *
+ * ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+ *  대상 — 조회 빈도가 높고 값이 작은 4개 키 패밀리만
+ * ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+ *  room_owner:    AuthGuard 매 요청 — 생성 후 불변이라 L1 TTL 길게 (사실상 L1 전담)
+ *  character:     영구 캐시 — 10분
+ *  user_profile:  에너지 변동마다 evict — 30초 (pub/sub 유실 대비 상한)
+ *  room_info:     Redis TTL 60초 — L1은 10초
+ *
+ * L1 값은 Redis에 저장된 형태 그대로 (getString 계열은 String, 객체는 코덱 인코딩 byte[]) —
+ * 디코드는 호출측(RedisCacheService)이 수행. 가변 DTO 인스턴스를 노드 전역에서 공유하지 않는다.
+ *
+ * ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+ *  노드 간 무효화 — Redis pub/sub ({@value #INVALIDATION_CHANNEL})
+ * ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+ *  - evict* 호출 노드: 로컬 L1 즉시 제거 + 키 publish → 모든 노드(자신 포함)가 수신 시 제거
+ *  - 조회 miss 후 Redis 값 적재 전 무효화가 끼어들면 적재 포기 (무효화 시퀀스 비교)
+ *    → "옛 값을 읽는 사이 evict 도착 → 옛 값이 L1에 남는" 경합 차단
+ *  - pub/sub 연결 끊김 동안의 메시지는 유실 → 패밀리별 L1 TTL이 최대 지연 상한
+ */
+@Component
+@Slf4j
+public class NearCache implements MessageListener {
+
+    public static final String INVALIDATION_CHANNEL = "near_cache:invalidate";
+
+    /** 키 패밀리별 L1 정책 */
+    private record Family(String prefix, long maxSize, Duration ttl) {}
+
+    private static final List<Family> FAMILIES = List.of(
+        new Family(RedisCacheService.ROOM_OWNER_PREFIX, 100_000, Duration.ofHours(6)),
+        new Family(RedisCacheService.CHARACTER_PREFIX, 2_000, Duration.ofMinutes(10)),
+        new Family(RedisCacheService.USER_PROFILE_PREFIX, 20_000, Duration.ofSeconds(30)),
+        new Family(RedisCacheService.ROOM_INFO_PREFIX, 20_000, Duration.ofSeconds(10))
+    );
+
+    private final StringRedisTemplate redisTemplate;
+    private final boolean enabled;
+    private final Map<String, Cache<String, Object>> caches = new LinkedHashMap<>();
+    private final Map<String, LongAdder> invalidations = new LinkedHashMap<>();
+
+    /** 무효화 수신마다 증가 — miss 적재 경합 판정용 */
+    private final AtomicLong invalidationSeq = new AtomicLong();
+
+    public NearCache(StringRedisTemplate redisTemplate,
+                     @Value("${near-cache.enabled:true}") boolean enabled) {
+        this.redisTemplate = redisTemplate;
+        this.enabled = enabled;
+        for (Family family : FAMILIES) {
+            caches.put(family.prefix(), Caffeine.newBuilder()
+                .maximumSize(family.maxSize())
+                .expireAfterWrite(family.ttl())
+                .recordStats()
+                .build());
+            invalidations.put(family.prefix(), new LongAdder());
+        }
+        log.info("🧊 [NEAR-CACHE] enabled={} | families={}", enabled, caches.keySet());
+    }
+
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+    //  조회 / 적재
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+
+    /** L1 대상 키인지 — 대상이 아니면 호출측이 Redis 직행 */
+    public boolean handles(String key) {
+        return enabled && cacheFor(key) != null;
+    }
+
+    /** L1 조회. null = miss (hit/miss는 패밀리 통계에 기록) */
+    public Object getIfPresent(String key) {
+        Cache<String, Object> cache = cacheFor(key);
+        return cache != null ? cache.getIfPresent(key) : null;
+    }
+
+    /** miss 경로 — Redis 조회 직전에 받아 두고 {@link #putIfUnchanged}에 넘긴다 */
+    public long readMark() {
+        return invalidationSeq.get();
+    }
+
+    /** Redis에서 읽은 값을 L1에 적재 — 그 사이 무효화가 있었으면 포기 */
+    public void putIfUnchanged(String key, Object value, long mark) {
+        Cache<String, Object> cache = cacheFor(key);
+        if (cache == null || value == null) return;
+        cache.put(key, value);
+        // put 이후에 재확인 — 적재와 무효화 수신이 엇갈려도 옛 값이 남지 않는다
+        if (invalidationSeq.get() != mark) {
+            cache.invalidate(key);
+        }
+    }
+
+    /** 이 노드가 방금 Redis에 쓴 값 — 최신이므로 바로 적재 */
+    public void put(String key, Object value) {
+        Cache<String, Object> cache = cacheFor(key);
+        if (cache != null && value != null) cache.put(key, value);
+    }
+
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+    //  무효화
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+
+    /** 로컬 즉시 제거 + 다른 노드 전파. Redis 장애 시 로컬만 (원격은 L1 TTL로 수렴) */
+    public void invalidate(String key) {
+        if (!handles(key)) return;
+        invalidateLocal(key);
+        try {
+            redisTemplate.convertAndSend(INVALIDATION_CHANNEL, key);
+        } catch (Exception e) {
+            log.warn("[NEAR-CACHE] invalidation publish failed | key={} | err={}", key, e.getMessage());
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        invalidateLocal(new String(message.getBody(), StandardCharsets.UTF_8));
+    }
+
+    private void invalidateLocal(String key) {
+        Cache<String, Object> cache = cacheFor(key);
+        if (cache == null) return;
+        invalidationSeq.incrementAndGet();
+        cache.invalidate(key);
+        invalidations.get(prefixOf(key)).increment();
+    }
+
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+    //  통계
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+
+    /** 패밀리(prefix)별 hit/miss/eviction/무효화 */
+    public Map<String, Stats> getStats() {
+        Map<String, Stats> result = new LinkedHashMap<>();
+        caches.forEach((prefix, cache) -> {
+            CacheStats s = cache.stats();
+            result.put(prefix, new Stats(s.hitCount(), s.missCount(), s.evictionCount(),
+                invalidations.get(prefix).sum(), cache.estimatedSize()));
+        });
+        return result;
+    }
+
+    public record Stats(long hits, long misses, long evictions, long invalidations, long size) {
+        public double hitRate() {
+            long total = hits + misses;
+            return total == 0 ? 0.0 : (double) hits / total;
+        }
+    }
+
+    private Cache<String, Object> cacheFor(String key) {
+        String prefix = prefixOf(key);
+        return prefix != null ? caches.get(prefix) : null;
+    }
+
+    private static String prefixOf(String key) {
+        if (key == null) return null;
+        for (Family family : FAMILIES) {
+            if (key.startsWith(family.prefix())) return family.prefix();
+        }
+        return null;
+    }
+}
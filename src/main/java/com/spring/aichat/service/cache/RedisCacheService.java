@@ -1,22 +1,30 @@
 package com.spring.aichat.service.cache;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.time.Duration;
 import java.util.Optional;
 import java.util.concurrent.TimeUnit;
 
+/**
+ * Redis 캐시 파사드.
+ *
+ * [Perf] room_owner / character / user_profile / room_info 패밀리는 {@link NearCache}(L1)를 먼저 본다.
+ * 쓰기는 Redis → L1 순, evict는 Redis 삭제 → L1 무효화 + pub/sub 전파 순.
+ * [Perf] 객체 값(put/get)은 {@link RedisPayloadCodec}(Smile+LZ4)로 저장 — 레거시 JSON 값도 그대로 읽힌다.
+ */
 @Service
 @Slf4j
 @RequiredArgsConstructor
 public class RedisCacheService {
 
     private final StringRedisTemplate redisTemplate;
-    private final ObjectMapper objectMapper;
+    private final RedisPayloadCodec codec;
+    private final NearCache nearCache;
 
     public static final String ROOM_OWNER_PREFIX = "room_owner:";
     public static final String CHARACTER_PREFIX = "character:";
@@ -24,28 +32,28 @@ public class RedisCacheService {
     public static final String ROOM_INFO_PREFIX = "room_info:";
 
     public <T> void put(String key, T value, long ttl, TimeUnit unit) {
-        try {
-            String json = objectMapper.writeValueAsString(value);
-            redisTemplate.opsForValue().set(key, json, ttl, unit);
-        } catch (JsonProcessingException e) {
-            log.warn("Redis cache put failed: key={}", key, e);
-        }
+        putEncoded(key, value, Duration.ofMillis(unit.toMillis(ttl)));
     }
 
     public <T> void putPermanent(String key, T value) {
+        putEncoded(key, value, null);
+    }
+
+    private void putEncoded(String key, Object value, Duration ttl) {
         try {
-            String json = objectMapper.writeValueAsString(value);
-            redisTemplate.opsForValue().set(key, json);
-        } catch (JsonProcessingException e) {
+            byte[] data = codec.encode(RedisPayloadCodec.familyOf(key), value);
+            codec.writeRaw(key, data, ttl);
+            nearCache.put(key, data);
+        } catch (IOException e) {
             log.warn("Redis cache put failed: key={}", key, e);
         }
     }
 
     public <T> Optional<T> get(String key, Class<T> type) {
         try {
-            String json = redisTemplate.opsForValue().get(key);
-            if (json == null) return Optional.empty();
-            return Optional.of(objectMapper.readValue(json, type));
+            byte[] data = readBytesThrough(key);
+            if (data == null) return Optional.empty();
+            return Optional.of(codec.decode(RedisPayloadCodec.familyOf(key), data, type));
         } catch (Exception e) {
             log.warn("Redis cache get failed: key={}", key, e);
             return Optional.empty();
@@ -54,14 +62,42 @@ public class RedisCacheService {
 
     public void putString(String key, String value) {
         redisTemplate.opsForValue().set(key, value);
+        nearCache.put(key, value);
     }
 
     public Optional<String> getString(String key) {
-        return Optional.ofNullable(redisTemplate.opsForValue().get(key));
+        return Optional.ofNullable(readThrough(key));
     }
 
     public void evict(String key) {
         redisTemplate.delete(key);
+        nearCache.invalidate(key);
+    }
+
+    /** L1 대상 키면 L1 → Redis 순, 아니면 Redis 직행 */
+    private String readThrough(String key) {
+        if (!nearCache.handles(key)) {
+            return redisTemplate.opsForValue().get(key);
+        }
+        if (nearCache.getIfPresent(key) instanceof String cached) return cached;
+
+        long mark = nearCache.readMark();
+        String value = redisTemplate.opsForValue().get(key);
+        nearCache.putIfUnchanged(key, value, mark);
+        return value;
+    }
+
+    /** 객체 값용 — L1에는 인코딩 바이트를 그대로 둔다 */
+    private byte[] readBytesThrough(String key) {
+        if (!nearCache.handles(key)) {
+            return codec.readRaw(key);
+        }
+        if (nearCache.getIfPresent(key) instanceof byte[] cached) return cached;
+
+        long mark = nearCache.readMark();
+        byte[] data = codec.readRaw(key);
+        nearCache.putIfUnchanged(key, data, mark);
+        return data;
     }
 
     // Phase 5: TTL-based string storage for verification/payment sessions
@@ -0,0 +1,275 @@
+package com.spring.aichat.service.cache;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4FastDecompressor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * [Perf] Redis 객체 페이로드 코덱 — Smile(바이너리 JSON) + 임계치 이상 LZ4
+ *
+ * ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+ *  포맷 (첫 바이트)
+ * ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+ *  0x01  Smile
+ *  0x02  LZ4(Smile) — [0x02][원본 길이 4B][LZ4 블록]
+ *  그 외  레거시 JSON 텍스트 ('{' / '[' / '"' ...) — 롤아웃 전 키 그대로 읽힘
+ *
+ * Smile은 Spring ObjectMapper 설정(모듈·어노테이션·unknown 무시)을 그대로 복사해 쓰므로
+ * DTO 변경 없이 JSON과 같은 매핑. 필드명 back-reference로 반복 키(scenes[].speaker 등)가 줄고,
+ * 한글 본문은 LZ4로 압축된다 (기본 512B 이상, 압축이 이득일 때만).
+ *
+ * 쓰기 기본값은 json — 롤링 배포 중 구 노드가 바이너리를 못 읽으면 캐시 miss로 떨어지고, 극장 배치는 miss 경로에서
+ * 에너지를 다시 차감하고 같은 batchId로 다른 배치를 생성한다. 전 노드 교체 후 {@code redis.codec.format=smile}로
+ * 명시 전환 (읽기는 두 포맷 모두 항상 지원).
+ *
+ * 키 패밀리별 통계: 인코드/디코드 횟수·시간, 저장 바이트, 레거시 JSON 읽기 수,
+ * 샘플링(1/N)으로 같은 값을 JSON으로도 직렬화해 절감률 추정.
+ * [Metrics] 패밀리가 처음 보일 때 Micrometer에 바인딩 — {@code redis.codec.time{family, op}},
+ * {@code redis.codec.stored.bytes}, {@code redis.codec.legacy_json.reads}, {@code redis.codec.saved.ratio}.
+ *
+ * Redis IO는 StringRedisTemplate의 커넥션에서 raw byte 명령으로 수행 (별도 템플릿 빈 불필요).
+ */
+@Component
+@Slf4j
+public class RedisPayloadCodec implements MeterBinder {
+
+    static final byte FORMAT_SMILE = 0x01;
+    static final byte FORMAT_SMILE_LZ4 = 0x02;
+
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper jsonMapper;
+    private final ObjectMapper smileMapper;
+    private final boolean binary;
+    private final int lz4Threshold;
+    private final int sampleEvery;
+
+    private final LZ4Compressor compressor = LZ4Factory.fastestInstance().fastCompressor();
+    private final LZ4FastDecompressor decompressor = LZ4Factory.fastestInstance().fastDecompressor();
+
+    private final Map<String, FamilyCounters> families = new ConcurrentHashMap<>();
+    /** bindTo 이후 새로 보인 패밀리도 바로 등록 */
+    private volatile MeterRegistry registry;
+
+    public RedisPayloadCodec(StringRedisTemplate redisTemplate,
+                             ObjectMapper objectMapper,
+                             @Value("${redis.codec.format:json}") String format,
+                             @Value("${redis.codec.lz4-threshold-bytes:512}") int lz4Threshold,
+                             @Value("${redis.codec.sample-every:64}") int sampleEvery) {
+        this.redisTemplate = redisTemplate;
+        this.jsonMapper = objectMapper;
+        this.smileMapper = objectMapper.copyWith(new SmileFactory());
+        this.binary = !"json".equalsIgnoreCase(format);
+        this.lz4Threshold = lz4Threshold;
+        this.sampleEvery = Math.max(1, sampleEvery);
+        log.info("📦 [REDIS-CODEC] write format={} | lz4 threshold={}B", binary ? "smile" : "json", lz4Threshold);
+    }
+
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+    //  Redis IO
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+
+    /** @param ttl null이면 만료 없음 */
+    public void write(String family, String key, Object value, Duration ttl) throws IOException {
+        writeRaw(key, encode(family, value), ttl);
+    }
+
+    public <T> T read(String family, String key, Class<T> type) throws IOException {
+        byte[] data = readRaw(key);
+        return data != null ? decode(family, data, type) : null;
+    }
+
+    public <T> T read(String family, String key, TypeReference<T> type) throws IOException {
+        byte[] data = readRaw(key);
+        return data != null ? decode(family, data, jsonMapper.getTypeFactory().constructType(type)) : null;
+    }
+
+    public void writeRaw(String key, byte[] data, Duration ttl) {
+        byte[] rawKey = key.getBytes(StandardCharsets.UTF_8);
+        redisTemplate.execute((RedisCallback<Boolean>) connection -> ttl == null
+            ? connection.stringCommands().set(rawKey, data)
+            : connection.stringCommands().set(rawKey, data, Expiration.from(ttl),
+                RedisStringCommands.SetOption.upsert()));
+    }
+
+    public byte[] readRaw(String key) {
+        byte[] rawKey = key.getBytes(StandardCharsets.UTF_8);
+        return redisTemplate.execute((RedisCallback<byte[]>) connection -> connection.stringCommands().get(rawKey));
+    }
+
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+    //  인코드 / 디코드
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+
+    public byte[] encode(String family, Object value) throws IOException {
+        FamilyCounters counters = counters(family);
+        long start = System.nanoTime();
+
+        byte[] encoded;
+        if (!binary) {
+            encoded = jsonMapper.writeValueAsBytes(value);
+        } else {
+            byte[] smile = smileMapper.writeValueAsBytes(value);
+            encoded = smile.length >= lz4Threshold ? compressOrFrame(smile) : frame(FORMAT_SMILE, smile);
+        }
+
+        counters.encodeNanos.add(System.nanoTime() - start);
+        counters.encodes.increment();
+        counters.storedBytes.add(encoded.length);
+
+        // 절감률 추정 — 1/N 샘플만 JSON으로 재직렬화 (핫패스 비용 제한)
+        if (binary && ThreadLocalRandom.current().nextInt(sampleEvery) == 0) {
+            counters.sampledJsonBytes.add(jsonMapper.writeValueAsBytes(value).length);
+            counters.sampledStoredBytes.add(encoded.length);
+        }
+        return encoded;
+    }
+
+    public <T> T decode(String family, byte[] data, Class<T> type) throws IOException {
+        return decode(family, data, jsonMapper.getTypeFactory().constructType(type));
+    }
+
+    private <T> T decode(String family, byte[] data, JavaType type) throws IOException {
+        FamilyCounters counters = counters(family);
+        long start = System.nanoTime();
+        try {
+            if (data.length > 0 && data[0] == FORMAT_SMILE) {
+                return smileMapper.readValue(data, 1, data.length - 1, type);
+            }
+            if (data.length > 4 && data[0] == FORMAT_SMILE_LZ4) {
+                int originalLength = ByteBuffer.wrap(data, 1, 4).getInt();
+                byte[] smile = decompressor.decompress(data, 5, originalLength);
+                return smileMapper.readValue(smile, type);
+            }
+            counters.legacyJsonReads.increment();
+            return jsonMapper.readValue(data, type);
+        } finally {
+            counters.decodeNanos.add(System.nanoTime() - start);
+            counters.decodes.increment();
+        }
+    }
+
+    private byte[] compressOrFrame(byte[] smile) {
+        byte[] buffer = new byte[5 + compressor.maxCompressedLength(smile.length)];
+        int compressedLength = compressor.compress(smile, 0, smile.length, buffer, 5);
+        if (compressedLength + 4 >= smile.length) {
+            return frame(FORMAT_SMILE, smile); // 압축 이득 없음 (짧은 고엔트로피 본문)
+        }
+        buffer[0] = FORMAT_SMILE_LZ4;
+        ByteBuffer.wrap(buffer, 1, 4).putInt(smile.length);
+        byte[] out = new byte[5 + compressedLength];
+        System.arraycopy(buffer, 0, out, 0, out.length);
+        return out;
+    }
+
+    private static byte[] frame(byte format, byte[] body) {
+        byte[] out = new byte[body.length + 1];
+        out[0] = format;
+        System.arraycopy(body, 0, out, 1, body.length);
+        return out;
+    }
+
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+    //  통계
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+
+    /** 키 패밀리 — 첫 ':' 앞 (예: user_profile:alice → user_profile) */
+    public static String familyOf(String key) {
+        int idx = key.indexOf(':');
+        return idx > 0 ? key.substring(0, idx) : key;
+    }
+
+    public Map<String, Stats> getStats() {
+        Map<String, Stats> result = new TreeMap<>();
+        families.forEach((family, c) -> result.put(family, c.snapshot()));
+        return result;
+    }
+
+    /**
+     * @param savedRatio 샘플 기준 JSON 대비 절감률 (0.6 = 60% 감소). 샘플 없으면 0
+     */
+    public record Stats(long encodes, long decodes, long legacyJsonReads, long storedBytes,
+                        double savedRatio, double avgEncodeMicros, double avgDecodeMicros) {}
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        this.registry = registry;
+        families.forEach((family, c) -> register(registry, family, c));
+    }
+
+    private FamilyCounters counters(String family) {
+        FamilyCounters existing = families.get(family);
+        if (existing != null) return existing;
+        FamilyCounters created = new FamilyCounters();
+        FamilyCounters raced = families.putIfAbsent(family, created);
+        if (raced != null) return raced;
+        MeterRegistry r = registry;
+        if (r != null) register(r, family, created);
+        return created;
+    }
+
+    /** 같은 id 재등록은 기존 미터를 돌려주므로 bindTo와 신규 패밀리 등록이 겹쳐도 안전 */
+    private static void register(MeterRegistry registry, String family, FamilyCounters c) {
+        FunctionTimer.builder("redis.codec.time", c, x -> x.encodes.sum(), x -> x.encodeNanos.sum(), TimeUnit.NANOSECONDS)
+            .description("Redis payload serialization (encode) / deserialization (decode)")
+            .tags("family", family, "op", "encode").register(registry);
+        FunctionTimer.builder("redis.codec.time", c, x -> x.decodes.sum(), x -> x.decodeNanos.sum(), TimeUnit.NANOSECONDS)
+            .description("Redis payload serialization (encode) / deserialization (decode)")
+            .tags("family", family, "op", "decode").register(registry);
+        FunctionCounter.builder("redis.codec.stored.bytes", c, x -> x.storedBytes.sum())
+            .description("encoded bytes written to Redis")
+            .baseUnit("bytes").tag("family", family).register(registry);
+        FunctionCounter.builder("redis.codec.legacy_json.reads", c, x -> x.legacyJsonReads.sum())
+            .tag("family", family).register(registry);
+        Gauge.builder("redis.codec.saved.ratio", c, x -> x.snapshot().savedRatio())
+            .description("sampled size reduction vs JSON (0.6 = 60% smaller)")
+            .tag("family", family).register(registry);
+    }
+
+    private static final class FamilyCounters {
+        final LongAdder encodes = new LongAdder();
+        final LongAdder decodes = new LongAdder();
+        final LongAdder legacyJsonReads = new LongAdder();
+        final LongAdder storedBytes = new LongAdder();
+        final LongAdder sampledJsonBytes = new LongAdder();
+        final LongAdder sampledStoredBytes = new LongAdder();
+        final LongAdder encodeNanos = new LongAdder();
+        final LongAdder decodeNanos = new LongAdder();
+
+        Stats snapshot() {
+            long enc = encodes.sum();
+            long dec = decodes.sum();
+            long json = sampledJsonBytes.sum();
+            double saved = json == 0 ? 0.0 : 1.0 - (double) sampledStoredBytes.sum() / json;
+            return new Stats(enc, dec, legacyJsonReads.sum(), storedBytes.sum(), saved,
+                enc == 0 ? 0.0 : encodeNanos.sum() / 1_000.0 / enc,
+                dec == 0 ? 0.0 : decodeNanos.sum() / 1_000.0 / dec);
+        }
+    }
+}
@@ -11,6 +11,7 @@ import com.spring.aichat.domain.world.World;
 import com.spring.aichat.external.FalAiClient;
 import com.spring.aichat.external.ModelsLabClient;
 import com.spring.aichat.service.cache.RedisCacheService;
+import com.spring.aichat.service.metrics.ChatMetrics;
 import com.spring.aichat.service.prompt.BackgroundPromptAssembler;
 import com.spring.aichat.service.storage.S3StorageService;
 import lombok.RequiredArgsConstructor;
@@ -52,6 +53,7 @@ public class BackgroundGenerationService {
     private final CharacterRepository characterRepository;
     private final UgcWorldRepository ugcWorldRepository;
     private final UgcWorldLocationRepository ugcWorldLocationRepository;
+    private final ChatMetrics chatMetrics;
 
     private static final String REDIS_BG_PREFIX = "bg:";
 
@@ -83,6 +85,7 @@ public class BackgroundGenerationService {
         String ugcWorldUrl = resolveUgcWorldBackground(characterId, canonicalKey, locationName);
         if (ugcWorldUrl != null) {
             log.info("[BG] UGC world location HIT: ckey={} → {}", canonicalKey, ugcWorldUrl);
+            chatMetrics.countBackgroundResolve("ugc");
             return BackgroundResult.hit(ugcWorldUrl);
         }
 
@@ -93,6 +96,7 @@ public class BackgroundGenerationService {
         String cachedUrl = cacheService.getBackgroundCache(redisKey);
         if (cachedUrl != null) {
             log.info("[BG] Redis cache HIT: ckey={} → {}", canonicalKey, cachedUrl);
+            chatMetrics.countBackgroundResolve("redis");
             return BackgroundResult.hit(cachedUrl);
         }
 
@@ -104,11 +108,13 @@ public class BackgroundGenerationService {
             backgroundCacheRepository.save(cache);
             cacheService.setBackgroundCache(redisKey, cache.getImageUrl());
             log.info("[BG] DB cache HIT: ckey={} → {}", canonicalKey, cache.getImageUrl());
+            chatMetrics.countBackgroundResolve("db");
             return BackgroundResult.hit(cache.getImageUrl());
         }
 
         // Layer 3: Cache MISS
         log.info("[BG] Cache MISS: ckey={}_{} → generating...", canonicalKey, timeOfDay);
+        chatMetrics.countBackgroundResolve("miss");
         return BackgroundResult.generating(cacheHash, locationName, canonicalKey, timeOfDay);
     }
 
@@ -181,25 +187,31 @@ public class BackgroundGenerationService {
             return CompletableFuture.completedFuture(null);
         }
 
+        long genStart = System.currentTimeMillis();
         try {
             // race-condition 차단: 락 획득 직후 영구 캐시 재확인
             String redisKey = REDIS_BG_PREFIX + cacheHash;
             String cached = cacheService.getBackgroundCache(redisKey);
             if (cached != null) {
                 log.info("[BG] Skipped — became cached during lock acquisition: {}", cached);
+                chatMetrics.recordBackgroundGeneration("skipped", System.currentTimeMillis() - genStart);
                 return CompletableFuture.completedFuture(cached);
             }
             if (backgroundCacheRepository.findByCacheHash(cacheHash).isPresent()) {
                 log.info("[BG] Skipped — DB has it: hash={}", cacheHash);
+                chatMetrics.recordBackgroundGeneration("skipped", System.currentTimeMillis() - genStart);
                 return CompletableFuture.completedFuture(null);
             }
 
             String imageUrl = generateBackgroundSync(
                 locationName, canonicalKey, locationDescription, timeOfDay, characterId, world, secretMode
             );
+            chatMetrics.recordBackgroundGeneration(imageUrl != null ? "ok" : "failed",
+                System.currentTimeMillis() - genStart);
             return CompletableFuture.completedFuture(imageUrl);
         } catch (Exception e) {
             log.error("[BG] Async generation failed: ckey={}", canonicalKey, e);
+            chatMetrics.recordBackgroundGeneration("failed", System.currentTimeMillis() - genStart);
             return CompletableFuture.completedFuture(null);
         } finally {
             cacheService.releaseBgGenerationLock(cacheHash);
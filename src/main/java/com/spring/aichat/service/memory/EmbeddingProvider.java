@@ -0,0 +1,23 @@
+package com.spring.aichat.service.memory;
+
+/**
+ * 장기 기억 임베딩 제공자 — {@code memory.vector.embedding} 으로 선택
+ *
+ * <ul>
+ *   <li>{@code openrouter} (기본) — {@link com.spring.aichat.external.EmbeddingClient}, /embeddings API</li>
+ *   <li>{@code hashing} — {@link HashingEmbeddingProvider}, 네트워크 없는 결정적 로컬 대체 (테스트 · 벤치마크용, 명시해야 뜬다)</li>
+ * </ul>
+ *
+ * 제공자가 바뀌면 기존 벡터와 비교할 수 없으므로 {@link #id()}가 인덱스 헤더에 기록되고,
+ * 불일치 시 방 인덱스는 RDB 요약으로부터 다시 만들어진다.
+ */
+public interface EmbeddingProvider {
+
+    /** @return 길이 {@link #dimensions()}의 벡터 (정규화 여부 무관 — 인덱스가 정규화) */
+    float[] embed(String text);
+
+    int dimensions();
+
+    /** 제공자 + 모델 + 차원 식별자 */
+    String id();
+}
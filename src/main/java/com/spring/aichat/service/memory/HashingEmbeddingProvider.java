@@ -0,0 +1,86 @@
+package com.spring.aichat.service.memory;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * [Perf] 결정적 로컬 임베딩 — feature hashing (signed), 외부 호출 0회
+ *
+ * ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+ *  특징
+ * ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+ *  - 단어 unigram (공백·구두점 분리, 소문자)
+ *  - 한글 음절 bigram — 조사가 붙어도 어간이 겹친다 ("카페에서" / "카페를" → "카페")
+ *  - 각 특징을 FNV-1a 64bit로 해시, 하위 비트 = 차원, 상위 1비트 = 부호 (충돌 상쇄)
+ *
+ * 의미 임베딩이 아니라 어휘 겹침 기반이다. 요약문은 같은 고유명사·장소·사건어가 반복되므로
+ * "그 카페 기억나?" 같은 질의에는 어느 정도 맞지만 의미 검색은 아니다 — 테스트 · 벤치마크용 결정적 대체.
+ * {@code memory.vector.embedding=hashing}으로 명시했을 때만 빈으로 뜬다 (운영 기본은 {@code openrouter}).
+ */
+@Component
+@ConditionalOnProperty(name = "memory.vector.embedding", havingValue = "hashing")
+public class HashingEmbeddingProvider implements EmbeddingProvider {
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    private static final float BIGRAM_WEIGHT = 0.7f;
+
+    private final int dimensions;
+
+    public HashingEmbeddingProvider(@Value("${memory.vector.hashing.dimensions:384}") int dimensions) {
+        this.dimensions = dimensions;
+    }
+
+    @Override
+    public float[] embed(String text) {
+        float[] v = new float[dimensions];
+        if (text == null || text.isEmpty()) return v;
+
+        String lower = text.toLowerCase(Locale.ROOT);
+        int n = lower.length();
+        int i = 0;
+        while (i < n) {
+            while (i < n && !Character.isLetterOrDigit(lower.charAt(i))) i++;
+            int start = i;
+            while (i < n && Character.isLetterOrDigit(lower.charAt(i))) i++;
+            if (i == start) continue;
+
+            String word = lower.substring(start, i);
+            accumulate(v, word, 1f);
+            for (int j = start; j + 1 < i; j++) {
+                if (isHangul(lower.charAt(j)) && isHangul(lower.charAt(j + 1))) {
+                    accumulate(v, lower.substring(j, j + 2), BIGRAM_WEIGHT);
+                }
+            }
+        }
+        return v;
+    }
+
+    @Override
+    public int dimensions() {
+        return dimensions;
+    }
+
+    @Override
+    public String id() {
+        return "hashing-fnv1a-v1:" + dimensions;
+    }
+
+    private void accumulate(float[] v, String feature, float weight) {
+        long h = FNV_OFFSET;
+        for (byte b : feature.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b & 0xff;
+            h *= FNV_PRIME;
+        }
+        int slot = (int) Long.remainderUnsigned(h & 0x7fffffffffffffffL, dimensions);
+        v[slot] += h < 0 ? -weight : weight;
+    }
+
+    private static boolean isHangul(char c) {
+        return c >= 0xAC00 && c <= 0xD7A3;
+    }
+}
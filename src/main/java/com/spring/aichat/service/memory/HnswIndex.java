@@ -0,0 +1,798 @@
+package com.spring.aichat.service.memory;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * [Perf] HNSW 근사 최근접 인덱스 — float32 벡터·0층 그래프는 memory-mapped 파일(off-heap), 상위 층만 힙
+ *
+ * ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+ *  파일 레이아웃 ({@code *.hnsw}, little-endian)
+ * ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+ *  header(64B) : magic, version, dim, M, count, capacity, entryPoint, maxLevel, providerHash, dirty
+ *  vectors     : capacity × dim × f32   (L2 정규화 — 내적 = 코사인)
+ *  ids         : capacity × i64         (외부 id, 예: MemorySummary.id)
+ *  levels      : capacity × i8          (노드 최고 층, 0x80 = tombstone)
+ *  links0      : capacity × (1 + 2M) × i32   ([개수, 이웃...])
+ *
+ * 상위 층(노드의 ~1/M만 존재)은 {@code *.upper} 사이드카에 {@link #flush()} 시점 기록.
+ * 사이드카의 노드 수가 본 파일과 다르면(flush 전 크래시) 벡터는 살아 있으므로 그래프만 재구축한다.
+ *
+ * 헤더 count는 flush 때만 기록되지만 0층 링크는 mmap에 바로 쓰인다 — flush 없이 죽으면
+ * count 이내 노드가 count 밖 노드를 가리킬 수 있다. 그래서 마지막 flush 이후 첫 변경 때 dirty=1을 쓰고,
+ * flush가 본문을 디스크에 내린 뒤에야 0으로 되돌린다. 열 때 dirty면 count 이내 벡터로 그래프를 다시 만든다
+ * (count 밖 추가분은 버려지고 원본 동기화 때 다시 들어온다).
+ *
+ * 삭제는 tombstone이라 검색 폭이 tombstone 수만큼 늘어난다 — 비율이 {@value #COMPACT_TOMBSTONE_RATIO}를 넘으면
+ * 살아 있는 노드만으로 재구축해 회수한다.
+ *
+ * 용량이 차면 2배 파일로 옮겨 다시 매핑 (영역 오프셋이 용량에 의존).
+ * path가 null이면 direct buffer(영속화 없음) — 테스트·벤치용.
+ *
+ * 동시성: 검색은 read lock, 추가/삭제/flush는 write lock. close 이후 호출은 {@link IllegalStateException}.
+ */
+public final class HnswIndex implements Closeable {
+
+    private static final int MAGIC = 0x484E5357; // "HNSW"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 64;
+    private static final byte TOMBSTONE = (byte) 0x80;
+    private static final int DIRTY_OFFSET = 36;
+    /** tombstone / count 가 이 비율을 넘으면 재구축 */
+    static final double COMPACT_TOMBSTONE_RATIO = 0.3;
+
+    public record Hit(long id, float score) {}
+
+    private final Path path;
+    private final int dim;
+    private final int m;
+    private final int m0;
+    private final int efConstruction;
+    private final int providerHash;
+    private final double levelMult;
+    private final Random random;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private FileChannel channel;
+    private ByteBuffer buffer;
+    private FloatBuffer floats;   // buffer 전체의 float 뷰 (인덱스 = 바이트 오프셋 / 4)
+    private IntBuffer ints;       // 〃 int 뷰
+    private int capacity;
+    private int count;
+    private int live;
+    private int entryPoint = -1;
+    private int maxLevel = -1;
+    private long vectorsOff;
+    private long idsOff;
+    private long levelsOff;
+    private long links0Off;
+    private final List<int[][]> upper = new ArrayList<>();
+    private final Map<Long, Integer> nodeById = new HashMap<>();
+    /** 마지막 flush 이후 변경 있음 — 헤더에도 같은 값 */
+    private boolean dirty;
+    private int compactions;
+    private boolean closed;
+
+    /** 방문 표시 — 탐색마다 BitSet을 새로 만들지 않고 스레드별 배열을 세대 번호로 재사용 */
+    private static final ThreadLocal<Visited> VISITED = ThreadLocal.withInitial(Visited::new);
+
+    private static final class Visited {
+        int[] marks = new int[0];
+        int epoch;
+
+        Visited reset(int size) {
+            if (marks.length < size) {
+                marks = new int[Math.max(size, marks.length * 2)];
+                epoch = 0;
+            }
+            if (++epoch == 0) {
+                Arrays.fill(marks, 0);
+                epoch = 1;
+            }
+            return this;
+        }
+
+        boolean visit(int node) {
+            if (marks[node] == epoch) return false;
+            marks[node] = epoch;
+            return true;
+        }
+    }
+
+    private HnswIndex(Path path, int dim, int m, int efConstruction, int providerHash, long seed) {
+        this.path = path;
+        this.dim = dim;
+        this.m = m;
+        this.m0 = 2 * m;
+        this.efConstruction = efConstruction;
+        this.providerHash = providerHash;
+        this.levelMult = 1.0 / Math.log(m);
+        this.random = new Random(seed);
+    }
+
+    /** 메모리 전용 인덱스 (영속화 없음) */
+    public static HnswIndex inMemory(int dim, int m, int efConstruction, int initialCapacity) {
+        HnswIndex index = new HnswIndex(null, dim, m, efConstruction, 0, 42L);
+        index.allocate(Math.max(16, initialCapacity));
+        return index;
+    }
+
+    /**
+     * 파일 인덱스 열기 — 없거나 차원·임베딩 제공자가 다르면 새로 만든다.
+     *
+     * @param providerHash 임베딩 제공자 식별 해시 (바뀌면 기존 벡터는 의미가 없으므로 폐기)
+     */
+    public static HnswIndex open(Path path, int dim, int m, int efConstruction, int providerHash) throws IOException {
+        HnswIndex index = new HnswIndex(path, dim, m, efConstruction, providerHash, path.hashCode());
+        if (Files.exists(path) && index.load()) {
+            return index;
+        }
+        Files.deleteIfExists(upperPath(path));
+        Files.deleteIfExists(path);
+        index.allocate(64);
+        return index;
+    }
+
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+    //  공개 API
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+
+    public int dimensions() {
+        return dim;
+    }
+
+    /** tombstone 제외 노드 수 */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return live;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean contains(long id) {
+        lock.readLock().lock();
+        try {
+            Integer node = nodeById.get(id);
+            return node != null && !isDeleted(node);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** 살아 있는 외부 id 목록 */
+    public Set<Long> ids() {
+        lock.readLock().lock();
+        try {
+            Set<Long> ids = new HashSet<>();
+            nodeById.forEach((id, node) -> { if (!isDeleted(node)) ids.add(id); });
+            return ids;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** 추가 — 같은 id가 이미 있으면 무시 */
+    public void add(long id, float[] vector) {
+        if (vector.length != dim) {
+            throw new IllegalArgumentException("dimension mismatch: " + vector.length + " != " + dim);
+        }
+        float[] q = normalize(vector);
+        lock.writeLock().lock();
+        try {
+            ensureOpen();
+            Integer existing = nodeById.get(id);
+            if (existing != null && !isDeleted(existing)) return;
+            markDirty();
+            if (count == capacity) grow();
+            insert(id, q);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** 삭제 — tombstone (그래프 연결은 유지해 탐색 경로 보존, 결과에서만 제외) */
+    public boolean remove(long id) {
+        lock.writeLock().lock();
+        try {
+            ensureOpen();
+            Integer node = nodeById.remove(id);
+            if (node == null || isDeleted(node)) return false;
+            markDirty();
+            buffer.put((int) (levelsOff + node), (byte) (levelOf(node) | TOMBSTONE));
+            live--;
+            if (count - live > count * COMPACT_TOMBSTONE_RATIO) {
+                rebuildGraph();
+                compactions++;
+            }
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 코사인 유사도 상위 k개 (높은 순)
+     *
+     * @param ef 탐색 후보 폭 (k 이상, 클수록 recall↑ 지연↑)
+     */
+    public List<Hit> search(float[] vector, int k, int ef) {
+        if (vector.length != dim) {
+            throw new IllegalArgumentException("dimension mismatch: " + vector.length + " != " + dim);
+        }
+        float[] q = normalize(vector);
+        lock.readLock().lock();
+        try {
+            ensureOpen();
+            if (entryPoint < 0 || live == 0) return List.of();
+            int ep = entryPoint;
+            for (int level = maxLevel; level > 0; level--) {
+                ep = greedy(q, ep, level);
+            }
+            int width = Math.max(ef, k) + (count - live);  // tombstone 몫만큼 여유 (비율 상한 — remove에서 압축)
+            PriorityQueue<long[]> found = searchLayer(q, ep, Math.min(width, count), 0);
+
+            List<long[]> sorted = new ArrayList<>(found);
+            sorted.sort(Comparator.comparingDouble(e -> Float.intBitsToFloat((int) e[1])));
+            List<Hit> hits = new ArrayList<>(Math.min(k, sorted.size()));
+            for (long[] e : sorted) {
+                int node = (int) e[0];
+                if (isDeleted(node)) continue;
+                hits.add(new Hit(idOf(node), 1f - Float.intBitsToFloat((int) e[1])));
+                if (hits.size() == k) break;
+            }
+            return hits;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** tombstone 포함 전체 노드 수 (슬롯 사용량) */
+    int slots() {
+        lock.readLock().lock();
+        try {
+            return count;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** tombstone 비율 초과로 재구축한 횟수 */
+    int compactions() {
+        lock.readLock().lock();
+        try {
+            return compactions;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** 헤더·상위 층 사이드카를 디스크에 반영 */
+    public void flush() throws IOException {
+        if (path == null) return;
+        lock.writeLock().lock();
+        try {
+            ensureOpen();
+            persist();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            if (closed) return;
+            if (path != null) {
+                persist();
+                channel.close();
+            }
+            closed = true;
+            buffer = null;
+            floats = null;
+            ints = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** 파일 삭제 (닫은 뒤 호출) */
+    public static void delete(Path path) throws IOException {
+        Files.deleteIfExists(upperPath(path));
+        Files.deleteIfExists(path);
+    }
+
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+    //  HNSW
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+
+    private void insert(long id, float[] q) {
+        int node = count;
+        writeVector(node, q);
+        buffer.putLong((int) (idsOff + (long) node * 8), id);
+        int level = (int) (-Math.log(1.0 - random.nextDouble()) * levelMult);
+        buffer.put((int) (levelsOff + node), (byte) level);
+        setLinks(node, 0, new int[0]);
+        upper.add(level > 0 ? new int[level][] : null);
+        for (int l = 1; l <= level; l++) upper.get(node)[l - 1] = new int[]{0};
+        count++;
+        live++;
+        nodeById.put(id, node);
+
+        if (entryPoint < 0) {
+            entryPoint = node;
+            maxLevel = level;
+            return;
+        }
+
+        int ep = entryPoint;
+        for (int l = maxLevel; l > level; l--) {
+            ep = greedy(q, ep, l);
+        }
+        for (int l = Math.min(level, maxLevel); l >= 0; l--) {
+            PriorityQueue<long[]> candidates = searchLayer(q, ep, efConstruction, l);
+            int maxLinks = l == 0 ? m0 : m;
+            int[] selected = selectNeighbors(candidates, m);
+            setLinks(node, l, selected);
+            for (int neighbor : selected) {
+                connect(neighbor, node, l, maxLinks);
+            }
+            ep = closest(candidates);
+        }
+        if (level > maxLevel) {
+            maxLevel = level;
+            entryPoint = node;
+        }
+    }
+
+    /** neighbor의 l층 이웃에 node 추가 — 넘치면 휴리스틱으로 다시 고른다 */
+    private void connect(int neighbor, int node, int level, int maxLinks) {
+        int[] links = links(neighbor, level);
+        if (links.length < maxLinks) {
+            int[] grown = Arrays.copyOf(links, links.length + 1);
+            grown[links.length] = node;
+            setLinks(neighbor, level, grown);
+            return;
+        }
+        float[] base = vector(neighbor);
+        PriorityQueue<long[]> pool = new PriorityQueue<>(maxLinks + 1, MAX_FIRST);
+        for (int link : links) pool.add(entry(link, distance(base, link)));
+        pool.add(entry(node, distance(base, node)));
+        setLinks(neighbor, level, selectNeighbors(pool, maxLinks));
+    }
+
+    /**
+     * 이웃 선택 휴리스틱 (Malkov & Yashunin Alg.4) — 이미 고른 이웃보다 후보에 더 가까운 것만 채택,
+     * 모자라면 버린 후보로 채운다. 군집 사이 다리 간선이 남아 recall이 단순 top-M보다 높다.
+     */
+    private int[] selectNeighbors(PriorityQueue<long[]> candidates, int limit) {
+        List<long[]> sorted = new ArrayList<>(candidates);
+        sorted.sort(Comparator.comparingDouble(e -> Float.intBitsToFloat((int) e[1])));
+        int[] selected = new int[Math.min(limit, sorted.size())];
+        int n = 0;
+        List<long[]> pruned = new ArrayList<>();
+        for (long[] c : sorted) {
+            if (n == selected.length) break;
+            int node = (int) c[0];
+            float dq = Float.intBitsToFloat((int) c[1]);
+            float[] cv = vector(node);
+            boolean good = true;
+            for (int i = 0; i < n; i++) {
+                if (distance(cv, selected[i]) < dq) { good = false; break; }
+            }
+            if (good) selected[n++] = node;
+            else pruned.add(c);
+        }
+        for (int i = 0; i < pruned.size() && n < selected.length; i++) {
+            selected[n++] = (int) pruned.get(i)[0];
+        }
+        return n == selected.length ? selected : Arrays.copyOf(selected, n);
+    }
+
+    private int greedy(float[] q, int ep, int level) {
+        int current = ep;
+        float best = distance(q, current);
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int link : links(current, level)) {
+                float d = distance(q, link);
+                if (d < best) {
+                    best = d;
+                    current = link;
+                    changed = true;
+                }
+            }
+        }
+        return current;
+    }
+
+    /** @return 거리 최대 힙 (크기 ≤ ef). 원소 = [node, floatBits(distance)] */
+    private PriorityQueue<long[]> searchLayer(float[] q, int ep, int ef, int level) {
+        Visited visited = VISITED.get().reset(count);
+        PriorityQueue<long[]> candidates = new PriorityQueue<>(MIN_FIRST);
+        PriorityQueue<long[]> results = new PriorityQueue<>(ef + 1, MAX_FIRST);
+        long[] start = entry(ep, distance(q, ep));
+        candidates.add(start);
+        results.add(start);
+        visited.visit(ep);
+
+        while (!candidates.isEmpty()) {
+            long[] c = candidates.poll();
+            if (dist(c) > dist(results.peek()) && results.size() >= ef) break;
+            for (int link : links((int) c[0], level)) {
+                if (!visited.visit(link)) continue;
+                float d = distance(q, link);
+                if (results.size() < ef || d < dist(results.peek())) {
+                    long[] e = entry(link, d);
+                    candidates.add(e);
+                    results.add(e);
+                    if (results.size() > ef) results.poll();
+                }
+            }
+        }
+        return results;
+    }
+
+    private static int closest(PriorityQueue<long[]> heap) {
+        long[] best = null;
+        for (long[] e : heap) if (best == null || dist(e) < dist(best)) best = e;
+        return (int) best[0];
+    }
+
+    private static final Comparator<long[]> MIN_FIRST = Comparator.comparingDouble(HnswIndex::dist);
+    private static final Comparator<long[]> MAX_FIRST = MIN_FIRST.reversed();
+
+    private static long[] entry(int node, float distance) {
+        return new long[]{node, Float.floatToRawIntBits(distance)};
+    }
+
+    private static float dist(long[] e) {
+        return Float.intBitsToFloat((int) e[1]);
+    }
+
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+    //  저장소 접근
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+
+    /** 1 - 내적 (정규화 벡터 기준 코사인 거리) */
+    private float distance(float[] q, int node) {
+        int base = (int) (vectorsOff / 4 + (long) node * dim);
+        float dot = 0f;
+        for (int i = 0; i < dim; i++) {
+            dot += q[i] * floats.get(base + i);
+        }
+        return 1f - dot;
+    }
+
+    private float[] vector(int node) {
+        float[] v = new float[dim];
+        floats.get((int) (vectorsOff / 4 + (long) node * dim), v);
+        return v;
+    }
+
+    private void writeVector(int node, float[] v) {
+        floats.put((int) (vectorsOff / 4 + (long) node * dim), v);
+    }
+
+    private long idOf(int node) {
+        return buffer.getLong((int) (idsOff + (long) node * 8));
+    }
+
+    private int levelOf(int node) {
+        return buffer.get((int) (levelsOff + node)) & 0x7F;
+    }
+
+    private boolean isDeleted(int node) {
+        return (buffer.get((int) (levelsOff + node)) & TOMBSTONE) != 0;
+    }
+
+    private int[] links(int node, int level) {
+        if (level > 0) {
+            int[][] layers = upper.get(node);
+            int[] stored = layers[level - 1];
+            return Arrays.copyOfRange(stored, 1, 1 + stored[0]);
+        }
+        int base = (int) (links0Off / 4 + (long) node * (1 + m0));
+        int[] links = new int[ints.get(base)];
+        ints.get(base + 1, links);
+        return links;
+    }
+
+    private void setLinks(int node, int level, int[] links) {
+        if (level > 0) {
+            int[] stored = new int[links.length + 1];
+            stored[0] = links.length;
+            System.arraycopy(links, 0, stored, 1, links.length);
+            upper.get(node)[level - 1] = stored;
+            return;
+        }
+        int base = (int) (links0Off / 4 + (long) node * (1 + m0));
+        ints.put(base, links.length);
+        ints.put(base + 1, links);
+    }
+
+    private static float[] normalize(float[] v) {
+        double norm = 0;
+        for (float x : v) norm += x * x;
+        float[] out = new float[v.length];
+        if (norm == 0) return out;
+        float inv = (float) (1.0 / Math.sqrt(norm));
+        for (int i = 0; i < v.length; i++) out[i] = v[i] * inv;
+        return out;
+    }
+
+    private void ensureOpen() {
+        if (closed) throw new IllegalStateException("index closed");
+    }
+
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+    //  할당 · 성장 · 영속화
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+
+    private long bytesFor(int cap) {
+        layout(cap);
+        return links0Off + (long) cap * (1 + m0) * 4;
+    }
+
+    private void layout(int cap) {
+        vectorsOff = HEADER_BYTES;
+        idsOff = vectorsOff + (long) cap * dim * 4;
+        levelsOff = idsOff + (long) cap * 8;
+        links0Off = (levelsOff + cap + 3) & ~3L;
+    }
+
+    private void allocate(int cap) {
+        long bytes = bytesFor(cap);
+        if (bytes > Integer.MAX_VALUE) throw new IllegalStateException("index too large: " + bytes + "B");
+        try {
+            if (path == null) {
+                buffer = ByteBuffer.allocateDirect((int) bytes).order(ByteOrder.LITTLE_ENDIAN);
+            } else {
+                Files.createDirectories(path.toAbsolutePath().getParent());
+                channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+                buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, bytes).order(ByteOrder.LITTLE_ENDIAN);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        capacity = cap;
+        views();
+        writeHeader();
+    }
+
+    private void views() {
+        floats = buffer.asFloatBuffer();
+        ints = buffer.asIntBuffer();
+    }
+
+    /** 2배 용량으로 이전 — 파일이면 임시 파일에 쓰고 원자적 교체 */
+    private void grow() {
+        ByteBuffer old = buffer;
+        FileChannel oldChannel = channel;
+        long oldVectors = vectorsOff, oldIds = idsOff, oldLevels = levelsOff, oldLinks = links0Off;
+        int oldCapacity = capacity;
+        int newCapacity = capacity * 2;
+        Path tmp = path == null ? null : path.resolveSibling(path.getFileName() + ".grow");
+
+        try {
+            long bytes = bytesFor(newCapacity);
+            if (bytes > Integer.MAX_VALUE) throw new IllegalStateException("index too large: " + bytes + "B");
+            ByteBuffer next;
+            FileChannel nextChannel = null;
+            if (tmp == null) {
+                next = ByteBuffer.allocateDirect((int) bytes).order(ByteOrder.LITTLE_ENDIAN);
+            } else {
+                Files.deleteIfExists(tmp);
+                nextChannel = FileChannel.open(tmp, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+                next = nextChannel.map(FileChannel.MapMode.READ_WRITE, 0, bytes).order(ByteOrder.LITTLE_ENDIAN);
+            }
+            copy(old, oldVectors, next, vectorsOff, (long) count * dim * 4);
+            copy(old, oldIds, next, idsOff, (long) count * 8);
+            copy(old, oldLevels, next, levelsOff, count);
+            copy(old, oldLinks, next, links0Off, (long) count * (1 + m0) * 4);
+
+            buffer = next;
+            capacity = newCapacity;
+            views();
+            writeHeader();
+            if (tmp != null) {
+                ((java.nio.MappedByteBuffer) next).force();
+                oldChannel.close();
+                Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                channel = nextChannel;
+            }
+        } catch (IOException e) {
+            buffer = old;
+            channel = oldChannel;
+            capacity = oldCapacity;
+            layout(oldCapacity);
+            views();
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void copy(ByteBuffer from, long fromOff, ByteBuffer to, long toOff, long length) {
+        ByteBuffer src = from.duplicate();
+        src.limit((int) (fromOff + length)).position((int) fromOff);
+        ByteBuffer dst = to.duplicate();
+        dst.position((int) toOff);
+        dst.put(src);
+    }
+
+    /** 본문(dirty=1 유지) → 사이드카 → dirty=0 순서로 내린다 — 중간에 죽으면 다음 open이 재구축 */
+    private void persist() throws IOException {
+        writeHeader();
+        force();
+        writeUpper();
+        if (dirty) {
+            dirty = false;
+            buffer.putInt(DIRTY_OFFSET, 0);
+            force();
+        }
+    }
+
+    private void force() {
+        if (buffer instanceof java.nio.MappedByteBuffer mapped) mapped.force();
+    }
+
+    /** 마지막 flush 이후 첫 변경 — 본문을 건드리기 전에 헤더에 표시 */
+    private void markDirty() {
+        if (dirty || path == null) return;
+        dirty = true;
+        buffer.putInt(DIRTY_OFFSET, 1);
+        force();
+    }
+
+    private void writeHeader() {
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, VERSION);
+        buffer.putInt(8, dim);
+        buffer.putInt(12, m);
+        buffer.putInt(16, count);
+        buffer.putInt(20, capacity);
+        buffer.putInt(24, entryPoint);
+        buffer.putInt(28, maxLevel);
+        buffer.putInt(32, providerHash);
+        buffer.putInt(DIRTY_OFFSET, dirty ? 1 : 0);
+    }
+
+    private boolean load() throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (channel.size() < HEADER_BYTES) {
+            channel.close();
+            return false;
+        }
+        ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        int cap = header.getInt(20);
+        if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION || header.getInt(8) != dim
+            || header.getInt(12) != m || header.getInt(32) != providerHash || channel.size() < bytesFor(cap)) {
+            channel.close();
+            return false;
+        }
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, bytesFor(cap)).order(ByteOrder.LITTLE_ENDIAN);
+        capacity = cap;
+        views();
+        count = buffer.getInt(16);
+        entryPoint = buffer.getInt(24);
+        maxLevel = buffer.getInt(28);
+        boolean crashed = buffer.getInt(DIRTY_OFFSET) != 0;
+
+        for (int node = 0; node < count; node++) {
+            if (!isDeleted(node)) {
+                nodeById.put(idOf(node), node);
+                live++;
+            }
+        }
+        if (crashed || !readUpper()) {
+            // 재구축은 파일을 다시 쓰므로 끝날 때까지 dirty 유지 — 아래 persist가 정리
+            dirty = true;
+            rebuildGraph();
+            persist();
+        }
+        return true;
+    }
+
+    private static Path upperPath(Path path) {
+        return path.resolveSibling(path.getFileName() + ".upper");
+    }
+
+    private void writeUpper() throws IOException {
+        Path target = upperPath(path);
+        Path tmp = target.resolveSibling(target.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            out.writeInt(count);
+            for (int node = 0; node < count; node++) {
+                int[][] layers = upper.get(node);
+                if (layers == null) continue;
+                out.writeInt(node);
+                out.writeInt(layers.length);
+                for (int[] stored : layers) {
+                    out.writeInt(stored[0]);
+                    for (int i = 1; i <= stored[0]; i++) out.writeInt(stored[i]);
+                }
+            }
+            out.writeInt(-1);
+        }
+        Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private boolean readUpper() {
+        Path file = upperPath(path);
+        if (!Files.exists(file)) return count == 0 || maxLevel == 0 && allLevelZero();
+        for (int i = 0; i < count; i++) upper.add(null);
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != count) return resetUpper();
+            int node;
+            while ((node = in.readInt()) >= 0) {
+                int levels = in.readInt();
+                if (node >= count || levels != levelOf(node)) return resetUpper();
+                int[][] layers = new int[levels][];
+                for (int l = 0; l < levels; l++) {
+                    int n = in.readInt();
+                    int[] stored = new int[n + 1];
+                    stored[0] = n;
+                    for (int i = 1; i <= n; i++) stored[i] = in.readInt();
+                    layers[l] = stored;
+                }
+                upper.set(node, layers);
+            }
+            for (int i = 0; i < count; i++) {
+                if (levelOf(i) > 0 && upper.get(i) == null) return resetUpper();
+            }
+            return true;
+        } catch (IOException e) {
+            return resetUpper();
+        }
+    }
+
+    private boolean allLevelZero() {
+        for (int i = 0; i < count; i++) {
+            if (levelOf(i) > 0) return false;
+        }
+        for (int i = 0; i < count; i++) upper.add(null);
+        return true;
+    }
+
+    private boolean resetUpper() {
+        upper.clear();
+        return false;
+    }
+
+    /** 사이드카 불일치 — 저장된 벡터로 그래프를 다시 만든다 (tombstone은 버림) */
+    private void rebuildGraph() {
+        int n = count;
+        long[] ids = new long[n];
+        float[][] vectors = new float[n][];
+        boolean[] alive = new boolean[n];
+        for (int node = 0; node < n; node++) {
+            ids[node] = idOf(node);
+            vectors[node] = vector(node);
+            alive[node] = !isDeleted(node);
+        }
+        count = 0;
+        live = 0;
+        entryPoint = -1;
+        maxLevel = -1;
+        upper.clear();
+        nodeById.clear();
+        for (int node = 0; node < n; node++) {
+            if (alive[node]) insert(ids[node], vectors[node]);
+        }
+        writeHeader();
+    }
+}
@@ -0,0 +1,267 @@
+package com.spring.aichat.service.memory;
+
+import com.spring.aichat.config.OpenAiProperties;
+import com.spring.aichat.dto.openai.OpenAiChatRequest;
+import com.spring.aichat.dto.openai.OpenAiMessage;
+import com.spring.aichat.external.OpenRouterClient;
+import com.spring.aichat.service.metering.LlmCaller;
+import com.spring.aichat.service.metering.LlmUsageContext;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * [Perf] 장기 기억 계층 압축 — LSM 트리처럼 같은 tier 요약 fanout개를 한 단계 위 요약 1개로 접는다
+ *
+ * ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+ *  기존 문제
+ * ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+ *  요약은 memory cycle마다 append만 되고 병합되지 않는다 → 오래된 방은 기억 블록만 수천 토큰, O(turns).
+ *
+ * ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+ *  tier 구조 (시간순, 왼쪽이 오래됨)
+ * ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+ *  [tier k …] [tier k-1 …] … [tier 1 …] [tier 0 …] [최신 leaf keepRecent개 — 원문 유지]
+ *
+ *  보호 구간 밖에서 같은 tier가 fanout개 연속이면 가장 낮은 tier의 가장 오래된 fanout개를 병합.
+ *  항상 가장 오래된 쪽을 접으므로 "tier가 시간순으로 비증가" 불변식이 유지되고,
+ *  tier마다 fanout-1개 이하만 남는다 → 행 수 ≤ keepRecent + (fanout-1)·log_fanout(leaf 수).
+ *  정렬 키는 turn_number (병합 행은 마지막 자식의 턴) — created_at은 병합 시각이라 쓰지 않는다.
+ *
+ * ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+ *  크래시 안전 / 멱등
+ * ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+ *  LLM 요약은 트랜잭션 밖. 커밋은 {@link Store#commit} 한 트랜잭션에서 "자식 fanout개 삭제(건수 검증) + 부모 삽입".
+ *  - 커밋 전 크래시 → 아무것도 안 바뀜, 다음 트리거에 같은 계획 재실행
+ *  - 다른 인스턴스가 먼저 접음 → 삭제 건수 불일치 또는 (scope, tier, source_from_id) 유니크 위반 → 롤백
+ *
+ * ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+ *  실행
+ * ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+ *  전용 bounded 풀(threads, queue). 포화 시 버림 — 다음 요약 저장이 다시 트리거하므로 유실 없음.
+ *  scope(방 / 방+캐릭터) 단위 single-flight: 실행 중 들어온 트리거는 플래그로 합쳐 끝난 뒤 1회 더 돈다.
+ */
+@Component
+@Slf4j
+public class MemoryCompactor {
+
+    /** 압축 대상 행 (tier/turn 순 정렬 기준 필드 + 본문) */
+    public record Node(long id, int tier, int turnNumber, String summary) {}
+
+    /** 병합 단위 — 같은 tier 연속 fanout개 (시간순) */
+    public record Run(int tier, List<Node> nodes) {
+        public int targetTier() {
+            return tier + 1;
+        }
+
+        public long fromId() {
+            return nodes.get(0).id();
+        }
+
+        public long toId() {
+            return nodes.get(nodes.size() - 1).id();
+        }
+
+        public int turnNumber() {
+            return nodes.get(nodes.size() - 1).turnNumber();
+        }
+
+        public List<Long> ids() {
+            return nodes.stream().map(Node::id).toList();
+        }
+    }
+
+    /** 압축 단위 — characterId가 null이면 방 단위 기억. userId는 계측용 (식별에는 불참) */
+    public record Scope(Long roomId, Long characterId, Long userId) {
+        String key(String store) {
+            return store + ":" + roomId + (characterId != null ? ":" + characterId : "");
+        }
+    }
+
+    /** 기억 저장소별 어댑터 (MemorySummary / HeroineMemorySummary) */
+    public interface Store {
+        /** 로그·single-flight 키 접두사 */
+        String name();
+
+        LlmCaller caller();
+
+        /** scope의 전체 행 — (turn_number, id) 오름차순 */
+        List<Node> load(Scope scope);
+
+        /** 병합 프롬프트 — 시점(방 전체 / 캐릭터)에 맞게 */
+        String prompt(Run run);
+
+        /**
+         * 한 트랜잭션: run의 자식 삭제(건수가 다르면 예외로 롤백) + 병합 행 삽입 + 후처리(캐시 무효화 등).
+         */
+        void commit(Scope scope, Run run, String summary);
+    }
+
+    private final OpenRouterClient openRouterClient;
+    private final OpenAiProperties props;
+    private final boolean enabled;
+    private final int fanout;
+    private final int keepRecent;
+    private final ThreadPoolExecutor executor;
+
+    /** key → 재실행 필요 여부 (TRUE = 처리 안 된 트리거 있음). 키 존재 = 워커 실행 중 */
+    private final ConcurrentHashMap<String, Boolean> pending = new ConcurrentHashMap<>();
+
+    private final LongAdder merges = new LongAdder();
+    private final LongAdder folded = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder conflicts = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    public MemoryCompactor(OpenRouterClient openRouterClient, OpenAiProperties props,
+                           @Value("${memory.compaction.enabled:true}") boolean enabled,
+                           @Value("${memory.compaction.fanout:4}") int fanout,
+                           @Value("${memory.compaction.keep-recent:4}") int keepRecent,
+                           @Value("${memory.compaction.threads:2}") int threads,
+                           @Value("${memory.compaction.queue:256}") int queue) {
+        this.openRouterClient = openRouterClient;
+        this.props = props;
+        this.enabled = enabled;
+        this.fanout = Math.max(2, fanout);
+        this.keepRecent = Math.max(0, keepRecent);
+
+        AtomicInteger seq = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(queue), r -> {
+                Thread t = new Thread(r, "memory-compact-" + seq.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            }, new ThreadPoolExecutor.AbortPolicy());
+        log.info("🗜️ [MEMORY-COMPACT] enabled={} | fanout={} | keepRecent={} | threads={} | queue={}",
+            enabled, this.fanout, this.keepRecent, threads, queue);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /** [Metrics] 전용 풀 — 큐 깊이 · 활성 스레드 (거부 수는 {@link Stats#rejected()}) */
+    public ThreadPoolExecutor getExecutor() {
+        return executor;
+    }
+
+    /** 새 요약 저장 후 호출 — 비동기, 즉시 반환 */
+    public void submit(Store store, Scope scope) {
+        if (!enabled) return;
+        String key = scope.key(store.name());
+        if (pending.put(key, Boolean.TRUE) != null) {
+            coalesced.increment();
+            return;
+        }
+        try {
+            executor.execute(() -> drain(store, scope, key));
+        } catch (RejectedExecutionException e) {
+            pending.remove(key);
+            rejected.increment();
+            log.warn("🗜️ [MEMORY-COMPACT] queue full — skipped (retried on next summary): {}", key);
+        }
+    }
+
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+    //  계획 (순수 함수)
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+
+    /**
+     * @param nodes 시간순 (turn_number, id)
+     * @return 다음 병합 대상, 없으면 null
+     */
+    static Run plan(List<Node> nodes, int fanout, int keepRecent) {
+        int limit = nodes.size();
+        for (int kept = 0; kept < keepRecent && limit > 0 && nodes.get(limit - 1).tier() == 0; kept++) {
+            limit--;
+        }
+
+        Run best = null;
+        int i = 0;
+        while (i < limit) {
+            int tier = nodes.get(i).tier();
+            int j = i;
+            while (j < limit && nodes.get(j).tier() == tier) j++;
+            if (j - i >= fanout && (best == null || tier < best.tier())) {
+                best = new Run(tier, List.copyOf(nodes.subList(i, i + fanout)));
+            }
+            i = j;
+        }
+        return best;
+    }
+
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+    //  실행
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+
+    private void drain(Store store, Scope scope, String key) {
+        do {
+            pending.replace(key, Boolean.TRUE, Boolean.FALSE);
+            try {
+                compactToFixedPoint(store, scope, key);
+            } catch (RuntimeException e) {
+                failures.increment();
+                log.error("❌ [MEMORY-COMPACT] failed: {} | {}", key, e.getMessage(), e);
+            }
+        } while (!pending.remove(key, Boolean.FALSE));
+    }
+
+    private void compactToFixedPoint(Store store, Scope scope, String key) {
+        Run run;
+        while ((run = plan(store.load(scope), fanout, keepRecent)) != null) {
+            long start = System.currentTimeMillis();
+            String summary;
+            try (var usageScope = LlmUsageContext.open(store.caller(), scope.roomId(), scope.userId())) {
+                summary = openRouterClient.chatCompletion(OpenAiChatRequest.withoutPenalty(
+                    props.sentimentModel(), List.of(OpenAiMessage.system(store.prompt(run))), 0.3));
+            }
+            if (summary == null || summary.isBlank()) {
+                failures.increment();
+                log.warn("🗜️ [MEMORY-COMPACT] empty summary — retry on next trigger: {}", key);
+                return;
+            }
+
+            try {
+                store.commit(scope, run, summary.trim());
+            } catch (RuntimeException e) {
+                // 다른 인스턴스가 먼저 접었거나 방이 초기화됨 — 롤백됐으므로 다시 계획
+                conflicts.increment();
+                log.info("🗜️ [MEMORY-COMPACT] commit conflict (rolled back): {} | tier={} | {}",
+                    key, run.tier(), e.getMessage());
+                return;
+            }
+            merges.increment();
+            folded.add(run.nodes().size());
+            log.info("🗜️ [MEMORY-COMPACT] {} | tier {}→{} | ids {}..{} | {}ms",
+                key, run.tier(), run.targetTier(), run.fromId(), run.toId(), System.currentTimeMillis() - start);
+        }
+    }
+
+    /** 병합 프롬프트 본문용 — 자식 요약을 시간순 목록으로 */
+    public static String bulletList(Run run) {
+        List<String> lines = new ArrayList<>(run.nodes().size());
+        for (Node node : run.nodes()) lines.add("- " + node.summary());
+        return String.join("\n", lines);
+    }
+
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+    //  통계
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+
+    public Stats getStats() {
+        return new Stats(merges.sum(), folded.sum(), coalesced.sum(), rejected.sum(), conflicts.sum(),
+            failures.sum(), executor.getQueue().size(), pending.size());
+    }
+
+    public record Stats(long merges, long folded, long coalesced, long rejected, long conflicts,
+                        long failures, int queued, int inFlight) {}
+}
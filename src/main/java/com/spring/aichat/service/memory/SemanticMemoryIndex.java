@@ -0,0 +1,272 @@
+package com.spring.aichat.service.memory;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * [Perf] 방 단위 로컬 시맨틱 기억 인덱스 — (주석 처리돼 있던) Pinecone 경로 대체
+ *
+ * ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+ *  구조
+ * ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+ *  - 방마다 {@code {dir}/room-{id}.hnsw} 1개 ({@link HnswIndex}, mmap)
+ *  - 열린 인덱스는 Caffeine(최대 max-open-rooms)로 보관, 축출 시 flush + close
+ *  - 원본은 RDB의 MemorySummary — 인덱스는 언제든 다시 만들 수 있는 파생 데이터.
+ *    조회({@link #search})는 채팅 경로라 임베딩 호출을 하지 않는다 — 삭제분만 tombstone 처리하고,
+ *    누락분(다른 인스턴스가 만든 요약, 파일 유실)은 방을 표시만 해 두었다가
+ *    비동기 요약 경로가 {@link #backfill}로 채운다. 그 사이 누락 요약은 호출측 최신순 폴백으로 보완된다.
+ *
+ * 인덱스 오류는 호출자에게 빈 결과로 전달 — 장기 기억은 최신순 폴백이 있다.
+ *
+ * [활성 조건] 기본 비활성 (기존 최신순 주입). 켜려면 memory.vector.enabled=true와 함께
+ *  - dir: 영속 볼륨의 절대 경로 — 비었거나 상대 경로면 (컨테이너 재배포마다 사라짐) 켜지 않는다
+ *  - embedding: openrouter(의미 임베딩). hashing은 어휘 겹침 기반 결정적 대체라 테스트 · 벤치마크용 명시 선택
+ * 인덱스 파일은 노드 로컬이다. 다른 노드가 만든 요약은 조회에서 누락으로만 보이고, 그 방의 다음 요약이
+ * 이 노드에서 돌 때 backfill로 채워진다 — 그 전까지는 최신순 폴백이 메운다.
+ */
+@Component
+@Slf4j
+public class SemanticMemoryIndex {
+
+    /** 인덱싱 대상 — MemorySummary.id + 본문 */
+    public record Item(long id, String text) {}
+
+    private final EmbeddingProvider embeddings;
+    private final boolean enabled;
+    private final Path dir;
+    private final int m;
+    private final int efConstruction;
+    private final int efSearch;
+    private final Cache<Long, HnswIndex> open;
+    /** 조회 때 누락 요약이 보인 방 — 다음 비동기 요약 경로에서 채운다 */
+    private final Set<Long> backfillPending = ConcurrentHashMap.newKeySet();
+
+    private final LongAdder searches = new LongAdder();
+    private final LongAdder embedded = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    public SemanticMemoryIndex(ObjectProvider<EmbeddingProvider> embeddingProvider,
+                               @Value("${memory.vector.enabled:false}") boolean enabled,
+                               @Value("${memory.vector.dir:}") String dir,
+                               @Value("${memory.vector.m:16}") int m,
+                               @Value("${memory.vector.ef-construction:100}") int efConstruction,
+                               @Value("${memory.vector.ef-search:64}") int efSearch,
+                               @Value("${memory.vector.max-open-rooms:2000}") long maxOpenRooms) {
+        this.embeddings = embeddingProvider.getIfAvailable();
+        this.dir = dir.isBlank() ? null : Path.of(dir);
+        this.enabled = enabled && usable(this.embeddings, this.dir);
+        this.m = m;
+        this.efConstruction = efConstruction;
+        this.efSearch = efSearch;
+        this.open = Caffeine.newBuilder()
+            .maximumSize(maxOpenRooms)
+            .executor(Runnable::run)
+            .<Long, HnswIndex>removalListener((roomId, index, cause) -> closeQuietly(roomId, index, cause))
+            .build();
+        log.info("🧭 [MEMORY-INDEX] enabled={} | provider={} | dir={} | M={} | ef={}/{}",
+            this.enabled, embeddings == null ? null : embeddings.id(), this.dir, m, efConstruction, efSearch);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 질의와 가까운 요약 top-k.
+     *
+     * @param items 방의 현재 요약 전체 — 인덱스를 이 집합에 맞춘 뒤 검색한다
+     * @return 유사도 높은 순. 비활성·오류 시 빈 목록
+     */
+    public List<HnswIndex.Hit> search(Long roomId, String query, int k, List<Item> items) {
+        if (!enabled || query == null || query.isBlank() || items.isEmpty()) return List.of();
+        searches.increment();
+        try {
+            HnswIndex index = index(roomId);
+            if (prune(roomId, index, items) > 0 && backfillPending.add(roomId)) {
+                log.debug("🧭 [MEMORY-INDEX] missing summaries — backfill on next async write: roomId={}", roomId);
+            }
+            return index.search(embeddings.embed(query), k, Math.max(efSearch, k));
+        } catch (RuntimeException e) {
+            failures.increment();
+            log.warn("🧭 [MEMORY-INDEX] search failed (non-blocking): roomId={} | {}", roomId, e.getMessage());
+            return List.of();
+        }
+    }
+
+    /** 새 요약 즉시 색인 — 다음 조회의 동기화 비용(임베딩 호출)을 비동기 쓰기 경로로 옮긴다 */
+    public void add(Long roomId, Item item) {
+        if (!enabled) return;
+        try {
+            HnswIndex index = index(roomId);
+            if (index.contains(item.id())) return;
+            index.add(item.id(), embeddings.embed(item.text()));
+            embedded.increment();
+            index.flush();
+        } catch (IOException | RuntimeException e) {
+            failures.increment();
+            log.warn("🧭 [MEMORY-INDEX] add failed (rebuilt on next read): roomId={} | {}", roomId, e.getMessage());
+        }
+    }
+
+    /** 조회에서 누락이 보였던 방인지 — 비동기 요약 경로가 요약 목록을 읽을지 판단 */
+    public boolean needsBackfill(Long roomId) {
+        return enabled && backfillPending.contains(roomId);
+    }
+
+    /**
+     * 비동기 요약 경로 전용 — 누락 요약을 임베딩해 채우고 삭제분을 정리한다.
+     * 실패하면 표시를 되돌려 다음 요약 때 다시 시도한다.
+     */
+    public void backfill(Long roomId, List<Item> items) {
+        if (!enabled || !backfillPending.remove(roomId)) return;
+        try {
+            sync(roomId, index(roomId), items);
+        } catch (RuntimeException e) {
+            backfillPending.add(roomId);
+            failures.increment();
+            log.warn("🧭 [MEMORY-INDEX] backfill failed (retry on next write): roomId={} | {}", roomId, e.getMessage());
+        }
+    }
+
+    /** 방 기억 초기화 — 인덱스 파일 삭제 */
+    public void drop(Long roomId) {
+        backfillPending.remove(roomId);
+        open.invalidate(roomId);
+        if (dir == null) return;
+        try {
+            HnswIndex.delete(fileOf(roomId));
+        } catch (IOException e) {
+            log.warn("🧭 [MEMORY-INDEX] drop failed: roomId={} | {}", roomId, e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        open.invalidateAll();
+        open.cleanUp();
+    }
+
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+    //  Private Helpers
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+
+    /** 켜도 되는 설정인지 — 아니면 이유를 남기고 최신순 주입으로 둔다 */
+    private static boolean usable(EmbeddingProvider embeddings, Path dir) {
+        if (dir == null || !dir.isAbsolute()) {
+            log.error("🧭 [MEMORY-INDEX] memory.vector.dir must be an absolute path on a durable volume, staying disabled | dir={}", dir);
+            return false;
+        }
+        if (embeddings == null) {
+            log.error("🧭 [MEMORY-INDEX] no embedding provider (memory.vector.embedding=openrouter|hashing), staying disabled");
+            return false;
+        }
+        if (embeddings instanceof HashingEmbeddingProvider) {
+            log.warn("🧭 [MEMORY-INDEX] lexical hashing embedding selected — deterministic stand-in, not semantic ranking");
+        }
+        return true;
+    }
+
+    private HnswIndex index(Long roomId) {
+        return open.get(roomId, id -> {
+            try {
+                return HnswIndex.open(fileOf(id), embeddings.dimensions(), m, efConstruction,
+                    embeddings.id().hashCode());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    /**
+     * 채팅 경로 정리 — 원본에서 사라진 id만 tombstone (임베딩 없음)
+     *
+     * @return 인덱스에 없는 요약 수
+     */
+    private int prune(Long roomId, HnswIndex index, List<Item> items) {
+        Set<Long> expected = new HashSet<>(items.size() * 2);
+        int missing = 0;
+        for (Item item : items) {
+            expected.add(item.id());
+            if (!index.contains(item.id())) missing++;
+        }
+        if (index.size() + missing == expected.size()) return missing;
+        int removed = 0;
+        for (Long id : index.ids()) {
+            if (!expected.contains(id) && index.remove(id)) removed++;
+        }
+        if (removed > 0) {
+            try {
+                index.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            log.debug("🧭 [MEMORY-INDEX] pruned roomId={} | -{} | size={}", roomId, removed, index.size());
+        }
+        return missing;
+    }
+
+    private void sync(Long roomId, HnswIndex index, List<Item> items) {
+        Set<Long> expected = new HashSet<>(items.size() * 2);
+        int added = 0;
+        for (Item item : items) {
+            expected.add(item.id());
+            if (!index.contains(item.id())) {
+                index.add(item.id(), embeddings.embed(item.text()));
+                added++;
+            }
+        }
+        int removed = 0;
+        if (index.size() != expected.size()) {
+            for (Long id : index.ids()) {
+                if (!expected.contains(id) && index.remove(id)) removed++;
+            }
+        }
+        if (added + removed > 0) {
+            embedded.add(added);
+            try {
+                index.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            log.debug("🧭 [MEMORY-INDEX] synced roomId={} | +{} -{} | size={}", roomId, added, removed, index.size());
+        }
+    }
+
+    private Path fileOf(Long roomId) {
+        return dir.resolve("room-" + roomId + ".hnsw");
+    }
+
+    private static void closeQuietly(Long roomId, HnswIndex index, RemovalCause cause) {
+        if (index == null) return;
+        try {
+            index.close();
+        } catch (IOException e) {
+            log.warn("🧭 [MEMORY-INDEX] close failed: roomId={} | cause={} | {}", roomId, cause, e.getMessage());
+        }
+    }
+
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+    //  통계
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+
+    public Stats getStats() {
+        return new Stats(open.estimatedSize(), searches.sum(), embedded.sum(), failures.sum());
+    }
+
+    public record Stats(long openRooms, long searches, long embedded, long failures) {}
+}
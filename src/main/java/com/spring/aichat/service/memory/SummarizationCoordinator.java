@@ -0,0 +1,154 @@
+package com.spring.aichat.service.memory;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+
+/**
+ * [Perf] 장기 기억 요약 single-flight — 한 요약 창(window)당 LLM 호출 정확히 1회
+ *
+ * ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+ *  기존 문제
+ * ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+ *  트리거 조건 {@code userMsgCount % cycle == 0}의 카운트가 저장 후 비원자적 count라
+ *  재시도 · 연타 · V1/V2 후처리 중첩 시 같은 구간 요약이 여러 번 발사됐다 (중복 LLM 비용 + 중복 기억).
+ *
+ * ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+ *  3단 방어
+ * ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+ *  1. 로컬 맵 — 같은 방이 이 인스턴스에서 실행 중이면 플래그만 세우고 반환 (버스트 합치기).
+ *     실행이 끝난 뒤 플래그가 서 있으면 1회 더 확인한다 — 그 사이 창이 다 찼을 수 있으므로.
+ *  2. Redis 리스 — {@code memory:summarize:lease:{roomId}} SET NX PX + 토큰 비교 해제.
+ *     다른 인스턴스가 잡고 있으면 그쪽이 최신 창까지 요약하므로 포기.
+ *  3. 워터마크 — 리스 안에서 DB의 "이미 요약된 마지막 로그 번호"를 다시 읽어
+ *     새 로그가 min-new-logs 미만이면 중복 창으로 보고 포기. 요약 행에 [from, to) 구간이 기록되므로
+ *     리스 만료·크래시 후에도 워터마크는 정확하다 (DB가 진실 원천).
+ *
+ * Redis 장애 시 리스는 개방 실패(진행) — 워터마크가 순차 중복은 계속 막는다.
+ */
+@Component
+@Slf4j
+public class SummarizationCoordinator {
+
+    private static final String LEASE_PREFIX = "memory:summarize:lease:";
+
+    private static final String RELEASE_LUA =
+        "if redis.call('GET', KEYS[1]) == ARGV[1] then return redis.call('DEL', KEYS[1]) else return 0 end";
+    private static final DefaultRedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(RELEASE_LUA, Long.class);
+
+    /** 요약 실행 — [fromTurn, toTurn) 로그 구간을 요약·저장 */
+    @FunctionalInterface
+    public interface WindowTask {
+        void summarize(int fromTurn, int toTurn);
+    }
+
+    private final StringRedisTemplate redisTemplate;
+    private final Duration leaseTtl;
+    private final int minNewLogs;
+
+    /** roomId → 재확인 필요 여부. 키 존재 = 이 인스턴스에서 실행 중 */
+    private final ConcurrentHashMap<Long, Boolean> inFlight = new ConcurrentHashMap<>();
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder summarized = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder leaseContended = new LongAdder();
+    private final LongAdder staleWindows = new LongAdder();
+
+    public SummarizationCoordinator(StringRedisTemplate redisTemplate,
+                                    @Value("${memory.summarize.lease-seconds:180}") long leaseSeconds,
+                                    @Value("${memory.summarize.min-new-logs:10}") int minNewLogs) {
+        this.redisTemplate = redisTemplate;
+        this.leaseTtl = Duration.ofSeconds(leaseSeconds);
+        this.minNewLogs = minNewLogs;
+    }
+
+    /**
+     * 호출 스레드에서 실행 (호출자가 이미 @Async).
+     *
+     * @param summarizedTurn 이미 요약된 마지막 로그 번호 (DB 워터마크)
+     * @param headTurn       현재 로그 수
+     */
+    public void run(Long roomId, IntSupplier summarizedTurn, IntSupplier headTurn, WindowTask task) {
+        requests.increment();
+        if (inFlight.put(roomId, Boolean.TRUE) != null) {
+            coalesced.increment();
+            log.info("🧷 [MEMORY-SF] coalesced into in-flight run: roomId={}", roomId);
+            return;
+        }
+        try {
+            do {
+                inFlight.replace(roomId, Boolean.TRUE, Boolean.FALSE);
+                attempt(roomId, summarizedTurn, headTurn, task);
+            } while (!inFlight.remove(roomId, Boolean.FALSE));
+        } catch (RuntimeException e) {
+            inFlight.remove(roomId);
+            throw e;
+        }
+    }
+
+    private void attempt(Long roomId, IntSupplier summarizedTurn, IntSupplier headTurn, WindowTask task) {
+        String key = LEASE_PREFIX + roomId;
+        String token = UUID.randomUUID().toString();
+        if (!acquire(key, token)) {
+            leaseContended.increment();
+            log.info("🧷 [MEMORY-SF] lease held elsewhere — skipped: roomId={}", roomId);
+            return;
+        }
+        try {
+            int from = summarizedTurn.getAsInt();
+            int to = headTurn.getAsInt();
+            if (to - from < minNewLogs) {
+                staleWindows.increment();
+                log.info("🧷 [MEMORY-SF] window already summarized: roomId={} | summarized={} | head={}",
+                    roomId, from, to);
+                return;
+            }
+            task.summarize(from, to);
+            summarized.increment();
+        } finally {
+            release(key, token);
+        }
+    }
+
+    private boolean acquire(String key, String token) {
+        try {
+            return Boolean.TRUE.equals(redisTemplate.opsForValue().setIfAbsent(key, token, leaseTtl));
+        } catch (Exception e) {
+            log.warn("🧷 [MEMORY-SF] lease acquire failed (fail-open, watermark guards): {}", e.getMessage());
+            return true;
+        }
+    }
+
+    private void release(String key, String token) {
+        try {
+            redisTemplate.execute(RELEASE_SCRIPT, List.of(key), token);
+        } catch (Exception e) {
+            log.warn("🧷 [MEMORY-SF] lease release failed (TTL 만료로 자연 해제): {}", e.getMessage());
+        }
+    }
+
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+    //  통계
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+
+    public Stats getStats() {
+        return new Stats(requests.sum(), summarized.sum(), coalesced.sum(), leaseContended.sum(), staleWindows.sum());
+    }
+
+    /** duplicatesSuppressed = coalesced + leaseContended + staleWindows */
+    public record Stats(long requests, long summarized, long coalesced, long leaseContended, long staleWindows) {
+        public long duplicatesSuppressed() {
+            return coalesced + leaseContended + staleWindows;
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.spring.aichat.service.metering;
+
+/**
+ * [Metering] LLM 호출 주체 태그 — 어느 프롬프트 경로가 예산을 쓰는지 구분하는 1차 차원.
+ *
+ * <p>태그 없이 호출된 경로는 {@link #OTHER}로 집계된다.
+ */
+public enum LlmCaller {
+    /** SANDBOX 채팅 (ChatStreamService + CharacterPromptAssembler) */
+    CHAT_V1,
+    /** STORY V2 (ChatStreamServiceV2 + StoryDirectorPromptAssemblerV2) */
+    STORY_V2,
+    /** 극장 씬 배치 생성 (TheaterBatchGenerator + TheaterPromptAssembler) */
+    THEATER_BATCH,
+    /** 극장 개입 명령 분류 (TheaterCommandClassifier) */
+    THEATER_CLASSIFIER,
+    /** 극장 분기 결과 생성 (TheaterBranchService) */
+    THEATER_BRANCH,
+    /** 극장 분기 선택지별 추측 배치 생성 (TheaterBranchSpeculator — 탈락분은 낭비 토큰) */
+    THEATER_SPECULATIVE,
+    /** 장기 기억 요약 (MemoryService) */
+    MEMORY_SUMMARY,
+    /** V2 히로인별 기억 요약 (HeroineMemoryService) */
+    HEROINE_MEMORY,
+    /** 장기 기억 tier 병합 (MemoryCompactor — 방 / 히로인 공통) */
+    MEMORY_COMPACTION,
+    OTHER
+}
@@ -0,0 +1,53 @@
+package com.spring.aichat.service.metering;
+
+/**
+ * [Metering] 현재 스레드의 LLM 호출 태그 (caller / roomId / userId)
+ *
+ * <p>OpenRouterClient 호출처가 20곳이 넘어 시그니처에 태그를 추가하는 대신,
+ * 호출 직전에 스코프를 열고 클라이언트가 {@link #current()}로 읽는다.
+ * LLM 호출은 모두 호출 스레드에서 동기 수행되므로 ThreadLocal로 충분하다.
+ *
+ * <pre>
+ * try (var usage = LlmUsageContext.open(LlmCaller.MEMORY_SUMMARY, roomId, userId)) {
+ *     openRouterClient.chatCompletion(request);
+ * }
+ * </pre>
+ * 스코프는 중첩 가능하며 close 시 직전 태그로 복원된다 (풀 스레드 재사용 시 태그 누수 방지).
+ */
+public final class LlmUsageContext {
+
+    public record Tag(LlmCaller caller, Long roomId, Long userId) {}
+
+    private static final Tag UNTAGGED = new Tag(LlmCaller.OTHER, null, null);
+    private static final ThreadLocal<Tag> CURRENT = new ThreadLocal<>();
+
+    private LlmUsageContext() {}
+
+    public static Scope open(LlmCaller caller, Long roomId, Long userId) {
+        Tag previous = CURRENT.get();
+        CURRENT.set(new Tag(caller, roomId, userId));
+        return new Scope(previous);
+    }
+
+    public static Tag current() {
+        Tag tag = CURRENT.get();
+        return tag != null ? tag : UNTAGGED;
+    }
+
+    public static final class Scope implements AutoCloseable {
+        private final Tag previous;
+        private boolean closed;
+
+        private Scope(Tag previous) {
+            this.previous = previous;
+        }
+
+        @Override
+        public void close() {
+            if (closed) return;
+            closed = true;
+            if (previous != null) CURRENT.set(previous);
+            else CURRENT.remove();
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package com.spring.aichat.service.metering;
+
+import com.spring.aichat.dto.openai.OpenAiUsage;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * [Metering] LLM 토큰·비용 계측기 — 호출 경로에서는 LongAdder 증가만, DB 쓰기는 주기적 배치
+ *
+ * <p>집계 키: (caller, model, provider, roomId, userId). 키별 카운터는 {@link LongAdder}라
+ * 동시 스트림이 많아도 CAS 경합이 스트라이프로 분산된다 (호출 경로 락 없음).
+ *
+ * <p>flush 주기마다 {@code sumThenReset()}으로 델타를 떼어 {@link LlmUsageStore}에 batch insert.
+ * 연속 {@value #IDLE_FLUSHES_BEFORE_EVICT}회 델타가 0인 키는 맵에서 제거해 방/유저 키가 무한히 쌓이지 않게 한다.
+ * (제거 직후 잔여분을 한 번 더 드레인하므로 유실 구간은 "제거 ↔ 드레인" 사이의 극히 짧은 창뿐)
+ *
+ * <p>DB 쓰기 실패 시 델타는 다음 flush에 합산되도록 카운터에 되돌린다.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class LlmUsageMeter {
+
+    private static final int IDLE_FLUSHES_BEFORE_EVICT = 10;
+    private static final double MICROS_PER_USD = 1_000_000d;
+
+    private final LlmUsageStore usageStore;
+
+    private final ConcurrentHashMap<UsageKey, Counters> counters = new ConcurrentHashMap<>();
+    /** [Perf] caller별 누적 prompt/cached 토큰 — flush로 리셋되지 않음 (프롬프트 캐시 적중률 관측용) */
+    private final ConcurrentHashMap<LlmCaller, LongAdder[]> cacheTotals = new ConcurrentHashMap<>();
+    private volatile LocalDateTime windowStart = LocalDateTime.now();
+
+    public record UsageKey(LlmCaller caller, String model, String provider, Long roomId, Long userId) {}
+
+    /** flush 단위 델타 (한 행) */
+    public record UsageDelta(UsageKey key, long calls, long promptTokens, long completionTokens,
+                             long cachedTokens, long costMicros) {
+        public LlmCaller caller() { return key.caller(); }
+        public String model() { return key.model(); }
+        public String provider() { return key.provider(); }
+        public Long roomId() { return key.roomId(); }
+        public Long userId() { return key.userId(); }
+    }
+
+    private static final class Counters {
+        final LongAdder calls = new LongAdder();
+        final LongAdder promptTokens = new LongAdder();
+        final LongAdder completionTokens = new LongAdder();
+        final LongAdder cachedTokens = new LongAdder();
+        final LongAdder costMicros = new LongAdder();
+        /** flush 스레드 전용 */
+        int idleFlushes = 0;
+
+        void add(long calls, long prompt, long completion, long cached, long cost) {
+            this.calls.add(calls);
+            promptTokens.add(prompt);
+            completionTokens.add(completion);
+            cachedTokens.add(cached);
+            costMicros.add(cost);
+        }
+    }
+
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+    //  기록 (호출 경로 — non-blocking)
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+
+    /** 현재 스레드 태그({@link LlmUsageContext})로 기록 */
+    public void record(String model, String provider, OpenAiUsage usage) {
+        LlmUsageContext.Tag tag = LlmUsageContext.current();
+        record(tag.caller(), model, provider, tag.roomId(), tag.userId(), usage);
+    }
+
+    /**
+     * usage가 null이면(프로바이더 미제공·스트림 중단) 호출 수만 센다 — 토큰 누락 호출 비율 추적용.
+     * 계측 실패가 LLM 호출 흐름을 깨면 안 되므로 예외는 삼킨다.
+     */
+    public void record(LlmCaller caller, String model, String provider,
+                       Long roomId, Long userId, OpenAiUsage usage) {
+        try {
+            UsageKey key = new UsageKey(
+                caller != null ? caller : LlmCaller.OTHER,
+                model != null ? model : "unknown",
+                provider != null ? provider : "default",
+                roomId, userId);
+            Counters c = counters.computeIfAbsent(key, k -> new Counters());
+            if (usage == null) {
+                c.calls.increment();
+                return;
+            }
+            long cost = usage.cost() != null ? Math.round(usage.cost() * MICROS_PER_USD) : 0L;
+            c.add(1, usage.promptTokens(), usage.completionTokens(), usage.cachedTokens(), cost);
+            LongAdder[] totals = cacheTotals.computeIfAbsent(key.caller(),
+                k -> new LongAdder[]{new LongAdder(), new LongAdder()});
+            totals[0].add(usage.promptTokens());
+            totals[1].add(usage.cachedTokens());
+        } catch (Exception e) {
+            log.debug("[METERING] record failed: {}", e.getMessage());
+        }
+    }
+
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+    //  배치 flush
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+
+    @Scheduled(fixedDelayString = "${llm.usage.flush-interval-ms:30000}")
+    public void flush() {
+        LocalDateTime from = windowStart;
+        LocalDateTime to = LocalDateTime.now();
+        windowStart = to;
+
+        List<UsageDelta> batch = new ArrayList<>();
+        for (Map.Entry<UsageKey, Counters> e : counters.entrySet()) {
+            Counters c = e.getValue();
+            UsageDelta delta = drain(e.getKey(), c);
+            if (delta != null) {
+                c.idleFlushes = 0;
+                batch.add(delta);
+                continue;
+            }
+            if (++c.idleFlushes >= IDLE_FLUSHES_BEFORE_EVICT && counters.remove(e.getKey(), c)) {
+                UsageDelta residual = drain(e.getKey(), c);
+                if (residual != null) batch.add(residual);
+            }
+        }
+        if (batch.isEmpty()) return;
+
+        long start = System.currentTimeMillis();
+        try {
+            usageStore.insertBatch(from, to, batch);
+            log.info("📊 [METERING] flushed {} rows | {}ms", batch.size(), System.currentTimeMillis() - start);
+        } catch (Exception ex) {
+            // 다음 flush에 재시도 — 델타를 카운터에 되돌린다
+            for (UsageDelta d : batch) {
+                counters.computeIfAbsent(d.key(), k -> new Counters())
+                    .add(d.calls(), d.promptTokens(), d.completionTokens(), d.cachedTokens(), d.costMicros());
+            }
+            windowStart = from;
+            log.warn("⚠️ [METERING] flush failed, {} rows requeued: {}", batch.size(), ex.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    private static UsageDelta drain(UsageKey key, Counters c) {
+        long calls = c.calls.sumThenReset();
+        long prompt = c.promptTokens.sumThenReset();
+        long completion = c.completionTokens.sumThenReset();
+        long cached = c.cachedTokens.sumThenReset();
+        long cost = c.costMicros.sumThenReset();
+        if (calls == 0 && prompt == 0 && completion == 0) return null;
+        return new UsageDelta(key, calls, prompt, completion, cached, cost);
+    }
+
+    /** [Perf] caller별 누적 프롬프트 캐시 적중 — 기동 이후 전체 */
+    public Map<LlmCaller, CacheStats> getCacheStats() {
+        Map<LlmCaller, CacheStats> result = new EnumMap<>(LlmCaller.class);
+        cacheTotals.forEach((caller, totals) ->
+            result.put(caller, new CacheStats(totals[0].sum(), totals[1].sum())));
+        return result;
+    }
+
+    public record CacheStats(long promptTokens, long cachedTokens) {
+        public double cachedRate() {
+            return promptTokens == 0 ? 0.0 : (double) cachedTokens / promptTokens;
+        }
+    }
+
+    /** 아직 flush되지 않은 키 수 (관리자 화면 참고용) */
+    public int pendingKeyCount() {
+        return counters.size();
+    }
+}
@@ -0,0 +1,100 @@
+package com.spring.aichat.service.metering;
+
+import com.spring.aichat.dto.admin.LlmUsageRollup;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * [Metering] llm_usage_rollups (V28) JDBC 저장소
+ *
+ * <p>flush 델타를 JdbcTemplate batchUpdate로 한 번에 쓴다 — JPA IDENTITY 엔티티는
+ * Hibernate batch insert가 비활성화되어 행마다 round-trip이 생기므로 사용하지 않는다.
+ * 조회는 기간 내 행을 차원별 GROUP BY로 롤업한다.
+ */
+@Repository
+@RequiredArgsConstructor
+public class LlmUsageStore {
+
+    /** 롤업 차원 → 컬럼 (화이트리스트 — SQL에 직접 삽입되므로 외부 입력 금지) */
+    public enum Dimension {
+        CALLER("caller"), MODEL("model"), PROVIDER("provider"), ROOM("room_id"), USER("user_id");
+
+        private final String column;
+
+        Dimension(String column) {
+            this.column = column;
+        }
+    }
+
+    public enum SortBy { COST, TOKENS, CALLS }
+
+    private static final String INSERT_SQL = """
+        INSERT INTO llm_usage_rollups
+            (bucket_start, bucket_end, caller, model, provider, room_id, user_id,
+             calls, prompt_tokens, completion_tokens, cached_tokens, cost_usd)
+        VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+        """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void insertBatch(LocalDateTime from, LocalDateTime to, List<LlmUsageMeter.UsageDelta> rows) {
+        Timestamp bucketStart = Timestamp.valueOf(from);
+        Timestamp bucketEnd = Timestamp.valueOf(to);
+        jdbcTemplate.batchUpdate(INSERT_SQL, rows, rows.size(), (ps, d) -> {
+            ps.setTimestamp(1, bucketStart);
+            ps.setTimestamp(2, bucketEnd);
+            ps.setString(3, d.caller().name());
+            ps.setString(4, truncate(d.model(), 120));
+            ps.setString(5, truncate(d.provider(), 60));
+            if (d.roomId() != null) ps.setLong(6, d.roomId()); else ps.setNull(6, Types.BIGINT);
+            if (d.userId() != null) ps.setLong(7, d.userId()); else ps.setNull(7, Types.BIGINT);
+            ps.setLong(8, d.calls());
+            ps.setLong(9, d.promptTokens());
+            ps.setLong(10, d.completionTokens());
+            ps.setLong(11, d.cachedTokens());
+            ps.setBigDecimal(12, BigDecimal.valueOf(d.costMicros(), 6));
+        });
+    }
+
+    public List<LlmUsageRollup> topN(Dimension dimension, LocalDateTime since, SortBy sortBy, int limit) {
+        String orderBy = switch (sortBy) {
+            case COST -> "cost_usd";
+            case TOKENS -> "prompt_tokens + completion_tokens";
+            case CALLS -> "calls";
+        };
+        String sql = """
+            SELECT dim_key, calls, prompt_tokens, completion_tokens, cached_tokens, cost_usd FROM (
+                SELECT CAST(%1$s AS VARCHAR(120)) AS dim_key,
+                       SUM(calls) AS calls,
+                       SUM(prompt_tokens) AS prompt_tokens,
+                       SUM(completion_tokens) AS completion_tokens,
+                       SUM(cached_tokens) AS cached_tokens,
+                       SUM(cost_usd) AS cost_usd
+                FROM llm_usage_rollups
+                WHERE bucket_start >= ?
+                GROUP BY %1$s
+            ) t
+            ORDER BY %2$s DESC
+            LIMIT ?
+            """.formatted(dimension.column, orderBy);
+        return jdbcTemplate.query(sql, (rs, i) -> new LlmUsageRollup(
+                rs.getString("dim_key"),
+                rs.getLong("calls"),
+                rs.getLong("prompt_tokens"),
+                rs.getLong("completion_tokens"),
+                rs.getLong("cached_tokens"),
+                rs.getBigDecimal("cost_usd")),
+            Timestamp.valueOf(since), limit);
+    }
+
+    private static String truncate(String s, int max) {
+        return s.length() <= max ? s : s.substring(0, max);
+    }
+}
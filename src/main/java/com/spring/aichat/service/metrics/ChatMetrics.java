@@ -0,0 +1,315 @@
+package com.spring.aichat.service.metrics;
+
+import com.spring.aichat.domain.enums.ChatMode;
+import com.spring.aichat.external.OpenRouterStreamClient.StreamResult;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * [Metrics] 채팅 파이프라인 계측 표면 — Micrometer → Actuator {@code /actuator/prometheus}
+ *
+ * <p>기존 {@code [STREAM-PERF]} 로그의 ms 산술을 대체하는 타이머/히스토그램. 로그는 그대로 두고 같은 값을 여기에도 기록한다.
+ * 공통 태그: {@code mode} (SANDBOX/STORY/THEATER, 모름 = NONE) · {@code model} (LLM 모델 id).
+ *
+ * <pre>
+ * chat.llm.ttft / chat.llm.ttfs / chat.llm.stream   LLM 스트림 1건 (첫 토큰 · 첫 씬 · 전체)
+ * chat.llm.parse                                    응답 JSON 추출 + 역직렬화
+ * chat.stage{stage}                                 pre-flight 단계 · tx1 · tx2 · user_save · ttlr · batch(극장)
+ * chat.request                                      요청 1건 전체 (SSE 시작 → final_result, 정상 완료만)
+ * chat.sse.errors{code}                             SSE error 이벤트
+ * memory.retrieval{path} · memory.summarize{model} · moderation.latency{outcome}
+ * background.resolve{layer} · background.generate{outcome}
+ * theater.batch.stall{cause}                       유저가 배치를 기다린 요청 (miss · in_flight) — 극장 선행 생성의 1차 지표
+ * theater.prefetch{outcome} · theater.prefetch.lead 선행 생성 결과 · 필요 시각 대비 도착 여유
+ * theater.branch.speculation{outcome}               분기 추측 배치 — hit율 = (hit + hit_inflight) / (hit + hit_inflight + miss)
+ * theater.branch.speculation.wasted_tokens{source}  탈락 · 폐기된 추측 배치 토큰
+ * theater.scene_log.flush{outcome} · .docs          씬 로그 write-behind insertMany 1회 · 기록 문서 수
+ * theater.snapshot.bytes{kind, measure}            세이브 1건 바이트 — written(청크 + 델타) vs full(전체 JSON이었다면)
+ * theater.snapshot.load                            매니페스트 체인 → 스냅샷 복원
+ * chat.sse.active{route}                            열린 SSE 연결 수
+ * </pre>
+ * 서킷 브레이커 · Executor 게이지는 {@link com.spring.aichat.config.MetricsConfig}가 바인딩한다.
+ *
+ * <p>모델 id는 설정값(부스트/극장 라우팅 몇 종)이라 태그 카디널리티가 작다 — roomId/userId는 절대 태그로 쓰지 않는다
+ * (방·유저 단위는 {@link com.spring.aichat.service.metering.LlmUsageMeter}가 DB로 집계).
+ */
+@Component
+public class ChatMetrics {
+
+    public static final String TAG_MODE = "mode";
+    public static final String TAG_MODEL = "model";
+    private static final String NONE = "NONE";
+
+    private static final Duration MIN_LATENCY = Duration.ofMillis(1);
+    private static final Duration MAX_LATENCY = Duration.ofSeconds(150);  // SSE 타임아웃
+
+    private final MeterRegistry registry;
+    private final ConcurrentHashMap<String, AtomicInteger> activeSse = new ConcurrentHashMap<>();
+
+    public ChatMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    /** 레지스트리가 없는 단위 테스트·수동 생성용 — 빈 composite는 아무것도 기록하지 않는다 */
+    public static ChatMetrics noop() {
+        return new ChatMetrics(new CompositeMeterRegistry());
+    }
+
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+    //  LLM
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+
+    /**
+     * LLM 스트림 1건 — 폴백/헤지를 포함한 호출측 관점 (승자 스트림의 TTFT/TTFS, 전체 소요는 폴백 대기 포함).
+     * TTFS는 씬이 하나도 스트리밍되지 않았으면(-1) 기록하지 않는다.
+     */
+    public void recordStream(ChatMode mode, String model, StreamResult result, long streamMs) {
+        Tags tags = tags(mode, model);
+        if (result.ttft() >= 0) latency("chat.llm.ttft", "time to first token", tags).record(result.ttft(), TimeUnit.MILLISECONDS);
+        if (result.ttfs() >= 0) latency("chat.llm.ttfs", "time to first streamed scene", tags).record(result.ttfs(), TimeUnit.MILLISECONDS);
+        latency("chat.llm.stream", "LLM stream wall time", tags).record(streamMs, TimeUnit.MILLISECONDS);
+    }
+
+    /** 비스트리밍 LLM 호출 (극장 배치 등) — 전체 소요만 */
+    public void recordCompletion(ChatMode mode, String model, long elapsedMs) {
+        latency("chat.llm.stream", "LLM stream wall time", tags(mode, model)).record(elapsedMs, TimeUnit.MILLISECONDS);
+    }
+
+    public void recordParse(ChatMode mode, long elapsedNanos) {
+        Timer.builder("chat.llm.parse")
+            .description("LLM JSON extraction + deserialization")
+            .tags(TAG_MODE, modeTag(mode))
+            .publishPercentileHistogram()
+            .register(registry)
+            .record(elapsedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+    //  요청 단계
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+
+    /** @param stage ChatPreflight 단계명 (room · moderation · history · memory · world · tx1 · user_save · ttlr · preflight), tx2, 극장 batch */
+    public void recordStage(ChatMode mode, String stage, long elapsedMs) {
+        latency("chat.stage", "chat request stage", Tags.of(TAG_MODE, modeTag(mode), "stage", stage))
+            .record(elapsedMs, TimeUnit.MILLISECONDS);
+    }
+
+    /** 정상 완료(final_result 전송)된 요청만 — 실패는 {@link #countSseError} */
+    public void recordRequest(ChatMode mode, String model, long elapsedMs) {
+        latency("chat.request", "chat SSE request end to end", tags(mode, model))
+            .record(elapsedMs, TimeUnit.MILLISECONDS);
+    }
+
+    /** @param code SSE error 이벤트 코드 (LLM_ERROR · PARSE_ERROR · TX_ERROR · CONTENT_BLOCKED ...) */
+    public void countSseError(String code) {
+        Counter.builder("chat.sse.errors")
+            .description("SSE error events sent to clients")
+            .tag("code", code)
+            .register(registry)
+            .increment();
+    }
+
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+    //  하위 서비스
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+
+    /** @param path cache_hit · db · empty · selective · error */
+    public void recordMemoryRetrieval(String path, long elapsedMs) {
+        latency("memory.retrieval", "long-term memory retrieval", Tags.of("path", path))
+            .record(elapsedMs, TimeUnit.MILLISECONDS);
+    }
+
+    /** 요약 윈도우 1건 (로그 로드 → LLM 요약 → RDB 저장) — 비동기 경로라 mode 없음 */
+    public void recordMemorySummary(String model, long elapsedMs) {
+        Timer.builder("memory.summarize")
+            .description("long-term memory summarization window")
+            .tag(TAG_MODEL, model != null ? model : NONE)
+            .publishPercentileHistogram()
+            .maximumExpectedValue(MAX_LATENCY)
+            .register(registry)
+            .record(elapsedMs, TimeUnit.MILLISECONDS);
+    }
+
+    /** @param outcome pass · blocked_keyword · blocked_api */
+    public void recordModeration(String outcome, long elapsedMs) {
+        latency("moderation.latency", "2-step content moderation", Tags.of("outcome", outcome))
+            .record(elapsedMs, TimeUnit.MILLISECONDS);
+    }
+
+    /** @param layer ugc · redis · db · miss */
+    public void countBackgroundResolve(String layer) {
+        Counter.builder("background.resolve")
+            .description("background cache lookups by serving layer")
+            .tag("layer", layer)
+            .register(registry)
+            .increment();
+    }
+
+    /** @param outcome ok · failed · skipped */
+    public void recordBackgroundGeneration(String outcome, long elapsedMs) {
+        Timer.builder("background.generate")
+            .description("async background image generation")
+            .tag("outcome", outcome)
+            .publishPercentileHistogram()
+            .maximumExpectedValue(Duration.ofMinutes(3))
+            .register(registry)
+            .record(elapsedMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 극장 배치 정체 — 요청 시점에 배치가 준비돼 있지 않아 유저가 기다림 ({@link com.spring.aichat.service.theater.TheaterPrefetchScheduler}).
+     * count = 정체 횟수, 분포 = 기다린 시간.
+     *
+     * @param cause miss(동기 생성) · in_flight(선행 생성 따라잡기)
+     */
+    public void recordBatchStall(String cause, long waitMs) {
+        latency("theater.batch.stall", "user waited for a theater batch", Tags.of("cause", cause))
+            .record(waitMs, TimeUnit.MILLISECONDS);
+    }
+
+    /** @param outcome scheduled · requested · done · cached · skipped · stale · failed · shed · expired · rejected */
+    public void countPrefetch(String outcome) {
+        Counter.builder("theater.prefetch")
+            .description("theater batch prefetch scheduler outcomes")
+            .tag("outcome", outcome)
+            .register(registry)
+            .increment();
+    }
+
+    /** 선행 생성 완료 시각이 필요 예상 시각보다 얼마나 앞섰나 — 음수(늦음)는 정체로 잡히므로 기록하지 않는다 */
+    public void recordPrefetchLead(long leadMs) {
+        if (leadMs < 0) return;
+        latency("theater.prefetch.lead", "prefetched batch ready ahead of need", Tags.empty())
+            .record(leadMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 분기 선택지별 추측 배치 ({@link com.spring.aichat.service.theater.TheaterBranchSpeculator}).
+     *
+     * @param outcome started · hit(완성 초안 승격) · hit_inflight(생성 중 승격) · miss · cancelled(탈락 취소) ·
+     *                discarded(완성 후 탈락) · failed · stale(배치 위치 어긋남) · skipped_budget · rejected(풀 포화) ·
+     *                shed(선행 생성 부하로 양보)
+     */
+    public void countBranchSpeculation(String outcome) {
+        Counter.builder("theater.branch.speculation")
+            .description("speculative branch batch outcomes")
+            .tag("outcome", outcome)
+            .register(registry)
+            .increment();
+    }
+
+    /**
+     * 버려진 추측 배치 1건의 토큰.
+     *
+     * @param estimated true면 usage를 받기 전에 취소된 스트림 — 스트리밍된 씬 문자 수로 추정
+     */
+    public void recordSpeculationWaste(long tokens, boolean estimated) {
+        DistributionSummary.builder("theater.branch.speculation.wasted_tokens")
+            .description("tokens spent on speculative branch batches that were not chosen")
+            .baseUnit("tokens")
+            .tag("source", estimated ? "estimated" : "metered")
+            .register(registry)
+            .record(tokens);
+    }
+
+    /**
+     * 씬 로그 write-behind flush 1회 ({@link com.spring.aichat.service.theater.TheaterSceneLogWriter}).
+     *
+     * @param outcome ok · partial(일부 다음 flush로 이월) · failed(전부 이월)
+     */
+    public void recordSceneLogFlush(String outcome, int docs, long elapsedMs) {
+        latency("theater.scene_log.flush", "theater scene log insertMany flush", Tags.of("outcome", outcome))
+            .record(elapsedMs, TimeUnit.MILLISECONDS);
+        DistributionSummary.builder("theater.scene_log.flush.docs")
+            .description("scene log documents written per flush")
+            .baseUnit("documents")
+            .register(registry)
+            .record(docs);
+    }
+
+    /**
+     * 세이브 스냅샷 1건 ({@link com.spring.aichat.service.theater.TheaterSnapshotStore}).
+     * 같은 kind의 written / full 합계 비율이 델타 저장의 절감률.
+     *
+     * @param kind full(체인 시작) · delta
+     */
+    public void recordSnapshotSave(String kind, long bytesWritten, long fullBytes) {
+        snapshotBytes(kind, "written").record(bytesWritten);
+        snapshotBytes(kind, "full").record(fullBytes);
+    }
+
+    public void recordSnapshotLoad(long elapsedMs) {
+        latency("theater.snapshot.load", "theater save snapshot reconstruction", Tags.empty())
+            .record(elapsedMs, TimeUnit.MILLISECONDS);
+    }
+
+    private DistributionSummary snapshotBytes(String kind, String measure) {
+        return DistributionSummary.builder("theater.snapshot.bytes")
+            .description("bytes per theater save — written vs full snapshot size")
+            .baseUnit("bytes")
+            .tags("kind", kind, "measure", measure)
+            .register(registry);
+    }
+
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+    //  SSE 연결
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+
+    /**
+     * 열린 SSE 연결 게이지 — 완료 콜백(정상 · 타임아웃 · 에러 모두 경유)에서 1회만 감소.
+     *
+     * @param route 엔드포인트 계열 (chat · story_v2 · story_v2_opening · director · theater_batch)
+     */
+    public SseEmitter trackSse(SseEmitter emitter, String route) {
+        AtomicInteger active = activeSse.computeIfAbsent(route, r -> {
+            AtomicInteger gauge = new AtomicInteger();
+            Gauge.builder("chat.sse.active", gauge, AtomicInteger::get)
+                .description("open SSE connections")
+                .tag("route", r)
+                .register(registry);
+            return gauge;
+        });
+        active.incrementAndGet();
+        AtomicBoolean released = new AtomicBoolean();
+        emitter.onCompletion(() -> {
+            if (released.compareAndSet(false, true)) active.decrementAndGet();
+        });
+        return emitter;
+    }
+
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+    //  내부
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+
+    /** 레지스트리가 (이름, 태그)로 중복 등록을 흡수한다 — 호출마다 builder여도 미터는 1개 */
+    private Timer latency(String name, String description, Tags tags) {
+        return Timer.builder(name)
+            .description(description)
+            .tags(tags)
+            .publishPercentileHistogram()
+            .minimumExpectedValue(MIN_LATENCY)
+            .maximumExpectedValue(MAX_LATENCY)
+            .register(registry);
+    }
+
+    private static Tags tags(ChatMode mode, String model) {
+        return Tags.of(TAG_MODE, modeTag(mode), TAG_MODEL, model != null ? model : NONE);
+    }
+
+    private static String modeTag(ChatMode mode) {
+        return mode != null ? mode.name() : NONE;
+    }
+}
@@ -0,0 +1,156 @@
+package com.spring.aichat.service.metrics;
+
+import com.spring.aichat.domain.enums.ChatMode;
+import io.micrometer.tracing.Tracer;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * [Tracing] 채팅 파이프라인 스팬 — Micrometer Tracing (OTel 브리지) → OTLP
+ *
+ * <p>요청 1건 = {@code chat.stream} 루트 아래 단계별 자식 스팬:
+ * <pre>
+ * http.server.requests (Boot 자동)
+ *  └ chat.stream{chat.mode}                       @Async 핸드오프 — taskExecutor TaskDecorator가 컨텍스트 전달
+ *     ├ chat.preflight
+ *     │  ├ chat.preflight.{moderation|history|memory|world}   chat-preflight 풀 (wrap)
+ *     │  └ chat.preflight.tx1                      JDBC 스팬 (datasource-micrometer)
+ *     ├ llm.stream{llm.model, llm.provider}         events: first_token · first_scene · ttft_deadline_exceeded(ttft-watchdog)
+ *     ├ chat.llm.parse
+ *     ├ chat.tx2
+ *     └ chat.post                                   메모리 요약 등 @Async 후처리
+ * </pre>
+ * Mongo({@code MongoObservationCommandListener}) · Redis(Lettuce {@code MicrometerTracing}) 명령 스팬은
+ * {@link com.spring.aichat.config.TracingConfig}가 붙인다 — 현재 스팬의 자식으로 자동 중첩.
+ *
+ * <p>샘플링은 {@code management.tracing.sampling.probability} (기본 1%). 샘플되지 않은 요청은 no-op 스팬이라
+ * 여기 호출 비용은 ThreadLocal 교체 정도다. 태그는 저카디널리티만 — roomId는 태그 대신 로그 MDC(traceId)로 잇는다.
+ */
+@Component
+public class ChatTracing {
+
+    private final Tracer tracer;
+
+    public ChatTracing(Tracer tracer) {
+        this.tracer = tracer;
+    }
+
+    /** 트레이서가 없는 단위 테스트·수동 생성용 */
+    public static ChatTracing noop() {
+        return new ChatTracing(Tracer.NOOP);
+    }
+
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+    //  스팬
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+
+    /**
+     * 현재 스팬의 자식을 시작하고 호출 스레드에서 스코프에 올린다 — 반드시 같은 스레드에서 try-with-resources로 닫는다.
+     *
+     * @param mode {@code chat.mode} 태그 (null이면 생략)
+     */
+    public Span start(String name, ChatMode mode) {
+        io.micrometer.tracing.Span span = tracer.nextSpan().name(name);
+        if (mode != null) span.tag("chat.mode", mode.name());
+        return new Span(span.start(), tracer.withSpan(span));
+    }
+
+    /** 본문 실패 시 스팬에 error를 남기고 그대로 전파 */
+    public <T> T inSpan(String name, ChatMode mode, Callable<T> body) throws Exception {
+        try (Span span = start(name, mode)) {
+            try {
+                return body.call();
+            } catch (Exception e) {
+                span.error(e);
+                throw e;
+            }
+        }
+    }
+
+    public void runInSpan(String name, ChatMode mode, Runnable body) {
+        try (Span span = start(name, mode)) {
+            try {
+                body.run();
+            } catch (RuntimeException e) {
+                span.error(e);
+                throw e;
+            }
+        }
+    }
+
+    /** 현재 스팬(없으면 무시)에 이벤트 — 워치독·콜백 스레드에서도 {@link #wrap}으로 넘어온 컨텍스트면 같은 스팬 */
+    public void event(String name) {
+        io.micrometer.tracing.Span current = tracer.currentSpan();
+        if (current != null) current.event(name);
+    }
+
+    /** 현재 스팬에 태그 — SSE error 코드처럼 실패 지점에서 한 줄로 남길 때 */
+    public void tag(String key, String value) {
+        io.micrometer.tracing.Span current = tracer.currentSpan();
+        if (current != null && value != null) current.tag(key, value);
+    }
+
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+    //  스레드 경계
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+
+    /** 지금 스레드의 트레이스 컨텍스트를 캡처해 실행 스레드에서 복원 */
+    public Runnable wrap(Runnable task) {
+        return tracer.currentTraceContext().wrap(task);
+    }
+
+    public <T> Callable<T> wrap(Callable<T> task) {
+        return tracer.currentTraceContext().wrap(task);
+    }
+
+    /** 제출 시점 컨텍스트를 태스크마다 캡처하는 Executor 뷰 — Spring 관리 밖 전용 풀(preflight · hedge)용 */
+    public Executor wrap(Executor executor) {
+        return task -> executor.execute(wrap(task));
+    }
+
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+    //  핸들
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+
+    /** 스코프 + 스팬 — close는 1회만 유효 (스코프 해제 후 end) */
+    public static final class Span implements AutoCloseable {
+        private final io.micrometer.tracing.Span span;
+        private final Tracer.SpanInScope scope;
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private Span(io.micrometer.tracing.Span span, Tracer.SpanInScope scope) {
+            this.span = span;
+            this.scope = scope;
+        }
+
+        public Span tag(String key, String value) {
+            if (value != null) span.tag(key, value);
+            return this;
+        }
+
+        public Span tag(String key, long value) {
+            span.tag(key, value);
+            return this;
+        }
+
+        public Span event(String name) {
+            span.event(name);
+            return this;
+        }
+
+        public Span error(Throwable error) {
+            span.error(error);
+            return this;
+        }
+
+        @Override
+        public void close() {
+            if (!closed.compareAndSet(false, true)) return;
+            scope.close();
+            span.end();
+        }
+    }
+}
@@ -8,12 +8,15 @@ import com.spring.aichat.domain.ugc.UgcWorld;
 import com.spring.aichat.domain.ugc.UgcWorldLocation;
 import com.spring.aichat.domain.ugc.UgcWorldLocationRepository;
 import com.spring.aichat.domain.ugc.UgcWorldRepository;
+import com.spring.aichat.domain.world.World;
 import com.spring.aichat.domain.world.WorldRepository;
 import com.spring.aichat.domain.user.User;
 import com.spring.aichat.security.PromptInjectionGuard;
 import org.springframework.stereotype.Component;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * 시스템 프롬프트(동적) 조립기
@@ -26,6 +29,10 @@ import java.time.LocalDateTime;
  * [Phase 5.5-Sep] 시크릿 모드 통합
  *   - 별도 분기 제거 → 노말 프롬프트에 수위 해제 블록 append
  *   - 페르소나/말투 변경 없음, 콘텐츠 제한만 해제
+ *
+ * [Perf] static prefix 컴파일 캐시 ({@link PromptFragmentCache})
+ *   - 포맷팅이 들어가는 블록은 실제로 읽는 입력값을 키로 fragment 캐시 경유
+ *   - 조립된 staticRules는 fragment 목록 단위로 재사용 — 입력이 같으면 바이트 동일
  */
 @Component
 public class CharacterPromptAssembler {
@@ -36,21 +43,35 @@ public class CharacterPromptAssembler {
     private final UgcWorldRepository ugcWorldRepository;
     private final UgcWorldLocationRepository ugcWorldLocationRepository;
     private final com.spring.aichat.config.SceneIllustrationProperties sceneIllustrationProps;
+    private final PromptFragmentCache fragmentCache;
 
     public CharacterPromptAssembler(PromptInjectionGuard injectionGuard, WorldRepository worldRepository,
                                     UgcWorldRepository ugcWorldRepository,
                                     UgcWorldLocationRepository ugcWorldLocationRepository,
                                     com.spring.aichat.config.SceneIllustrationProperties sceneIllustrationProps,
-                                    com.spring.aichat.config.LegacyFeatureProperties legacy) {
+                                    com.spring.aichat.config.LegacyFeatureProperties legacy,
+                                    PromptFragmentCache fragmentCache) {
         this.injectionGuard = injectionGuard;
         this.worldRepository = worldRepository;
         this.ugcWorldRepository = ugcWorldRepository;
         this.ugcWorldLocationRepository = ugcWorldLocationRepository;
         this.sceneIllustrationProps = sceneIllustrationProps;
         this.legacy = legacy;
+        this.fragmentCache = fragmentCache;
     }
 
-    public record SystemPromptPayload(String staticRules, String dynamicRules, String outputFormat) {}
+    /**
+     * @param memoryRules       장기 기억 블록 — 요약이 추가될 때만 바뀐다 (stable prefix 모드에서 별도 메시지)
+     * @param stateRules        장기 기억을 제외한 턴별 상태 (프로필·스탯·씬 상태)
+     * @param staticFingerprint staticRules의 SHA-256 앞 16 hex — 같은 값이면 프로바이더 prefix 캐시 대상이 동일
+     */
+    public record SystemPromptPayload(String staticRules, String memoryRules, String stateRules,
+                                      String outputFormat, String staticFingerprint) {
+        /** 기존 단일 dynamic 메시지 (장기 기억 + 턴별 상태) */
+        public String dynamicRules() {
+            return memoryRules + stateRules;
+        }
+    }
 
     /**
      * [Phase 5.5-Sep] 통합 엔트리포인트
@@ -72,7 +93,9 @@ public class CharacterPromptAssembler {
         ChatMode mode = room.getChatMode();
 
         // ═══ STATIC RULES (캐시 타겟) ═══
-        StringBuilder staticBuilder = new StringBuilder();
+        // [Perf] 블록별 fragment를 모아 한 번에 연결 — 입력이 같으면 같은 인스턴스가 재사용된다
+        List<String> staticParts = new ArrayList<>();
+        boolean relationGated = legacy.getUnlock().isRelationGated();
 
         // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
         //  [Phase 6 도그푸딩 #3 / Tier 2] 캐릭터 정체성 섹션 — 가장 prominent 위치
@@ -81,7 +104,7 @@ public class CharacterPromptAssembler {
         //  개선: 정체성 섹션을 prompt 첫 위치에 충분한 비중으로 배치.
         //        backstory / coreValues / flaws / behavioralAnchors / speechQuirks 활용.
         //        Soul Preservation Rules로 RLHF 기본 성향 차단.
-        staticBuilder.append("""
+        staticParts.add(fragmentCache.fragment("identity", () -> """
             # YOU ARE: %s
 
             ## Identity
@@ -145,7 +168,11 @@ public class CharacterPromptAssembler {
             buildBehaviorGuide(character),
             EMOTION_GUIDE,
             buildStatSystemBlock(room, effectiveSecretMode)
-        ));
+        ),
+            character.getName(), character.getAge(), character.getEffectiveRole(),
+            character.getEffectivePersonality(effectiveSecretMode), character.getEffectiveTone(effectiveSecretMode),
+            character.getBackstory(), character.getCoreValues(), character.getFlaws(), character.getSpeechQuirks(),
+            character.getEffectiveOocExample(), character.getStoryBehaviorGuide(), effectiveSecretMode));
 
         // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
         //  [Phase 6-Illust] 세계관 컨텍스트 — 시대/문화 정합성 안전망
@@ -169,92 +196,79 @@ public class CharacterPromptAssembler {
         }
 
         if (character.getWorldId() != null) {
-            worldRepository.findById(character.getWorldId()).ifPresent(world -> {
-                staticBuilder.append("""
-            # 🌍 World Setting
-            - World: %s
-            - Description: %s
-            - Mood: %s
-
-            **Constraint:** All location descriptions, scene hints, and environmental details
-            you produce MUST be consistent with this world setting. Do NOT include objects,
-            technology, or cultural elements that contradict the setting (e.g., no modern
-            smartphones in a medieval fantasy world; no magic runes in a contemporary
-            high school world).
-
-            """.formatted(
-                    world.getDisplayName(),
-                    defaultIfBlank(world.getDescription(), "(no extended description)"),
-                    defaultIfBlank(world.getMoodKeywords(), "(no mood keywords)")
-                ));
-            });
+            worldRepository.findById(character.getWorldId()).ifPresent(world ->
+                staticParts.add(fragmentCache.fragment("world", () -> buildWorldBlock(world),
+                    world.getDisplayName(), world.getDescription(), world.getMoodKeywords())));
         } else if (ugcWorld != null) {
-            // [세계관 빌더] UGC 월드 — 공식과 동일한 헤더(# 🌍 World Setting)로 주입해
-            // canonical key <WORLD> prefix 유도·location_description 정합성 지시가 자동 연동된다.
-            // lore는 유저 생성 텍스트이므로 캡슐화(Nickname/Persona 컨벤션)로 프롬프트 구조 위장을 차단.
-            staticBuilder.append("""
-            # 🌍 World Setting
-            - World: %s
-            - Description: %s
-            - Mood: %s
-
-            ## World Lore
-            %s
-
-            **Constraint:** All location descriptions, scene hints, and environmental details
-            you produce MUST be consistent with this world setting. Do NOT include objects,
-            technology, or cultural elements that contradict the setting.
-
-            """.formatted(
-                ugcWorld.getName(),
-                defaultIfBlank(ugcWorld.getIntro(), "(no extended description)"),
-                defaultIfBlank(ugcWorld.getMoodTags(), "(no mood keywords)"),
-                injectionGuard.encapsulate("WORLD_LORE", defaultIfBlank(ugcWorld.getLore(), "(no lore)"))
-            ));
+            UgcWorld world = ugcWorld;
+            staticParts.add(fragmentCache.fragment("ugc-world", () -> buildUgcWorldBlock(world),
+                world.getName(), world.getIntro(), world.getMoodTags(), world.getLore()));
         }
 
         // ── [Phase 5.5-Sep] 시크릿 모드: 수위 해제 블록 ──
         if (effectiveSecretMode) {
-            staticBuilder.append(buildSecretModeBlock());
+            staticParts.add(buildSecretModeBlock());
         }
 
         // ── [스토리 전용] 추가 블록들 ──
         if (ChatModePolicy.supportsSceneDirection(mode)) {
-            staticBuilder.append(buildSceneDirectionGuide(room, character, effectiveSecretMode));
-            staticBuilder.append(buildIllustrationTriggerBlock());
-            staticBuilder.append(buildDynamicLocationBlock(character, room));
+            RelationStatus status = room.getStatusLevel();
+            staticParts.add(fragmentCache.fragment("scene-direction",
+                () -> buildSceneDirectionGuide(room, character, effectiveSecretMode),
+                String.join(", ", character.getAllowedLocations(status, effectiveSecretMode, relationGated)),
+                String.join(", ", character.getAllowedOutfits(status, effectiveSecretMode, relationGated)),
+                character.getEffectiveDefaultOutfit(),
+                character.buildOutfitDescriptionsForPrompt(status, effectiveSecretMode, relationGated),
+                effectiveSecretMode));
+            staticParts.add(buildIllustrationTriggerBlock());
+            staticParts.add(fragmentCache.fragment("dynamic-location",
+                () -> buildDynamicLocationBlock(character, room),
+                String.join(", ", character.getAllLocations()), room.getCurrentDynamicLocationName()));
             // [세계관 빌더] UGC 월드 장소 풀 — 사전 배경이 있는 장소를 동적 장소 채널로 우선 사용
             if (ugcWorld != null && !ugcWorldLocations.isEmpty()) {
-                staticBuilder.append(buildUgcWorldLocationsBlock(ugcWorld, ugcWorldLocations));
+                UgcWorld world = ugcWorld;
+                List<UgcWorldLocation> locations = ugcWorldLocations;
+                List<Object> poolInputs = new ArrayList<>();
+                poolInputs.add(world.getId());
+                for (UgcWorldLocation loc : locations) {
+                    poolInputs.add(loc.getLocationKey());
+                    poolInputs.add(loc.getDisplayName());
+                    poolInputs.add(loc.getDescription());
+                }
+                staticParts.add(fragmentCache.fragment("ugc-world-locations",
+                    () -> buildUgcWorldLocationsBlock(world, locations), poolInputs.toArray()));
             }
         }
 
         if (ChatModePolicy.supportsInnerThought(mode)) {
-            staticBuilder.append(buildInnerThoughtBlock(effectiveSecretMode));
+            staticParts.add(fragmentCache.fragment("inner-thought",
+                () -> buildInnerThoughtBlock(effectiveSecretMode), effectiveSecretMode));
         }
 
         if (ChatModePolicy.supportsTopicConcluded(mode)) {
-            staticBuilder.append(buildTopicConcludedBlock());
+            staticParts.add(buildTopicConcludedBlock());
         }
 
         if (ChatModePolicy.supportsEvents(mode)) {
-            staticBuilder.append(buildEventStatusBlock(room));
+            staticParts.add(fragmentCache.fragment("event-status", () -> buildEventStatusBlock(room),
+                room.isEventActive(), room.getActiveDirectorNarration(), room.getActiveDirectorConstraint()));
         }
 
         if (ChatModePolicy.supportsNpc(mode) || room.hasActiveDirectorConstraint()) {
-            staticBuilder.append(buildNpcDirectorBlock(room));
+            staticParts.add(fragmentCache.fragment("npc-director", () -> buildNpcDirectorBlock(room),
+                room.isEventActive(), room.hasActiveDirectorConstraint(), room.getCharacter().getName()));
         }
 
         if (ChatModePolicy.supportsEasterEggs(mode)) {
-            staticBuilder.append(buildEasterEggBlock(character));
+            staticParts.add(buildEasterEggBlock(character));
         }
 
         if (mode == ChatMode.STORY) {
-            staticBuilder.append(buildIllustrationHintGuide());
+            staticParts.add(buildIllustrationHintGuide());
         }
 
         // ── [공통] 히스토리 가이드 ──
-        staticBuilder.append("""
+        staticParts.add("""
 
             # 💬 CONVERSATION HISTORY — Speaker Attribution Rules
             The following messages represent the ongoing conversation.
@@ -273,13 +287,13 @@ public class CharacterPromptAssembler {
             - Use BOTH the history and the current state to generate your next response.
             """);
 
-        String staticRules = staticBuilder.toString();
+        PromptFragmentCache.CompiledPrefix staticPrefix = fragmentCache.prefix(staticParts);
 
         // ═══ DYNAMIC RULES ═══
-        StringBuilder dynamicBuilder = new StringBuilder();
-
         // ── [공통] 장기 기억 ──
-        dynamicBuilder.append(buildLongTermMemoryBlock(longTermMemory));
+        String memoryRules = buildLongTermMemoryBlock(longTermMemory);
+
+        StringBuilder dynamicBuilder = new StringBuilder();
 
         // ── [공통] 유저 프로필 ──
         dynamicBuilder.append("""
@@ -352,12 +366,13 @@ public class CharacterPromptAssembler {
         // [블록 D · §G-1] 승급 이벤트 프롬프트 블록 제거 — 5턴 시험 폐지로 주입할 것이 없다.
         //   (승급은 이제 서버가 임계로 즉시 판정한다. LLM에게 요구하던 mood_score도 함께 제거.)
 
-        String dynamicRules = dynamicBuilder.toString();
+        String stateRules = dynamicBuilder.toString();
 
         // ═══ OUTPUT FORMAT ═══
         String outputFormat = buildOutputFormat(room, effectiveSecretMode, mode);
 
-        return new SystemPromptPayload(staticRules, dynamicRules, outputFormat);
+        return new SystemPromptPayload(staticPrefix.text(), memoryRules, stateRules, outputFormat,
+            staticPrefix.fingerprint());
     }
 
     // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
@@ -742,10 +757,14 @@ public class CharacterPromptAssembler {
      * Sandbox: 경량 JSON 스키마 (핵심 필드만)
      */
     private String buildOutputFormat(ChatRoom room, boolean isSecretMode, ChatMode mode) {
-        if (mode == ChatMode.SANDBOX) {
-            return buildStoryOutputFormat(room, isSecretMode);
-        }
-        return buildStoryOutputFormat(room, isSecretMode);
+        // [Perf] 입력: 해금 장소/복장 목록, 이벤트 여부, 캐릭터 이름, 시크릿, 씬 일러 auto 여부
+        Character character = room.getCharacter();
+        boolean relationGated = legacy.getUnlock().isRelationGated();
+        return fragmentCache.fragment("output-format", () -> buildStoryOutputFormat(room, isSecretMode),
+            String.join(", ", character.getAllowedLocations(room.getStatusLevel(), isSecretMode, relationGated)),
+            String.join(", ", character.getAllowedOutfits(room.getStatusLevel(), isSecretMode, relationGated)),
+            room.isEventActive(), character.getName(), isSecretMode,
+            sceneIllustrationProps.isEnabled() && sceneIllustrationProps.isAutoTrigger());
     }
 
     /**
@@ -1167,6 +1186,56 @@ public class CharacterPromptAssembler {
             """;
     }
 
+    /**
+     * [Phase 6-Illust] 공식 세계관 컨텍스트 블록
+     */
+    private String buildWorldBlock(World world) {
+        return """
+            # 🌍 World Setting
+            - World: %s
+            - Description: %s
+            - Mood: %s
+
+            **Constraint:** All location descriptions, scene hints, and environmental details
+            you produce MUST be consistent with this world setting. Do NOT include objects,
+            technology, or cultural elements that contradict the setting (e.g., no modern
+            smartphones in a medieval fantasy world; no magic runes in a contemporary
+            high school world).
+
+            """.formatted(
+            world.getDisplayName(),
+            defaultIfBlank(world.getDescription(), "(no extended description)"),
+            defaultIfBlank(world.getMoodKeywords(), "(no mood keywords)")
+        );
+    }
+
+    /**
+     * [세계관 빌더] UGC 월드 컨텍스트 블록 — 공식과 동일한 헤더(# 🌍 World Setting)로 주입해
+     * canonical key <WORLD> prefix 유도·location_description 정합성 지시가 자동 연동된다.
+     * lore는 유저 생성 텍스트이므로 캡슐화(Nickname/Persona 컨벤션)로 프롬프트 구조 위장을 차단.
+     */
+    private String buildUgcWorldBlock(UgcWorld ugcWorld) {
+        return """
+            # 🌍 World Setting
+            - World: %s
+            - Description: %s
+            - Mood: %s
+
+            ## World Lore
+            %s
+
+            **Constraint:** All location descriptions, scene hints, and environmental details
+            you produce MUST be consistent with this world setting. Do NOT include objects,
+            technology, or cultural elements that contradict the setting.
+
+            """.formatted(
+            ugcWorld.getName(),
+            defaultIfBlank(ugcWorld.getIntro(), "(no extended description)"),
+            defaultIfBlank(ugcWorld.getMoodTags(), "(no mood keywords)"),
+            injectionGuard.encapsulate("WORLD_LORE", defaultIfBlank(ugcWorld.getLore(), "(no lore)"))
+        );
+    }
+
     /**
      * [Phase 5.5-Director] 이벤트/디렉터 상태 블록
      *
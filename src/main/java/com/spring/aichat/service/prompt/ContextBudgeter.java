@@ -0,0 +1,111 @@
+package com.spring.aichat.service.prompt;
+
+import com.spring.aichat.config.TokenBudgetProperties;
+import com.spring.aichat.domain.enums.ChatMode;
+import com.spring.aichat.domain.enums.ChatModePolicy;
+import com.spring.aichat.dto.openai.OpenAiMessage;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * [Perf] 토큰 예산 기반 컨텍스트 구성 — "최근 20개 고정" 대신 모델별 예산에 맞춰 채운다
+ *
+ * ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+ *  채우는 순서
+ * ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+ *  1. 출력 몫 — {@link ChatModePolicy#getMaxOutputTokens} 만큼 먼저 떼어 둔다
+ *  2. 고정 파트 — 시스템 규칙 · 장기 기억 · 턴별 상태 (호출자가 추정해 넘김)
+ *  3. 최근 대화 — 최신부터 거꾸로, 남은 예산에 들어가는 만큼
+ *
+ * 대화는 앞(오래된 쪽)에서만 덜어낸다. stable prefix 모드에서는 granularity(블록 크기) 단위로만
+ * 잘라 히스토리 시작이 계속 블록 경계에 남게 한다 → 트리밍이 프롬프트 캐시 prefix를 매 턴 흔들지 않는다.
+ * 직전 맥락 {@value #MIN_KEEP}개는 예산을 넘어도 유지.
+ *
+ * max_tokens는 "예산 - 실제 프롬프트"를 모드별 [하한, 상한]으로 자른 값 — 고정 파트가 큰 방에서만 줄어든다.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class ContextBudgeter {
+
+    static final int MIN_KEEP = 4;
+
+    private final TokenEstimator estimator;
+    private final TokenBudgetProperties properties;
+
+    private final LongAdder plans = new LongAdder();
+    private final LongAdder trimmedPlans = new LongAdder();
+    private final LongAdder trimmedMessages = new LongAdder();
+
+    /**
+     * @param skip         turns 앞에서 버릴 개수 (granularity 배수)
+     * @param promptTokens 추정 프롬프트 토큰 (비활성 시 0)
+     * @param maxTokens    요청 max_tokens
+     */
+    public record Plan(int skip, int promptTokens, int maxTokens) {}
+
+    /** 예산에 맞춰 조립된 요청 메시지 + max_tokens */
+    public record Budgeted(List<OpenAiMessage> messages, int maxTokens) {}
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    public int estimate(OpenAiMessage message, String model) {
+        return estimator.estimate(message, model);
+    }
+
+    /**
+     * @param fixedTokens 대화 외 메시지들의 추정 토큰 합 ({@link #estimate})
+     * @param turns       최근 대화 (오래된 → 최신). null 원소는 0토큰
+     * @param granularity 트리밍 단위 (stable prefix 블록 크기, 아니면 1)
+     */
+    public Plan plan(String model, ChatMode mode, int fixedTokens, List<OpenAiMessage> turns, int granularity) {
+        int ceiling = ChatModePolicy.getMaxOutputTokens(mode);
+        if (!properties.isEnabled()) {
+            return new Plan(0, 0, ceiling);
+        }
+        plans.increment();
+
+        int size = turns.size();
+        int[] suffix = new int[size + 1];  // suffix[i] = turns[i..] 토큰 합
+        for (int i = size - 1; i >= 0; i--) {
+            suffix[i] = suffix[i + 1] + estimator.estimate(turns.get(i), model);
+        }
+
+        int budget = properties.contextTokensFor(model);
+        int available = budget - ceiling - fixedTokens;
+        int step = Math.max(1, granularity);
+        int maxSkip = size > MIN_KEEP ? (size - MIN_KEEP) / step * step : 0;
+
+        int skip = 0;
+        while (skip < maxSkip && suffix[skip] > available) {
+            skip += step;
+        }
+
+        int promptTokens = fixedTokens + suffix[skip];
+        int maxTokens = Math.max(ChatModePolicy.getMinOutputTokens(mode), Math.min(ceiling, budget - promptTokens));
+
+        if (skip > 0) {
+            trimmedPlans.increment();
+            trimmedMessages.add(skip);
+            log.debug("✂️ [CTX-BUDGET] model={} | mode={} | budget={} | prompt≈{} | trimmed={}/{} | max_tokens={}",
+                model, mode, budget, promptTokens, skip, size, maxTokens);
+        }
+        return new Plan(skip, promptTokens, maxTokens);
+    }
+
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+    //  통계
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+
+    public Stats getStats() {
+        return new Stats(plans.sum(), trimmedPlans.sum(), trimmedMessages.sum());
+    }
+
+    public record Stats(long plans, long trimmedPlans, long trimmedMessages) {}
+}
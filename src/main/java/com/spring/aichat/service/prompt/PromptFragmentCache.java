@@ -0,0 +1,121 @@
+package com.spring.aichat.service.prompt;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * [Perf] 시스템 프롬프트 컴파일 캐시 — 블록(fragment) 단위 + 조립된 static prefix 단위 2계층
+ *
+ * ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+ *  1계층: fragment — 내용 주소 지정 (content-addressed)
+ * ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+ *  키 = (블록 이름, 블록이 실제로 읽는 입력값 목록). 입력값은 템플릿에 들어가는 인자 그대로
+ *  (캐릭터 필드, 세계관, 시크릿 여부, 관계 단계로 계산된 해금 목록 등)라서
+ *  입력이 같으면 출력이 같다는 것이 구조적으로 보장된다 — 별도 버전 컬럼/무효화 불필요.
+ *  캐릭터 수정 → 입력값이 달라져 새 키로 컴파일, 옛 항목은 용량 초과 시 축출.
+ *
+ * ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+ *  2계층: prefix — fragment 인스턴스 목록 → 연결된 staticRules + fingerprint
+ * ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+ *  1계층 hit은 같은 String 인스턴스를 돌려주므로 목록 비교는 사실상 참조 비교(O(블록 수)).
+ *  정상 턴은 ~30KB 연결·포맷팅 없이 같은 prefix 인스턴스를 그대로 재사용한다.
+ *  fingerprint(SHA-256 앞 16 hex)는 prefix 컴파일 시 1회 계산 — 프로바이더 prefix 캐시 안정성 추적용.
+ *
+ * 용량은 문자 수 가중치로 제한 (fragment/prefix 각각). 비활성 시 매번 빌드 — 기존 동작과 동일.
+ */
+@Component
+@Slf4j
+public class PromptFragmentCache {
+
+    private record FragmentKey(String block, List<Object> inputs) {}
+
+    public record CompiledPrefix(String text, String fingerprint) {}
+
+    private final boolean enabled;
+    private final Cache<FragmentKey, String> fragments;
+    private final Cache<List<String>, CompiledPrefix> prefixes;
+
+    public PromptFragmentCache(@Value("${prompt.fragment-cache.enabled:true}") boolean enabled,
+                               @Value("${prompt.fragment-cache.max-fragment-chars:8000000}") long maxFragmentChars,
+                               @Value("${prompt.fragment-cache.max-prefix-chars:32000000}") long maxPrefixChars) {
+        this.enabled = enabled;
+        this.fragments = Caffeine.newBuilder()
+            .maximumWeight(maxFragmentChars)
+            .<FragmentKey, String>weigher((key, value) -> value.length())
+            .recordStats()
+            .build();
+        this.prefixes = Caffeine.newBuilder()
+            .maximumWeight(maxPrefixChars)
+            .<List<String>, CompiledPrefix>weigher((key, value) -> value.text().length())
+            .recordStats()
+            .build();
+        log.info("🧩 [PROMPT-CACHE] enabled={} | fragmentChars={} | prefixChars={}",
+            enabled, maxFragmentChars, maxPrefixChars);
+    }
+
+    /**
+     * 블록 조회 — miss면 builder로 컴파일해 적재.
+     *
+     * @param inputs builder가 읽는 입력값 전부 (null 허용). 빠뜨리면 다른 방의 블록이 섞이므로
+     *               builder에 들어가는 값과 반드시 일치시킬 것
+     */
+    public String fragment(String block, Supplier<String> builder, Object... inputs) {
+        if (!enabled) return builder.get();
+        return fragments.get(new FragmentKey(block, Arrays.asList(inputs)), k -> builder.get());
+    }
+
+    /** 블록 목록을 순서대로 연결한 static prefix */
+    public CompiledPrefix prefix(List<String> parts) {
+        if (!enabled) return compile(parts);
+        return prefixes.get(parts, this::compile);
+    }
+
+    private CompiledPrefix compile(List<String> parts) {
+        int length = 0;
+        for (String part : parts) length += part.length();
+        StringBuilder sb = new StringBuilder(length);
+        for (String part : parts) sb.append(part);
+        String text = sb.toString();
+        return new CompiledPrefix(text, fingerprint(text));
+    }
+
+    static String fingerprint(String text) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest, 0, 8);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+    //  통계
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+
+    public Stats getStats() {
+        CacheStats f = fragments.stats();
+        CacheStats p = prefixes.stats();
+        return new Stats(f.hitCount(), f.missCount(), fragments.estimatedSize(),
+            p.hitCount(), p.missCount(), prefixes.estimatedSize());
+    }
+
+    public record Stats(long fragmentHits, long fragmentMisses, long fragments,
+                        long prefixHits, long prefixMisses, long prefixes) {
+        public double prefixHitRate() {
+            long total = prefixHits + prefixMisses;
+            return total == 0 ? 0.0 : (double) prefixHits / total;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.spring.aichat.service.prompt;
+
+import com.spring.aichat.dto.openai.OpenAiMessage;
+import com.spring.aichat.service.cache.ChatContextCache;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * [Perf] 프로바이더 프롬프트 캐시용 append-only prefix 레이아웃
+ *
+ * ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+ *  기존 문제
+ * ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+ *  최근 20개 슬라이딩 윈도우는 매 턴 맨 앞 메시지가 빠져 prefix 전체가 바뀐다.
+ *  동적 규칙(스탯·장기 기억)이 히스토리 앞에 오면 그 뒤는 전부 캐시 불가.
+ *
+ * ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+ *  레이아웃 (앞에서부터, ★ = cache_control breakpoint)
+ * ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+ *  1. static rules ★            — 캐릭터/세계관 단위 고정
+ *  2. 요약된 과거 (장기 기억) ★   — 요약이 새로 생길 때만 변경
+ *  3. 히스토리 블록               — 절대 인덱스가 blockSize 배수인 지점에서 시작
+ *     ├ 마지막 완결 블록 끝 ★
+ *     └ 열린 블록 끝(최신 메시지) ★ — 다음 턴은 여기에 append만 된다
+ *  4. 턴별 상태 / 출력 포맷        — prefix 뒤라 매 턴 바뀌어도 무관
+ *
+ * 윈도우 시작은 블록 경계에서만 이동한다 → 한 블록(blockSize개 메시지) 동안 prefix가 append-only.
+ * 대가: 히스토리 길이가 (윈도우 - blockSize + 1) ~ 윈도우 사이로 변동 (20/10 → 11~20개).
+ * blockSize는 윈도우의 약수여야 블록 완결 시점과 시작 이동 시점이 일치한다 (아니면 윈도우로 보정).
+ *
+ * breakpoint는 프로바이더 상한(4개) 이내 — static, 요약, 완결 블록, 최신 메시지.
+ */
+@Component
+@Slf4j
+public class StablePrefixLayout {
+
+    public static final Map<String, Object> EPHEMERAL = Map.of("type", "ephemeral");
+
+    private final boolean enabled;
+    private final int blockSize;
+
+    public StablePrefixLayout(@Value("${llm.prompt-cache.stable-prefix:true}") boolean enabled,
+                              @Value("${llm.prompt-cache.block-size:10}") int blockSize) {
+        this.enabled = enabled;
+        this.blockSize = blockSize > 0 && ChatContextCache.WINDOW_SIZE % blockSize == 0
+            ? blockSize : ChatContextCache.WINDOW_SIZE;
+        log.info("🧱 [PREFIX-LAYOUT] stablePrefix={} | blockSize={}", enabled, this.blockSize);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    /**
+     * @param from      윈도우 리스트에서 사용할 첫 인덱스 (블록 경계)
+     * @param sealedEnd 마지막 완결 블록의 끝 메시지 인덱스 (윈도우 리스트 기준, 없으면 -1)
+     */
+    public record Window(int from, int sealedEnd) {}
+
+    /**
+     * @param total 방의 전체 메시지 수 (윈도우 마지막 원소의 절대 인덱스 = total - 1)
+     * @param size  윈도우 리스트 크기
+     */
+    public Window align(long total, int size) {
+        return align(total, size, blockSize);
+    }
+
+    static Window align(long total, int size, int blockSize) {
+        long first = Math.max(0, total - size);                       // 윈도우[0]의 절대 인덱스
+        long start = Math.floorDiv(first + blockSize - 1, blockSize) * blockSize;
+        long sealed = Math.floorDiv(total, blockSize) * blockSize - 1; // 마지막 완결 블록 끝
+        int from = (int) Math.min(size, start - first);
+        int sealedEnd = sealed >= start ? (int) (sealed - first) : -1;
+        return new Window(from, sealedEnd);
+    }
+
+    /** breakpoint 부착 — 같은 역할/본문에 cache_control만 추가 */
+    public static OpenAiMessage breakpoint(OpenAiMessage message) {
+        return new OpenAiMessage(message.role(), message.content(), EPHEMERAL);
+    }
+}
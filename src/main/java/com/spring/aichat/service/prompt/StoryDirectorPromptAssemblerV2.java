@@ -554,7 +554,7 @@ public class StoryDirectorPromptAssemblerV2 {
 
     private String buildCharacterMemoryBlock(Long roomId, ChatRoomHeroine h) {
         List<HeroineMemorySummary> memories = heroineMemoryRepository
-            .findByRoomIdAndCharacterIdOrderByCreatedAtAsc(roomId, h.getCharacter().getId());
+            .findByRoomIdAndCharacterIdOrderByTurnNumberAscIdAsc(roomId, h.getCharacter().getId());
         if (memories.isEmpty()) return "";
 
         String list = memories.stream()
@@ -0,0 +1,119 @@
+package com.spring.aichat.service.prompt;
+
+import com.spring.aichat.dto.openai.OpenAiMessage;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * [Perf] 오프라인 토큰 수 추정기 — 네트워크·어휘 파일 없이 한 번의 문자 스캔으로 계산
+ *
+ * ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+ *  왜 글자 수가 아닌가
+ * ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+ *  BPE/SentencePiece 계열은 문자 종류별 압축률이 크게 다르다.
+ *  영문은 단어당 ~1토큰(4자/토큰), 한글 음절은 어휘 크기에 따라 0.6~1.5토큰,
+ *  JSON 구두점은 거의 1자 1토큰. 한글 나레이션 + JSON 스키마가 섞인 우리 프롬프트는
+ *  "글자 수 / 4" 같은 단일 비율로는 2배 이상 빗나간다.
+ *
+ * ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+ *  추정 규칙 (문자 클래스별 run 단위)
+ * ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+ *  - 한글 음절: 음절당 {@link Profile#hangulPerSyllable} (어휘별 실측 상단값)
+ *  - 자모 / 한자 / 가나: 1자 1토큰
+ *  - 영문 단어: ceil(길이 / 4)  · 숫자: ceil(길이 / 3) (3자리 분할 규칙)
+ *  - 공백: 단어 앞 공백 1칸은 단어 토큰에 흡수, 줄바꿈 run·연속 공백은 1토큰
+ *  - ASCII 구두점: 1자 1토큰 · 그 외(이모지 등): 보조 평면 2, BMP 1
+ *
+ * 실제 토크나이저보다 약간 크게 나오도록 맞췄다 — 예산 초과(컨텍스트 오버런)보다 과소 사용이 안전.
+ */
+@Component
+public class TokenEstimator {
+
+    /** 메시지 1건당 role/구분자 오버헤드 (chat 포맷 공통) */
+    static final int MESSAGE_OVERHEAD = 4;
+
+    /** 모델 계열별 한글 압축률 */
+    public enum Profile {
+        /** Gemini (SentencePiece 256k) */
+        GEMINI(0.7),
+        /** GPT-4o 이후 (o200k) */
+        O200K(0.9),
+        /** 그 외 / 미상 — 보수적 (cl100k 수준) */
+        DEFAULT(1.4);
+
+        final double hangulPerSyllable;
+
+        Profile(double hangulPerSyllable) {
+            this.hangulPerSyllable = hangulPerSyllable;
+        }
+
+        public static Profile of(String model) {
+            if (model == null) return DEFAULT;
+            String m = model.toLowerCase(Locale.ROOT);
+            if (m.startsWith("google/") || m.contains("gemini")) return GEMINI;
+            if (m.contains("gpt-4o") || m.contains("gpt-4.1") || m.contains("gpt-5")
+                || m.startsWith("openai/o")) return O200K;
+            return DEFAULT;
+        }
+    }
+
+    public int estimate(String text, String model) {
+        return estimate(text, Profile.of(model));
+    }
+
+    public int estimate(OpenAiMessage message, String model) {
+        if (message == null) return 0;
+        return MESSAGE_OVERHEAD + estimate(message.content(), model);
+    }
+
+    public int estimate(List<OpenAiMessage> messages, String model) {
+        Profile profile = Profile.of(model);
+        int total = 0;
+        for (OpenAiMessage message : messages) {
+            if (message != null) total += MESSAGE_OVERHEAD + estimate(message.content(), profile);
+        }
+        return total;
+    }
+
+    static int estimate(String text, Profile profile) {
+        if (text == null || text.isEmpty()) return 0;
+
+        double hangul = 0;
+        int tokens = 0;
+        int n = text.length();
+        int i = 0;
+        while (i < n) {
+            int cp = text.codePointAt(i);
+
+            if (cp >= 0xAC00 && cp <= 0xD7A3) {                       // 한글 음절
+                hangul += profile.hangulPerSyllable;
+                i++;
+            } else if (isAsciiLetter(cp)) {                          // 영문 단어 run
+                int start = i;
+                while (i < n && isAsciiLetter(text.charAt(i))) i++;
+                tokens += (i - start + 3) / 4;
+            } else if (cp >= '0' && cp <= '9') {                     // 숫자 run
+                int start = i;
+                while (i < n && text.charAt(i) >= '0' && text.charAt(i) <= '9') i++;
+                tokens += (i - start + 2) / 3;
+            } else if (cp == ' ' || cp == '\t') {                    // 공백 — 1칸은 다음 단어에 흡수
+                int start = i;
+                while (i < n && (text.charAt(i) == ' ' || text.charAt(i) == '\t')) i++;
+                if (i - start > 1) tokens++;
+            } else if (cp == '\n' || cp == '\r') {                   // 줄바꿈 run
+                while (i < n && (text.charAt(i) == '\n' || text.charAt(i) == '\r')) i++;
+                tokens++;
+            } else {                                                 // 구두점·자모·한자·기호
+                tokens += Character.isSupplementaryCodePoint(cp) ? 2 : 1;
+                i += Character.charCount(cp);
+            }
+        }
+        return tokens + (int) Math.ceil(hangul);
+    }
+
+    private static boolean isAsciiLetter(int c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+}
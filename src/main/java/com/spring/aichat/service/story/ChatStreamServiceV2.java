@@ -10,6 +10,7 @@ import com.spring.aichat.domain.chat.ChatRoomRepository;
 import com.spring.aichat.domain.chat.StoryV2State;
 import com.spring.aichat.domain.chat.StoryV2StateRepository;
 import com.spring.aichat.domain.enums.BgmMode;
+import com.spring.aichat.domain.enums.ChatMode;
 import com.spring.aichat.domain.enums.DayPart;
 import com.spring.aichat.domain.enums.EmotionTag;
 import com.spring.aichat.domain.enums.RelationStatus;
@@ -26,22 +27,31 @@ import com.spring.aichat.dto.story.StoryV2Requests.SendStoryV2MessageRequest;
 import com.spring.aichat.dto.story.StoryV2SendResponse;
 import com.spring.aichat.exception.NotFoundException;
 import com.spring.aichat.external.LlmCircuitBreaker;
-import com.spring.aichat.external.OpenRouterStreamClient;
+import com.spring.aichat.external.LlmHedgedStreamer;
+import com.spring.aichat.external.OpenRouterStreamClient.StreamControl;
 import com.spring.aichat.external.OpenRouterStreamClient.StreamResult;
-import com.spring.aichat.external.LlmCircuitBreaker.TtftTimeoutException;
 import com.spring.aichat.dto.chat.SendChatResponse.LocationTransition;
 import com.spring.aichat.security.PromptInjectionGuard;
 import com.spring.aichat.service.ContentModerationService;
 import com.spring.aichat.service.util.LlmOutputParser;
 import com.spring.aichat.service.MemoryService;
+import com.spring.aichat.service.cache.ChatContextCache;
 import com.spring.aichat.service.cache.RedisCacheService;
 import com.spring.aichat.service.illustration.BackgroundGenerationService;
 import com.spring.aichat.service.payment.BoostModeResolver;
 import com.spring.aichat.service.payment.SecretModeService;
+import com.spring.aichat.service.prompt.ContextBudgeter;
+import com.spring.aichat.service.prompt.StablePrefixLayout;
 import com.spring.aichat.service.prompt.StoryDirectorPromptAssemblerV2;
 import com.spring.aichat.service.prompt.StoryDirectorPromptAssemblerV2.SystemPromptPayload;
 import com.spring.aichat.service.stream.ChatLogPersister;
+import com.spring.aichat.service.stream.ChatPreflight;
+import com.spring.aichat.service.stream.SceneEventSender;
 import com.spring.aichat.service.util.DialogueSanitizer;
+import com.spring.aichat.service.metering.LlmCaller;
+import com.spring.aichat.service.metering.LlmUsageContext;
+import com.spring.aichat.service.metrics.ChatMetrics;
+import com.spring.aichat.service.metrics.ChatTracing;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.scheduling.annotation.Async;
@@ -50,6 +60,7 @@ import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.*;
+import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
@@ -90,9 +101,10 @@ public class ChatStreamServiceV2 {
     private final ChatRoomRepository chatRoomRepository;
     private final UserRepository userRepository;
     private final ChatLogMongoRepository chatLogRepository;
+    private final ChatContextCache chatContextCache;
     private final ChatLogPersister chatLogPersister;
     private final TransactionTemplate txTemplate;
-    private final OpenRouterStreamClient streamClient;
+    private final LlmHedgedStreamer hedgedStreamer;
     private final LlmCircuitBreaker llmCircuitBreaker;
     private final ContentModerationService contentModerationService;
     private final PromptInjectionGuard injectionGuard;
@@ -107,6 +119,15 @@ public class ChatStreamServiceV2 {
     // ── V2 신규 의존성 ──
     private final ChatRoomHeroineRepository heroineRepository;
     private final StoryDirectorPromptAssemblerV2 promptAssembler;
+    /** [Perf] 프롬프트 캐시용 append-only prefix 레이아웃 */
+    private final StablePrefixLayout prefixLayout;
+    /** [Perf] 토큰 예산 기반 히스토리 트리밍 + max_tokens */
+    private final ContextBudgeter contextBudgeter;
+    /** [Perf] 투기 실행 — TX-1 · USER 저장을 LLM 스트림과 병렬로 */
+    private final ChatPreflight preflight;
+    /** [Metrics] TTFT/TTFS · 단계 · 요청 타이머 */
+    private final ChatMetrics chatMetrics;
+    private final ChatTracing chatTracing;
     private final StoryV2StateRepository storyV2StateRepository;
     private final WorldRoutingService routingService;
     private final HeroineMemoryService heroineMemoryService;
@@ -128,8 +149,13 @@ public class ChatStreamServiceV2 {
     private record JpaPreResult(ChatRoom room, Long userId, long logCount,
                                 String username, int energyCost) {}
 
-    record RollbackContext(Long userId, String username, int energyCost,
-                           String savedUserLogId) {}
+    /** @param writes [Perf] 투기 실행 경로 — 보상 시 실제 커밋된 차감액·USER 로그 id를 여기서 확정 (그 외 null) */
+    record RollbackContext(Long roomId, Long userId, String username, int energyCost,
+                           String savedUserLogId, ChatPreflight.Writes writes) {
+        RollbackContext(Long roomId, Long userId, String username, int energyCost, String savedUserLogId) {
+            this(roomId, userId, username, energyCost, savedUserLogId, null);
+        }
+    }
 
     /**
      * V2 LLM 응답 파싱 결과.
@@ -143,7 +169,9 @@ public class ChatStreamServiceV2 {
         EmotionTag lastEmotion,            // 마지막 씬의 emotion (응답 DTO용)
         List<SceneResponse> sceneResponses,
         String scenesJson,
-        Long routedSpeakerId
+        Long routedSpeakerId,
+        int streamedSceneCount,            // [Perf] SSE scene 이벤트로 이미 전달된 씬 수
+        String model                       // [Metrics] 실제 호출 모델 (요청 타이머 태그)
     ) {}
 
     // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
@@ -158,6 +186,8 @@ public class ChatStreamServiceV2 {
 
         String userMessage = request.message() != null ? request.message() : "";
         String actionType = request.actionType();
+        // [Tracing] 파이프라인 루트 (V1 ChatStreamService와 동일 구조)
+        ChatTracing.Span rootSpan = chatTracing.start("chat.stream", ChatMode.STORY);
 
         try {
             // ── 1. Content Moderation ──
@@ -188,16 +218,33 @@ public class ChatStreamServiceV2 {
             }
 
             // ── 2. TX-1 ──
-            JpaPreResult jpa = txTemplate.execute(status -> {
-                ChatRoom room = chatRoomRepository.findWithMemberAndWorldById(roomId)
-                    .orElseThrow(() -> new NotFoundException("채팅방이 존재하지 않습니다."));
-                int cost = boostModeResolver.resolveEnergyCost(room.getChatMode(), room.getUser());
-                room.getUser().consumeEnergy(cost);
-                long logCount = chatLogRepository.countByRoomId(roomId);
-                return new JpaPreResult(room, room.getUser().getId(), logCount,
-                    room.getUser().getUsername(), cost);
-            });
-            cacheService.evictUserProfile(jpa.username());
+            // [Perf] 투기 실행 모드: 커밋을 기다리지 않고 Writes로 — 방은 모더레이션에서 읽은 것을 그대로 쓴다
+            JpaPreResult jpa;
+            ChatPreflight.Writes writes = null;
+            ChatContextCache.Snapshot history = null;
+            if (preflight.isSpeculative()) {
+                String username = roomForCheck.getUser().getUsername();
+                writes = preflight.beginWrites(ChatMode.STORY, () -> {
+                    int cost = debitEnergy(roomId);
+                    cacheService.evictUserProfile(username);
+                    return cost;
+                });
+                history = chatContextCache.snapshot(roomId);
+                jpa = new JpaPreResult(roomForCheck, roomForCheck.getUser().getId(), history.total(), username, 0);
+            } else {
+                long tTx1 = System.currentTimeMillis();
+                jpa = txTemplate.execute(status -> {
+                    ChatRoom room = chatRoomRepository.findWithMemberAndWorldById(roomId)
+                        .orElseThrow(() -> new NotFoundException("채팅방이 존재하지 않습니다."));
+                    int cost = boostModeResolver.resolveEnergyCost(room.getChatMode(), room.getUser());
+                    room.getUser().consumeEnergy(cost);
+                    long logCount = chatContextCache.snapshot(roomId).total();
+                    return new JpaPreResult(room, room.getUser().getId(), logCount,
+                        room.getUser().getUsername(), cost);
+                });
+                preflight.record(ChatMode.STORY, "tx1", System.currentTimeMillis() - tTx1);
+                cacheService.evictUserProfile(jpa.username());
+            }
 
             // ── 3. Prompt Injection Check ──
             if (!userMessage.isBlank()) {
@@ -212,23 +259,44 @@ public class ChatStreamServiceV2 {
             }
 
             // ── 4. 액션 메시지 사전 처리 (MOVE 즉시 반영 + system 메시지 인젝션 결정) ──
+            // [Perf] MOVE는 방 상태를 바꾸므로 투기 실행이어도 차감 커밋 확인 후에만 (에너지 부족 턴의 이동 방지)
+            if (writes != null && "MOVE".equalsIgnoreCase(actionType) && writes.debitFailed()) {
+                failSpeculativeWrites(new RollbackContext(roomId, jpa.userId(), jpa.username(), 0, null, writes), emitter);
+                return;
+            }
             String systemActionInjection = buildSystemActionInjection(jpa.room(), actionType, request.actionPayload());
 
             // ── 5. MongoDB USER 메시지 저장 ──
-            String savedUserLogId;
-            try {
-                ChatLogDocument savedLog = chatLogRepository.save(
-                    buildUserLog(roomId, userMessage, actionType, request.actionPayload()));
-                savedUserLogId = savedLog.getId();
-            } catch (Exception e) {
-                compensateEnergy(jpa.userId(), jpa.energyCost(), jpa.username());
-                sendSseError(emitter, "INTERNAL_ERROR", "메시지 저장에 실패했습니다.");
-                return;
+            RollbackContext rollbackCtx;
+            ChatContextCache.Snapshot historyOverride = null;
+            if (writes != null) {
+                // [Perf] 투기 실행 — 저장은 TX-1 커밋 뒤에 이어서, 히스토리는 저장될 USER 로그를 미리 덧붙인 사본으로
+                ChatLogDocument userLog = buildUserLog(roomId, userMessage, actionType, request.actionPayload());
+                historyOverride = chatContextCache.withPending(history, userLog);
+                writes.thenSaveUserLog(() -> {
+                    ChatLogDocument savedLog = chatLogRepository.save(userLog);
+                    chatContextCache.append(savedLog);
+                    return savedLog.getId();
+                });
+                rollbackCtx = new RollbackContext(roomId, jpa.userId(), jpa.username(), 0, null, writes);
+            } else {
+                String savedUserLogId;
+                long tSave = System.currentTimeMillis();
+                try {
+                    ChatLogDocument savedLog = chatLogRepository.save(
+                        buildUserLog(roomId, userMessage, actionType, request.actionPayload()));
+                    chatContextCache.append(savedLog);
+                    savedUserLogId = savedLog.getId();
+                } catch (Exception e) {
+                    compensateEnergy(jpa.userId(), jpa.energyCost(), jpa.username());
+                    sendSseError(emitter, "INTERNAL_ERROR", "메시지 저장에 실패했습니다.");
+                    return;
+                }
+                preflight.record(ChatMode.STORY, "user_save", System.currentTimeMillis() - tSave);
+                rollbackCtx = new RollbackContext(
+                    roomId, jpa.userId(), jpa.username(), jpa.energyCost(), savedUserLogId);
             }
 
-            RollbackContext rollbackCtx = new RollbackContext(
-                jpa.userId(), jpa.username(), jpa.energyCost(), savedUserLogId);
-
             // ── 6. V2 라우팅 — 시작 화자 결정 ──
             WorldRoutingService.RoutingResult routing = routingService.route(jpa.room(), userMessage);
             log.info("🎯 [V2-ROUTING] roomId={}, routedSpeakerId={}, ambient={}",
@@ -239,20 +307,22 @@ public class ChatStreamServiceV2 {
             ParsedV2Result parsed = streamLlmAndParseV2(
                 jpa.room(), routing.currentSpeakerId(), userMessage,
                 systemActionInjection, jpa.logCount() + 1,
-                effectiveSecretMode, false, emitter, rollbackCtx);
+                effectiveSecretMode, false, emitter, rollbackCtx, historyOverride);
             if (parsed == null) return;
 
             // ── 8. TX-2 ──
             StoryV2SendResponse response;
+            long tTx2 = System.currentTimeMillis();
             try {
-                response = txTemplate.execute(status -> processV2Updates(
-                    roomId, parsed, effectiveSecretMode));
+                response = chatTracing.inSpan("chat.tx2", ChatMode.STORY, () -> txTemplate.execute(
+                    status -> processV2Updates(roomId, parsed, effectiveSecretMode)));
             } catch (Exception e) {
                 log.error("❌ [V2-TX-2] failed | roomId={}", roomId, e);
                 compensateFullRollback(rollbackCtx);
                 sendSseError(emitter, "TX_ERROR", "응답 처리 중 오류가 발생했습니다.");
                 return;
             }
+            preflight.record(ChatMode.STORY, "tx2", System.currentTimeMillis() - tTx2);
 
             // ── 9. MongoDB ASSISTANT 저장 ──
             String assistantLogId = persistAssistantLog(roomId, parsed);
@@ -265,21 +335,26 @@ public class ChatStreamServiceV2 {
             LocationTransition locationTransition =
                 processDynamicBackground(jpa.room(), parsed);
 
-            // ── 12. SSE final_result (모든 씬 포함) ──
+            // ── 12. SSE final_result (씬은 scene 이벤트로 전달 완료 — 누락 시에만 포함) ──
             AiJsonOutputV2.SceneV2 lastSceneAi = parsed.aiOutput().lastScene();
             boolean hasInnerThought = lastSceneAi != null && lastSceneAi.hasInnerThought();
-            sendFinalResult(emitter, response, hasInnerThought, assistantLogId, locationTransition);
+            sendFinalResult(emitter, response, parsed.streamedSceneCount(), hasInnerThought, assistantLogId, locationTransition);
             emitter.complete();
 
-            log.info("⏱ [V2-STREAM] DONE: {}ms | sceneCount={}",
-                System.currentTimeMillis() - totalStart, parsed.aiOutput().sceneCount());
+            long totalMs = System.currentTimeMillis() - totalStart;
+            chatMetrics.recordRequest(ChatMode.STORY, parsed.model(), totalMs);
+            log.info("⏱ [V2-STREAM] DONE: {}ms | sceneCount={}", totalMs, parsed.aiOutput().sceneCount());
 
             // ── 13. Post-processing (메모리 압축 async) ──
-            triggerPostProcessing(roomId, jpa.userId(), jpa.logCount() + 1, parsed.aiOutput());
+            chatTracing.runInSpan("chat.post", ChatMode.STORY, () -> triggerPostProcessing(
+                roomId, jpa.userId(), jpa.logCount() + 1, parsed.aiOutput()));
 
         } catch (Exception e) {
             log.error("❌ [V2-STREAM] Unexpected error | roomId={}", roomId, e);
+            rootSpan.error(e);
             sendSseError(emitter, "UNEXPECTED_ERROR", "예기치 않은 오류가 발생했습니다.");
+        } finally {
+            rootSpan.close();
         }
     }
 
@@ -325,7 +400,7 @@ public class ChatStreamServiceV2 {
             Long userId = room.getUser().getId();
             String username = room.getUser().getUsername();
             // 에너지 미소모 / 유저 로그 미영속 → 롤백은 사실상 no-op (energy=0, userLog=null)
-            RollbackContext rollbackCtx = new RollbackContext(userId, username, 0, null);
+            RollbackContext rollbackCtx = new RollbackContext(roomId, userId, username, 0, null);
 
             // 오프닝 화자 — 시작 장소에 있는 히로인을 자연스럽게 등장(없으면 AMBIENT). route("")는 빈 입력에 안전.
             WorldRoutingService.RoutingResult routing = routingService.route(room, "");
@@ -339,7 +414,7 @@ public class ChatStreamServiceV2 {
             ParsedV2Result parsed = streamLlmAndParseV2(
                 room, routing.currentSpeakerId(), "",
                 openingCue, /* logCountForRag */ 1L,
-                effectiveSecretMode, /* openingMode */ true, emitter, rollbackCtx);
+                effectiveSecretMode, /* openingMode */ true, emitter, rollbackCtx, null);
             if (parsed == null) return;
 
             // ── TX-2 상태 반영 (오프닝은 stat/time/ending/promotion 미변경 — 프롬프트로 제약, BGM 등만 반영) ──
@@ -362,11 +437,12 @@ public class ChatStreamServiceV2 {
 
             AiJsonOutputV2.SceneV2 lastSceneAi = parsed.aiOutput().lastScene();
             boolean hasInnerThought = lastSceneAi != null && lastSceneAi.hasInnerThought();
-            sendFinalResult(emitter, response, hasInnerThought, assistantLogId, locationTransition);
+            sendFinalResult(emitter, response, parsed.streamedSceneCount(), hasInnerThought, assistantLogId, locationTransition);
             emitter.complete();
 
-            log.info("⏱ [V2-OPENING] DONE: {}ms | sceneCount={}",
-                System.currentTimeMillis() - totalStart, parsed.aiOutput().sceneCount());
+            long totalMs = System.currentTimeMillis() - totalStart;
+            chatMetrics.recordRequest(ChatMode.STORY, parsed.model(), totalMs);
+            log.info("⏱ [V2-OPENING] DONE: {}ms | sceneCount={}", totalMs, parsed.aiOutput().sceneCount());
 
             triggerPostProcessing(roomId, userId, 1L, parsed.aiOutput());
 
@@ -420,15 +496,21 @@ public class ChatStreamServiceV2 {
     //  LLM 호출 + 파싱 (멀티 씬 처리)
     // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
 
+    /**
+     * @param historyOverride null이 아니면 캐시 대신 이 스냅샷으로 히스토리 구성 ([Perf] 투기 실행 — 저장 전 USER 포함본)
+     */
     private ParsedV2Result streamLlmAndParseV2(ChatRoom room, Long routedSpeakerId, String userMessage,
                                                String systemActionInjection, long logCountForRag,
                                                boolean effectiveSecretMode, boolean openingMode,
-                                               SseEmitter emitter, RollbackContext rollbackCtx) {
+                                               SseEmitter emitter, RollbackContext rollbackCtx,
+                                               ChatContextCache.Snapshot historyOverride) {
         // RAG: World-level memory (기존 MemoryService 재활용)
+        // [Perf] 기억이 예산을 넘으면 이번 입력(또는 액션) 기준 시맨틱 top-k만
         String worldMemory = "";
         if (logCountForRag >= RAG_SKIP_THRESHOLD) {
             try {
-                worldMemory = memoryService.retrieveContext(room.getId());
+                String query = userMessage != null && !userMessage.isBlank() ? userMessage : systemActionInjection;
+                worldMemory = memoryService.retrieveContext(room.getId(), query).text();
             } catch (Exception e) {
                 log.warn("[V2-RAG] world memory failed (non-blocking): {}", e.getMessage());
             }
@@ -440,10 +522,11 @@ public class ChatStreamServiceV2 {
         SystemPromptPayload systemPrompt = promptAssembler.assemble(
             room, room.getUser(), routedSpeakerId, worldMemory, effectiveSecretMode, openingMode, openThreads);
 
-        List<OpenAiMessage> messages = buildMessageHistoryV2(
-            room.getId(), systemPrompt, systemActionInjection);
-
         String model = boostModeResolver.resolveModel(room.getUser());
+        ContextBudgeter.Budgeted budgeted = buildMessageHistoryV2(
+            historyOverride != null ? historyOverride : chatContextCache.snapshot(room.getId()),
+            systemPrompt, systemActionInjection, model, room.getChatMode());
+        List<OpenAiMessage> messages = budgeted.messages();
         LlmCircuitBreaker.ProviderDecision decision = llmCircuitBreaker.decide();
         log.info("🔌 [V2-CIRCUIT] provider={}, deadline={}ms, roomId={}",
             decision.provider(), decision.ttftDeadlineMs(), room.getId());
@@ -451,75 +534,63 @@ public class ChatStreamServiceV2 {
         Set<String> sanitizerSpeakers = collectSanitizerSpeakers(room);
         Set<String> heroineNames = collectHeroineNames(room);  // [E-1 A-2] scenesJson isSystem 판정용
 
-        // first_scene 콜백 — V1 패턴 (배열의 첫 객체)
-        Consumer<String> onFirstScene = firstSceneJson -> {
+        // [Perf] 씬 단위 SSE — 4~5씬 응답이 전체 생성 완료를 기다리지 않도록 scenes[i]마다 즉시 발송.
+        //   index 0은 구버전 클라이언트 호환을 위해 first_scene도 함께 발송한다.
+        SceneEventSender sceneEvents = new SceneEventSender(emitter, objectMapper);
+        BiConsumer<Integer, String> onScene = (index, sceneJson) -> {
             try {
-                AiJsonOutputV2.SceneV2 scene = objectMapper.readValue(firstSceneJson, AiJsonOutputV2.SceneV2.class);
-                EmotionTag emotion = LlmOutputParser.parseEmotion(scene.emotion());
-                String sanitizedDialogue = DialogueSanitizer.stripSpeakerPrefix(scene.dialogue(), sanitizerSpeakers);
-                String sanitizedNarration = DialogueSanitizer.stripSpeakerPrefix(scene.narration(), sanitizerSpeakers);
-                SceneResponse firstScene = new SceneResponse(
-                    scene.speaker(),
-                    sanitizedNarration, sanitizedDialogue, emotion,
-                    null, null, null, null);
-                emitter.send(SseEmitter.event().name("first_scene")
-                    .data(objectMapper.writeValueAsString(firstScene)));
+                AiJsonOutputV2.SceneV2 scene = objectMapper.readValue(sceneJson, AiJsonOutputV2.SceneV2.class);
+                sceneEvents.send(index, toSceneResponse(scene, sanitizerSpeakers));
             } catch (Exception e) {
-                log.warn("[V2-SSE] first_scene send failed: {}", e.getMessage());
+                log.warn("[V2-SSE] scene[{}] send failed: {}", index, e.getMessage());
             }
         };
 
         // event_meta 콜백은 V2에서 미사용 (event_status 필드 폐기)
         Consumer<String> onEventStatus = ignored -> { /* no-op for V2 */ };
 
-        // LLM 스트림 + Circuit Breaker (V1 패턴 충실 재현)
+        // [Perf] 투기 실행 — 첫 씬 발화 전에 TX-1 · USER 저장 커밋을 확인 (실패한 턴은 한 씬도 내보내지 않는다)
+        ChatPreflight.Writes writes = rollbackCtx.writes();
+        StreamControl abort = writes != null ? writes.abort() : new StreamControl(null);
+        if (writes != null) onScene = writes.gate(onScene);
+
+        // LLM 스트림 + Circuit Breaker (V1과 동일 — 폴백/헤지 + 서킷 기록은 LlmHedgedStreamer)
         StreamResult streamResult;
-        try {
-            Map<String, Object> providerRouting = Map.of(
-                "order", List.of(decision.provider()),
-                "allow_fallbacks", false
-            );
-            OpenAiChatRequest req = new OpenAiChatRequest(
-                model, messages, 0.8, true, 0.3, 0.15, providerRouting,
-                Map.of("type", "json_object"), 8192);  // [Q2-Fix] 멀티씬+system_updates 한글 JSON 여유 — 잘림 방지
-            streamResult = streamClient.streamCompletion(
-                req, onFirstScene, onEventStatus, decision.ttftDeadlineMs());
-            if (decision.isPrimary()) {
-                llmCircuitBreaker.recordSuccess(streamResult.ttft());
-            }
-        } catch (TtftTimeoutException ttftEx) {
-            llmCircuitBreaker.recordFailure(ttftEx.getDeadlineMs());
-            log.warn("🔄 [V2-CIRCUIT] TTFT timeout → Vertex fallback | deadline={}ms",
-                ttftEx.getDeadlineMs());
-            try {
-                Map<String, Object> fb = Map.of(
-                    "order", List.of(LlmCircuitBreaker.PROVIDER_VERTEX),
-                    "allow_fallbacks", false);
-                OpenAiChatRequest fbReq = new OpenAiChatRequest(
-                    model, messages, 0.8, true, 0.3, 0.15, fb,
-                    Map.of("type", "json_object"), 8192);  // [Q2-Fix]
-                streamResult = streamClient.streamCompletion(fbReq, onFirstScene, onEventStatus, 0);
-                log.info("✅ [V2-CIRCUIT] Vertex fallback OK | TTFT={}ms", streamResult.ttft());
-            } catch (Exception fbEx) {
-                log.error("❌ [V2-CIRCUIT] Vertex fallback failed | roomId={}", room.getId(), fbEx);
-                compensateFullRollback(rollbackCtx);
-                sendSseError(emitter, "LLM_ERROR", "AI 응답 생성 실패 (폴백 포함)");
+        long streamStart = System.currentTimeMillis();
+        try (var usageScope = LlmUsageContext.open(LlmCaller.STORY_V2, room.getId(), room.getUser().getId())) {
+            streamResult = hedgedStreamer.stream(decision, provider -> new OpenAiChatRequest(
+                    model, messages, 0.8, true, 0.3, 0.15,
+                    Map.of("order", List.of(provider), "allow_fallbacks", false),
+                    Map.of("type", "json_object"), budgeted.maxTokens()),  // [Q2-Fix] 모드별 하한이 멀티씬+system_updates 잘림 방지선
+                onScene, onEventStatus, abort);
+        } catch (Exception e) {
+            if (writes != null && !writes.awaitCommitted()) {
+                log.error("❌ [V2-SPECULATIVE] bookkeeping write failed — stream aborted | roomId={}", room.getId());
+                failSpeculativeWrites(rollbackCtx, emitter);
                 return null;
             }
-        } catch (Exception e) {
-            if (decision.isPrimary()) llmCircuitBreaker.recordFailure(-1);
-            log.error("[V2-LLM] stream failed | roomId={}", room.getId(), e);
+            log.error("[V2-LLM] stream failed | circuit={} | roomId={}",
+                llmCircuitBreaker.getStatusSummary(), room.getId(), e);
             compensateFullRollback(rollbackCtx);
             sendSseError(emitter, "LLM_ERROR", "AI 응답 생성 실패");
             return null;
         }
+        // 씬 없이 끝난 스트림도 커밋 확인 — 이후 TX-2 · ASSISTANT 저장은 USER 로그 뒤에 와야 한다
+        if (writes != null && !writes.awaitCommitted()) {
+            log.error("❌ [V2-SPECULATIVE] bookkeeping write failed after stream | roomId={}", room.getId());
+            failSpeculativeWrites(rollbackCtx, emitter);
+            return null;
+        }
+        chatMetrics.recordStream(ChatMode.STORY, model, streamResult, System.currentTimeMillis() - streamStart);
 
         // JSON 파싱
         AiJsonOutputV2 aiOutput;
         String cleanJson;
-        try {
+        long parseStart = System.nanoTime();
+        try (var parseSpan = chatTracing.start("chat.llm.parse", ChatMode.STORY)) {
             cleanJson = LlmOutputParser.extractJson(streamResult.fullResponse());
             aiOutput = objectMapper.readValue(cleanJson, AiJsonOutputV2.class);
+            chatMetrics.recordParse(ChatMode.STORY, System.nanoTime() - parseStart);
         } catch (JsonProcessingException e) {
             log.error("[V2-PARSE] failed: {}", streamResult.fullResponse(), e);
             compensateFullRollback(rollbackCtx);
@@ -536,12 +607,7 @@ public class ChatStreamServiceV2 {
 
         // 모든 씬 변환 + sanitize
         List<SceneResponse> sceneResponses = aiOutput.scenes().stream()
-            .map(s -> new SceneResponse(
-                s.speaker(),
-                DialogueSanitizer.stripSpeakerPrefix(s.narration(), sanitizerSpeakers),
-                DialogueSanitizer.stripSpeakerPrefix(s.dialogue(), sanitizerSpeakers),
-                LlmOutputParser.parseEmotion(s.emotion()),
-                null, null, null, null))
+            .map(s -> toSceneResponse(s, sanitizerSpeakers))
             .collect(Collectors.toList());
 
         // 마지막 씬 emotion (응답 DTO 대표 emotion)
@@ -568,7 +634,17 @@ public class ChatStreamServiceV2 {
             sceneResponses.get(sceneResponses.size() - 1).speaker());
 
         return new ParsedV2Result(aiOutput, cleanJson, combinedContent,
-            lastEmotion, sceneResponses, scenesJson, routedSpeakerId);
+            lastEmotion, sceneResponses, scenesJson, routedSpeakerId, sceneEvents.streamedCount(), model);
+    }
+
+    /** V2 씬 → 응답 씬 (location/time/outfit/bgmMode는 V2에서 미사용 → null) */
+    private SceneResponse toSceneResponse(AiJsonOutputV2.SceneV2 scene, Set<String> sanitizerSpeakers) {
+        return new SceneResponse(
+            scene.speaker(),
+            DialogueSanitizer.stripSpeakerPrefix(scene.narration(), sanitizerSpeakers),
+            DialogueSanitizer.stripSpeakerPrefix(scene.dialogue(), sanitizerSpeakers),
+            LlmOutputParser.parseEmotion(scene.emotion()),
+            null, null, null, null);
     }
 
     private Set<String> collectSanitizerSpeakers(ChatRoom room) {
@@ -600,37 +676,70 @@ public class ChatStreamServiceV2 {
         return names;
     }
 
-    private List<OpenAiMessage> buildMessageHistoryV2(Long roomId, SystemPromptPayload sysPrompt,
-                                                      String actionInjection) {
-        List<OpenAiMessage> messages = new ArrayList<>();
-        messages.add(OpenAiMessage.systemCached(sysPrompt.staticPart(),
-            Map.of("type", "ephemeral")));
-        messages.add(OpenAiMessage.system(sysPrompt.dynamicPart()));
-
-        List<ChatLogDocument> history = chatLogRepository.findTop20ByRoomIdOrderByCreatedAtDesc(roomId);
-        Collections.reverse(history);
-        for (ChatLogDocument log : history) {
-            if (log.isHidden() && !log.getRawContent().startsWith("[ACTION:")) {
-                continue;
-            }
-            String role = mapChatLogRoleToOpenAi(log);
-            String content = log.isHidden() ? log.getRawContent() : log.getCleanContent();
-            if (content == null || content.isBlank()) continue;
-            messages.add(new OpenAiMessage(role, content, null));
+    /**
+     * [Perf] stable prefix 모드: static → 블록 정렬 히스토리 → 턴별 동적 파트 → 액션 주입.
+     * V2 동적 파트는 장기 기억이 위치·시간·호감도 섹션과 한 덩어리라 히스토리 뒤로 보낸다.
+     * [Perf] 대화 수·max_tokens는 {@link ContextBudgeter} 토큰 예산으로 결정.
+     */
+    private ContextBudgeter.Budgeted buildMessageHistoryV2(ChatContextCache.Snapshot snapshot, SystemPromptPayload sysPrompt,
+                                                           String actionInjection, String model, ChatMode mode) {
+        // [Perf] ChatContextCache 스냅샷 — hidden 비액션 로그 제외·본문 선택은 저장 시점에 계산 완료
+        List<ChatContextCache.Entry> window = snapshot.window();
+        boolean stablePrefix = prefixLayout.isEnabled();
+
+        int from = 0;
+        int sealedEnd = -1;
+        List<OpenAiMessage> head = new ArrayList<>(2);
+        List<OpenAiMessage> tail = new ArrayList<>(2);
+        if (stablePrefix) {
+            StablePrefixLayout.Window aligned = prefixLayout.align(snapshot.total(), window.size());
+            from = aligned.from();
+            sealedEnd = aligned.sealedEnd();
+            head.add(OpenAiMessage.systemCached(sysPrompt.staticPart(), StablePrefixLayout.EPHEMERAL));
+            tail.add(OpenAiMessage.system(sysPrompt.dynamicPart()));
+        } else {
+            head.add(OpenAiMessage.systemCached(sysPrompt.staticPart(),
+                Map.of("type", "ephemeral")));
+            head.add(OpenAiMessage.system(sysPrompt.dynamicPart()));
         }
-
         if (actionInjection != null) {
-            messages.add(OpenAiMessage.system(actionInjection));
+            tail.add(OpenAiMessage.system(actionInjection));
         }
-        return messages;
-    }
 
-    private String mapChatLogRoleToOpenAi(ChatLogDocument log) {
-        return switch (log.getRole()) {
-            case USER -> "user";
-            case ASSISTANT -> "assistant";
-            case SYSTEM -> "system";
-        };
+        List<OpenAiMessage> turns = new ArrayList<>(window.size() - from);
+        for (int i = from; i < window.size(); i++) {
+            turns.add(window.get(i).toStoryMessage());  // null = 컨텍스트 제외 로그
+        }
+
+        int fixedTokens = 0;
+        for (OpenAiMessage m : head) fixedTokens += contextBudgeter.estimate(m, model);
+        for (OpenAiMessage m : tail) fixedTokens += contextBudgeter.estimate(m, model);
+        ContextBudgeter.Plan plan = contextBudgeter.plan(model, mode, fixedTokens, turns,
+            stablePrefix ? prefixLayout.getBlockSize() : 1);
+
+        List<OpenAiMessage> messages = new ArrayList<>(head.size() + turns.size() + tail.size());
+        messages.addAll(head);
+        int sealedMessageIdx = -1;
+        for (int j = plan.skip(); j < turns.size(); j++) {
+            OpenAiMessage message = turns.get(j);
+            if (message == null) continue;
+            messages.add(message);
+            if (from + j <= sealedEnd) sealedMessageIdx = messages.size() - 1;
+        }
+
+        if (stablePrefix) {
+            // 마지막 완결 블록 끝 + 최신 메시지에 breakpoint
+            if (sealedMessageIdx >= 0) {
+                messages.set(sealedMessageIdx, StablePrefixLayout.breakpoint(messages.get(sealedMessageIdx)));
+            }
+            int last = messages.size() - 1;
+            if (last >= head.size() && last != sealedMessageIdx) {
+                messages.set(last, StablePrefixLayout.breakpoint(messages.get(last)));
+            }
+        }
+        messages.addAll(tail);
+
+        return new ContextBudgeter.Budgeted(messages, plan.maxTokens());
     }
 
     // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
@@ -1245,15 +1354,17 @@ public class ChatStreamServiceV2 {
         return null;
     }
 
-    private void sendFinalResult(SseEmitter emitter, StoryV2SendResponse response,
+    private void sendFinalResult(SseEmitter emitter, StoryV2SendResponse response, int streamedSceneCount,
                                  boolean hasInnerThought, String assistantLogId,
                                  LocationTransition locationTransition) {
         try {
             // [E-2] V2 전용 DTO 재구성 — locationTransition/hasInnerThought/assistantLogId만 이 시점에 주입.
             //   JSON 키(scenes/dialogueOptions/topicConcluded/locationTransition)는 그대로라 프론트 무수정.
+            // [Perf] 모든 씬이 scene 이벤트로 전달됐으면 scenes=null (스탯·메타데이터 전용).
+            //   일부 누락 시에만 전체 scenes를 실어 클라이언트가 교체하도록 한다.
             StoryV2SendResponse finalResponse = new StoryV2SendResponse(
                 response.roomId(),
-                response.scenes(),
+                SceneEventSender.finalScenes(response.scenes(), streamedSceneCount),
                 response.topicConcluded(),
                 locationTransition,
                 response.dialogueOptions(),
@@ -1267,6 +1378,8 @@ public class ChatStreamServiceV2 {
     }
 
     private void sendSseError(SseEmitter emitter, String errorCode, String message) {
+        chatMetrics.countSseError(errorCode);
+        chatTracing.tag("chat.error", errorCode);
         try {
             emitter.send(SseEmitter.event().name("error")
                 .data(Map.of("errorCode", errorCode, "message", message)));
@@ -1290,12 +1403,40 @@ public class ChatStreamServiceV2 {
     }
 
     void compensateFullRollback(RollbackContext ctx) {
-        if (ctx.savedUserLogId() != null) {
-            try { chatLogRepository.deleteById(ctx.savedUserLogId()); }
+        // [Perf] 투기 실행 — 쓰기 완료를 기다린 뒤 실제로 커밋된 것만 되돌린다
+        String savedUserLogId = ctx.writes() != null ? ctx.writes().userLogId() : ctx.savedUserLogId();
+        if (savedUserLogId != null) {
+            try { chatLogRepository.deleteById(savedUserLogId); }
             catch (Exception e) { log.warn("[V2-ROLLBACK] log delete failed: {}", e.getMessage()); }
+            chatContextCache.invalidate(ctx.roomId());
         }
         // 오프닝 경로는 energyCost=0 → refundEnergy 내부 가드로 no-op (프로필 캐시 evict는 항상 수행).
-        compensateEnergy(ctx.userId(), ctx.energyCost(), ctx.username());
+        int energyCost = ctx.writes() != null ? ctx.writes().energyCost() : ctx.energyCost();
+        compensateEnergy(ctx.userId(), energyCost, ctx.username());
+    }
+
+    /**
+     * [Perf] 투기 실행 쓰기 실패 — 커밋된 쪽만 보상하고, 직렬 경로와 같은 에러 코드로 응답
+     * (TX-1 실패는 기존에 상위 catch의 UNEXPECTED_ERROR, USER 저장 실패는 INTERNAL_ERROR였다)
+     */
+    private void failSpeculativeWrites(RollbackContext ctx, SseEmitter emitter) {
+        compensateFullRollback(ctx);
+        if (ctx.writes().debitFailed()) {
+            sendSseError(emitter, "UNEXPECTED_ERROR", "예기치 않은 오류가 발생했습니다.");
+        } else {
+            sendSseError(emitter, "INTERNAL_ERROR", "메시지 저장에 실패했습니다.");
+        }
+    }
+
+    /** TX-1 — 에너지 차감 (부족하면 예외, 롤백) */
+    private int debitEnergy(Long roomId) {
+        return txTemplate.execute(status -> {
+            ChatRoom room = chatRoomRepository.findWithMemberAndWorldById(roomId)
+                .orElseThrow(() -> new NotFoundException("채팅방이 존재하지 않습니다."));
+            int cost = boostModeResolver.resolveEnergyCost(room.getChatMode(), room.getUser());
+            room.getUser().consumeEnergy(cost);
+            return cost;
+        });
     }
 
     /**
@@ -8,12 +8,16 @@ import com.spring.aichat.domain.memory.HeroineMemorySummaryRepository;
 import com.spring.aichat.dto.openai.OpenAiChatRequest;
 import com.spring.aichat.dto.openai.OpenAiMessage;
 import com.spring.aichat.external.OpenRouterClient;
+import com.spring.aichat.service.memory.MemoryCompactor;
+import com.spring.aichat.service.metering.LlmCaller;
+import com.spring.aichat.service.metering.LlmUsageContext;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.List;
 import java.util.stream.Collectors;
@@ -48,6 +52,9 @@ public class HeroineMemoryService {
     private final StringRedisTemplate redisTemplate;
     private final ObjectMapper objectMapper;
     private final OpenAiProperties props;
+    private final MemoryCompactor memoryCompactor;
+    private final TransactionTemplate txTemplate;
+    private final MemoryCompactor.Store compactionStore = new HeroineMemoryStore();
 
     private static final String CACHE_PREFIX = "heroine_memory:";
 
@@ -77,7 +84,7 @@ public class HeroineMemoryService {
             }
 
             List<HeroineMemorySummary> rows = memoryRepository
-                .findByRoomIdAndCharacterIdOrderByCreatedAtAsc(roomId, characterId);
+                .findByRoomIdAndCharacterIdOrderByTurnNumberAscIdAsc(roomId, characterId);
             if (rows.isEmpty()) {
                 log.debug("⏱️ [H-MEMORY] No memories: room={}, char={} | {}ms",
                     roomId, characterId, System.currentTimeMillis() - start);
@@ -123,13 +130,16 @@ public class HeroineMemoryService {
             String summaryPrompt = buildSummaryPrompt(joined);
             String model = props.sentimentModel();
 
-            String summary = openRouterClient.chatCompletion(
-                OpenAiChatRequest.withoutPenalty(
-                    model,
-                    List.of(OpenAiMessage.system(summaryPrompt)),
-                    0.5
-                )
-            );
+            String summary;
+            try (var usageScope = LlmUsageContext.open(LlmCaller.HEROINE_MEMORY, roomId, userId)) {
+                summary = openRouterClient.chatCompletion(
+                    OpenAiChatRequest.withoutPenalty(
+                        model,
+                        List.of(OpenAiMessage.system(summaryPrompt)),
+                        0.5
+                    )
+                );
+            }
 
             HeroineMemorySummary entity;
             if ("THEATER".equalsIgnoreCase(sourceMode)) {
@@ -141,6 +151,9 @@ public class HeroineMemoryService {
 
             evictCache(roomId, characterId);
 
+            // [Perf] 계층 압축 트리거 (비동기 · (room, character) 단위 single-flight)
+            memoryCompactor.submit(compactionStore, new MemoryCompactor.Scope(roomId, characterId, userId));
+
             log.info("✅ [H-MEMORY-WRITE] DONE: {}ms | room={}, char={}, mode={}, summary='{}'",
                 System.currentTimeMillis() - start, roomId, characterId, sourceMode,
                 summary.substring(0, Math.min(60, summary.length())));
@@ -176,6 +189,54 @@ public class HeroineMemoryService {
         redisTemplate.delete(cacheKey(roomId, characterId));
     }
 
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+    //  [Perf] 계층 압축 저장소 어댑터
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+
+    private class HeroineMemoryStore implements MemoryCompactor.Store {
+
+        @Override
+        public String name() {
+            return "heroine_memory";
+        }
+
+        @Override
+        public LlmCaller caller() {
+            return LlmCaller.MEMORY_COMPACTION;
+        }
+
+        @Override
+        public List<MemoryCompactor.Node> load(MemoryCompactor.Scope scope) {
+            return memoryRepository
+                .findByRoomIdAndCharacterIdOrderByTurnNumberAscIdAsc(scope.roomId(), scope.characterId()).stream()
+                .map(m -> new MemoryCompactor.Node(m.getId(), m.getTier(), m.getTurnNumber(), m.getSummary()))
+                .toList();
+        }
+
+        @Override
+        public String prompt(MemoryCompactor.Run run) {
+            return buildCompactionPrompt(MemoryCompactor.bulletList(run), run.targetTier());
+        }
+
+        @Override
+        public void commit(MemoryCompactor.Scope scope, MemoryCompactor.Run run, String summary) {
+            txTemplate.executeWithoutResult(status -> {
+                String sourceMode = memoryRepository.findById(run.toId())
+                    .map(HeroineMemorySummary::getSourceMode)
+                    .orElseThrow(() -> new IllegalStateException("children changed: " + run.toId() + " missing"));
+                int deleted = memoryRepository.deleteCompacted(
+                    scope.roomId(), scope.characterId(), run.tier(), run.ids());
+                if (deleted != run.nodes().size()) {
+                    throw new IllegalStateException("children changed: deleted " + deleted + "/" + run.nodes().size());
+                }
+                memoryRepository.save(HeroineMemorySummary.compacted(scope.roomId(), scope.characterId(),
+                    scope.userId(), summary, run.turnNumber(), sourceMode,
+                    run.targetTier(), run.fromId(), run.toId()));
+            });
+            evictCache(scope.roomId(), scope.characterId());
+        }
+    }
+
     // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
     //  내부 유틸
     // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
@@ -196,6 +257,25 @@ public class HeroineMemoryService {
             .collect(Collectors.joining("\n"));
     }
 
+    private String buildCompactionPrompt(String summaries, int tier) {
+        return """
+            아래는 한 캐릭터 시점의 누적 기억 요약들이다 (시간순).
+            이를 *그 캐릭터의 시점에서* 더 긴 기간을 아우르는 기억 1개(레벨 %d)로 병합하라.
+
+            병합 원칙:
+            - %d 문장 이내
+            - 유저와의 관계 변화·약속·결정적 사건은 반드시 보존
+            - 나중 요약이 뒤집은 내용은 최신 상태만 남김
+            - 시간 순서 보존
+            - 한국어로 출력 (요약문만, 다른 설명 금지)
+
+            기억 목록:
+            %s
+
+            병합된 기억:
+            """.formatted(tier, Math.min(3 + tier, 6), summaries);
+    }
+
     private String buildSummaryPrompt(String conversationText) {
         return """
             아래는 한 캐릭터 시점에서 최근 일어난 사건들의 1줄 요약 목록이다.
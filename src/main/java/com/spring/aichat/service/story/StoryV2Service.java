@@ -26,6 +26,7 @@ import com.spring.aichat.exception.BadRequestException;
 import com.spring.aichat.exception.BusinessException;
 import com.spring.aichat.exception.ErrorCode;
 import com.spring.aichat.exception.NotFoundException;
+import com.spring.aichat.service.cache.ChatContextCache;
 import com.spring.aichat.service.payment.SecretModeService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -73,6 +74,7 @@ public class StoryV2Service {
     private final ChatRoomHeroineRepository heroineRepository;
     private final CharacterPresenceRepository presenceRepository;
     private final ChatLogMongoRepository chatLogMongoRepository;
+    private final ChatContextCache chatContextCache;
     private final MemorySummaryRepository memorySummaryRepository;
 
     private final WorldRoutingService routingService;
@@ -810,6 +812,7 @@ public class StoryV2Service {
 
         // 8. ChatLogDocument (대화 로그)
         chatLogMongoRepository.deleteByRoomId(roomId);
+        chatContextCache.invalidate(roomId);
 
         // 9. [D-5/E-2b] StoryV2State 서사 thread 리셋 — 방은 유지하므로 row 보존 + 빈 배열로.
         storyV2StateRepository.findByRoomId(roomId).ifPresent(st -> {
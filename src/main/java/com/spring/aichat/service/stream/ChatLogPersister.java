@@ -6,6 +6,7 @@ import com.spring.aichat.domain.chat.ChatLogDeadletter;
 import com.spring.aichat.domain.chat.ChatLogDeadletterRepository;
 import com.spring.aichat.domain.chat.ChatLogDocument;
 import com.spring.aichat.domain.chat.ChatLogMongoRepository;
+import com.spring.aichat.service.cache.ChatContextCache;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
@@ -28,6 +29,8 @@ import java.time.LocalDateTime;
  * 이미 전송됨).
  *
  * Spring Retry 의존성 없이 수동 구현 — build.gradle 변경 회피.
+ *
+ * [Perf] 저장 성공 시 {@link ChatContextCache}에 즉시 반영 (append 실패는 캐시 무효화로 흡수).
  */
 @Slf4j
 @Component
@@ -41,6 +44,7 @@ public class ChatLogPersister {
     private final ChatLogMongoRepository chatLogRepository;
     private final ChatLogDeadletterRepository deadletterRepository;
     private final ObjectMapper objectMapper;
+    private final ChatContextCache chatContextCache;
 
     /**
      * 재시도와 데드레터 fallback을 포함한 안전한 저장.
@@ -53,7 +57,10 @@ public class ChatLogPersister {
 
         for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
             try {
-                return chatLogRepository.save(doc);
+                ChatLogDocument saved = chatLogRepository.save(doc);
+                // [Perf] 컨텍스트 캐시 write-through — 다음 턴 Mongo 조회 생략
+                chatContextCache.append(saved);
+                return saved;
             } catch (RuntimeException e) {
                 lastException = e;
                 log.warn("[CHAT-LOG] save failed | attempt={}/{} | roomId={} | err={}",
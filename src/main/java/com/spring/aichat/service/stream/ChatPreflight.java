@@ -0,0 +1,424 @@
+package com.spring.aichat.service.stream;
+
+import com.spring.aichat.domain.enums.ChatMode;
+import com.spring.aichat.external.OpenRouterStreamClient.StreamControl;
+import com.spring.aichat.service.metrics.ChatMetrics;
+import com.spring.aichat.service.metrics.ChatTracing;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.TreeMap;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * [Perf] LLM 호출 전 단계(pre-flight) 병렬 실행 — 구조적 동시성(structured concurrency) 스코프
+ *
+ * ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+ *  기존 문제
+ * ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+ *  sendMessageStream이 방 조회 → 시크릿 판정 → 모더레이션 → TX-1 → 장기 기억 → 히스토리를
+ *  전부 직렬로 수행 — 서로 독립인 I/O의 지연이 그대로 합산되어 LLM 요청 시점이 늦어졌다.
+ *
+ * ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+ *  스코프 규칙 (JDK 21 StructuredTaskScope.ShutdownOnFailure 대응 — 17 호환 구현)
+ * ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+ *  - {@link Scope#fork}한 단계는 스코프를 벗어나 살아남지 않는다 (close 시 미완료 단계 인터럽트 취소)
+ *  - 한 단계가 실패하면 즉시 나머지를 취소하고 {@link Scope#join}이 그 원인을 던진다 (fail-fast)
+ *  - 단계별 소요 시간은 스코프에 기록 → [STREAM-PERF] 로그 + 누적 통계({@link #getStats()})
+ *    + [Metrics] {@code chat.stage{mode, stage}} 타이머 ({@link ChatMetrics})
+ *  - [Tracing] 스코프 = {@code chat.preflight} 스팬, 단계마다 {@code chat.preflight.<stage>} 자식 스팬
+ *    (전용 풀로 넘어갈 때 제출 시점 트레이스 컨텍스트를 싣는다 — Mongo/Redis/JDBC 스팬이 단계 아래 중첩)
+ *
+ * ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+ *  실행 풀
+ * ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+ *  - 기본: 상한({@code chat.preflight.max-threads}) 있는 전용 풀. 포화 시 거부된 단계는 호출 스레드에서
+ *    바로 실행한다 — 병렬성만 잃고 요청은 직렬 경로와 같게 끝난다 (거부 수는 {@link #getRejectedCount()})
+ *  - vthreads 프로필: {@code chatPreflightExecutor}(가상 스레드, 동시 실행 상한)로 대체
+ *
+ * ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+ *  투기 실행 ({@code chat.speculative-llm.enabled})
+ * ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+ *  LLM은 TX-1(에너지 차감)과 USER 로그 저장 결과에 의존하지 않는다 — 프롬프트가 조립되면 바로 스트림을 열고
+ *  두 쓰기는 {@link Writes}로 뒤에서 커밋한다. 쓰기가 실패하면 스트림을 끊고 기존 compensateFullRollback으로 보상.
+ */
+@Component
+public class ChatPreflight {
+
+    static final int DEFAULT_MAX_THREADS = 256;
+
+    /** 전용 풀 — 대부분 DB/Redis/Mongo 대기, 데몬. vthreads 프로필이면 null */
+    private final ThreadPoolExecutor executor;
+    /** 제출은 항상 이쪽으로 — 트레이스 컨텍스트 전파 */
+    private final Executor tracedExecutor;
+
+    private final Map<String, StageStat> stats = new ConcurrentHashMap<>();
+    /** 풀 포화로 호출 스레드에서 실행된 단계 수 */
+    private final LongAdder rejected = new LongAdder();
+
+    /** [Perf] 투기 실행 — TX-1 · USER 저장 커밋을 기다리지 않고 LLM 스트림부터 출발 */
+    private final boolean speculative;
+
+    private final ChatMetrics metrics;
+    private final ChatTracing tracing;
+
+    @Autowired
+    public ChatPreflight(@Value("${chat.speculative-llm.enabled:false}") boolean speculative,
+                         @Value("${chat.preflight.max-threads:256}") int maxThreads,
+                         @Qualifier("chatPreflightExecutor") ObjectProvider<Executor> virtualExecutor,
+                         ChatMetrics metrics, ChatTracing tracing) {
+        this.speculative = speculative;
+        this.metrics = metrics;
+        this.tracing = tracing;
+        Executor vthreads = virtualExecutor != null ? virtualExecutor.getIfAvailable() : null;
+        this.executor = vthreads != null ? null : newPool(maxThreads);
+        this.tracedExecutor = tracing.wrap(vthreads != null ? vthreads : executor);
+    }
+
+    /** 테스트용 — 메트릭 · 트레이싱 미기록 */
+    public ChatPreflight(boolean speculative) {
+        this(speculative, DEFAULT_MAX_THREADS);
+    }
+
+    /** 테스트용 — 풀 상한 지정 */
+    ChatPreflight(boolean speculative, int maxThreads) {
+        this(speculative, maxThreads, null, ChatMetrics.noop(), ChatTracing.noop());
+    }
+
+    /** 대기 큐 없이 상한까지 스레드 생성, 유휴 60초 후 회수 — 거부 시 호출 스레드에서 실행 (종료 후에는 거부) */
+    private ThreadPoolExecutor newPool(int maxThreads) {
+        AtomicInteger seq = new AtomicInteger();
+        return new ThreadPoolExecutor(0, Math.max(1, maxThreads), 60, TimeUnit.SECONDS, new SynchronousQueue<>(),
+            r -> {
+                Thread t = new Thread(r, "chat-preflight-" + seq.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            },
+            (task, pool) -> {
+                if (pool.isShutdown()) throw new RejectedExecutionException("chat-preflight shut down");
+                rejected.increment();
+                task.run();
+            });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor != null) executor.shutdownNow();
+    }
+
+    /** [Metrics] 전용 풀 (vthreads 프로필이면 null — 그쪽은 Spring 빈으로 따로 바인딩) */
+    public ThreadPoolExecutor getExecutor() {
+        return executor;
+    }
+
+    /** [Metrics] 풀 포화로 호출 스레드에서 실행된 단계 수 */
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    public boolean isSpeculative() {
+        return speculative;
+    }
+
+    /** 요청 1건당 스코프 1개 — try-with-resources로 사용 */
+    public Scope open() {
+        return open(null);
+    }
+
+    /** @param mode 메트릭 mode 태그 (null이면 NONE) */
+    public Scope open(ChatMode mode) {
+        return new Scope(mode);
+    }
+
+    /** 스코프 밖 직렬 단계(방 조회 · USER 저장 등)도 같은 통계에 기록 */
+    public void record(String stage, long elapsedMs) {
+        record(null, stage, elapsedMs);
+    }
+
+    public void record(ChatMode mode, String stage, long elapsedMs) {
+        stats.computeIfAbsent(stage, k -> new StageStat()).record(elapsedMs);
+        metrics.recordStage(mode, stage, elapsedMs);
+    }
+
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+    //  스코프
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+
+    /** fork된 단계의 결과 핸들 — {@link Scope#join} 이후에만 {@link #get} */
+    public static final class Stage<T> {
+        private final String name;
+        private final FutureTask<T> task;
+        private final AtomicLong elapsedMs;
+
+        private Stage(String name, FutureTask<T> task, AtomicLong elapsedMs) {
+            this.name = name;
+            this.task = task;
+            this.elapsedMs = elapsedMs;
+        }
+
+        public T get() {
+            if (!task.isDone()) throw new IllegalStateException("stage not joined: " + name);
+            try {
+                return task.get();
+            } catch (InterruptedException | ExecutionException | CancellationException e) {
+                throw new IllegalStateException("stage failed: " + name, e);
+            }
+        }
+    }
+
+    public final class Scope implements AutoCloseable {
+        private final long start = System.currentTimeMillis();
+        private final ChatMode mode;
+        private final List<Stage<?>> stages = new ArrayList<>();
+        private final Map<String, Long> timings = new TreeMap<>();
+        /** 완료(성공·실패·취소) 순서대로 — join이 먼저 끝난 실패를 바로 본다 */
+        private final BlockingQueue<Throwable> completions = new LinkedBlockingQueue<>();
+        private final ChatTracing.Span span;
+
+        private Scope(ChatMode mode) {
+            this.mode = mode;
+            this.span = tracing.start("chat.preflight", mode);
+        }
+
+        public <T> Stage<T> fork(String name, Callable<T> body) {
+            AtomicLong elapsed = new AtomicLong(-1);
+            FutureTask<T> task = new FutureTask<>(() -> {
+                long t0 = System.currentTimeMillis();
+                try {
+                    return tracing.inSpan("chat.preflight." + name, mode, body);
+                } finally {
+                    elapsed.set(System.currentTimeMillis() - t0);
+                }
+            }) {
+                @Override
+                protected void done() {
+                    completions.add(outcome(this));
+                }
+            };
+            Stage<T> stage = new Stage<>(name, task, elapsed);
+            stages.add(stage);
+            tracedExecutor.execute(task);
+            return stage;
+        }
+
+        /** 호출 스레드에서 직접 수행하는 단계 (fork한 단계와 겹쳐 실행됨) — 실패 시 형제 취소 후 그대로 전파 */
+        public <T> T inline(String name, Callable<T> body) throws Exception {
+            long t0 = System.currentTimeMillis();
+            try {
+                return tracing.inSpan("chat.preflight." + name, mode, body);
+            } catch (Exception e) {
+                cancelAll();
+                throw e;
+            } finally {
+                timings.put(name, System.currentTimeMillis() - t0);
+            }
+        }
+
+        /**
+         * 모든 단계 완료까지 대기. 하나라도 실패하면 형제를 취소하고 그 원인을 던진다.
+         */
+        public void join() throws Exception {
+            for (int i = 0; i < stages.size(); i++) {
+                Throwable cause = completions.take();
+                if (cause == SUCCESS) continue;
+                cancelAll();
+                if (cause instanceof Exception e) throw e;
+                throw new ExecutionException(cause);
+            }
+        }
+
+        private void cancelAll() {
+            for (Stage<?> stage : stages) stage.task.cancel(true);
+        }
+
+        /** 단계별 소요 "memory=12ms secret=3ms ..." + 스코프 전체 */
+        public String timings() {
+            StringJoiner joiner = new StringJoiner(" ");
+            snapshot().forEach((name, ms) -> joiner.add(name + "=" + ms + "ms"));
+            return joiner.toString();
+        }
+
+        private Map<String, Long> snapshot() {
+            Map<String, Long> all = new TreeMap<>(timings);
+            for (Stage<?> stage : stages) {
+                long ms = stage.elapsedMs.get();
+                if (ms >= 0) all.put(stage.name, ms);
+            }
+            return all;
+        }
+
+        @Override
+        public void close() {
+            cancelAll();
+            snapshot().forEach((stage, ms) -> record(mode, stage, ms));
+            record(mode, "preflight", System.currentTimeMillis() - start);
+            span.close();
+        }
+    }
+
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+    //  투기 실행 — LLM 스트림과 병렬로 도는 부기(bookkeeping) 쓰기
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+
+    /** TX-1(에너지 차감)을 즉시 시작. USER 로그 저장은 {@link Writes#thenSaveUserLog}로 이어 붙인다 */
+    public Writes beginWrites(Callable<Integer> debit) {
+        return beginWrites(null, debit);
+    }
+
+    public Writes beginWrites(ChatMode mode, Callable<Integer> debit) {
+        return new Writes(mode, async(mode, "tx1", debit));
+    }
+
+    private <T> CompletableFuture<T> async(ChatMode mode, String stage, Callable<T> body) {
+        return CompletableFuture.supplyAsync(() -> {
+            long t0 = System.currentTimeMillis();
+            try {
+                return tracing.inSpan("chat.preflight." + stage, mode, body);
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            } finally {
+                record(mode, stage, System.currentTimeMillis() - t0);
+            }
+        }, tracedExecutor);
+    }
+
+    /**
+     * 스트림이 먼저 출발한 뒤 커밋되는 쓰기 묶음.
+     * 어느 쓰기든 실패하면 {@link #abort()}가 취소되어 LLM 스트림이 끊긴다.
+     * 클라이언트로 나가는 첫 이벤트는 {@link #gate}로 커밋 확인 후에만 — 실패한 턴의 씬은 한 줄도 새지 않는다.
+     */
+    public final class Writes {
+        private final ChatMode mode;
+        private final CompletableFuture<Integer> debit;
+        private volatile CompletableFuture<String> userLog = CompletableFuture.completedFuture(null);
+        private final StreamControl abort = new StreamControl(null);
+        private volatile Boolean committed;
+
+        private Writes(ChatMode mode, CompletableFuture<Integer> debit) {
+            this.mode = mode;
+            this.debit = debit;
+            debit.whenComplete((cost, e) -> {
+                if (e != null) abort.cancel();
+            });
+        }
+
+        /** 에너지 차감이 커밋된 뒤 USER 로그 저장 (차감 실패 시 저장하지 않음) */
+        public void thenSaveUserLog(Callable<String> save) {
+            CompletableFuture<String> saved = debit.thenCompose(cost -> async(mode, "user_save", save));
+            saved.whenComplete((id, e) -> {
+                if (e != null) abort.cancel();
+            });
+            this.userLog = saved;
+        }
+
+        public StreamControl abort() {
+            return abort;
+        }
+
+        /** 모든 쓰기 완료까지 대기 — 전부 성공이면 true */
+        public boolean awaitCommitted() {
+            Boolean done = committed;
+            if (done != null) return done;
+            try {
+                CompletableFuture.allOf(debit, userLog).join();
+                done = true;
+            } catch (CompletionException | CancellationException e) {
+                done = false;
+            }
+            committed = done;
+            return done;
+        }
+
+        /** 완료 대기 후 실제 커밋된 차감액 (실패 시 0 — 보상 대상 아님) */
+        public int energyCost() {
+            awaitCommitted();
+            return debit.isCompletedExceptionally() ? 0 : debit.join();
+        }
+
+        /** 완료 대기 후 저장된 USER 로그 id (실패·미저장 시 null) */
+        public String userLogId() {
+            awaitCommitted();
+            return userLog.isCompletedExceptionally() ? null : userLog.join();
+        }
+
+        /** 완료 대기 후 TX-1(에너지 차감) 실패 여부 — USER 저장 실패와 구분해 에러 코드를 고를 때 */
+        public boolean debitFailed() {
+            awaitCommitted();
+            return debit.isCompletedExceptionally();
+        }
+
+        /** 첫 호출에서 커밋을 기다린다 — 실패했으면 스트림을 끊고 이벤트를 버린다 */
+        public <A, B> BiConsumer<A, B> gate(BiConsumer<A, B> sink) {
+            return (a, b) -> {
+                if (awaitCommitted()) sink.accept(a, b);
+                else abort.cancel();
+            };
+        }
+
+        public <A> Consumer<A> gate(Consumer<A> sink) {
+            return a -> {
+                if (awaitCommitted()) sink.accept(a);
+                else abort.cancel();
+            };
+        }
+    }
+
+    /** 완료 큐 표식 — 성공 */
+    private static final Throwable SUCCESS = new Throwable("success", null, false, false) {};
+
+    private static Throwable outcome(FutureTask<?> task) {
+        if (task.isCancelled()) return new CancellationException();
+        try {
+            task.get();
+            return SUCCESS;
+        } catch (ExecutionException e) {
+            return e.getCause();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return e;
+        }
+    }
+
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+    //  통계
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+
+    private static final class StageStat {
+        final LongAdder count = new LongAdder();
+        final LongAdder totalMs = new LongAdder();
+        final AtomicLong maxMs = new AtomicLong();
+
+        void record(long ms) {
+            count.increment();
+            totalMs.add(ms);
+            maxMs.accumulateAndGet(ms, Math::max);
+        }
+    }
+
+    /** 단계 이름 → 누적 통계 ("preflight" = 스코프 전체, 즉 서버측 LLM 요청 전 시간) */
+    public Map<String, Stats> getStats() {
+        Map<String, Stats> out = new TreeMap<>();
+        stats.forEach((name, s) -> {
+            long n = s.count.sum();
+            out.put(name, new Stats(n, n == 0 ? 0 : s.totalMs.sum() / n, s.maxMs.get()));
+        });
+        return out;
+    }
+
+    public record Stats(long count, long avgMs, long maxMs) {}
+}
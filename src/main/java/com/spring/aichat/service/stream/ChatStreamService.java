@@ -19,15 +19,16 @@ import com.spring.aichat.exception.BusinessException;
 import com.spring.aichat.exception.ErrorCode;
 import com.spring.aichat.exception.NotFoundException;
 import com.spring.aichat.external.LlmCircuitBreaker;
-import com.spring.aichat.external.LlmCircuitBreaker.TtftTimeoutException;
+import com.spring.aichat.external.LlmHedgedStreamer;
 import com.spring.aichat.external.OpenRouterClient;
-import com.spring.aichat.external.OpenRouterStreamClient;
+import com.spring.aichat.external.OpenRouterStreamClient.StreamControl;
 import com.spring.aichat.external.OpenRouterStreamClient.StreamResult;
 import com.spring.aichat.security.PromptInjectionGuard;
 import com.spring.aichat.service.AchievementService;
 import com.spring.aichat.service.ChatService;
 import com.spring.aichat.service.ContentModerationService;
 import com.spring.aichat.service.MemoryService;
+import com.spring.aichat.service.cache.ChatContextCache;
 import com.spring.aichat.service.cache.RedisCacheService;
 import com.spring.aichat.service.director.DirectorService;
 import com.spring.aichat.service.illustration.BackgroundGenerationService;
@@ -35,9 +36,15 @@ import com.spring.aichat.service.illustration.IllustrationService;
 import com.spring.aichat.service.payment.BoostModeResolver;
 import com.spring.aichat.service.payment.SecretModeService;
 import com.spring.aichat.service.prompt.CharacterPromptAssembler;
+import com.spring.aichat.service.prompt.ContextBudgeter;
+import com.spring.aichat.service.prompt.StablePrefixLayout;
 import com.spring.aichat.service.prompt.DirectorPromptAssembler;
 import com.spring.aichat.service.theater.TheaterInterventionService;
 import com.spring.aichat.service.util.LlmOutputParser;
+import com.spring.aichat.service.metering.LlmCaller;
+import com.spring.aichat.service.metering.LlmUsageContext;
+import com.spring.aichat.service.metrics.ChatMetrics;
+import com.spring.aichat.service.metrics.ChatTracing;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.scheduling.annotation.Async;
@@ -46,6 +53,7 @@ import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.*;
+import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
@@ -72,9 +80,10 @@ public class ChatStreamService {
 
     private final ChatRoomRepository chatRoomRepository;
     private final ChatLogMongoRepository chatLogRepository;
+    private final ChatContextCache chatContextCache;
     private final CharacterPromptAssembler promptAssembler;
     private final com.spring.aichat.config.LegacyFeatureProperties legacy;
-    private final OpenRouterStreamClient streamClient;
+    private final LlmHedgedStreamer hedgedStreamer;
     private final OpenRouterClient openRouterClient;
     private final OpenAiProperties props;
     private final ObjectMapper objectMapper;
@@ -110,6 +119,15 @@ public class ChatStreamService {
     private final TheaterInterventionService theaterInterventionService;
     /** [Phase6/Tier3 / C-9] ASSISTANT log retry + deadletter wrapper */
     private final ChatLogPersister chatLogPersister;
+    /** [Perf] 프롬프트 캐시용 append-only prefix 레이아웃 */
+    private final StablePrefixLayout prefixLayout;
+    /** [Perf] 토큰 예산 기반 히스토리 트리밍 + max_tokens */
+    private final ContextBudgeter contextBudgeter;
+    /** [Perf] LLM 호출 전 독립 I/O 병렬화 + 단계별 계측 */
+    private final ChatPreflight preflight;
+    /** [Metrics] TTFT/TTFS · 단계 · 요청 타이머 */
+    private final ChatMetrics chatMetrics;
+    private final ChatTracing chatTracing;
 
     private static final long USER_TURN_MEMORY_CYCLE = 10;
     private static final long RAG_SKIP_LOG_THRESHOLD = USER_TURN_MEMORY_CYCLE * 2;
@@ -144,9 +162,25 @@ public class ChatStreamService {
         String username, int energyCost
     ) {}
 
+    /** @param writes [Perf] 투기 실행 경로 — 보상 시 실제 커밋된 차감액·USER 로그 id를 여기서 확정 (그 외 null) */
     private record RollbackContext(
-        Long userId, String username, int energyCost, String savedUserLogId
-    ) {}
+        Long roomId, Long userId, String username, int energyCost, String savedUserLogId,
+        ChatPreflight.Writes writes
+    ) {
+        RollbackContext(Long roomId, Long userId, String username, int energyCost, String savedUserLogId) {
+            this(roomId, userId, username, energyCost, savedUserLogId, null);
+        }
+    }
+
+    /** [Perf] pre-flight 모더레이션 차단 — 형제 단계 취소용 실패 신호 */
+    private static final class ModerationBlockedException extends RuntimeException {
+        private final ContentModerationService.ModerationVerdict verdict;
+
+        ModerationBlockedException(ContentModerationService.ModerationVerdict verdict) {
+            super("moderation blocked", null, false, false);
+            this.verdict = verdict;
+        }
+    }
 
     /** LLM 결과 파싱 후 중간 데이터 */
     private record ParsedLlmResult(
@@ -158,7 +192,9 @@ public class ChatStreamService {
         String scenesJson,      // [Phase 5.5-Fix] 구조화된 씬 JSON
         boolean generateIllustration,
         String newLocationName,
-        String locationDescription
+        String locationDescription,
+        int streamedSceneCount,  // [Perf] SSE scene 이벤트로 이미 전달된 씬 수
+        String model             // [Metrics] 실제 호출 모델 (요청 타이머 태그)
     ) {}
 
     // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
@@ -169,50 +205,104 @@ public class ChatStreamService {
     public void sendMessageStream(Long roomId, String userMessage, SseEmitter emitter) {
         long totalStart = System.currentTimeMillis();
         log.info("⏱ [STREAM-PERF] ====== sendMessageStream START ====== roomId={}", roomId);
+        // [Tracing] @Async 핸드오프 이후 파이프라인 루트 — 부모는 요청 스레드의 http.server 스팬 (TaskDecorator 전파)
+        ChatTracing.Span rootSpan = chatTracing.start("chat.stream", null);
 
         try {
-            // ── [V2 분리] STORY 모드는 ChatStreamServiceV2가 담당 — 방어적 가드 ──
-            ChatRoom modeCheck = chatRoomRepository.findById(roomId)
+            // ── 방 조회 1회 (모드 가드 · UGC 재검증 · 모더레이션 판정 공용) ──
+            long tRoom = System.currentTimeMillis();
+            ChatRoom roomForCheck = chatRoomRepository.findWithMemberAndCharacterById(roomId)
                 .orElseThrow(() -> new NotFoundException("채팅방이 존재하지 않습니다."));
-            if (modeCheck.isStoryMode()) {
+            ChatMode mode = roomForCheck.getChatMode();
+            rootSpan.tag("chat.mode", mode.name());
+            preflight.record(mode, "room", System.currentTimeMillis() - tRoom);
+
+            // ── [V2 분리] STORY 모드는 ChatStreamServiceV2가 담당 — 방어적 가드 ──
+            if (roomForCheck.isStoryMode()) {
                 log.warn("⚠️ [V1-STREAM] STORY V2 room routed to V1 service. roomId={}", roomId);
                 sendSseError(emitter, "INVALID_ROUTE", "STORY 모드는 V2 엔드포인트를 사용해야 합니다.");
                 return;
             }
 
-            // ── Content Moderation ──
-            ChatRoom roomForCheck = chatRoomRepository.findWithMemberAndCharacterById(roomId)
-                .orElseThrow(() -> new NotFoundException("채팅방이 존재하지 않습니다."));
-
             // ── [2026-07-30 P0 공개 철회] UGC 접근 재검증 — 철회/반려된 캐릭터의 기존 방 신규 대화 차단.
             // 방 생성 시점 isAccessibleBy 검증은 멱등 재입장(기존 방 반환)을 막지 못한다.
             // 소유자 본인 방은 계속 허용 · 과거 로그 열람은 별도 경로라 영향 없음(읽기 보존 정책).
             if (blockIfUgcInaccessible(roomForCheck, emitter)) return;
-            boolean isSecretCheck = roomForCheck.isSecretModeActive()
-                && secretModeService.canAccessSecretMode(
-                roomForCheck.getUser(), roomForCheck.getCharacter().getId());
-
-            ContentModerationService.ModerationVerdict verdict =
-                contentModerationService.moderate(userMessage, isSecretCheck);
-            if (!verdict.passed()) {
-                moderationEventService.recordModeration(
-                    roomForCheck.getUser().getId(), roomForCheck.getId(), "CHAT",
-                    verdict.blockedAtStep(), verdict.category(), verdict.totalLatencyMs(), userMessage);
-                sendSseError(emitter, "CONTENT_BLOCKED", verdict.userMessage());
-                return;
-            }
 
-            // ── TX-1 ──
-            JpaPreResult jpa = txTemplate.execute(status -> {
-                ChatRoom room = chatRoomRepository.findWithMemberAndCharacterById(roomId)
-                    .orElseThrow(() -> new NotFoundException("채팅방이 존재하지 않습니다."));
-                int cost = boostModeResolver.resolveEnergyCost(room.getChatMode(), room.getUser());
-                room.getUser().consumeEnergy(cost);
-                long logCount = chatLogRepository.countByRoomId(roomId);
-                return new JpaPreResult(room, room.getUser().getId(), logCount,
-                    room.getUser().getUsername(), cost);
-            });
-            cacheService.evictUserProfile(jpa.username());
+            // ━━━ [Perf] Pre-flight — 독립 읽기를 TX-1(에너지 차감)과 병렬로 ━━━
+            //  secret→moderation │ history(컨텍스트 스냅샷) │ memory(장기 기억) │ world   ← fork
+            //  TX-1                                                                    ← 호출 스레드
+            //  모더레이션 차단 · 에너지 부족은 즉시 형제 취소 (fail-fast).
+            //  TX-1이 이미 커밋된 뒤 차단이 확인되면 에너지를 환불한다 (USER 저장 전이라 로그 보상 불필요).
+            //  [Perf] 투기 실행 모드: TX-1을 호출 스레드가 아니라 Writes로 — 커밋을 기다리지 않고 LLM 요청까지 진행.
+            JpaPreResult jpa;
+            boolean effectiveSecretMode;
+            MemoryService.MemoryContext longTermMemory;
+            World world;
+            ChatContextCache.Snapshot history;
+            ChatPreflight.Writes writes = preflight.isSpeculative()
+                ? preflight.beginWrites(mode, () -> {
+                    int cost = debitEnergy(roomId);
+                    cacheService.evictUserProfile(roomForCheck.getUser().getUsername());
+                    return cost;
+                })
+                : null;
+            try (ChatPreflight.Scope scope = preflight.open(mode)) {
+                // 시크릿 자격 → 모더레이션 (시크릿이면 바이패스) — 결과는 이번 턴의 effectiveSecretMode
+                ChatPreflight.Stage<Boolean> secretStage = scope.fork("moderation", () -> {
+                    boolean secret = resolveSecretMode(roomForCheck);
+                    ContentModerationService.ModerationVerdict verdict =
+                        contentModerationService.moderate(userMessage, secret);
+                    if (!verdict.passed()) throw new ModerationBlockedException(verdict);
+                    return secret;
+                });
+                ChatPreflight.Stage<ChatContextCache.Snapshot> historyStage =
+                    scope.fork("history", () -> chatContextCache.snapshot(roomId));
+                // 검색 질의 = 이번 USER 발화 (저장 후 latestUserMessage와 동일)
+                ChatPreflight.Stage<MemoryService.MemoryContext> memoryStage = scope.fork("memory", () -> {
+                    try {
+                        return memoryService.retrieveContext(roomId, userMessage);
+                    } catch (Exception e) {
+                        log.warn("RAG failed (non-blocking): {}", e.getMessage());
+                        return new MemoryService.MemoryContext("", false);
+                    }
+                });
+                ChatPreflight.Stage<World> worldStage = scope.fork("world", () -> resolveWorldOrNull(roomForCheck));
+
+                int debited = 0;
+                try {
+                    if (writes == null) debited = scope.inline("tx1", () -> debitEnergy(roomId));
+                    scope.join();
+                } catch (ModerationBlockedException blocked) {
+                    if (writes != null) debited = writes.energyCost();
+                    if (debited > 0) {
+                        compensateEnergy(roomForCheck.getUser().getId(), debited, roomForCheck.getUser().getUsername());
+                    }
+                    ContentModerationService.ModerationVerdict verdict = blocked.verdict;
+                    moderationEventService.recordModeration(
+                        roomForCheck.getUser().getId(), roomForCheck.getId(), "CHAT",
+                        verdict.blockedAtStep(), verdict.category(), verdict.totalLatencyMs(), userMessage);
+                    sendSseError(emitter, "CONTENT_BLOCKED", verdict.userMessage());
+                    return;
+                } catch (Exception e) {
+                    if (writes != null) debited = writes.energyCost();
+                    if (debited > 0) {
+                        compensateEnergy(roomForCheck.getUser().getId(), debited, roomForCheck.getUser().getUsername());
+                    }
+                    throw e;
+                }
+
+                history = historyStage.get();
+                jpa = new JpaPreResult(roomForCheck, roomForCheck.getUser().getId(), history.total(),
+                    roomForCheck.getUser().getUsername(), debited);
+                effectiveSecretMode = secretStage.get();
+                longTermMemory = jpa.logCount() + 1 >= ChatModePolicy.getRagSkipThreshold(roomForCheck.getChatMode())
+                    ? memoryStage.get() : new MemoryService.MemoryContext("", false);
+                world = worldStage.get();
+                log.info("⏱ [STREAM-PERF] preflight: {}ms | {} | roomId={}",
+                    System.currentTimeMillis() - totalStart, scope.timings(), roomId);
+            }
+            if (writes == null) cacheService.evictUserProfile(jpa.username());
 
             // ── Prompt Injection Check ──
             PromptInjectionGuard.InjectionCheckResult injCheck =
@@ -225,27 +315,42 @@ public class ChatStreamService {
             }
 
             // ── MongoDB: USER 메시지 저장 ──
-            String savedUserLogId;
-            try {
-                ChatLogDocument savedLog = chatLogRepository.save(
-                    ChatLogDocument.user(roomId, userMessage));
-                savedUserLogId = savedLog.getId();
-            } catch (Exception e) {
-                compensateEnergy(jpa.userId(), jpa.energyCost(), jpa.username());
-                sendSseError(emitter, "INTERNAL_ERROR", "메시지 저장에 실패했습니다.");
-                return;
+            RollbackContext rollbackCtx;
+            ChatContextCache.Snapshot historyOverride = null;
+            if (writes != null) {
+                // [Perf] 투기 실행 — 저장은 TX-1 커밋 뒤에 이어서, 히스토리는 저장될 USER 로그를 미리 덧붙인 사본으로
+                ChatLogDocument userLog = ChatLogDocument.user(roomId, userMessage);
+                historyOverride = chatContextCache.withPending(history, userLog);
+                writes.thenSaveUserLog(() -> {
+                    ChatLogDocument savedLog = chatLogRepository.save(userLog);
+                    chatContextCache.append(savedLog);
+                    return savedLog.getId();
+                });
+                rollbackCtx = new RollbackContext(roomId, jpa.userId(), jpa.username(), 0, null, writes);
+            } else {
+                String savedUserLogId;
+                long tSave = System.currentTimeMillis();
+                try {
+                    ChatLogDocument savedLog = chatLogRepository.save(
+                        ChatLogDocument.user(roomId, userMessage));
+                    chatContextCache.append(savedLog);
+                    savedUserLogId = savedLog.getId();
+                } catch (Exception e) {
+                    compensateEnergy(jpa.userId(), jpa.energyCost(), jpa.username());
+                    sendSseError(emitter, "INTERNAL_ERROR", "메시지 저장에 실패했습니다.");
+                    return;
+                }
+                preflight.record(mode, "user_save", System.currentTimeMillis() - tSave);
+                rollbackCtx = new RollbackContext(
+                    roomId, jpa.userId(), jpa.username(), jpa.energyCost(), savedUserLogId);
             }
 
-            RollbackContext rollbackCtx = new RollbackContext(
-                jpa.userId(), jpa.username(), jpa.energyCost(), savedUserLogId);
-
             // [Phase 5.5-EV] 유저 개입인지 판단 (디렉터 모드 중 유저가 직접 채팅)
             boolean isUserIntervention = jpa.room().isEventActive();
 
             // ── LLM 호출 + 파싱 ──
-            boolean effectiveSecretMode = resolveSecretMode(jpa.room());
-            ParsedLlmResult parsed = streamLlmAndParse(jpa.room(), jpa.logCount() + 1,
-                effectiveSecretMode, emitter, rollbackCtx);
+            ParsedLlmResult parsed = streamLlmAndParse(jpa.room(), longTermMemory,
+                effectiveSecretMode, emitter, rollbackCtx, totalStart, historyOverride);
             if (parsed == null) return; // 에러 시 이미 emitter 처리됨
 
             // [이관] isStory 변수 제거 — 모든 게이트가 ChatModePolicy로 정책화됨 (SANDBOX 이관 완성)
@@ -255,8 +360,9 @@ public class ChatStreamService {
 
             // ── TX-2 ──
             SendChatResponse response;
+            long tTx2 = System.currentTimeMillis();
             try {
-                response = txTemplate.execute(status -> {
+                response = chatTracing.inSpan("chat.tx2", mode, () -> txTemplate.execute(status -> {
                     ChatRoom freshRoom = chatRoomRepository.findWithMemberAndCharacterById(roomId)
                         .orElseThrow(() -> new NotFoundException("채팅방이 존재하지 않습니다."));
 
@@ -336,13 +442,14 @@ public class ChatStreamService {
                         false, null,
                         ChatModePolicy.supportsTopicConcluded(freshRoom.getChatMode()) ? freshRoom.isTopicConcluded() : false,  // [이관]
                         ChatModePolicy.supportsEvents(freshRoom.getChatMode()) ? (wasEventActive ? "RESOLVED" : (freshRoom.isEventActive() ? freshRoom.getEventStatus() : null)) : null);
-                });
+                }));
             } catch (Exception e) {
                 log.error("❌ TX-2 failed | roomId={}", roomId, e);
                 compensateFullRollback(rollbackCtx);
                 sendSseError(emitter, "TX_ERROR", "응답 처리 중 오류가 발생했습니다.");
                 return;
             }
+            preflight.record(mode, "tx2", System.currentTimeMillis() - tTx2);
 
             // ── MongoDB: ASSISTANT 저장 ──
             // [Phase6/Tier3 / C-9] 단순 try-catch → ChatLogPersister(retry + deadletter)로 위임.
@@ -403,7 +510,7 @@ public class ChatStreamService {
                 } else {
                     String timeOfDay = parsed.lastTime() != null ? parsed.lastTime() : "DAY";
                     final String canonicalKey = parsedCanonicalKey(parsed);
-                    final World world = resolveWorldOrNull(jpa.room());
+                    // [Perf] world는 pre-flight에서 이미 조회됨
                     // [블록 B 리뷰픽스 P1] 배경 트랙도 게이트 경유 — raw 플래그는 자격 소실
                     //   (페르소나 나이 하향·패스 만료) 후에도 NSFW 트랙에 태운다. 매턴 재판정.
                     final boolean secretMode = resolveSecretMode(jpa.room());
@@ -470,20 +577,26 @@ public class ChatStreamService {
             }
 
             // ── SSE: final_result ──
-            sendFinalResult(emitter, response,
+            sendFinalResult(emitter, response, parsed.streamedSceneCount(),
                 ChatModePolicy.supportsInnerThought(jpa.room().getChatMode()) && hasInnerThought,  // [이관]
                 assistantLogId,
                 ChatModePolicy.supportsSceneDirection(jpa.room().getChatMode()) && parsed.generateIllustration(),  // [이관]
                 locationTransition, sceneIllust);
             emitter.complete();
 
-            log.info("⏱ [STREAM-PERF] sendMessageStream DONE: {}ms", System.currentTimeMillis() - totalStart);
+            long totalMs = System.currentTimeMillis() - totalStart;
+            chatMetrics.recordRequest(mode, parsed.model(), totalMs);
+            log.info("⏱ [STREAM-PERF] sendMessageStream DONE: {}ms", totalMs);
 
-            triggerPostProcessing(roomId, jpa.userId(), jpa.logCount() + 1, effectiveSecretMode, jpa.room().getChatMode());
+            chatTracing.runInSpan("chat.post", mode, () -> triggerPostProcessing(
+                roomId, jpa.userId(), jpa.logCount() + 1, effectiveSecretMode, jpa.room().getChatMode()));
 
         } catch (Exception e) {
             log.error("❌ Unexpected error | roomId={}", roomId, e);
+            rootSpan.error(e);
             sendSseError(emitter, "UNEXPECTED_ERROR", "예기치 않은 오류가 발생했습니다.");
+        } finally {
+            rootSpan.close();
         }
     }
 
@@ -512,7 +625,7 @@ public class ChatStreamService {
 
                 int cost = 1; // 지켜보기 비용
                 room.getUser().consumeEnergy(cost);
-                long logCount = chatLogRepository.countByRoomId(roomId);
+                long logCount = chatContextCache.snapshot(roomId).total();
                 return new JpaPreResult(room, room.getUser().getId(), logCount,
                     room.getUser().getUsername(), cost);
             });
@@ -530,6 +643,7 @@ public class ChatStreamService {
             try {
                 ChatLogDocument savedLog = chatLogRepository.save(
                     ChatLogDocument.hiddenSystem(roomId, watchPrompt));
+                chatContextCache.append(savedLog);
                 savedLogId = savedLog.getId();
             } catch (Exception e) {
                 compensateEnergy(jpa.userId(), jpa.energyCost(), jpa.username());
@@ -538,7 +652,7 @@ public class ChatStreamService {
             }
 
             RollbackContext rollbackCtx = new RollbackContext(
-                jpa.userId(), jpa.username(), jpa.energyCost(), savedLogId);
+                roomId, jpa.userId(), jpa.username(), jpa.energyCost(), savedLogId);
 
             boolean effectiveSecretMode = resolveSecretMode(jpa.room());
 
@@ -585,7 +699,7 @@ public class ChatStreamService {
             String assistantLogId = saveAssistantLog(roomId, parsed);
             cacheService.evictRoomInfo(roomId);
 
-            sendFinalResult(emitter, response, false, assistantLogId, false, null);
+            sendFinalResult(emitter, response, parsed.streamedSceneCount(), false, assistantLogId, false, null);
             emitter.complete();
 
             log.info("👀 [DIRECTOR-WATCH] DONE | roomId={}", roomId);
@@ -640,7 +754,7 @@ public class ChatStreamService {
                 ChatRoom room = chatRoomRepository.findWithMemberAndCharacterById(roomId)
                     .orElseThrow(() -> new NotFoundException("채팅방이 존재하지 않습니다."));
                 room.getUser().consumeEnergy(TIME_SKIP_ENERGY_COST);
-                long logCount = chatLogRepository.countByRoomId(roomId);
+                long logCount = chatContextCache.snapshot(roomId).total();
                 return new JpaPreResult(room, room.getUser().getId(), logCount,
                     room.getUser().getUsername(), TIME_SKIP_ENERGY_COST);
             });
@@ -651,6 +765,7 @@ public class ChatStreamService {
             try {
                 ChatLogDocument savedLog = chatLogRepository.save(
                     ChatLogDocument.hiddenSystem(roomId, TIME_SKIP_PROMPT));
+                chatContextCache.append(savedLog);
                 savedLogId = savedLog.getId();
             } catch (Exception e) {
                 compensateEnergy(jpa.userId(), jpa.energyCost(), jpa.username());
@@ -659,7 +774,7 @@ public class ChatStreamService {
             }
 
             RollbackContext rollbackCtx = new RollbackContext(
-                jpa.userId(), jpa.username(), jpa.energyCost(), savedLogId);
+                roomId, jpa.userId(), jpa.username(), jpa.energyCost(), savedLogId);
 
             boolean effectiveSecretMode = resolveSecretMode(jpa.room());
 
@@ -760,7 +875,7 @@ public class ChatStreamService {
             // [Phase 6-Illust] illustration_scene_hint 영속화 (TimeSkip 응답에서도 매번)
             applyParsedToRoom(roomId, parsed);
 
-            sendFinalResult(emitter, response, false, assistantLogId, false, timeSkipLocationTransition);
+            sendFinalResult(emitter, response, parsed.streamedSceneCount(), false, assistantLogId, false, timeSkipLocationTransition);
             emitter.complete();
 
             log.info("⏭ [TIME_SKIP] DONE | roomId={}", roomId);
@@ -836,33 +951,47 @@ public class ChatStreamService {
                                               boolean effectiveSecretMode,
                                               SseEmitter emitter, RollbackContext rollbackCtx) {
         // RAG 메모리
-        String longTermMemory = "";
+        // [Perf] 기억이 예산을 넘는 방은 최신 유저 발화 기준 시맨틱 top-k만 주입
+        MemoryService.MemoryContext longTermMemory = new MemoryService.MemoryContext("", false);
         long ragThreshold = ChatModePolicy.getRagSkipThreshold(room.getChatMode());
         if (logCountForRag >= ragThreshold) {
             try {
-                longTermMemory = memoryService.retrieveContext(room.getId());
+                longTermMemory = memoryService.retrieveContext(room.getId(), latestUserMessage(room.getId()));
             } catch (Exception e) {
                 log.warn("RAG failed (non-blocking): {}", e.getMessage());
             }
         }
+        return streamLlmAndParse(room, longTermMemory, effectiveSecretMode, emitter, rollbackCtx, -1, null);
+    }
 
+    /**
+     * @param longTermMemory  호출측이 이미 조회한 장기 기억 ([Perf] pre-flight 경로)
+     * @param requestStart    ≥ 0이면 LLM 요청 직전까지의 서버측 소요를 "ttlr"(time-to-LLM-request)로 기록
+     * @param historyOverride null이 아니면 캐시 대신 이 스냅샷으로 히스토리 구성 ([Perf] 투기 실행 — 저장 전 USER 포함본)
+     */
+    private ParsedLlmResult streamLlmAndParse(ChatRoom room, MemoryService.MemoryContext longTermMemory,
+                                              boolean effectiveSecretMode,
+                                              SseEmitter emitter, RollbackContext rollbackCtx,
+                                              long requestStart, ChatContextCache.Snapshot historyOverride) {
         // 프롬프트 조립
         CharacterPromptAssembler.SystemPromptPayload systemPrompt =
             promptAssembler.assembleSystemPrompt(
                 room.getCharacter(), room, room.getUser(),
-                longTermMemory, effectiveSecretMode);
+                longTermMemory.text(), effectiveSecretMode);
 
-        List<OpenAiMessage> messages = buildMessageHistory(
-            room.getId(), systemPrompt,
-            room.getCharacter().getName(), room.getUser().getNickname());
         String model = boostModeResolver.resolveModel(room.getUser());
+        ContextBudgeter.Budgeted budgeted = buildMessageHistory(
+            historyOverride != null ? historyOverride : chatContextCache.snapshot(room.getId()),
+            systemPrompt, room.getCharacter().getName(), model, room.getChatMode(),
+            longTermMemory.selective());
+        List<OpenAiMessage> messages = budgeted.messages();
 
         // ━━━ [Phase 5.5-Stability] 서킷 브레이커 기반 Provider 결정 ━━━
         LlmCircuitBreaker.ProviderDecision decision = llmCircuitBreaker.decide();
         log.info("🔌 [CIRCUIT] Provider decision: {} | deadline={}ms | state={} | roomId={}",
             decision.provider(), decision.ttftDeadlineMs(), llmCircuitBreaker.getState(), room.getId());
 
-        // ── SSE 콜백 정의 (Primary/Fallback 재시도 시에도 동일하게 사용) ──
+        // ── SSE 콜백 정의 (Primary/Fallback/헤지 중 승자 스트림만 발화) ──
         // [Polish · P1 #2] dialogue prefix sanitizer를 위해 알려진 화자 이름 모음.
         //   STORY/SANDBOX 모드는 캐릭터(메인 화자) + 유저 nickname만 안다.
         //   NPC 화자가 등장할 수 있으므로 안전한 화이트리스트 매칭만 수행.
@@ -874,24 +1003,15 @@ public class ChatStreamService {
             sanitizerSpeakers.add(room.getUser().getNickname().trim());
         }
 
-        Consumer<String> onFirstScene = firstSceneJson -> {
+        // [Perf] 씬 단위 SSE — scenes[i]가 닫히는 즉시 scene 이벤트 발송.
+        //   index 0은 구버전 클라이언트 호환을 위해 first_scene도 함께 발송한다.
+        SceneEventSender sceneEvents = new SceneEventSender(emitter, objectMapper);
+        BiConsumer<Integer, String> onScene = (index, sceneJson) -> {
             try {
-                AiJsonOutput.Scene scene = objectMapper.readValue(firstSceneJson, AiJsonOutput.Scene.class);
-                EmotionTag emotion = LlmOutputParser.parseEmotion(scene.emotion());
-                // [Polish · P1 #2] dialogue / narration 화자 prefix 제거
-                String sanitizedDialogue = com.spring.aichat.service.util.DialogueSanitizer
-                    .stripSpeakerPrefix(scene.dialogue(), sanitizerSpeakers);
-                String sanitizedNarration = com.spring.aichat.service.util.DialogueSanitizer
-                    .stripSpeakerPrefix(scene.narration(), sanitizerSpeakers);
-                SceneResponse firstScene = new SceneResponse(
-                    scene.speaker(),
-                    sanitizedNarration, sanitizedDialogue, emotion,
-                    LlmOutputParser.safeUpperCase(scene.location()), LlmOutputParser.safeUpperCase(scene.time()),
-                    LlmOutputParser.safeUpperCase(scene.outfit()), LlmOutputParser.safeUpperCase(scene.bgmMode()));
-                emitter.send(SseEmitter.event().name("first_scene")
-                    .data(objectMapper.writeValueAsString(firstScene)));
+                AiJsonOutput.Scene scene = objectMapper.readValue(sceneJson, AiJsonOutput.Scene.class);
+                sceneEvents.send(index, toSceneResponse(scene, sanitizerSpeakers));
             } catch (Exception e) {
-                log.warn("first_scene send failed: {}", e.getMessage());
+                log.warn("scene[{}] send failed: {}", index, e.getMessage());
             }
         };
         Consumer<String> onEventStatus = eventStatus -> {
@@ -905,69 +1025,58 @@ public class ChatStreamService {
             }
         };
 
-        // ── LLM 스트림 (서킷 브레이커 연동) ──
-        StreamResult streamResult;
-        try {
-            Map<String, Object> providerRouting = Map.of(
-                "order", List.of(decision.provider()),
-                "allow_fallbacks", false
-            );
-            OpenAiChatRequest llmRequest = new OpenAiChatRequest(
-                model, messages, 0.8, true, 0.3, 0.15, providerRouting, Map.of("type", "json_object"),
-                6144);  // [Q2-Fix] 멀티씬(2~3)+location 필드 한글 JSON 여유 — scenes 배열 중간 잘림(파스 에러) 방지
-
-            streamResult = streamClient.streamCompletion(
-                llmRequest, onFirstScene, onEventStatus, decision.ttftDeadlineMs());
-
-            // ✅ AI Studio 성공 → 서킷 브레이커 기록
-            if (decision.isPrimary()) {
-                llmCircuitBreaker.recordSuccess(streamResult.ttft());
-            }
-
-        } catch (TtftTimeoutException ttftEx) {
-            // ━━━ [Stability] TTFT 데드라인 초과 → 실패 기록 + Vertex 즉시 폴백 ━━━
-            llmCircuitBreaker.recordFailure(ttftEx.getDeadlineMs());
-            log.warn("🔄 [CIRCUIT] TTFT 초과 → Vertex 폴백 | deadline={}ms | state={} | roomId={}",
-                ttftEx.getDeadlineMs(), llmCircuitBreaker.getState(), room.getId());
-
-            try {
-                Map<String, Object> fallbackRouting = Map.of(
-                    "order", List.of(LlmCircuitBreaker.PROVIDER_VERTEX),
-                    "allow_fallbacks", false
-                );
-                OpenAiChatRequest fallbackRequest = new OpenAiChatRequest(
-                    model, messages, 0.8, true, 0.3, 0.15, fallbackRouting, Map.of("type", "json_object"),
-                    6144);  // [Q2-Fix]
-
-                streamResult = streamClient.streamCompletion(
-                    fallbackRequest, onFirstScene, onEventStatus, 0); // Vertex는 데드라인 없음
-
-                log.info("✅ [CIRCUIT] Vertex 폴백 성공 | TTFT={}ms | roomId={}", streamResult.ttft(), room.getId());
+        // [Perf] 투기 실행 — 첫 이벤트 발화 전에 TX-1 · USER 저장 커밋을 확인 (실패한 턴은 한 씬도 내보내지 않는다)
+        ChatPreflight.Writes writes = rollbackCtx.writes();
+        StreamControl abort = writes != null ? writes.abort() : new StreamControl(null);
+        if (writes != null) {
+            onScene = writes.gate(onScene);
+            onEventStatus = writes.gate(onEventStatus);
+        }
 
-            } catch (Exception fallbackEx) {
-                log.error("❌ [CIRCUIT] Vertex 폴백마저 실패 | roomId={}", room.getId(), fallbackEx);
-                compensateFullRollback(rollbackCtx);
-                sendSseError(emitter, "LLM_ERROR", "AI 응답 생성 실패 (폴백 포함)");
-                return null;
-            }
+        if (requestStart >= 0) {
+            long ttlr = System.currentTimeMillis() - requestStart;
+            preflight.record(room.getChatMode(), "ttlr", ttlr);
+            log.info("⏱ [STREAM-PERF] time-to-LLM-request: {}ms | roomId={}", ttlr, room.getId());
+        }
 
+        // ── LLM 스트림 (서킷 브레이커 연동 — 폴백/헤지 + 서킷 기록은 LlmHedgedStreamer) ──
+        StreamResult streamResult;
+        long streamStart = System.currentTimeMillis();
+        try (var usageScope = LlmUsageContext.open(LlmCaller.CHAT_V1, room.getId(), room.getUser().getId())) {
+            streamResult = hedgedStreamer.stream(decision, provider -> new OpenAiChatRequest(
+                    model, messages, 0.8, true, 0.3, 0.15,
+                    Map.of("order", List.of(provider), "allow_fallbacks", false),
+                    Map.of("type", "json_object"),
+                    budgeted.maxTokens()),  // [Q2-Fix] 모드별 하한이 멀티씬 한글 JSON 잘림(파스 에러) 방지선 (ChatModePolicy)
+                onScene, onEventStatus, abort);
         } catch (Exception e) {
-            // 기타 예외 (네트워크 에러, 5xx 등) — AI Studio 시도였다면 실패 기록
-            if (decision.isPrimary()) {
-                llmCircuitBreaker.recordFailure(-1);
+            if (writes != null && !writes.awaitCommitted()) {
+                log.error("❌ [SPECULATIVE] bookkeeping write failed — stream aborted | roomId={}", room.getId());
+                failSpeculativeWrites(rollbackCtx, emitter);
+                return null;
             }
-            log.error("LLM stream failed | provider={} | roomId={}", decision.provider(), room.getId(), e);
+            log.error("LLM stream failed | provider={} | circuit={} | roomId={}",
+                decision.provider(), llmCircuitBreaker.getStatusSummary(), room.getId(), e);
             compensateFullRollback(rollbackCtx);
             sendSseError(emitter, "LLM_ERROR", "AI 응답 생성 실패");
             return null;
         }
+        // 이벤트 없이 끝난 스트림도 커밋 확인 — 이후 TX-2 · ASSISTANT 저장은 USER 로그 뒤에 와야 한다
+        if (writes != null && !writes.awaitCommitted()) {
+            log.error("❌ [SPECULATIVE] bookkeeping write failed after stream | roomId={}", room.getId());
+            failSpeculativeWrites(rollbackCtx, emitter);
+            return null;
+        }
+        chatMetrics.recordStream(room.getChatMode(), model, streamResult, System.currentTimeMillis() - streamStart);
 
         // ── JSON 파싱 ──
         AiJsonOutput aiOutput;
         String cleanJson;
-        try {
+        long parseStart = System.nanoTime();
+        try (var parseSpan = chatTracing.start("chat.llm.parse", room.getChatMode())) {
             cleanJson = LlmOutputParser.extractJson(streamResult.fullResponse());
             aiOutput = objectMapper.readValue(cleanJson, AiJsonOutput.class);
+            chatMetrics.recordParse(room.getChatMode(), System.nanoTime() - parseStart);
         } catch (JsonProcessingException e) {
             log.error("JSON Parse Error: {}", streamResult.fullResponse(), e);
             compensateFullRollback(rollbackCtx);
@@ -983,18 +1092,9 @@ public class ChatStreamService {
             : aiOutput.scenes().get(aiOutput.scenes().size() - 1).emotion();
         EmotionTag mainEmotion = LlmOutputParser.parseEmotion(lastEmotionStr);
 
+        // [Polish · P1 #2] final_result에서도 일관성 유지 — scene 이벤트와 같은 sanitizerSpeakers 사용.
         List<SceneResponse> sceneResponses = aiOutput.scenes().stream()
-            .map(s -> new SceneResponse(
-                s.speaker(),                        // [Phase 5.5-NPC] 화자
-                // [Polish · P1 #2] narration / dialogue 화자 prefix 제거.
-                //   final_result에서도 일관성 유지 — first_scene과 같은 sanitizerSpeakers 사용.
-                com.spring.aichat.service.util.DialogueSanitizer.stripSpeakerPrefix(
-                    s.narration(), sanitizerSpeakers),
-                com.spring.aichat.service.util.DialogueSanitizer.stripSpeakerPrefix(
-                    s.dialogue(), sanitizerSpeakers),
-                LlmOutputParser.parseEmotion(s.emotion()),
-                LlmOutputParser.safeUpperCase(s.location()), LlmOutputParser.safeUpperCase(s.time()),
-                LlmOutputParser.safeUpperCase(s.outfit()), LlmOutputParser.safeUpperCase(s.bgmMode())))
+            .map(s -> toSceneResponse(s, sanitizerSpeakers))
             .collect(Collectors.toList());
 
         // [Phase 5.5-Fix] scenesJson: 씬 배열 구조화 저장 (재로딩 시 씬별 분리 복원용)
@@ -1015,10 +1115,25 @@ public class ChatStreamService {
             scenesJson,
             aiOutput.shouldGenerateIllustration(),
             aiOutput.newLocationName(),
-            aiOutput.locationDescription()
+            aiOutput.locationDescription(),
+            sceneEvents.streamedCount(),
+            model
         );
     }
 
+    /** LLM 씬 → 응답 씬 변환. [Polish · P1 #2] narration / dialogue 화자 prefix 제거 포함. */
+    private SceneResponse toSceneResponse(AiJsonOutput.Scene scene, Set<String> sanitizerSpeakers) {
+        return new SceneResponse(
+            scene.speaker(),                        // [Phase 5.5-NPC] 화자
+            com.spring.aichat.service.util.DialogueSanitizer.stripSpeakerPrefix(
+                scene.narration(), sanitizerSpeakers),
+            com.spring.aichat.service.util.DialogueSanitizer.stripSpeakerPrefix(
+                scene.dialogue(), sanitizerSpeakers),
+            LlmOutputParser.parseEmotion(scene.emotion()),
+            LlmOutputParser.safeUpperCase(scene.location()), LlmOutputParser.safeUpperCase(scene.time()),
+            LlmOutputParser.safeUpperCase(scene.outfit()), LlmOutputParser.safeUpperCase(scene.bgmMode()));
+    }
+
     // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
     //  공통 헬퍼
     // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
@@ -1034,7 +1149,9 @@ public class ChatStreamService {
             ChatLogDocument assistantLog = ChatLogDocument.assistantWithThought(
                 roomId, parsed.cleanJson(), parsed.combinedDialogue(),
                 parsed.mainEmotion(), null, parsed.innerThought(), parsed.scenesJson());
-            return chatLogRepository.save(assistantLog).getId();
+            ChatLogDocument saved = chatLogRepository.save(assistantLog);
+            chatContextCache.append(saved);
+            return saved.getId();
         } catch (Exception e) {
             log.error("⚠️ ASSISTANT log save failed | roomId={}", roomId, e);
             return null;
@@ -1057,22 +1174,26 @@ public class ChatStreamService {
         return false;
     }
 
-    private void sendFinalResult(SseEmitter emitter, SendChatResponse response,
+    private void sendFinalResult(SseEmitter emitter, SendChatResponse response, int streamedSceneCount,
                                  boolean hasInnerThought, String assistantLogId,
                                  boolean generateIllustration,
                                  LocationTransition locationTransition) {
-        sendFinalResult(emitter, response, hasInnerThought, assistantLogId,
+        sendFinalResult(emitter, response, streamedSceneCount, hasInnerThought, assistantLogId,
             generateIllustration, locationTransition, null);
     }
 
-    private void sendFinalResult(SseEmitter emitter, SendChatResponse response,
+    /**
+     * [Perf] final_result는 스탯·메타데이터 전용 — 씬이 모두 scene 이벤트로 전달됐으면 scenes=null.
+     * 일부라도 누락(씬 파싱/전송 실패)되었으면 전체 scenes를 실어 클라이언트가 교체하도록 한다.
+     */
+    private void sendFinalResult(SseEmitter emitter, SendChatResponse response, int streamedSceneCount,
                                  boolean hasInnerThought, String assistantLogId,
                                  boolean generateIllustration,
                                  LocationTransition locationTransition,
                                  SendChatResponse.SceneIllustrationInfo sceneIllustration) {
         try {
             SendChatResponse finalResponse = new SendChatResponse(
-                response.roomId(), response.scenes(),
+                response.roomId(), SceneEventSender.finalScenes(response.scenes(), streamedSceneCount),
                 response.currentAffection(), response.relationStatus(),
                 response.promotionEvent(), response.endingTrigger(), response.easterEgg(),
                 response.stats(),
@@ -1125,6 +1246,8 @@ public class ChatStreamService {
     }
 
     private void sendSseError(SseEmitter emitter, String errorCode, String message) {
+        chatMetrics.countSseError(errorCode);
+        chatTracing.tag("chat.error", errorCode);
         try {
             emitter.send(SseEmitter.event().name("error")
                 .data(objectMapper.writeValueAsString(Map.of("errorCode", errorCode, "message", message))));
@@ -1150,13 +1273,55 @@ public class ChatStreamService {
     }
 
     private void compensateFullRollback(RollbackContext ctx) {
-        if (ctx.savedUserLogId() != null) {
-            try { chatLogRepository.deleteById(ctx.savedUserLogId()); }
+        // [Perf] 투기 실행 — 쓰기 완료를 기다린 뒤 실제로 커밋된 것만 되돌린다
+        String savedUserLogId = ctx.writes() != null ? ctx.writes().userLogId() : ctx.savedUserLogId();
+        if (savedUserLogId != null) {
+            try { chatLogRepository.deleteById(savedUserLogId); }
             catch (Exception ex) { log.error("User msg delete FAILED", ex); }
+            chatContextCache.invalidate(ctx.roomId());
+        }
+        if (ctx.writes() != null) {
+            int debited = ctx.writes().energyCost();
+            if (debited > 0) compensateEnergy(ctx.userId(), debited, ctx.username());
+            return;
         }
         compensateEnergy(ctx.userId(), ctx.energyCost(), ctx.username());
     }
 
+    /**
+     * [Perf] 투기 실행 쓰기 실패 — 커밋된 쪽만 보상하고, 직렬 경로와 같은 에러 코드로 응답
+     * (TX-1 실패는 기존에 상위 catch의 UNEXPECTED_ERROR, USER 저장 실패는 INTERNAL_ERROR였다)
+     */
+    private void failSpeculativeWrites(RollbackContext ctx, SseEmitter emitter) {
+        compensateFullRollback(ctx);
+        if (ctx.writes().debitFailed()) {
+            sendSseError(emitter, "UNEXPECTED_ERROR", "예기치 않은 오류가 발생했습니다.");
+        } else {
+            sendSseError(emitter, "INTERNAL_ERROR", "메시지 저장에 실패했습니다.");
+        }
+    }
+
+    /** TX-1 — 에너지 차감 (부족하면 예외, 롤백) */
+    private int debitEnergy(Long roomId) {
+        return txTemplate.execute(status -> {
+            ChatRoom room = chatRoomRepository.findWithMemberAndCharacterById(roomId)
+                .orElseThrow(() -> new NotFoundException("채팅방이 존재하지 않습니다."));
+            int cost = boostModeResolver.resolveEnergyCost(room.getChatMode(), room.getUser());
+            room.getUser().consumeEnergy(cost);
+            return cost;
+        });
+    }
+
+    /** 시맨틱 기억 검색 질의 — 윈도우의 최신 USER 원문 (없으면 null → 최신순 폴백) */
+    private String latestUserMessage(Long roomId) {
+        List<ChatContextCache.Entry> window = chatContextCache.snapshot(roomId).window();
+        for (int i = window.size() - 1; i >= 0; i--) {
+            ChatContextCache.Entry entry = window.get(i);
+            if (entry.role() == ChatRole.USER) return entry.rawContent();
+        }
+        return null;
+    }
+
     /**
      * [Phase 5.5-Director] 비동기 후처리 — 디렉터 판단 통합
      *
@@ -1165,7 +1330,7 @@ public class ChatStreamService {
      */
     private void triggerPostProcessing(Long roomId, Long userId, long totalLogCount,
                                        boolean isSecretMode, ChatMode chatMode) {
-        long userMsgCount = chatLogRepository.countByRoomIdAndRole(roomId, ChatRole.USER);
+        long userMsgCount = chatContextCache.snapshot(roomId).count(ChatRole.USER);
 
         // ── 기존: 메모리 요약 ──
         long memoryCycle = ChatModePolicy.getMemorySummarizationCycle(chatMode);
@@ -1201,67 +1366,113 @@ public class ChatStreamService {
      * [속마음 히스토리]
      * 최근 N개 ASSISTANT 메시지에만 이전 속마음을 포함하여
      * LLM이 이전 속마음을 인지하고 반복을 회피하도록 유도.
+     *
+     * [Perf] 최근 20개는 ChatContextCache 스냅샷에서 — ASSISTANT JSON은 저장 시점에 정제 완료
+     *
+     * [Perf] stable prefix 모드 ({@link StablePrefixLayout}):
+     *   static → 장기 기억 → 블록 정렬 히스토리 → 턴별 상태 순서로 append-only prefix 유지.
+     *   속마음은 열린 블록(마지막 완결 블록 이후)의 ASSISTANT에만 — "최근 N개" 기준은
+     *   메시지가 밀려날 때 과거 본문을 바꿔 prefix를 깨므로 블록 기준으로 대체.
+     *
+     * [Perf] 윈도우는 상한일 뿐 — 실제 대화 수는 {@link ContextBudgeter} 토큰 예산으로 결정, max_tokens도 함께.
+     *
+     * @param selectiveMemory 장기 기억이 질의별 선택본이면 매 턴 바뀌므로 캐시 prefix 대신 tail에 둔다
      */
-    private List<OpenAiMessage> buildMessageHistory(Long roomId, CharacterPromptAssembler.SystemPromptPayload systemPrompt,
-                                                    String characterName, String userNickname) {
-        List<ChatLogDocument> history = chatLogRepository.findTop20ByRoomIdOrderByCreatedAtDesc(roomId);
-        history.sort(Comparator.comparing(ChatLogDocument::getCreatedAt));
-
-        List<OpenAiMessage> messages = new ArrayList<>();
-
-        if (history.size() == 3 || history.size() % 20 == 0) {
-            messages.add(OpenAiMessage.systemCached(systemPrompt.staticRules(), Map.of("type", "ephemeral")));
-        } else messages.add(OpenAiMessage.system(systemPrompt.staticRules()));
+    private ContextBudgeter.Budgeted buildMessageHistory(ChatContextCache.Snapshot snapshot,
+                                                         CharacterPromptAssembler.SystemPromptPayload systemPrompt,
+                                                         String characterName, String model, ChatMode mode,
+                                                         boolean selectiveMemory) {
+        List<ChatContextCache.Entry> history = snapshot.window();
+        boolean stablePrefix = prefixLayout.isEnabled();
+
+        List<OpenAiMessage> head = new ArrayList<>(2);
+        List<OpenAiMessage> tail = new ArrayList<>(2);
+
+        int sealedEnd = -1;
+        if (stablePrefix) {
+            var window = prefixLayout.align(snapshot.total(), history.size());
+            history = history.subList(window.from(), history.size());
+            sealedEnd = window.sealedEnd() - window.from();
+
+            head.add(OpenAiMessage.systemCached(systemPrompt.staticRules(), StablePrefixLayout.EPHEMERAL));
+            if (selectiveMemory) {
+                tail.add(OpenAiMessage.system(systemPrompt.memoryRules()));
+            } else {
+                head.add(OpenAiMessage.systemCached(systemPrompt.memoryRules(), StablePrefixLayout.EPHEMERAL));
+            }
+            tail.add(OpenAiMessage.system(systemPrompt.stateRules()));
+        } else {
+            if (history.size() == 3 || history.size() % 20 == 0) {
+                head.add(OpenAiMessage.systemCached(systemPrompt.staticRules(), Map.of("type", "ephemeral")));
+            } else head.add(OpenAiMessage.system(systemPrompt.staticRules()));
+            tail.add(OpenAiMessage.system(systemPrompt.dynamicRules()));
+        }
+        tail.add(OpenAiMessage.system(systemPrompt.outputFormat()));
 
         // [Phase 5.5-Fix-IT] ASSISTANT 메시지 역순 카운팅 — 최근 N개 판별
         int totalAssistantCount = 0;
-        for (ChatLogDocument log : history) {
-            if (log.getRole() == ChatRole.ASSISTANT) totalAssistantCount++;
+        for (ChatContextCache.Entry entry : history) {
+            if (entry.role() == ChatRole.ASSISTANT) totalAssistantCount++;
         }
         int assistantThreshold = totalAssistantCount - INNER_THOUGHT_HISTORY_WINDOW;
 
+        // [Fix] USER: role="user"가 화자 신호 — 텍스트 태그 불필요
+        // [Fix] ASSISTANT: 감정 메타데이터 제거, 대사+나레이션만 유지 (최근 N개만 속마음 포함)
+        // [Fix 핵심] SYSTEM 나레이션: role="system" + [NARRATION] → 유저 발화 오귀속 방지
+        List<OpenAiMessage> turns = new ArrayList<>(history.size());
+        int assistantIdx = 0;
+        for (int i = 0; i < history.size(); i++) {
+            ChatContextCache.Entry entry = history.get(i);
+            boolean includeThought = false;
+            if (entry.role() == ChatRole.ASSISTANT) {
+                includeThought = stablePrefix ? i > sealedEnd : assistantIdx >= assistantThreshold;
+                assistantIdx++;
+            }
+            turns.add(entry.toChatMessage(characterName, includeThought));
+        }
+
+        // [Perf] 토큰 예산 — 오래된 대화부터 덜어냄 (stable prefix면 블록 단위)
+        int fixedTokens = 0;
+        for (OpenAiMessage m : head) fixedTokens += contextBudgeter.estimate(m, model);
+        for (OpenAiMessage m : tail) fixedTokens += contextBudgeter.estimate(m, model);
+        ContextBudgeter.Plan plan = contextBudgeter.plan(model, mode, fixedTokens, turns,
+            stablePrefix ? prefixLayout.getBlockSize() : 1);
+        int skip = plan.skip();
+
+        List<OpenAiMessage> messages = new ArrayList<>(head.size() + turns.size() - skip + tail.size() + 1);
+        messages.addAll(head);
+
         // [Bug Fix] 인트로 환각 방지: 첫 ASSISTANT 앞에 USER가 없으면 합성 삽입
         boolean needsSyntheticUserMsg = false;
-        if (!history.isEmpty()) {
-            for (ChatLogDocument log : history) {
-                if (log.getRole() == ChatRole.USER) { break; }
-                if (log.getRole() == ChatRole.ASSISTANT) { needsSyntheticUserMsg = true; break; }
-            }
+        for (int i = skip; i < history.size(); i++) {
+            ChatRole role = history.get(i).role();
+            if (role == ChatRole.USER) { break; }
+            if (role == ChatRole.ASSISTANT) { needsSyntheticUserMsg = true; break; }
         }
 
-        int assistantIdx = 0;
-        for (ChatLogDocument chatLog : history) {
-            if (needsSyntheticUserMsg && chatLog.getRole() == ChatRole.ASSISTANT) {
+        int sealedMessageIdx = -1;
+        for (int i = skip; i < history.size(); i++) {
+            if (needsSyntheticUserMsg && history.get(i).role() == ChatRole.ASSISTANT) {
                 messages.add(OpenAiMessage.user("(입장)"));
                 needsSyntheticUserMsg = false;
             }
+            messages.add(turns.get(i));
+            if (i == sealedEnd) sealedMessageIdx = messages.size() - 1;
+        }
 
-            switch (chatLog.getRole()) {
-                // [Fix] USER: role="user"가 화자 신호 — 텍스트 태그 불필요
-                case USER -> messages.add(OpenAiMessage.user(chatLog.getRawContent()));
-
-                // [Fix] ASSISTANT: 감정 메타데이터 제거, 대사+나레이션만 유지
-                case ASSISTANT -> {
-                    boolean includeThought = assistantIdx >= assistantThreshold;
-                    String sanitized = LlmOutputParser.buildSanitizedAssistantContent(
-                        objectMapper, chatLog, characterName, includeThought);
-                    messages.add(OpenAiMessage.assistant(sanitized));
-                    assistantIdx++;
-                }
-
-                // [Fix 핵심] SYSTEM 나레이션: role="system"으로 전환
-                // 기존: role="user" + [NARRATION] 태그 → 유저 발화로 오귀속
-                // 수정: role="system" → 구조적으로 제3자 서술임을 명시
-                case SYSTEM -> messages.add(
-                    OpenAiMessage.system("[NARRATION] " + chatLog.getRawContent())
-                );
+        if (stablePrefix) {
+            // 마지막 완결 블록 끝 + 최신 메시지에 breakpoint (static·장기 기억과 합쳐 최대 4개)
+            if (sealedMessageIdx >= 0) {
+                messages.set(sealedMessageIdx, StablePrefixLayout.breakpoint(messages.get(sealedMessageIdx)));
+            }
+            int last = messages.size() - 1;
+            if (skip < history.size() && last != sealedMessageIdx) {
+                messages.set(last, StablePrefixLayout.breakpoint(messages.get(last)));
             }
         }
+        messages.addAll(tail);
 
-        messages.add(OpenAiMessage.system(systemPrompt.dynamicRules()));
-        messages.add(OpenAiMessage.system(systemPrompt.outputFormat()));
-
-        return messages;
+        return new ContextBudgeter.Budgeted(messages, plan.maxTokens());
     }
 
     // [Bug #6 Fix] buildSanitizedAssistantContent, extractJson, parseEmotion,
@@ -1374,7 +1585,7 @@ public class ChatStreamService {
                         "상황: " + eventContext + " — 이 상황에 자연스럽게 반응하세요.");
                 }
 
-                long logCount = chatLogRepository.countByRoomId(roomId);
+                long logCount = chatContextCache.snapshot(roomId).total();
                 return new JpaPreResult(room, room.getUser().getId(), logCount,
                     room.getUser().getUsername(), cost);
             });
@@ -1402,6 +1613,7 @@ public class ChatStreamService {
                     savedLog = chatLogRepository.save(
                         ChatLogDocument.hiddenSystem(roomId, systemMessage));
                 }
+                chatContextCache.append(savedLog);
                 savedLogId = savedLog.getId();
             } catch (Exception e) {
                 compensateEnergy(jpa.userId(), jpa.energyCost(), jpa.username());
@@ -1410,7 +1622,7 @@ public class ChatStreamService {
             }
 
             RollbackContext rollbackCtx = new RollbackContext(
-                jpa.userId(), jpa.username(), jpa.energyCost(), savedLogId);
+                roomId, jpa.userId(), jpa.username(), jpa.energyCost(), savedLogId);
 
             boolean effectiveSecretMode = resolveSecretMode(jpa.room());
 
@@ -1518,7 +1730,7 @@ public class ChatStreamService {
             String assistantLogId = saveAssistantLog(roomId, parsed);
             cacheService.evictRoomInfo(roomId);
 
-            sendFinalResult(emitter, response, false, assistantLogId, false, locationTransition);
+            sendFinalResult(emitter, response, parsed.streamedSceneCount(), false, assistantLogId, false, locationTransition);
             emitter.complete();
 
             log.info("🎬 [DIRECTOR-AUTO-RESPOND] DONE | type={} | roomId={}", directiveType, roomId);
@@ -0,0 +1,55 @@
+package com.spring.aichat.service.stream;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.spring.aichat.dto.chat.SceneStreamEvent;
+import com.spring.aichat.dto.chat.SendChatResponse.SceneResponse;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * [Perf] SSE {@code scene} 이벤트 발송 + 스트림 전달 씬 수 집계 — V1(SANDBOX) / V2(STORY) 공용
+ *
+ * <pre>
+ *   send(0, scene)  → first_scene (구버전 호환) + scene{index:0}
+ *   send(i, scene)  → scene{index:i}
+ *   streamedCount   → 0부터 끊김 없이 전달된 씬 수 (중간 씬이 실패하면 이후 씬은 세지 않는다)
+ *   finalScenes     → 전부 전달됐으면 null, 아니면 전체 목록 (final_result.scenes)
+ * </pre>
+ * 헤지/폴백으로 스트림이 바뀌어도 승자 스트림의 콜백만 들어오므로 턴당 인스턴스 1개.
+ */
+public class SceneEventSender {
+
+    private final SseEmitter emitter;
+    private final ObjectMapper objectMapper;
+    private final AtomicInteger streamed = new AtomicInteger(0);
+
+    public SceneEventSender(SseEmitter emitter, ObjectMapper objectMapper) {
+        this.emitter = emitter;
+        this.objectMapper = objectMapper;
+    }
+
+    /** 실패는 호출자에게 던진다 — 카운트는 전송이 끝난 뒤에만 전진 */
+    public void send(int index, SceneResponse scene) throws IOException {
+        if (index == 0) {
+            emitter.send(SseEmitter.event().name("first_scene")
+                .data(objectMapper.writeValueAsString(scene)));
+        }
+        emitter.send(SseEmitter.event().name("scene")
+            .data(objectMapper.writeValueAsString(new SceneStreamEvent(index, scene))));
+        // 순서 보장 — 중간 씬이 실패하면 이후 씬은 final_result에 맡긴다
+        streamed.compareAndSet(index, index + 1);
+    }
+
+    public int streamedCount() {
+        return streamed.get();
+    }
+
+    /** final_result에 실을 씬 — 모든 씬이 scene 이벤트로 전달됐으면 null */
+    public static List<SceneResponse> finalScenes(List<SceneResponse> scenes, int streamedCount) {
+        boolean allStreamed = scenes != null && streamedCount >= scenes.size();
+        return allStreamed ? null : scenes;
+    }
+}
@@ -0,0 +1,236 @@
+package com.spring.aichat.service.stream;
+
+import java.util.Arrays;
+
+/**
+ * [Perf] LLM 스트리밍 출력용 증분(incremental) JSON 스캐너
+ *
+ * <p>{@link SceneStreamExtractor}는 토큰마다 누적 버퍼 전체를 {@code toString()}으로 복사한 뒤
+ * 마크다운 제거 + index 0부터 재탐색한다 — 6,144 토큰 응답이면 CPU·가비지 모두 O(n²).
+ * 본 스캐너는 마지막으로 읽은 위치부터 재개하며, 문자열/이스케이프/깊이 상태를 토큰 경계를 넘어 유지한다.
+ * 전체 String은 스트림 종료 시 {@link #fullText()}로 단 한 번만 만든다.
+ *
+ * <p>추출 대상 (최상위 객체 기준):
+ * <ul>
+ *   <li>{@code "event_status"} 문자열 값 (ONGOING / RESOLVED) → {@link Listener#onEventStatus}</li>
+ *   <li>{@code "scenes"} 배열의 각 원소 객체 → 닫는 중괄호 도착 즉시 {@link Listener#onScene}</li>
+ * </ul>
+ * 선행 {@code ```json} 펜스나 잡음은 최상위 '{' 이전이라 자연히 무시된다.
+ *
+ * <p>스레드 안전하지 않다 — 스트림 1개당 인스턴스 1개 (SSE 읽기 스레드 전용).
+ */
+public class SceneStreamScanner {
+
+    /** 추출 콜백. 스캐너 호출 스레드에서 동기 실행된다. */
+    public interface Listener {
+        default void onEventStatus(String eventStatus) {}
+        default void onScene(int index, String sceneJson) {}
+    }
+
+    private static final String DEFAULT_ARRAY_KEY = "scenes";
+    private static final String EVENT_STATUS_KEY = "event_status";
+    /** event_status 값 캡처 상한 — 비정상 값이 버퍼를 키우지 않도록 */
+    private static final int MAX_VALUE_CAPTURE = 32;
+
+    private final StringBuilder buffer;
+    private final String arrayKey;
+    private final Listener listener;
+
+    // ── 스캔 상태 (토큰 경계를 넘어 유지) ──
+    private int scanPos = 0;
+    private int depth = 0;
+    private boolean[] arrayAtDepth = new boolean[16];
+    private boolean inString = false;
+    private boolean escape = false;
+    /** 현재(깊이 1) 객체에서 다음 문자열이 키인지 */
+    private boolean expectKey = false;
+
+    // ── 최상위 키 판별 (할당 없이 재사용 버퍼로 비교) ──
+    private final StringBuilder keyBuf = new StringBuilder(32);
+    private boolean capturingKey = false;
+    private boolean keyIsArray = false;
+    private boolean keyIsEventStatus = false;
+
+    // ── event_status 값 캡처 ──
+    private final StringBuilder valueBuf = new StringBuilder(16);
+    private boolean capturingEventStatus = false;
+    private boolean eventStatusExtracted = false;
+    private String extractedEventStatus = null;
+
+    // ── 씬 배열 ──
+    private int sceneArrayDepth = -1;
+    private boolean sceneArrayClosed = false;
+    private int sceneStart = -1;
+    private int sceneCount = 0;
+
+    public SceneStreamScanner(Listener listener) {
+        this(DEFAULT_ARRAY_KEY, 4096, listener);
+    }
+
+    /**
+     * @param arrayKey        씬 단위로 잘라낼 최상위 배열 키 (V1/V2 = "scenes")
+     * @param initialCapacity 누적 버퍼 초기 용량
+     */
+    public SceneStreamScanner(String arrayKey, int initialCapacity, Listener listener) {
+        this.arrayKey = arrayKey;
+        this.buffer = new StringBuilder(initialCapacity);
+        this.listener = listener != null ? listener : new Listener() {};
+    }
+
+    /** 토큰을 누적하고, 새로 들어온 구간만 스캔한다. */
+    public void append(CharSequence token) {
+        if (token == null || token.length() == 0) return;
+        buffer.append(token);
+        scan();
+    }
+
+    /** char[] 구간 직접 누적 — SSE 디코더가 파서 버퍼를 넘길 때 중간 String 생성을 피한다. */
+    public void append(char[] chars, int offset, int length) {
+        if (length <= 0) return;
+        buffer.append(chars, offset, length);
+        scan();
+    }
+
+    private void scan() {
+        final int end = buffer.length();
+        for (int i = scanPos; i < end; i++) {
+            char c = buffer.charAt(i);
+
+            if (inString) {
+                if (escape) {
+                    escape = false;
+                    capture(c);
+                } else if (c == '\\') {
+                    escape = true;
+                } else if (c == '"') {
+                    inString = false;
+                    onStringEnd();
+                } else {
+                    capture(c);
+                }
+                continue;
+            }
+
+            switch (c) {
+                case '"' -> onStringStart();
+                case '{' -> {
+                    if (depth == sceneArrayDepth && sceneStart < 0) sceneStart = i;
+                    push(false);
+                    expectKey = true;
+                }
+                case '[' -> {
+                    if (depth == 1 && !arrayAtDepth[1] && keyIsArray && sceneArrayDepth < 0 && !sceneArrayClosed) {
+                        sceneArrayDepth = depth + 1;
+                    }
+                    push(true);
+                }
+                case '}' -> {
+                    if (depth == sceneArrayDepth + 1 && sceneStart >= 0) {
+                        String sceneJson = buffer.substring(sceneStart, i + 1);
+                        sceneStart = -1;
+                        listener.onScene(sceneCount++, sceneJson);
+                    }
+                    pop();
+                }
+                case ']' -> {
+                    if (depth == sceneArrayDepth) {
+                        sceneArrayDepth = -1;
+                        sceneArrayClosed = true;
+                    }
+                    pop();
+                }
+                case ':' -> expectKey = false;
+                case ',' -> { if (depth > 0 && !arrayAtDepth[depth]) expectKey = true; }
+                default -> { /* 공백·숫자·리터럴 — 상태 변화 없음 */ }
+            }
+        }
+        scanPos = end;
+    }
+
+    private void onStringStart() {
+        inString = true;
+        if (depth != 1 || arrayAtDepth[1]) return;
+        if (expectKey) {
+            capturingKey = true;
+            keyBuf.setLength(0);
+        } else if (keyIsEventStatus && !eventStatusExtracted) {
+            capturingEventStatus = true;
+            valueBuf.setLength(0);
+        }
+    }
+
+    private void onStringEnd() {
+        if (capturingKey) {
+            capturingKey = false;
+            keyIsArray = contentEquals(keyBuf, arrayKey);
+            keyIsEventStatus = contentEquals(keyBuf, EVENT_STATUS_KEY);
+        } else if (capturingEventStatus) {
+            capturingEventStatus = false;
+            eventStatusExtracted = true;
+            String value = valueBuf.toString();
+            if ("ONGOING".equals(value) || "RESOLVED".equals(value)) {
+                extractedEventStatus = value;
+                listener.onEventStatus(value);
+            }
+        }
+    }
+
+    private void capture(char c) {
+        if (capturingKey) {
+            if (keyBuf.length() < MAX_VALUE_CAPTURE) keyBuf.append(c);
+        } else if (capturingEventStatus) {
+            if (valueBuf.length() < MAX_VALUE_CAPTURE) valueBuf.append(c);
+        }
+    }
+
+    private void push(boolean isArray) {
+        depth++;
+        if (depth >= arrayAtDepth.length) {
+            arrayAtDepth = Arrays.copyOf(arrayAtDepth, arrayAtDepth.length * 2);
+        }
+        arrayAtDepth[depth] = isArray;
+    }
+
+    private void pop() {
+        if (depth > 0) depth--;
+        // 값 하나가 끝났다 — 깊이 1 객체로 돌아왔다면 다음은 ',' 또는 '}'
+        if (depth == 1 && !arrayAtDepth[1]) expectKey = false;
+    }
+
+    private static boolean contentEquals(StringBuilder sb, String s) {
+        if (sb.length() != s.length()) return false;
+        for (int i = 0; i < s.length(); i++) {
+            if (sb.charAt(i) != s.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+    //  조회
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+
+    /** 누적된 전체 출력. 스트림 종료 후 1회 호출을 전제로 한다 (매번 새 String 생성). */
+    public String fullText() {
+        return buffer.toString();
+    }
+
+    public int length() {
+        return buffer.length();
+    }
+
+    public int getSceneCount() {
+        return sceneCount;
+    }
+
+    public boolean isFirstSceneExtracted() {
+        return sceneCount > 0;
+    }
+
+    public boolean isEventStatusExtracted() {
+        return extractedEventStatus != null;
+    }
+
+    public String getExtractedEventStatus() {
+        return extractedEventStatus;
+    }
+}
@@ -1,16 +1,24 @@
 package com.spring.aichat.service.theater;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.spring.aichat.dto.theater.LlmSceneBatchOutput;
 import com.spring.aichat.dto.theater.TheaterResponses.SceneBatch;
+import com.spring.aichat.service.cache.RedisPayloadCodec;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * [Phase 5.5-Theater] Theater 배치 캐시 서비스
@@ -20,13 +28,22 @@ import java.util.Optional;
  * [Key 스키마]
  * - theater:batch:{roomId}:{batchId}             — 단일 배치 (직렬화된 SceneBatch)
  * - theater:batch:raw:{roomId}:{batchId}         — LLM 원본 응답 (재파싱용, 선택적)
+ * - theater:batch:partial:{roomId}:{batchId}     — [Perf] 스트리밍 중인 배치 (도착한 씬까지)
  * - theater:chapter:rolling:{roomId}             — 현재 Chapter의 롤링 요약
  * - theater:branch:ctx:{roomId}:{token}          — 분기 컨텍스트 (1회용)
+ * - theater:branch:spec:{roomId}:{token}:{idx}   — [Perf] 선택지별 추측 배치 초안 (선택 시 승격)
+ * - theater:spec:budget:{userId}:{epochHour}     — [Perf] 유저별 시간당 추측 생성 토큰 사용량
+ *
+ * [Perf] 배치·원본 응답은 {@link RedisPayloadCodec}(Smile+LZ4)로 저장 — 레거시 JSON 값도 읽힘.
  *
  * [TTL]
  * - 배치 캐시: 6시간 (세션 길이 대응)
+ * - 부분 배치: 5분 (LLM 스트림 타임아웃 120s 상회 — 생성이 죽으면 자연 소멸)
+ *   생성 중에는 이 노드가 1초마다 updatedAt을 갱신(heartbeat) — 따라잡는 쪽은 갱신이 끊기면 몇 초 안에 포기한다
  * - 롤링 요약: 6시간
  * - 분기 컨텍스트: 30분 (유저가 고민하는 시간 고려)
+ * - 추측 초안: 30분 (분기 컨텍스트와 동일 — 선택지가 살아있는 동안)
+ * - 추측 예산: 2시간 (시간 버킷 + 여유)
  *
  * [무효화 정책]
  * - 유저가 분기를 선택하면 해당 배치 이후의 모든 prefetch 배치 evict
@@ -39,11 +56,21 @@ import java.util.Optional;
 public class TheaterBatchCacheService {
 
     private final StringRedisTemplate redisTemplate;
-    private final ObjectMapper objectMapper;
+    private final RedisPayloadCodec codec;
+
+    private static final String BATCH_FAMILY = "theater:batch";
+    private static final String RAW_BATCH_FAMILY = "theater:batch:raw";
+    private static final String PARTIAL_BATCH_FAMILY = "theater:batch:partial";
+    private static final String SPEC_DRAFT_FAMILY = "theater:branch:spec";
 
     private static final Duration BATCH_TTL = Duration.ofHours(6);
+    private static final Duration PARTIAL_BATCH_TTL = Duration.ofMinutes(5);
+    /** [Perf] 부분 배치 heartbeat 간격 — TheaterService의 정체 판정(수 초)보다 충분히 짧게 */
+    private static final long PARTIAL_HEARTBEAT_MS = 1_000;
     private static final Duration ROLLING_TTL = Duration.ofHours(6);
     private static final Duration BRANCH_CTX_TTL = Duration.ofMinutes(30);
+    private static final Duration SPEC_DRAFT_TTL = Duration.ofMinutes(30);
+    private static final Duration SPEC_BUDGET_TTL = Duration.ofHours(2);
     /**
      * [Phase 6 도그푸딩 #2 결함 B] 분기 선택 시 다음 chapter용 화자 히로인 hint TTL.
      * 분기 직후 ~ 다음 chapter 첫 batch 진입까지 충분한 30분.
@@ -55,6 +82,30 @@ public class TheaterBatchCacheService {
      */
     private static final Duration DIRECTOR_COMMAND_TTL = Duration.ofMinutes(30);
 
+    /**
+     * [Perf] 이 노드가 쓰고 있는 부분 배치 — heartbeat 대상. 키는 Redis 키와 같다.
+     * Redis 쓰기·삭제를 compute 안에서 해서, 완성·실패로 지운 키를 heartbeat가 되살리지 않는다.
+     */
+    private final ConcurrentMap<String, LivePartial> livePartials = new ConcurrentHashMap<>();
+    private ScheduledThreadPoolExecutor heartbeat;
+
+    private record LivePartial(PartialBatch partial, long openedAt) {}
+
+    @PostConstruct
+    void startHeartbeat() {
+        heartbeat = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread t = new Thread(r, "theater-partial-heartbeat");
+            t.setDaemon(true);
+            return t;
+        });
+        heartbeat.scheduleWithFixedDelay(this::beatPartials, PARTIAL_HEARTBEAT_MS, PARTIAL_HEARTBEAT_MS, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stopHeartbeat() {
+        if (heartbeat != null) heartbeat.shutdownNow();
+    }
+
     // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
     //  Key 빌더
     // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
@@ -67,6 +118,10 @@ public class TheaterBatchCacheService {
         return "theater:batch:raw:" + roomId + ":" + batchId;
     }
 
+    private String partialBatchKey(Long roomId, int batchId) {
+        return "theater:batch:partial:" + roomId + ":" + batchId;
+    }
+
     private String rollingKey(Long roomId) {
         return "theater:chapter:rolling:" + roomId;
     }
@@ -75,6 +130,15 @@ public class TheaterBatchCacheService {
         return "theater:branch:ctx:" + roomId + ":" + token;
     }
 
+    /** [Perf] 분기 선택지별 추측 배치 초안 키 — 분기 토큰으로 스코프 */
+    private String specDraftKey(Long roomId, String token, int optionIndex) {
+        return "theater:branch:spec:" + roomId + ":" + token + ":" + optionIndex;
+    }
+
+    private String specBudgetKey(Long userId, long epochHour) {
+        return "theater:spec:budget:" + userId + ":" + epochHour;
+    }
+
     /** [R3] 활성 감독 명령어 키 — text와 noteId를 ":"로 구분해 저장 */
     private String directorCommandKey(Long roomId) {
         return "theater:director:command:" + roomId;
@@ -91,22 +155,21 @@ public class TheaterBatchCacheService {
 
     public void putBatch(Long roomId, int batchId, SceneBatch batch) {
         try {
-            String json = objectMapper.writeValueAsString(batch);
-            redisTemplate.opsForValue().set(batchKey(roomId, batchId), json, BATCH_TTL);
+            codec.write(BATCH_FAMILY, batchKey(roomId, batchId), batch, BATCH_TTL);
+            // 완성본이 먼저 써진 뒤 부분 배치를 지운다 — 따라잡는 쪽은 둘 중 하나를 항상 본다
+            clearPartialBatch(roomId, batchId);
             log.debug("🎭 [CACHE] Batch stored | roomId={} | batchId={} | scenes={}",
                 roomId, batchId, batch.scenes() == null ? 0 : batch.scenes().size());
-        } catch (JsonProcessingException e) {
+        } catch (IOException e) {
             log.warn("🎭 [CACHE] Failed to serialize batch | roomId={} | batchId={}: {}",
                 roomId, batchId, e.getMessage());
         }
     }
 
     public Optional<SceneBatch> getBatch(Long roomId, int batchId) {
-        String json = redisTemplate.opsForValue().get(batchKey(roomId, batchId));
-        if (json == null) return Optional.empty();
         try {
-            return Optional.of(objectMapper.readValue(json, SceneBatch.class));
-        } catch (JsonProcessingException e) {
+            return Optional.ofNullable(codec.read(BATCH_FAMILY, batchKey(roomId, batchId), SceneBatch.class));
+        } catch (IOException e) {
             log.warn("🎭 [CACHE] Failed to deserialize batch | roomId={} | batchId={}: {}",
                 roomId, batchId, e.getMessage());
             return Optional.empty();
@@ -121,13 +184,94 @@ public class TheaterBatchCacheService {
     /** LLM 원본 응답 캐시 (디버깅용) */
     public void putRawBatch(Long roomId, int batchId, LlmSceneBatchOutput raw) {
         try {
-            String json = objectMapper.writeValueAsString(raw);
-            redisTemplate.opsForValue().set(rawBatchKey(roomId, batchId), json, BATCH_TTL);
-        } catch (JsonProcessingException e) {
+            codec.write(RAW_BATCH_FAMILY, rawBatchKey(roomId, batchId), raw, BATCH_TTL);
+        } catch (IOException e) {
             log.debug("🎭 [CACHE] Raw batch serialization failed: {}", e.getMessage());
         }
     }
 
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+    //  [Perf] 스트리밍 중인 부분 배치
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+
+    /**
+     * 생성 중인 배치 — batch.scenes()는 지금까지 도착한 씬 (sequenceInBatch 0..n-1 연속).
+     *
+     * @param targetSceneCount 프롬프트가 요청한 씬 수 (클라이언트 진행 바 힌트, LLM이 다르게 낼 수 있음)
+     * @param updatedAt        마지막 쓰기(씬 도착 또는 heartbeat) 시각 — 값이 바뀌는지만 본다 (노드 간 시계 차 무관).
+     *                         필드 도입 전 값은 0으로 읽힌다
+     */
+    public record PartialBatch(SceneBatch batch, int targetSceneCount, long updatedAt) {
+        public PartialBatch(SceneBatch batch, int targetSceneCount) {
+            this(batch, targetSceneCount, System.currentTimeMillis());
+        }
+
+        public int sceneCount() {
+            return batch.scenes() == null ? 0 : batch.scenes().size();
+        }
+
+        PartialBatch touched(long now) {
+            return new PartialBatch(batch, targetSceneCount, now);
+        }
+    }
+
+    /**
+     * 부분 배치 갱신 — 씬이 하나 완성될 때마다 지금까지의 씬 목록으로 덮어쓴다 (배치당 최대 8회, 수 KB).
+     * 씬 0개로 먼저 열어 두면 "생성 진행 중" 표식이 되어, 동기 요청이 같은 배치를 중복 생성하지 않고 따라잡는다.
+     * 완성본은 {@link #putBatch}가 쓰면서 이 키를 지운다. 그때까지 이 노드가 heartbeat로 updatedAt을 갱신한다.
+     */
+    public void putPartialBatch(Long roomId, int batchId, PartialBatch partial) {
+        String key = partialBatchKey(roomId, batchId);
+        livePartials.compute(key, (k, live) -> {
+            writePartial(k, partial);
+            return new LivePartial(partial, live != null ? live.openedAt() : System.currentTimeMillis());
+        });
+    }
+
+    private void writePartial(String key, PartialBatch partial) {
+        try {
+            codec.write(PARTIAL_BATCH_FAMILY, key, partial, PARTIAL_BATCH_TTL);
+        } catch (IOException e) {
+            log.debug("🎭 [CACHE] Partial batch serialization failed | key={}: {}", key, e.getMessage());
+        }
+    }
+
+    /**
+     * [Perf] heartbeat — 생성 중인 부분 배치의 updatedAt만 갱신한다. 씬 사이 간격(수 초)에도 생존이 보이도록.
+     * 노드가 죽으면 갱신이 멈추고, 따라잡는 쪽이 정체로 보고 자체 생성으로 넘어간다.
+     * 생성 스레드가 정리 없이 사라진 경우를 대비해 TTL을 넘긴 항목은 갱신하지 않고 버린다.
+     */
+    void beatPartials() {
+        long now = System.currentTimeMillis();
+        for (String key : livePartials.keySet()) {
+            livePartials.computeIfPresent(key, (k, live) -> {
+                if (now - live.openedAt() > PARTIAL_BATCH_TTL.toMillis()) return null;
+                PartialBatch touched = live.partial().touched(now);
+                writePartial(k, touched);
+                return new LivePartial(touched, live.openedAt());
+            });
+        }
+    }
+
+    public Optional<PartialBatch> getPartialBatch(Long roomId, int batchId) {
+        try {
+            return Optional.ofNullable(codec.read(PARTIAL_BATCH_FAMILY, partialBatchKey(roomId, batchId), PartialBatch.class));
+        } catch (IOException e) {
+            log.debug("🎭 [CACHE] Partial batch deserialization failed | roomId={} | batchId={}: {}",
+                roomId, batchId, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /** 생성 실패 시 — 따라잡던 요청이 즉시 자체 생성으로 넘어가도록 */
+    public void clearPartialBatch(Long roomId, int batchId) {
+        String key = partialBatchKey(roomId, batchId);
+        livePartials.compute(key, (k, live) -> {
+            redisTemplate.delete(k);
+            return null;
+        });
+    }
+
     /**
      * 분기 발생 또는 난입 시 호출.
      * batchId 이상의 모든 배치 캐시를 무효화.
@@ -141,6 +285,7 @@ public class TheaterBatchCacheService {
             int target = fromBatchId + i;
             Boolean removed = redisTemplate.delete(batchKey(roomId, target));
             Boolean removedRaw = redisTemplate.delete(rawBatchKey(roomId, target));
+            clearPartialBatch(roomId, target);
             if (Boolean.TRUE.equals(removed)) evicted++;
             if (!Boolean.TRUE.equals(removed) && i > 2) break; // 더 이상 캐시 없음
         }
@@ -181,6 +326,63 @@ public class TheaterBatchCacheService {
         return Optional.ofNullable(ctx);
     }
 
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+    //  [Perf] 분기 추측 배치 — TheaterBranchSpeculator
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+
+    /**
+     * 선택지 하나의 추측 초안 저장. 메인 배치 키와 분리되어 있어 선택 전에는 재생 경로가 절대 보지 않는다.
+     * 선택 시 {@link #takeSpeculativeDraft}로 꺼내 확정하고, 나머지는 {@link #discardSpeculativeDrafts}.
+     */
+    public void putSpeculativeDraft(Long roomId, String token, int optionIndex,
+                                    TheaterBatchGenerator.BatchDraft draft) {
+        try {
+            codec.write(SPEC_DRAFT_FAMILY, specDraftKey(roomId, token, optionIndex), draft, SPEC_DRAFT_TTL);
+        } catch (IOException e) {
+            log.warn("🎭 [CACHE] Speculative draft serialization failed | roomId={} | option={}: {}",
+                roomId, optionIndex, e.getMessage());
+        }
+    }
+
+    /** 승격 — 읽고 지운다 (1회용). 다른 노드가 만든 초안도 여기서 만난다 */
+    public Optional<TheaterBatchGenerator.BatchDraft> takeSpeculativeDraft(Long roomId, String token, int optionIndex) {
+        String key = specDraftKey(roomId, token, optionIndex);
+        try {
+            var draft = codec.read(SPEC_DRAFT_FAMILY, key, TheaterBatchGenerator.BatchDraft.class);
+            if (draft != null) redisTemplate.delete(key);
+            return Optional.ofNullable(draft);
+        } catch (IOException e) {
+            log.debug("🎭 [CACHE] Speculative draft deserialization failed | roomId={} | option={}: {}",
+                roomId, optionIndex, e.getMessage());
+            redisTemplate.delete(key);
+            return Optional.empty();
+        }
+    }
+
+    public void discardSpeculativeDrafts(Long roomId, String token, int optionCount) {
+        List<String> keys = new ArrayList<>(optionCount);
+        for (int i = 0; i < optionCount; i++) keys.add(specDraftKey(roomId, token, i));
+        redisTemplate.delete(keys);
+    }
+
+    /** 유저의 이번 시간 버킷 추측 토큰 사용량 */
+    public long getSpeculationSpend(Long userId) {
+        String v = redisTemplate.opsForValue().get(specBudgetKey(userId, currentEpochHour()));
+        return v == null ? 0L : Long.parseLong(v);
+    }
+
+    /** 추측 생성이 쓴 토큰 누적 (승격 여부와 무관 — 예산은 지출 기준) */
+    public void addSpeculationSpend(Long userId, long tokens) {
+        if (tokens <= 0) return;
+        String key = specBudgetKey(userId, currentEpochHour());
+        redisTemplate.opsForValue().increment(key, tokens);
+        redisTemplate.expire(key, SPEC_BUDGET_TTL);
+    }
+
+    private static long currentEpochHour() {
+        return System.currentTimeMillis() / Duration.ofHours(1).toMillis();
+    }
+
     // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
     //  [Phase 5.5 UX Polish · R3] 활성 감독 명령어
     // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
@@ -7,22 +7,35 @@ import com.spring.aichat.domain.character.Character;
 import com.spring.aichat.domain.character.CharacterRepository;
 import com.spring.aichat.domain.chat.ChatRoom;
 import com.spring.aichat.domain.enums.BranchLevel;
+import com.spring.aichat.domain.enums.ChatMode;
 import com.spring.aichat.domain.enums.ChatModePolicy;
 import com.spring.aichat.domain.enums.EmotionTag;
 import com.spring.aichat.domain.enums.RelationStatus;
 import com.spring.aichat.domain.theater.*;
+import com.spring.aichat.dto.openai.OpenAiChatRequest;
+import com.spring.aichat.dto.openai.OpenAiMessage;
 import com.spring.aichat.dto.theater.LlmSceneBatchOutput;
 import com.spring.aichat.dto.theater.TheaterResponses.*;
 import com.spring.aichat.exception.ExternalApiException;
 import com.spring.aichat.external.OpenRouterClient;
+import com.spring.aichat.external.OpenRouterStreamClient;
+import com.spring.aichat.external.OpenRouterStreamClient.StreamResult;
 import com.spring.aichat.service.illustration.BackgroundGenerationService;
+import com.spring.aichat.service.prompt.StablePrefixLayout;
 import com.spring.aichat.service.prompt.TheaterPromptAssembler;
 import com.spring.aichat.service.prompt.TheaterPromptAssembler.AssemblyContext;
+import com.spring.aichat.service.metering.LlmCaller;
+import com.spring.aichat.service.metering.LlmUsageContext;
+import com.spring.aichat.service.metrics.ChatMetrics;
+import com.spring.aichat.service.metrics.ChatTracing;
+import com.spring.aichat.service.theater.TheaterBatchCacheService.PartialBatch;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 /**
  * [Phase 5.5-Theater-Polish] Theater 배치 생성 서비스
@@ -31,6 +44,12 @@ import java.util.*;
  * 1. MongoDB Scene 로그 저장 — 대화 기록 조회 + 장기 기억 기반
  * 2. 호감도 델타 강력 클램프 — 배치당 최대 ±2로 제한
  * 3. 최근 씬 프롬프트 주입 — 장기 기억 연속성 (이전 10씬 요약)
+ *
+ * [Perf] 스트리밍 생성
+ * 배치 JSON을 {@link OpenRouterStreamClient}로 받으며 scenes[i]가 닫히는 즉시 sanitize → 부분 배치
+ * ({@link TheaterBatchCacheService#putPartialBatch})에 추가 → onProgress 콜백. 첫 씬은 전체 배치(5~8씬)
+ * 완료보다 수 초 먼저 재생 가능하고, prefetch가 만드는 중인 배치도 동기 요청이 따라잡아 씬 단위로 받는다.
+ * 씬 변환은 스트림 도중과 최종 파싱이 같은 {@link SceneContext}를 써서 결과가 동일하다.
  */
 @Slf4j
 @Service
@@ -38,6 +57,8 @@ import java.util.*;
 public class TheaterBatchGenerator {
 
     private final OpenRouterClient openRouterClient;
+    /** [Perf] 배치 스트리밍 — 씬 단위 추출 (스트림 실패 시 openRouterClient 비스트리밍으로 폴백) */
+    private final OpenRouterStreamClient streamClient;
     private final TheaterPromptAssembler promptAssembler;
     private final TheaterBatchCacheService batchCache;
     private final TheaterDirectorEngine directorEngine;
@@ -46,6 +67,8 @@ public class TheaterBatchGenerator {
     private final CharacterRepository characterRepository;
     private final TheaterHeroineAffectionRepository affectionRepository;
     private final TheaterSceneLogRepository sceneLogRepository;
+    /** [Perf] 씬 로그 write-behind (insertMany 묶음 + 로컬 스풀) */
+    private final TheaterSceneLogWriter sceneLogWriter;
     /** [Phase 5.5 UX Polish · R3] 명령어 사용 마킹용 — wasUsed/usedAt/usedInBatchId */
     private final TheaterDirectorNoteRepository directorNoteRepository;
     /** [Phase 5.5 UX Polish · R6] AUTO_MOMENT / CHAPTER_END 노트 + 일러스트 통합 */
@@ -56,6 +79,11 @@ public class TheaterBatchGenerator {
     private final ObjectMapper objectMapper;
     // [Phase III · 작업 3] 2단 모델 라우팅
     private final TheaterModelResolver modelResolver;
+    /** [Perf] 프롬프트 캐시용 prefix 레이아웃 (static 분리 여부) */
+    private final StablePrefixLayout prefixLayout;
+    /** [Metrics] 배치 LLM 호출 · 파싱 · 전체 생성 타이머 (mode=THEATER) */
+    private final ChatMetrics chatMetrics;
+    private final ChatTracing chatTracing;
 
     // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
     //  호감도 클램프 상수 (v2 추가)
@@ -64,6 +92,8 @@ public class TheaterBatchGenerator {
     /** 배치당 히로인별 호감도 변화 최대 절대값 */
     private static final int AFFECTION_DELTA_MAX_PER_BATCH = 2;
 
+    private static final String BATCH_USER_MESSAGE = "Generate the next batch now.";
+
     // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
     //  배치 생성 파라미터
     // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
@@ -86,6 +116,8 @@ public class TheaterBatchGenerator {
      * @param activeDirectorCommand  [Phase 5.5 UX Polish · R3]
      *                               유저가 발동한 검증 통과 명령어 텍스트 or null.
      *                               1배치 일회성으로 프롬프트에 흡수.
+     * @param targetBatchId          [Perf] 생성 · 저장할 배치 번호. 요청 경로는 state.currentBatchId,
+     *                               선행 prefetch는 currentBatchId+1 — 재생 중인 배치를 덮어쓰지 않는다 (결함 D-5.1).
      */
     public record GenerateParams(
         ChatRoom room,
@@ -95,8 +127,18 @@ public class TheaterBatchGenerator {
         boolean effectiveSecretMode,
         boolean justBranched,
         String injectedBranchLevel,
-        String activeDirectorCommand
+        String activeDirectorCommand,
+        int targetBatchId
     ) {
+        /** 하위 호환 — 8-인자 호출부 (현재 배치 대상) */
+        public GenerateParams(ChatRoom room, TheaterState state,
+                              Long hintedSpeakerHeroineId, String branchContext,
+                              boolean effectiveSecretMode, boolean justBranched,
+                              String injectedBranchLevel, String activeDirectorCommand) {
+            this(room, state, hintedSpeakerHeroineId, branchContext, effectiveSecretMode, justBranched,
+                injectedBranchLevel, activeDirectorCommand, state.getCurrentBatchId());
+        }
+
         /** 하위 호환 — 5-인자 호출부 (모든 신규 필드 null/false) */
         public GenerateParams(ChatRoom room, TheaterState state,
                               Long hintedSpeakerHeroineId, String branchContext,
@@ -114,14 +156,93 @@ public class TheaterBatchGenerator {
         }
     }
 
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+    //  [Perf] 초안(draft) / 확정(commit) 분리
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+
+    /**
+     * 초안 생성 모드.
+     * <ul>
+     *   <li>LIVE — 요청 · prefetch. 활성 감독 명령어를 consume, 미터링 THEATER_BATCH</li>
+     *   <li>SPECULATIVE — 분기 선택지별 추측 생성({@link TheaterBranchSpeculator}). 명령어는 peek만
+     *       (확정 시 consume), 미터링 THEATER_SPECULATIVE. Redis · Mongo · state에 아무것도 쓰지 않는다.</li>
+     * </ul>
+     */
+    public enum DraftMode { LIVE, SPECULATIVE }
+
+    /**
+     * 확정 전 배치 — LLM 호출 + 변환 + 분기 신호 보정까지. 부수효과는 {@link #commitBatch}에서.
+     * 추측 초안은 Redis에 보관되므로 엔티티 대신 id만 담는다.
+     *
+     * @param commandNoteId  반영된 감독 명령어 노트 (확정 시 wasUsed 마킹)
+     * @param commandPeeked  SPECULATIVE에서 명령어를 peek만 했음 — 확정 시 큐를 비운다
+     * @param totalTokens    LLM usage 총 토큰 (프로바이더 미제공 · 폴백 경로면 -1)
+     */
+    public record BatchDraft(
+        SceneBatch batch,
+        LlmSceneBatchOutput llmOutput,
+        Long speakerId,
+        String resolvedBranchLevel,
+        Long commandNoteId,
+        boolean commandPeeked,
+        long totalTokens
+    ) {}
+
     // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
     //  엔트리포인트
     // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
 
     public SceneBatch generateNextBatch(GenerateParams params) {
+        return generateNextBatch(params, null);
+    }
+
+    /**
+     * @param onProgress [Perf] 씬이 하나 도착할 때마다 지금까지의 부분 배치로 호출 (호출 스레드 = 스트림 읽기 스레드).
+     *                   null이면 부분 배치 캐시만 갱신. 최종 배치는 반환값 — 콜백으로 오지 않는다.
+     */
+    public SceneBatch generateNextBatch(GenerateParams params, Consumer<PartialBatch> onProgress) {
         long startMs = System.currentTimeMillis();
         ChatRoom room = params.room();
         TheaterState state = params.state();
+        int batchId = params.targetBatchId();
+
+        // ─── [Perf] 부분 배치 — 씬 0개로 열리는 순간이 "생성 진행 중" 표식 ───
+        boolean[] opened = {false};
+        BatchDraft draft;
+        try {
+            draft = draftBatch(params, DraftMode.LIVE, partial -> {
+                opened[0] = true;
+                batchCache.putPartialBatch(room.getId(), batchId, partial);
+                if (onProgress != null && partial.sceneCount() > 0) onProgress.accept(partial);
+            }, null);
+        } catch (RuntimeException e) {
+            if (opened[0]) batchCache.clearPartialBatch(room.getId(), batchId);
+            throw e;
+        }
+
+        SceneBatch batch = commitBatch(room, state, draft);
+
+        long elapsed = System.currentTimeMillis() - startMs;
+        chatMetrics.recordStage(ChatMode.THEATER, "batch", elapsed);
+        log.info("🎭 [BATCH-GEN] Complete | roomId={} | batchId={} | scenes={} | {}ms",
+            room.getId(), batchId,
+            batch.scenes() == null ? 0 : batch.scenes().size(), elapsed);
+
+        return batch;
+    }
+
+    /**
+     * 배치 초안 — 프롬프트 조립 → LLM 스트리밍 → 변환 → 분기 신호 보정. 캐시 · 로그 · state는 건드리지 않는다.
+     *
+     * @param onPartial 부분 배치 (씬 0개 오픈 + 씬 도착마다). null 허용
+     * @param control   [Hedge] 외부 취소 — 추측 생성의 탈락 선택지 중단용. null이면 취소 불가
+     */
+    public BatchDraft draftBatch(GenerateParams params, DraftMode mode,
+                                 Consumer<PartialBatch> onPartial,
+                                 OpenRouterStreamClient.StreamControl control) {
+        ChatRoom room = params.room();
+        TheaterState state = params.state();
+        int batchId = params.targetBatchId();
 
         // [2026-07-31 에픽 A] 공식/UGC 공용 월드 뷰 — enum PK 브리지
         com.spring.aichat.domain.world.WorldRef worldRef = state.getWorldRef();
@@ -183,15 +304,20 @@ public class TheaterBatchGenerator {
         //  params에 명시된 값이 있으면 그것 우선(테스트/특수 진입).
         //  없으면 Redis 활성 큐에서 consume — 1회 사용 후 자동 폐기.
         //  consume된 명령어의 noteId는 응답 처리 후 wasUsed 마킹용으로 보관.
+        //  [Perf] SPECULATIVE는 peek — 선택지가 확정될 때 commitBatch가 큐를 비운다.
         String resolvedDirectorCommand = params.activeDirectorCommand();
         Long consumedCommandNoteId = null;
+        boolean commandPeeked = false;
         if (resolvedDirectorCommand == null) {
-            var consumed = batchCache.consumeActiveDirectorCommand(room.getId());
+            var consumed = mode == DraftMode.SPECULATIVE
+                ? batchCache.peekActiveDirectorCommand(room.getId())
+                : batchCache.consumeActiveDirectorCommand(room.getId());
             if (consumed.isPresent()) {
                 resolvedDirectorCommand = consumed.get().text();
                 consumedCommandNoteId = consumed.get().noteId();
-                log.info("🎬 [BATCH-GEN] Director command consumed | roomId={} | noteId={}",
-                    room.getId(), consumedCommandNoteId);
+                commandPeeked = mode == DraftMode.SPECULATIVE;
+                log.info("🎬 [BATCH-GEN] Director command {} | roomId={} | noteId={}",
+                    commandPeeked ? "peeked" : "consumed", room.getId(), consumedCommandNoteId);
             }
         }
 
@@ -212,35 +338,72 @@ public class TheaterBatchGenerator {
             augmentedDynamicRules = augmentedDynamicRules + "\n\n" + recentScenesMemory;
         }
 
-        String systemPrompt = payload.staticRules() + "\n\n" + augmentedDynamicRules
-            + "\n\n" + payload.outputFormat();
+        // [Perf] stable prefix 모드: static을 별도 breakpoint 메시지로 분리 → 배치 간 프로바이더 캐시 재사용
+        List<OpenAiMessage> systemMessages = prefixLayout.isEnabled()
+            ? List.of(
+                OpenAiMessage.systemCached(payload.staticRules(), StablePrefixLayout.EPHEMERAL),
+                OpenAiMessage.system(augmentedDynamicRules + "\n\n" + payload.outputFormat()))
+            : List.of(OpenAiMessage.system(payload.staticRules() + "\n\n" + augmentedDynamicRules
+                + "\n\n" + payload.outputFormat()));
+
+        log.info("🎭 [BATCH-GEN] Request | roomId={} | batchId={} | speaker={} | targetSize={} | branch={} | cmd={} | mode={}",
+            room.getId(), batchId, speaker.getName(), targetSize,
+            params.injectedBranchLevel(), params.activeDirectorCommand() != null ? "active" : "none", mode);
+
+        // ─── [Perf] 씬 단위 스트리밍 → 부분 배치 ───
+        SceneContext sceneCtx = SceneContext.of(state, speaker, allAffections);
+        List<TheaterScene> streamedScenes = new ArrayList<>();
+        List<LlmSceneBatchOutput.LlmScene> streamedRaw = new ArrayList<>();
+        if (onPartial != null) {
+            onPartial.accept(new PartialBatch(partialBatch(state, batchId, speaker, List.of()), targetSize));
+        }
 
-        log.info("🎭 [BATCH-GEN] Request | roomId={} | batchId={} | speaker={} | targetSize={} | branch={} | cmd={}",
-            room.getId(), state.getCurrentBatchId(), speaker.getName(), targetSize,
-            params.injectedBranchLevel(), params.activeDirectorCommand() != null ? "active" : "none");
+        BiConsumer<Integer, String> onSceneJson = (index, sceneJson) -> {
+            // 스캐너는 index를 0부터 연속으로 준다 — 파싱 실패한 씬이 있으면 이후 씬도 부분 배치에 싣지 않는다
+            if (index != streamedScenes.size()) return;
+            LlmSceneBatchOutput.LlmScene raw;
+            try {
+                raw = objectMapper.readValue(sceneJson, LlmSceneBatchOutput.LlmScene.class);
+            } catch (JsonProcessingException e) {
+                log.debug("🎭 [BATCH-GEN] Streamed scene parse skipped | index={}: {}", index, e.getMessage());
+                return;
+            }
+            streamedRaw.add(raw);
+            streamedScenes.add(toTheaterScene(sceneCtx, index, raw, speaker, state));
+            if (onPartial != null) {
+                onPartial.accept(new PartialBatch(
+                    partialBatch(state, batchId, speaker, List.copyOf(streamedScenes)), targetSize));
+            }
+        };
 
-        LlmSceneBatchOutput llmOutput;
+        LlmBatchCall call;
         try {
             // [Phase III · 작업 3] 2단 모델 라우팅 — 분기 직후 또는 마지막 Chapter면 proModel
             boolean isLastChapter = directorEngine.isLastChapterOfAct(state);
-            llmOutput = invokeLlm(systemPrompt, speaker, room.getUser(), state,
-                params.justBranched(), isLastChapter);
+            LlmCaller caller = mode == DraftMode.SPECULATIVE ? LlmCaller.THEATER_SPECULATIVE : LlmCaller.THEATER_BATCH;
+            try (var usageScope = LlmUsageContext.open(caller, room.getId(), room.getUser().getId())) {
+                call = invokeLlm(systemMessages, speaker, room.getUser(), state,
+                    params.justBranched(), isLastChapter, onSceneJson, streamedRaw, control);
+            }
+        } catch (OpenRouterStreamClient.StreamCancelledException e) {
+            throw e;
         } catch (Exception e) {
             log.error("🎭 [BATCH-GEN] LLM call failed | roomId={} | batchId={}: {}",
-                room.getId(), state.getCurrentBatchId(), e.getMessage());
+                room.getId(), batchId, e.getMessage());
             throw new ExternalApiException("Theater 배치 생성에 실패했습니다: " + e.getMessage());
         }
+        LlmSceneBatchOutput llmOutput = call.output();
 
         validateBatch(llmOutput, speaker, targetSize);
 
-        SceneBatch batch = convertToSceneBatch(state, speaker, allAffections, llmOutput);
+        SceneBatch batch = convertToSceneBatch(state, batchId, speaker, sceneCtx, llmOutput);
 
         // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
         //  [Phase 5.5 UX Polish · R2] 결정론적 분기 강제
         // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
         //  resolvedBranchLevel이 있는데 LLM이 branchSignal을 빠뜨렸다면
         //  백엔드가 강제로 채워준다. 이렇게 해야 분기 빈도가 보장됨.
-        //  또한 MAJOR가 발동된 경우 state에 마킹하여 같은 Chapter의 두 번 발동 차단.
+        //  (MAJOR 발동 state 마킹은 commitBatch — 추측 초안은 state를 건드리지 않는다)
         if (resolvedBranchLevel != null && !resolvedBranchLevel.isBlank()) {
             String level = resolvedBranchLevel.toUpperCase(Locale.ROOT);
             BranchSignal incoming = batch.branchSignal();
@@ -261,24 +424,43 @@ public class TheaterBatchGenerator {
                 log.warn("🎭 [BATCH-GEN] Forced branch signal | injected={} | LLM-returned={} | roomId={}",
                     level, incoming != null ? incoming.level() : "null", room.getId());
             }
-            // MAJOR 발동 시 state 마킹 (같은 Chapter 재발동 방지)
-            if ("MAJOR".equals(level)) {
-                state.markMajorBranchDoneInChapter();
-            }
+            resolvedBranchLevel = level;
+        }
+
+        return new BatchDraft(batch, llmOutput, speaker.getId(), resolvedBranchLevel,
+            consumedCommandNoteId, commandPeeked, call.totalTokens());
+    }
+
+    /**
+     * 초안 확정 — state 마킹 · Scene 로그 · 명령어 사용 · 배치 캐시 · 자동 노트 · 배경 prefetch.
+     * 저장 키는 초안의 batchId (선행 prefetch면 currentBatchId+1). 추측 초안은 승격 시 호출부가 배치 위치를 검사한다.
+     */
+    public SceneBatch commitBatch(ChatRoom room, TheaterState state, BatchDraft draft) {
+        SceneBatch batch = draft.batch();
+        int batchId = batch.batchId();
+        LlmSceneBatchOutput llmOutput = draft.llmOutput();
+
+        // MAJOR 발동 시 state 마킹 (같은 Chapter 재발동 방지)
+        if ("MAJOR".equals(draft.resolvedBranchLevel())) {
+            state.markMajorBranchDoneInChapter();
         }
 
         // ─── [v2] Scene 로그 MongoDB 영구 저장 ───
-        persistSceneLogs(room, state, speaker, batch);
+        persistSceneLogs(room, state, draft.speakerId(), batch);
 
         // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
         //  [Phase 5.5 UX Polish · R3] 명령어 사용 마킹
         // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
         //  consume된 명령어 noteId가 있으면 DB에 wasUsed=true / usedAt / usedInBatchId 마킹.
         //  실패해도 본 흐름엔 영향 없음 (try-catch 격리).
+        if (draft.commandPeeked()) {
+            batchCache.consumeActiveDirectorCommand(room.getId());
+        }
+        Long consumedCommandNoteId = draft.commandNoteId();
         if (consumedCommandNoteId != null) {
             try {
                 directorNoteRepository.findById(consumedCommandNoteId).ifPresent(n -> {
-                    n.markUsed(state.getCurrentBatchId());
+                    n.markUsed(batchId);
                     directorNoteRepository.save(n);
                 });
                 log.debug("🎬 [BATCH-GEN] Command marked used | noteId={}", consumedCommandNoteId);
@@ -289,8 +471,8 @@ public class TheaterBatchGenerator {
         }
 
         // ─── 캐시 저장 ───
-        batchCache.putBatch(room.getId(), state.getCurrentBatchId(), batch);
-        batchCache.putRawBatch(room.getId(), state.getCurrentBatchId(), llmOutput);
+        batchCache.putBatch(room.getId(), batchId, batch);
+        batchCache.putRawBatch(room.getId(), batchId, llmOutput);
         if (llmOutput.rollingSummary() != null && !llmOutput.rollingSummary().isBlank()) {
             batchCache.putRollingSummary(room.getId(), llmOutput.rollingSummary());
         }
@@ -311,12 +493,7 @@ public class TheaterBatchGenerator {
         // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
         //  배치 내 location 변화 검출 → 백그라운드 prefetch.
         //  유저가 씬을 한 장씩 넘기는 동안 배경이 미리 준비되어 latency 마스킹.
-        prefetchBatchLocations(speaker.getId(), batch);
-
-        long elapsed = System.currentTimeMillis() - startMs;
-        log.info("🎭 [BATCH-GEN] Complete | roomId={} | batchId={} | scenes={} | {}ms",
-            room.getId(), state.getCurrentBatchId(),
-            batch.scenes() == null ? 0 : batch.scenes().size(), elapsed);
+        prefetchBatchLocations(draft.speakerId(), batch);
 
         return batch;
     }
@@ -350,7 +527,7 @@ public class TheaterBatchGenerator {
         Character heroine = characterRepository.findById(topHeroineId).orElse(null);
         if (heroine == null) return;
 
-        String sceneRefId = state.getCurrentBatchId() + ":auto-moment";
+        String sceneRefId = batch.batchId() + ":auto-moment";
         autoNoteService.captureAffectionMoment(room, state, heroine, topDelta, sceneRefId);
     }
 
@@ -430,7 +607,7 @@ public class TheaterBatchGenerator {
     //  [v2] Scene 로그 영구 저장
     // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
 
-    private void persistSceneLogs(ChatRoom room, TheaterState state, Character speaker, SceneBatch batch) {
+    private void persistSceneLogs(ChatRoom room, TheaterState state, Long speakerId, SceneBatch batch) {
         if (batch.scenes() == null || batch.scenes().isEmpty()) return;
 
         long globalSeqStart = state.getTotalSceneCount();
@@ -450,7 +627,7 @@ public class TheaterBatchGenerator {
                 speakerType = "AVATAR";
             } else {
                 speakerType = "HEROINE";
-                heroineId = speaker.getId();
+                heroineId = speakerId;
             }
 
             EmotionTag emotion = parseEmotion(scene.emotion());
@@ -459,7 +636,7 @@ public class TheaterBatchGenerator {
                 .roomId(room.getId())
                 .actNumber(state.getCurrentAct().getNumber())
                 .chapterNumber(state.getCurrentChapter())
-                .batchId(state.getCurrentBatchId())
+                .batchId(batch.batchId())
                 .sceneIndexInBatch(idx)
                 .sceneSeqInChapter(chapterSeqStart + idx)
                 .globalSceneSeq(globalSeqStart + idx)
@@ -485,9 +662,9 @@ public class TheaterBatchGenerator {
         }
 
         try {
-            sceneLogRepository.saveAll(logs);
-            log.debug("🎭 [SCENE-LOG] Persisted {} scenes | roomId={} | batchId={}",
-                logs.size(), room.getId(), state.getCurrentBatchId());
+            sceneLogWriter.append(room.getId(), logs);
+            log.debug("🎭 [SCENE-LOG] Queued {} scenes | roomId={} | batchId={}",
+                logs.size(), room.getId(), batch.batchId());
         } catch (Exception e) {
             // Scene 로그 저장 실패는 배치 생성 전체를 실패시키지 않음
             log.warn("🎭 [SCENE-LOG] Persist failed | roomId={} : {}", room.getId(), e.getMessage());
@@ -514,12 +691,11 @@ public class TheaterBatchGenerator {
     private String buildRecentScenesMemory(Long roomId, TheaterState state) {
         if (state.getTotalSceneCount() == 0) return null;
 
-        List<TheaterSceneLog> recent = sceneLogRepository
-            .findTop30ByRoomIdOrderByGlobalSceneSeqDesc(roomId);
+        // 직전 배치는 아직 flush 전일 수 있다 — 미기록 씬을 덧붙여 시간순 정렬
+        List<TheaterSceneLog> recent = new ArrayList<>(sceneLogWriter.withUnflushed(roomId,
+            sceneLogRepository.findTop30ByRoomIdOrderByGlobalSceneSeqDesc(roomId), l -> true));
         if (recent.isEmpty()) return null;
-
-        // 역순 정렬 → 시간순
-        Collections.reverse(recent);
+        recent.sort(Comparator.comparingLong(TheaterSceneLog::getGlobalSceneSeq));
 
         // 최근 10씬만 사용 (너무 많으면 토큰 낭비)
         int take = Math.min(10, recent.size());
@@ -567,10 +743,24 @@ public class TheaterBatchGenerator {
     //  LLM 호출
     // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
 
-    private LlmSceneBatchOutput invokeLlm(String systemPrompt, Character speaker,
-                                          com.spring.aichat.domain.user.User user,
-                                          TheaterState state,
-                                          boolean justBranched, boolean isLastChapter) {
+    /** LLM 호출 결과 — 출력 + 총 토큰 (usage 미제공 · 비스트리밍 폴백이면 -1) */
+    record LlmBatchCall(LlmSceneBatchOutput output, long totalTokens) {}
+
+    /**
+     * [Perf] 스트리밍 우선 — scenes[i]가 완성될 때마다 onSceneJson.
+     * 씬이 하나도 오기 전에 스트림이 실패하면 비스트리밍 completeJson(finish_reason=length 재시도 포함)으로 폴백.
+     * 씬이 이미 나간 뒤 최종 JSON이 깨졌으면(출력 잘림 등) 스트리밍된 씬만으로 배치를 구제한다 — 메타 없음.
+     * 외부 취소({@code control})는 폴백 없이 {@link OpenRouterStreamClient.StreamCancelledException} 그대로 전파.
+     *
+     * @param streamedRaw onSceneJson이 채우는 스트리밍 씬 원본 (구제용)
+     */
+    LlmBatchCall invokeLlm(List<OpenAiMessage> systemMessages, Character speaker,
+                           com.spring.aichat.domain.user.User user,
+                           TheaterState state,
+                           boolean justBranched, boolean isLastChapter,
+                           BiConsumer<Integer, String> onSceneJson,
+                           List<LlmSceneBatchOutput.LlmScene> streamedRaw,
+                           OpenRouterStreamClient.StreamControl control) {
         // [Phase III · 작업 3] ModelResolver가 정책 + 캐릭터 우선순위를 통합 결정
         String model = modelResolver.resolveBatchModel(
             user, speaker, state, justBranched, isLastChapter);
@@ -578,17 +768,52 @@ public class TheaterBatchGenerator {
         log.info("🎭 [BATCH-GEN] model={} | speaker={} | justBranched={} | lastChapter={}",
             model, speaker.getName(), justBranched, isLastChapter);
 
-        String responseText = openRouterClient.completeJson(
-            model, systemPrompt,
-            "Generate the next batch now.",
-            4000, 0.9
-        );
+        int maxTokens = ChatModePolicy.getMaxOutputTokens(ChatMode.THEATER);
+        List<OpenAiMessage> messages = new ArrayList<>(systemMessages);
+        messages.add(OpenAiMessage.user(BATCH_USER_MESSAGE));
+        OpenAiChatRequest request = new OpenAiChatRequest(
+            model, messages, 0.9, true, null, null, null, Map.of("type", "json_object"), maxTokens);
 
+        long llmStart = System.currentTimeMillis();
+        String responseText;
+        long totalTokens = -1;
+        try {
+            StreamResult result = streamClient.streamScenes(request, onSceneJson, null, 0, control);
+            chatMetrics.recordStream(ChatMode.THEATER, model, result, System.currentTimeMillis() - llmStart);
+            log.info("🎭 [BATCH-GEN] Stream done | ttft={}ms | ttfs={}ms | scenes={} | {}ms",
+                result.ttft(), result.ttfs(), result.streamedSceneCount(), System.currentTimeMillis() - llmStart);
+            responseText = result.fullResponse();
+            if (result.usage() != null) totalTokens = result.usage().totalTokens();
+        } catch (OpenRouterStreamClient.StreamCancelledException e) {
+            throw e;
+        } catch (Exception e) {
+            if (!streamedRaw.isEmpty()) {
+                throw new ExternalApiException("배치 스트림 중단: " + e.getMessage(), e);
+            }
+            log.warn("🎭 [BATCH-GEN] Stream failed before first scene — non-streaming fallback | model={}: {}",
+                model, e.getMessage());
+            long fallbackStart = System.currentTimeMillis();
+            try (var llmSpan = chatTracing.start("llm.complete", ChatMode.THEATER).tag("llm.model", model)) {
+                responseText = openRouterClient.completeJson(
+                    model, systemMessages, BATCH_USER_MESSAGE, maxTokens, 0.9);
+            }
+            chatMetrics.recordCompletion(ChatMode.THEATER, model, System.currentTimeMillis() - fallbackStart);
+        }
+
+        long parseStart = System.nanoTime();
         String cleanJson = extractJson(responseText);
 
         try {
-            return objectMapper.readValue(cleanJson, LlmSceneBatchOutput.class);
+            LlmSceneBatchOutput output = objectMapper.readValue(cleanJson, LlmSceneBatchOutput.class);
+            chatMetrics.recordParse(ChatMode.THEATER, System.nanoTime() - parseStart);
+            return new LlmBatchCall(output, totalTokens);
         } catch (JsonProcessingException e) {
+            if (streamedRaw.size() >= ChatModePolicy.THEATER_BATCH_SIZE_MIN) {
+                log.warn("🎭 [BATCH-GEN] JSON parse failed — salvaging {} streamed scenes (no meta/deltas): {}",
+                    streamedRaw.size(), e.getMessage());
+                return new LlmBatchCall(
+                    new LlmSceneBatchOutput(null, List.copyOf(streamedRaw), null, null, null, null), totalTokens);
+            }
             log.warn("🎭 [BATCH-GEN] JSON parse failed, raw response:\n{}", responseText);
             throw new ExternalApiException("배치 JSON 파싱 실패: " + e.getMessage());
         }
@@ -638,80 +863,113 @@ public class TheaterBatchGenerator {
     //  DTO 변환 — [v2] 호감도 클램프 포함
     // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
 
-    private SceneBatch convertToSceneBatch(TheaterState state, Character speaker,
-                                           List<TheaterHeroineAffection> allAffections,
-                                           LlmSceneBatchOutput out) {
-        // [Polish-v2] 히로인의 허용 location/outfit enum 세트 미리 캐싱
-        // LLM이 임의 문자열을 반환할 경우 기본값으로 폴백하여 BackgroundDisplay/CharacterDisplay가 정상 동작하도록
-        Set<String> allowedLocations = null;
-        Set<String> allowedOutfits = null;
-        String fallbackLocation = speaker.getEffectiveDefaultLocation();
-        String fallbackOutfit = speaker.getEffectiveDefaultOutfit();
-        try {
-            allowedLocations = speaker.getAllowedLocations(RelationStatus.STRANGER, false, /* relationGated */ true);
-            allowedOutfits = speaker.getAllowedOutfits(RelationStatus.STRANGER, false, /* relationGated */ true);
-        } catch (Exception ignored) {
-            // 세트 조회 실패 시 sanitize 스킵
-        }
+    /**
+     * 씬 sanitize 입력 — 배치당 1회 계산해 스트리밍 도중 씬 변환과 최종 변환이 공유한다.
+     *
+     * @param allowedLocations [Polish-v2] 히로인의 허용 location enum (조회 실패 시 null → sanitize 스킵)
+     * @param knownSpeakers    [Polish · P1 #2] dialogue prefix sanitizer용 알려진 화자 이름
+     */
+    private record SceneContext(Set<String> allowedLocations, Set<String> allowedOutfits,
+                                String fallbackLocation, String fallbackOutfit,
+                                Set<String> knownSpeakers) {
+
+        static SceneContext of(TheaterState state, Character speaker,
+                               List<TheaterHeroineAffection> allAffections) {
+            // [Polish-v2] 히로인의 허용 location/outfit enum 세트 미리 캐싱
+            // LLM이 임의 문자열을 반환할 경우 기본값으로 폴백하여 BackgroundDisplay/CharacterDisplay가 정상 동작하도록
+            Set<String> allowedLocations = null;
+            Set<String> allowedOutfits = null;
+            try {
+                allowedLocations = speaker.getAllowedLocations(RelationStatus.STRANGER, false, /* relationGated */ true);
+                allowedOutfits = speaker.getAllowedOutfits(RelationStatus.STRANGER, false, /* relationGated */ true);
+            } catch (Exception ignored) {
+                // 세트 조회 실패 시 sanitize 스킵
+            }
 
-        // [Polish · P1 #2] dialogue prefix sanitizer를 위해 알려진 화자 이름 모음.
-        //   아바타 이름 + 모든 히로인 이름 + 화자 캐릭터의 메인 이름. 중복은 Set이 처리.
-        java.util.Set<String> knownSpeakers = new java.util.LinkedHashSet<>();
-        if (state.getAvatarName() != null && !state.getAvatarName().isBlank()) {
-            knownSpeakers.add(state.getAvatarName().trim());
-        }
-        if (speaker != null && speaker.getName() != null) {
-            knownSpeakers.add(speaker.getName().trim());
-        }
-        if (allAffections != null) {
-            for (TheaterHeroineAffection a : allAffections) {
-                if (a.getCharacter() != null && a.getCharacter().getName() != null) {
-                    knownSpeakers.add(a.getCharacter().getName().trim());
+            // [Polish · P1 #2] 아바타 이름 + 모든 히로인 이름 + 화자 캐릭터의 메인 이름. 중복은 Set이 처리.
+            Set<String> knownSpeakers = new LinkedHashSet<>();
+            if (state.getAvatarName() != null && !state.getAvatarName().isBlank()) {
+                knownSpeakers.add(state.getAvatarName().trim());
+            }
+            if (speaker != null && speaker.getName() != null) {
+                knownSpeakers.add(speaker.getName().trim());
+            }
+            if (allAffections != null) {
+                for (TheaterHeroineAffection a : allAffections) {
+                    if (a.getCharacter() != null && a.getCharacter().getName() != null) {
+                        knownSpeakers.add(a.getCharacter().getName().trim());
+                    }
                 }
             }
+            return new SceneContext(allowedLocations, allowedOutfits,
+                speaker.getEffectiveDefaultLocation(), speaker.getEffectiveDefaultOutfit(), knownSpeakers);
         }
+    }
+
+    /** 스트리밍 중 부분 배치 헤더 — 메타(분기 · 챕터 종료 · 호감도)는 최종 파싱에서만 채워진다 */
+    private SceneBatch partialBatch(TheaterState state, int batchId, Character speaker, List<TheaterScene> scenes) {
+        return new SceneBatch(
+            batchId,
+            state.getCurrentAct().getNumber(),
+            state.getCurrentChapter(),
+            speaker.getId(),
+            speaker.getName(),
+            scenes,
+            false,
+            null,
+            false,
+            Map.of()
+        );
+    }
+
+    private TheaterScene toTheaterScene(SceneContext ctx, int seq, LlmSceneBatchOutput.LlmScene s,
+                                        Character speaker, TheaterState state) {
+        String sanitizedLocation = sanitizeEnumValue(s.location(), ctx.allowedLocations(), ctx.fallbackLocation());
+        String sanitizedOutfit = sanitizeEnumValue(s.outfit(), ctx.allowedOutfits(), ctx.fallbackOutfit());
+        String sanitizedTime = sanitizeTime(s.time());
+        String sanitizedBgm = sanitizeBgmMode(s.bgmMode());
+
+        // [Polish · P1 #2] dialogue 화자 prefix 결정론적 제거.
+        //   LLM이 종종 dialogue에 "연화: 안녕"처럼 화자명을 prefix로 섞어 출력하던 버그 fix.
+        //   이미 speaker는 별도 필드로 갖고 있으므로 prefix는 항상 redundant.
+        String sanitizedDialogue = com.spring.aichat.service.util.DialogueSanitizer
+            .stripSpeakerPrefix(s.dialogue(), ctx.knownSpeakers());
+        // narration에도 동일하게 prefix가 묻어나오는 케이스 흡수 (드물지만 발생).
+        String sanitizedNarration = com.spring.aichat.service.util.DialogueSanitizer
+            .stripSpeakerPrefix(s.narration(), ctx.knownSpeakers());
+
+        // [Phase 5.5 UX Polish · R1] 속내 필드 진화 처리
+        //   - 우선순위: protagonist_inner > inner_narration (legacy fallback)
+        //   - heroine_inner는 그대로 보존 (UI는 미노출)
+        //   - 응답 호환을 위해 innerNarration alias도 동일 값으로 채움
+        String resolvedProtagonistInner = s.resolvedProtagonistInner();
+        String resolvedSceneType = s.sceneType(); // null 가능 — LLM이 빠뜨려도 무방
+
+        return new TheaterScene(
+            seq,
+            resolveSpeakerName(s.speaker(), speaker, state),
+            sanitizedNarration,
+            resolvedProtagonistInner,        // 신규: protagonistInner
+            s.heroineInner(),                // 신규: heroineInner (백엔드 자산, UI 미노출)
+            resolvedProtagonistInner,        // alias: innerNarration (구버전 클라이언트)
+            sanitizedDialogue,
+            resolvedSceneType,               // 신규: sceneType
+            s.emotion(),
+            sanitizedLocation,
+            sanitizedTime,
+            sanitizedOutfit,
+            sanitizedBgm,
+            null,
+            s.statReflectionHint()
+        );
+    }
 
+    private SceneBatch convertToSceneBatch(TheaterState state, int batchId, Character speaker,
+                                           SceneContext sceneCtx, LlmSceneBatchOutput out) {
         List<TheaterScene> scenes = new ArrayList<>();
         int seq = 0;
         for (LlmSceneBatchOutput.LlmScene s : out.scenes()) {
-            String sanitizedLocation = sanitizeEnumValue(s.location(), allowedLocations, fallbackLocation);
-            String sanitizedOutfit = sanitizeEnumValue(s.outfit(), allowedOutfits, fallbackOutfit);
-            String sanitizedTime = sanitizeTime(s.time());
-            String sanitizedBgm = sanitizeBgmMode(s.bgmMode());
-
-            // [Polish · P1 #2] dialogue 화자 prefix 결정론적 제거.
-            //   LLM이 종종 dialogue에 "연화: 안녕"처럼 화자명을 prefix로 섞어 출력하던 버그 fix.
-            //   이미 speaker는 별도 필드로 갖고 있으므로 prefix는 항상 redundant.
-            String sanitizedDialogue = com.spring.aichat.service.util.DialogueSanitizer
-                .stripSpeakerPrefix(s.dialogue(), knownSpeakers);
-            // narration에도 동일하게 prefix가 묻어나오는 케이스 흡수 (드물지만 발생).
-            String sanitizedNarration = com.spring.aichat.service.util.DialogueSanitizer
-                .stripSpeakerPrefix(s.narration(), knownSpeakers);
-
-            // [Phase 5.5 UX Polish · R1] 속내 필드 진화 처리
-            //   - 우선순위: protagonist_inner > inner_narration (legacy fallback)
-            //   - heroine_inner는 그대로 보존 (UI는 미노출)
-            //   - 응답 호환을 위해 innerNarration alias도 동일 값으로 채움
-            String resolvedProtagonistInner = s.resolvedProtagonistInner();
-            String resolvedSceneType = s.sceneType(); // null 가능 — LLM이 빠뜨려도 무방
-
-            scenes.add(new TheaterScene(
-                seq++,
-                resolveSpeakerName(s.speaker(), speaker, state),
-                sanitizedNarration,
-                resolvedProtagonistInner,        // 신규: protagonistInner
-                s.heroineInner(),                // 신규: heroineInner (백엔드 자산, UI 미노출)
-                resolvedProtagonistInner,        // alias: innerNarration (구버전 클라이언트)
-                sanitizedDialogue,
-                resolvedSceneType,               // 신규: sceneType
-                s.emotion(),
-                sanitizedLocation,
-                sanitizedTime,
-                sanitizedOutfit,
-                sanitizedBgm,
-                null,
-                s.statReflectionHint()
-            ));
+            scenes.add(toTheaterScene(sceneCtx, seq++, s, speaker, state));
         }
 
         // ─── [v2] 호감도 델타 클램프 ───
@@ -743,7 +1001,7 @@ public class TheaterBatchGenerator {
         }
 
         return new SceneBatch(
-            state.getCurrentBatchId(),
+            batchId,
             state.getCurrentAct().getNumber(),
             state.getCurrentChapter(),
             speaker.getId(),
@@ -0,0 +1,142 @@
+package com.spring.aichat.service.theater;
+
+import com.spring.aichat.dto.theater.TheaterResponses.SceneBatch;
+import com.spring.aichat.dto.theater.TheaterResponses.TheaterScene;
+import com.spring.aichat.dto.theater.TheaterStreamEvents;
+import com.spring.aichat.dto.theater.TheaterStreamEvents.BatchComplete;
+import com.spring.aichat.dto.theater.TheaterStreamEvents.BatchMeta;
+import com.spring.aichat.dto.theater.TheaterStreamEvents.ErrorPayload;
+import com.spring.aichat.dto.theater.TheaterStreamEvents.ScenePayload;
+import com.spring.aichat.exception.BusinessException;
+import com.spring.aichat.service.metrics.ChatMetrics;
+import com.spring.aichat.service.theater.TheaterBatchCacheService.PartialBatch;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.List;
+
+/**
+ * [Perf] Theater 배치 SSE 스트리밍 — 씬이 완성되는 대로 전달
+ *
+ * {@link TheaterService#requestNextBatch}를 onProgress와 함께 호출한다. 세 경로 모두 같은 이벤트 순서:
+ * <pre>
+ *   캐시 hit    → batch_meta → first_scene → scene ×n → batch_complete   (즉시 일괄)
+ *   생성 중     → (prefetch 부분 배치 따라잡기) 이미 도착한 씬 일괄 → 이후 도착마다 scene
+ *   miss        → 자체 스트리밍 생성 — 씬 도착마다 scene
+ * </pre>
+ * 클라이언트는 first_scene에서 재생을 시작하고, batch_complete의 분기 · 챕터 종료 · 호감도로 배치를 마감한다.
+ *
+ * SSE 전송 실패(연결 끊김)는 무시하고 생성을 끝까지 진행한다 — 완성 배치는 캐시에 남아 재요청이 hit.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class TheaterBatchStreamService {
+
+    private final TheaterService theaterService;
+    private final ChatMetrics chatMetrics;
+
+    @Async
+    public void streamNextBatch(Long roomId, String username, SseEmitter emitter) {
+        SceneSink sink = new SceneSink(roomId, emitter);
+        try {
+            SceneBatch batch = theaterService.requestNextBatch(roomId, username, false, sink::onProgress);
+
+            // 캐시 hit · 따라잡기 막판에 도착한 씬 · 구제된 배치 — 아직 안 보낸 씬을 마저 보낸다
+            sink.onProgress(new PartialBatch(batch, batch.scenes() == null ? 0 : batch.scenes().size()));
+
+            boolean interruptsPrefetch = batch.chapterEndAfter() || batch.branchSignal() != null;
+            sink.send(TheaterStreamEvents.EVENT_BATCH_COMPLETE, new BatchComplete(
+                batch.batchId(),
+                sink.sent,
+                batch.chapterEndAfter(),
+                !interruptsPrefetch,
+                batch.heroineAffectionDeltas(),
+                null,
+                batch.branchSignal()
+            ));
+            emitter.complete();
+            log.info("🎭 [BATCH-SSE] Complete | roomId={} | batchId={} | scenes={}", roomId, batch.batchId(), sink.sent);
+        } catch (BusinessException e) {
+            sendError(emitter, e.getErrorCode().name(), e.getMessage());
+        } catch (Exception e) {
+            log.error("🎭 [BATCH-SSE] Failed | roomId={}", roomId, e);
+            sendError(emitter, "INTERNAL_ERROR", "배치를 불러오지 못했습니다.");
+        }
+    }
+
+    private void sendError(SseEmitter emitter, String errorCode, String message) {
+        chatMetrics.countSseError(errorCode);
+        try {
+            emitter.send(SseEmitter.event().name(TheaterStreamEvents.EVENT_ERROR)
+                .data(new ErrorPayload(errorCode, message)));
+            emitter.complete();
+        } catch (Exception ignored) {}
+    }
+
+    /** 보낸 씬 수를 기억해 부분 배치가 올 때마다 새 씬만 전송 (스트림 읽기 스레드 1개에서만 호출) */
+    private static final class SceneSink {
+        private final Long roomId;
+        private final SseEmitter emitter;
+        private int sent = 0;
+        private boolean metaSent = false;
+        private boolean disconnected = false;
+
+        SceneSink(Long roomId, SseEmitter emitter) {
+            this.roomId = roomId;
+            this.emitter = emitter;
+        }
+
+        void onProgress(PartialBatch partial) {
+            SceneBatch batch = partial.batch();
+            List<TheaterScene> scenes = batch.scenes() == null ? List.of() : batch.scenes();
+            if (scenes.size() <= sent) return;
+
+            if (!metaSent) {
+                TheaterScene first = scenes.get(0);
+                send(TheaterStreamEvents.EVENT_BATCH_META, new BatchMeta(
+                    batch.batchId(), batch.actNumber(), batch.chapterNumber(), partial.targetSceneCount(),
+                    batch.speakerHeroineId(), batch.speakerHeroineName(),
+                    first.location(), first.time(), first.bgmMode()));
+                metaSent = true;
+            }
+            for (int i = sent; i < scenes.size(); i++) {
+                String event = i == 0 ? TheaterStreamEvents.EVENT_FIRST_SCENE : TheaterStreamEvents.EVENT_SCENE;
+                send(event, toPayload(batch, scenes.get(i)));
+            }
+            sent = scenes.size();
+        }
+
+        void send(String event, Object payload) {
+            if (disconnected) return;
+            try {
+                emitter.send(SseEmitter.event().name(event).data(payload));
+            } catch (Exception e) {
+                disconnected = true;
+                log.info("🎭 [BATCH-SSE] Client gone — finishing generation into cache | roomId={}: {}",
+                    roomId, e.getMessage());
+            }
+        }
+
+        private static ScenePayload toPayload(SceneBatch batch, TheaterScene s) {
+            return new ScenePayload(
+                s.sequenceInBatch() == null ? 0 : s.sequenceInBatch(),
+                batch.speakerHeroineId(),
+                s.speakerName(),
+                s.narration(),
+                s.protagonistInner(),
+                s.dialogue(),
+                s.emotion(),
+                s.location(),
+                s.time(),
+                s.outfit(),
+                s.bgmMode(),
+                s.illustrationUrl(),
+                s.statReflectionHint()
+            );
+        }
+    }
+}
@@ -18,6 +18,8 @@ import com.spring.aichat.exception.BusinessException;
 import com.spring.aichat.exception.ErrorCode;
 import com.spring.aichat.exception.NotFoundException;
 import com.spring.aichat.external.OpenRouterClient;
+import com.spring.aichat.service.metering.LlmCaller;
+import com.spring.aichat.service.metering.LlmUsageContext;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -53,6 +55,8 @@ public class TheaterBranchService {
     private final TheaterAutoNoteService autoNoteService;
     /** [R6] 화자 히로인 조회용 (LOCATION은 chosen.heroineId, 그 외는 state.currentHeroineId) */
     private final com.spring.aichat.domain.character.CharacterRepository characterRepository;
+    /** [Perf] 선택지별 다음 배치 추측 생성 · 선택 시 승격 */
+    private final TheaterBranchSpeculator speculator;
 
     // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
     //  1. 장소 선택 분기 (LOCATION)
@@ -60,7 +64,7 @@ public class TheaterBranchService {
 
     @Transactional
     public BranchOptions generateLocationBranch(Long roomId, String username) {
-        getOwnedRoom(roomId, username);
+        ChatRoom room = getOwnedRoom(roomId, username);
         TheaterState state = getState(roomId);
 
         List<TheaterHeroineAffection> affections = affectionRepository
@@ -100,6 +104,7 @@ public class TheaterBranchService {
 
         String branchToken = generateBranchToken(roomId, "LOCATION");
         batchCache.putBranchContext(roomId, branchToken, "LOCATION_BRANCH_OFFERED");
+        speculator.speculate(room, state, branchToken, BranchLevel.LOCATION, options, "LOCATION_BRANCH_OFFERED");
 
         return new BranchOptions(
             BranchLevel.LOCATION.name(),
@@ -129,15 +134,19 @@ public class TheaterBranchService {
         log.info("🎭 [BRANCH] generate | roomId={} | level={} | model={}",
             roomId, level, model);
 
-        String llmResponse = openRouterClient.completeJson(
-            model, systemPrompt,
-            "Generate branch options now.", 1500, 0.85
-        );
+        String llmResponse;
+        try (var usageScope = LlmUsageContext.open(LlmCaller.THEATER_BRANCH, roomId, room.getUser().getId())) {
+            llmResponse = openRouterClient.completeJson(
+                model, systemPrompt,
+                "Generate branch options now.", 1500, 0.85
+            );
+        }
 
         List<BranchOption> options = parseBranchOptions(llmResponse, level, state);
 
         String branchToken = generateBranchToken(roomId, level.name());
         batchCache.putBranchContext(roomId, branchToken, contextSummary);
+        speculator.speculate(room, state, branchToken, level, options, contextSummary);
 
         return new BranchOptions(
             level.name(),
@@ -357,15 +366,13 @@ public class TheaterBranchService {
 
         batchCache.invalidateBatchesFrom(roomId, state.getCurrentBatchId());
 
-        String newBranchContext = String.format(
-            "유저가 '%s' 선택함 (%s, %s). %s",
-            chosen.label(), level.name(), chosen.tone(),
-            contextSummary != null ? contextSummary : ""
-        );
-        batchCache.putBranchContext(roomId, "active", newBranchContext);
+        batchCache.putBranchContext(roomId, "active", activeBranchContext(chosen, level, contextSummary));
 
-        log.info("🎭 [BRANCH] Applied | roomId={} | level={} | chosen={} | cost={}",
-            roomId, level, chosen.label(), chosen.energyCost());
+        // [Perf] 추측 생성된 이 선택지의 배치가 있으면 승격 — 나머지 선택지는 취소
+        boolean promoted = speculator.promote(room, state, branchToken, chosen);
+
+        log.info("🎭 [BRANCH] Applied | roomId={} | level={} | chosen={} | cost={} | speculated={}",
+            roomId, level, chosen.label(), chosen.energyCost(), promoted);
 
         // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
         //  [Phase 5.5 UX Polish · R6] BRANCH_TAKEN 자동 캡처
@@ -392,6 +399,15 @@ public class TheaterBranchService {
     //  Helpers
     // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
 
+    /** 분기 직후 첫 배치에 주입되는 "active" 컨텍스트 — 추측 생성도 같은 문구를 써야 초안이 라이브 경로와 같아진다 */
+    static String activeBranchContext(BranchOption chosen, BranchLevel level, String contextSummary) {
+        return String.format(
+            "유저가 '%s' 선택함 (%s, %s). %s",
+            chosen.label(), level.name(), chosen.tone(),
+            contextSummary != null ? contextSummary : ""
+        );
+    }
+
     private String generateBranchToken(Long roomId, String level) {
         return level + "-" + roomId + "-" + System.currentTimeMillis();
     }
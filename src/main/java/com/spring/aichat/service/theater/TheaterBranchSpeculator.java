@@ -0,0 +1,458 @@
+package com.spring.aichat.service.theater;
+
+import com.spring.aichat.domain.chat.ChatRoom;
+import com.spring.aichat.domain.chat.ChatRoomRepository;
+import com.spring.aichat.domain.enums.BranchLevel;
+import com.spring.aichat.domain.theater.TheaterState;
+import com.spring.aichat.domain.theater.TheaterStateRepository;
+import com.spring.aichat.dto.theater.TheaterResponses.BranchOption;
+import com.spring.aichat.external.OpenRouterStreamClient.StreamCancelledException;
+import com.spring.aichat.external.OpenRouterStreamClient.StreamControl;
+import com.spring.aichat.service.metrics.ChatMetrics;
+import com.spring.aichat.service.theater.TheaterBatchCacheService.PartialBatch;
+import com.spring.aichat.service.theater.TheaterBatchGenerator.BatchDraft;
+import com.spring.aichat.service.theater.TheaterBatchGenerator.DraftMode;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * [Perf] 분기 결과 추측 생성 — 유저가 선택지를 고르는 동안 선택지별 다음 배치를 미리 만든다
+ *
+ * <pre>
+ *   generate*Branch ──▶ speculate()  해금된 선택지 앞에서 max-options개 × draftBatch(SPECULATIVE) 병렬 시작
+ *                                   완성 초안은 theater:branch:spec:{roomId}:{token}:{idx}에 보관 (재생 경로는 못 본다)
+ *   applyBranchChoice ─▶ promote()   탈락 선택지 스트림 취소 · 초안 폐기
+ *                                   고른 초안 완성됨 → 같은 트랜잭션에서 commitBatch (다음 requestNextBatch가 캐시 hit)
+ *                                   고른 초안 생성 중 → 커밋 후 메인 부분 배치 키로 이어 쓰기 (requestNextBatch가 따라잡기)
+ *                                   없음 → miss, 기존 동기 생성
+ * </pre>
+ *
+ * 초안은 분기 직후 라이브 경로와 같은 입력으로 만든다 — "active" 분기 컨텍스트 문구({@link TheaterBranchService#activeBranchContext}),
+ * 화자 hint(LOCATION은 선택지 히로인, 그 외 현재 화자), justBranched=true. 감독 명령어는 peek만 하고 승격 시 consume.
+ *
+ * [비용 상한]
+ * - 유저별 시간당 토큰 예산 (Redis 버킷) — 시작 전 배치 추정치로 남은 예산만큼만 선택지를 고른다
+ * - 전용 Executor 동시 실행 상한, 포화 시 거부 (추측은 버려도 되는 작업)
+ * - 선행 생성이 밀리면({@link TheaterPrefetchScheduler#isUnderPressure()}) 시작하지 않는다
+ * - 방당 진행 중 추측은 최신 분기 1건 — 새 분기가 오면 이전 것은 취소
+ *
+ * [계측] {@link ChatMetrics#countBranchSpeculation} 결과별 카운터 · {@link ChatMetrics#recordSpeculationWaste} 낭비 토큰.
+ *
+ * 상태는 노드 로컬(진행 중 스트림 핸들). 분기 생성과 선택이 다른 노드로 가면 Redis 초안만 승격되고
+ * 생성 중인 초안은 miss — 남은 스트림은 끝나고 TTL로 사라진다.
+ */
+@Slf4j
+@Service
+public class TheaterBranchSpeculator {
+
+    /** 이 시간이 지난 방 추측은 다음 speculate 때 정리 (분기 컨텍스트 TTL과 동일) */
+    private static final Duration STALE_AFTER = Duration.ofMinutes(30);
+
+    private final ChatRoomRepository chatRoomRepository;
+    private final TheaterStateRepository theaterStateRepository;
+    private final TheaterBatchGenerator batchGenerator;
+    private final TheaterBatchCacheService batchCache;
+    private final ChatMetrics chatMetrics;
+    private final TransactionTemplate txTemplate;
+    private final Executor executor;
+    /** 부하 시 추측을 먼저 버린다 — 선행 생성(정체 방지)이 우선 */
+    private final TheaterPrefetchScheduler prefetchScheduler;
+
+    private final boolean enabled;
+    private final int maxOptions;
+    private final long hourlyTokenBudget;
+    private final long estimatedBatchTokens;
+
+    private final ConcurrentHashMap<Long, RoomSpeculation> rooms = new ConcurrentHashMap<>();
+
+    public TheaterBranchSpeculator(ChatRoomRepository chatRoomRepository,
+                                   TheaterStateRepository theaterStateRepository,
+                                   TheaterBatchGenerator batchGenerator,
+                                   TheaterBatchCacheService batchCache,
+                                   ChatMetrics chatMetrics,
+                                   TransactionTemplate txTemplate,
+                                   @Qualifier("theaterSpeculationExecutor") Executor executor,
+                                   TheaterPrefetchScheduler prefetchScheduler,
+                                   @Value("${theater.speculation.enabled:false}") boolean enabled,
+                                   @Value("${theater.speculation.max-options:3}") int maxOptions,
+                                   @Value("${theater.speculation.hourly-token-budget:60000}") long hourlyTokenBudget,
+                                   @Value("${theater.speculation.estimated-batch-tokens:6000}") long estimatedBatchTokens) {
+        this.chatRoomRepository = chatRoomRepository;
+        this.theaterStateRepository = theaterStateRepository;
+        this.batchGenerator = batchGenerator;
+        this.batchCache = batchCache;
+        this.chatMetrics = chatMetrics;
+        this.txTemplate = txTemplate;
+        this.executor = executor;
+        this.prefetchScheduler = prefetchScheduler;
+        this.enabled = enabled;
+        this.maxOptions = maxOptions;
+        this.hourlyTokenBudget = hourlyTokenBudget;
+        this.estimatedBatchTokens = estimatedBatchTokens;
+    }
+
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+    //  상태
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+
+    private enum Phase { RUNNING, DONE, FAILED, CANCELLED }
+
+    /** 분기 1회분 — 토큰 · 배치 위치 · 선택지별 실행 */
+    private record RoomSpeculation(Long roomId, Long userId, String token, int batchId,
+                                   int optionCount, List<OptionRun> runs, long createdAt) {
+        OptionRun run(int index) {
+            return runs.stream().filter(r -> r.index == index).findFirst().orElse(null);
+        }
+    }
+
+    /** 선택지 1개의 추측 생성 — 상태 전이는 this 모니터 아래에서 */
+    private static final class OptionRun {
+        final int index;
+        final String label;
+        final StreamControl control = new StreamControl(() -> true);
+        Phase phase = Phase.RUNNING;
+        boolean promoted;
+        boolean lost;
+        BatchDraft draft;
+        PartialBatch latestPartial;
+
+        OptionRun(int index, String label) {
+            this.index = index;
+            this.label = label;
+        }
+    }
+
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+    //  1. 분기 제시 시 — 추측 시작
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+
+    /**
+     * 선택지별 추측 생성을 시작한다. 실패해도 분기 응답에는 영향 없음 (제출 거부 · 예산 부족은 해당 선택지만 건너뜀).
+     *
+     * @param contextSummary 분기 토큰에 저장된 컨텍스트 — 선택 시 "active" 컨텍스트 문구에 들어가는 값과 같아야 한다
+     */
+    public void speculate(ChatRoom room, TheaterState state, String token, BranchLevel level,
+                          List<BranchOption> options, String contextSummary) {
+        if (!enabled || options == null || options.isEmpty()) return;
+        Long roomId = room.getId();
+        Long userId = room.getUser().getId();
+
+        purgeStale();
+        RoomSpeculation previous = rooms.remove(roomId);
+        if (previous != null) abandon(previous);
+
+        if (prefetchScheduler.isUnderPressure()) {
+            chatMetrics.countBranchSpeculation("shed");
+            log.info("🔮 [SPEC] Shed — prefetch backlog | roomId={}", roomId);
+            return;
+        }
+
+        long remaining = hourlyTokenBudget - batchCache.getSpeculationSpend(userId);
+        int affordable = (int) Math.max(0, remaining / Math.max(1, estimatedBatchTokens));
+
+        List<BranchOption> picked = new ArrayList<>();
+        for (BranchOption option : options) {
+            if (!option.unlocked() || picked.size() >= maxOptions) continue;
+            if (picked.size() >= affordable) {
+                chatMetrics.countBranchSpeculation("skipped_budget");
+                continue;
+            }
+            picked.add(option);
+        }
+        if (picked.isEmpty()) return;
+
+        List<OptionRun> runs = picked.stream().map(o -> new OptionRun(o.index(), o.label())).toList();
+        RoomSpeculation spec = new RoomSpeculation(roomId, userId, token, state.getCurrentBatchId(),
+            options.size(), runs, System.currentTimeMillis());
+        rooms.put(roomId, spec);
+
+        for (int i = 0; i < picked.size(); i++) {
+            BranchOption option = picked.get(i);
+            OptionRun run = runs.get(i);
+            Long hint = level == BranchLevel.LOCATION && option.heroineId() != null
+                ? option.heroineId()
+                : state.getCurrentHeroineId();
+            String branchContext = TheaterBranchService.activeBranchContext(option, level, contextSummary);
+            try {
+                executor.execute(() -> runOption(spec, run, hint, branchContext));
+                chatMetrics.countBranchSpeculation("started");
+            } catch (TaskRejectedException | RejectedExecutionException e) {
+                synchronized (run) {
+                    run.phase = Phase.FAILED;
+                }
+                chatMetrics.countBranchSpeculation("rejected");
+            }
+        }
+        log.info("🔮 [SPEC] Started | roomId={} | level={} | batchId={} | options={}/{}",
+            roomId, level, spec.batchId(), runs.size(), options.size());
+    }
+
+    private void runOption(RoomSpeculation spec, OptionRun run, Long hint, String branchContext) {
+        Long roomId = spec.roomId();
+        BatchDraft draft;
+        try {
+            ChatRoom room = chatRoomRepository.findById(roomId).orElseThrow();
+            TheaterState state = theaterStateRepository.findByRoom_Id(roomId).orElseThrow();
+            if (state.getCurrentBatchId() != spec.batchId()) {
+                finishFailed(spec, run, "stale");
+                return;
+            }
+            var params = new TheaterBatchGenerator.GenerateParams(room, state, hint, branchContext, false, true);
+            draft = batchGenerator.draftBatch(params, DraftMode.SPECULATIVE,
+                partial -> onPartial(spec, run, partial), run.control);
+        } catch (StreamCancelledException e) {
+            PartialBatch partial;
+            synchronized (run) {
+                run.phase = Phase.CANCELLED;
+                partial = run.latestPartial;
+            }
+            long estimate = estimateTokens(partial);
+            batchCache.addSpeculationSpend(spec.userId(), estimate);
+            chatMetrics.countBranchSpeculation("cancelled");
+            chatMetrics.recordSpeculationWaste(estimate, true);
+            return;
+        } catch (Exception e) {
+            log.warn("🔮 [SPEC] Draft failed | roomId={} | option={}: {}", roomId, run.index, e.getMessage());
+            finishFailed(spec, run, "failed");
+            return;
+        }
+
+        boolean metered = draft.totalTokens() >= 0;
+        long tokens = metered ? draft.totalTokens() : estimatedBatchTokens;
+        batchCache.addSpeculationSpend(spec.userId(), tokens);
+
+        boolean promoted;
+        boolean lost;
+        synchronized (run) {
+            run.phase = Phase.DONE;
+            run.draft = draft;
+            promoted = run.promoted;
+            lost = run.lost;
+        }
+        if (promoted) {
+            commitDetached(spec, draft);
+        } else if (lost) {
+            chatMetrics.countBranchSpeculation("discarded");
+            chatMetrics.recordSpeculationWaste(tokens, !metered);
+        } else {
+            batchCache.putSpeculativeDraft(roomId, spec.token(), run.index, draft);
+            log.debug("🔮 [SPEC] Draft ready | roomId={} | option={} | tokens={}", roomId, run.index, tokens);
+        }
+    }
+
+    /** 승격된 실행이면 메인 부분 배치 키에 이어 쓴다 — requestNextBatch의 따라잡기가 그대로 읽는다 */
+    private void onPartial(RoomSpeculation spec, OptionRun run, PartialBatch partial) {
+        synchronized (run) {
+            run.latestPartial = partial;
+            if (run.promoted) batchCache.putPartialBatch(spec.roomId(), spec.batchId(), partial);
+        }
+    }
+
+    private void finishFailed(RoomSpeculation spec, OptionRun run, String outcome) {
+        boolean promoted;
+        synchronized (run) {
+            run.phase = Phase.FAILED;
+            promoted = run.promoted;
+        }
+        // 따라잡던 요청이 즉시 자체 생성으로 넘어가도록
+        if (promoted) batchCache.clearPartialBatch(spec.roomId(), spec.batchId());
+        chatMetrics.countBranchSpeculation(outcome);
+    }
+
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+    //  2. 선택 시 — 승격 / 탈락
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+
+    /**
+     * applyBranchChoice 트랜잭션 안에서 invalidate · "active" 컨텍스트 저장 뒤에 호출한다.
+     *
+     * @return 완성 초안을 이 트랜잭션에서 확정했으면 true (다음 배치가 캐시 hit)
+     */
+    public boolean promote(ChatRoom room, TheaterState state, String token, BranchOption chosen) {
+        if (!enabled || token == null) return false;
+        Long roomId = room.getId();
+
+        RoomSpeculation spec = rooms.get(roomId);
+        if (spec == null || !spec.token().equals(token)) {
+            // 다른 노드가 추측했을 수 있다 — Redis 초안만 확인
+            return batchCache.takeSpeculativeDraft(roomId, token, chosen.index())
+                .map(draft -> {
+                    batchCache.discardSpeculativeDrafts(roomId, token, Math.max(maxOptions, chosen.index() + 1));
+                    return commitInline(room, state, draft, "hit");
+                })
+                .orElseGet(() -> {
+                    chatMetrics.countBranchSpeculation("miss");
+                    return false;
+                });
+        }
+        rooms.remove(roomId, spec);
+
+        OptionRun winner = spec.run(chosen.index());
+        if (winner != null && !Objects.equals(winner.label, chosen.label())) winner = null;  // 클라이언트 스냅샷 불일치
+        for (OptionRun run : spec.runs()) {
+            if (run != winner) lose(spec, run);
+        }
+        batchCache.discardSpeculativeDrafts(roomId, token, spec.optionCount());
+
+        if (winner == null || state.getCurrentBatchId() != spec.batchId()) {
+            if (winner != null) lose(spec, winner);
+            chatMetrics.countBranchSpeculation("miss");
+            return false;
+        }
+
+        BatchDraft ready;
+        synchronized (winner) {
+            ready = winner.phase == Phase.DONE ? winner.draft : null;
+            if (winner.phase != Phase.RUNNING && ready == null) {
+                chatMetrics.countBranchSpeculation("miss");
+                return false;
+            }
+        }
+        if (ready != null) return commitInline(room, state, ready, "hit");
+
+        // 생성 중 — 분기 선택이 커밋된 뒤에 승격해야 확정 트랜잭션이 선택 결과(state)를 본다
+        OptionRun inflight = winner;
+        runAfterCommit(() -> promoteInFlight(spec, inflight));
+        return false;
+    }
+
+    private void promoteInFlight(RoomSpeculation spec, OptionRun run) {
+        BatchDraft ready;
+        synchronized (run) {
+            if (run.phase == Phase.RUNNING) {
+                run.promoted = true;
+                PartialBatch partial = run.latestPartial;
+                if (partial != null) batchCache.putPartialBatch(spec.roomId(), spec.batchId(), partial);
+                chatMetrics.countBranchSpeculation("hit_inflight");
+                log.info("🔮 [SPEC] Promoted in flight | roomId={} | option={} | scenes={}",
+                    spec.roomId(), run.index, partial == null ? 0 : partial.sceneCount());
+                return;
+            }
+            ready = run.phase == Phase.DONE ? run.draft : null;
+        }
+        if (ready != null) {
+            // 커밋 대기 사이에 완성 — 그 사이 Redis에 보관됐을 수 있는 초안도 정리
+            batchCache.discardSpeculativeDrafts(spec.roomId(), spec.token(), spec.optionCount());
+            commitDetached(spec, ready);
+        } else {
+            chatMetrics.countBranchSpeculation("miss");
+        }
+    }
+
+    /** 탈락 — 생성 중이면 스트림 취소(낭비는 runOption이 기록), 완성됐으면 바로 낭비 기록 */
+    private void lose(RoomSpeculation spec, OptionRun run) {
+        BatchDraft done;
+        synchronized (run) {
+            run.lost = true;
+            done = run.phase == Phase.DONE ? run.draft : null;
+            if (run.phase == Phase.DONE) run.draft = null;
+        }
+        if (done != null) {
+            boolean metered = done.totalTokens() >= 0;
+            chatMetrics.countBranchSpeculation("discarded");
+            chatMetrics.recordSpeculationWaste(metered ? done.totalTokens() : estimatedBatchTokens, !metered);
+        } else {
+            run.control.cancel();
+        }
+    }
+
+    private void abandon(RoomSpeculation spec) {
+        for (OptionRun run : spec.runs()) lose(spec, run);
+        batchCache.discardSpeculativeDrafts(spec.roomId(), spec.token(), spec.optionCount());
+    }
+
+    private void purgeStale() {
+        long cutoff = System.currentTimeMillis() - STALE_AFTER.toMillis();
+        rooms.values().removeIf(spec -> {
+            if (spec.createdAt() >= cutoff) return false;
+            abandon(spec);
+            return true;
+        });
+    }
+
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+    //  확정
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+
+    /** 호출 트랜잭션(applyBranchChoice)에서 확정 — 분기 직후 입력은 초안에 반영됐으므로 여기서 소비 */
+    private boolean commitInline(ChatRoom room, TheaterState state, BatchDraft draft, String outcome) {
+        if (draft.batch().batchId() != state.getCurrentBatchId()) {
+            chatMetrics.countBranchSpeculation("stale");
+            return false;
+        }
+        batchGenerator.commitBatch(room, state, draft);
+        consumeBranchInputs(room.getId());
+        chatMetrics.countBranchSpeculation(outcome);
+        log.info("🔮 [SPEC] Promoted | roomId={} | batchId={} | outcome={}", room.getId(), draft.batch().batchId(), outcome);
+        return true;
+    }
+
+    /** 생성 중 승격된 초안이 끝났을 때 — 스트림 스레드에서 별도 트랜잭션으로 확정 */
+    private void commitDetached(RoomSpeculation spec, BatchDraft draft) {
+        try {
+            txTemplate.executeWithoutResult(status -> {
+                ChatRoom room = chatRoomRepository.findById(spec.roomId()).orElseThrow();
+                TheaterState state = theaterStateRepository.findByRoom_Id(spec.roomId()).orElseThrow();
+                if (state.getCurrentBatchId() != draft.batch().batchId()) {
+                    chatMetrics.countBranchSpeculation("stale");
+                    return;
+                }
+                batchGenerator.commitBatch(room, state, draft);
+                consumeBranchInputs(spec.roomId());
+            });
+        } catch (Exception e) {
+            log.warn("🔮 [SPEC] Detached commit failed | roomId={}: {}", spec.roomId(), e.getMessage());
+        } finally {
+            // 완성본이 없으면 부분 배치를 지워 따라잡던 요청이 자체 생성으로 넘어가게 한다
+            if (!batchCache.existsBatch(spec.roomId(), spec.batchId())) {
+                batchCache.clearPartialBatch(spec.roomId(), spec.batchId());
+            }
+        }
+    }
+
+    /** requestNextBatch의 miss 경로가 소비했을 분기 직후 입력 — 캐시 hit 경로는 소비하지 않으므로 여기서 */
+    private void consumeBranchInputs(Long roomId) {
+        batchCache.consumeBranchContext(roomId, "active");
+        batchCache.consumeHeroineHint(roomId);
+    }
+
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+    //  Helpers
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+
+    /** usage 전에 취소된 스트림 — 배치 추정치 × 스트리밍된 씬 비율 (씬 0개면 프롬프트 몫으로 1할) */
+    private long estimateTokens(PartialBatch partial) {
+        if (partial == null || partial.targetSceneCount() <= 0 || partial.sceneCount() == 0) {
+            return estimatedBatchTokens / 10;
+        }
+        double ratio = Math.min(1.0, (double) partial.sceneCount() / partial.targetSceneCount());
+        return Math.round(estimatedBatchTokens * ratio);
+    }
+
+    private static void runAfterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
@@ -8,6 +8,8 @@ import com.spring.aichat.domain.character.Character;
 import com.spring.aichat.domain.theater.TheaterHeroineAffection;
 import com.spring.aichat.domain.theater.TheaterHeroineAffectionRepository;
 import com.spring.aichat.external.OpenRouterClient;
+import com.spring.aichat.service.metering.LlmCaller;
+import com.spring.aichat.service.metering.LlmUsageContext;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
@@ -133,7 +135,7 @@ public class TheaterCommandClassifier {
         }
 
         // ─── 2. 애매한 케이스 — LLM 분류 ───
-        try {
+        try (var usageScope = LlmUsageContext.open(LlmCaller.THEATER_CLASSIFIER, roomId, null)) {
             ClassificationResult llmResult = llmClassify(normalized);
             log.info("🎬 [COMMAND-CLF] llm-classified | verdict={} | text='{}'",
                 llmResult.verdict(), truncate(normalized));
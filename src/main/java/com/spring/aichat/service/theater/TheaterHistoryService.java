@@ -15,13 +15,20 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * [Phase 5.5-Theater-Polish] 대화 기록 조회 서비스
  *
  * 이슈 #4 (이전 버튼 / 대화 기록 부재) 해결의 백엔드 측.
  * TheaterSceneLog(MongoDB)을 조회해 시간순 씬 목록을 반환.
+ *
+ * [Perf] 씬 로그는 write-behind({@link TheaterSceneLogWriter})라 방금 생성된 배치가 아직 Mongo에 없을 수 있다.
+ * 모든 조회가 미기록 씬을 덧붙인다 (read-your-writes) — 미기록 씬은 항상 방의 가장 최근 꼬리다.
  */
 @Slf4j
 @Service
@@ -30,6 +37,7 @@ public class TheaterHistoryService {
 
     private final ChatRoomRepository chatRoomRepository;
     private final TheaterSceneLogRepository sceneLogRepository;
+    private final TheaterSceneLogWriter sceneLogWriter;
 
     /**
      * 특정 Chapter의 모든 씬 조회 (대화 기록 패널의 Chapter 탭용)
@@ -38,11 +46,15 @@ public class TheaterHistoryService {
         Long roomId, String username, int actNumber, int chapterNumber
     ) {
         verifyOwnership(roomId, username);
-        List<TheaterSceneLog> logs = sceneLogRepository
-            .findByRoomIdAndActNumberAndChapterNumberOrderBySceneSeqInChapterAsc(
-                roomId, actNumber, chapterNumber);
+        List<TheaterSceneLog> logs = sceneLogWriter.withUnflushed(roomId,
+            sceneLogRepository.findByRoomIdAndActNumberAndChapterNumberOrderBySceneSeqInChapterAsc(
+                roomId, actNumber, chapterNumber),
+            l -> l.getActNumber() == actNumber && l.getChapterNumber() == chapterNumber);
 
-        return logs.stream().map(this::toHistoryItem).toList();
+        return logs.stream()
+            .sorted(Comparator.comparingInt(TheaterSceneLog::getSceneSeqInChapter))
+            .map(this::toHistoryItem)
+            .toList();
     }
 
     /**
@@ -55,16 +67,35 @@ public class TheaterHistoryService {
         int safeSize = Math.min(Math.max(size, 10), 100);
         Page<TheaterSceneLog> pageData = sceneLogRepository
             .findByRoomIdOrderByGlobalSceneSeqAsc(roomId, PageRequest.of(page, safeSize));
+        // 미기록 씬은 Mongo 조회(목록 · count) 뒤에 읽는다 — 그 사이 flush된 씬은 버퍼에서 빠져 있으므로
+        // getTotalElements에만 잡히고 꼬리로 다시 세지 않는다. (먼저 읽으면 마지막이 아닌 페이지에서 이중 집계)
+        // flush가 insert를 마치고 버퍼에서 빼기 전 찰나의 씬만 남는데, 이 페이지에 실린 것은 아래에서 id로 거른다
+        List<TheaterSceneLog> unflushed = sceneLogWriter.unflushed(roomId);
+
+        // 미기록 씬은 Mongo 전체 뒤에 이어 붙는 꼬리 — 이 페이지가 Mongo 끝을 넘는 만큼 채운다
+        List<TheaterSceneLog> content = new ArrayList<>(pageData.getContent());
+        long flushed = pageData.getTotalElements();
+        long total = flushed;
+        if (!unflushed.isEmpty()) {
+            Set<String> seen = new HashSet<>();
+            content.forEach(l -> seen.add(l.getId()));
+            List<TheaterSceneLog> tail = unflushed.stream().filter(l -> seen.add(l.getId())).toList();
+            total += tail.size();
+            long skip = Math.max(0, (long) page * safeSize - flushed);
+            for (int i = (int) Math.min(skip, tail.size()); i < tail.size() && content.size() < safeSize; i++) {
+                content.add(tail.get(i));
+            }
+        }
 
-        List<SceneHistoryItem> items = pageData.getContent().stream()
+        List<SceneHistoryItem> items = content.stream()
             .map(this::toHistoryItem).toList();
 
         return new SceneHistoryPage(
             items,
             page,
             safeSize,
-            pageData.getTotalPages(),
-            pageData.getTotalElements()
+            (int) ((total + safeSize - 1) / safeSize),
+            total
         );
     }
 
@@ -75,8 +106,9 @@ public class TheaterHistoryService {
         verifyOwnership(roomId, username);
         int safeCount = Math.min(Math.max(count, 1), 50);
 
-        List<TheaterSceneLog> logs = sceneLogRepository
-            .findTop30ByRoomIdOrderByGlobalSceneSeqDesc(roomId);
+        List<TheaterSceneLog> logs = new ArrayList<>(sceneLogWriter.withUnflushed(roomId,
+            sceneLogRepository.findTop30ByRoomIdOrderByGlobalSceneSeqDesc(roomId), l -> true));
+        logs.sort(Comparator.comparingLong(TheaterSceneLog::getGlobalSceneSeq).reversed());
 
         if (logs.size() > safeCount) logs = logs.subList(0, safeCount);
 
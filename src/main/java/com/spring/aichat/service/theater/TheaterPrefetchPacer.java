@@ -0,0 +1,127 @@
+package com.spring.aichat.service.theater;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * [Perf] 방별 재생 속도 · 배치 생성 지연 추정 → 선행 생성 시작 시각 계산
+ *
+ * <pre>
+ *   needAt      = 배치 N 전달 시각 + N의 씬 수 × 씬당 소비 ms        (유저가 N+1을 요청할 예상 시각)
+ *   latestStart = needAt − 배치 생성 지연                         (이보다 늦게 시작하면 유저가 기다린다)
+ *   startAt     = latestStart − 안전 여유
+ * </pre>
+ * 씬당 소비 ms는 "전달 → batch-consumed" 간격 / 씬 수의 EWMA. 자리 비움으로 보이는 표본(상한 초과)은 버린다.
+ * 생성 지연은 방별 EWMA, 첫 표본 전에는 전역 EWMA로 시작한다.
+ *
+ * 순수 로직 — 시각은 호출부가 넘긴다 (스케줄러는 System.currentTimeMillis, 테스트는 고정값).
+ */
+final class TheaterPrefetchPacer {
+
+    static final double ALPHA = 0.3;
+    static final long MIN_MS_PER_SCENE = 500;
+    static final long MAX_MS_PER_SCENE = 120_000;
+
+    /** 선행 생성 계획 — 세 값 모두 epoch ms */
+    record Plan(long needAt, long latestStart, long startAt) {}
+
+    private static final class Pace {
+        double msPerScene;
+        double latencyMs;
+        boolean latencySampled;
+        int servedBatchId = -1;
+        int servedScenes;
+        long servedAt;
+        long lastSeen;
+    }
+
+    private final long safetyMarginMs;
+    private final ConcurrentHashMap<Long, Pace> rooms = new ConcurrentHashMap<>();
+    private volatile double globalMsPerScene;
+    private volatile double globalLatencyMs;
+
+    TheaterPrefetchPacer(long defaultMsPerScene, long defaultLatencyMs, long safetyMarginMs) {
+        this.globalMsPerScene = defaultMsPerScene;
+        this.globalLatencyMs = defaultLatencyMs;
+        this.safetyMarginMs = safetyMarginMs;
+    }
+
+    /** 배치 N이 유저에게 전달됨 — 재생 시작 */
+    void served(Long roomId, int batchId, int sceneCount, long now) {
+        Pace pace = pace(roomId, now);
+        synchronized (pace) {
+            pace.servedBatchId = batchId;
+            pace.servedScenes = sceneCount;
+            pace.servedAt = now;
+        }
+    }
+
+    /** 배치 N 감상 완료 — 씬당 소비 시간 표본 */
+    void consumed(Long roomId, int batchId, long now) {
+        Pace pace = pace(roomId, now);
+        synchronized (pace) {
+            if (pace.servedBatchId != batchId || pace.servedScenes <= 0) return;
+            long sample = (now - pace.servedAt) / pace.servedScenes;
+            pace.servedBatchId = -1;
+            if (sample < MIN_MS_PER_SCENE || sample > MAX_MS_PER_SCENE) return;
+            pace.msPerScene = ewma(pace.msPerScene, sample);
+            globalMsPerScene = ewma(globalMsPerScene, sample);
+        }
+    }
+
+    /** 배치 생성 1건 완료 (요청 경로 miss · 선행 생성 모두) */
+    void generated(Long roomId, long elapsedMs, long now) {
+        Pace pace = pace(roomId, now);
+        synchronized (pace) {
+            pace.latencyMs = pace.latencySampled ? ewma(pace.latencyMs, elapsedMs) : elapsedMs;
+            pace.latencySampled = true;
+        }
+        globalLatencyMs = ewma(globalLatencyMs, elapsedMs);
+    }
+
+    /** 다음 배치 계획 — 전달 기록이 없으면 지금 필요하다고 본다 */
+    Plan plan(Long roomId, long now) {
+        Pace pace = pace(roomId, now);
+        synchronized (pace) {
+            long needAt = pace.servedBatchId < 0
+                ? now
+                : pace.servedAt + Math.round(pace.servedScenes * pace.msPerScene);
+            long latestStart = needAt - Math.round(pace.latencySampled ? pace.latencyMs : globalLatencyMs);
+            return new Plan(needAt, latestStart, latestStart - safetyMarginMs);
+        }
+    }
+
+    long msPerScene(Long roomId) {
+        Pace pace = rooms.get(roomId);
+        return Math.round(pace != null ? pace.msPerScene : globalMsPerScene);
+    }
+
+    long latencyMs(Long roomId) {
+        Pace pace = rooms.get(roomId);
+        return Math.round(pace != null && pace.latencySampled ? pace.latencyMs : globalLatencyMs);
+    }
+
+    /** idleMs 동안 활동 없는 방 제거 */
+    int evictIdle(long now, long idleMs) {
+        int before = rooms.size();
+        rooms.values().removeIf(p -> now - p.lastSeen > idleMs);
+        return before - rooms.size();
+    }
+
+    int size() {
+        return rooms.size();
+    }
+
+    private Pace pace(Long roomId, long now) {
+        Pace pace = rooms.computeIfAbsent(roomId, id -> {
+            Pace p = new Pace();
+            p.msPerScene = globalMsPerScene;
+            return p;
+        });
+        pace.lastSeen = now;
+        return pace;
+    }
+
+    private static double ewma(double prev, double sample) {
+        return prev + ALPHA * (sample - prev);
+    }
+}
@@ -0,0 +1,406 @@
+package com.spring.aichat.service.theater;
+
+import com.spring.aichat.domain.chat.ChatRoom;
+import com.spring.aichat.domain.chat.ChatRoomRepository;
+import com.spring.aichat.domain.enums.BranchLevel;
+import com.spring.aichat.domain.theater.TheaterBranchChoiceRepository;
+import com.spring.aichat.domain.theater.TheaterHeroineAffectionRepository;
+import com.spring.aichat.domain.theater.TheaterState;
+import com.spring.aichat.domain.theater.TheaterStateRepository;
+import com.spring.aichat.dto.theater.TheaterResponses.SceneBatch;
+import com.spring.aichat.service.metrics.ChatMetrics;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * [Perf] 극장 배치 선행 생성 스케줄러 — 다음 배치가 "필요해지기 직전"에 도착하도록 시작 시각을 잡는다
+ *
+ * <pre>
+ *   requestNextBatch(N 전달) ──▶ onBatchServed   재생 시작 기록 + 정체(stall) 판정 → N+1 예약
+ *   onBatchConsumed(N)       ──▶ onBatchConsumed 씬당 소비 시간 표본
+ *   POST /prefetch (FE 70%)  ──▶ requestPrefetch 즉시 준비열로 (예약 대기 중이면 앞당김)
+ *
+ *   예약(startAt) ─timer─▶ 준비열(latestStart 오름차순 = 정체에 가까운 방 먼저) ─max-concurrent─▶ theaterPrefetchExecutor
+ * </pre>
+ * 시각 추정은 {@link TheaterPrefetchPacer}. 방당 대기 작업은 1건 (더 뒤 배치로만 교체).
+ *
+ * [부하 시 차례로 버림]
+ * 1. 분기 추측({@link TheaterBranchSpeculator}) — {@link #isUnderPressure()}면 시작하지 않는다
+ * 2. 준비열이 max-queued를 넘으면 여유(latestStart)가 가장 큰 선행 생성부터 버린다 — 유저가 요청하면 동기 생성
+ * 3. needAt이 expire-after 이상 지난 작업 (유저 이탈)
+ *
+ * [정체 지표] 유저가 배치를 기다린 요청 — miss(동기 생성) · in_flight(선행 생성 따라잡기).
+ * 전역 카운터 · 대기 시간은 {@link ChatMetrics#recordBatchStall}, 방별 누적은 노드 로컬로 {@link #topStalls}
+ * (roomId는 메트릭 태그로 쓰지 않는다).
+ */
+@Slf4j
+@Service
+public class TheaterPrefetchScheduler {
+
+    private static final long IDLE_EVICT_MS = 60 * 60 * 1000L;
+    private static final int MAX_TRACKED_STALL_ROOMS = 10_000;
+
+    private final ChatRoomRepository chatRoomRepository;
+    private final TheaterStateRepository theaterStateRepository;
+    private final TheaterHeroineAffectionRepository affectionRepository;
+    private final TheaterBranchChoiceRepository branchChoiceRepository;
+    private final TheaterBatchGenerator batchGenerator;
+    private final TheaterBatchCacheService batchCache;
+    private final ChatMetrics chatMetrics;
+    private final Executor executor;
+
+    private final int maxConcurrent;
+    private final int maxQueued;
+    private final long expireAfterMs;
+
+    private final TheaterPrefetchPacer pacer;
+    private final ScheduledExecutorService timer;
+    /** 예약 · 만료 · 여유 계산 기준 시각 (테스트는 고정 시계) */
+    private final LongSupplier clock;
+
+    private final Object lock = new Object();
+    /** 방당 대기 작업 (예약 중 + 준비열) */
+    private final Map<Long, Job> pending = new HashMap<>();
+    private final PriorityQueue<Job> ready = new PriorityQueue<>(Comparator.comparingLong(Job::latestStart));
+    /** 실행 중 — 같은 배치 재요청은 무시 */
+    private final Map<Long, Job> running = new HashMap<>();
+    private int inFlight;
+
+    private final ConcurrentHashMap<Long, RoomStalls> stalls = new ConcurrentHashMap<>();
+
+    @Autowired
+    public TheaterPrefetchScheduler(ChatRoomRepository chatRoomRepository,
+                                    TheaterStateRepository theaterStateRepository,
+                                    TheaterHeroineAffectionRepository affectionRepository,
+                                    TheaterBranchChoiceRepository branchChoiceRepository,
+                                    TheaterBatchGenerator batchGenerator,
+                                    TheaterBatchCacheService batchCache,
+                                    ChatMetrics chatMetrics,
+                                    @Qualifier("theaterPrefetchExecutor") Executor executor,
+                                    @Value("${theater.prefetch.max-concurrent:8}") int maxConcurrent,
+                                    @Value("${theater.prefetch.max-queued:32}") int maxQueued,
+                                    @Value("${theater.prefetch.default-ms-per-scene:7000}") long defaultMsPerScene,
+                                    @Value("${theater.prefetch.default-batch-latency-ms:25000}") long defaultLatencyMs,
+                                    @Value("${theater.prefetch.safety-margin-ms:3000}") long safetyMarginMs,
+                                    @Value("${theater.prefetch.expire-after-ms:600000}") long expireAfterMs) {
+        this(chatRoomRepository, theaterStateRepository, affectionRepository, branchChoiceRepository, batchGenerator,
+            batchCache, chatMetrics, executor, maxConcurrent, maxQueued, defaultMsPerScene, defaultLatencyMs,
+            safetyMarginMs, expireAfterMs, System::currentTimeMillis);
+    }
+
+    TheaterPrefetchScheduler(ChatRoomRepository chatRoomRepository,
+                             TheaterStateRepository theaterStateRepository,
+                             TheaterHeroineAffectionRepository affectionRepository,
+                             TheaterBranchChoiceRepository branchChoiceRepository,
+                             TheaterBatchGenerator batchGenerator,
+                             TheaterBatchCacheService batchCache,
+                             ChatMetrics chatMetrics,
+                             Executor executor,
+                             int maxConcurrent,
+                             int maxQueued,
+                             long defaultMsPerScene,
+                             long defaultLatencyMs,
+                             long safetyMarginMs,
+                             long expireAfterMs,
+                             LongSupplier clock) {
+        this.chatRoomRepository = chatRoomRepository;
+        this.theaterStateRepository = theaterStateRepository;
+        this.affectionRepository = affectionRepository;
+        this.branchChoiceRepository = branchChoiceRepository;
+        this.batchGenerator = batchGenerator;
+        this.batchCache = batchCache;
+        this.chatMetrics = chatMetrics;
+        this.executor = executor;
+        this.maxConcurrent = maxConcurrent;
+        this.maxQueued = maxQueued;
+        this.expireAfterMs = expireAfterMs;
+        this.clock = clock;
+        this.pacer = new TheaterPrefetchPacer(defaultMsPerScene, defaultLatencyMs, safetyMarginMs);
+        this.timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "theater-prefetch-timer");
+            t.setDaemon(true);
+            return t;
+        });
+        this.timer.scheduleWithFixedDelay(() -> pacer.evictIdle(clock.getAsLong(), IDLE_EVICT_MS),
+            10, 10, TimeUnit.MINUTES);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        timer.shutdownNow();
+    }
+
+    /** 선행 생성 1건 — 배치 위치(act/chapter/batchId)가 예약 시점과 다르면 실행 시 버린다 */
+    private record Job(Long roomId, int actNumber, int chapterNumber, int targetBatchId,
+                       long needAt, long latestStart, long startAt) {}
+
+    /** 방별 정체 누적 (노드 로컬) */
+    public record RoomStallStats(Long roomId, long stalls, long totalWaitMs, long lastStallAt) {}
+
+    private static final class RoomStalls {
+        final AtomicLong count = new AtomicLong();
+        final AtomicLong waitMs = new AtomicLong();
+        volatile long lastAt;
+    }
+
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+    //  1. 신호 입력
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+
+    /**
+     * 배치가 유저에게 전달됨 (requestNextBatch, prefetch=false). 다음 배치를 예약한다.
+     * 챕터가 이 배치로 끝나거나 분기가 걸려 있으면 예약하지 않는다 — 다음 배치는 챕터 정리 · 분기 선택 뒤에 결정된다.
+     *
+     * @param stallCause 유저가 기다렸으면 miss · in_flight, 캐시 hit면 null
+     * @param waitMs     요청 수신 → 배치 반환
+     */
+    public void onBatchServed(Long roomId, TheaterState state, SceneBatch batch, String stallCause, long waitMs) {
+        long now = clock.getAsLong();
+        int scenes = batch.scenes() == null ? 0 : batch.scenes().size();
+        if (stallCause != null) recordStall(roomId, stallCause, waitMs, now);
+
+        pacer.served(roomId, batch.batchId(), scenes, now);
+
+        boolean endsChapter = batch.chapterEndAfter()
+            || state.getScenesInCurrentChapter() + scenes >= state.getChapterTargetScenes();
+        if (endsChapter || batch.branchSignal() != null) return;
+
+        schedule(roomId, state.getCurrentAct().getNumber(), state.getCurrentChapter(), batch.batchId() + 1, false);
+    }
+
+    public void onBatchConsumed(Long roomId, int batchId) {
+        pacer.consumed(roomId, batchId, clock.getAsLong());
+    }
+
+    /** 요청 경로에서 동기 생성한 배치의 소요 — 생성 지연 추정에 반영 */
+    public void onBatchGenerated(Long roomId, long elapsedMs) {
+        pacer.generated(roomId, elapsedMs, clock.getAsLong());
+    }
+
+    /** FE 70% 트리거 — 예약 시각을 기다리지 않고 준비열로. 이미 대기 중이면 앞당기기만 한다 */
+    public void requestPrefetch(Long roomId) {
+        TheaterState state = theaterStateRepository.findByRoom_Id(roomId).orElse(null);
+        if (state == null) return;
+        schedule(roomId, state.getCurrentAct().getNumber(), state.getCurrentChapter(),
+            state.getCurrentBatchId() + 1, true);
+    }
+
+    /** 동시 실행이 가득 차고 준비열에 기다리는 작업이 있음 — 분기 추측 같은 순수 투기 작업은 시작하지 않는다 */
+    public boolean isUnderPressure() {
+        synchronized (lock) {
+            return inFlight >= maxConcurrent && !ready.isEmpty();
+        }
+    }
+
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+    //  2. 예약 → 준비열 → 실행
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+
+    private void schedule(Long roomId, int act, int chapter, int targetBatchId, boolean immediate) {
+        long now = clock.getAsLong();
+        TheaterPrefetchPacer.Plan plan = pacer.plan(roomId, now);
+        long startAt = immediate ? now : plan.startAt();
+        Job job = new Job(roomId, act, chapter, targetBatchId, plan.needAt(), plan.latestStart(), startAt);
+
+        synchronized (lock) {
+            Job active = running.get(roomId);
+            if (active != null && active.targetBatchId() == targetBatchId) return;
+            Job existing = pending.get(roomId);
+            if (existing != null && existing.targetBatchId() == targetBatchId
+                && existing.actNumber() == act && existing.chapterNumber() == chapter) {
+                if (!immediate || ready.contains(existing)) return;
+                // 예약 대기 중인 같은 배치를 앞당긴다 — 타이머 콜백은 pending 불일치로 무시된다
+            }
+            if (existing != null) ready.remove(existing);
+            pending.put(roomId, job);
+            if (startAt > now) {
+                timer.schedule(() -> makeReady(job), startAt - now, TimeUnit.MILLISECONDS);
+                chatMetrics.countPrefetch("scheduled");
+                log.debug("🎭 [PREFETCH] Scheduled | roomId={} | batchId={} | in={}ms | slack={}ms",
+                    roomId, targetBatchId, startAt - now, plan.latestStart() - now);
+                return;
+            }
+            enqueue(job);
+        }
+        chatMetrics.countPrefetch(immediate ? "requested" : "scheduled");
+        drain();
+    }
+
+    private void makeReady(Job job) {
+        synchronized (lock) {
+            if (pending.get(job.roomId()) != job) return;
+            enqueue(job);
+        }
+        drain();
+    }
+
+    /** lock 보유 상태에서 호출 — 넘치면 여유가 가장 큰 작업부터 버린다 */
+    private void enqueue(Job job) {
+        ready.add(job);
+        while (ready.size() > maxQueued) {
+            Job slackest = ready.stream().max(Comparator.comparingLong(Job::latestStart)).orElseThrow();
+            ready.remove(slackest);
+            pending.remove(slackest.roomId(), slackest);
+            chatMetrics.countPrefetch("shed");
+            log.info("🎭 [PREFETCH] Shed under load | roomId={} | batchId={}", slackest.roomId(), slackest.targetBatchId());
+        }
+    }
+
+    private void drain() {
+        List<Job> toRun = new ArrayList<>();
+        long now = clock.getAsLong();
+        synchronized (lock) {
+            while (inFlight < maxConcurrent && !ready.isEmpty()) {
+                Job job = ready.poll();
+                if (now - job.needAt() > expireAfterMs) {
+                    pending.remove(job.roomId(), job);
+                    chatMetrics.countPrefetch("expired");
+                    continue;
+                }
+                inFlight++;
+                pending.remove(job.roomId(), job);
+                running.put(job.roomId(), job);
+                toRun.add(job);
+            }
+        }
+        for (Job job : toRun) {
+            try {
+                executor.execute(() -> run(job));
+            } catch (RejectedExecutionException e) {
+                release(job);
+                chatMetrics.countPrefetch("rejected");
+            }
+        }
+    }
+
+    private void run(Job job) {
+        long start = clock.getAsLong();
+        try {
+            String outcome = runPrefetch(job);
+            chatMetrics.countPrefetch(outcome);
+            if ("done".equals(outcome)) {
+                long finished = clock.getAsLong();
+                pacer.generated(job.roomId(), finished - start, finished);
+                // 필요 시각보다 얼마나 먼저 도착했나 (늦은 도착은 정체 지표로 잡힌다)
+                chatMetrics.recordPrefetchLead(job.needAt() - finished);
+            }
+        } catch (Exception e) {
+            chatMetrics.countPrefetch("failed");
+            log.warn("🎭 [PREFETCH] Failed | roomId={} | batchId={}: {}", job.roomId(), job.targetBatchId(), e.getMessage());
+        } finally {
+            release(job);
+            drain();
+        }
+    }
+
+    private void release(Job job) {
+        synchronized (lock) {
+            inFlight--;
+            running.remove(job.roomId(), job);
+        }
+    }
+
+    /**
+     * 선행 생성 본체 — 기존 prefetchNextBatchAsync의 가드를 그대로 두고 대상 배치를 N+1로 고정.
+     *
+     * @return done · cached · skipped · stale
+     */
+    private String runPrefetch(Job job) {
+        Long roomId = job.roomId();
+        TheaterState state = theaterStateRepository.findByRoom_Id(roomId).orElse(null);
+        if (state == null || state.isEndingReached() || state.isInIntermission() || state.isInterventionActive()) {
+            return "skipped";
+        }
+
+        // [Polish · P1 #7 + LOCATION fix] LOCATION choice 선행 가드 (prefetch도 동일).
+        //   분기 미선택 상태에선 어떤 batch도 LLM에 던지지 않는다.
+        if (state.getCurrentBatchId() == 0
+            && state.getScenesInCurrentChapter() == 0
+            && state.getCurrentAct().getNumber() <= 3
+            && affectionRepository.findByRoom_Id(roomId).size() >= 2
+            && !branchChoiceRepository.existsByRoom_IdAndActNumberAndChapterNumberAndBranchLevel(
+            roomId, state.getCurrentAct().getNumber(), state.getCurrentChapter(),
+            BranchLevel.LOCATION)) {
+            log.debug("🎭 [PREFETCH] Skipped — LOCATION choice required | roomId={}", roomId);
+            return "skipped";
+        }
+
+        // 유저가 이미 N을 넘겼으면 N+1은 요청 경로가 만든다 (중복 생성 방지). 챕터가 바뀌었으면 batchId가 0부터 다시 센다
+        if (state.getCurrentBatchId() + 1 != job.targetBatchId()
+            || state.getCurrentAct().getNumber() != job.actNumber()
+            || state.getCurrentChapter() != job.chapterNumber()) {
+            return "stale";
+        }
+        if (batchCache.existsBatch(roomId, job.targetBatchId())
+            || batchCache.getPartialBatch(roomId, job.targetBatchId()).isPresent()) {
+            return "cached";
+        }
+
+        ChatRoom room = chatRoomRepository.findById(roomId).orElse(null);
+        if (room == null) return "skipped";
+
+        // [Phase III · 작업 3] Prefetch는 branchContext를 consume하지 않는다.
+        //   분기 직후 첫 배치는 동기 경로(requestNextBatch)에서 정확히 한 번 consume되어야 한다.
+        TheaterBatchGenerator.GenerateParams params = new TheaterBatchGenerator.GenerateParams(
+            room, state, null, null, false, false, null, null, job.targetBatchId());
+        batchGenerator.generateNextBatch(params);
+        log.info("🎭 [PREFETCH] Done | roomId={} | batchId={} | lead={}ms",
+            roomId, job.targetBatchId(), job.needAt() - clock.getAsLong());
+        return "done";
+    }
+
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+    //  3. 정체 지표
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+
+    private void recordStall(Long roomId, String cause, long waitMs, long now) {
+        chatMetrics.recordBatchStall(cause, waitMs);
+        if (stalls.size() >= MAX_TRACKED_STALL_ROOMS && !stalls.containsKey(roomId)) return;
+        RoomStalls s = stalls.computeIfAbsent(roomId, id -> new RoomStalls());
+        s.count.incrementAndGet();
+        s.waitMs.addAndGet(waitMs);
+        s.lastAt = now;
+    }
+
+    /** 정체가 많은 방 순 (관리자 대시보드) */
+    public List<RoomStallStats> topStalls(int limit) {
+        return stalls.entrySet().stream()
+            .map(e -> new RoomStallStats(e.getKey(), e.getValue().count.get(),
+                e.getValue().waitMs.get(), e.getValue().lastAt))
+            .sorted(Comparator.comparingLong(RoomStallStats::stalls).reversed()
+                .thenComparing(Comparator.comparingLong(RoomStallStats::totalWaitMs).reversed()))
+            .limit(limit)
+            .toList();
+    }
+
+    public int queuedCount() {
+        synchronized (lock) {
+            return ready.size();
+        }
+    }
+
+    public int inFlightCount() {
+        synchronized (lock) {
+            return inFlight;
+        }
+    }
+}
@@ -15,9 +15,11 @@ import com.spring.aichat.exception.BadRequestException;
 import com.spring.aichat.exception.BusinessException;
 import com.spring.aichat.exception.ErrorCode;
 import com.spring.aichat.exception.NotFoundException;
+import com.spring.aichat.service.metrics.ChatMetrics;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
@@ -32,6 +34,10 @@ import java.util.*;
  *  - TheaterState 진행 필드 (Act/Chapter/Scene/batchId/스탯/인터미션)
  *  - TheaterHeroineAffection (호감도, totalScenes)
  *  - 로그는 유지 (MongoDB append-only)
+ *
+ * [Perf] 스냅샷 저장 — {@link TheaterSnapshotStore} (청크 중복 제거 + 직전 스냅샷 대비 델타).
+ *  슬롯마다 수 KB 전체 JSON을 다시 쓰던 것을 바뀐 필드만 쓰도록. theater.snapshot.delta-enabled=false면 기존 전체 JSON.
+ *  로드는 두 형식 모두 읽는다 (레거시 슬롯 = snapshot_json).
  */
 @Slf4j
 @Service
@@ -44,6 +50,12 @@ public class TheaterSaveLoadService {
     private final TheaterSaveSlotRepository saveSlotRepository;
     private final TheaterBatchCacheService batchCache;
     private final ObjectMapper objectMapper;
+    private final TheaterSnapshotStore snapshotStore;
+    private final TheaterSnapshotCompactor snapshotCompactor;
+    private final ChatMetrics chatMetrics;
+
+    @Value("${theater.snapshot.delta-enabled:true}")
+    private boolean deltaEnabled;
 
     // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
     //  1. 슬롯 목록
@@ -98,7 +110,7 @@ public class TheaterSaveLoadService {
             throw new BadRequestException("인터미션/난입 중에는 세이브할 수 없습니다.");
         }
 
-        String snapshotJson = buildSnapshot(state, roomId);
+        StoredSnapshot snapshot = storeSnapshot(roomId, buildSnapshot(state, roomId));
         String previewText = String.format("Act %d - Chapter %d (Scene %d)",
             state.getCurrentAct().getNumber(),
             state.getCurrentChapter(),
@@ -118,11 +130,11 @@ public class TheaterSaveLoadService {
             slot = existing.get();
             slot.overwrite(autoLabel, previewText,
                 state.getCurrentAct().getNumber(), state.getCurrentChapter(),
-                leadId, snapshotJson);
+                leadId, snapshot.json(), snapshot.manifestId());
         } else {
             slot = TheaterSaveSlot.create(room, slotNumber, autoLabel, previewText,
                 state.getCurrentAct().getNumber(), state.getCurrentChapter(),
-                leadId, snapshotJson, false);
+                leadId, snapshot.json(), snapshot.manifestId(), false);
             saveSlotRepository.save(slot);
         }
 
@@ -142,7 +154,7 @@ public class TheaterSaveLoadService {
 
             if (state.isEndingReached()) return;
 
-            String snapshotJson = buildSnapshot(state, roomId);
+            StoredSnapshot snapshot = storeSnapshot(roomId, buildSnapshot(state, roomId));
             String previewText = "분기 직전 자동 저장";
             String autoLabel = "⚡ Quick Save";
 
@@ -154,12 +166,12 @@ public class TheaterSaveLoadService {
             if (existing.isPresent()) {
                 existing.get().overwrite(autoLabel, previewText,
                     state.getCurrentAct().getNumber(), state.getCurrentChapter(),
-                    leadId, snapshotJson);
+                    leadId, snapshot.json(), snapshot.manifestId());
             } else {
                 saveSlotRepository.save(TheaterSaveSlot.create(
                     room, 0, autoLabel, previewText,
                     state.getCurrentAct().getNumber(), state.getCurrentChapter(),
-                    leadId, snapshotJson, true
+                    leadId, snapshot.json(), snapshot.manifestId(), true
                 ));
             }
             log.debug("🎭 [QUICK-SAVE] roomId={}", roomId);
@@ -182,7 +194,7 @@ public class TheaterSaveLoadService {
         TheaterState state = getState(roomId);
 
         try {
-            JsonNode root = objectMapper.readTree(slot.getSnapshotJson());
+            JsonNode root = objectMapper.readTree(readSnapshot(roomId, slot));
             JsonNode stateNode = root.path("stateSnapshot");
 
             // 스냅샷 값 추출
@@ -241,6 +253,26 @@ public class TheaterSaveLoadService {
     //  Helpers
     // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
 
+    /** 슬롯에 기록할 스냅샷 — json(레거시 전체) · manifestId(델타 저장소) 중 하나만 채워진다 */
+    private record StoredSnapshot(String json, Long manifestId) {}
+
+    private StoredSnapshot storeSnapshot(Long roomId, String snapshotJson) {
+        if (!deltaEnabled) return new StoredSnapshot(snapshotJson, null);
+        TheaterSnapshotStore.Written written = snapshotStore.write(roomId, snapshotJson);
+        chatMetrics.recordSnapshotSave(written.depth() == 0 ? "full" : "delta", written.bytesWritten(), written.fullBytes());
+        snapshotCompactor.onSaved(roomId, written.depth());
+        return new StoredSnapshot(null, written.manifestId());
+    }
+
+    /** 레거시 슬롯(snapshot_json)은 그대로, 델타 슬롯은 저장소에서 복원 */
+    String readSnapshot(Long roomId, TheaterSaveSlot slot) {
+        if (slot.getSnapshotManifestId() == null) return slot.getSnapshotJson();
+        long start = System.currentTimeMillis();
+        String json = snapshotStore.read(roomId, slot.getId(), slot.getSnapshotManifestId());
+        chatMetrics.recordSnapshotLoad(System.currentTimeMillis() - start);
+        return json;
+    }
+
     private String buildSnapshot(TheaterState state, Long roomId) {
         Map<String, Object> snap = new LinkedHashMap<>();
         Map<String, Object> stateSnap = new LinkedHashMap<>();
@@ -0,0 +1,138 @@
+package com.spring.aichat.service.theater;
+
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.bson.json.JsonMode;
+import org.bson.json.JsonWriterSettings;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * [Perf] 씬 로그 write-behind의 로컬 스풀 — Mongo에 아직 안 들어간 문서를 디스크에 먼저 남긴다
+ *
+ * <pre>
+ *   {dir}/scene-log-{n}.spool   세그먼트, 한 줄 = 문서 1건 (Extended JSON — Int64 · ObjectId · Date 타입 보존)
+ *
+ *   append  ──▶ 활성 세그먼트 끝에 기록 (fsync 옵션)
+ *   rotate  ──▶ flush 직전에 활성 세그먼트를 봉인하고 새 세그먼트 개시
+ *   delete  ──▶ 봉인된 세그먼트의 문서가 모두 Mongo에 들어가면 삭제
+ * </pre>
+ * 프로세스가 죽으면 남은 세그먼트(= {@link #orphans()})를 다음 기동 때 {@link #read}로 되살린다.
+ * 쓰는 도중 죽어 잘린 마지막 줄은 버린다 (그 문서 1건만 유실, 같은 배치의 앞선 줄은 살린다).
+ *
+ * 스레드 안전하지 않음 — {@link TheaterSceneLogWriter}가 append · rotate를 자기 락 안에서만 부른다.
+ */
+@Slf4j
+final class TheaterSceneLogSpool implements Closeable {
+
+    private static final String PREFIX = "scene-log-";
+    private static final String SUFFIX = ".spool";
+    private static final JsonWriterSettings JSON = JsonWriterSettings.builder().outputMode(JsonMode.EXTENDED).build();
+
+    private final Path dir;
+    private final boolean fsync;
+    private final List<Path> orphans;
+    private long nextSegment;
+    private Path active;
+    private FileChannel channel;
+
+    TheaterSceneLogSpool(Path dir, boolean fsync) throws IOException {
+        this.dir = dir;
+        this.fsync = fsync;
+        Files.createDirectories(dir);
+        this.orphans = segments();
+        this.nextSegment = orphans.stream().mapToLong(TheaterSceneLogSpool::segmentNo).max().orElse(0) + 1;
+        open();
+    }
+
+    /** 이전 프로세스가 남긴 세그먼트 (번호순) — 기동 시점 기준 */
+    List<Path> orphans() {
+        return orphans;
+    }
+
+    void append(List<Document> docs) throws IOException {
+        if (docs.isEmpty()) return;
+        StringBuilder sb = new StringBuilder();
+        for (Document doc : docs) {
+            sb.append(doc.toJson(JSON)).append('\n');
+        }
+        ByteBuffer bytes = ByteBuffer.wrap(sb.toString().getBytes(StandardCharsets.UTF_8));
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+        if (fsync) channel.force(false);
+    }
+
+    /** 활성 세그먼트를 봉인하고 새 세그먼트로 전환 — 봉인된 경로를 돌려준다 */
+    Path rotate() throws IOException {
+        Path sealed = active;
+        channel.close();
+        open();
+        return sealed;
+    }
+
+    void delete(Path segment) throws IOException {
+        Files.deleteIfExists(segment);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /** 세그먼트 1개의 문서 — 파싱 안 되는 줄(잘린 꼬리)은 건너뛴다 */
+    static List<Document> read(Path segment) throws IOException {
+        List<Document> docs = new ArrayList<>();
+        int torn = 0;
+        try (BufferedReader reader = Files.newBufferedReader(segment, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) continue;
+                try {
+                    docs.add(Document.parse(line));
+                } catch (RuntimeException e) {
+                    torn++;
+                }
+            }
+        }
+        if (torn > 0) {
+            log.warn("🎭 [SCENE-LOG] Spool segment had {} unreadable line(s) | {}", torn, segment.getFileName());
+        }
+        return docs;
+    }
+
+    private void open() throws IOException {
+        active = dir.resolve(PREFIX + nextSegment++ + SUFFIX);
+        channel = FileChannel.open(active, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+    }
+
+    private List<Path> segments() throws IOException {
+        List<Path> found = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, PREFIX + "*" + SUFFIX)) {
+            stream.forEach(found::add);
+        }
+        found.sort(Comparator.comparingLong(TheaterSceneLogSpool::segmentNo));
+        return found;
+    }
+
+    private static long segmentNo(Path segment) {
+        String name = segment.getFileName().toString();
+        try {
+            return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
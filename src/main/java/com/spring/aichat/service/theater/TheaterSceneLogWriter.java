@@ -0,0 +1,387 @@
+package com.spring.aichat.service.theater;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.client.model.InsertManyOptions;
+import com.spring.aichat.domain.theater.TheaterSceneLog;
+import com.spring.aichat.domain.theater.TheaterSceneLogRepository;
+import com.spring.aichat.service.metrics.ChatMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+
+/**
+ * [Perf] 극장 씬 로그 write-behind — 방별 버퍼 → 주기적 insertMany(ordered)
+ *
+ * <pre>
+ *   persistSceneLogs(배치 1건) ──▶ append   _id 부여 → 스풀(디스크) → 방 버퍼
+ *   timer (flush-interval-ms) ──▶ flush    전 방 버퍼를 (roomId, globalSceneSeq) 순으로 insertMany 1회
+ *   버퍼가 flush-threshold 이상 ──▶ flush   (다음 주기를 기다리지 않음)
+ *
+ *   조회 경로 (TheaterHistoryService · 최근 씬 기억) ──▶ Mongo 결과 + {@link #withUnflushed}
+ * </pre>
+ * 배치가 append의 단위 — 한 배치의 씬이 서로 다른 flush로 갈라지지 않는다.
+ * 버퍼 · 오버레이는 노드 로컬이다 — 다른 노드의 조회는 flush 전까지 이 노드가 append한 씬을 못 본다 (최대 flush-interval-ms).
+ *
+ * [순서 · 중복]
+ * - _id(ObjectId)를 append 시점에 정해 두므로 재시도 · 스풀 복구가 멱등이다 — 중복 키(E11000)는 "이미 기록됨"으로 친다.
+ * - ordered insertMany가 중간에 멈추면 앞부분만 기록된 것으로 보고, 나머지는 방 버퍼 앞에 남아 다음 flush에서 이어 쓴다.
+ * - 중복 키 외의 문서 단위 오류(크기 초과 등)는 재시도해도 안 되므로 로그를 남기고 버린다.
+ *
+ * [내구성] 버퍼에 들어간 문서는 항상 스풀에도 있다 ({@link TheaterSceneLogSpool}). 재기동 시 남은 세그먼트를 다시 버퍼에 싣는다.
+ * [상한] 버퍼가 max-buffered를 넘으면 (Mongo 장애 지속) 기존 동기 saveAll로 되돌아간다 — 메모리를 무한정 쓰지 않는다.
+ *
+ * 기본값은 비활성 — 스풀 · 타이머 없이 append가 곧바로 saveAll (기존 동작).
+ * 켜려면 theater.scene-log.write-behind.enabled=true와 함께 spool-dir을 영속 볼륨의 절대 경로로 지정해야 한다.
+ * 비어 있거나 상대 경로면 (컨테이너 작업 디렉터리는 재배포 때 사라진다) 켜지 않고 saveAll로 둔다.
+ */
+@Slf4j
+@Service
+public class TheaterSceneLogWriter {
+
+    private static final int DUPLICATE_KEY = 11000;
+
+    private final MongoTemplate mongoTemplate;
+    private final TheaterSceneLogRepository sceneLogRepository;
+    private final ChatMetrics chatMetrics;
+
+    private final boolean enabled;
+    private final long flushIntervalMs;
+    private final int flushThreshold;
+    private final int maxBuffered;
+    /** 영속 볼륨의 절대 경로 (미지정이면 null) */
+    private final Path spoolDir;
+    private final boolean fsync;
+
+    private final Object lock = new Object();
+    /** 방별 미기록 문서 — 방 안에서는 append 순서 (= globalSceneSeq 순) */
+    private final Map<Long, List<Pending>> buffer = new TreeMap<>();
+    private int buffered;
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    private TheaterSceneLogSpool spool;
+    private ScheduledThreadPoolExecutor timer;
+
+    /** 미기록 문서 1건 — Mongo에 넣을 원문 + 조회 오버레이용 엔티티 */
+    private record Pending(Long roomId, Document doc, TheaterSceneLog view) {
+        Object id() {
+            return doc.get("_id");
+        }
+    }
+
+    public TheaterSceneLogWriter(MongoTemplate mongoTemplate,
+                                 TheaterSceneLogRepository sceneLogRepository,
+                                 ChatMetrics chatMetrics,
+                                 @Value("${theater.scene-log.write-behind.enabled:false}") boolean enabled,
+                                 @Value("${theater.scene-log.write-behind.flush-interval-ms:1000}") long flushIntervalMs,
+                                 @Value("${theater.scene-log.write-behind.flush-threshold:200}") int flushThreshold,
+                                 @Value("${theater.scene-log.write-behind.max-buffered:20000}") int maxBuffered,
+                                 @Value("${theater.scene-log.write-behind.spool-dir:}") String spoolDir,
+                                 @Value("${theater.scene-log.write-behind.fsync:true}") boolean fsync) {
+        this.mongoTemplate = mongoTemplate;
+        this.sceneLogRepository = sceneLogRepository;
+        this.chatMetrics = chatMetrics;
+        this.enabled = enabled;
+        this.flushIntervalMs = flushIntervalMs;
+        this.flushThreshold = flushThreshold;
+        this.maxBuffered = maxBuffered;
+        this.spoolDir = spoolDir.isBlank() ? null : Path.of(spoolDir);
+        this.fsync = fsync;
+    }
+
+    @PostConstruct
+    void start() {
+        if (!enabled) {
+            log.info("🎭 [SCENE-LOG] write-behind disabled — direct saveAll");
+            return;
+        }
+        if (spoolDir == null || !spoolDir.isAbsolute()) {
+            log.error("🎭 [SCENE-LOG] write-behind needs an absolute spool-dir on a durable volume, using direct saveAll | spool-dir={}",
+                spoolDir);
+            return;
+        }
+        try {
+            spool = new TheaterSceneLogSpool(spoolDir, fsync);
+        } catch (IOException e) {
+            log.error("🎭 [SCENE-LOG] Spool unavailable, falling back to direct saveAll | dir={}", spoolDir.toAbsolutePath(), e);
+            return;
+        }
+        recover();
+        timer = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread t = new Thread(r, "theater-scene-log-flush");
+            t.setDaemon(true);
+            return t;
+        });
+        timer.scheduleWithFixedDelay(this::flush, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+        log.info("🎭 [SCENE-LOG] write-behind | interval={}ms | threshold={} | spool={}",
+            flushIntervalMs, flushThreshold, spoolDir.toAbsolutePath());
+    }
+
+    /** 종료 시 마지막 flush — 못 쓴 문서는 스풀에 남아 다음 기동 때 복구 */
+    @PreDestroy
+    public void shutdown() {
+        if (timer == null) return;
+        timer.shutdown();
+        try {
+            timer.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+        synchronized (lock) {
+            try {
+                spool.close();
+            } catch (IOException e) {
+                log.warn("🎭 [SCENE-LOG] Spool close failed: {}", e.getMessage());
+            }
+        }
+    }
+
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+    //  쓰기
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+
+    /** 배치 1건의 씬 로그 (같은 방, globalSceneSeq 오름차순) */
+    public void append(Long roomId, List<TheaterSceneLog> logs) {
+        if (logs.isEmpty()) return;
+        if (spool == null) {
+            sceneLogRepository.saveAll(logs);
+            return;
+        }
+
+        List<Pending> entries = logs.stream().map(l -> toPending(roomId, l)).toList();
+        boolean spooled = false;
+        boolean flushNow = false;
+        synchronized (lock) {
+            if (buffered + entries.size() <= maxBuffered) {
+                try {
+                    spool.append(entries.stream().map(Pending::doc).toList());
+                    buffer.computeIfAbsent(roomId, id -> new ArrayList<>()).addAll(entries);
+                    buffered += entries.size();
+                    spooled = true;
+                    flushNow = buffered >= flushThreshold;
+                } catch (IOException e) {
+                    log.warn("🎭 [SCENE-LOG] Spool append failed, writing directly | roomId={} : {}", roomId, e.getMessage());
+                }
+            }
+        }
+
+        if (!spooled) {
+            // 버퍼 상한 초과(Mongo 장애 지속) · 스풀 오류 — 기존 동기 경로
+            sceneLogRepository.saveAll(logs);
+            return;
+        }
+        if (flushNow) {
+            try {
+                timer.execute(this::flush);
+            } catch (RejectedExecutionException ignored) {
+                // 종료 중 — shutdown의 마지막 flush가 처리
+            }
+        }
+    }
+
+    /**
+     * 버퍼 전체를 insertMany 1회로 기록 (방 → 씬 순서). 동시에 한 스레드만 — 이미 진행 중이면 건너뛴다.
+     */
+    public void flush() {
+        if (spool == null || !flushLock.tryLock()) return;
+        try {
+            List<Pending> batch = new ArrayList<>();
+            Path sealed = null;
+            synchronized (lock) {
+                if (buffered == 0) return;
+                buffer.values().forEach(batch::addAll);
+                try {
+                    sealed = spool.rotate();
+                } catch (IOException e) {
+                    log.warn("🎭 [SCENE-LOG] Spool rotate failed (segment kept until restart): {}", e.getMessage());
+                }
+            }
+
+            long start = System.currentTimeMillis();
+            Set<Object> done = insertOrdered(batch);
+            long elapsed = System.currentTimeMillis() - start;
+
+            boolean spoolSafe = sealed != null;
+            int left;
+            synchronized (lock) {
+                for (Map.Entry<Long, List<Pending>> e : buffer.entrySet()) {
+                    e.getValue().removeIf(p -> done.contains(p.id()));
+                }
+                buffer.values().removeIf(List::isEmpty);
+                buffered = buffer.values().stream().mapToInt(List::size).sum();
+
+                List<Document> carried = batch.stream().filter(p -> !done.contains(p.id())).map(Pending::doc).toList();
+                left = carried.size();
+                if (spoolSafe && !carried.isEmpty()) {
+                    try {
+                        spool.append(carried);
+                    } catch (IOException e) {
+                        spoolSafe = false;
+                        log.warn("🎭 [SCENE-LOG] Spool carry-over failed (segment kept): {}", e.getMessage());
+                    }
+                }
+            }
+            if (spoolSafe) spool.delete(sealed);
+
+            chatMetrics.recordSceneLogFlush(left == 0 ? "ok" : done.isEmpty() ? "failed" : "partial", done.size(), elapsed);
+            log.debug("🎭 [SCENE-LOG] Flushed {} / {} scenes in {}ms", done.size(), batch.size(), elapsed);
+        } catch (IOException e) {
+            log.warn("🎭 [SCENE-LOG] Spool cleanup failed: {}", e.getMessage());
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+    //  읽기 오버레이
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+
+    /** 방의 아직 Mongo에 없는 씬 (globalSceneSeq 오름차순) */
+    public List<TheaterSceneLog> unflushed(Long roomId) {
+        synchronized (lock) {
+            List<Pending> pending = buffer.get(roomId);
+            if (pending == null) return List.of();
+            return pending.stream()
+                .map(Pending::view)
+                .sorted(Comparator.comparingLong(TheaterSceneLog::getGlobalSceneSeq))
+                .toList();
+        }
+    }
+
+    /**
+     * Mongo 조회 결과 + 조건에 맞는 미기록 씬 (read-your-writes).
+     * flush 직후 찰나에는 같은 씬이 양쪽에 보일 수 있어 id로 중복을 제거한다. 정렬은 호출부 몫.
+     * 이 노드의 버퍼만 덧붙인다 — 같은 방 요청이 다른 노드로 가면 그 노드의 flush 전 씬은 빠진다.
+     */
+    public List<TheaterSceneLog> withUnflushed(Long roomId, List<TheaterSceneLog> fromMongo,
+                                               Predicate<TheaterSceneLog> filter) {
+        List<TheaterSceneLog> pending = unflushed(roomId);
+        if (pending.isEmpty()) return fromMongo;
+
+        Set<String> seen = new HashSet<>();
+        fromMongo.forEach(l -> seen.add(l.getId()));
+        List<TheaterSceneLog> merged = new ArrayList<>(fromMongo);
+        for (TheaterSceneLog l : pending) {
+            if (filter.test(l) && seen.add(l.getId())) merged.add(l);
+        }
+        return merged;
+    }
+
+    /** [Metrics] flush 타이머 (write-behind 비활성이면 null) */
+    public ScheduledThreadPoolExecutor getTimer() {
+        return timer;
+    }
+
+    public int bufferedCount() {
+        synchronized (lock) {
+            return buffered;
+        }
+    }
+
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+    //  내부
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+
+    /** ordered insertMany — 기록된(또는 이미 있던) 문서의 _id 집합 */
+    private Set<Object> insertOrdered(List<Pending> batch) {
+        Set<Object> done = new HashSet<>();
+        String collection = mongoTemplate.getCollectionName(TheaterSceneLog.class);
+        int from = 0;
+        while (from < batch.size()) {
+            List<Pending> rest = batch.subList(from, batch.size());
+            try {
+                mongoTemplate.getCollection(collection)
+                    .insertMany(rest.stream().map(Pending::doc).toList(), new InsertManyOptions().ordered(true));
+                rest.forEach(p -> done.add(p.id()));
+                break;
+            } catch (MongoBulkWriteException e) {
+                if (e.getWriteErrors().isEmpty()) {
+                    // write concern 오류 — 기록 여부 불명, 다음 flush에서 재시도 (중복 키로 흡수)
+                    log.warn("🎭 [SCENE-LOG] Flush write concern error, retrying later: {}", e.getMessage());
+                    break;
+                }
+                BulkWriteError first = e.getWriteErrors().get(0);
+                int failedAt = from + first.getIndex();
+                batch.subList(from, failedAt).forEach(p -> done.add(p.id()));
+                Pending failed = batch.get(failedAt);
+                done.add(failed.id());
+                if (first.getCode() != DUPLICATE_KEY) {
+                    log.error("🎭 [SCENE-LOG] Dropping unwritable scene log | roomId={} | seq={} : {}",
+                        failed.roomId(), failed.view().getGlobalSceneSeq(), first.getMessage());
+                }
+                from = failedAt + 1;
+            } catch (RuntimeException e) {
+                log.warn("🎭 [SCENE-LOG] Flush failed, {} scenes kept for retry: {}", rest.size(), e.getMessage());
+                break;
+            }
+        }
+        return done;
+    }
+
+    private Pending toPending(Long roomId, TheaterSceneLog log) {
+        MongoConverter converter = mongoTemplate.getConverter();
+        Document doc = new Document();
+        converter.write(log, doc);
+        if (doc.get("_id") == null) doc.put("_id", new ObjectId());
+        if (doc.get("createdAt") == null) doc.put("createdAt", new Date());   // 템플릿 insert를 안 거쳐 @CreatedDate가 안 채워진다
+        return new Pending(roomId, doc, converter.read(TheaterSceneLog.class, doc));
+    }
+
+    /** 지난 프로세스의 스풀 → 버퍼. 새 활성 세그먼트에 옮겨 적은 뒤 옛 세그먼트를 지운다 */
+    private void recover() {
+        List<Path> orphans = spool.orphans();
+        if (orphans.isEmpty()) return;
+
+        Map<Object, Document> docs = new LinkedHashMap<>();
+        for (Path segment : orphans) {
+            try {
+                TheaterSceneLogSpool.read(segment).forEach(d -> docs.putIfAbsent(d.get("_id"), d));
+            } catch (IOException e) {
+                log.error("🎭 [SCENE-LOG] Spool segment unreadable, left in place | {}", segment, e);
+                return;
+            }
+        }
+
+        MongoConverter converter = mongoTemplate.getConverter();
+        synchronized (lock) {
+            for (Document doc : docs.values()) {
+                TheaterSceneLog view = converter.read(TheaterSceneLog.class, doc);
+                buffer.computeIfAbsent(view.getRoomId(), id -> new ArrayList<>())
+                    .add(new Pending(view.getRoomId(), doc, view));
+            }
+            buffer.values().forEach(l -> l.sort(Comparator.comparingLong(p -> p.view().getGlobalSceneSeq())));
+            buffered = docs.size();
+            try {
+                spool.append(buffer.values().stream().flatMap(List::stream).map(Pending::doc).toList());
+                for (Path segment : orphans) spool.delete(segment);
+            } catch (IOException e) {
+                log.warn("🎭 [SCENE-LOG] Spool recovery rewrite failed (old segments kept): {}", e.getMessage());
+            }
+        }
+        log.info("🎭 [SCENE-LOG] Recovered {} unflushed scenes from {} spool segment(s)", docs.size(), orphans.size());
+    }
+}
@@ -15,23 +15,25 @@ import com.spring.aichat.exception.BadRequestException;
 import com.spring.aichat.exception.BusinessException;
 import com.spring.aichat.exception.ErrorCode;
 import com.spring.aichat.exception.NotFoundException;
+import com.spring.aichat.service.theater.TheaterBatchCacheService.PartialBatch;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.scheduling.annotation.Async;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.List;
 import java.util.Optional;
-import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 /**
  * [Phase 5.5-Theater] Theater 메인 서비스
  *
  * Scene 배치 소비/진행의 핵심 흐름:
- * 1. requestNextBatch()     — 다음 배치 조회 (캐시 hit → 반환 / miss → 동기 생성)
+ * 1. requestNextBatch()     — 다음 배치 조회 (캐시 hit → 반환 / 생성 중 → 따라잡기 / miss → 동기 생성)
  * 2. onBatchConsumed()      — 유저가 배치 감상 완료 시 호출
- * 3. prefetchNextBatchAsync() — 70% 소비 시 비동기 prefetch
+ * 3. prefetchNextBatchAsync() — 70% 소비 시 선행 생성 요청 ({@link TheaterPrefetchScheduler}가 배치 전달 시점에 자동 예약도 한다)
  * 4. finalizeChapter()      — Chapter 종료 처리 + 리포트 생성
  *
  * [에너지 정책]
@@ -51,13 +53,66 @@ public class TheaterService {
     private final TheaterBatchCacheService batchCache;
     private final TheaterDirectorEngine directorEngine;
     private final UserRepository userRepository;
+    /** [Perf] 재생 속도 기반 선행 생성 예약 + 정체 지표 */
+    private final TheaterPrefetchScheduler prefetchScheduler;
+    /** [Perf] 따라잡기 대기는 트랜잭션 밖 — 조회·차감·생성만 이 템플릿 안에서 */
+    private final TransactionTemplate txTemplate;
+
+    /** [Perf] 진행 중인 생성(prefetch)의 부분 배치 폴링 간격 */
+    private static final long IN_FLIGHT_POLL_MS = 150;
+    /** [Perf] 따라잡기 상한 — LLM 스트림 타임아웃(120s) + 여유. 넘기면 자체 생성으로 넘어간다 */
+    private static final long IN_FLIGHT_WAIT_MAX_MS = 130_000;
+    /** [Perf] 부분 배치가 이만큼 변하지 않으면(씬도 heartbeat도 없음) 생성 노드가 죽은 것으로 보고 포기 */
+    @Value("${theater.in-flight.stall-ms:5000}")
+    private long inFlightStallMs;
 
     // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
     //  1. 다음 배치 조회/생성
     // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
 
-    @Transactional
     public SceneBatch requestNextBatch(Long roomId, String username, boolean prefetch) {
+        return requestNextBatch(roomId, username, prefetch, null);
+    }
+
+    /**
+     * [Perf] 같은 배치를 다른 스레드가 생성 중이면 먼저 트랜잭션 밖에서 따라잡고, 그 다음 트랜잭션에서 서빙한다.
+     * 대기 중에는 DB 커넥션을 잡지 않는다.
+     *
+     * @param onProgress [Perf] 씬 단위 전달 (SSE 경로). 생성 중이거나 따라잡는 동안 씬이 늘 때마다 부분 배치로 호출.
+     *                   캐시 hit면 호출되지 않는다 — 완성 배치는 반환값으로.
+     */
+    public SceneBatch requestNextBatch(Long roomId, String username, boolean prefetch,
+                                       Consumer<PartialBatch> onProgress) {
+        long requestStart = System.currentTimeMillis();
+        SceneBatch caughtUp = prefetch ? null : catchUpInFlight(roomId, username, onProgress).orElse(null);
+        return txTemplate.execute(status ->
+            serveNextBatch(roomId, username, prefetch, onProgress, caughtUp, requestStart));
+    }
+
+    /**
+     * [Perf] 트랜잭션 밖 따라잡기 — 현재 배치의 부분 배치가 있을 때만 기다린다.
+     * 세션 상태 가드에 걸리면 기다리지 않고 빈 값 (예외는 이어지는 serveNextBatch가 같은 가드로 던진다).
+     */
+    private Optional<SceneBatch> catchUpInFlight(Long roomId, String username, Consumer<PartialBatch> onProgress) {
+        getOwnedRoom(roomId, username);
+        TheaterState state = getState(roomId);
+        if (state.isEndingReached() || state.isInIntermission() || state.isInterventionActive()) return Optional.empty();
+
+        int batchId = state.getCurrentBatchId();
+        if (batchCache.existsBatch(roomId, batchId) || batchCache.getPartialBatch(roomId, batchId).isEmpty()) {
+            return Optional.empty();
+        }
+        log.info("🎭 [THEATER] Batch in flight — catching up | roomId={} | batchId={}", roomId, batchId);
+        Optional<SceneBatch> caughtUp = awaitInFlightBatch(roomId, batchId, onProgress);
+        if (caughtUp.isEmpty()) {
+            log.info("🎭 [THEATER] In-flight batch abandoned — generating | roomId={} | batchId={}", roomId, batchId);
+        }
+        return caughtUp;
+    }
+
+    /** @param caughtUp 트랜잭션 밖에서 따라잡은 완성본 (없으면 null) — 같은 배치면 "in_flight"로 서빙 */
+    private SceneBatch serveNextBatch(Long roomId, String username, boolean prefetch,
+                                      Consumer<PartialBatch> onProgress, SceneBatch caughtUp, long requestStart) {
         ChatRoom room = getOwnedRoom(roomId, username);
         TheaterState state = getState(roomId);
 
@@ -83,12 +138,24 @@ public class TheaterService {
 
         int batchId = state.getCurrentBatchId();
 
+        // ─── 따라잡기 완료 (트랜잭션 밖에서 기다린 결과) ───
+        if (caughtUp != null && caughtUp.batchId() == batchId) {
+            chargeBatchEnergy(username);
+            room.touch(EmotionTag.NEUTRAL);
+            prefetchScheduler.onBatchServed(roomId, state, caughtUp, "in_flight",
+                System.currentTimeMillis() - requestStart);
+            return caughtUp;
+        }
+
         // ─── 캐시 체크 ───
         Optional<SceneBatch> cached = batchCache.getBatch(roomId, batchId);
         if (cached.isPresent()) {
             log.info("🎭 [THEATER] Batch cache HIT | roomId={} | batchId={} | prefetch={}",
                 roomId, batchId, prefetch);
-            if (!prefetch) chargeBatchEnergy(username);
+            if (!prefetch) {
+                chargeBatchEnergy(username);
+                prefetchScheduler.onBatchServed(roomId, state, cached.get(), null, 0);
+            }
             return cached.get();
         }
 
@@ -112,61 +179,72 @@ public class TheaterService {
         TheaterBatchGenerator.GenerateParams params = new TheaterBatchGenerator.GenerateParams(
             room, state, hintedHeroineId, branchContext, false, justBranched);
 
-        SceneBatch batch = batchGenerator.generateNextBatch(params);
+        long generateStart = System.currentTimeMillis();
+        SceneBatch batch = batchGenerator.generateNextBatch(params, onProgress);
         room.touch(EmotionTag.NEUTRAL); // lastActiveAt 갱신
+        if (!prefetch) {
+            long now = System.currentTimeMillis();
+            prefetchScheduler.onBatchGenerated(roomId, now - generateStart);
+            prefetchScheduler.onBatchServed(roomId, state, batch, "miss", now - requestStart);
+        }
         return batch;
     }
 
-    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
-    //  2. 비동기 prefetch
-    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
-
-    @Async("theaterPrefetchExecutor")
-    public CompletableFuture<Void> prefetchNextBatchAsync(Long roomId) {
-        try {
-            TheaterState state = getState(roomId);
-            if (state.isEndingReached() || state.isInIntermission() || state.isInterventionActive()) {
-                return CompletableFuture.completedFuture(null);
+    /**
+     * [Perf] 다른 스레드(prefetch)가 스트리밍 중인 배치를 따라잡는다 — 새 씬이 보일 때마다 onProgress.
+     * 완성본이 캐시에 들어오면 반환. 부분 배치가 사라지고 완성본도 없으면(생성 실패) 빈 값 → 호출부가 직접 생성.
+     * putBatch는 완성본을 먼저 쓰고 부분 배치를 지우므로, 부분 배치 부재 확인 뒤 완성본을 한 번 더 본다.
+     * 부분 배치가 {@code theater.in-flight.stall-ms} 동안 그대로면(새 씬도 heartbeat도 없음) 생성 노드가 죽은 것으로 보고 포기.
+     * 정체 판정은 updatedAt 값의 변화만 이 노드 시계로 재므로 노드 간 시계 차와 무관하다.
+     */
+    Optional<SceneBatch> awaitInFlightBatch(Long roomId, int batchId, Consumer<PartialBatch> onProgress) {
+        long start = System.currentTimeMillis();
+        long deadline = start + IN_FLIGHT_WAIT_MAX_MS;
+        long lastProgressAt = start;
+        long lastUpdatedAt = Long.MIN_VALUE;
+        int seen = 0;
+        while (System.currentTimeMillis() < deadline) {
+            Optional<SceneBatch> done = batchCache.getBatch(roomId, batchId);
+            if (done.isPresent()) return done;
+
+            Optional<PartialBatch> partial = batchCache.getPartialBatch(roomId, batchId);
+            if (partial.isEmpty()) return batchCache.getBatch(roomId, batchId);
+
+            long now = System.currentTimeMillis();
+            if (partial.get().updatedAt() != lastUpdatedAt || partial.get().sceneCount() > seen) {
+                lastUpdatedAt = partial.get().updatedAt();
+                lastProgressAt = now;
+            } else if (now - lastProgressAt > inFlightStallMs) {
+                log.warn("🎭 [THEATER] In-flight batch stalled — no heartbeat for {}ms | roomId={} | batchId={}",
+                    now - lastProgressAt, roomId, batchId);
+                return Optional.empty();
             }
 
-            // [Polish · P1 #7 + LOCATION fix] LOCATION choice 선행 가드 (prefetch도 동일).
-            //   분기 미선택 상태에선 어떤 batch도 LLM에 던지지 않는다.
-            if (state.getCurrentBatchId() == 0
-                && state.getScenesInCurrentChapter() == 0
-                && state.getCurrentAct().getNumber() <= 3
-                && affectionRepository.findByRoom_Id(roomId).size() >= 2
-                && !branchChoiceRepository.existsByRoom_IdAndActNumberAndChapterNumberAndBranchLevel(
-                roomId, state.getCurrentAct().getNumber(), state.getCurrentChapter(),
-                BranchLevel.LOCATION)) {
-                log.debug("🎭 [PREFETCH] Skipped — LOCATION choice required | roomId={}", roomId);
-                return CompletableFuture.completedFuture(null);
+            if (partial.get().sceneCount() > seen) {
+                seen = partial.get().sceneCount();
+                if (onProgress != null) onProgress.accept(partial.get());
             }
-
-            int nextBatchId = state.getCurrentBatchId() + 1;
-            if (batchCache.existsBatch(roomId, nextBatchId)) {
-                log.debug("🎭 [PREFETCH] Already cached | roomId={} | nextBatchId={}", roomId, nextBatchId);
-                return CompletableFuture.completedFuture(null);
+            try {
+                Thread.sleep(IN_FLIGHT_POLL_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return Optional.empty();
             }
-
-            ChatRoom room = chatRoomRepository.findById(roomId)
-                .orElseThrow(() -> new NotFoundException("방을 찾을 수 없습니다."));
-
-            // [Phase III · 작업 3] Prefetch는 branchContext를 consume하지 않는다.
-            //   분기 직후 첫 배치는 동기 경로(requestNextBatch)에서 정확히 한 번
-            //   consume되어야 하므로, 비동기 prefetch가 미리 가져가면 안 됨.
-            //   따라서 prefetch는 항상 일반 정책(model)으로 미리 만든다.
-            //   만약 prefetch 시점에 active 컨텍스트가 살아있다면, 분기 적용
-            //   직후 BranchService가 invalidateBatchesFrom으로 캐시를 비웠을 것이고
-            //   이후 첫 동기 호출이 그것을 consume한다.
-            TheaterBatchGenerator.GenerateParams params = new TheaterBatchGenerator.GenerateParams(
-                room, state, null, null, false, false);
-
-            batchGenerator.generateNextBatch(params);
-            log.info("🎭 [PREFETCH] Done | roomId={} | nextBatchId={}", roomId, nextBatchId);
-        } catch (Exception e) {
-            log.warn("🎭 [PREFETCH] Failed | roomId={}: {}", roomId, e.getMessage());
         }
-        return CompletableFuture.completedFuture(null);
+        log.warn("🎭 [THEATER] In-flight batch wait timed out | roomId={} | batchId={}", roomId, batchId);
+        return Optional.empty();
+    }
+
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+    //  2. 비동기 prefetch
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+
+    /**
+     * FE 70% 트리거 — 즉시 선행 생성을 요청한다 (대상은 currentBatchId+1, 결함 D-5.1/5.2 수정).
+     * 실행 · 가드 · 동시성 상한은 {@link TheaterPrefetchScheduler}. 배치 전달 시점에 이미 예약돼 있으면 앞당기기만 한다.
+     */
+    public void prefetchNextBatchAsync(Long roomId) {
+        prefetchScheduler.requestPrefetch(roomId);
     }
 
     // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
@@ -208,6 +286,7 @@ public class TheaterService {
         state.addScenes(scenesInBatch);
         state.setCurrentHeroine(batch.speakerHeroineId());
         state.advanceBatch();
+        prefetchScheduler.onBatchConsumed(roomId, consumedBatchId);
 
         boolean chapterEnd = batch.chapterEndAfter() || state.isChapterComplete();
         room.touch(EmotionTag.NEUTRAL);
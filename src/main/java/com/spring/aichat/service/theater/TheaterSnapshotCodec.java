@@ -0,0 +1,180 @@
+package com.spring.aichat.service.theater;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * [Perf] 세이브 스냅샷 청크 분할 · 델타 — 순수 로직 (DB는 {@link TheaterSnapshotStore})
+ *
+ * <pre>
+ *   스냅샷 JSON 최상위 필드마다 엔트리 1개
+ *     작은 값 (직렬화 ≤ inlineMaxBytes)  {"v": 값}               매니페스트에 그대로
+ *     큰 값                              {"h": sha256}            청크 1개
+ *     배열                               {"a": [엔트리, ...]}     원소마다 위 규칙 — 호감도 목록은 히로인 1명만 바뀌어도 나머지 청크 재사용
+ *
+ *   델타 = {"set": {필드: 엔트리}, "unset": [필드]}   이전 스냅샷의 엔트리 맵 기준. base가 없으면 전체 set.
+ *     길이가 같은 배열의 일부 원소만 바뀌면       {"ai": {"3": 엔트리}}    바뀐 원소만 (절반 넘게 바뀌면 "a" 전체)
+ * </pre>
+ * 청크 해시는 직렬화 바이트의 SHA-256 — 같은 내용이면 슬롯이 달라도 방 안에서 1번만 저장된다.
+ * 최상위 필드 단위라 스냅샷에 필드가 늘어도(롤링 요약 등) 코덱은 그대로 쓴다.
+ */
+final class TheaterSnapshotCodec {
+
+    private TheaterSnapshotCodec() {}
+
+    /** 엔트리 맵(필드 순서 유지) + 이 스냅샷이 참조하는 청크 (hash → 직렬화 본문) */
+    record Encoded(Map<String, JsonNode> entries, Map<String, String> chunks) {}
+
+    static Encoded encode(ObjectMapper mapper, String snapshotJson, int inlineMaxBytes) throws JsonProcessingException {
+        JsonNode root = mapper.readTree(snapshotJson);
+        if (!root.isObject()) throw new IllegalArgumentException("snapshot must be a JSON object");
+
+        Map<String, JsonNode> entries = new LinkedHashMap<>();
+        Map<String, String> chunks = new LinkedHashMap<>();
+        Iterator<Map.Entry<String, JsonNode>> fields = root.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            JsonNode value = field.getValue();
+            if (value.isArray()) {
+                ArrayNode items = mapper.createArrayNode();
+                for (JsonNode item : value) items.add(entry(mapper, item, inlineMaxBytes, chunks));
+                entries.put(field.getKey(), mapper.createObjectNode().set("a", items));
+            } else {
+                entries.put(field.getKey(), entry(mapper, value, inlineMaxBytes, chunks));
+            }
+        }
+        return new Encoded(entries, chunks);
+    }
+
+    static ObjectNode delta(ObjectMapper mapper, Map<String, JsonNode> base, Map<String, JsonNode> next) {
+        ObjectNode set = mapper.createObjectNode();
+        next.forEach((field, entry) -> {
+            JsonNode prev = base.get(field);
+            if (!Objects.equals(prev, entry)) set.set(field, patchOrFull(mapper, prev, entry));
+        });
+        ArrayNode unset = mapper.createArrayNode();
+        base.keySet().stream().filter(field -> !next.containsKey(field)).forEach(unset::add);
+
+        ObjectNode delta = mapper.createObjectNode();
+        delta.set("set", set);
+        if (!unset.isEmpty()) delta.set("unset", unset);
+        return delta;
+    }
+
+    static Map<String, JsonNode> apply(Map<String, JsonNode> base, JsonNode delta) {
+        Map<String, JsonNode> out = new LinkedHashMap<>(base);
+        delta.path("unset").forEach(field -> out.remove(field.asText()));
+        delta.path("set").fields().forEachRemaining(e -> out.put(e.getKey(), patched(out.get(e.getKey()), e.getValue())));
+        return out;
+    }
+
+    /** 체인 복원 — deltas는 루트(전체 스냅샷)부터 순서대로 */
+    static Map<String, JsonNode> resolve(List<JsonNode> deltas) {
+        Map<String, JsonNode> entries = new LinkedHashMap<>();
+        for (JsonNode delta : deltas) entries = apply(entries, delta);
+        return entries;
+    }
+
+    /** 엔트리(또는 델타의 set)가 참조하는 청크 해시 — "v" 값 안은 보지 않는다 (유저 데이터에 "h" 키가 있어도 무시) */
+    static Set<String> hashes(Iterable<JsonNode> entries) {
+        Set<String> out = new LinkedHashSet<>();
+        for (JsonNode entry : entries) collect(entry, out);
+        return out;
+    }
+
+    static Set<String> hashesOfDelta(JsonNode delta) {
+        Set<String> out = new LinkedHashSet<>();
+        delta.path("set").forEach(entry -> collect(entry, out));
+        return out;
+    }
+
+    /** 엔트리 맵 + 청크 → 원래 스냅샷 JSON */
+    static String decode(ObjectMapper mapper, Map<String, JsonNode> entries, Map<String, String> chunks)
+        throws JsonProcessingException {
+        ObjectNode root = mapper.createObjectNode();
+        for (Map.Entry<String, JsonNode> e : entries.entrySet()) {
+            root.set(e.getKey(), value(mapper, e.getValue(), chunks));
+        }
+        return mapper.writeValueAsString(root);
+    }
+
+    static String sha256(String content) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(content.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static JsonNode patchOrFull(ObjectMapper mapper, JsonNode prev, JsonNode entry) {
+        if (prev == null || !prev.has("a") || !entry.has("a") || prev.get("a").size() != entry.get("a").size()) {
+            return entry;
+        }
+        JsonNode before = prev.get("a");
+        JsonNode after = entry.get("a");
+        ObjectNode items = mapper.createObjectNode();
+        for (int i = 0; i < after.size(); i++) {
+            if (!before.get(i).equals(after.get(i))) items.set(String.valueOf(i), after.get(i));
+        }
+        return items.size() * 2 > after.size() ? entry : mapper.createObjectNode().set("ai", items);
+    }
+
+    private static JsonNode patched(JsonNode base, JsonNode entry) {
+        if (!entry.has("ai")) return entry;
+        if (base == null || !base.has("a")) throw new IllegalStateException("array patch without base array");
+        ArrayNode items = ((ArrayNode) base.get("a")).deepCopy();
+        entry.get("ai").fields().forEachRemaining(e -> items.set(Integer.parseInt(e.getKey()), e.getValue()));
+        return JsonNodeFactory.instance.objectNode().set("a", items);
+    }
+
+    private static JsonNode entry(ObjectMapper mapper, JsonNode value, int inlineMaxBytes, Map<String, String> chunks)
+        throws JsonProcessingException {
+        String serialized = mapper.writeValueAsString(value);
+        if (serialized.getBytes(StandardCharsets.UTF_8).length <= inlineMaxBytes) {
+            return mapper.createObjectNode().set("v", value);
+        }
+        String hash = sha256(serialized);
+        chunks.putIfAbsent(hash, serialized);
+        return mapper.createObjectNode().put("h", hash);
+    }
+
+    private static JsonNode value(ObjectMapper mapper, JsonNode entry, Map<String, String> chunks)
+        throws JsonProcessingException {
+        if (entry.has("v")) return entry.get("v");
+        if (entry.has("h")) {
+            String content = chunks.get(entry.get("h").asText());
+            if (content == null) throw new IllegalStateException("snapshot chunk missing: " + entry.get("h").asText());
+            return mapper.readTree(content);
+        }
+        ArrayNode items = mapper.createArrayNode();
+        for (JsonNode item : entry.path("a")) items.add(value(mapper, item, chunks));
+        return items;
+    }
+
+    private static void collect(JsonNode entry, Set<String> out) {
+        if (entry.has("h")) {
+            out.add(entry.get("h").asText());
+        } else if (entry.has("a")) {
+            entry.get("a").forEach(item -> collect(item, out));
+        } else if (entry.has("ai")) {
+            entry.get("ai").forEach(item -> collect(item, out));
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.spring.aichat.service.theater;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * [Perf] 세이브 스냅샷 압축 — 깊어진 델타 체인을 전체 매니페스트로 접고, 어느 슬롯도 안 쓰는 매니페스트 · 청크를 지운다
+ *
+ * 세이브가 만든 매니페스트 depth가 compact-depth 이상이면 커밋 후 방 단위로 예약된다.
+ * 로드 체인 길이는 세이브 쪽 max-chain-depth가 상한을 보장하고, 압축은 평균 길이와 저장 공간을 줄인다.
+ *
+ * 전용 bounded 풀. 포화 시 버림 — 다음 세이브가 다시 트리거하므로 유실 없음.
+ * 방 단위 single-flight: 실행 중 들어온 트리거는 플래그로 합쳐 끝난 뒤 1회 더 돈다 ({@code MemoryCompactor}와 같은 방식).
+ * 실제 작업과 방 단위 잠금은 {@link TheaterSnapshotStore#compact}.
+ */
+@Slf4j
+@Component
+public class TheaterSnapshotCompactor {
+
+    private final TheaterSnapshotStore snapshotStore;
+    private final TransactionTemplate txTemplate;
+    private final boolean enabled;
+    private final int compactDepth;
+    private final ThreadPoolExecutor executor;
+
+    /** roomId → 재실행 필요 여부 (TRUE = 처리 안 된 트리거 있음). 키 존재 = 워커 실행 중 */
+    private final ConcurrentHashMap<Long, Boolean> pending = new ConcurrentHashMap<>();
+    /** 큐 포화로 버린 트리거 수 */
+    private final LongAdder rejected = new LongAdder();
+
+    public TheaterSnapshotCompactor(TheaterSnapshotStore snapshotStore,
+                                    TransactionTemplate txTemplate,
+                                    @Value("${theater.snapshot.compaction.enabled:true}") boolean enabled,
+                                    @Value("${theater.snapshot.compaction.depth:4}") int compactDepth,
+                                    @Value("${theater.snapshot.compaction.queue:128}") int queue) {
+        this.snapshotStore = snapshotStore;
+        this.txTemplate = txTemplate;
+        this.enabled = enabled;
+        this.compactDepth = Math.max(1, compactDepth);
+        this.executor = new ThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(queue), r -> {
+                Thread t = new Thread(r, "theater-snapshot-compact");
+                t.setDaemon(true);
+                return t;
+            }, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /** [Metrics] 전용 풀 — 큐 깊이 · 활성 스레드 */
+    public ThreadPoolExecutor getExecutor() {
+        return executor;
+    }
+
+    /** [Metrics] 큐 포화로 버린 트리거 수 */
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    /** 세이브 직후 호출 — depth가 기준 이상이면 커밋 후 비동기 압축 */
+    public void onSaved(Long roomId, int depth) {
+        if (!enabled || depth < compactDepth) return;
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    submit(roomId);
+                }
+            });
+        } else {
+            submit(roomId);
+        }
+    }
+
+    public void submit(Long roomId) {
+        if (pending.put(roomId, Boolean.TRUE) != null) return;
+        try {
+            executor.execute(() -> drain(roomId));
+        } catch (RejectedExecutionException e) {
+            pending.remove(roomId);
+            rejected.increment();
+            log.warn("🎭 [SNAPSHOT-COMPACT] queue full — skipped (retried on next save) | roomId={}", roomId);
+        }
+    }
+
+    private void drain(Long roomId) {
+        do {
+            pending.replace(roomId, Boolean.TRUE, Boolean.FALSE);
+            try {
+                long start = System.currentTimeMillis();
+                TheaterSnapshotStore.Compaction result = txTemplate.execute(
+                    status -> snapshotStore.compact(roomId, compactDepth));
+                if (result != null) {
+                    log.info("🎭 [SNAPSHOT-COMPACT] roomId={} | flattened={} | manifests -{} | chunks -{} | {}ms",
+                        roomId, result.flattened(), result.manifestsDeleted(), result.chunksDeleted(),
+                        System.currentTimeMillis() - start);
+                }
+            } catch (RuntimeException e) {
+                log.error("❌ [SNAPSHOT-COMPACT] failed | roomId={} : {}", roomId, e.getMessage(), e);
+            }
+        } while (!pending.remove(roomId, Boolean.FALSE));
+    }
+}
@@ -0,0 +1,310 @@
+package com.spring.aichat.service.theater;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.spring.aichat.exception.BusinessException;
+import com.spring.aichat.exception.ErrorCode;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * [Perf] 극장 세이브 스냅샷 저장소 — 내용 주소 청크 + 델타 매니페스트 체인 (V31, JdbcTemplate)
+ *
+ * <pre>
+ *   theater_snapshot_chunks     (room_id, hash) 유니크 — 청크 본문. 슬롯 · 퀵세이브가 공유
+ *   theater_snapshot_manifests  델타 1건 = base_id(이전 매니페스트) + depth + delta_json
+ *   theater_save_slots.snapshot_manifest_id → 체인의 끝
+ * </pre>
+ * 세이브는 방의 가장 최근 매니페스트를 base로 델타만 쓴다 — 새 청크 + 바뀐 엔트리만. depth가 max-chain-depth를 넘으면 전체 매니페스트.
+ * 로드는 재귀 CTE 1회로 체인을 읽고 청크 1회 조회로 복원한다.
+ *
+ * [동시성] 세이브와 압축 모두 방의 최신 매니페스트 행을 FOR UPDATE로 잡는다 — 방 단위로 직렬화되므로
+ *   "재사용하려던 청크를 압축이 지움" · "base로 잡은 매니페스트를 압축이 지움" 경합이 없다.
+ *   첫 세이브(매니페스트 없음)끼리는 청크 INSERT가 ON CONFLICT DO NOTHING이라 둘 다 성공한다.
+ *   로드는 잠그지 않는다 — 슬롯을 읽은 뒤 압축이 커밋하면 읽어 둔 매니페스트가 이미 지워져 있을 수 있어
+ *   {@link #read}가 슬롯의 현재 매니페스트를 다시 읽어 1회 재시도한다 (평탄화 매니페스트는 같은 청크를 참조).
+ *
+ * 호출자 트랜잭션 안에서 쓴다 (JPA 트랜잭션이 JDBC 커넥션을 공유).
+ */
+@Slf4j
+@Repository
+public class TheaterSnapshotStore {
+
+    /** 세이브 1건 결과 — bytesWritten = 새 청크 + 델타 본문, fullBytes = 기존 방식(전체 JSON)이었다면 쓴 바이트 */
+    public record Written(long manifestId, int depth, long bytesWritten, long fullBytes) {}
+
+    /** 압축 1회 결과 */
+    public record Compaction(int flattened, int manifestsDeleted, int chunksDeleted) {}
+
+    private record Manifest(long id, Long baseId, int depth, String deltaJson) {}
+
+    private static final RowMapper<Manifest> MANIFEST = (rs, i) -> new Manifest(
+        rs.getLong("id"), (Long) rs.getObject("base_id"), rs.getInt("depth"), rs.getString("delta_json"));
+
+    private static final String LOCK_LATEST_SQL = """
+        SELECT id, base_id, depth, delta_json FROM theater_snapshot_manifests
+        WHERE room_id = ? ORDER BY id DESC LIMIT 1 FOR UPDATE
+        """;
+
+    /** 체인 끝에서 base_id를 따라 루트까지 — depth 오름차순 (루트 먼저) */
+    private static final String CHAIN_SQL = """
+        WITH RECURSIVE chain AS (
+            SELECT id, base_id, depth, delta_json FROM theater_snapshot_manifests WHERE id = ?
+            UNION ALL
+            SELECT m.id, m.base_id, m.depth, m.delta_json
+            FROM theater_snapshot_manifests m JOIN chain c ON m.id = c.base_id
+        )
+        SELECT id, base_id, depth, delta_json FROM chain ORDER BY depth ASC
+        """;
+
+    private static final String INSERT_CHUNK_SQL = """
+        INSERT INTO theater_snapshot_chunks (room_id, hash, content, size_bytes, created_at)
+        VALUES (?, ?, ?, ?, ?)
+        ON CONFLICT (room_id, hash) DO NOTHING
+        """;
+
+    private static final String INSERT_MANIFEST_SQL = """
+        INSERT INTO theater_snapshot_manifests (room_id, base_id, depth, delta_json, created_at)
+        VALUES (?, ?, ?, ?, ?) RETURNING id
+        """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final int inlineMaxBytes;
+    private final int maxChainDepth;
+
+    public TheaterSnapshotStore(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper,
+                                @Value("${theater.snapshot.inline-max-bytes:64}") int inlineMaxBytes,
+                                @Value("${theater.snapshot.max-chain-depth:8}") int maxChainDepth) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.inlineMaxBytes = inlineMaxBytes;
+        this.maxChainDepth = Math.max(0, maxChainDepth);
+    }
+
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+    //  세이브 / 로드
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+
+    public Written write(Long roomId, String snapshotJson) {
+        Manifest latest = lockLatest(roomId);
+        try {
+            TheaterSnapshotCodec.Encoded encoded = TheaterSnapshotCodec.encode(objectMapper, snapshotJson, inlineMaxBytes);
+
+            boolean full = latest == null || latest.depth() + 1 > maxChainDepth;
+            Map<String, JsonNode> base = full ? Map.of() : entries(chain(latest.id()));
+            ObjectNode delta = TheaterSnapshotCodec.delta(objectMapper, base, encoded.entries());
+            String deltaJson = objectMapper.writeValueAsString(delta);
+
+            Set<String> referenced = TheaterSnapshotCodec.hashesOfDelta(delta);
+            Set<String> missing = new HashSet<>(referenced);
+            missing.removeAll(existingHashes(roomId, referenced));
+            long chunkBytes = insertChunks(roomId, missing, encoded.chunks());
+
+            Long baseId = full ? null : latest.id();
+            int depth = full ? 0 : latest.depth() + 1;
+            Long id = jdbcTemplate.queryForObject(INSERT_MANIFEST_SQL, Long.class,
+                roomId, baseId, depth, deltaJson, Timestamp.valueOf(LocalDateTime.now()));
+
+            return new Written(id, depth, chunkBytes + utf8Length(deltaJson), utf8Length(snapshotJson));
+        } catch (JsonProcessingException e) {
+            throw new BusinessException(ErrorCode.INTERNAL_ERROR, "세이브 직렬화 실패");
+        }
+    }
+
+    /**
+     * 슬롯의 매니페스트 체인 → 원래 스냅샷 JSON.
+     * 체인이 비면 (슬롯을 읽은 뒤 압축이 평탄화 · 정리를 커밋) 슬롯의 현재 매니페스트 id로 1회 재시도 —
+     * READ COMMITTED라 새 문장은 커밋된 슬롯 이동을 본다.
+     */
+    public String read(Long roomId, long slotId, long manifestId) {
+        List<Manifest> chain = chain(manifestId);
+        if (chain.isEmpty()) {
+            Long current = currentManifestId(slotId);
+            if (current != null && current != manifestId) {
+                log.info("🎭 [SNAPSHOT] slot moved by compaction during load | roomId={} | slot={} | {} → {}",
+                    roomId, slotId, manifestId, current);
+                chain = chain(current);
+            }
+        }
+        if (chain.isEmpty()) {
+            throw new BusinessException(ErrorCode.INTERNAL_ERROR, "세이브 스냅샷을 찾을 수 없습니다.");
+        }
+        Map<String, JsonNode> entries = entries(chain);
+        Set<String> hashes = TheaterSnapshotCodec.hashes(entries.values());
+        try {
+            return TheaterSnapshotCodec.decode(objectMapper, entries, loadChunks(roomId, hashes));
+        } catch (JsonProcessingException | IllegalStateException e) {
+            throw new BusinessException(ErrorCode.INTERNAL_ERROR, "세이브 파일 복원 실패: " + e.getMessage());
+        }
+    }
+
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+    //  압축 ({@link TheaterSnapshotCompactor}가 트랜잭션을 열고 호출)
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+
+    /**
+     * 1. depth ≥ flattenDepth인 슬롯을 전체 매니페스트로 다시 쓰고 슬롯을 옮긴다 (원래 매니페스트 id 순 — 가장 최근 슬롯이 새 최신이 되도록)
+     * 2. 어느 슬롯 체인에도 · 최신 매니페스트 체인에도 없는 매니페스트 삭제
+     * 3. 살아 있는 매니페스트가 참조하지 않는 청크 삭제
+     */
+    public Compaction compact(Long roomId, int flattenDepth) {
+        Manifest latest = lockLatest(roomId);
+        if (latest == null) return new Compaction(0, 0, 0);
+
+        List<long[]> slots = jdbcTemplate.query("""
+            SELECT id, snapshot_manifest_id FROM theater_save_slots
+            WHERE room_id = ? AND snapshot_manifest_id IS NOT NULL
+            ORDER BY snapshot_manifest_id ASC
+            """, (rs, i) -> new long[]{rs.getLong(1), rs.getLong(2)}, roomId);
+
+        int flattened = 0;
+        List<Long> heads = new ArrayList<>();
+        for (long[] slot : slots) {
+            long slotId = slot[0];
+            long manifestId = slot[1];
+            List<Manifest> chain = chain(manifestId);
+            if (chain.isEmpty()) continue;
+            if (chain.get(chain.size() - 1).depth() < flattenDepth) {
+                heads.add(manifestId);
+                continue;
+            }
+            try {
+                ObjectNode full = TheaterSnapshotCodec.delta(objectMapper, Map.of(), entries(chain));
+                Long flat = jdbcTemplate.queryForObject(INSERT_MANIFEST_SQL, Long.class,
+                    roomId, null, 0, objectMapper.writeValueAsString(full), Timestamp.valueOf(LocalDateTime.now()));
+                int moved = jdbcTemplate.update(
+                    "UPDATE theater_save_slots SET snapshot_manifest_id = ? WHERE id = ? AND snapshot_manifest_id = ?",
+                    flat, slotId, manifestId);
+                heads.add(moved == 1 ? flat : manifestId);
+                if (moved == 1) flattened++;
+            } catch (JsonProcessingException e) {
+                heads.add(manifestId);
+                log.warn("🎭 [SNAPSHOT-COMPACT] flatten failed | roomId={} | manifest={} : {}", roomId, manifestId, e.getMessage());
+            }
+        }
+        heads.add(latest.id());
+
+        Set<Long> liveIds = new HashSet<>();
+        Set<String> liveHashes = new HashSet<>();
+        for (Long head : heads) {
+            for (Manifest m : chain(head)) {
+                if (liveIds.add(m.id())) liveHashes.addAll(TheaterSnapshotCodec.hashesOfDelta(readTree(m.deltaJson())));
+            }
+        }
+
+        int manifestsDeleted = deleteExcept("theater_snapshot_manifests", "id", roomId, liveIds);
+        int chunksDeleted = deleteExcept("theater_snapshot_chunks", "hash", roomId, liveHashes);
+        return new Compaction(flattened, manifestsDeleted, chunksDeleted);
+    }
+
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+    //  내부
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+
+    private Manifest lockLatest(Long roomId) {
+        List<Manifest> rows = jdbcTemplate.query(LOCK_LATEST_SQL, MANIFEST, roomId);
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+
+    /** 잠그지 않는 재조회 — JPA 1차 캐시가 아닌 커밋된 값 */
+    private Long currentManifestId(long slotId) {
+        List<Long> rows = jdbcTemplate.queryForList(
+            "SELECT snapshot_manifest_id FROM theater_save_slots WHERE id = ?", Long.class, slotId);
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+
+    /** 루트(depth 0)부터 순서대로 */
+    private List<Manifest> chain(long manifestId) {
+        return jdbcTemplate.query(CHAIN_SQL, MANIFEST, manifestId);
+    }
+
+    private Map<String, JsonNode> entries(List<Manifest> chain) {
+        return TheaterSnapshotCodec.resolve(chain.stream().map(m -> readTree(m.deltaJson())).toList());
+    }
+
+    private JsonNode readTree(String json) {
+        try {
+            return objectMapper.readTree(json);
+        } catch (JsonProcessingException e) {
+            throw new BusinessException(ErrorCode.INTERNAL_ERROR, "세이브 매니페스트 파싱 실패: " + e.getMessage());
+        }
+    }
+
+    private Set<String> existingHashes(Long roomId, Collection<String> hashes) {
+        if (hashes.isEmpty()) return Set.of();
+        List<Object> args = new ArrayList<>(hashes.size() + 1);
+        args.add(roomId);
+        args.addAll(hashes);
+        return new HashSet<>(jdbcTemplate.queryForList(
+            "SELECT hash FROM theater_snapshot_chunks WHERE room_id = ? AND hash IN (" + placeholders(hashes.size()) + ")",
+            String.class, args.toArray()));
+    }
+
+    private Map<String, String> loadChunks(Long roomId, Collection<String> hashes) {
+        if (hashes.isEmpty()) return Map.of();
+        List<Object> args = new ArrayList<>(hashes.size() + 1);
+        args.add(roomId);
+        args.addAll(hashes);
+        Map<String, String> chunks = new HashMap<>();
+        jdbcTemplate.query(
+            "SELECT hash, content FROM theater_snapshot_chunks WHERE room_id = ? AND hash IN (" + placeholders(hashes.size()) + ")",
+            rs -> {
+                chunks.put(rs.getString(1), rs.getString(2));
+            }, args.toArray());
+        return chunks;
+    }
+
+    private long insertChunks(Long roomId, Set<String> hashes, Map<String, String> contents) {
+        if (hashes.isEmpty()) return 0;
+        List<String> ordered = new ArrayList<>(hashes);
+        Collections.sort(ordered);
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        long bytes = 0;
+        for (String hash : ordered) bytes += utf8Length(contents.get(hash));
+        jdbcTemplate.batchUpdate(INSERT_CHUNK_SQL, ordered, ordered.size(), (ps, hash) -> {
+            String content = contents.get(hash);
+            ps.setLong(1, roomId);
+            ps.setString(2, hash);
+            ps.setString(3, content);
+            ps.setInt(4, utf8Length(content));
+            ps.setTimestamp(5, now);
+        });
+        return bytes;
+    }
+
+    /** table · column은 이 클래스의 상수만 — SQL에 직접 삽입된다 */
+    private int deleteExcept(String table, String column, Long roomId, Collection<?> keep) {
+        String sql = "DELETE FROM " + table + " WHERE room_id = ?"
+            + (keep.isEmpty() ? "" : " AND " + column + " NOT IN (" + placeholders(keep.size()) + ")");
+        List<Object> args = new ArrayList<>(keep.size() + 1);
+        args.add(roomId);
+        args.addAll(keep);
+        return jdbcTemplate.update(sql, args.toArray());
+    }
+
+    private static String placeholders(int n) {
+        return String.join(", ", Collections.nCopies(n, "?"));
+    }
+
+    private static int utf8Length(String s) {
+        return s == null ? 0 : s.getBytes(StandardCharsets.UTF_8).length;
+    }
+}
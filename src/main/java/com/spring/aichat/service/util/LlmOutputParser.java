@@ -7,6 +7,7 @@ import com.spring.aichat.dto.chat.AiJsonOutput;
 import com.spring.aichat.dto.chat.SendChatResponse.SceneResponse;
 import lombok.extern.slf4j.Slf4j;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.function.Function;
 
@@ -166,49 +167,73 @@ public final class LlmOutputParser {
             if (raw == null || raw.isBlank()) {
                 return chatLog.getCleanContent() != null ? chatLog.getCleanContent() : "";
             }
+            return renderSanitizedAssistant(
+                parseSanitizedScenes(objectMapper, raw), characterName,
+                chatLog.getInnerThought(), includeInnerThought,
+                chatLog.getCleanContent() != null ? chatLog.getCleanContent() : "");
 
-            String cleaned = extractJson(raw);
-            AiJsonOutput parsed = objectMapper.readValue(cleaned, AiJsonOutput.class);
-
-            StringBuilder sb = new StringBuilder();
-            for (AiJsonOutput.Scene scene : parsed.scenes()) {
-                // NPC 발화 시에만 speaker 표기 (캐릭터 자신은 role="assistant"로 식별)
-                String speaker = (scene.speaker() != null && !scene.speaker().isBlank())
-                    ? scene.speaker() : null;
-                if (speaker != null && !speaker.equals(characterName)) {
-                    sb.append("[").append(speaker).append("] ");
-                }
-
-                // 나레이션(행동 묘사) — 대화 맥락 유지
-                if (scene.narration() != null && !scene.narration().isBlank()) {
-                    sb.append("(").append(scene.narration().trim()).append(") ");
-                }
-
-                // 대사 — 핵심 컨텐츠
-                if (scene.dialogue() != null && !scene.dialogue().isBlank()) {
-                    sb.append("\"").append(scene.dialogue().trim()).append("\"");
-                }
-                sb.append("\n");
-            }
+        } catch (Exception e) {
+            return chatLog.getCleanContent() != null ? chatLog.getCleanContent() : chatLog.getRawContent();
+        }
+    }
 
-            // 속마음 컨텍스트 주입
-            if (includeInnerThought) {
-                String thought = chatLog.getInnerThought();
-                if (thought != null && !thought.isBlank()) {
-                    sb.append("{💭 Previous thought: \"").append(thought.trim()).append("\"}\n");
-                }
+    /**
+     * [Perf] 정제 1단계 — JSON 파스 후 씬별 (speaker, 본문)만 남긴다.
+     * 결과는 캐릭터 이름과 무관하므로 저장 시점에 한 번만 계산해 재사용할 수 있다 (ChatContextCache).
+     *
+     * @throws Exception JSON 파스 실패 시 — 호출측이 fallback 처리
+     */
+    public static List<SanitizedScene> parseSanitizedScenes(ObjectMapper objectMapper, String raw) throws Exception {
+        AiJsonOutput parsed = objectMapper.readValue(extractJson(raw), AiJsonOutput.class);
+
+        List<SanitizedScene> scenes = new ArrayList<>(parsed.scenes().size());
+        for (AiJsonOutput.Scene scene : parsed.scenes()) {
+            String speaker = (scene.speaker() != null && !scene.speaker().isBlank())
+                ? scene.speaker() : null;
+
+            StringBuilder body = new StringBuilder();
+            // 나레이션(행동 묘사) — 대화 맥락 유지
+            if (scene.narration() != null && !scene.narration().isBlank()) {
+                body.append("(").append(scene.narration().trim()).append(") ");
             }
+            // 대사 — 핵심 컨텐츠
+            if (scene.dialogue() != null && !scene.dialogue().isBlank()) {
+                body.append("\"").append(scene.dialogue().trim()).append("\"");
+            }
+            scenes.add(new SanitizedScene(speaker, body.toString()));
+        }
+        return scenes;
+    }
 
-            String result = sb.toString().trim();
-            return result.isEmpty()
-                ? (chatLog.getCleanContent() != null ? chatLog.getCleanContent() : "")
-                : result;
+    /**
+     * [Perf] 정제 2단계 — 씬 본문 조립 (JSON 파스 없음).
+     *
+     * @param fallback 조립 결과가 비었을 때 반환할 텍스트
+     */
+    public static String renderSanitizedAssistant(List<SanitizedScene> scenes, String characterName,
+                                                  String innerThought, boolean includeInnerThought,
+                                                  String fallback) {
+        StringBuilder sb = new StringBuilder();
+        for (SanitizedScene scene : scenes) {
+            // NPC 발화 시에만 speaker 표기 (캐릭터 자신은 role="assistant"로 식별)
+            if (scene.speaker() != null && !scene.speaker().equals(characterName)) {
+                sb.append("[").append(scene.speaker()).append("] ");
+            }
+            sb.append(scene.body()).append("\n");
+        }
 
-        } catch (Exception e) {
-            return chatLog.getCleanContent() != null ? chatLog.getCleanContent() : chatLog.getRawContent();
+        // 속마음 컨텍스트 주입
+        if (includeInnerThought && innerThought != null && !innerThought.isBlank()) {
+            sb.append("{💭 Previous thought: \"").append(innerThought.trim()).append("\"}\n");
         }
+
+        String result = sb.toString().trim();
+        return result.isEmpty() ? fallback : result;
     }
 
+    /** 정제된 씬 1개 — speaker(없으면 null) + "(나레이션) \"대사\"" 본문 */
+    public record SanitizedScene(String speaker, String body) {}
+
     /** 하위 호환: 속마음 미포함 버전 */
     public static String buildSanitizedAssistantContent(
         ObjectMapper objectMapper,
@@ -0,0 +1,23 @@
+-- V28 · LLM 토큰·비용 계측 롤업 (additive only)
+-- LlmUsageMeter가 메모리(LongAdder)에서 집계한 델타를 flush 주기(기본 30초)마다 batch insert.
+-- 한 행 = (flush 구간, caller, model, provider, room, user) 델타. 조회는 기간 GROUP BY 롤업.
+-- (FK 미설정 — V2 이후 신규 테이블 관례. room_id/user_id 정합성은 앱 레벨 책임)
+CREATE TABLE IF NOT EXISTS llm_usage_rollups (
+    id                BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    bucket_start      TIMESTAMP     NOT NULL,
+    bucket_end        TIMESTAMP     NOT NULL,
+    caller            VARCHAR(40)   NOT NULL,   -- CHAT_V1 / STORY_V2 / THEATER_BATCH / MEMORY_SUMMARY ...
+    model             VARCHAR(120)  NOT NULL,
+    provider          VARCHAR(60)   NOT NULL,   -- google-ai-studio / google-vertex / default
+    room_id           BIGINT,
+    user_id           BIGINT,
+    calls             BIGINT        NOT NULL,
+    prompt_tokens     BIGINT        NOT NULL,
+    completion_tokens BIGINT        NOT NULL,
+    cached_tokens     BIGINT        NOT NULL DEFAULT 0,
+    cost_usd          NUMERIC(14,6) NOT NULL DEFAULT 0
+);
+
+CREATE INDEX IF NOT EXISTS idx_llm_usage_bucket ON llm_usage_rollups (bucket_start);
+CREATE INDEX IF NOT EXISTS idx_llm_usage_user   ON llm_usage_rollups (user_id, bucket_start);
+CREATE INDEX IF NOT EXISTS idx_llm_usage_room   ON llm_usage_rollups (room_id, bucket_start);
@@ -0,0 +1,30 @@
+-- V29 · 장기 기억 계층 압축 (additive·멱등)
+-- MemoryCompactor가 같은 tier 요약 fanout개를 tier+1 요약 1개로 병합한다 (LSM 트리 방식).
+--   tier           : 0 = LLM 요약 원본, n+1 = tier n 병합본. 기존 행은 전부 0.
+--   source_from_id : 병합 행이 대체한 자식 id 범위 (tier 0은 NULL)
+--   source_to_id
+--
+-- 두 테이블 모두 Flyway가 아니라 Hibernate(ddl-auto=update)가 만든 테이블이다.
+-- NOT NULL 컬럼은 DEFAULT 0으로 추가해야 기존 행이 있는 테이블에서 실패하지 않는다.
+--
+-- 부분 유니크 인덱스 — 병합 커밋의 멱등 보장:
+--   같은 자식 구간을 두 인스턴스가 동시에 접으면 두 번째 INSERT가 위반으로 롤백된다
+--   (자식 삭제 건수 검증과 이중 방어). tier 0 행은 source_from_id가 NULL이라 대상 아님.
+
+ALTER TABLE memory_summaries ADD COLUMN IF NOT EXISTS tier           INT    NOT NULL DEFAULT 0;
+ALTER TABLE memory_summaries ADD COLUMN IF NOT EXISTS source_from_id BIGINT;
+ALTER TABLE memory_summaries ADD COLUMN IF NOT EXISTS source_to_id   BIGINT;
+
+CREATE UNIQUE INDEX IF NOT EXISTS uk_memory_compaction
+    ON memory_summaries (room_id, tier, source_from_id) WHERE tier > 0;
+CREATE INDEX IF NOT EXISTS idx_memory_room_turn
+    ON memory_summaries (room_id, turn_number);
+
+ALTER TABLE heroine_memory_summaries ADD COLUMN IF NOT EXISTS tier           INT    NOT NULL DEFAULT 0;
+ALTER TABLE heroine_memory_summaries ADD COLUMN IF NOT EXISTS source_from_id BIGINT;
+ALTER TABLE heroine_memory_summaries ADD COLUMN IF NOT EXISTS source_to_id   BIGINT;
+
+CREATE UNIQUE INDEX IF NOT EXISTS uk_heroine_memory_compaction
+    ON heroine_memory_summaries (room_id, character_id, tier, source_from_id) WHERE tier > 0;
+CREATE INDEX IF NOT EXISTS idx_heroine_memory_room_char_turn
+    ON heroine_memory_summaries (room_id, character_id, turn_number);
@@ -0,0 +1,11 @@
+-- V30 · 장기 기억 요약 구간 기록 (additive·멱등)
+-- SummarizationCoordinator가 워터마크(MAX(turn_number)) 이후 로그 구간 [turn_from, turn_number)만 요약한다.
+--   turn_from : 요약 구간 시작 로그 번호. 기존 행·병합 행은 NULL.
+--
+-- 부분 유니크 인덱스 — 리스 만료 후 두 인스턴스가 같은 구간을 요약해도 두 번째 INSERT가 위반으로 실패한다
+-- (리스·워터마크 재확인에 이은 마지막 방어선). 병합 시 tier 0 행이 삭제돼도 워터마크는 병합 행이 이어받는다.
+
+ALTER TABLE memory_summaries ADD COLUMN IF NOT EXISTS turn_from INT;
+
+CREATE UNIQUE INDEX IF NOT EXISTS uk_memory_summary_window
+    ON memory_summaries (room_id, turn_from) WHERE tier = 0 AND turn_from IS NOT NULL;
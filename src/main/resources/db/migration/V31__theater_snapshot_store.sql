@@ -0,0 +1,32 @@
+-- V31 · 극장 세이브 스냅샷 청크 저장소 (additive·멱등)
+-- TheaterSnapshotStore가 스냅샷을 최상위 필드 단위 청크(내용 해시로 중복 제거) + 델타 매니페스트 체인으로 저장한다.
+--   theater_snapshot_chunks    : (room_id, hash) 유니크 — 슬롯·퀵세이브가 같은 청크를 공유
+--   theater_snapshot_manifests : base_id = 델타의 기준 매니페스트 (NULL = 전체), depth = 체인 길이 (0 = 전체)
+--   theater_save_slots.snapshot_manifest_id : 슬롯이 가리키는 체인 끝. 기존 행은 NULL → snapshot_json 그대로 로드
+-- 새 세이브는 snapshot_json을 비우므로 NOT NULL을 푼다.
+-- (FK 미설정 — V2 이후 신규 테이블 관례. room_id 정합성은 앱 레벨 책임)
+
+CREATE TABLE IF NOT EXISTS theater_snapshot_chunks (
+    id          BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    room_id     BIGINT       NOT NULL,
+    hash        VARCHAR(64)  NOT NULL,   -- SHA-256 hex
+    content     TEXT         NOT NULL,
+    size_bytes  INT          NOT NULL,
+    created_at  TIMESTAMP    NOT NULL
+);
+
+CREATE UNIQUE INDEX IF NOT EXISTS uk_theater_snapshot_chunk ON theater_snapshot_chunks (room_id, hash);
+
+CREATE TABLE IF NOT EXISTS theater_snapshot_manifests (
+    id          BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    room_id     BIGINT       NOT NULL,
+    base_id     BIGINT,
+    depth       INT          NOT NULL,
+    delta_json  TEXT         NOT NULL,
+    created_at  TIMESTAMP    NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_theater_snapshot_manifest_room ON theater_snapshot_manifests (room_id, id);
+
+ALTER TABLE theater_save_slots ADD COLUMN IF NOT EXISTS snapshot_manifest_id BIGINT;
+ALTER TABLE theater_save_slots ALTER COLUMN snapshot_json DROP NOT NULL;
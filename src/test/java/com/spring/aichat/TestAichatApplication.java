@@ -0,0 +1,40 @@
+package com.spring.aichat;
+
+import com.spring.aichat.external.MockOpenRouterServer;
+import org.springframework.boot.SpringApplication;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 목 OpenRouter 내장 실행 진입점 — 과금 없이 채팅 경로를 부하 테스트하기 위한 테스트 클래스패스 전용 앱
+ *
+ * <p>{@link MockOpenRouterServer}를 먼저 띄우고 {@code openai.base-url}을 그 주소로 덮어쓴 뒤
+ * 본 애플리케이션을 그대로 기동한다 (DB/Redis/Mongo는 평소 프로필 설정 사용).
+ * 목 서버가 앱과 같은 JVM이므로 {@code GET /_mock/stats}의 CPU·힙 지표가 곧 서버 측 지표다.
+ *
+ * <pre>
+ * ./gradlew bootTestRun --args='--spring.profiles.active=local,characters,worlds,v2'
+ *   -Dmock.openrouter.port=18080 (기본값)
+ * </pre>
+ */
+public class TestAichatApplication {
+
+    public static void main(String[] args) throws IOException {
+        int port = Integer.getInteger("mock.openrouter.port", 18080);
+        ExecutorService mockExecutor = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "mock-openrouter");
+            t.setDaemon(true);
+            return t;
+        });
+        MockOpenRouterServer mock = new MockOpenRouterServer(mockExecutor, port);
+        System.out.println("🧪 [MOCK-LLM] OpenRouter mock listening on " + mock.baseUrl()
+            + " | control: " + mock.baseUrl() + "/_mock/config, /_mock/stats");
+
+        String[] withMock = Arrays.copyOf(args, args.length + 1);
+        withMock[args.length] = "--openai.base-url=" + mock.baseUrl();
+        SpringApplication.from(AichatApplication::main).run(withMock);
+    }
+}
@@ -0,0 +1,97 @@
+package com.spring.aichat.config;
+
+import com.spring.aichat.domain.enums.ChatMode;
+import com.spring.aichat.service.metrics.ChatTracing;
+import io.micrometer.observation.ObservationRegistry;
+import io.micrometer.tracing.test.simple.SimpleSpan;
+import io.micrometer.tracing.test.simple.SimpleTracer;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.EnableAsync;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * {@link TracingConfig} — 기본 {@code taskExecutor}로 넘어간 @Async 본문의 스팬이 호출 시점 스팬의 자식으로 이어지는지.
+ */
+class TracingConfigTest {
+
+    @Test
+    @DisplayName("전용 Executor 빈이 있어도 기본 @Async는 taskExecutor에서 돌고, 안에서 연 스팬의 부모는 호출 스레드의 스팬")
+    void asyncKeepsParentSpan() throws Exception {
+        try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext(AsyncTestConfig.class)) {
+            SimpleTracer tracer = context.getBean(SimpleTracer.class);
+            ChatTracing tracing = context.getBean(ChatTracing.class);
+            PostProcessor post = context.getBean(PostProcessor.class);
+
+            String parentSpanId;
+            CompletableFuture<String> thread;
+            try (ChatTracing.Span ignored = tracing.start("chat.stream", ChatMode.SANDBOX)) {
+                parentSpanId = tracer.currentSpan().context().spanId();
+                thread = post.run();
+            }
+
+            assertTrue(thread.get(5, TimeUnit.SECONDS).startsWith("async-"), "기본 @Async = taskExecutor");
+            SimpleSpan child = tracer.getSpans().stream()
+                .filter(s -> "chat.post".equals(s.getName()))
+                .findFirst().orElseThrow();
+            assertEquals(parentSpanId, child.context().parentId());
+        }
+    }
+
+    @Configuration
+    @EnableAsync
+    @Import(TracingConfig.class)
+    static class AsyncTestConfig {
+
+        @Bean
+        SimpleTracer tracer() {
+            return new SimpleTracer();
+        }
+
+        @Bean
+        ObservationRegistry observationRegistry() {
+            return ObservationRegistry.create();
+        }
+
+        @Bean
+        ChatTracing chatTracing(SimpleTracer tracer) {
+            return new ChatTracing(tracer);
+        }
+
+        /** 전용 풀이 하나라도 있으면 Boot 기본 풀이 물러난다 — 그 상태를 재현 */
+        @Bean(name = "sceneRenderExecutor")
+        Executor sceneRenderExecutor() {
+            return Runnable::run;
+        }
+
+        @Bean
+        PostProcessor postProcessor(ChatTracing tracing) {
+            return new PostProcessor(tracing);
+        }
+    }
+
+    /** 채팅 후처리(@Async)를 흉내 — 본문에서 스팬을 열고 실행 스레드 이름을 돌려준다 */
+    static class PostProcessor {
+        private final ChatTracing tracing;
+
+        PostProcessor(ChatTracing tracing) {
+            this.tracing = tracing;
+        }
+
+        @Async
+        public CompletableFuture<String> run() {
+            tracing.runInSpan("chat.post", null, () -> { });
+            return CompletableFuture.completedFuture(Thread.currentThread().getName());
+        }
+    }
+}
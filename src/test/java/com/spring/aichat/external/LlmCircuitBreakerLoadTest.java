@@ -0,0 +1,123 @@
+package com.spring.aichat.external;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.spring.aichat.config.OpenAiProperties;
+import com.spring.aichat.dto.openai.OpenAiChatRequest;
+import com.spring.aichat.dto.openai.OpenAiMessage;
+import com.spring.aichat.service.metering.LlmUsageMeter;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+/**
+ * 서킷 브레이커 폴백 부하 검증 — 앱 기동 없이 실제 {@link OpenRouterStreamClient} + {@link MockOpenRouterServer}
+ *
+ * <p>ChatStreamService와 같은 경로(decide → {@link LlmHedgedStreamer})를 동시 요청 웨이브로 재현한다.
+ * AI Studio만 TTFT 2.5초(> CLOSED 데드라인 2초)로 늦춘다.
+ * <ul>
+ *   <li>1차 웨이브: 전부 AI Studio 시도 → 워치독 중단(또는 헤지 승리) → Vertex 응답 성공, 서킷 OPEN</li>
+ *   <li>이후 웨이브: 서킷 OPEN이므로 AI Studio를 건드리지 않고 Vertex 직행</li>
+ * </ul>
+ */
+@Tag("load")
+class LlmCircuitBreakerLoadTest {
+
+    private static final int WAVE = 50;
+    private static final int WAVES = 4;
+
+    @Test
+    @DisplayName("AI Studio 지연 주입 — 동시 200건 전부 성공, 서킷 OPEN 후 Vertex 직행")
+    void fallbackUnderConcurrentLoad() throws Exception {
+        runWaves(false);
+    }
+
+    @Test
+    @DisplayName("[Hedge] AI Studio 지연 주입 — 헤지가 승리해 데드라인 대기 없이 응답, 서킷 OPEN 후 헤지 중단")
+    void hedgeUnderConcurrentLoad() throws Exception {
+        LlmCircuitBreaker.HedgeStats hedge = runWaves(true);
+
+        assertEquals(WAVE, hedge.launched(), "1차 웨이브만 헤지를 발사해야 한다");
+        assertEquals(WAVE, hedge.won());
+        assertTrue(hedge.wastedPromptTokens() > 0, "취소된 AI Studio 요청 비용이 추정돼야 한다");
+    }
+
+    private LlmCircuitBreaker.HedgeStats runWaves(boolean hedging) throws Exception {
+        ExecutorService serverExecutor = Executors.newCachedThreadPool();
+        ExecutorService clients = Executors.newFixedThreadPool(WAVE);
+
+        try (MockOpenRouterServer server = new MockOpenRouterServer(serverExecutor)
+                 .ttft(100)
+                 .interTokenDelay(2)
+                 .providerTtft(LlmCircuitBreaker.PROVIDER_AI_STUDIO, 2_500)) {
+
+            LlmUsageMeter meter = mock(LlmUsageMeter.class);
+            OpenRouterStreamClient client = new OpenRouterStreamClient(
+                new OpenAiProperties("test-key", server.baseUrl(), "mock/model", null, null, "http://test", "load-test"),
+                new ObjectMapper(), meter);
+            LlmCircuitBreaker breaker = new LlmCircuitBreaker();
+            ReflectionTestUtils.setField(breaker, "hedgeEnabled", hedging);
+            LlmHedgedStreamer streamer = new LlmHedgedStreamer(client, breaker, meter);
+            String expected = server.recordingOf(MockOpenRouterServer.CHAT_V1).content();
+
+            AtomicInteger succeeded = new AtomicInteger();
+            AtomicLong firstWaveMaxMs = new AtomicLong();
+            try {
+                for (int w = 0; w < WAVES; w++) {
+                    boolean firstWave = w == 0;
+                    List<Future<?>> futures = new ArrayList<>();
+                    for (int i = 0; i < WAVE; i++) {
+                        futures.add(clients.submit(() -> {
+                            long start = System.currentTimeMillis();
+                            String text = streamer.stream(breaker.decide(), LlmCircuitBreakerLoadTest::request,
+                                null, null).fullResponse();
+                            if (firstWave) firstWaveMaxMs.accumulateAndGet(System.currentTimeMillis() - start, Math::max);
+                            if (expected.equals(text)) succeeded.incrementAndGet();
+                            return null;
+                        }));
+                    }
+                    for (Future<?> f : futures) f.get(60, TimeUnit.SECONDS);
+                }
+            } finally {
+                streamer.shutdown();
+            }
+
+            System.out.printf("[LOAD] hedging=%s first-wave max=%dms | %s | ai-studio=%d vertex=%d | 502=%d%n",
+                hedging, firstWaveMaxMs.get(), breaker.getStatusSummary(),
+                server.requestsFor(LlmCircuitBreaker.PROVIDER_AI_STUDIO),
+                server.requestsFor(LlmCircuitBreaker.PROVIDER_VERTEX), server.responsesWithStatus(502));
+
+            assertEquals(WAVE * WAVES, succeeded.get(), "모든 요청이 폴백 포함 성공해야 한다");
+            assertEquals(LlmCircuitBreaker.State.OPEN, breaker.getState());
+            assertEquals(WAVE, server.requestsFor(LlmCircuitBreaker.PROVIDER_AI_STUDIO),
+                "서킷 OPEN 이후엔 AI Studio를 시도하지 않아야 한다");
+            assertEquals(WAVE * WAVES, server.requestsFor(LlmCircuitBreaker.PROVIDER_VERTEX));
+            if (hedging) {
+                assertTrue(firstWaveMaxMs.get() < LlmCircuitBreaker.TTFT_DEADLINE_CLOSED_MS,
+                    "헤지는 TTFT 데드라인까지 기다리지 않아야 한다: " + firstWaveMaxMs.get() + "ms");
+            }
+            return breaker.getHedgeStats();
+        } finally {
+            clients.shutdownNow();
+            serverExecutor.shutdownNow();
+        }
+    }
+
+    private static OpenAiChatRequest request(String provider) {
+        return new OpenAiChatRequest("mock/model", List.of(OpenAiMessage.system("load")), 0.8, true, 0.3, 0.15,
+            Map.of("order", List.of(provider), "allow_fallbacks", false), Map.of("type", "json_object"), 6144);
+    }
+}
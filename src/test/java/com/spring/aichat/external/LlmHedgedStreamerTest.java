@@ -0,0 +1,260 @@
+package com.spring.aichat.external;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.spring.aichat.config.OpenAiProperties;
+import com.spring.aichat.dto.openai.OpenAiChatRequest;
+import com.spring.aichat.dto.openai.OpenAiUsage;
+import com.spring.aichat.external.LlmCircuitBreaker.ProviderDecision;
+import com.spring.aichat.external.OpenRouterStreamClient.StreamCancelledException;
+import com.spring.aichat.external.OpenRouterStreamClient.StreamControl;
+import com.spring.aichat.external.OpenRouterStreamClient.StreamResult;
+import com.spring.aichat.service.metering.LlmUsageMeter;
+import com.spring.aichat.service.metrics.ChatTracing;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * {@link LlmHedgedStreamer} — 지연 헤지 경쟁: 어느 레그가 이기는지, 진 쪽 취소, 게이트 단일 점유, 헤지 풀 포화 시 폴백.
+ * 스트림 클라이언트는 provider(= 요청 model)별 스크립트로 첫 토큰 시점만 흉내 낸다.
+ */
+class LlmHedgedStreamerTest {
+
+    private static final String AI_STUDIO = LlmCircuitBreaker.PROVIDER_AI_STUDIO;
+    private static final String VERTEX = LlmCircuitBreaker.PROVIDER_VERTEX;
+    private static final long PROMPT_TOKENS = 1_000;
+
+    private final FakeStreamClient client = new FakeStreamClient();
+    private final RecordingMeter meter = new RecordingMeter();
+    private final LlmCircuitBreaker breaker = new LlmCircuitBreaker();
+    private LlmHedgedStreamer streamer;
+
+    @AfterEach
+    void tearDown() {
+        if (streamer != null) streamer.shutdown();
+    }
+
+    @Test
+    @DisplayName("primary가 헤지 지연 전에 첫 토큰을 내면 헤지는 발사되지 않고 primary TTFT만 표본에 들어간다")
+    void primaryWinsBeforeDelay() throws IOException {
+        hedging(500, 1);
+        client.script(AI_STUDIO, Leg.firstTokenAfter(0));
+        client.script(VERTEX, Leg.firstTokenAfter(0));
+
+        StreamResult result = stream();
+
+        assertEquals(AI_STUDIO, result.fullResponse());
+        assertEquals(List.of(AI_STUDIO), client.started);
+        assertEquals(0, breaker.getHedgeStats().launched());
+        assertTrue(breaker.ttftPercentile(90) >= 0);
+        assertTrue(meter.recorded.isEmpty(), "진 쪽이 없으면 낭비 기록도 없다");
+    }
+
+    @Test
+    @DisplayName("헤지가 먼저 첫 토큰을 내면 primary는 즉시 취소되고, 낭비 토큰은 기록하되 TTFT 표본에는 아무것도 넣지 않는다")
+    void hedgeWinsCancelsPrimary() throws IOException {
+        hedging(50, 1);
+        client.script(AI_STUDIO, Leg.firstTokenAfter(10_000));
+        client.script(VERTEX, Leg.firstTokenAfter(0));
+        AtomicInteger scenes = new AtomicInteger();
+
+        long start = System.currentTimeMillis();
+        StreamResult result = streamer.stream(ProviderDecision.primary(AI_STUDIO, 10_000), this::request,
+            (i, s) -> scenes.incrementAndGet(), null);
+
+        assertEquals(VERTEX, result.fullResponse());
+        assertTrue(System.currentTimeMillis() - start < 5_000, "primary 취소가 대기를 끊어야 한다");
+        assertEquals(List.of(AI_STUDIO), client.cancelled);
+        assertEquals(1, scenes.get(), "씬 콜백은 승자만");
+
+        LlmCircuitBreaker.HedgeStats stats = breaker.getHedgeStats();
+        assertEquals(1, stats.launched());
+        assertEquals(1, stats.won());
+        assertEquals(PROMPT_TOKENS, stats.wastedPromptTokens());
+        assertEquals(-1, breaker.ttftPercentile(90), "진 primary의 경과 시간은 TTFT 표본이 아니다");
+        assertEquals(List.of(AI_STUDIO + ":" + PROMPT_TOKENS), meter.recorded);
+    }
+
+    @Test
+    @DisplayName("두 레그가 동시에 첫 토큰에 닿아도 게이트는 정확히 한 쪽만 차지하고 씬은 한 번만 나간다")
+    void singleClaimUnderRace() throws IOException {
+        hedging(0, 20);
+        CyclicBarrier firstToken = new CyclicBarrier(2);
+        client.script(AI_STUDIO, Leg.atBarrier(firstToken));
+        client.script(VERTEX, Leg.atBarrier(firstToken));
+        int rounds = 200;
+        AtomicInteger scenes = new AtomicInteger();
+
+        for (int i = 0; i < rounds; i++) {
+            int before = scenes.get();
+            StreamResult result = streamer.stream(ProviderDecision.primary(AI_STUDIO, 10_000), this::request,
+                (idx, s) -> scenes.incrementAndGet(), null);
+            assertEquals(before + 1, scenes.get(), "round " + i);
+            assertTrue(result.fullResponse().equals(AI_STUDIO) || result.fullResponse().equals(VERTEX));
+        }
+
+        LlmCircuitBreaker.HedgeStats stats = breaker.getHedgeStats();
+        assertEquals(rounds, stats.launched());
+        assertEquals(rounds, stats.won() + stats.lost(), "매 라운드 승패가 정확히 한 번 기록");
+        // primary가 이긴 라운드의 헤지 레그는 반환 뒤 헤지 스레드에서 끝난다
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (client.cancelled.size() < rounds && System.currentTimeMillis() < deadline) Thread.onSpinWait();
+        assertEquals(rounds, client.cancelled.size(), "매 라운드 진 쪽 하나만 취소");
+    }
+
+    @Test
+    @DisplayName("primary가 첫 토큰 전에 실패하면 헤지 지연을 기다리지 않고 Vertex를 바로 띄운다 (헤지 승패에는 넣지 않는다)")
+    void primaryFailureLaunchesFallbackImmediately() throws IOException {
+        hedging(10_000, 1);
+        client.script(AI_STUDIO, Leg.failing(new IOException("503")));
+        client.script(VERTEX, Leg.firstTokenAfter(0));
+
+        long start = System.currentTimeMillis();
+        StreamResult result = stream();
+
+        assertEquals(VERTEX, result.fullResponse());
+        assertTrue(System.currentTimeMillis() - start < 5_000);
+        LlmCircuitBreaker.HedgeStats stats = breaker.getHedgeStats();
+        assertEquals(0, stats.launched());
+        assertEquals(0, stats.won());
+        assertEquals(-1, breaker.ttftPercentile(90));
+    }
+
+    @Test
+    @DisplayName("헤지 스레드가 상한까지 차 있으면 헤지 없이 중단 후 재시도로 처리하고 거부 수를 센다")
+    void saturatedPoolFallsBackToRetry() throws Exception {
+        ReflectionTestUtils.setField(breaker, "hedgeEnabled", true);
+        streamer = new LlmHedgedStreamer(client, breaker, meter, ChatTracing.noop(), 1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch occupied = new CountDownLatch(1);
+        streamer.getHedgeExecutor().execute(() -> {
+            occupied.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertTrue(occupied.await(5, TimeUnit.SECONDS));
+        client.script(AI_STUDIO, Leg.firstTokenAfter(0));
+
+        try {
+            StreamResult result = stream();
+            assertEquals(AI_STUDIO, result.fullResponse());
+            assertEquals(1, streamer.getHedgeRejectedCount());
+            assertEquals(List.of(AI_STUDIO), client.started);
+        } finally {
+            release.countDown();
+        }
+    }
+
+    private void hedging(long delayMs, int minSamples) {
+        ReflectionTestUtils.setField(breaker, "hedgeEnabled", true);
+        ReflectionTestUtils.setField(breaker, "hedgeMinSamples", minSamples);
+        ReflectionTestUtils.setField(breaker, "hedgeMinDelayMs", 0L);
+        ReflectionTestUtils.setField(breaker, "hedgeDefaultDelayMs", delayMs);
+        streamer = new LlmHedgedStreamer(client, breaker, meter);
+    }
+
+    private StreamResult stream() throws IOException {
+        return streamer.stream(ProviderDecision.primary(AI_STUDIO, 10_000), this::request, null, null);
+    }
+
+    /** provider 이름을 model에 실어 가짜 클라이언트가 레그를 구분한다 */
+    private OpenAiChatRequest request(String provider) {
+        return new OpenAiChatRequest(provider, List.of(), 0.7);
+    }
+
+    /** 레그 스크립트 — firstTokenMs 뒤 첫 토큰 (barrier가 있으면 대신 barrier에서 만남), failure면 첫 토큰 전 실패 */
+    private record Leg(long firstTokenMs, CyclicBarrier barrier, IOException failure) {
+        static Leg firstTokenAfter(long ms) {
+            return new Leg(ms, null, null);
+        }
+
+        static Leg atBarrier(CyclicBarrier barrier) {
+            return new Leg(0, barrier, null);
+        }
+
+        static Leg failing(IOException failure) {
+            return new Leg(0, null, failure);
+        }
+    }
+
+    private static final class FakeStreamClient extends OpenRouterStreamClient {
+        final Map<String, Leg> scripts = new ConcurrentHashMap<>();
+        final List<String> started = new CopyOnWriteArrayList<>();
+        final List<String> cancelled = new CopyOnWriteArrayList<>();
+
+        FakeStreamClient() {
+            super(new OpenAiProperties("test-key", "http://localhost", "mock/model", null, null, "http://test", "test"),
+                new ObjectMapper(), null);
+        }
+
+        void script(String provider, Leg leg) {
+            scripts.put(provider, leg);
+        }
+
+        @Override
+        public StreamResult streamScenes(OpenAiChatRequest request, BiConsumer<Integer, String> onScene,
+                                         Consumer<String> onEventStatus, long ttftDeadlineMs,
+                                         StreamControl control) throws IOException {
+            String provider = request.model();
+            Leg leg = scripts.get(provider);
+            started.add(provider);
+            long start = System.currentTimeMillis();
+            CountDownLatch cancel = new CountDownLatch(1);
+            control.bind(cancel::countDown);
+            try {
+                if (cancel.await(leg.firstTokenMs(), TimeUnit.MILLISECONDS)) throw cancelled(provider);
+                if (leg.failure() != null) throw leg.failure();
+                if (leg.barrier() != null) leg.barrier().await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw cancelled(provider);
+            } catch (Exception e) {
+                if (e instanceof IOException io) throw io;
+                if (e instanceof RuntimeException re) throw re;
+                throw new IllegalStateException(e);
+            }
+            if (!control.tryFirstToken()) throw cancelled(provider);
+            if (onScene != null) onScene.accept(0, "{}");
+            long ttft = System.currentTimeMillis() - start;
+            return new StreamResult(provider, "{}", ttft, ttft, 1,
+                new OpenAiUsage(PROMPT_TOKENS, 10, PROMPT_TOKENS + 10, null, null));
+        }
+
+        private StreamCancelledException cancelled(String provider) {
+            cancelled.add(provider);
+            return new StreamCancelledException();
+        }
+    }
+
+    /** 진 레그 낭비 기록만 남긴다 ("provider:promptTokens") */
+    private static final class RecordingMeter extends LlmUsageMeter {
+        final List<String> recorded = new CopyOnWriteArrayList<>();
+
+        RecordingMeter() {
+            super(null);
+        }
+
+        @Override
+        public void record(String model, String provider, OpenAiUsage usage) {
+            recorded.add(provider + ":" + (usage != null ? usage.promptTokens() : 0));
+        }
+    }
+}
@@ -0,0 +1,377 @@
+package com.spring.aichat.external;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 테스트용 OpenRouter {@code /chat/completions} 목 서버 (JDK 내장 HttpServer)
+ *
+ * <p>{@code src/test/resources/mock-openrouter/*.sse}에 녹화된 실제 형식의 SSE 스트림을 그대로 재생한다.
+ * 녹화본 선택: 요청 본문에 {@code "system_updates"}가 있으면 {@code story-v2}(V2 디렉터 프롬프트), 아니면 {@code chat-v1}.
+ *
+ * <p>노브 ({@link Knobs}, 실행 중 {@code POST /_mock/config}로 변경 가능):
+ * <ul>
+ *   <li>{@code ttftMs} — 첫 청크 전 지연</li>
+ *   <li>{@code interTokenDelayMs} — 청크 간 지연</li>
+ *   <li>{@code error5xxRate} / {@code error429Rate} — 요청 단위 오류 주입 확률 (0~1)</li>
+ *   <li>{@code providerTtftMs} — 라우팅 provider({@code provider.order[0]})별 추가 TTFT
+ *       (예: {@code google-ai-studio: 2500} → 서킷 브레이커 TTFT 데드라인 초과 재현)</li>
+ *   <li>{@code recording} — {@code auto} 또는 녹화본 이름 고정</li>
+ * </ul>
+ * {@code GET /_mock/stats}는 provider·상태별 요청 수와 이 JVM의 CPU 시간·힙 사용량을 돌려준다
+ * ({@code TestAichatApplication}으로 앱과 같은 JVM에서 띄우면 곧 서버 측 자원 지표).
+ */
+public class MockOpenRouterServer implements AutoCloseable {
+
+    public static final String CHAT_V1 = "chat-v1";
+    public static final String STORY_V2 = "story-v2";
+    private static final String AUTO = "auto";
+    private static final String V2_MARKER = "system_updates";
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    /**
+     * @param ttftMs            첫 청크 전 지연
+     * @param interTokenDelayMs 청크 간 지연
+     * @param error5xxRate      502 응답 확률
+     * @param error429Rate      429 응답 확률
+     * @param providerTtftMs    provider별 추가 TTFT
+     * @param recording         {@code auto} 또는 녹화본 이름
+     */
+    public record Knobs(long ttftMs, long interTokenDelayMs, double error5xxRate, double error429Rate,
+                        Map<String, Long> providerTtftMs, String recording) {
+
+        public static Knobs defaults() {
+            return new Knobs(300, 15, 0, 0, Map.of(), AUTO);
+        }
+    }
+
+    /** 녹화본 1개 — 재생할 data 페이로드 목록과, 검증용으로 이어 붙인 content */
+    public record Recording(String name, List<String> payloads, String content, int sceneCount) {}
+
+    private final HttpServer server;
+    private final Map<String, Recording> recordings = new LinkedHashMap<>();
+    private volatile Knobs knobs = Knobs.defaults();
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger peakInFlight = new AtomicInteger();
+    private final AtomicInteger completed = new AtomicInteger();
+    private final ConcurrentHashMap<String, LongAdder> requestsByProvider = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, LongAdder> responsesByStatus = new ConcurrentHashMap<>();
+
+    private volatile CountDownLatch concurrencyGate;
+    private volatile long gateTimeoutMs;
+
+    public MockOpenRouterServer(Executor handlerExecutor) throws IOException {
+        this(handlerExecutor, 0);
+    }
+
+    public MockOpenRouterServer(Executor handlerExecutor, int port) throws IOException {
+        recordings.put(CHAT_V1, loadRecording(CHAT_V1));
+        recordings.put(STORY_V2, loadRecording(STORY_V2));
+
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 4096);
+        server.createContext("/chat/completions", this::handleCompletion);
+        server.createContext("/_mock/config", this::handleConfig);
+        server.createContext("/_mock/stats", this::handleStats);
+        server.createContext("/_mock/reset", this::handleReset);
+        server.setExecutor(handlerExecutor);
+        server.start();
+    }
+
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+    //  노브 (플루언트)
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+
+    public MockOpenRouterServer knobs(Knobs knobs) {
+        this.knobs = knobs;
+        return this;
+    }
+
+    public Knobs knobs() {
+        return knobs;
+    }
+
+    public MockOpenRouterServer ttft(long ttftMs) {
+        Knobs k = knobs;
+        return knobs(new Knobs(ttftMs, k.interTokenDelayMs(), k.error5xxRate(), k.error429Rate(), k.providerTtftMs(), k.recording()));
+    }
+
+    public MockOpenRouterServer interTokenDelay(long delayMs) {
+        Knobs k = knobs;
+        return knobs(new Knobs(k.ttftMs(), delayMs, k.error5xxRate(), k.error429Rate(), k.providerTtftMs(), k.recording()));
+    }
+
+    public MockOpenRouterServer errors(double rate5xx, double rate429) {
+        Knobs k = knobs;
+        return knobs(new Knobs(k.ttftMs(), k.interTokenDelayMs(), rate5xx, rate429, k.providerTtftMs(), k.recording()));
+    }
+
+    public MockOpenRouterServer providerTtft(String provider, long extraTtftMs) {
+        Knobs k = knobs;
+        Map<String, Long> slow = new LinkedHashMap<>(k.providerTtftMs());
+        slow.put(provider, extraTtftMs);
+        return knobs(new Knobs(k.ttftMs(), k.interTokenDelayMs(), k.error5xxRate(), k.error429Rate(), Map.copyOf(slow), k.recording()));
+    }
+
+    public MockOpenRouterServer recording(String name) {
+        Knobs k = knobs;
+        return knobs(new Knobs(k.ttftMs(), k.interTokenDelayMs(), k.error5xxRate(), k.error429Rate(), k.providerTtftMs(), name));
+    }
+
+    /** 동시 접속이 {@code streams}에 도달할 때까지 첫 청크를 보류 (동시성 검증용) */
+    public MockOpenRouterServer holdUntilConcurrent(int streams, long timeoutMs) {
+        this.concurrencyGate = new CountDownLatch(streams);
+        this.gateTimeoutMs = timeoutMs;
+        return this;
+    }
+
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+    //  조회
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+
+    public String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    public Recording recordingOf(String name) {
+        return recordings.get(name);
+    }
+
+    public int peakInFlight() {
+        return peakInFlight.get();
+    }
+
+    public int completedStreams() {
+        return completed.get();
+    }
+
+    public long requestsFor(String provider) {
+        LongAdder c = requestsByProvider.get(provider);
+        return c != null ? c.sum() : 0;
+    }
+
+    public long responsesWithStatus(int status) {
+        LongAdder c = responsesByStatus.get(status);
+        return c != null ? c.sum() : 0;
+    }
+
+    public void resetStats() {
+        peakInFlight.set(inFlight.get());
+        completed.set(0);
+        requestsByProvider.clear();
+        responsesByStatus.clear();
+    }
+
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+    //  /chat/completions
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+
+    private void handleCompletion(HttpExchange exchange) throws IOException {
+        int now = inFlight.incrementAndGet();
+        peakInFlight.accumulateAndGet(now, Math::max);
+        Knobs k = knobs;
+        try {
+            String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+            String provider = routedProvider(body);
+            requestsByProvider.computeIfAbsent(provider, p -> new LongAdder()).increment();
+
+            double roll = ThreadLocalRandom.current().nextDouble();
+            if (roll < k.error5xxRate()) {
+                respondError(exchange, 502, "{\"error\":{\"code\":502,\"message\":\"mock upstream error\"}}");
+                return;
+            }
+            if (roll < k.error5xxRate() + k.error429Rate()) {
+                exchange.getResponseHeaders().add("Retry-After", "1");
+                respondError(exchange, 429, "{\"error\":{\"code\":429,\"message\":\"mock rate limited\"}}");
+                return;
+            }
+
+            Recording recording = select(k.recording(), body);
+            exchange.getResponseHeaders().add("Content-Type", "text/event-stream");
+            exchange.sendResponseHeaders(200, 0);
+            count(200);
+            OutputStream out = exchange.getResponseBody();
+            // OpenRouter는 프로바이더 대기 중 주석 라인을 keep-alive로 보낸다
+            writeLine(out, ": OPENROUTER PROCESSING\n\n");
+
+            CountDownLatch gate = concurrencyGate;
+            if (gate != null) {
+                gate.countDown();
+                gate.await(gateTimeoutMs, TimeUnit.MILLISECONDS);
+            }
+            sleep(k.ttftMs() + k.providerTtftMs().getOrDefault(provider, 0L));
+
+            for (String payload : recording.payloads()) {
+                writeLine(out, "data: " + payload + "\n\n");
+                sleep(k.interTokenDelayMs());
+            }
+            writeLine(out, "data: [DONE]\n\n");
+            completed.incrementAndGet();
+        } catch (IOException e) {
+            // 클라이언트(TTFT 워치독 등)가 먼저 끊은 경우 — 정상 시나리오
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            exchange.close();
+            inFlight.decrementAndGet();
+        }
+    }
+
+    private Recording select(String name, String body) {
+        if (name == null || AUTO.equals(name)) {
+            return recordings.get(body.contains(V2_MARKER) ? STORY_V2 : CHAT_V1);
+        }
+        Recording r = recordings.get(name);
+        return r != null ? r : recordings.get(CHAT_V1);
+    }
+
+    private static String routedProvider(String body) {
+        try {
+            JsonNode order = MAPPER.readTree(body).path("provider").path("order");
+            if (order.isArray() && !order.isEmpty()) return order.get(0).asText();
+        } catch (Exception ignored) {
+        }
+        return "default";
+    }
+
+    private void respondError(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+        count(status);
+    }
+
+    private void count(int status) {
+        responsesByStatus.computeIfAbsent(status, s -> new LongAdder()).increment();
+    }
+
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+    //  /_mock 제어
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+
+    /** GET: 현재 노브, POST: 본문에 있는 필드만 갱신 (부분 업데이트) */
+    private void handleConfig(HttpExchange exchange) throws IOException {
+        try {
+            if ("POST".equals(exchange.getRequestMethod())) {
+                JsonNode patch = MAPPER.readTree(exchange.getRequestBody());
+                ObjectNode merged = MAPPER.valueToTree(knobs);
+                patch.fields().forEachRemaining(e -> merged.set(e.getKey(), e.getValue()));
+                knobs = MAPPER.treeToValue(merged, Knobs.class);
+            }
+            respondJson(exchange, MAPPER.writeValueAsBytes(knobs));
+        } catch (Exception e) {
+            respondError(exchange, 400, "{\"error\":\"" + e.getMessage().replace("\"", "'") + "\"}");
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void handleStats(HttpExchange exchange) throws IOException {
+        try {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("inFlight", inFlight.get());
+            stats.put("peakInFlight", peakInFlight.get());
+            stats.put("completed", completed.get());
+            Map<String, Long> byProvider = new LinkedHashMap<>();
+            requestsByProvider.forEach((p, c) -> byProvider.put(p, c.sum()));
+            stats.put("requestsByProvider", byProvider);
+            Map<String, Long> byStatus = new LinkedHashMap<>();
+            responsesByStatus.forEach((s, c) -> byStatus.put(String.valueOf(s), c.sum()));
+            stats.put("responsesByStatus", byStatus);
+            stats.putAll(jvmStats());
+            respondJson(exchange, MAPPER.writeValueAsBytes(stats));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void handleReset(HttpExchange exchange) throws IOException {
+        try {
+            knobs = Knobs.defaults();
+            concurrencyGate = null;
+            resetStats();
+            respondJson(exchange, MAPPER.writeValueAsBytes(knobs));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /** 이 JVM의 누적 CPU 시간(ms)·힙 사용량(bytes)·라이브 스레드 수 */
+    public static Map<String, Object> jvmStats() {
+        Map<String, Object> jvm = new LinkedHashMap<>();
+        if (ManagementFactory.getOperatingSystemMXBean() instanceof com.sun.management.OperatingSystemMXBean os) {
+            jvm.put("processCpuTimeMs", TimeUnit.NANOSECONDS.toMillis(os.getProcessCpuTime()));
+            jvm.put("availableProcessors", os.getAvailableProcessors());
+        }
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        jvm.put("heapUsedBytes", memory.getHeapMemoryUsage().getUsed());
+        jvm.put("liveThreads", ManagementFactory.getThreadMXBean().getThreadCount());
+        return jvm;
+    }
+
+    private static void respondJson(HttpExchange exchange, byte[] bytes) throws IOException {
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, bytes.length);
+        exchange.getResponseBody().write(bytes);
+    }
+
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+    //  녹화본 로드
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+
+    private static Recording loadRecording(String name) throws IOException {
+        String resource = "/mock-openrouter/" + name + ".sse";
+        try (InputStream in = MockOpenRouterServer.class.getResourceAsStream(resource)) {
+            if (in == null) throw new IOException("recording not found: " + resource);
+            List<String> payloads = new ArrayList<>();
+            StringBuilder content = new StringBuilder();
+            for (String line : new String(in.readAllBytes(), StandardCharsets.UTF_8).split("\n")) {
+                if (!line.startsWith("data:")) continue;
+                String payload = line.substring(5).trim();
+                if (payload.isEmpty() || "[DONE]".equals(payload)) continue;
+                payloads.add(payload);
+                content.append(MAPPER.readTree(payload).path("choices").path(0).path("delta").path("content").asText(""));
+            }
+            int scenes = MAPPER.readTree(content.toString()).path("scenes").size();
+            return new Recording(name, List.copyOf(payloads), content.toString(), scenes);
+        }
+    }
+
+    private static void writeLine(OutputStream out, String line) throws IOException {
+        out.write(line.getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    private static void sleep(long ms) throws InterruptedException {
+        if (ms > 0) Thread.sleep(ms);
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}
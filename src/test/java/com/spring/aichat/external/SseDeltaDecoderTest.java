@@ -0,0 +1,141 @@
+package com.spring.aichat.external;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.spring.aichat.dto.openai.OpenAiUsage;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * {@link SseDeltaDecoder} — SSE 라인 분할 · CRLF · [DONE] · 형식 오류 복구 · 파서 재사용 · usage 수집.
+ */
+class SseDeltaDecoderTest {
+
+    private final JsonFactory jsonFactory = new JsonFactory();
+
+    @Test
+    @DisplayName("read() 경계가 이벤트 · 멀티바이트 문자 중간에 걸려도 content를 순서대로 복원한다")
+    void eventsSplitAcrossReads() throws IOException {
+        String stream = delta("안녕") + delta("하세요, ") + delta("\\\"세계\\\"") + "data: [DONE]\n\n";
+
+        for (int chunk : new int[]{1, 3, 7, 64}) {
+            SseDeltaDecoder decoder = new SseDeltaDecoder(jsonFactory);
+            assertEquals("안녕하세요, \"세계\"", readAll(decoder, trickle(stream, chunk)), "chunk=" + chunk);
+            assertEquals(3, decoder.getChunkCount());
+        }
+    }
+
+    @Test
+    @DisplayName("CRLF 줄바꿈 · 주석 · event 라인 · data: 뒤 공백 유무를 모두 처리한다")
+    void crlfAndNonDataLines() throws IOException {
+        String stream = ": OPENROUTER PROCESSING\r\n\r\n"
+            + "event: message\r\n"
+            + "data:{\"choices\":[{\"delta\":{\"content\":\"a\"}}]}\r\n\r\n"
+            + "data:   {\"choices\":[{\"delta\":{\"content\":\"b\"}}]}  \r\n\r\n"
+            + "data: [DONE]\r\n\r\n";
+        SseDeltaDecoder decoder = new SseDeltaDecoder(jsonFactory);
+
+        assertEquals("ab", readAll(decoder, trickle(stream, 5)));
+        assertEquals(0, decoder.getMalformedCount());
+    }
+
+    @Test
+    @DisplayName("[DONE] 이후의 data는 읽지 않는다")
+    void stopsAtDone() throws IOException {
+        String stream = delta("a") + "data: [DONE]\n\n" + delta("b");
+        SseDeltaDecoder decoder = new SseDeltaDecoder(jsonFactory);
+        InputStream in = trickle(stream, 4);
+
+        assertEquals("a", readAll(decoder, in));
+        assertFalse(decoder.readNext(in, (c, o, l) -> fail("read past [DONE]")));
+    }
+
+    @Test
+    @DisplayName("잘린 청크 · 배열 청크는 세고 건너뛰며, 다음 청크는 새 파서로 정상 디코드한다")
+    void recoversAfterMalformedChunk() throws IOException {
+        String stream = delta("a")
+            + "data: {\"choices\":[{\"delta\":{\"content\":\"trunc\n\n"
+            + "data: [1,2]\n\n"
+            + delta("b") + delta("c") + "data: [DONE]\n\n";
+        SseDeltaDecoder decoder = new SseDeltaDecoder(jsonFactory);
+
+        assertEquals("abc", readAll(decoder, trickle(stream, 9)));
+        assertEquals(2, decoder.getMalformedCount());
+        assertEquals(5, decoder.getChunkCount());
+    }
+
+    @Test
+    @DisplayName("파서 1개로 여러 청크 · 여러 입력 스트림을 이어서 디코드하고, 8KB를 넘는 라인도 처리한다")
+    void reusesParserAcrossStreams() throws IOException {
+        SseDeltaDecoder decoder = new SseDeltaDecoder(jsonFactory);
+        String big = "가".repeat(5_000);  // 15KB — 라인 버퍼 확장
+
+        assertEquals("xy", readAll(decoder, trickle(delta("x") + delta("y"), 6)));
+        assertEquals(big + "z", readAll(decoder, trickle(delta(big) + delta("z") + "data: [DONE]\n\n", 1000)));
+        assertEquals(4, decoder.getChunkCount());
+        assertEquals(0, decoder.getMalformedCount());
+        decoder.close();
+    }
+
+    @Test
+    @DisplayName("마지막 청크의 usage · finish_reason을 읽고, 모르는 필드와 두 번째 choice는 건너뛴다")
+    void capturesUsage() throws IOException {
+        String stream = "data: {\"id\":\"gen-1\",\"provider\":\"Google\",\"choices\":["
+            + "{\"index\":0,\"delta\":{\"role\":\"assistant\",\"content\":\"끝\",\"tool_calls\":[{\"x\":[1,{}]}]}},"
+            + "{\"index\":1,\"delta\":{\"content\":\"무시\"}}]}\n\n"
+            + "data: {\"choices\":[{\"delta\":{},\"finish_reason\":\"stop\"}],"
+            + "\"usage\":{\"prompt_tokens\":5120,\"completion_tokens\":812,\"total_tokens\":5932,"
+            + "\"prompt_tokens_details\":{\"cached_tokens\":4096,\"audio_tokens\":0},\"cost\":0.00231,"
+            + "\"completion_tokens_details\":{\"reasoning_tokens\":0}}}\n\n"
+            + "data: [DONE]\n\n";
+        SseDeltaDecoder decoder = new SseDeltaDecoder(jsonFactory);
+
+        assertEquals("끝", readAll(decoder, trickle(stream, 11)));
+        OpenAiUsage usage = decoder.getUsage();
+        assertNotNull(usage);
+        assertEquals(5120, usage.promptTokens());
+        assertEquals(812, usage.completionTokens());
+        assertEquals(5932, usage.totalTokens());
+        assertEquals(4096, usage.cachedTokens());
+        assertEquals(0.00231, usage.cost(), 1e-9);
+        assertEquals("stop", decoder.getFinishReason());
+    }
+
+    @Test
+    @DisplayName("usage가 없는 스트림은 null")
+    void noUsage() throws IOException {
+        SseDeltaDecoder decoder = new SseDeltaDecoder(jsonFactory);
+        readAll(decoder, trickle(delta("a") + "data: [DONE]\n\n", 8));
+
+        assertNull(decoder.getUsage());
+        assertNull(decoder.getFinishReason());
+    }
+
+    private static String delta(String content) {
+        return "data: {\"choices\":[{\"index\":0,\"delta\":{\"content\":\"" + content + "\"}}]}\n\n";
+    }
+
+    private static String readAll(SseDeltaDecoder decoder, InputStream in) throws IOException {
+        StringBuilder out = new StringBuilder();
+        while (decoder.readNext(in, out::append)) {
+            // 청크 단위로 계속
+        }
+        return out.toString();
+    }
+
+    /** read() 1회에 최대 chunk 바이트만 돌려주는 스트림 — 네트워크 분할 흉내 */
+    private static InputStream trickle(String s, int chunk) {
+        return new ByteArrayInputStream(s.getBytes(StandardCharsets.UTF_8)) {
+            @Override
+            public synchronized int read(byte[] b, int off, int len) {
+                return super.read(b, off, Math.min(len, chunk));
+            }
+        };
+    }
+}
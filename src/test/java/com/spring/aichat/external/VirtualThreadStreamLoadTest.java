@@ -0,0 +1,101 @@
+package com.spring.aichat.external;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.spring.aichat.config.OpenAiProperties;
+import com.spring.aichat.config.VirtualThreadConfig;
+import com.spring.aichat.config.VirtualThreadPinningMonitor;
+import com.spring.aichat.dto.openai.OpenAiChatRequest;
+import com.spring.aichat.dto.openai.OpenAiMessage;
+import com.spring.aichat.service.metering.LlmUsageMeter;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+import static org.mockito.Mockito.mock;
+
+/**
+ * [Perf] 가상 스레드 동시 스트림 부하 하네스 — 노드 1대에서 목 SSE 스트림 2,000+ 동시 처리 검증
+ *
+ * <p>운영과 같은 경로({@link VirtualThreadConfig#virtualExecutor} → {@link OpenRouterStreamClient#streamScenes})로
+ * N개 스트림을 띄우고, 목 서버는 N개가 모두 연결될 때까지 첫 청크를 보류한다.
+ * 실행 스레드 수가 N보다 작으면 게이트가 열리지 않아 타임아웃으로 실패한다.
+ * 동시에 {@link VirtualThreadPinningMonitor}로 애플리케이션 코드의 피닝이 0건인지 확인한다.
+ *
+ * <p>기본 {@code test} 태스크에서는 제외된다 ({@code load} 태그). 실행: {@code ./gradlew loadTest}
+ * (JDK 21 런처 사용, 소켓 2N개 — {@code ulimit -n}이 충분해야 한다)
+ */
+@Tag("load")
+class VirtualThreadStreamLoadTest {
+
+    private static final int STREAMS = Integer.getInteger("load.streams", 2_000);
+    private static final long GATE_TIMEOUT_MS = 60_000;
+
+    @Test
+    @DisplayName("가상 스레드 Executor로 목 스트림 2,000개 동시 처리 — 전부 완료, 앱 코드 피닝 0건")
+    void concurrentMockStreams() throws Exception {
+        assumeTrue(Runtime.version().feature() >= 21, "virtual threads require JDK 21+");
+
+        SimpleAsyncTaskExecutor serverExecutor = VirtualThreadConfig.virtualExecutor("mock-or-", -1);
+        SimpleAsyncTaskExecutor chatExecutor = VirtualThreadConfig.virtualExecutor("chat-vt-", STREAMS * 2);
+
+        try (MockOpenRouterServer server = new MockOpenRouterServer(serverExecutor)
+                 .ttft(0)
+                 .interTokenDelay(10)
+                 .holdUntilConcurrent(STREAMS, GATE_TIMEOUT_MS);
+             VirtualThreadPinningMonitor pinning = new VirtualThreadPinningMonitor(0)) {
+            pinning.start();
+
+            OpenRouterStreamClient client = new OpenRouterStreamClient(
+                new OpenAiProperties("test-key", server.baseUrl(), "mock/model", null, null, "http://test", "load-test"),
+                new ObjectMapper(), mock(LlmUsageMeter.class));
+            OpenAiChatRequest request = new OpenAiChatRequest(
+                "mock/model", List.of(OpenAiMessage.system("load")), 0.8, true, null, null,
+                Map.of("order", List.of("mock")), Map.of("type", "json_object"));
+
+            MockOpenRouterServer.Recording recording = server.recordingOf(MockOpenRouterServer.CHAT_V1);
+            AtomicInteger scenes = new AtomicInteger();
+            AtomicInteger failures = new AtomicInteger();
+            List<CompletableFuture<?>> futures = new ArrayList<>(STREAMS);
+            long start = System.currentTimeMillis();
+
+            for (int i = 0; i < STREAMS; i++) {
+                futures.add(CompletableFuture.runAsync(() -> {
+                    try {
+                        OpenRouterStreamClient.StreamResult result = client.streamScenes(
+                            request, (index, json) -> scenes.incrementAndGet(), null, 0);
+                        assertEquals(recording.content(), result.fullResponse());
+                    } catch (Throwable e) {
+                        failures.incrementAndGet();
+                    }
+                }, chatExecutor));
+            }
+            CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new))
+                .get(GATE_TIMEOUT_MS * 2, TimeUnit.MILLISECONDS);
+            long elapsed = System.currentTimeMillis() - start;
+            Thread.sleep(1_500); // JFR 스트림은 약 1초 주기로 이벤트를 flush한다
+
+            System.out.printf("[LOAD] streams=%d peakConcurrent=%d completed=%d failures=%d scenes=%d "
+                    + "elapsed=%dms pinned(total/app)=%d/%d sites=%s%n",
+                STREAMS, server.peakInFlight(), server.completedStreams(), failures.get(), scenes.get(),
+                elapsed, pinning.totalPinnedCount(), pinning.appPinnedCount(), pinning.snapshot());
+
+            assertEquals(0, failures.get());
+            assertEquals(STREAMS, server.peakInFlight(), "모든 스트림이 동시에 열려 있어야 한다");
+            assertEquals(STREAMS * recording.sceneCount(), scenes.get());
+            assertEquals(0, pinning.appPinnedCount(), "애플리케이션 코드에서 가상 스레드 피닝 발생");
+        } finally {
+            chatExecutor.close();
+            serverExecutor.close();
+        }
+    }
+}
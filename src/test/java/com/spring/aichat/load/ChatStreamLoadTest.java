@@ -0,0 +1,307 @@
+package com.spring.aichat.load;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * 채팅 SSE 엔드투엔드 부하 스위트 — 실행 중인 앱(목 OpenRouter 내장)을 HTTP로 구동
+ *
+ * <p>전제: {@code ./gradlew bootTestRun}으로 {@code TestAichatApplication} 기동 (목 제어 포트 18080).
+ * 세션 파일({@code -Dload.sessions=path})은 한 줄에 하나씩 {@code V1|V2,<JWT>,<roomId>}.
+ * 유저당 채팅 전송은 3초 1회로 제한되므로 세션마다 별도 유저·방을 쓰고 {@code load.pacingMs}로 간격을 둔다.
+ *
+ * <p>측정 (턴 단위, 클라이언트 기준):
+ * <ul>
+ *   <li>TTFT — 요청 → 첫 SSE 이벤트</li>
+ *   <li>TTFS — 요청 → 첫 {@code scene}/{@code first_scene} 이벤트</li>
+ *   <li>total — 요청 → {@code final_result}</li>
+ * </ul>
+ * 서버 CPU·힙은 목 서버의 {@code /_mock/stats}(앱과 같은 JVM)로 실행 전후/도중 샘플링해 동시 스트림당 값으로 환산한다.
+ *
+ * <p>실행: {@code ./gradlew loadTest -Dload.sessions=sessions.csv [-Dload.target=http://localhost:8080]}
+ */
+@Tag("load")
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class ChatStreamLoadTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static final String TARGET = System.getProperty("load.target", "http://localhost:8080");
+    private static final String MOCK = System.getProperty("load.mock", "http://127.0.0.1:18080");
+    private static final int TURNS = Integer.getInteger("load.turns", 5);
+    private static final long PACING_MS = Long.getLong("load.pacingMs", 3_500);
+
+    private static final HttpClient HTTP = HttpClient.newBuilder()
+        .connectTimeout(Duration.ofSeconds(10))
+        .build();
+
+    private static List<Session> sessions;
+
+    record Session(String kind, String token, long roomId) {
+        String streamPath() {
+            return "V2".equals(kind)
+                ? "/api/v1/v2/story/rooms/" + roomId + "/messages/stream"
+                : "/api/v1/chat/rooms/" + roomId + "/messages/stream";
+        }
+
+        String body(String message) {
+            return "V2".equals(kind)
+                ? "{\"message\":\"" + message + "\"}"
+                : "{\"roomId\":" + roomId + ",\"message\":\"" + message + "\"}";
+        }
+    }
+
+    /** 턴 1회 결과. 미도달 구간은 -1 */
+    record Turn(String kind, long ttftMs, long ttfsMs, long totalMs, int scenes, String error) {
+        boolean ok() {
+            return error == null && totalMs >= 0;
+        }
+    }
+
+    @BeforeAll
+    static void loadSessions() throws IOException {
+        String file = System.getProperty("load.sessions");
+        assumeTrue(file != null && Files.exists(Path.of(file)), "-Dload.sessions=<csv> 필요");
+        assumeTrue(reachable(MOCK + "/_mock/stats"), "목 OpenRouter 미기동: " + MOCK);
+
+        List<Session> parsed = new ArrayList<>();
+        for (String line : Files.readAllLines(Path.of(file))) {
+            if (line.isBlank() || line.startsWith("#")) continue;
+            String[] cols = line.split(",");
+            parsed.add(new Session(cols[0].trim().toUpperCase(), cols[1].trim(), Long.parseLong(cols[2].trim())));
+        }
+        assumeTrue(!parsed.isEmpty(), "세션이 비어 있음");
+        sessions = parsed;
+    }
+
+    // ━━━━━━━━━━ 정상 부하 ━━━━━━━━━━
+
+    @Test
+    @Order(1)
+    @DisplayName("V1/V2 동시 스트림 — 전 턴 성공, TTFT/TTFS/p99 및 스트림당 CPU·힙 리포트")
+    void steadyState() throws Exception {
+        mockControl("/_mock/reset", "{}");
+        mockControl("/_mock/config", "{\"ttftMs\":600,\"interTokenDelayMs\":15}");
+
+        List<Turn> turns = run(TURNS);
+        report("steady", turns);
+
+        assertTrue(turns.stream().allMatch(Turn::ok), "실패 턴: " + failures(turns));
+    }
+
+    // ━━━━━━━━━━ 서킷 브레이커 폴백 ━━━━━━━━━━
+
+    /**
+     * AI Studio만 TTFT 2.5초(> CLOSED 데드라인 2초)로 늦춘다.
+     * 기대: 유저는 실패를 보지 않고(Vertex 폴백), 서킷이 열린 뒤엔 Vertex 직행이 늘어난다.
+     * 주의: 이 테스트 후 앱의 서킷은 5분간 OPEN — 마지막 순서로 둔다.
+     */
+    @Test
+    @Order(2)
+    @DisplayName("AI Studio 지연 주입 — 서킷 브레이커 폴백으로 유저 가시 오류 0건")
+    void circuitBreakerFallbackUnderLoad() throws Exception {
+        mockControl("/_mock/reset", "{}");
+        mockControl("/_mock/config", "{\"ttftMs\":300,\"providerTtftMs\":{\"google-ai-studio\":2500}}");
+
+        List<Turn> turns = run(2);
+        report("circuit-fallback", turns);
+        JsonNode stats = mockStats();
+        System.out.println("[LOAD] circuit-fallback requestsByProvider=" + stats.path("requestsByProvider"));
+
+        assertTrue(turns.stream().allMatch(Turn::ok), "실패 턴: " + failures(turns));
+        assertTrue(stats.path("requestsByProvider").path("google-vertex").asLong() > 0, "Vertex 폴백 미발생");
+
+        mockControl("/_mock/reset", "{}");
+    }
+
+    // ━━━━━━━━━━ 실행 / 측정 ━━━━━━━━━━
+
+    private List<Turn> run(int turnsPerSession) throws Exception {
+        JsonNode before = mockStats();
+        AtomicLong peakHeap = new AtomicLong(before.path("heapUsedBytes").asLong());
+        AtomicInteger active = new AtomicInteger();
+        AtomicInteger peakActive = new AtomicInteger();
+
+        ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor();
+        sampler.scheduleAtFixedRate(() -> {
+            try {
+                peakHeap.accumulateAndGet(mockStats().path("heapUsedBytes").asLong(), Math::max);
+            } catch (Exception ignored) {
+            }
+        }, 0, 500, TimeUnit.MILLISECONDS);
+
+        ExecutorService pool = Executors.newFixedThreadPool(sessions.size());
+        List<Turn> turns = Collections.synchronizedList(new ArrayList<>());
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (Session s : sessions) {
+                futures.add(pool.submit(() -> {
+                    for (int i = 0; i < turnsPerSession; i++) {
+                        long started = System.currentTimeMillis();
+                        peakActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+                        try {
+                            turns.add(sendTurn(s, "부하 테스트 메시지 " + i));
+                        } finally {
+                            active.decrementAndGet();
+                        }
+                        long wait = PACING_MS - (System.currentTimeMillis() - started);
+                        if (wait > 0) sleep(wait);
+                    }
+                }));
+            }
+            for (Future<?> f : futures) f.get(10, TimeUnit.MINUTES);
+        } finally {
+            pool.shutdownNow();
+            sampler.shutdownNow();
+        }
+
+        JsonNode after = mockStats();
+        long cpuMs = after.path("processCpuTimeMs").asLong() - before.path("processCpuTimeMs").asLong();
+        long heapDelta = peakHeap.get() - before.path("heapUsedBytes").asLong();
+        int concurrent = Math.max(1, peakActive.get());
+        System.out.printf("[LOAD] server cpu=%dms (%.1fms/turn) | heap peak +%dKB (%.1fKB per concurrent stream, peak=%d)"
+                + " | threads=%d%n",
+            cpuMs, (double) cpuMs / Math.max(1, turns.size()), heapDelta / 1024,
+            heapDelta / 1024.0 / concurrent, concurrent, after.path("liveThreads").asInt());
+        return turns;
+    }
+
+    /** SSE 턴 1회 — 이벤트 도착 시각만 기록하고 본문은 가볍게 확인 */
+    private Turn sendTurn(Session s, String message) {
+        long start = System.nanoTime();
+        long ttft = -1, ttfs = -1, total = -1;
+        int scenes = 0;
+        String error = null;
+        try {
+            HttpRequest request = HttpRequest.newBuilder(URI.create(TARGET + s.streamPath()))
+                .header("Authorization", "Bearer " + s.token())
+                .header("Content-Type", "application/json")
+                .header("Accept", "text/event-stream")
+                .timeout(Duration.ofSeconds(160))
+                .POST(HttpRequest.BodyPublishers.ofString(s.body(message)))
+                .build();
+            HttpResponse<Stream<String>> response = HTTP.send(request, HttpResponse.BodyHandlers.ofLines());
+            if (response.statusCode() != 200) {
+                return new Turn(s.kind(), -1, -1, -1, 0, "HTTP " + response.statusCode());
+            }
+            String event = null;
+            Iterator<String> lines = response.body().iterator();
+            while (lines.hasNext()) {
+                String line = lines.next();
+                if (line.startsWith("event:")) {
+                    event = line.substring(6).trim();
+                    long at = elapsedMs(start);
+                    if (ttft < 0) ttft = at;
+                    switch (event) {
+                        case "first_scene" -> { if (ttfs < 0) ttfs = at; }
+                        case "scene" -> { if (ttfs < 0) ttfs = at; scenes++; }
+                        case "final_result" -> total = at;
+                        default -> { }
+                    }
+                } else if (line.startsWith("data:") && "error".equals(event)) {
+                    error = line.substring(5).trim();
+                }
+            }
+            if (total < 0 && error == null) error = "stream ended without final_result";
+        } catch (Exception e) {
+            error = e.getClass().getSimpleName() + ": " + e.getMessage();
+        }
+        return new Turn(s.kind(), ttft, ttfs, total, scenes, error);
+    }
+
+    // ━━━━━━━━━━ 리포트 ━━━━━━━━━━
+
+    private static void report(String phase, List<Turn> turns) {
+        for (String kind : List.of("V1", "V2")) {
+            List<Turn> ofKind = turns.stream().filter(t -> t.kind().equals(kind)).toList();
+            if (ofKind.isEmpty()) continue;
+            List<Turn> ok = ofKind.stream().filter(Turn::ok).toList();
+            System.out.printf("[LOAD] %s %s turns=%d ok=%d | TTFT p50=%d p99=%d | TTFS p50=%d p99=%d"
+                    + " | total p50=%d p95=%d p99=%d max=%d (ms)%n",
+                phase, kind, ofKind.size(), ok.size(),
+                percentile(ok, Turn::ttftMs, 50), percentile(ok, Turn::ttftMs, 99),
+                percentile(ok, Turn::ttfsMs, 50), percentile(ok, Turn::ttfsMs, 99),
+                percentile(ok, Turn::totalMs, 50), percentile(ok, Turn::totalMs, 95),
+                percentile(ok, Turn::totalMs, 99), percentile(ok, Turn::totalMs, 100));
+        }
+    }
+
+    static long percentile(List<Turn> turns, java.util.function.ToLongFunction<Turn> metric, int p) {
+        long[] values = turns.stream().mapToLong(metric).filter(v -> v >= 0).sorted().toArray();
+        if (values.length == 0) return -1;
+        int index = (int) Math.ceil(p / 100.0 * values.length) - 1;
+        return values[Math.max(0, Math.min(values.length - 1, index))];
+    }
+
+    private static List<String> failures(List<Turn> turns) {
+        return turns.stream().filter(t -> !t.ok()).map(t -> t.kind() + ":" + t.error()).limit(10).toList();
+    }
+
+    // ━━━━━━━━━━ 목 제어 ━━━━━━━━━━
+
+    private static JsonNode mockStats() throws IOException, InterruptedException {
+        HttpResponse<String> r = HTTP.send(HttpRequest.newBuilder(URI.create(MOCK + "/_mock/stats")).GET().build(),
+            HttpResponse.BodyHandlers.ofString());
+        return MAPPER.readTree(r.body());
+    }
+
+    private static void mockControl(String path, String json) throws IOException, InterruptedException {
+        HttpResponse<String> r = HTTP.send(HttpRequest.newBuilder(URI.create(MOCK + path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json)).build(),
+            HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, r.statusCode(), "mock control failed: " + r.body());
+    }
+
+    private static boolean reachable(String url) {
+        try {
+            return HTTP.send(HttpRequest.newBuilder(URI.create(url)).timeout(Duration.ofSeconds(2)).GET().build(),
+                HttpResponse.BodyHandlers.discarding()).statusCode() == 200;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    private static long elapsedMs(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
+    private static void sleep(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
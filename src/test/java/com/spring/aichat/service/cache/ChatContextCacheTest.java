@@ -0,0 +1,283 @@
+package com.spring.aichat.service.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.spring.aichat.config.MetricsConfig;
+import com.spring.aichat.domain.chat.ChatLogDocument;
+import com.spring.aichat.domain.chat.ChatLogMongoRepository;
+import com.spring.aichat.domain.enums.ChatRole;
+import com.spring.aichat.domain.enums.EmotionTag;
+import com.spring.aichat.dto.openai.OpenAiMessage;
+import com.spring.aichat.service.util.LlmOutputParser;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.ListOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * {@link ChatContextCache} 단위 테스트 — Entry 정제본, 스냅샷 윈도우, 적재 · 추가 경합.
+ *
+ * <p>캐시 경로의 히스토리 메시지는 기존 Mongo 경로({@link LlmOutputParser#buildSanitizedAssistantContent})와
+ * 글자 단위로 같아야 한다 — 프롬프트 캐시 적중률과 응답 품질이 그대로 유지되는지 대조한다.
+ */
+class ChatContextCacheTest {
+
+    private static final String CHARACTER = "아이리";
+    private static final Long ROOM = 1L;
+    private static final String REPLY = """
+        ```json
+        {
+          "reasoning": "인사에 반응",
+          "scenes": [
+            {"speaker": "아이리", "narration": " 고개를 든다. ", "dialogue": "안녕!", "emotion": "JOY"},
+            {"speaker": "점원", "narration": "", "dialogue": "주문하시겠어요?", "emotion": "NEUTRAL"},
+            {"speaker": null, "narration": "잠시 정적이 흐른다.", "dialogue": null, "emotion": "NEUTRAL"}
+          ],
+          "affection_change": 1,
+          "inner_thought": "두근거려"
+        }
+        ```""";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    @DisplayName("ASSISTANT: 사전 정제본 렌더 결과가 기존 정제 결과와 동일 (속마음 포함/미포함)")
+    void assistantMatchesLegacySanitizer() throws Exception {
+        ChatLogDocument doc = ChatLogDocument.assistantWithThought(
+            1L, REPLY, "clean", EmotionTag.JOY, null, "두근거려");
+
+        ChatContextCache.Entry entry = roundTrip(ChatContextCache.Entry.from(objectMapper, doc));
+
+        for (boolean includeThought : new boolean[]{true, false}) {
+            String legacy = LlmOutputParser.buildSanitizedAssistantContent(
+                objectMapper, doc, CHARACTER, includeThought);
+            OpenAiMessage message = entry.toChatMessage(CHARACTER, includeThought);
+            assertEquals("assistant", message.role());
+            assertEquals(legacy, message.content());
+        }
+        assertNull(entry.rawContent(), "ASSISTANT 원본 JSON은 캐시에 싣지 않는다");
+    }
+
+    @Test
+    @DisplayName("ASSISTANT: 파스 실패·빈 raw는 기존과 같은 fallback")
+    void assistantFallbacks() throws Exception {
+        ChatLogDocument broken = ChatLogDocument.assistant(1L, "{not json", null, EmotionTag.NEUTRAL);
+        ChatLogDocument blank = ChatLogDocument.assistant(1L, " ", "clean only", EmotionTag.NEUTRAL);
+
+        for (ChatLogDocument doc : List.of(broken, blank)) {
+            ChatContextCache.Entry entry = roundTrip(ChatContextCache.Entry.from(objectMapper, doc));
+            assertEquals(LlmOutputParser.buildSanitizedAssistantContent(objectMapper, doc, CHARACTER, true),
+                entry.toChatMessage(CHARACTER, true).content());
+        }
+    }
+
+    @Test
+    @DisplayName("V2 히스토리: hidden 비액션 로그 제외, hidden 액션은 raw, 나머지는 clean")
+    void storyMessageRules() {
+        assertNull(ChatContextCache.Entry.from(objectMapper,
+            ChatLogDocument.hiddenSystem(1L, "[SYSTEM_DIRECTOR] 숨김")).toStoryMessage());
+
+        OpenAiMessage action = ChatContextCache.Entry.from(objectMapper,
+            ChatLogDocument.hiddenUser(1L, "[ACTION:MOVE] 카페", "카페로 이동")).toStoryMessage();
+        assertEquals(new OpenAiMessage("user", "[ACTION:MOVE] 카페", null), action);
+
+        OpenAiMessage user = ChatContextCache.Entry.from(objectMapper,
+            ChatLogDocument.user(1L, "안녕")).toStoryMessage();
+        assertEquals("user", user.role());
+    }
+
+    @Test
+    @DisplayName("스냅샷 append: 윈도우 20개 유지 + 역할별 카운트 증가")
+    void snapshotAppendTrimsWindow() {
+        ChatContextCache.Snapshot snapshot = new ChatContextCache.Snapshot(0, List.of(), 0, 0, 0, 0);
+        for (int i = 0; i < 25; i++) {
+            ChatLogDocument doc = i % 2 == 0
+                ? ChatLogDocument.user(1L, "u" + i)
+                : ChatLogDocument.assistant(1L, "", "a" + i, EmotionTag.NEUTRAL);
+            snapshot = snapshot.append(ChatContextCache.Entry.from(objectMapper, doc), i + 1);
+        }
+
+        assertEquals(ChatContextCache.WINDOW_SIZE, snapshot.window().size());
+        assertEquals("u24", snapshot.window().get(ChatContextCache.WINDOW_SIZE - 1).rawContent());
+        assertEquals(25, snapshot.total());
+        assertEquals(13, snapshot.count(ChatRole.USER));
+        assertEquals(12, snapshot.count(ChatRole.ASSISTANT));
+        assertEquals(25, snapshot.gen());
+    }
+
+    @Test
+    @DisplayName("적재 출처별 횟수는 chat_context_cache.loads{source}로 노출된다")
+    void statsBoundToRegistry() {
+        FakeRedis redis = new FakeRedis();
+        ChatLogMongoRepository repository = repository(new ArrayList<>(List.of(
+            saved("u1", ChatLogDocument.user(ROOM, "안녕")))));
+        ChatContextCache node = new ChatContextCache(redis, repository, objectMapper, 100, 24);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        new MetricsConfig().chatContextCacheMetrics(node).bindTo(registry);
+
+        node.snapshot(ROOM);   // L1 · L2 미스 → Mongo
+        node.snapshot(ROOM);   // L1 적중
+
+        assertEquals(1.0, registry.get("chat_context_cache.loads").tag("source", "mongo").functionCounter().count());
+        assertEquals(1.0, registry.get("chat_context_cache.loads").tag("source", "local").functionCounter().count());
+        assertEquals(0.0, registry.get("chat_context_cache.loads").tag("source", "redis").functionCounter().count());
+        assertEquals(1.0, registry.get("chat_context_cache.local.rooms").gauge().value());
+    }
+
+    @Test
+    @DisplayName("Mongo 저장 뒤 · append 전에 적재가 끼어들어도 같은 로그가 L1 · L2에 두 번 들어가지 않는다")
+    void populateBetweenSaveAndAppendDoesNotDuplicate() {
+        FakeRedis redis = new FakeRedis();
+        List<ChatLogDocument> mongo = new ArrayList<>(List.of(
+            saved("u1", ChatLogDocument.user(ROOM, "안녕")),
+            saved("a1", ChatLogDocument.assistant(ROOM, "", "반가워", EmotionTag.NEUTRAL))));
+        ChatLogMongoRepository repository = repository(mongo);
+        ChatContextCache node = new ChatContextCache(redis, repository, objectMapper, 100, 24);
+
+        ChatLogDocument u2 = saved("u2", ChatLogDocument.user(ROOM, "뭐 해?"));
+        mongo.add(u2);                                   // 1) Mongo 저장
+        assertEquals(3, node.snapshot(ROOM).window().size());  // 2) L2 미스 → u2가 담긴 채로 gen 0 적재
+        node.append(u2);                                 // 3) INCR gen → 윈도우에 이미 u2
+
+        assertWindow(node.snapshot(ROOM), "u1", "a1", "u2");
+        ChatContextCache otherNode = new ChatContextCache(redis, repository, objectMapper, 100, 24);
+        ChatContextCache.Snapshot fromRedis = otherNode.snapshot(ROOM);
+        assertWindow(fromRedis, "u1", "a1", "u2");
+        assertEquals(3, fromRedis.total());
+        assertEquals(2, fromRedis.count(ChatRole.USER));
+        assertEquals(1, node.getStats().mongoLoads(), "L2 적중 — 재적재 없음");
+
+        ChatLogDocument a2 = saved("a2", ChatLogDocument.assistant(ROOM, "", "산책 중", EmotionTag.NEUTRAL));
+        mongo.add(a2);
+        node.append(a2);                                 // 끼어든 적재 없음 → 평소대로 추가
+
+        assertWindow(node.snapshot(ROOM), "u1", "a1", "u2", "a2");
+        ChatContextCache.Snapshot after = otherNode.snapshot(ROOM);
+        assertWindow(after, "u1", "a1", "u2", "a2");
+        assertEquals(4, after.total());
+        assertEquals(2, after.count(ChatRole.ASSISTANT));
+    }
+
+    private static void assertWindow(ChatContextCache.Snapshot snapshot, String... ids) {
+        assertEquals(List.of(ids), snapshot.window().stream().map(ChatContextCache.Entry::id).toList());
+    }
+
+    private static ChatLogDocument saved(String id, ChatLogDocument doc) {
+        ReflectionTestUtils.setField(doc, "id", id);
+        return doc;
+    }
+
+    /** 저장 순서 리스트를 그대로 읽는 Mongo 리포지토리 */
+    private static ChatLogMongoRepository repository(List<ChatLogDocument> mongo) {
+        ChatLogMongoRepository repository = mock(ChatLogMongoRepository.class);
+        when(repository.findTop20ByRoomIdOrderByCreatedAtDesc(ROOM)).thenAnswer(inv -> {
+            List<ChatLogDocument> recent = new ArrayList<>(mongo.subList(Math.max(0, mongo.size() - 20), mongo.size()));
+            Collections.reverse(recent);
+            return recent;
+        });
+        when(repository.countByRoomId(ROOM)).thenAnswer(inv -> (long) mongo.size());
+        when(repository.countByRoomIdAndRole(any(), any())).thenAnswer(inv ->
+            mongo.stream().filter(d -> d.getRole() == inv.getArgument(1)).count());
+        return repository;
+    }
+
+    /**
+     * 문자열 · 해시 · 리스트만 가진 인메모리 Redis — 두 Lua 스크립트는 같은 규칙을 Java로 옮겨 실행한다.
+     */
+    private final class FakeRedis extends StringRedisTemplate {
+        private final Map<String, String> strings = new HashMap<>();
+        private final Map<String, Map<Object, Object>> hashes = new HashMap<>();
+        private final Map<String, List<String>> lists = new HashMap<>();
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public ValueOperations<String, String> opsForValue() {
+            ValueOperations<String, String> ops = mock(ValueOperations.class);
+            when(ops.get(anyString())).thenAnswer(inv -> strings.get(inv.<String>getArgument(0)));
+            return ops;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <HK, HV> HashOperations<String, HK, HV> opsForHash() {
+            HashOperations<String, Object, Object> ops = mock(HashOperations.class);
+            when(ops.entries(anyString())).thenAnswer(inv ->
+                new HashMap<>(hashes.getOrDefault(inv.<String>getArgument(0), Map.of())));
+            return (HashOperations<String, HK, HV>) (HashOperations<String, ?, ?>) ops;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public ListOperations<String, String> opsForList() {
+            ListOperations<String, String> ops = mock(ListOperations.class);
+            when(ops.range(anyString(), anyLong(), anyLong())).thenAnswer(inv ->
+                new ArrayList<>(lists.getOrDefault(inv.<String>getArgument(0), List.of())));
+            return ops;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> T execute(RedisScript<T> script, List<String> keys, Object... args) {
+            String genKey = keys.get(0);
+            String logKey = keys.get(1);
+            String cntKey = keys.get(2);
+            if (script == ChatContextCache.POPULATE_SCRIPT) {
+                if (!strings.getOrDefault(genKey, "0").equals(args[0])) return (T) Long.valueOf(0);
+                List<String> rows = new ArrayList<>();
+                for (int i = 6; i < args.length; i++) rows.add((String) args[i]);
+                lists.put(logKey, rows);
+                hashes.put(cntKey, new HashMap<>(Map.of("gen", args[0], "total", args[2],
+                    "USER", args[3], "ASSISTANT", args[4], "SYSTEM", args[5])));
+                return (T) Long.valueOf(1);
+            }
+            long g = Long.parseLong(strings.getOrDefault(genKey, "0")) + 1;
+            strings.put(genKey, String.valueOf(g));
+            Map<Object, Object> cnt = hashes.get(cntKey);
+            if (cnt != null && String.valueOf(g - 1).equals(cnt.get("gen"))) {
+                List<String> rows = lists.get(logKey);
+                boolean present = !"".equals(args[4]) && rows.stream().anyMatch(row -> args[4].equals(idOf(row)));
+                if (!present) {
+                    rows.add((String) args[0]);
+                    while (rows.size() > Integer.parseInt((String) args[2])) rows.remove(0);
+                    cnt.merge("total", "1", ChatContextCacheTest::increment);
+                    cnt.merge(args[1], "1", ChatContextCacheTest::increment);
+                }
+                cnt.put("gen", String.valueOf(g));
+            }
+            return (T) Long.valueOf(g);
+        }
+
+        private String idOf(String row) {
+            try {
+                return objectMapper.readTree(row).path("id").asText();
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    private static Object increment(Object current, Object one) {
+        return String.valueOf(Long.parseLong(current.toString()) + 1);
+    }
+
+    private ChatContextCache.Entry roundTrip(ChatContextCache.Entry entry) throws Exception {
+        return objectMapper.readValue(objectMapper.writeValueAsString(entry), ChatContextCache.Entry.class);
+    }
+}
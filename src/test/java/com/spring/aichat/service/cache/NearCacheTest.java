@@ -0,0 +1,97 @@
+package com.spring.aichat.service.cache;
+
+import com.spring.aichat.config.MetricsConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+/**
+ * {@link NearCache} 단위 테스트 — 패밀리 필터, 노드 간 무효화, miss 적재 경합 가드.
+ */
+class NearCacheTest {
+
+    private final StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+    private final NearCache nearCache = new NearCache(redisTemplate, true);
+
+    @Test
+    @DisplayName("대상 패밀리만 L1 처리, 패밀리별 hit/miss 집계")
+    void familyFilterAndStats() {
+        assertTrue(nearCache.handles(RedisCacheService.ROOM_OWNER_PREFIX + 1));
+        assertFalse(nearCache.handles("director:directive:1"));
+
+        String key = RedisCacheService.ROOM_OWNER_PREFIX + 1;
+        assertNull(nearCache.getIfPresent(key));
+        nearCache.put(key, "alice");
+        assertEquals("alice", nearCache.getIfPresent(key));
+
+        NearCache.Stats stats = nearCache.getStats().get(RedisCacheService.ROOM_OWNER_PREFIX);
+        assertEquals(1, stats.hits());
+        assertEquals(1, stats.misses());
+    }
+
+    @Test
+    @DisplayName("패밀리별 hit/miss/무효화/크기가 Micrometer로 노출된다")
+    void statsBoundToRegistry() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        new MetricsConfig().nearCacheMetrics(nearCache).bindTo(registry);
+
+        String key = RedisCacheService.CHARACTER_PREFIX + 3;
+        nearCache.getIfPresent(key);
+        nearCache.put(key, "{}");
+        nearCache.getIfPresent(key);
+        nearCache.getIfPresent(key);
+        nearCache.invalidate(key);
+
+        assertEquals(2, registry.get("near_cache.gets").tags("family", "character", "result", "hit")
+            .functionCounter().count());
+        assertEquals(1, registry.get("near_cache.gets").tags("family", "character", "result", "miss")
+            .functionCounter().count());
+        assertEquals(1, registry.get("near_cache.invalidations").tag("family", "character")
+            .functionCounter().count());
+        assertEquals(0, registry.get("near_cache.size").tag("family", "character").gauge().value());
+        assertEquals(0, registry.get("near_cache.evictions").tag("family", "room_owner")
+            .functionCounter().count());
+    }
+
+    @Test
+    @DisplayName("evict: 로컬 제거 + pub/sub 발행, 다른 노드 메시지 수신 시 제거")
+    void invalidationLocalAndRemote() {
+        String key = RedisCacheService.USER_PROFILE_PREFIX + "alice";
+        nearCache.put(key, "{}");
+
+        nearCache.invalidate(key);
+        assertNull(nearCache.getIfPresent(key));
+        verify(redisTemplate).convertAndSend(NearCache.INVALIDATION_CHANNEL, key);
+
+        nearCache.put(key, "{}");
+        nearCache.onMessage(new DefaultMessage(
+            NearCache.INVALIDATION_CHANNEL.getBytes(StandardCharsets.UTF_8),
+            key.getBytes(StandardCharsets.UTF_8)), null);
+        assertNull(nearCache.getIfPresent(key));
+        assertEquals(2, nearCache.getStats().get(RedisCacheService.USER_PROFILE_PREFIX).invalidations());
+    }
+
+    @Test
+    @DisplayName("miss 후 Redis 조회 중 무효화가 도착하면 옛 값을 L1에 적재하지 않는다")
+    void staleFillIsDropped() {
+        String key = RedisCacheService.ROOM_INFO_PREFIX + 7;
+
+        long mark = nearCache.readMark();
+        nearCache.onMessage(new DefaultMessage(
+            NearCache.INVALIDATION_CHANNEL.getBytes(StandardCharsets.UTF_8),
+            key.getBytes(StandardCharsets.UTF_8)), null);
+        nearCache.putIfUnchanged(key, "{\"stale\":true}", mark);
+        assertNull(nearCache.getIfPresent(key));
+
+        nearCache.putIfUnchanged(key, "{\"fresh\":true}", nearCache.readMark());
+        assertEquals("{\"fresh\":true}", nearCache.getIfPresent(key));
+    }
+}
@@ -0,0 +1,122 @@
+package com.spring.aichat.service.cache;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+/**
+ * {@link RedisPayloadCodec} 단위 테스트 — 포맷 프레이밍, 레거시 JSON 호환, 절감률/시간 통계.
+ */
+class RedisPayloadCodecTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private RedisPayloadCodec codec(String format) {
+        return new RedisPayloadCodec(mock(StringRedisTemplate.class), objectMapper, format, 512, 1);
+    }
+
+    @Test
+    @DisplayName("작은 값은 Smile, 임계치 이상 한글 본문은 LZ4(Smile) — 왕복 동일")
+    void framesAndRoundTrips() throws Exception {
+        RedisPayloadCodec codec = codec("smile");
+
+        Map<String, Object> small = Map.of("username", "alice", "energy", 28);
+        byte[] smallBytes = codec.encode("user_profile", small);
+        assertEquals(RedisPayloadCodec.FORMAT_SMILE, smallBytes[0]);
+        assertEquals(small, codec.decode("user_profile", smallBytes, Map.class));
+
+        Map<String, Object> batch = sceneBatch();
+        byte[] batchBytes = codec.encode("theater:batch", batch);
+        assertEquals(RedisPayloadCodec.FORMAT_SMILE_LZ4, batchBytes[0]);
+        assertEquals(batch, codec.decode("theater:batch", batchBytes, Map.class));
+
+        int jsonSize = objectMapper.writeValueAsBytes(batch).length;
+        assertTrue(batchBytes.length < jsonSize / 2,
+            "반복 구조 배치는 JSON 대비 절반 이하여야 한다: " + batchBytes.length + " / " + jsonSize);
+
+        RedisPayloadCodec.Stats stats = codec.getStats().get("theater:batch");
+        assertTrue(stats.savedRatio() > 0.5);
+        System.out.printf("[CODEC] theater:batch json=%dB stored=%dB saved=%.1f%% enc=%.1fµs dec=%.1fµs%n",
+            jsonSize, batchBytes.length, stats.savedRatio() * 100, stats.avgEncodeMicros(), stats.avgDecodeMicros());
+    }
+
+    @Test
+    @DisplayName("롤아웃 전 JSON 값도 그대로 읽힌다 (레거시 읽기 집계)")
+    void readsLegacyJson() throws Exception {
+        RedisPayloadCodec codec = codec("smile");
+        byte[] legacy = "[\"첫 만남의 기억\",\"비 오는 날의 약속\"]".getBytes(StandardCharsets.UTF_8);
+
+        List<String> summaries = codec.decode("memory", legacy, List.class);
+
+        assertEquals(List.of("첫 만남의 기억", "비 오는 날의 약속"), summaries);
+        assertEquals(1, codec.getStats().get("memory").legacyJsonReads());
+    }
+
+    @Test
+    @DisplayName("format=json이면 기존과 같은 JSON 텍스트로 쓴다 (롤링 배포 호환)")
+    void jsonWriteMode() throws Exception {
+        RedisPayloadCodec codec = codec("json");
+        List<String> value = List.of("기억");
+
+        byte[] bytes = codec.encode("memory", value);
+
+        assertEquals("[\"기억\"]", new String(bytes, StandardCharsets.UTF_8));
+        assertEquals(value, objectMapper.readValue(bytes, new TypeReference<List<String>>() {}));
+    }
+
+    @Test
+    @DisplayName("바인딩 전후에 처음 보인 패밀리 모두 Micrometer에 시간 · 저장 바이트 · 절감률로 노출된다")
+    void statsBoundToRegistry() throws Exception {
+        RedisPayloadCodec codec = codec("smile");
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        byte[] profile = codec.encode("user_profile", Map.of("username", "alice"));
+
+        codec.bindTo(registry);
+        byte[] batch = codec.encode("theater:batch", sceneBatch());
+        codec.decode("theater:batch", batch, Map.class);
+
+        FunctionTimer encode = registry.get("redis.codec.time").tags("family", "theater:batch", "op", "encode")
+            .functionTimer();
+        assertEquals(1, encode.count());
+        assertTrue(encode.totalTime(TimeUnit.NANOSECONDS) > 0);
+        assertEquals(1, registry.get("redis.codec.time").tags("family", "theater:batch", "op", "decode")
+            .functionTimer().count());
+        assertEquals(batch.length, registry.get("redis.codec.stored.bytes").tag("family", "theater:batch")
+            .functionCounter().count());
+        assertTrue(registry.get("redis.codec.saved.ratio").tag("family", "theater:batch").gauge().value() > 0.5);
+        assertEquals(profile.length, registry.get("redis.codec.stored.bytes").tag("family", "user_profile")
+            .functionCounter().count(), "bindTo 이전 패밀리도 등록");
+    }
+
+    private static Map<String, Object> sceneBatch() {
+        List<Map<String, Object>> scenes = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            Map<String, Object> scene = new LinkedHashMap<>();
+            scene.put("speaker", "아이리");
+            scene.put("narration", "창밖으로 비가 내린다. 그녀는 찻잔을 두 손으로 감싸 쥔 채 한참 동안 말이 없었다. " + i);
+            scene.put("dialogue", "오늘은… 조금 더 같이 있어 줄래? 비가 그칠 때까지만이라도.");
+            scene.put("emotion", "SHY");
+            scene.put("location", "CAFE");
+            scenes.add(scene);
+        }
+        Map<String, Object> batch = new LinkedHashMap<>();
+        batch.put("batchId", 3);
+        batch.put("speakerHeroineName", "아이리");
+        batch.put("scenes", scenes);
+        return batch;
+    }
+}
@@ -0,0 +1,88 @@
+package com.spring.aichat.service.memory;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 시맨틱 기억 인덱스 벤치마크 — N별 빌드 시간, recall@10, 검색 지연 p50/p99, 파일 크기
+ *
+ * <p>기본 N = 10k / 100k / 1M (dim 128, M 16, efConstruction 100, efSearch 64).
+ * 데이터는 군집 가우시안(군집당 ~100개), 질의는 저장된 벡터 근방 — 주제별로 뭉치는 요약 임베딩을 흉내 낸다.
+ * (완전 균일 난수 128차원은 최근접과 나머지의 거리 차가 거의 없어 어떤 ANN도 recall이 낮다)
+ * 1M 빌드는 단일 스레드로 십수 분 걸린다 — 크기는 시스템 프로퍼티로 조절.
+ * <pre>./gradlew loadTest --tests '*HnswIndexLoadTest' -Dhnsw.bench.sizes=10000,100000</pre>
+ */
+@Tag("load")
+class HnswIndexLoadTest {
+
+    private static final int DIM = 128;
+    private static final int QUERIES = 200;
+    private static final int K = 10;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    @DisplayName("N=10k/100k/1M — recall@10 ≥ 0.9, p99 검색 지연 출력")
+    void recallAndLatency() throws Exception {
+        String sizes = System.getProperty("hnsw.bench.sizes", "10000,100000,1000000");
+        for (String size : sizes.split(",")) {
+            bench(Integer.parseInt(size.trim()));
+        }
+    }
+
+    private void bench(int n) throws Exception {
+        Random random = new Random(n);
+        float[][] vectors = clustered(random, n);
+        float[][] queries = new float[QUERIES][];
+        for (int q = 0; q < QUERIES; q++) queries[q] = jitter(random, vectors[random.nextInt(n)], 0.5f);
+        Path file = dir.resolve("bench-" + n + ".hnsw");
+
+        try (HnswIndex index = HnswIndex.open(file, DIM, 16, 100, 0)) {
+            long buildStart = System.nanoTime();
+            for (int i = 0; i < n; i++) index.add(i, vectors[i]);
+            index.flush();
+            long buildMs = (System.nanoTime() - buildStart) / 1_000_000;
+
+            for (int i = 0; i < 50; i++) index.search(queries[i % QUERIES], K, 64);  // 워밍업
+
+            long[] latencies = new long[QUERIES];
+            double recall = 0;
+            for (int q = 0; q < QUERIES; q++) {
+                long start = System.nanoTime();
+                var hits = index.search(queries[q], K, 64);
+                latencies[q] = System.nanoTime() - start;
+                recall += HnswIndexTest.overlap(HnswIndexTest.bruteForce(vectors, queries[q], K), hits);
+            }
+            recall /= QUERIES;
+            Arrays.sort(latencies);
+
+            System.out.printf("[HNSW-BENCH] N=%,d | build=%,dms | recall@%d=%.3f | p50=%.0fµs | p99=%.0fµs | file=%,dKB%n",
+                n, buildMs, K, recall, latencies[QUERIES / 2] / 1_000.0, latencies[QUERIES * 99 / 100] / 1_000.0,
+                Files.size(file) / 1024);
+            assertTrue(recall >= 0.9, "N=" + n + " recall@" + K + "=" + recall);
+        }
+    }
+
+    private static float[][] clustered(Random random, int n) {
+        float[][] centers = HnswIndexTest.randomVectors(random, Math.max(1, n / 100), DIM);
+        float[][] vectors = new float[n][];
+        for (int i = 0; i < n; i++) vectors[i] = jitter(random, centers[random.nextInt(centers.length)], 1.0f);
+        return vectors;
+    }
+
+    private static float[] jitter(Random random, float[] base, float sigma) {
+        float[] v = new float[base.length];
+        for (int i = 0; i < v.length; i++) v[i] = base[i] + sigma * (float) random.nextGaussian();
+        return v;
+    }
+}
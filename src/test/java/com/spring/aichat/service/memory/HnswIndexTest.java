@@ -0,0 +1,194 @@
+package com.spring.aichat.service.memory;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * {@link HnswIndex} — brute-force 대비 recall, tombstone · 압축, 파일 재오픈·성장, 사이드카 유실 · flush 전 크래시 시 재구축.
+ */
+class HnswIndexTest {
+
+    private static final int DIM = 32;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    @DisplayName("recall@10 ≥ 0.95 (N=2,000, brute force 기준)")
+    void recallAgainstBruteForce() throws Exception {
+        Random random = new Random(7);
+        float[][] vectors = randomVectors(random, 2_000);
+        try (HnswIndex index = HnswIndex.inMemory(DIM, 16, 100, 16)) {
+            for (int i = 0; i < vectors.length; i++) index.add(i, vectors[i]);
+            assertEquals(vectors.length, index.size());
+
+            double recall = 0;
+            int queries = 100;
+            for (int q = 0; q < queries; q++) {
+                float[] query = randomVectors(random, 1)[0];
+                recall += overlap(bruteForce(vectors, query, 10), index.search(query, 10, 64));
+            }
+            recall /= queries;
+            assertTrue(recall >= 0.95, "recall@10=" + recall);
+        }
+    }
+
+    @Test
+    @DisplayName("삭제는 결과에서 제외되고, 같은 id 재추가는 무시된다")
+    void removeAndDuplicate() throws Exception {
+        try (HnswIndex index = HnswIndex.inMemory(DIM, 8, 50, 16)) {
+            float[][] vectors = randomVectors(new Random(3), 50);
+            for (int i = 0; i < vectors.length; i++) index.add(i, vectors[i]);
+            index.add(0, vectors[1]);
+
+            assertEquals(0L, index.search(vectors[0], 1, 16).get(0).id());
+            assertTrue(index.remove(0));
+            assertFalse(index.remove(0));
+            assertEquals(49, index.size());
+            assertNotEquals(0L, index.search(vectors[0], 1, 16).get(0).id());
+        }
+    }
+
+    @Test
+    @DisplayName("파일 인덱스 — 용량 성장 후 재오픈해도 결과 동일, 사이드카가 없으면 그래프 재구축")
+    void persistsAcrossReopen() throws Exception {
+        Path file = dir.resolve("room-1.hnsw");
+        float[][] vectors = randomVectors(new Random(11), 300);  // 초기 용량 64 → 성장 3회
+        float[] query = vectors[42];
+
+        List<HnswIndex.Hit> before;
+        try (HnswIndex index = HnswIndex.open(file, DIM, 8, 64, 1)) {
+            for (int i = 0; i < vectors.length; i++) index.add(1_000 + i, vectors[i]);
+            index.remove(1_007);
+            before = index.search(query, 5, 32);
+        }
+        assertEquals(1_042L, before.get(0).id());
+
+        try (HnswIndex reopened = HnswIndex.open(file, DIM, 8, 64, 1)) {
+            assertEquals(299, reopened.size());
+            assertFalse(reopened.contains(1_007));
+            assertEquals(before, reopened.search(query, 5, 32));
+        }
+
+        Files.delete(file.resolveSibling("room-1.hnsw.upper"));
+        try (HnswIndex rebuilt = HnswIndex.open(file, DIM, 8, 64, 1)) {
+            assertEquals(299, rebuilt.size());
+            assertEquals(1_042L, rebuilt.search(query, 1, 32).get(0).id());
+        }
+
+        try (HnswIndex otherProvider = HnswIndex.open(file, DIM, 8, 64, 2)) {
+            assertEquals(0, otherProvider.size(), "임베딩 제공자가 바뀌면 새 인덱스");
+        }
+    }
+
+    @Test
+    @DisplayName("tombstone 비율이 기준을 넘으면 살아 있는 노드만으로 재구축하고 검색은 그대로 맞는다")
+    void compactsTombstones() throws Exception {
+        float[][] vectors = randomVectors(new Random(5), 200);
+        try (HnswIndex index = HnswIndex.inMemory(DIM, 8, 64, 16)) {
+            for (int i = 0; i < vectors.length; i++) index.add(i, vectors[i]);
+
+            int threshold = (int) (vectors.length * HnswIndex.COMPACT_TOMBSTONE_RATIO);
+            for (int i = 0; i < threshold; i++) index.remove(i);
+            assertEquals(0, index.compactions());
+            assertEquals(200, index.slots());
+
+            index.remove(threshold);
+            assertEquals(1, index.compactions());
+            assertEquals(index.size(), index.slots(), "tombstone 슬롯 회수");
+            assertEquals(200 - threshold - 1, index.size());
+            assertFalse(index.contains(threshold));
+            for (int i = threshold + 1; i < vectors.length; i += 17) {
+                assertEquals((long) i, index.search(vectors[i], 1, 32).get(0).id());
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("flush 없이 죽은 파일을 열면 dirty 헤더를 보고 count 이내 노드로 그래프를 재구축한다")
+    void rebuildsAfterCrashWithoutFlush() throws Exception {
+        Path file = dir.resolve("room-2.hnsw");
+        Path crashed = Files.createDirectories(dir.resolve("crashed")).resolve("room-2.hnsw");
+        float[][] vectors = randomVectors(new Random(13), 60);  // 초기 용량 64 — 성장 없이 헤더 count만 뒤처진다
+
+        HnswIndex live = HnswIndex.open(file, DIM, 8, 64, 1);
+        try {
+            for (int i = 0; i < 30; i++) live.add(i, vectors[i]);
+            live.flush();
+            for (int i = 30; i < 60; i++) live.add(i, vectors[i]);  // 기존 노드 0층 링크가 30 이상을 가리킨다
+            // 프로세스가 여기서 죽은 것과 같은 디스크 상태 (헤더 count=30, dirty=1)
+            Files.copy(file, crashed, StandardCopyOption.REPLACE_EXISTING);
+            Files.copy(file.resolveSibling("room-2.hnsw.upper"), crashed.resolveSibling("room-2.hnsw.upper"),
+                StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            live.close();
+        }
+
+        try (HnswIndex recovered = HnswIndex.open(crashed, DIM, 8, 64, 1)) {
+            assertEquals(30, recovered.size());
+            assertEquals(30, recovered.slots());
+            for (int i = 0; i < 30; i++) {
+                List<HnswIndex.Hit> hits = recovered.search(vectors[i], 5, 32);
+                assertEquals((long) i, hits.get(0).id());
+                hits.forEach(hit -> assertTrue(hit.id() < 30, "flush 이후 추가분은 가리키지 않는다"));
+            }
+            recovered.add(100, vectors[45]);
+            assertEquals(100L, recovered.search(vectors[45], 1, 32).get(0).id());
+        }
+        try (HnswIndex reopened = HnswIndex.open(crashed, DIM, 8, 64, 1)) {
+            assertEquals(31, reopened.size(), "close가 dirty를 지워 재구축 없이 열린다");
+        }
+    }
+
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+    //  helpers (HnswIndexLoadTest 공용)
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+
+    static float[][] randomVectors(Random random, int n) {
+        return randomVectors(random, n, DIM);
+    }
+
+    static float[][] randomVectors(Random random, int n, int dim) {
+        float[][] vectors = new float[n][dim];
+        for (float[] v : vectors) {
+            for (int i = 0; i < dim; i++) v[i] = (float) random.nextGaussian();
+        }
+        return vectors;
+    }
+
+    static long[] bruteForce(float[][] vectors, float[] query, int k) {
+        PriorityQueue<double[]> top = new PriorityQueue<>(Comparator.comparingDouble(e -> e[1]));
+        double qn = norm(query);
+        for (int i = 0; i < vectors.length; i++) {
+            double dot = 0;
+            for (int d = 0; d < query.length; d++) dot += query[d] * vectors[i][d];
+            top.add(new double[]{i, dot / (qn * norm(vectors[i]))});
+            if (top.size() > k) top.poll();
+        }
+        long[] ids = new long[top.size()];
+        for (int i = 0; i < ids.length; i++) ids[i] = (long) top.poll()[0];
+        return ids;
+    }
+
+    static double overlap(long[] truth, List<HnswIndex.Hit> hits) {
+        Set<Long> expected = new HashSet<>();
+        for (long id : truth) expected.add(id);
+        int found = 0;
+        for (HnswIndex.Hit hit : hits) if (expected.contains(hit.id())) found++;
+        return (double) found / truth.length;
+    }
+
+    private static double norm(float[] v) {
+        double sum = 0;
+        for (float x : v) sum += x * x;
+        return Math.sqrt(sum);
+    }
+}
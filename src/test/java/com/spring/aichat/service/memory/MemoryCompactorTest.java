@@ -0,0 +1,71 @@
+package com.spring.aichat.service.memory;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * {@link MemoryCompactor#plan} — 병합 대상 선택, 최신 leaf 보호, 행 수 O(log turns), 시간순 불변식.
+ */
+class MemoryCompactorTest {
+
+    private static final int FANOUT = 4;
+    private static final int KEEP = 4;
+
+    @Test
+    @DisplayName("보호 구간(최신 leaf)은 병합하지 않고, 가장 낮은 tier의 가장 오래된 fanout개를 고른다")
+    void picksOldestRunOfLowestTier() {
+        List<MemoryCompactor.Node> nodes = new ArrayList<>();
+        long id = 1;
+        for (int i = 0; i < 4; i++) nodes.add(node(id++, 1, i));
+        for (int i = 0; i < 7; i++) nodes.add(node(id++, 0, 10 + i));
+
+        assertNull(MemoryCompactor.plan(nodes.subList(4, 11), FANOUT, 4), "leaf 7개 중 4개 보호 → 3개뿐");
+
+        MemoryCompactor.Run run = MemoryCompactor.plan(nodes.subList(0, 11), FANOUT, 3);
+        assertEquals(0, run.tier());
+        assertEquals(List.of(5L, 6L, 7L, 8L), run.ids());
+        assertEquals(1, run.targetTier());
+        assertEquals(13, run.turnNumber());
+
+        MemoryCompactor.Run upper = MemoryCompactor.plan(nodes.subList(0, 11), FANOUT, 7);
+        assertEquals(1, upper.tier(), "tier 0이 전부 보호면 위 tier");
+    }
+
+    @Test
+    @DisplayName("leaf 500개를 쌓아도 행 수는 keep + (fanout-1)·log_fanout(n) 이내, 시간순 tier 비증가")
+    void rowCountStaysLogarithmic() {
+        List<MemoryCompactor.Node> rows = new ArrayList<>();
+        long nextId = 1;
+        int merges = 0;
+        for (int turn = 1; turn <= 500; turn++) {
+            rows.add(node(nextId++, 0, turn * 10));
+            MemoryCompactor.Run run;
+            while ((run = MemoryCompactor.plan(rows, FANOUT, KEEP)) != null) {
+                int at = rows.indexOf(run.nodes().get(0));
+                rows.subList(at, at + FANOUT).clear();
+                rows.add(at, node(nextId++, run.targetTier(), run.turnNumber()));
+                merges++;
+            }
+
+            int bound = KEEP + (FANOUT - 1) * (int) Math.ceil(Math.log(turn + 1) / Math.log(FANOUT));
+            assertTrue(rows.size() <= bound, "turn " + turn + ": " + rows.size() + " > " + bound);
+            for (int i = 1; i < rows.size(); i++) {
+                assertTrue(rows.get(i - 1).tier() >= rows.get(i).tier(), "tier 순서 깨짐 @" + turn);
+                assertTrue(rows.get(i - 1).turnNumber() < rows.get(i).turnNumber(), "시간순 깨짐 @" + turn);
+            }
+        }
+        assertTrue(merges > 0);
+        for (int i = rows.size() - KEEP; i < rows.size(); i++) {
+            assertEquals(0, rows.get(i).tier(), "최신 leaf는 원문 유지");
+        }
+    }
+
+    private static MemoryCompactor.Node node(long id, int tier, int turn) {
+        return new MemoryCompactor.Node(id, tier, turn, "s" + id);
+    }
+}
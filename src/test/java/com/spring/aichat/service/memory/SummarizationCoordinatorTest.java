@@ -0,0 +1,99 @@
+package com.spring.aichat.service.memory;
+
+import com.spring.aichat.config.MetricsConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * {@link SummarizationCoordinator} — 버스트 합치기, 워터마크 재확인, 리스 경합 시 포기.
+ */
+class SummarizationCoordinatorTest {
+
+    @SuppressWarnings("unchecked")
+    private final ValueOperations<String, String> ops = mock(ValueOperations.class);
+    private final StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+    private final SummarizationCoordinator coordinator = new SummarizationCoordinator(redisTemplate, 180, 10);
+
+    private final AtomicInteger watermark = new AtomicInteger();
+    private final AtomicInteger head = new AtomicInteger();
+    private final List<int[]> windows = new ArrayList<>();
+
+    SummarizationCoordinatorTest() {
+        when(redisTemplate.opsForValue()).thenReturn(ops);
+    }
+
+    @Test
+    @DisplayName("실행 중 들어온 중복 트리거는 합쳐지고, 재확인 시 워터마크가 이미 전진해 LLM은 창당 1회")
+    void burstCoalescesIntoSingleWindow() {
+        when(ops.setIfAbsent(anyString(), anyString(), any(Duration.class))).thenReturn(true);
+        head.set(20);
+
+        coordinator.run(1L, watermark::get, head::get, (from, to) -> {
+            windows.add(new int[]{from, to});
+            for (int i = 0; i < 3; i++) trigger();   // 재시도 · V1/V2 중첩
+            head.addAndGet(2);                          // 요약 중에도 로그는 쌓인다
+            watermark.set(to);
+        });
+
+        assertEquals(1, windows.size());
+        assertArrayEquals(new int[]{0, 20}, windows.get(0));
+        SummarizationCoordinator.Stats stats = coordinator.getStats();
+        assertEquals(1, stats.summarized());
+        assertEquals(3, stats.coalesced());
+        assertEquals(1, stats.staleWindows(), "합쳐진 트리거는 1회 재확인 — 새 로그 2건 < min-new-logs");
+        assertEquals(4, stats.duplicatesSuppressed());
+
+        head.addAndGet(10);
+        trigger();
+        assertArrayEquals(new int[]{20, 32}, windows.get(1), "다음 창은 워터마크부터 정확히 이어진다");
+    }
+
+    @Test
+    @DisplayName("다른 인스턴스가 리스를 잡고 있으면 요약하지 않는다")
+    void leaseHeldElsewhereSkips() {
+        when(ops.setIfAbsent(anyString(), anyString(), any(Duration.class))).thenReturn(false);
+        head.set(40);
+
+        trigger();
+
+        assertTrue(windows.isEmpty());
+        assertEquals(1, coordinator.getStats().leaseContended());
+    }
+
+    @Test
+    @DisplayName("중복 억제 수는 사유별 memory.summarize.suppressed로 노출된다")
+    void statsBoundToRegistry() {
+        when(ops.setIfAbsent(anyString(), anyString(), any(Duration.class))).thenReturn(false);
+        head.set(40);
+        trigger();
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+        new MetricsConfig().summarizationMetrics(coordinator).bindTo(registry);
+
+        assertEquals(1.0, registry.get("memory.summarize.requests").functionCounter().count());
+        assertEquals(0.0, registry.get("memory.summarize.runs").functionCounter().count());
+        assertEquals(1.0, registry.get("memory.summarize.suppressed").tag("reason", "lease").functionCounter().count());
+        assertEquals(0.0, registry.get("memory.summarize.suppressed").tag("reason", "coalesced").functionCounter().count());
+    }
+
+    private void trigger() {
+        coordinator.run(1L, watermark::get, head::get, (from, to) -> {
+            windows.add(new int[]{from, to});
+            watermark.set(to);
+        });
+    }
+}
@@ -0,0 +1,154 @@
+package com.spring.aichat.service.metering;
+
+import com.spring.aichat.dto.openai.OpenAiUsage;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * {@link LlmUsageMeter} — 키별 델타 flush, DB 실패 시 재적재, 유휴 키 제거.
+ */
+class LlmUsageMeterTest {
+
+    /** LlmUsageMeter.IDLE_FLUSHES_BEFORE_EVICT */
+    private static final int IDLE_FLUSHES_BEFORE_EVICT = 10;
+
+    private final FakeStore store = new FakeStore();
+    private final LlmUsageMeter meter = new LlmUsageMeter(store);
+
+    @Test
+    @DisplayName("flush는 키별 합계를 한 행씩 쓰고 카운터를 비운다 — 다음 flush는 쓸 것이 없다")
+    void flushWritesDeltasPerKey() {
+        meter.record(LlmCaller.CHAT_V1, "gemini", "google", 1L, 10L, usage(100, 20, 60, 0.001));
+        meter.record(LlmCaller.CHAT_V1, "gemini", "google", 1L, 10L, usage(50, 5, 0, 0.0005));
+        meter.record(LlmCaller.STORY_V2, "gemini", "google", 2L, 10L, usage(10, 1, 0, null));
+
+        meter.flush();
+
+        assertEquals(1, store.batches.size());
+        List<LlmUsageMeter.UsageDelta> rows = sorted(store.batches.get(0).rows());
+        assertEquals(2, rows.size());
+        LlmUsageMeter.UsageDelta chat = rows.get(0);
+        assertEquals(LlmCaller.CHAT_V1, chat.caller());
+        assertEquals(2, chat.calls());
+        assertEquals(150, chat.promptTokens());
+        assertEquals(25, chat.completionTokens());
+        assertEquals(60, chat.cachedTokens());
+        assertEquals(1_500, chat.costMicros());
+        assertEquals(0, rows.get(1).costMicros(), "cost 미제공은 0");
+
+        meter.flush();
+        assertEquals(1, store.batches.size(), "델타 0이면 insert 없음");
+    }
+
+    @Test
+    @DisplayName("usage가 없는 호출은 호출 수만 센다")
+    void nullUsageCountsCallOnly() {
+        meter.record(LlmCaller.THEATER_BATCH, null, null, 3L, null, null);
+
+        meter.flush();
+
+        LlmUsageMeter.UsageDelta row = store.batches.get(0).rows().get(0);
+        assertEquals(1, row.calls());
+        assertEquals(0, row.promptTokens());
+        assertEquals("unknown", row.model());
+        assertEquals("default", row.provider());
+    }
+
+    @Test
+    @DisplayName("DB 쓰기가 실패하면 델타를 되돌려 다음 flush에 합산하고, 구간 시작도 실패한 flush의 시작을 유지한다")
+    void requeuesOnStoreFailure() {
+        meter.record(LlmCaller.CHAT_V1, "gemini", "google", 1L, 10L, usage(100, 20, 0, 0.001));
+        store.failNext = true;
+
+        meter.flush();
+        assertEquals(1, meter.pendingKeyCount());
+
+        meter.record(LlmCaller.CHAT_V1, "gemini", "google", 1L, 10L, usage(30, 3, 0, 0.0001));
+        meter.flush();
+
+        assertEquals(2, store.batches.size());
+        Batch failed = store.batches.get(0);
+        Batch retried = store.batches.get(1);
+        assertTrue(failed.failed());
+        assertFalse(retried.failed());
+        assertEquals(failed.from(), retried.from(), "재시도 구간은 실패한 구간부터");
+        LlmUsageMeter.UsageDelta row = retried.rows().get(0);
+        assertEquals(2, row.calls());
+        assertEquals(130, row.promptTokens());
+        assertEquals(23, row.completionTokens());
+        assertEquals(1_100, row.costMicros());
+    }
+
+    @Test
+    @DisplayName("연속 유휴 flush가 기준에 닿은 키만 제거하고, 그 사이 기록이 있으면 유휴 횟수를 다시 센다")
+    void evictsIdleKeys() {
+        meter.record(LlmCaller.CHAT_V1, "gemini", "google", 1L, 10L, usage(1, 1, 0, null));
+        meter.record(LlmCaller.CHAT_V1, "gemini", "google", 2L, 20L, usage(1, 1, 0, null));
+        meter.flush();
+
+        for (int i = 0; i < IDLE_FLUSHES_BEFORE_EVICT - 1; i++) {
+            meter.record(LlmCaller.CHAT_V1, "gemini", "google", 2L, 20L, usage(1, 1, 0, null));
+            meter.flush();
+        }
+        assertEquals(2, meter.pendingKeyCount(), "기준 - 1회까지는 유지");
+
+        meter.flush();
+        assertEquals(1, meter.pendingKeyCount(), "방 1 키만 제거 — 방 2는 방금 전까지 활동");
+
+        meter.record(LlmCaller.CHAT_V1, "gemini", "google", 1L, 10L, usage(7, 1, 0, null));
+        meter.flush();
+        LlmUsageMeter.UsageDelta revived = store.batches.get(store.batches.size() - 1).rows().stream()
+            .filter(r -> r.roomId() == 1L).findFirst().orElseThrow();
+        assertEquals(7, revived.promptTokens(), "제거된 키는 다음 기록에서 새로 시작");
+    }
+
+    @Test
+    @DisplayName("프롬프트 캐시 누적은 flush와 무관하게 caller별로 쌓인다")
+    void cacheStatsSurviveFlush() {
+        meter.record(LlmCaller.CHAT_V1, "gemini", "google", 1L, 10L, usage(100, 1, 75, null));
+        meter.flush();
+        meter.record(LlmCaller.CHAT_V1, "gemini", "google", 1L, 10L, usage(100, 1, 25, null));
+
+        LlmUsageMeter.CacheStats stats = meter.getCacheStats().get(LlmCaller.CHAT_V1);
+        assertEquals(200, stats.promptTokens());
+        assertEquals(0.5, stats.cachedRate(), 1e-9);
+    }
+
+    private static OpenAiUsage usage(long prompt, long completion, long cached, Double cost) {
+        return new OpenAiUsage(prompt, completion, prompt + completion,
+            new OpenAiUsage.PromptTokensDetails(cached), cost);
+    }
+
+    private static List<LlmUsageMeter.UsageDelta> sorted(List<LlmUsageMeter.UsageDelta> rows) {
+        List<LlmUsageMeter.UsageDelta> copy = new ArrayList<>(rows);
+        copy.sort(Comparator.comparing(LlmUsageMeter.UsageDelta::caller));
+        return copy;
+    }
+
+    private record Batch(LocalDateTime from, LocalDateTime to, List<LlmUsageMeter.UsageDelta> rows, boolean failed) {}
+
+    /** insertBatch 호출을 기록 — failNext면 1회 실패 */
+    private static final class FakeStore extends LlmUsageStore {
+        final List<Batch> batches = new ArrayList<>();
+        boolean failNext;
+
+        FakeStore() {
+            super(null);
+        }
+
+        @Override
+        public void insertBatch(LocalDateTime from, LocalDateTime to, List<LlmUsageMeter.UsageDelta> rows) {
+            boolean fail = failNext;
+            failNext = false;
+            batches.add(new Batch(from, to, List.copyOf(rows), fail));
+            if (fail) throw new IllegalStateException("db down");
+        }
+    }
+}
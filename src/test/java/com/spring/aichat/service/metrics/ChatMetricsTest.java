@@ -0,0 +1,59 @@
+package com.spring.aichat.service.metrics;
+
+import com.spring.aichat.domain.enums.ChatMode;
+import com.spring.aichat.external.OpenRouterStreamClient.StreamResult;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * {@link ChatMetrics} — mode/model 태그, 미측정값(-1) 생략, route별 SSE 활성 게이지.
+ */
+class ChatMetricsTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final ChatMetrics metrics = new ChatMetrics(registry);
+
+    @Test
+    @DisplayName("스트림 1건은 mode/model 태그로 TTFT·전체를 기록하고, 씬이 없으면(TTFS=-1) TTFS는 건너뛴다")
+    void recordStreamTagsAndSkipsMissingTtfs() {
+        StreamResult result = new StreamResult("{}", null, 420, -1, 0, null);
+
+        metrics.recordStream(ChatMode.STORY, "google/gemini-3-flash-preview", result, 1800);
+
+        Timer ttft = registry.find("chat.llm.ttft")
+            .tags("mode", "STORY", "model", "google/gemini-3-flash-preview").timer();
+        assertNotNull(ttft);
+        assertEquals(420, ttft.totalTime(TimeUnit.MILLISECONDS), 0.5);
+        assertNull(registry.find("chat.llm.ttfs").timer());
+        assertEquals(1, registry.find("chat.llm.stream").tag("mode", "STORY").timer().count());
+    }
+
+    @Test
+    @DisplayName("mode/model을 모르면 NONE 태그로 떨어진다")
+    void missingTagsFallBackToNone() {
+        metrics.recordStage(null, "tx2", 12);
+
+        assertNotNull(registry.find("chat.stage").tags("mode", "NONE", "stage", "tx2").timer());
+    }
+
+    @Test
+    @DisplayName("SSE 게이지는 route별로 연결마다 +1 (감소는 서블릿 비동기 완료 콜백 경로)")
+    void sseGaugePerRoute() {
+        metrics.trackSse(new SseEmitter(), "chat");
+        metrics.trackSse(new SseEmitter(), "chat");
+        metrics.trackSse(new SseEmitter(), "story_v2");
+
+        Gauge chat = registry.find("chat.sse.active").tag("route", "chat").gauge();
+        Gauge story = registry.find("chat.sse.active").tag("route", "story_v2").gauge();
+        assertEquals(2, chat.value());
+        assertEquals(1, story.value());
+    }
+}
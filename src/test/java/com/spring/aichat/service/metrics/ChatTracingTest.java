@@ -0,0 +1,65 @@
+package com.spring.aichat.service.metrics;
+
+import com.spring.aichat.domain.enums.ChatMode;
+import io.micrometer.tracing.test.simple.SimpleSpan;
+import io.micrometer.tracing.test.simple.SimpleTracer;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * {@link ChatTracing} — 인메모리 {@link SimpleTracer}로 스팬 수명 · 에러 · 스레드 경계 전파 확인.
+ */
+class ChatTracingTest {
+
+    private final SimpleTracer tracer = new SimpleTracer();
+    private final ChatTracing tracing = new ChatTracing(tracer);
+
+    @Test
+    @DisplayName("inSpan은 mode 태그를 달고 끝낸다, 본문 실패면 error를 남기고 그대로 던진다")
+    void inSpanTagsAndRecordsError() {
+        IllegalStateException boom = new IllegalStateException("tx2 failed");
+
+        assertThrows(IllegalStateException.class,
+            () -> tracing.inSpan("chat.tx2", ChatMode.SANDBOX, () -> { throw boom; }));
+
+        SimpleSpan span = tracer.getSpans().getLast();
+        assertEquals("chat.tx2", span.getName());
+        assertEquals("SANDBOX", span.getTags().get("chat.mode"));
+        assertSame(boom, span.getError());
+        assertNull(tracer.currentSpan());
+    }
+
+    @Test
+    @DisplayName("wrap한 태스크는 다른 스레드(워치독 · 전용 풀)에서도 제출 시점 스팬에 이벤트를 단다")
+    void wrapPropagatesAcrossThreads() throws Exception {
+        ExecutorService watchdog = Executors.newSingleThreadExecutor();
+        try (ChatTracing.Span span = tracing.start("llm.stream", null)) {
+            Future<?> done = watchdog.submit(tracing.wrap(() -> tracing.event("ttft_deadline_exceeded")));
+            done.get(2, TimeUnit.SECONDS);
+        } finally {
+            watchdog.shutdownNow();
+        }
+
+        SimpleSpan span = tracer.getSpans().getLast();
+        assertEquals("llm.stream", span.getName());
+        assertTrue(span.getEvents().stream().anyMatch(e -> "ttft_deadline_exceeded".equals(e.getValue())));
+    }
+
+    @Test
+    @DisplayName("Span.close는 여러 번 불려도 한 번만 끝낸다")
+    void closeIsIdempotent() {
+        ChatTracing.Span span = tracing.start("chat.stream", ChatMode.STORY);
+        span.close();
+        span.close();
+
+        assertEquals(1, tracer.getSpans().size());
+        assertNull(tracer.currentSpan());
+    }
+}
@@ -0,0 +1,66 @@
+package com.spring.aichat.service.prompt;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 시스템 프롬프트 조립 벤치마크 — 턴당 조립 시간·할당 바이트 (fragment 캐시 on/off)
+ *
+ * <p>같은 방에서 턴을 반복하는 정상 상태를 재현한다 (동적 블록: 장기 기억·스탯만 매 턴 변화).
+ * 할당량은 {@code com.sun.management.ThreadMXBean#getCurrentThreadAllocatedBytes} 기준.
+ * <pre>./gradlew loadTest --tests '*CharacterPromptAssemblerLoadTest'</pre>
+ */
+@Tag("load")
+class CharacterPromptAssemblerLoadTest {
+
+    private static final int WARMUP = 5_000;
+    private static final int TURNS = 20_000;
+
+    @Test
+    @DisplayName("턴당 조립 시간/할당 — 캐시 경유가 비캐시보다 적다")
+    void assemblyCostPerTurn() {
+        Result uncached = run(false);
+        Result cached = run(true);
+
+        System.out.printf("[PROMPT-BENCH] uncached: %.1fµs/turn, %,dB/turn%n", uncached.micros(), uncached.bytes());
+        System.out.printf("[PROMPT-BENCH] cached:   %.1fµs/turn, %,dB/turn%n", cached.micros(), cached.bytes());
+
+        assertTrue(cached.bytes() < uncached.bytes(), "캐시 경유 할당이 더 적어야 한다");
+        assertTrue(cached.micros() < uncached.micros(), "캐시 경유 조립이 더 빨라야 한다");
+    }
+
+    private record Result(double micros, long bytes) {}
+
+    private Result run(boolean cacheEnabled) {
+        CharacterPromptAssemblerTest.Fixture fixture = new CharacterPromptAssemblerTest.Fixture();
+        CharacterPromptAssembler assembler = fixture.assembler(cacheEnabled);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+        long sink = 0;
+        for (int i = 0; i < WARMUP; i++) {
+            sink += turn(fixture, assembler, i);
+        }
+
+        long allocatedBefore = threads.getCurrentThreadAllocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < TURNS; i++) {
+            sink += turn(fixture, assembler, i);
+        }
+        long elapsed = System.nanoTime() - start;
+        long allocated = threads.getCurrentThreadAllocatedBytes() - allocatedBefore;
+
+        assertTrue(sink > 0);
+        return new Result(elapsed / 1_000.0 / TURNS, allocated / TURNS);
+    }
+
+    private static long turn(CharacterPromptAssemblerTest.Fixture fixture, CharacterPromptAssembler assembler, int i) {
+        fixture.room.applyNormalStatChanges(i % 2, 0, 0, 0, 0);
+        CharacterPromptAssembler.SystemPromptPayload payload = fixture.assemble(assembler);
+        return payload.staticRules().length() + payload.dynamicRules().length() + payload.outputFormat().length();
+    }
+}
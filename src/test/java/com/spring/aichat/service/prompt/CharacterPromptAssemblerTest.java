@@ -0,0 +1,133 @@
+package com.spring.aichat.service.prompt;
+
+import com.spring.aichat.config.LegacyFeatureProperties;
+import com.spring.aichat.config.SceneIllustrationProperties;
+import com.spring.aichat.domain.character.Character;
+import com.spring.aichat.domain.chat.ChatRoom;
+import com.spring.aichat.domain.enums.RelationStatus;
+import com.spring.aichat.domain.enums.WorldId;
+import com.spring.aichat.domain.ugc.UgcWorldLocationRepository;
+import com.spring.aichat.domain.ugc.UgcWorldRepository;
+import com.spring.aichat.domain.user.User;
+import com.spring.aichat.domain.world.World;
+import com.spring.aichat.domain.world.WorldRepository;
+import com.spring.aichat.security.PromptInjectionGuard;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * {@link CharacterPromptAssembler} + {@link PromptFragmentCache} — 캐시 경유 출력이 캐시 없는 조립과 바이트 동일한지.
+ *
+ * <p>같은 방에 입력을 하나씩 바꿔 가며(시크릿, 관계 단계, 디렉터 인터루드, 동적 장소, 캐릭터 수정)
+ * 매 턴 두 조립기의 결과를 비교한다. fragment 키에서 입력이 하나라도 빠지면 이전 턴 블록이 재사용되어 깨진다.
+ */
+class CharacterPromptAssemblerTest {
+
+    @Test
+    @DisplayName("입력 변화가 섞인 턴 시퀀스 — 캐시 조립 결과가 비캐시 조립과 매 턴 동일")
+    void cachedOutputMatchesUncached() {
+        Fixture fixture = new Fixture();
+        CharacterPromptAssembler cached = fixture.assembler(true);
+        CharacterPromptAssembler uncached = fixture.assembler(false);
+
+        List<Consumer<Fixture>> turns = List.of(
+            f -> {},
+            f -> {},
+            f -> f.secret = true,
+            f -> f.secret = false,
+            f -> f.room.updateStatusLevel(RelationStatus.FRIEND),
+            f -> f.room.setDirectorInterlude("비가 쏟아지기 시작했다.", "우산을 나눠 쓰자고 먼저 말을 꺼낸다."),
+            f -> f.room.startDirectorEvent(),
+            f -> f.room.clearDirectorInterlude(),
+            f -> f.room.updateEventStatus("RESOLVED"),
+            f -> f.room.updateDynamicLocationName("심야의 무인 카페", "MODERN__CAFE_NIGHT_UNMANNED"),
+            f -> ReflectionTestUtils.setField(f.character, "backstory", "어릴 적 이 저택에 맡겨졌다. 주인의 얼굴은 기억나지 않는다."),
+            f -> f.room.updateStatusLevel(RelationStatus.LOVER),
+            f -> {}
+        );
+
+        for (int i = 0; i < turns.size(); i++) {
+            turns.get(i).accept(fixture);
+            CharacterPromptAssembler.SystemPromptPayload expected = fixture.assemble(uncached);
+            CharacterPromptAssembler.SystemPromptPayload actual = fixture.assemble(cached);
+
+            assertEquals(expected.staticRules(), actual.staticRules(), "staticRules mismatch at turn " + i);
+            assertEquals(expected.dynamicRules(), actual.dynamicRules(), "dynamicRules mismatch at turn " + i);
+            assertEquals(expected.outputFormat(), actual.outputFormat(), "outputFormat mismatch at turn " + i);
+            assertEquals(expected.staticFingerprint(), actual.staticFingerprint());
+        }
+    }
+
+    @Test
+    @DisplayName("입력이 같은 다음 턴은 같은 static prefix 인스턴스를 재사용한다")
+    void steadyStateReusesPrefix() {
+        Fixture fixture = new Fixture();
+        PromptFragmentCache cache = new PromptFragmentCache(true, 1_000_000, 4_000_000);
+        CharacterPromptAssembler assembler = fixture.assembler(cache);
+
+        CharacterPromptAssembler.SystemPromptPayload first = fixture.assemble(assembler);
+        CharacterPromptAssembler.SystemPromptPayload second = fixture.assemble(assembler);
+
+        assertSame(first.staticRules(), second.staticRules());
+        assertSame(first.outputFormat(), second.outputFormat());
+        assertEquals(1, cache.getStats().prefixHits());
+        assertEquals(PromptFragmentCache.fingerprint(first.staticRules()), second.staticFingerprint());
+
+        fixture.secret = true;
+        assertNotEquals(first.staticFingerprint(), fixture.assemble(assembler).staticFingerprint());
+    }
+
+    /** 시드 캐릭터 1명 + 공식 세계관 + 샌드박스 방. 부하 테스트와 공유 */
+    static final class Fixture {
+        final Character character = new Character("아이리", "airi", "", "mock/model");
+        final ChatRoom room;
+        final User user = mock(User.class);
+        final World world = new World();
+        boolean secret;
+
+        Fixture() {
+            ReflectionTestUtils.setField(character, "age", 19);
+            ReflectionTestUtils.setField(character, "personality", "무뚝뚝하지만 속정이 깊다");
+            ReflectionTestUtils.setField(character, "tone", "짧고 건조한 존댓말");
+            ReflectionTestUtils.setField(character, "backstory", "저택에서 일한 지 3년째인 메이드.");
+            ReflectionTestUtils.setField(character, "baseOutfits", "MAID");
+            ReflectionTestUtils.setField(character, "acquaintanceUnlockOutfits", "CASUAL");
+            ReflectionTestUtils.setField(character, "friendUnlockOutfits", "SWIMSUIT");
+            ReflectionTestUtils.setField(character, "outfitDescriptions",
+                "MAID: 단정한 메이드복\nCASUAL: 니트와 롱스커트\nSWIMSUIT: 하얀 원피스 수영복");
+            ReflectionTestUtils.setField(character, "worldId", WorldId.values()[0]);
+            ReflectionTestUtils.setField(world, "id", WorldId.values()[0]);
+            ReflectionTestUtils.setField(world, "displayName", "현대 고등학교");
+            ReflectionTestUtils.setField(world, "description", "평범한 도시의 사립 고등학교.");
+            room = new ChatRoom(user, character);
+        }
+
+        CharacterPromptAssembler assembler(boolean cacheEnabled) {
+            return assembler(new PromptFragmentCache(cacheEnabled, 1_000_000, 4_000_000));
+        }
+
+        CharacterPromptAssembler assembler(PromptFragmentCache cache) {
+            WorldRepository worldRepository = mock(WorldRepository.class);
+            when(worldRepository.findById(any())).thenReturn(Optional.of(world));
+            LegacyFeatureProperties legacy = new LegacyFeatureProperties();
+            legacy.getUnlock().setRelationGated(true);
+            return new CharacterPromptAssembler(new PromptInjectionGuard(), worldRepository,
+                mock(UgcWorldRepository.class), mock(UgcWorldLocationRepository.class),
+                new SceneIllustrationProperties(false, null, null), legacy, cache);
+        }
+
+        CharacterPromptAssembler.SystemPromptPayload assemble(CharacterPromptAssembler assembler) {
+            return assembler.assembleSystemPrompt(character, room, user, "첫 만남: 비 오는 현관에서", secret);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.spring.aichat.service.prompt;
+
+import com.spring.aichat.config.TokenBudgetProperties;
+import com.spring.aichat.domain.enums.ChatMode;
+import com.spring.aichat.domain.enums.ChatModePolicy;
+import com.spring.aichat.dto.openai.OpenAiMessage;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * {@link TokenEstimator} + {@link ContextBudgeter} — 문자 클래스별 추정, 예산 트리밍 단위, max_tokens 범위.
+ */
+class ContextBudgeterTest {
+
+    private static final String MODEL = "google/gemini-3-flash-preview";
+    private static final String NARRATION =
+        "창밖으로 비가 내린다. 그녀는 찻잔을 두 손으로 감싸 쥔 채 한참 동안 말이 없었다. "
+            + "\"오늘은… 조금 더 같이 있어 줄래? 비가 그칠 때까지만이라도.\"";
+
+    private final TokenEstimator estimator = new TokenEstimator();
+
+    private ContextBudgeter budgeter(int contextTokens) {
+        TokenBudgetProperties properties = new TokenBudgetProperties();
+        properties.setContextTokens(contextTokens);
+        return new ContextBudgeter(estimator, properties);
+    }
+
+    @Test
+    @DisplayName("한글은 음절 단위, 영문은 단어 단위 — 어휘가 큰 모델 계열일수록 한글 토큰이 적다")
+    void estimatesByCharacterClass() {
+        assertEquals(0, TokenEstimator.estimate("", TokenEstimator.Profile.GEMINI));
+        assertEquals(3, TokenEstimator.estimate("the cat sat", TokenEstimator.Profile.DEFAULT));
+        assertEquals(7, TokenEstimator.estimate("{\"a\":1}", TokenEstimator.Profile.DEFAULT));
+
+        int gemini = TokenEstimator.estimate(NARRATION, TokenEstimator.Profile.GEMINI);
+        int o200k = TokenEstimator.estimate(NARRATION, TokenEstimator.Profile.O200K);
+        int fallback = TokenEstimator.estimate(NARRATION, TokenEstimator.Profile.DEFAULT);
+        assertTrue(gemini < o200k && o200k < fallback, gemini + " / " + o200k + " / " + fallback);
+        assertTrue(gemini > NARRATION.length() / 4, "글자 수/4 추정보다 커야 한다: " + gemini);
+
+        assertEquals(TokenEstimator.Profile.GEMINI, TokenEstimator.Profile.of(MODEL));
+        assertEquals(TokenEstimator.Profile.O200K, TokenEstimator.Profile.of("openai/gpt-5.6-sol"));
+        assertEquals(TokenEstimator.Profile.DEFAULT, TokenEstimator.Profile.of("anthropic/claude-sonnet-4"));
+    }
+
+    @Test
+    @DisplayName("예산 안이면 전부, 넘으면 오래된 쪽부터 granularity 단위로 덜어내고 최근 MIN_KEEP개는 유지")
+    void trimsOldestInBlocks() {
+        List<OpenAiMessage> turns = turns(20);
+        int perTurn = estimator.estimate(turns.get(0), MODEL);
+        int ceiling = ChatModePolicy.getMaxOutputTokens(ChatMode.SANDBOX);
+
+        ContextBudgeter.Plan roomy = budgeter(ceiling + 1_000 + perTurn * 20).plan(MODEL, ChatMode.SANDBOX, 1_000, turns, 10);
+        assertEquals(0, roomy.skip());
+        assertEquals(1_000 + perTurn * 20, roomy.promptTokens());
+
+        ContextBudgeter.Plan tight = budgeter(ceiling + 1_000 + perTurn * 15).plan(MODEL, ChatMode.SANDBOX, 1_000, turns, 10);
+        assertEquals(10, tight.skip(), "블록 경계까지 한 번에 덜어낸다");
+
+        ContextBudgeter.Plan perMessage = budgeter(ceiling + 1_000 + perTurn * 15).plan(MODEL, ChatMode.SANDBOX, 1_000, turns, 1);
+        assertEquals(5, perMessage.skip());
+
+        ContextBudgeter.Plan starved = budgeter(ceiling).plan(MODEL, ChatMode.SANDBOX, 50_000, turns, 1);
+        assertEquals(20 - ContextBudgeter.MIN_KEEP, starved.skip());
+        assertEquals(ChatModePolicy.getMinOutputTokens(ChatMode.SANDBOX), starved.maxTokens());
+    }
+
+    @Test
+    @DisplayName("max_tokens는 모드별 [하한, 상한] — 비활성이면 상한 고정에 트리밍 없음")
+    void maxTokensPerMode() {
+        List<OpenAiMessage> turns = turns(6);
+        assertEquals(ChatModePolicy.getMaxOutputTokens(ChatMode.STORY),
+            budgeter(1_000_000).plan(MODEL, ChatMode.STORY, 1_000, turns, 1).maxTokens());
+
+        TokenBudgetProperties disabled = new TokenBudgetProperties();
+        disabled.setEnabled(false);
+        disabled.setContextTokens(1);
+        ContextBudgeter.Plan plan = new ContextBudgeter(estimator, disabled).plan(MODEL, ChatMode.SANDBOX, 50_000, turns, 1);
+        assertEquals(new ContextBudgeter.Plan(0, 0, ChatModePolicy.getMaxOutputTokens(ChatMode.SANDBOX)), plan);
+    }
+
+    private static List<OpenAiMessage> turns(int n) {
+        List<OpenAiMessage> turns = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            turns.add(new OpenAiMessage(i % 2 == 0 ? "user" : "assistant", NARRATION, null));
+        }
+        return turns;
+    }
+}
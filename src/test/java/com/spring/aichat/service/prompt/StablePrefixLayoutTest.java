@@ -0,0 +1,61 @@
+package com.spring.aichat.service.prompt;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * {@link StablePrefixLayout#align} — 윈도우 시작이 블록 경계에서만 움직이고, 한 블록 동안 prefix가 append-only인지.
+ */
+class StablePrefixLayoutTest {
+
+    private static final int WINDOW = 20;
+    private static final int BLOCK = 10;
+
+    @Test
+    @DisplayName("윈도우가 가득 차기 전에는 처음부터, 완결 블록이 있으면 그 끝을 가리킨다")
+    void shortHistory() {
+        assertEquals(new StablePrefixLayout.Window(0, -1), StablePrefixLayout.align(3, 3, BLOCK));
+        assertEquals(new StablePrefixLayout.Window(0, 9), StablePrefixLayout.align(10, 10, BLOCK));
+        assertEquals(new StablePrefixLayout.Window(0, 9), StablePrefixLayout.align(15, 15, BLOCK));
+        assertEquals(new StablePrefixLayout.Window(0, 19), StablePrefixLayout.align(20, 20, BLOCK));
+    }
+
+    @Test
+    @DisplayName("슬라이딩 윈도우에서도 사용 구간의 절대 시작은 블록 배수이고, 블록 안에서는 이전 턴 prefix를 그대로 포함한다")
+    void appendOnlyWithinBlock() {
+        List<Long> previous = null;
+        for (long total = 1; total <= 100; total++) {
+            int size = (int) Math.min(total, WINDOW);
+            long first = total - size;
+            StablePrefixLayout.Window w = StablePrefixLayout.align(total, size, BLOCK);
+
+            long absStart = first + w.from();
+            assertEquals(0, absStart % BLOCK, "start not aligned at total=" + total);
+            assertTrue(total - absStart >= Math.min(total, WINDOW - BLOCK + 1), "too short at total=" + total);
+            if (w.sealedEnd() >= 0) {
+                assertEquals(BLOCK - 1, (first + w.sealedEnd()) % BLOCK);
+                assertTrue(w.sealedEnd() >= w.from());
+            }
+
+            List<Long> used = LongStream.range(absStart, total).boxed().toList();
+            if (previous != null && !previous.isEmpty() && previous.get(0) == absStart) {
+                assertEquals(previous, used.subList(0, previous.size()), "prefix broken at total=" + total);
+            } else if (previous != null) {
+                assertEquals(0, (total - 1) % BLOCK, "start moved mid-block at total=" + total);
+            }
+            previous = used;
+        }
+    }
+
+    @Test
+    @DisplayName("윈도우의 약수가 아닌 블록 크기는 윈도우 크기로 보정")
+    void invalidBlockSizeFallsBack() {
+        StablePrefixLayout layout = new StablePrefixLayout(true, 7);
+        assertEquals(StablePrefixLayout.align(33, 20, WINDOW), layout.align(33, 20));
+    }
+}
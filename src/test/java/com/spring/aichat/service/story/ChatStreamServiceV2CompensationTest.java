@@ -4,6 +4,7 @@ import com.spring.aichat.domain.chat.ChatLogMongoRepository;
 import com.spring.aichat.domain.chat.ChatRoomRepository;
 import com.spring.aichat.domain.user.User;
 import com.spring.aichat.domain.user.UserRepository;
+import com.spring.aichat.service.cache.ChatContextCache;
 import com.spring.aichat.service.cache.RedisCacheService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -40,6 +41,7 @@ import static org.mockito.Mockito.*;
 @MockitoSettings(strictness = Strictness.LENIENT)
 class ChatStreamServiceV2CompensationTest {
 
+    private static final Long ROOM_ID = 3L;
     private static final Long USER_ID = 7L;
     private static final String USERNAME = "tester";
     private static final int ENERGY_COST = 2;
@@ -49,6 +51,7 @@ class ChatStreamServiceV2CompensationTest {
     @Mock private ChatLogMongoRepository chatLogRepository;
     @Mock private TransactionTemplate txTemplate;
     @Mock private RedisCacheService cacheService;
+    @Mock private ChatContextCache chatContextCache;
 
     @InjectMocks private ChatStreamServiceV2 service;
 
@@ -100,11 +103,12 @@ class ChatStreamServiceV2CompensationTest {
     @DisplayName("compensateFullRollback: LLM/파싱 실패 경로에서 로그 삭제 + 에너지 환불을 모두 수행한다")
     void compensateFullRollback_refundsEnergy() {
         when(userRepository.findById(USER_ID)).thenReturn(Optional.of(user));
-        var ctx = new ChatStreamServiceV2.RollbackContext(USER_ID, USERNAME, ENERGY_COST, "log-1");
+        var ctx = new ChatStreamServiceV2.RollbackContext(ROOM_ID, USER_ID, USERNAME, ENERGY_COST, "log-1");
 
         service.compensateFullRollback(ctx);
 
         verify(chatLogRepository).deleteById("log-1");
+        verify(chatContextCache).invalidate(ROOM_ID);
         assertEquals(30, user.getEnergy());  // TX-1 차감분 복구 — 기존 결함은 여기서 28로 소실
         verify(userRepository).save(user);
         verify(cacheService).evictUserProfile(USERNAME);
@@ -115,7 +119,7 @@ class ChatStreamServiceV2CompensationTest {
     void compensateFullRollback_logDeleteFails_stillRefunds() {
         when(userRepository.findById(USER_ID)).thenReturn(Optional.of(user));
         doThrow(new RuntimeException("mongo down")).when(chatLogRepository).deleteById("log-1");
-        var ctx = new ChatStreamServiceV2.RollbackContext(USER_ID, USERNAME, ENERGY_COST, "log-1");
+        var ctx = new ChatStreamServiceV2.RollbackContext(ROOM_ID, USER_ID, USERNAME, ENERGY_COST, "log-1");
 
         assertDoesNotThrow(() -> service.compensateFullRollback(ctx));
 
@@ -128,7 +132,7 @@ class ChatStreamServiceV2CompensationTest {
     @DisplayName("compensateFullRollback: 오프닝 경로(energyCost=0, savedUserLogId=null)는 삭제 없이 잔액 불변")
     void compensateFullRollback_openingPath_zeroCostNoop() {
         when(userRepository.findById(USER_ID)).thenReturn(Optional.of(user));
-        var ctx = new ChatStreamServiceV2.RollbackContext(USER_ID, USERNAME, 0, null);
+        var ctx = new ChatStreamServiceV2.RollbackContext(ROOM_ID, USER_ID, USERNAME, 0, null);
 
         service.compensateFullRollback(ctx);
 
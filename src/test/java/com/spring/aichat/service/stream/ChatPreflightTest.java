@@ -0,0 +1,147 @@
+package com.spring.aichat.service.stream;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * {@link ChatPreflight} — 병렬 단계 결과 수집, 실패 시 형제 즉시 취소(fail-fast), 단계별 계측, 투기 쓰기 abort.
+ */
+class ChatPreflightTest {
+
+    private final ChatPreflight preflight = new ChatPreflight(false);
+
+    @Test
+    @DisplayName("fork 단계는 inline 단계와 겹쳐 실행되고, join 후 결과와 단계별 시간이 남는다")
+    void stagesOverlapInlineWork() throws Exception {
+        CountDownLatch forkedStarted = new CountDownLatch(1);
+        try (ChatPreflight.Scope scope = preflight.open()) {
+            ChatPreflight.Stage<String> memory = scope.fork("memory", () -> {
+                forkedStarted.countDown();
+                return "m";
+            });
+            boolean overlapped = scope.inline("tx1", () -> forkedStarted.await(2, TimeUnit.SECONDS));
+            scope.join();
+
+            assertTrue(overlapped);
+            assertEquals("m", memory.get());
+            assertTrue(scope.timings().contains("memory="));
+            assertTrue(scope.timings().contains("tx1="));
+        }
+        assertEquals(1, preflight.getStats().get("preflight").count());
+        preflight.shutdown();
+    }
+
+    @Test
+    @DisplayName("한 단계가 실패하면 느린 형제를 기다리지 않고 인터럽트 취소한 뒤 원인을 던진다")
+    void failureCancelsSiblings() {
+        AtomicBoolean interrupted = new AtomicBoolean();
+        long start = System.currentTimeMillis();
+        IllegalStateException thrown = assertThrows(IllegalStateException.class, () -> {
+            try (ChatPreflight.Scope scope = preflight.open()) {
+                scope.fork("slow", () -> {
+                    try {
+                        Thread.sleep(10_000);
+                    } catch (InterruptedException e) {
+                        interrupted.set(true);
+                    }
+                    return null;
+                });
+                scope.fork("moderation", () -> {
+                    throw new IllegalStateException("blocked");
+                });
+                scope.join();
+            }
+        });
+
+        assertEquals("blocked", thrown.getMessage());
+        assertTrue(System.currentTimeMillis() - start < 5_000, "fail-fast");
+        assertTrue(waitFor(interrupted), "형제 단계 인터럽트");
+        preflight.shutdown();
+    }
+
+    @Test
+    @DisplayName("투기 쓰기: USER 저장이 실패하면 abort가 취소되고 gate는 이벤트를 버리며, 커밋된 차감액만 보상 대상")
+    void failedWriteAbortsStreamAndGatesEvents() {
+        ChatPreflight.Writes writes = preflight.beginWrites(() -> 3);
+        writes.thenSaveUserLog(() -> {
+            throw new IllegalStateException("mongo down");
+        });
+        List<String> sent = new CopyOnWriteArrayList<>();
+        Consumer<String> gated = writes.gate((Consumer<String>) sent::add);
+
+        gated.accept("scene-0");
+
+        assertTrue(sent.isEmpty(), "실패한 턴의 이벤트는 나가지 않는다");
+        assertTrue(writes.abort().isCancelled());
+        assertFalse(writes.awaitCommitted());
+        assertFalse(writes.debitFailed());
+        assertEquals(3, writes.energyCost());
+        assertNull(writes.userLogId());
+        preflight.shutdown();
+    }
+
+    @Test
+    @DisplayName("투기 쓰기: 차감이 실패하면 USER 저장은 실행되지 않는다")
+    void failedDebitSkipsUserSave() {
+        AtomicBoolean saved = new AtomicBoolean();
+        ChatPreflight.Writes writes = preflight.beginWrites(() -> {
+            throw new IllegalStateException("insufficient energy");
+        });
+        writes.thenSaveUserLog(() -> {
+            saved.set(true);
+            return "log-1";
+        });
+
+        assertFalse(writes.awaitCommitted());
+        assertTrue(writes.debitFailed());
+        assertEquals(0, writes.energyCost());
+        assertFalse(saved.get());
+        assertTrue(writes.abort().isCancelled());
+        preflight.shutdown();
+    }
+
+    @Test
+    @DisplayName("풀이 상한까지 차 있으면 거부된 단계는 호출 스레드에서 실행되고 거부 수가 남는다")
+    void saturatedPoolRunsStageInline() throws Exception {
+        ChatPreflight bounded = new ChatPreflight(false, 1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch occupied = new CountDownLatch(1);
+        try (ChatPreflight.Scope scope = bounded.open()) {
+            scope.fork("slow", () -> {
+                occupied.countDown();
+                return release.await(5, TimeUnit.SECONDS);
+            });
+            assertTrue(occupied.await(5, TimeUnit.SECONDS));
+            Thread caller = Thread.currentThread();
+            ChatPreflight.Stage<Thread> inline = scope.fork("history", Thread::currentThread);
+            release.countDown();
+            scope.join();
+
+            assertSame(caller, inline.get());
+            assertEquals(1, bounded.getRejectedCount());
+            assertEquals(1, bounded.getExecutor().getMaximumPoolSize());
+        } finally {
+            bounded.shutdown();
+        }
+    }
+
+    private static boolean waitFor(AtomicBoolean flag) {
+        for (int i = 0; i < 100 && !flag.get(); i++) {
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                return false;
+            }
+        }
+        return flag.get();
+    }
+}
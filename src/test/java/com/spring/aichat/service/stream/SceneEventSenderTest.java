@@ -0,0 +1,117 @@
+package com.spring.aichat.service.stream;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.spring.aichat.domain.enums.EmotionTag;
+import com.spring.aichat.dto.chat.SendChatResponse.SceneResponse;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * {@link SceneEventSender} — scene 이벤트 발송 순서, first_scene 호환, final_result scenes null 판정.
+ */
+class SceneEventSenderTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    @DisplayName("스캐너가 닫는 씬마다 scene 이벤트 — index 0은 first_scene이 먼저, 전부 전달되면 final_result.scenes=null")
+    void streamsEveryScene() throws Exception {
+        RecordingEmitter emitter = new RecordingEmitter(-1);
+        SceneEventSender sender = new SceneEventSender(emitter, objectMapper);
+        SceneStreamScanner scanner = new SceneStreamScanner(new SceneStreamScanner.Listener() {
+            @Override
+            public void onScene(int index, String sceneJson) {
+                try {
+                    JsonNode scene = objectMapper.readTree(sceneJson);
+                    sender.send(index, scene(scene.get("dialogue").asText()));
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        });
+        String reply = "{\"scenes\": [{\"dialogue\": \"하나\"}, {\"dialogue\": \"둘\"}, {\"dialogue\": \"셋\"}]}";
+        for (int i = 0; i < reply.length(); i += 3) scanner.append(reply.substring(i, Math.min(reply.length(), i + 3)));
+
+        assertEquals(List.of("first_scene", "scene", "scene", "scene"), emitter.names());
+        List<JsonNode> scenes = emitter.payloads("scene");
+        for (int i = 0; i < 3; i++) assertEquals(i, scenes.get(i).get("index").asInt());
+        assertEquals("둘", scenes.get(1).get("scene").get("dialogue").asText());
+        assertEquals("하나", emitter.payloads("first_scene").get(0).get("dialogue").asText());
+
+        assertEquals(3, sender.streamedCount());
+        assertNull(SceneEventSender.finalScenes(List.of(scene("하나"), scene("둘"), scene("셋")), sender.streamedCount()));
+    }
+
+    @Test
+    @DisplayName("중간 씬 전송이 실패하면 이후 씬은 세지 않고, final_result는 전체 scenes를 싣는다")
+    void gapFallsBackToFullList() throws Exception {
+        RecordingEmitter emitter = new RecordingEmitter(1);
+        SceneEventSender sender = new SceneEventSender(emitter, objectMapper);
+
+        sender.send(0, scene("하나"));
+        assertThrows(IOException.class, () -> sender.send(1, scene("둘")));
+        sender.send(2, scene("셋"));
+
+        assertEquals(1, sender.streamedCount());
+        List<SceneResponse> all = List.of(scene("하나"), scene("둘"), scene("셋"));
+        assertSame(all, SceneEventSender.finalScenes(all, sender.streamedCount()));
+    }
+
+    @Test
+    @DisplayName("파싱된 씬이 스트림 씬보다 많으면(스캐너가 놓친 씬) 전체 scenes, scenes가 null이면 그대로 null")
+    void finalScenesEdgeCases() {
+        List<SceneResponse> two = List.of(scene("a"), scene("b"));
+        assertSame(two, SceneEventSender.finalScenes(two, 1));
+        assertSame(two, SceneEventSender.finalScenes(two, 0));
+        assertNull(SceneEventSender.finalScenes(null, 0));
+    }
+
+    private static SceneResponse scene(String dialogue) {
+        return new SceneResponse("아이리", "", dialogue, EmotionTag.NEUTRAL, null, null, null, null);
+    }
+
+    /** 보낸 이벤트를 기록하는 SseEmitter — failIndex번째(0부터) scene 이벤트는 IOException */
+    private final class RecordingEmitter extends SseEmitter {
+        private final int failIndex;
+        private final List<String> raw = new ArrayList<>();
+        private int sceneEvents;
+
+        RecordingEmitter(int failIndex) {
+            this.failIndex = failIndex;
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            String text = builder.build().stream()
+                .map(part -> part.getData().toString())
+                .collect(Collectors.joining());
+            if (text.startsWith("event:scene\n") && sceneEvents++ == failIndex) {
+                throw new IOException("broken pipe");
+            }
+            raw.add(text);
+        }
+
+        List<String> names() {
+            return raw.stream().map(t -> t.substring("event:".length(), t.indexOf('\n'))).toList();
+        }
+
+        List<JsonNode> payloads(String name) throws IOException {
+            List<JsonNode> out = new ArrayList<>();
+            for (String t : raw) {
+                if (!t.startsWith("event:" + name + "\n")) continue;
+                String data = t.substring(t.indexOf("data:") + "data:".length()).trim();
+                out.add(objectMapper.readTree(data));
+            }
+            return out;
+        }
+    }
+}
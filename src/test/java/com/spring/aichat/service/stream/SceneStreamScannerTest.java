@@ -0,0 +1,149 @@
+package com.spring.aichat.service.stream;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * {@link SceneStreamScanner} 단위 테스트.
+ *
+ * <p>증분 스캔은 토큰 경계가 어디서 잘리든 같은 결과를 내야 한다 —
+ * 1자 단위 / 무작위 분할 모두 검증하고, 결과를 레거시 {@link SceneStreamExtractor}와 대조한다.
+ */
+class SceneStreamScannerTest {
+
+    private static final String REPLY = """
+        ```json
+        {
+          "reasoning": "유저가 \\"괜찮아?\\"라고 물었다 — {중괄호}와 [대괄호]는 문자열 안에 있다",
+          "event_status": "ONGOING",
+          "scenes": [
+            {"speaker": "아이리", "narration": "그녀가 고개를 든다. {작게} 웃는다.", "dialogue": "응, 괜찮아 \\\\ 진짜로.", "emotion": "JOY", "location": null},
+            {"speaker": "아이리", "narration": "창밖을 본다.", "dialogue": "\\"scenes\\": [ 이건 대사야", "emotion": "SHY", "location": {"name": "카페"}},
+            {"speaker": null, "narration": "잠시 정적이 흐른다.", "dialogue": "", "emotion": "NEUTRAL"}
+          ],
+          "affection_change": 1,
+          "stat_changes": {"intimacy": 1, "scenes": [{"x": 1}]},
+          "inner_thought": "두근거려"
+        }
+        ```""";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    // ━━━━━━━━━━ 토큰 분할 불변성 ━━━━━━━━━━
+
+    @Test
+    @DisplayName("1자 단위 스트리밍 — 씬 3개를 순서대로, 각 씬은 유효한 JSON 객체")
+    void charByChar() throws Exception {
+        Recorder rec = new Recorder();
+        SceneStreamScanner scanner = new SceneStreamScanner(rec);
+        for (int i = 0; i < REPLY.length(); i++) {
+            scanner.append(String.valueOf(REPLY.charAt(i)));
+        }
+
+        assertEquals(3, rec.scenes.size());
+        assertEquals(List.of(0, 1, 2), rec.indexes);
+        assertEquals("ONGOING", rec.eventStatus);
+        assertEquals(REPLY, scanner.fullText());
+
+        JsonNode second = objectMapper.readTree(rec.scenes.get(1));
+        assertEquals("SHY", second.get("emotion").asText());
+        assertEquals("카페", second.get("location").get("name").asText());
+    }
+
+    @Test
+    @DisplayName("무작위 분할 — 어떤 토큰 경계에서도 결과 동일")
+    void randomChunking() {
+        Recorder baseline = new Recorder();
+        SceneStreamScanner whole = new SceneStreamScanner(baseline);
+        whole.append(REPLY);
+
+        Random random = new Random(7);
+        for (int round = 0; round < 200; round++) {
+            Recorder rec = new Recorder();
+            SceneStreamScanner scanner = new SceneStreamScanner(rec);
+            int pos = 0;
+            while (pos < REPLY.length()) {
+                int end = Math.min(REPLY.length(), pos + 1 + random.nextInt(8));
+                scanner.append(REPLY.substring(pos, end));
+                pos = end;
+            }
+            assertEquals(baseline.scenes, rec.scenes, "round " + round);
+            assertEquals(baseline.eventStatus, rec.eventStatus);
+        }
+    }
+
+    @Test
+    @DisplayName("첫 씬은 레거시 추출기 결과와 동일")
+    void firstSceneMatchesLegacyExtractor() {
+        Recorder rec = new Recorder();
+        SceneStreamScanner scanner = new SceneStreamScanner(rec);
+        SceneStreamExtractor legacy = new SceneStreamExtractor();
+        StringBuilder buf = new StringBuilder();
+        String legacyFirst = null;
+        for (int i = 0; i < REPLY.length(); i += 3) {
+            String token = REPLY.substring(i, Math.min(REPLY.length(), i + 3));
+            scanner.append(token);
+            buf.append(token);
+            if (legacyFirst == null) legacyFirst = legacy.tryExtractFirstScene(buf.toString());
+        }
+        assertNotNull(legacyFirst);
+        assertEquals(legacyFirst, rec.scenes.get(0));
+    }
+
+    // ━━━━━━━━━━ event_status ━━━━━━━━━━
+
+    @Test
+    @DisplayName("event_status가 null/비허용 값이면 콜백 없음")
+    void eventStatusIgnoredWhenNotAllowed() {
+        Recorder nullRec = new Recorder();
+        new SceneStreamScanner(nullRec).append("{\"event_status\": null, \"scenes\": []}");
+        assertNull(nullRec.eventStatus);
+
+        Recorder otherRec = new Recorder();
+        SceneStreamScanner scanner = new SceneStreamScanner(otherRec);
+        scanner.append("{\"event_status\": \"PENDING\", \"scenes\": [{\"a\": 1}]}");
+        assertNull(otherRec.eventStatus);
+        assertFalse(scanner.isEventStatusExtracted());
+        assertEquals(1, scanner.getSceneCount());
+    }
+
+    @Test
+    @DisplayName("event_status는 scenes보다 먼저 발화")
+    void eventStatusFiresBeforeFirstScene() {
+        List<String> order = new ArrayList<>();
+        SceneStreamScanner scanner = new SceneStreamScanner(new SceneStreamScanner.Listener() {
+            @Override
+            public void onEventStatus(String eventStatus) { order.add("status:" + eventStatus); }
+
+            @Override
+            public void onScene(int index, String sceneJson) { order.add("scene:" + index); }
+        });
+        scanner.append("{\"event_status\":\"RESOLVED\",\"scenes\":[{\"d\":\"}\"},{\"d\":\"x\"}]}");
+        assertEquals(List.of("status:RESOLVED", "scene:0", "scene:1"), order);
+    }
+
+    private static class Recorder implements SceneStreamScanner.Listener {
+        final List<String> scenes = new ArrayList<>();
+        final List<Integer> indexes = new ArrayList<>();
+        String eventStatus;
+
+        @Override
+        public void onEventStatus(String eventStatus) {
+            this.eventStatus = eventStatus;
+        }
+
+        @Override
+        public void onScene(int index, String sceneJson) {
+            indexes.add(index);
+            scenes.add(sceneJson);
+        }
+    }
+}
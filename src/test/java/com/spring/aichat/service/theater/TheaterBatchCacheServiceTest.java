@@ -0,0 +1,64 @@
+package com.spring.aichat.service.theater;
+
+import com.spring.aichat.dto.theater.TheaterResponses.SceneBatch;
+import com.spring.aichat.service.cache.RedisPayloadCodec;
+import com.spring.aichat.service.theater.TheaterBatchCacheService.PartialBatch;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * {@link TheaterBatchCacheService} — 부분 배치 heartbeat: 생성 중에는 updatedAt 갱신, 완성 · 실패로 지운 뒤에는 되살리지 않음.
+ */
+class TheaterBatchCacheServiceTest {
+
+    private static final String FAMILY = "theater:batch:partial";
+    private static final String KEY = "theater:batch:partial:1:2";
+
+    private final StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+    private final RedisPayloadCodec codec = mock(RedisPayloadCodec.class);
+    private final TheaterBatchCacheService cache = new TheaterBatchCacheService(redisTemplate, codec);
+
+    @Test
+    @DisplayName("heartbeat는 씬은 그대로 두고 updatedAt만 새로 써서 씬 사이에도 생존이 보이게 한다")
+    void heartbeatRewritesUpdatedAt() throws Exception {
+        PartialBatch opened = new PartialBatch(batch(), 8, 1L);
+        cache.putPartialBatch(1L, 2, opened);
+
+        cache.beatPartials();
+
+        ArgumentCaptor<Object> written = ArgumentCaptor.forClass(Object.class);
+        verify(codec, times(2)).write(eq(FAMILY), eq(KEY), written.capture(), any());
+        PartialBatch beat = (PartialBatch) written.getAllValues().get(1);
+        assertSame(opened.batch(), beat.batch());
+        assertEquals(8, beat.targetSceneCount());
+        assertTrue(beat.updatedAt() > opened.updatedAt());
+    }
+
+    @Test
+    @DisplayName("완성본 저장 · 실패 정리로 지운 부분 배치는 heartbeat가 다시 쓰지 않는다")
+    void clearedPartialIsNotResurrected() throws Exception {
+        cache.putPartialBatch(1L, 2, new PartialBatch(batch(), 8));
+        cache.putPartialBatch(1L, 3, new PartialBatch(batch(), 8));
+
+        cache.clearPartialBatch(1L, 2);
+        cache.putBatch(1L, 3, batch());
+        cache.beatPartials();
+
+        verify(redisTemplate).delete(KEY);
+        verify(redisTemplate).delete("theater:batch:partial:1:3");
+        verify(codec, times(2)).write(eq(FAMILY), any(), any(), any());
+    }
+
+    private static SceneBatch batch() {
+        return new SceneBatch(2, 1, 1, 10L, "아이리", List.of(), false, null, false, null);
+    }
+}
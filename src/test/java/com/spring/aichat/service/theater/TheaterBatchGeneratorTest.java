@@ -0,0 +1,261 @@
+package com.spring.aichat.service.theater;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.spring.aichat.config.OpenAiProperties;
+import com.spring.aichat.domain.character.Character;
+import com.spring.aichat.domain.chat.ChatRoom;
+import com.spring.aichat.domain.theater.TheaterState;
+import com.spring.aichat.dto.openai.OpenAiChatRequest;
+import com.spring.aichat.dto.openai.OpenAiMessage;
+import com.spring.aichat.dto.openai.OpenAiUsage;
+import com.spring.aichat.dto.theater.LlmSceneBatchOutput.LlmScene;
+import com.spring.aichat.dto.theater.TheaterResponses.SceneBatch;
+import com.spring.aichat.dto.theater.TheaterResponses.TheaterScene;
+import com.spring.aichat.exception.ExternalApiException;
+import com.spring.aichat.external.OpenRouterClient;
+import com.spring.aichat.external.OpenRouterStreamClient;
+import com.spring.aichat.service.metrics.ChatMetrics;
+import com.spring.aichat.service.metrics.ChatTracing;
+import com.spring.aichat.service.theater.TheaterBatchCacheService.PartialBatch;
+import com.spring.aichat.service.theater.TheaterBatchGenerator.BatchDraft;
+import com.spring.aichat.service.theater.TheaterBatchGenerator.DraftMode;
+import com.spring.aichat.service.theater.TheaterBatchGenerator.GenerateParams;
+import com.spring.aichat.service.theater.TheaterBatchGenerator.LlmBatchCall;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.ArgumentMatchers.same;
+import static org.mockito.Mockito.*;
+
+/**
+ * {@link TheaterBatchGenerator} — 부분 배치 열기 · 진행 콜백 · 실패 시 정리, 스트리밍 LLM 호출의 구제 · 폴백 경로.
+ * 프롬프트 조립 · 확정은 건드리지 않는다 (draftBatch/commitBatch는 spy로 대체, invokeLlm은 직접 호출).
+ */
+class TheaterBatchGeneratorTest {
+
+    private static final String MODEL = "mock/model";
+    private static final Long ROOM_ID = 7L;
+    private static final int BATCH_ID = 3;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final FakeStreamClient streamClient = new FakeStreamClient();
+    private final OpenRouterClient openRouterClient = mock(OpenRouterClient.class);
+    private final TheaterBatchCacheService batchCache = mock(TheaterBatchCacheService.class);
+    private final TheaterModelResolver modelResolver = mock(TheaterModelResolver.class);
+    private final TheaterBatchGenerator generator = new TheaterBatchGenerator(
+        openRouterClient, streamClient, null, batchCache, null, null, null, null, null, null, null, null, null,
+        null, objectMapper, modelResolver, null, new ChatMetrics(new SimpleMeterRegistry()), ChatTracing.noop());
+
+    private final ChatRoom room = mock(ChatRoom.class);
+    private final TheaterState state = mock(TheaterState.class);
+    private final Character speaker = mock(Character.class);
+
+    TheaterBatchGeneratorTest() {
+        when(room.getId()).thenReturn(ROOM_ID);
+        when(speaker.getName()).thenReturn("아이리");
+        when(modelResolver.resolveBatchModel(any(), any(), any(), anyBoolean(), anyBoolean())).thenReturn(MODEL);
+    }
+
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+    //  generateNextBatch — 부분 배치
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+
+    @Test
+    @DisplayName("부분 배치는 씬 0개로 열린 뒤 도착마다 캐시에 쓰이고, 진행 콜백은 씬이 있는 것만 받는다")
+    void partialBatchesFlowToCacheAndProgress() {
+        GenerateParams params = params();
+        BatchDraft draft = draft(batch(2));
+        TheaterBatchGenerator spy = spy(generator);
+        doAnswer(inv -> {
+            Consumer<PartialBatch> onPartial = inv.getArgument(2);
+            for (int n = 0; n <= 2; n++) onPartial.accept(new PartialBatch(batch(n), 2));
+            return draft;
+        }).when(spy).draftBatch(same(params), eq(DraftMode.LIVE), any(), isNull());
+        doReturn(draft.batch()).when(spy).commitBatch(room, state, draft);
+        List<Integer> progress = new ArrayList<>();
+
+        SceneBatch result = spy.generateNextBatch(params, p -> progress.add(p.sceneCount()));
+
+        assertSame(draft.batch(), result);
+        verify(batchCache, times(3)).putPartialBatch(eq(ROOM_ID), eq(BATCH_ID), any());
+        assertEquals(List.of(1, 2), progress, "씬 0개 오픈은 진행 콜백으로 가지 않는다");
+        verify(batchCache, never()).clearPartialBatch(any(), anyInt());
+    }
+
+    @Test
+    @DisplayName("부분 배치를 연 뒤 초안이 실패하면 부분 배치를 지우고 예외를 그대로 던진다 — 따라잡던 요청이 바로 자체 생성")
+    void failureAfterOpenClearsPartial() {
+        GenerateParams params = params();
+        TheaterBatchGenerator spy = spy(generator);
+        doAnswer(inv -> {
+            Consumer<PartialBatch> onPartial = inv.getArgument(2);
+            onPartial.accept(new PartialBatch(batch(0), 2));
+            throw new ExternalApiException("stream down");
+        }).when(spy).draftBatch(same(params), eq(DraftMode.LIVE), any(), isNull());
+
+        assertThrows(ExternalApiException.class, () -> spy.generateNextBatch(params, null));
+
+        verify(batchCache).clearPartialBatch(ROOM_ID, BATCH_ID);
+        verify(spy, never()).commitBatch(any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("부분 배치를 열기 전에 실패하면(가드 · 프롬프트 조립) 남의 부분 배치를 지우지 않는다")
+    void failureBeforeOpenLeavesPartialAlone() {
+        GenerateParams params = params();
+        TheaterBatchGenerator spy = spy(generator);
+        doThrow(new IllegalStateException("no world"))
+            .when(spy).draftBatch(same(params), eq(DraftMode.LIVE), any(), isNull());
+
+        assertThrows(IllegalStateException.class, () -> spy.generateNextBatch(params, null));
+
+        verify(batchCache, never()).clearPartialBatch(any(), anyInt());
+    }
+
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+    //  invokeLlm — 스트리밍 · 구제 · 폴백
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+
+    @Test
+    @DisplayName("스트림 완료 — 최종 JSON을 파싱하고 usage 총 토큰을 싣는다")
+    void streamCompletes() {
+        List<String> scenes = sceneJsons(5);
+        streamClient.script(scenes, "{\"scenes\":[" + String.join(",", scenes) + "]}", null);
+        List<LlmScene> streamed = new ArrayList<>();
+
+        LlmBatchCall call = invoke(streamed);
+
+        assertEquals(5, call.output().scenes().size());
+        assertEquals(5, streamed.size());
+        assertEquals(1_100, call.totalTokens());
+        verifyNoInteractions(openRouterClient);
+    }
+
+    @Test
+    @DisplayName("최종 JSON이 잘려도 스트리밍된 씬이 최소치 이상이면 그 씬들로 배치를 구제한다 (메타 · 호감도 없음)")
+    void salvagesStreamedScenes() {
+        List<String> scenes = sceneJsons(5);
+        streamClient.script(scenes, "{\"batch_meta\":{},\"scenes\":[" + String.join(",", scenes) + ",{\"narr", null);
+        List<LlmScene> streamed = new ArrayList<>();
+
+        LlmBatchCall call = invoke(streamed);
+
+        assertEquals(5, call.output().scenes().size());
+        assertEquals("n4", call.output().scenes().get(4).narration());
+        assertNull(call.output().batchMeta());
+        assertNull(call.output().heroineAffectionDeltas());
+        verifyNoInteractions(openRouterClient);
+    }
+
+    @Test
+    @DisplayName("잘린 JSON에 스트리밍된 씬이 최소치 미만이면 구제하지 않고 실패")
+    void tooFewScenesToSalvage() {
+        List<String> scenes = sceneJsons(4);
+        streamClient.script(scenes, "{\"scenes\":[" + String.join(",", scenes) + ",{\"narr", null);
+
+        assertThrows(ExternalApiException.class, () -> invoke(new ArrayList<>()));
+    }
+
+    @Test
+    @DisplayName("씬이 나간 뒤 스트림이 끊기면 폴백하지 않는다 — 같은 배치를 두 번 보여주지 않도록 실패")
+    void failureAfterFirstSceneDoesNotFallBack() {
+        streamClient.script(sceneJsons(2), null, new IOException("reset"));
+
+        assertThrows(ExternalApiException.class, () -> invoke(new ArrayList<>()));
+        verifyNoInteractions(openRouterClient);
+    }
+
+    @Test
+    @DisplayName("첫 씬 전에 스트림이 실패하면 비스트리밍 completeJson으로 폴백한다 (토큰 미상 -1)")
+    void failureBeforeFirstSceneFallsBack() {
+        streamClient.script(List.of(), null, new IOException("503"));
+        String reply = "```json\n{\"scenes\":[" + String.join(",", sceneJsons(6)) + "]}\n```";
+        when(openRouterClient.completeJson(eq(MODEL), anyList(), anyString(), anyInt(), anyDouble())).thenReturn(reply);
+
+        LlmBatchCall call = invoke(new ArrayList<>());
+
+        assertEquals(6, call.output().scenes().size());
+        assertEquals(-1, call.totalTokens());
+    }
+
+    private LlmBatchCall invoke(List<LlmScene> streamed) {
+        BiConsumer<Integer, String> onScene = (index, json) -> {
+            try {
+                streamed.add(objectMapper.readValue(json, LlmScene.class));
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        };
+        return generator.invokeLlm(List.of(OpenAiMessage.system("rules")), speaker, null, state,
+            false, false, onScene, streamed, null);
+    }
+
+    private GenerateParams params() {
+        return new GenerateParams(room, state, null, null, false, false, null, null, BATCH_ID);
+    }
+
+    private static List<String> sceneJsons(int count) {
+        List<String> out = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            out.add("{\"narration\":\"n" + i + "\",\"dialogue\":\"d" + i + "\",\"scene_type\":\"narration\",\"emotion\":\"NEUTRAL\"}");
+        }
+        return out;
+    }
+
+    private static SceneBatch batch(int sceneCount) {
+        List<TheaterScene> scenes = new ArrayList<>();
+        for (int i = 0; i < sceneCount; i++) {
+            scenes.add(new TheaterScene(i, "아이리", "n" + i, null, null, null, "d" + i,
+                "narration", "NEUTRAL", null, null, null, null, null, null));
+        }
+        return new SceneBatch(BATCH_ID, 1, 1, 10L, "아이리", scenes, false, null, false, null);
+    }
+
+    private static BatchDraft draft(SceneBatch batch) {
+        return new BatchDraft(batch, null, 10L, null, null, false, -1);
+    }
+
+    /** 씬 JSON을 차례로 흘린 뒤 fullResponse를 돌려주거나 failure를 던지는 스트림 클라이언트 */
+    private static final class FakeStreamClient extends OpenRouterStreamClient {
+        private List<String> scenes = List.of();
+        private String fullResponse;
+        private IOException failure;
+
+        FakeStreamClient() {
+            super(new OpenAiProperties("test-key", "http://localhost", MODEL, null, null, "http://test", "test"),
+                new ObjectMapper(), null);
+        }
+
+        void script(List<String> scenes, String fullResponse, IOException failure) {
+            this.scenes = scenes;
+            this.fullResponse = fullResponse;
+            this.failure = failure;
+        }
+
+        @Override
+        public StreamResult streamScenes(OpenAiChatRequest request, BiConsumer<Integer, String> onScene,
+                                         Consumer<String> onEventStatus, long ttftDeadlineMs,
+                                         StreamControl control) throws IOException {
+            for (int i = 0; i < scenes.size(); i++) onScene.accept(i, scenes.get(i));
+            if (failure != null) throw failure;
+            return new StreamResult(fullResponse, scenes.isEmpty() ? null : scenes.get(0), 10, 20, scenes.size(),
+                new OpenAiUsage(1_000, 100, 1_100, null, null));
+        }
+    }
+}
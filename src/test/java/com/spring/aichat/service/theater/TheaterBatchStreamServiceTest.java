@@ -0,0 +1,171 @@
+package com.spring.aichat.service.theater;
+
+import com.spring.aichat.dto.theater.TheaterResponses.SceneBatch;
+import com.spring.aichat.dto.theater.TheaterResponses.TheaterScene;
+import com.spring.aichat.dto.theater.TheaterStreamEvents.BatchComplete;
+import com.spring.aichat.dto.theater.TheaterStreamEvents.BatchMeta;
+import com.spring.aichat.dto.theater.TheaterStreamEvents.ErrorPayload;
+import com.spring.aichat.dto.theater.TheaterStreamEvents.ScenePayload;
+import com.spring.aichat.exception.BadRequestException;
+import com.spring.aichat.service.metrics.ChatMetrics;
+import com.spring.aichat.service.theater.TheaterBatchCacheService.PartialBatch;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * {@link TheaterBatchStreamService} — 부분 배치 → SSE 이벤트 순서, 중복 없는 씬 전송, 연결 끊김 뒤 생성 지속, 오류 이벤트.
+ */
+class TheaterBatchStreamServiceTest {
+
+    private static final Long ROOM_ID = 1L;
+    private static final String USERNAME = "user";
+
+    private final TheaterService theaterService = mock(TheaterService.class);
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final TheaterBatchStreamService service =
+        new TheaterBatchStreamService(theaterService, new ChatMetrics(registry));
+
+    @Test
+    @DisplayName("생성 중 부분 배치가 늘 때마다 새 씬만 — batch_meta → first_scene → scene ×n → batch_complete")
+    void streamsNewScenesOnly() {
+        SceneBatch full = batch(3);
+        answer(progress -> {
+            progress.accept(new PartialBatch(batch(0), 3));
+            progress.accept(new PartialBatch(batch(1), 3));
+            progress.accept(new PartialBatch(batch(1), 3));
+            progress.accept(new PartialBatch(batch(2), 3));
+            return full;
+        });
+        RecordingEmitter emitter = new RecordingEmitter(-1);
+
+        service.streamNextBatch(ROOM_ID, USERNAME, emitter);
+
+        assertEquals(List.of("batch_meta", "first_scene", "scene", "scene", "batch_complete"), emitter.names());
+        assertEquals(3, ((BatchMeta) emitter.payloads.get(0)).targetSceneCount());
+        for (int i = 0; i < 3; i++) {
+            assertEquals(i, ((ScenePayload) emitter.payloads.get(i + 1)).sequenceInBatch());
+        }
+        BatchComplete complete = (BatchComplete) emitter.payloads.get(4);
+        assertEquals(3, complete.totalScenesInBatch());
+        assertTrue(complete.recommendPrefetch());
+        assertTrue(emitter.completed);
+    }
+
+    @Test
+    @DisplayName("캐시 hit(진행 콜백 없음)이면 반환된 배치를 한 번에 같은 순서로 보낸다")
+    void cacheHitSendsAllAtOnce() {
+        answer(progress -> batch(2));
+        RecordingEmitter emitter = new RecordingEmitter(-1);
+
+        service.streamNextBatch(ROOM_ID, USERNAME, emitter);
+
+        assertEquals(List.of("batch_meta", "first_scene", "scene", "batch_complete"), emitter.names());
+        assertEquals(2, ((BatchComplete) emitter.payloads.get(3)).totalScenesInBatch());
+    }
+
+    @Test
+    @DisplayName("전송이 실패하면 이후 전송은 시도하지 않지만 생성은 끝까지 진행된다 (완성본은 캐시로)")
+    void clientGoneKeepsGenerating() {
+        int[] progressCalls = {0};
+        answer(progress -> {
+            for (int n = 1; n <= 3; n++) {
+                progress.accept(new PartialBatch(batch(n), 3));
+                progressCalls[0]++;
+            }
+            return batch(3);
+        });
+        RecordingEmitter emitter = new RecordingEmitter(1);
+
+        service.streamNextBatch(ROOM_ID, USERNAME, emitter);
+
+        assertEquals(3, progressCalls[0], "끊김이 생성 콜백으로 전파되지 않는다");
+        assertEquals(List.of("batch_meta"), emitter.names());
+        assertEquals(2, emitter.attempts, "끊긴 뒤에는 send 자체를 부르지 않는다");
+    }
+
+    @Test
+    @DisplayName("BusinessException은 error 이벤트(에러 코드 + 메시지)로 내보내고 SSE 오류 카운터를 올린다")
+    void businessErrorBecomesErrorEvent() {
+        answer(progress -> {
+            throw new BadRequestException("LOCATION_CHOICE_REQUIRED");
+        });
+        RecordingEmitter emitter = new RecordingEmitter(-1);
+
+        service.streamNextBatch(ROOM_ID, USERNAME, emitter);
+
+        assertEquals(List.of("error"), emitter.names());
+        ErrorPayload error = (ErrorPayload) emitter.payloads.get(0);
+        assertEquals("BAD_REQUEST", error.errorCode());
+        assertEquals("LOCATION_CHOICE_REQUIRED", error.message());
+        assertTrue(emitter.completed);
+        assertEquals(1.0, registry.get("chat.sse.errors").tag("code", "BAD_REQUEST").counter().count());
+    }
+
+    @SuppressWarnings("unchecked")
+    private void answer(Function<Consumer<PartialBatch>, SceneBatch> body) {
+        when(theaterService.requestNextBatch(eq(ROOM_ID), eq(USERNAME), eq(false), any()))
+            .thenAnswer(inv -> body.apply(inv.getArgument(3, Consumer.class)));
+    }
+
+    private static SceneBatch batch(int sceneCount) {
+        List<TheaterScene> scenes = new ArrayList<>();
+        for (int i = 0; i < sceneCount; i++) {
+            scenes.add(new TheaterScene(i, "아이리", "narration " + i, null, null, null, "dialogue " + i,
+                "narration", "NEUTRAL", "CLASSROOM", "DAY", null, "DAILY", null, null));
+        }
+        return new SceneBatch(4, 1, 2, 10L, "아이리", scenes, false, null, false, null);
+    }
+
+    /** 이벤트 이름 · 페이로드 객체를 기록하는 SseEmitter — failAt번째(0부터) send는 IOException */
+    private static final class RecordingEmitter extends SseEmitter {
+        private final int failAt;
+        private final List<String> names = new ArrayList<>();
+        final List<Object> payloads = new ArrayList<>();
+        int attempts;
+        boolean completed;
+
+        RecordingEmitter(int failAt) {
+            this.failAt = failAt;
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            if (attempts++ == failAt) throw new IOException("broken pipe");
+            String name = null;
+            Object payload = null;
+            for (var part : builder.build()) {
+                Object data = part.getData();
+                if (data instanceof String text && text.startsWith("event:")) {
+                    name = text.substring("event:".length(), text.indexOf('\n'));
+                } else if (!(data instanceof String)) {
+                    payload = data;
+                }
+            }
+            names.add(name);
+            payloads.add(payload);
+        }
+
+        @Override
+        public void complete() {
+            completed = true;
+        }
+
+        List<String> names() {
+            return names;
+        }
+    }
+}
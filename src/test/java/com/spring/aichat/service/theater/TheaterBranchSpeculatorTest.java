@@ -0,0 +1,347 @@
+package com.spring.aichat.service.theater;
+
+import com.spring.aichat.domain.chat.ChatRoom;
+import com.spring.aichat.domain.chat.ChatRoomRepository;
+import com.spring.aichat.domain.enums.BranchLevel;
+import com.spring.aichat.domain.theater.TheaterState;
+import com.spring.aichat.domain.theater.TheaterStateRepository;
+import com.spring.aichat.domain.user.User;
+import com.spring.aichat.dto.theater.TheaterResponses.BranchOption;
+import com.spring.aichat.dto.theater.TheaterResponses.SceneBatch;
+import com.spring.aichat.dto.theater.TheaterResponses.TheaterScene;
+import com.spring.aichat.exception.ExternalApiException;
+import com.spring.aichat.external.OpenRouterStreamClient.StreamCancelledException;
+import com.spring.aichat.external.OpenRouterStreamClient.StreamControl;
+import com.spring.aichat.service.metrics.ChatMetrics;
+import com.spring.aichat.service.theater.TheaterBatchCacheService.PartialBatch;
+import com.spring.aichat.service.theater.TheaterBatchGenerator.BatchDraft;
+import com.spring.aichat.service.theater.TheaterBatchGenerator.DraftMode;
+import com.spring.aichat.service.theater.TheaterBatchGenerator.GenerateParams;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * {@link TheaterBranchSpeculator} — 승격(완성 · 생성 중 · 없음), 탈락 선택지 취소와 낭비 기록, 배치 위치 불일치, 예산, 다른 노드 초안.
+ * draftBatch는 선택지(화자 hint)별 스크립트로 대체하고, 실행은 큐에 쌓았다가 테스트가 직접 돌린다.
+ */
+class TheaterBranchSpeculatorTest {
+
+    private static final Long ROOM_ID = 1L;
+    private static final Long USER_ID = 9L;
+    private static final int BATCH_ID = 5;
+    private static final String TOKEN = "LOCATION-1-1";
+    private static final long ESTIMATED_BATCH_TOKENS = 6_000;
+    private static final long HOURLY_BUDGET = 60_000;
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final ChatRoomRepository chatRoomRepository = mock(ChatRoomRepository.class);
+    private final TheaterStateRepository stateRepository = mock(TheaterStateRepository.class);
+    private final TheaterBatchGenerator batchGenerator = mock(TheaterBatchGenerator.class);
+    private final TheaterBatchCacheService batchCache = mock(TheaterBatchCacheService.class);
+    private final TheaterPrefetchScheduler prefetchScheduler = mock(TheaterPrefetchScheduler.class);
+    private final QueuedExecutor executor = new QueuedExecutor();
+    private final TheaterBranchSpeculator speculator = new TheaterBranchSpeculator(
+        chatRoomRepository, stateRepository, batchGenerator, batchCache, new ChatMetrics(registry),
+        new TransactionTemplate(mock(PlatformTransactionManager.class)), executor, prefetchScheduler,
+        true, 3, HOURLY_BUDGET, ESTIMATED_BATCH_TOKENS);
+
+    private final ChatRoom room = mock(ChatRoom.class);
+    private final TheaterState state = mock(TheaterState.class);
+    private final AtomicInteger currentBatchId = new AtomicInteger(BATCH_ID);
+    /** 화자 hint(= 선택지 히로인) → 스크립트 · 만들어진 초안 */
+    private final Map<Long, Script> scripts = new HashMap<>();
+    private final Map<Long, BatchDraft> drafts = new HashMap<>();
+
+    TheaterBranchSpeculatorTest() {
+        User user = mock(User.class);
+        when(user.getId()).thenReturn(USER_ID);
+        when(room.getId()).thenReturn(ROOM_ID);
+        when(room.getUser()).thenReturn(user);
+        when(state.getCurrentBatchId()).thenAnswer(inv -> currentBatchId.get());
+        when(chatRoomRepository.findById(ROOM_ID)).thenReturn(Optional.of(room));
+        when(stateRepository.findByRoom_Id(ROOM_ID)).thenReturn(Optional.of(state));
+        when(batchGenerator.draftBatch(any(), eq(DraftMode.SPECULATIVE), any(), any())).thenAnswer(inv -> {
+            GenerateParams params = inv.getArgument(0);
+            Consumer<PartialBatch> onPartial = inv.getArgument(2);
+            StreamControl control = inv.getArgument(3);
+            return scripts.get(params.hintedSpeakerHeroineId()).run(params, onPartial, control);
+        });
+    }
+
+    @Test
+    @DisplayName("완성 초안을 고르면 같은 트랜잭션에서 확정하고, 탈락 초안은 계측 토큰으로 낭비 기록 후 폐기")
+    void promotesFinishedDraft() {
+        script(0, 2, 1_000);
+        script(1, 2, 1_200);
+        speculate(2);
+        executor.runAll();
+        verify(batchCache).putSpeculativeDraft(eq(ROOM_ID), eq(TOKEN), eq(0), any());
+        verify(batchCache).putSpeculativeDraft(eq(ROOM_ID), eq(TOKEN), eq(1), any());
+
+        assertTrue(speculator.promote(room, state, TOKEN, option(1)));
+
+        verify(batchGenerator).commitBatch(room, state, drafts.get(heroine(1)));
+        verify(batchCache).consumeBranchContext(ROOM_ID, "active");
+        verify(batchCache).consumeHeroineHint(ROOM_ID);
+        verify(batchCache).discardSpeculativeDrafts(ROOM_ID, TOKEN, 2);
+        assertEquals(1, count("hit"));
+        assertEquals(1, count("discarded"));
+        assertEquals(1_000, waste("metered"));
+        verify(batchCache).addSpeculationSpend(USER_ID, 1_000);
+        verify(batchCache).addSpeculationSpend(USER_ID, 1_200);
+    }
+
+    @Test
+    @DisplayName("생성 중인 초안을 고르면 지금까지의 씬과 이후 씬을 메인 부분 배치 키로 이어 쓰고, 끝나면 별도 트랜잭션에서 확정")
+    void promotesInFlightDraft() {
+        Script winner = script(0, 3, 1_500);
+        script(1, 3, 1_500);
+        winner.midway = () -> assertFalse(speculator.promote(room, state, TOKEN, option(0)));
+        when(batchCache.existsBatch(ROOM_ID, BATCH_ID)).thenReturn(true);
+        speculate(2);
+
+        executor.runNext();
+
+        verify(batchCache, times(3)).putPartialBatch(eq(ROOM_ID), eq(BATCH_ID), any());
+        verify(batchGenerator).commitBatch(room, state, drafts.get(heroine(0)));
+        verify(batchCache).consumeBranchContext(ROOM_ID, "active");
+        verify(batchCache, never()).putSpeculativeDraft(any(), any(), anyInt(), any());
+        verify(batchCache, never()).clearPartialBatch(any(), anyInt());
+        assertEquals(1, count("hit_inflight"));
+    }
+
+    @Test
+    @DisplayName("탈락 선택지는 스트림이 취소되고, usage 전이라 추정 토큰(씬 0개면 배치 추정치의 1할)으로 예산 · 낭비에 잡힌다")
+    void losersAreCancelledAndCharged() {
+        Script winner = script(0, 3, 1_500);
+        script(1, 3, 1_500);
+        winner.midway = () -> speculator.promote(room, state, TOKEN, option(0));
+        when(batchCache.existsBatch(ROOM_ID, BATCH_ID)).thenReturn(true);
+        speculate(2);
+
+        executor.runAll();
+
+        assertEquals(1, count("cancelled"));
+        assertEquals(ESTIMATED_BATCH_TOKENS / 10, waste("estimated"));
+        verify(batchCache).addSpeculationSpend(USER_ID, ESTIMATED_BATCH_TOKENS / 10);
+        assertEquals(1, drafts.size(), "취소된 선택지는 초안까지 가지 않는다");
+    }
+
+    @Test
+    @DisplayName("생성 중 승격된 초안이 실패하면 메인 부분 배치를 지워 따라잡던 요청이 바로 자체 생성")
+    void promotedInFlightFailureClearsPartial() {
+        Script winner = script(0, 2, 0);
+        winner.fail = true;
+        winner.midway = () -> speculator.promote(room, state, TOKEN, option(0));
+        speculate(1);
+
+        executor.runAll();
+
+        verify(batchCache).clearPartialBatch(ROOM_ID, BATCH_ID);
+        verify(batchGenerator, never()).commitBatch(any(), any(), any());
+        assertEquals(1, count("failed"));
+    }
+
+    @Test
+    @DisplayName("추측이 없는 선택(다른 노드 · 추측 안 함)이고 Redis 초안도 없으면 miss")
+    void missingDraftIsMiss() {
+        when(batchCache.takeSpeculativeDraft(ROOM_ID, TOKEN, 0)).thenReturn(Optional.empty());
+
+        assertFalse(speculator.promote(room, state, TOKEN, option(0)));
+
+        assertEquals(1, count("miss"));
+        verify(batchGenerator, never()).commitBatch(any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("다른 노드가 만든 초안은 Redis에서 꺼내 확정하고 나머지 선택지 초안은 지운다")
+    void promotesDraftFromOtherNode() {
+        BatchDraft remote = draft(BATCH_ID, 2_000);
+        when(batchCache.takeSpeculativeDraft(ROOM_ID, TOKEN, 1)).thenReturn(Optional.of(remote));
+
+        assertTrue(speculator.promote(room, state, TOKEN, option(1)));
+
+        verify(batchGenerator).commitBatch(room, state, remote);
+        verify(batchCache).discardSpeculativeDrafts(ROOM_ID, TOKEN, 3);
+        assertEquals(1, count("hit"));
+    }
+
+    @Test
+    @DisplayName("배치 위치가 바뀐 뒤의 초안은 확정하지 않는다 — 로컬은 전부 탈락 처리, 원격 초안은 stale")
+    void staleBatchIdIsNotCommitted() {
+        script(0, 2, 1_000);
+        speculate(1);
+        executor.runAll();
+        currentBatchId.set(BATCH_ID + 1);
+
+        assertFalse(speculator.promote(room, state, TOKEN, option(0)));
+        assertEquals(1, count("miss"));
+        assertEquals(1, count("discarded"), "고른 초안도 못 쓰면 낭비");
+
+        when(batchCache.takeSpeculativeDraft(ROOM_ID, "other", 0)).thenReturn(Optional.of(draft(BATCH_ID, 1_000)));
+        assertFalse(speculator.promote(room, state, "other", option(0)));
+        assertEquals(1, count("stale"));
+        verify(batchGenerator, never()).commitBatch(any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("실행 시작 시점에 배치 위치가 이미 바뀌었으면 LLM을 부르지 않고 stale")
+    void staleBeforeDraft() {
+        script(0, 2, 1_000);
+        speculate(1);
+        currentBatchId.set(BATCH_ID + 1);
+
+        executor.runAll();
+
+        assertEquals(1, count("stale"));
+        assertTrue(drafts.isEmpty());
+    }
+
+    @Test
+    @DisplayName("시간당 예산이 배치 1건 추정치만큼만 남으면 첫 선택지만 시작하고 나머지는 skipped_budget")
+    void budgetLimitsOptions() {
+        when(batchCache.getSpeculationSpend(USER_ID)).thenReturn(HOURLY_BUDGET - ESTIMATED_BATCH_TOKENS);
+        for (int i = 0; i < 3; i++) script(i, 2, 1_000);
+
+        speculate(3);
+
+        assertEquals(1, executor.size());
+        assertEquals(1, count("started"));
+        assertEquals(2, count("skipped_budget"));
+    }
+
+    @Test
+    @DisplayName("선행 생성이 밀려 있으면 추측을 시작하지 않는다")
+    void shedsUnderPrefetchPressure() {
+        when(prefetchScheduler.isUnderPressure()).thenReturn(true);
+        script(0, 2, 1_000);
+
+        speculate(1);
+
+        assertEquals(0, executor.size());
+        assertEquals(1, count("shed"));
+    }
+
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+    //  Helpers
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+
+    private void speculate(int optionCount) {
+        List<BranchOption> options = new ArrayList<>();
+        for (int i = 0; i < optionCount; i++) options.add(option(i));
+        speculator.speculate(room, state, TOKEN, BranchLevel.LOCATION, options, "요약");
+    }
+
+    private static Long heroine(int index) {
+        return 100L + index;
+    }
+
+    private static BranchOption option(int index) {
+        return new BranchOption(index, "장소 " + index, "", "normal", 0, heroine(index), "히로인 " + index,
+            "장소 " + index, null, true, false);
+    }
+
+    private Script script(int index, int scenes, long tokens) {
+        Script script = new Script(heroine(index), scenes, tokens);
+        scripts.put(heroine(index), script);
+        return script;
+    }
+
+    private double count(String outcome) {
+        Counter counter = registry.find("theater.branch.speculation").tag("outcome", outcome).counter();
+        return counter == null ? 0 : counter.count();
+    }
+
+    private double waste(String source) {
+        DistributionSummary summary = registry.find("theater.branch.speculation.wasted_tokens")
+            .tag("source", source).summary();
+        return summary == null ? 0 : summary.totalAmount();
+    }
+
+    private static SceneBatch batch(int batchId, int sceneCount) {
+        List<TheaterScene> scenes = new ArrayList<>();
+        for (int i = 0; i < sceneCount; i++) {
+            scenes.add(new TheaterScene(i, "히로인", "n" + i, null, null, null, "d" + i,
+                "narration", "NEUTRAL", null, null, null, null, null, null));
+        }
+        return new SceneBatch(batchId, 1, 1, 10L, "히로인", scenes, false, null, false, null);
+    }
+
+    private static BatchDraft draft(int batchId, long tokens) {
+        return new BatchDraft(batch(batchId, 6), null, 10L, null, null, true, tokens);
+    }
+
+    /** 선택지 1개의 가짜 draftBatch — 씬을 하나씩 내고(첫 씬 뒤 midway), 취소되면 StreamCancelledException */
+    private final class Script {
+        final Long heroineId;
+        final int scenes;
+        final long tokens;
+        Runnable midway;
+        boolean fail;
+
+        Script(Long heroineId, int scenes, long tokens) {
+            this.heroineId = heroineId;
+            this.scenes = scenes;
+            this.tokens = tokens;
+        }
+
+        BatchDraft run(GenerateParams params, Consumer<PartialBatch> onPartial, StreamControl control) {
+            assertTrue(params.justBranched());
+            assertTrue(params.branchContext().contains("장소"));
+            for (int n = 1; n <= scenes; n++) {
+                if (control.isCancelled()) throw new StreamCancelledException();
+                onPartial.accept(new PartialBatch(batch(BATCH_ID, n), 6));
+                if (n == 1 && midway != null) midway.run();
+            }
+            if (control.isCancelled()) throw new StreamCancelledException();
+            if (fail) throw new ExternalApiException("stream down");
+            BatchDraft draft = draft(BATCH_ID, tokens);
+            drafts.put(heroineId, draft);
+            return draft;
+        }
+    }
+
+    /** 제출만 쌓아 두는 Executor — 실행 순서 · 시점을 테스트가 정한다 */
+    private static final class QueuedExecutor implements Executor {
+        private final Deque<Runnable> tasks = new ArrayDeque<>();
+
+        @Override
+        public void execute(Runnable command) {
+            tasks.add(command);
+        }
+
+        void runNext() {
+            tasks.poll().run();
+        }
+
+        void runAll() {
+            while (!tasks.isEmpty()) runNext();
+        }
+
+        int size() {
+            return tasks.size();
+        }
+    }
+}
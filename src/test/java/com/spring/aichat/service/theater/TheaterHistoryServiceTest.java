@@ -0,0 +1,91 @@
+package com.spring.aichat.service.theater;
+
+import com.spring.aichat.domain.chat.ChatRoom;
+import com.spring.aichat.domain.chat.ChatRoomRepository;
+import com.spring.aichat.domain.theater.TheaterSceneLog;
+import com.spring.aichat.domain.theater.TheaterSceneLogRepository;
+import com.spring.aichat.dto.theater.TheaterResponses.SceneHistoryItem;
+import com.spring.aichat.dto.theater.TheaterResponses.SceneHistoryPage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * {@link TheaterHistoryService} 페이지 조회 — Mongo 페이지 + 미기록 꼬리, flush 경계에서 총계를 두 번 세지 않음.
+ */
+class TheaterHistoryServiceTest {
+
+    private static final Long ROOM_ID = 1L;
+
+    private final ChatRoomRepository chatRoomRepository = mock(ChatRoomRepository.class);
+    private final TheaterSceneLogRepository sceneLogRepository = mock(TheaterSceneLogRepository.class);
+    private final TheaterSceneLogWriter sceneLogWriter = mock(TheaterSceneLogWriter.class);
+    private final TheaterHistoryService service =
+        new TheaterHistoryService(chatRoomRepository, sceneLogRepository, sceneLogWriter);
+
+    @BeforeEach
+    void setUp() {
+        ChatRoom room = mock(ChatRoom.class, RETURNS_DEEP_STUBS);
+        when(room.getUser().getUsername()).thenReturn("user");
+        when(chatRoomRepository.findById(ROOM_ID)).thenReturn(Optional.of(room));
+    }
+
+    @Test
+    @DisplayName("미기록 꼬리는 Mongo 목록 · count 뒤에 읽는다 — 그 사이 flush된 씬이 중간 페이지 총계에 두 번 잡히지 않는다")
+    void readsTailAfterCount() {
+        // seq 10 · 11은 조회 직전에 flush돼 count(12)에 포함, 버퍼에는 seq 12만 남음
+        when(sceneLogRepository.findByRoomIdOrderByGlobalSceneSeqAsc(eq(ROOM_ID), any()))
+            .thenReturn(new PageImpl<>(scenes(0, 10), PageRequest.of(0, 10), 12));
+        when(sceneLogWriter.unflushed(ROOM_ID)).thenReturn(scenes(12, 13));
+
+        SceneHistoryPage page = service.getPaginatedHistory(ROOM_ID, "user", 0, 10);
+
+        assertEquals(13, page.totalElements());
+        assertEquals(2, page.totalPages());
+        assertEquals(LongStream.range(0, 10).boxed().toList(), seqs(page.items()));
+        InOrder order = inOrder(sceneLogRepository, sceneLogWriter);
+        order.verify(sceneLogRepository).findByRoomIdOrderByGlobalSceneSeqAsc(eq(ROOM_ID), any());
+        order.verify(sceneLogWriter).unflushed(ROOM_ID);
+    }
+
+    @Test
+    @DisplayName("마지막 페이지는 Mongo 끝 뒤에 미기록 씬을 잇고, insert 직후 아직 버퍼에 남은 씬은 id로 한 번만")
+    void lastPageAppendsTail() {
+        when(sceneLogRepository.findByRoomIdOrderByGlobalSceneSeqAsc(eq(ROOM_ID), any()))
+            .thenReturn(new PageImpl<>(scenes(10, 12), PageRequest.of(1, 10), 12));
+        when(sceneLogWriter.unflushed(ROOM_ID)).thenReturn(scenes(11, 14));
+
+        SceneHistoryPage page = service.getPaginatedHistory(ROOM_ID, "user", 1, 10);
+
+        assertEquals(List.of(10L, 11L, 12L, 13L), seqs(page.items()));
+        assertEquals(14, page.totalElements());
+        assertEquals(2, page.totalPages());
+    }
+
+    private static List<TheaterSceneLog> scenes(long fromSeq, long toSeq) {
+        return LongStream.range(fromSeq, toSeq)
+            .mapToObj(seq -> TheaterSceneLog.builder()
+                .id("scene-" + seq)
+                .roomId(ROOM_ID)
+                .globalSceneSeq(seq)
+                .narration("n" + seq)
+                .build())
+            .toList();
+    }
+
+    private static List<Long> seqs(List<SceneHistoryItem> items) {
+        return items.stream().map(SceneHistoryItem::globalSceneSeq).toList();
+    }
+}
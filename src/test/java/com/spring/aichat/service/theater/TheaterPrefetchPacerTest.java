@@ -0,0 +1,78 @@
+package com.spring.aichat.service.theater;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * {@link TheaterPrefetchPacer} — 시각을 고정값으로 넘겨 EWMA 갱신과 시작 시각 계산 확인.
+ */
+class TheaterPrefetchPacerTest {
+
+    private final TheaterPrefetchPacer pacer = new TheaterPrefetchPacer(7_000, 25_000, 3_000);
+
+    @Test
+    @DisplayName("전달 → 감상 완료 간격이 씬당 소비 시간 EWMA에 반영된다")
+    void consumedUpdatesPace() {
+        pacer.served(1L, 5, 4, 1_000);
+        pacer.consumed(1L, 5, 1_000 + 4 * 10_000);
+
+        assertEquals(7_900, pacer.msPerScene(1L));
+    }
+
+    @Test
+    @DisplayName("자리 비움으로 보이는 표본과 다른 배치의 완료는 버린다")
+    void ignoresAfkAndMismatchedSamples() {
+        pacer.served(1L, 5, 4, 0);
+        pacer.consumed(1L, 5, 4 * 200_000);
+        assertEquals(7_000, pacer.msPerScene(1L));
+
+        pacer.served(1L, 6, 4, 0);
+        pacer.consumed(1L, 7, 40_000);
+        assertEquals(7_000, pacer.msPerScene(1L));
+    }
+
+    @Test
+    @DisplayName("needAt = 전달 시각 + 씬 수 × 씬당 소비, latestStart = needAt − 생성 지연, startAt = latestStart − 여유")
+    void planFromServedBatch() {
+        pacer.served(1L, 5, 4, 100_000);
+
+        TheaterPrefetchPacer.Plan plan = pacer.plan(1L, 100_000);
+
+        assertEquals(128_000, plan.needAt());
+        assertEquals(103_000, plan.latestStart());
+        assertEquals(100_000, plan.startAt());
+    }
+
+    @Test
+    @DisplayName("전달 기록이 없으면 지금 필요하다고 본다")
+    void planWithoutServedBatchIsNow() {
+        TheaterPrefetchPacer.Plan plan = pacer.plan(1L, 50_000);
+
+        assertEquals(50_000, plan.needAt());
+        assertEquals(25_000, plan.latestStart());
+    }
+
+    @Test
+    @DisplayName("생성 지연은 방별 첫 표본을 그대로 쓰고, 표본 없는 방은 전역 EWMA로 시작한다")
+    void latencySeededFromGlobal() {
+        pacer.generated(1L, 15_000, 0);
+
+        assertEquals(15_000, pacer.latencyMs(1L));
+        assertEquals(22_000, pacer.latencyMs(2L));
+
+        pacer.generated(1L, 25_000, 1);
+        assertEquals(18_000, pacer.latencyMs(1L));
+    }
+
+    @Test
+    @DisplayName("idle 기간을 넘긴 방만 제거한다")
+    void evictIdleRooms() {
+        pacer.served(1L, 0, 3, 0);
+        pacer.served(2L, 0, 3, 50_000);
+
+        assertEquals(1, pacer.evictIdle(60_000, 30_000));
+        assertEquals(1, pacer.size());
+    }
+}
@@ -0,0 +1,223 @@
+package com.spring.aichat.service.theater;
+
+import com.spring.aichat.domain.chat.ChatRoom;
+import com.spring.aichat.domain.chat.ChatRoomRepository;
+import com.spring.aichat.domain.enums.TheaterAct;
+import com.spring.aichat.domain.theater.TheaterState;
+import com.spring.aichat.domain.theater.TheaterStateRepository;
+import com.spring.aichat.dto.theater.TheaterResponses.BranchSignal;
+import com.spring.aichat.dto.theater.TheaterResponses.SceneBatch;
+import com.spring.aichat.dto.theater.TheaterResponses.TheaterScene;
+import com.spring.aichat.service.metrics.ChatMetrics;
+import com.spring.aichat.service.theater.TheaterBatchGenerator.GenerateParams;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * {@link TheaterPrefetchScheduler} — 준비열 EDF 순서, 넘칠 때 여유가 가장 큰 작업부터 버림, 만료, 배치 위치가 바뀐 작업 폐기.
+ * 실행은 호출 스레드에서 바로(direct executor), 시각은 고정 시계. 동시 실행 1개를 첫 작업이 잡고 있는 동안
+ * 생성 콜백 안에서 다른 방 요청을 넣어 준비열을 쌓는다.
+ */
+class TheaterPrefetchSchedulerTest {
+
+    private static final long EXPIRE_AFTER_MS = 60_000;
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final ChatRoomRepository chatRoomRepository = mock(ChatRoomRepository.class);
+    private final TheaterStateRepository stateRepository = mock(TheaterStateRepository.class);
+    private final TheaterBatchGenerator batchGenerator = mock(TheaterBatchGenerator.class);
+    private final TheaterBatchCacheService batchCache = mock(TheaterBatchCacheService.class);
+    private final AtomicLong now = new AtomicLong(1_000_000);
+    private final Map<Long, TheaterState> states = new HashMap<>();
+    /** roomId → {현재 배치, 현재 챕터} — 실행 도중 바꿔 stale을 만든다 */
+    private final Map<Long, int[]> positions = new HashMap<>();
+    /** 생성된 순서 (roomId) */
+    private final List<Long> generated = new ArrayList<>();
+    /** roomId별 생성 중 실행할 동작 — 동시 실행 슬롯을 잡은 채로 다른 신호를 넣는다 */
+    private final Map<Long, Runnable> whileRunning = new HashMap<>();
+    private TheaterPrefetchScheduler scheduler;
+
+    @AfterEach
+    void tearDown() {
+        if (scheduler != null) scheduler.shutdown();
+    }
+
+    @Test
+    @DisplayName("준비열은 latestStart가 이른 방(생성 지연이 길어 정체에 가까운 방)부터 실행한다")
+    void runsEarliestDeadlineFirst() {
+        scheduler(1, 32);
+        room(1L);
+        room(2L, 10_000);
+        room(3L, 30_000);
+        room(4L, 20_000);
+        whileRunning.put(1L, () -> {
+            scheduler.requestPrefetch(2L);
+            scheduler.requestPrefetch(3L);
+            scheduler.requestPrefetch(4L);
+            assertEquals(3, scheduler.queuedCount());
+            assertTrue(scheduler.isUnderPressure(), "슬롯이 차고 대기열이 있으면 추측 생성은 쉰다");
+        });
+
+        scheduler.requestPrefetch(1L);
+
+        assertEquals(List.of(1L, 3L, 4L, 2L), generated);
+        assertEquals(0, scheduler.inFlightCount());
+        assertEquals(4, count("done"));
+    }
+
+    @Test
+    @DisplayName("준비열이 max-queued를 넘으면 여유(latestStart)가 가장 큰 작업을 버린다")
+    void shedsMostSlackJob() {
+        scheduler(1, 2);
+        room(1L);
+        room(2L, 10_000);
+        room(3L, 30_000);
+        room(4L, 20_000);
+        whileRunning.put(1L, () -> {
+            scheduler.requestPrefetch(2L);
+            scheduler.requestPrefetch(3L);
+            scheduler.requestPrefetch(4L);
+        });
+
+        scheduler.requestPrefetch(1L);
+
+        assertEquals(List.of(1L, 3L, 4L), generated, "방 2(여유 최대)는 버려져 요청 경로가 직접 생성");
+        assertEquals(1, count("shed"));
+    }
+
+    @Test
+    @DisplayName("필요 시각이 expire-after 이상 지난 작업은 실행하지 않고 버린다 (자리 비움)")
+    void expiresOverdueJob() {
+        scheduler(1, 32);
+        room(1L);
+        room(2L, 10_000);
+        whileRunning.put(1L, () -> {
+            scheduler.requestPrefetch(2L);
+            now.addAndGet(EXPIRE_AFTER_MS + 1);
+        });
+
+        scheduler.requestPrefetch(1L);
+
+        assertEquals(List.of(1L), generated);
+        assertEquals(1, count("expired"));
+        assertEquals(0, scheduler.queuedCount());
+    }
+
+    @Test
+    @DisplayName("대기 중에 유저가 배치를 넘기거나 챕터가 바뀌면 예약했던 대상은 stale — 생성하지 않는다")
+    void dropsStaleTarget() {
+        scheduler(1, 32);
+        room(1L);
+        room(2L, 10_000);
+        room(3L, 20_000);
+        whileRunning.put(1L, () -> {
+            scheduler.requestPrefetch(2L);
+            scheduler.requestPrefetch(3L);
+            positions.get(2L)[0] = 4;
+            positions.get(3L)[1] = 3;
+        });
+
+        scheduler.requestPrefetch(1L);
+
+        assertEquals(List.of(1L), generated);
+        assertEquals(2, count("stale"));
+    }
+
+    @Test
+    @DisplayName("대상 배치가 이미 캐시에 있거나 생성 중이면 cached — 중복 생성하지 않는다")
+    void skipsCachedTarget() {
+        scheduler(1, 32);
+        room(1L);
+        when(batchCache.existsBatch(1L, 4)).thenReturn(true);
+
+        scheduler.requestPrefetch(1L);
+
+        assertTrue(generated.isEmpty());
+        assertEquals(1, count("cached"));
+    }
+
+    @Test
+    @DisplayName("배치 전달 시 다음 배치를 예약하되, 챕터가 끝나거나 분기가 걸린 배치 뒤에는 예약하지 않는다")
+    void servedSchedulesUnlessChapterEndsOrBranches() {
+        scheduler(1, 32);
+        room(1L, 1_000_000);
+        TheaterState state = states.get(1L);
+
+        scheduler.onBatchServed(1L, state, batch(3, false, null), null, 0);
+        scheduler.onBatchServed(1L, state, batch(3, true, null), null, 0);
+        scheduler.onBatchServed(1L, state, batch(3, false, new BranchSignal("MINOR", "갈림길")), null, 0);
+
+        assertEquals(List.of(1L), generated, "지연이 지금보다 길면 즉시 시작");
+        assertEquals(1, count("done"));
+    }
+
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+    //  Helpers
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+
+    private void scheduler(int maxConcurrent, int maxQueued) {
+        scheduler = new TheaterPrefetchScheduler(chatRoomRepository, stateRepository, null, null,
+            batchGenerator, batchCache, new ChatMetrics(registry), Runnable::run,
+            maxConcurrent, maxQueued, 7_000, 25_000, 3_000, EXPIRE_AFTER_MS, now::get);
+        when(batchGenerator.generateNextBatch(any())).thenAnswer(inv -> {
+            GenerateParams params = inv.getArgument(0);
+            Long roomId = params.room().getId();
+            assertEquals(params.state().getCurrentBatchId() + 1, params.targetBatchId());
+            generated.add(roomId);
+            Runnable action = whileRunning.remove(roomId);
+            if (action != null) action.run();
+            return null;
+        });
+    }
+
+    /** 현재 배치 3 · 챕터 중간인 방 */
+    private void room(Long roomId) {
+        room(roomId, 0);
+    }
+
+    /** @param latencyMs 방별 생성 지연 표본 — 전달 기록이 없으면 latestStart = now − latencyMs */
+    private void room(Long roomId, long latencyMs) {
+        ChatRoom room = mock(ChatRoom.class);
+        when(room.getId()).thenReturn(roomId);
+        int[] position = {3, 2};
+        positions.put(roomId, position);
+        TheaterState state = mock(TheaterState.class);
+        when(state.getCurrentAct()).thenReturn(TheaterAct.ACT_2_BONDING);
+        when(state.getCurrentBatchId()).thenAnswer(inv -> position[0]);
+        when(state.getCurrentChapter()).thenAnswer(inv -> position[1]);
+        when(state.getScenesInCurrentChapter()).thenReturn(12);
+        when(state.getChapterTargetScenes()).thenReturn(40);
+        states.put(roomId, state);
+        when(chatRoomRepository.findById(roomId)).thenReturn(Optional.of(room));
+        when(stateRepository.findByRoom_Id(roomId)).thenReturn(Optional.of(state));
+        if (latencyMs > 0) scheduler.onBatchGenerated(roomId, latencyMs);
+    }
+
+    private double count(String outcome) {
+        Counter counter = registry.find("theater.prefetch").tag("outcome", outcome).counter();
+        return counter == null ? 0 : counter.count();
+    }
+
+    private static SceneBatch batch(int sceneCount, boolean chapterEnd, BranchSignal branch) {
+        List<TheaterScene> scenes = new ArrayList<>();
+        for (int i = 0; i < sceneCount; i++) {
+            scenes.add(new TheaterScene(i, "아이리", "n" + i, null, null, null, "d" + i,
+                "narration", "NEUTRAL", null, null, null, null, null, null));
+        }
+        return new SceneBatch(3, 2, 2, 10L, "아이리", scenes, chapterEnd, branch, false, null);
+    }
+}
@@ -0,0 +1,85 @@
+package com.spring.aichat.service.theater;
+
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * {@link TheaterSceneLogSpool} — 세그먼트 기록 · 봉인 · 재기동 복구.
+ */
+class TheaterSceneLogSpoolTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    @DisplayName("close 없이 죽어도 다음 기동에서 남은 세그먼트를 타입 그대로 읽는다")
+    void recoversAfterCrash() throws IOException {
+        ObjectId id = new ObjectId();
+        TheaterSceneLogSpool spool = new TheaterSceneLogSpool(dir, true);
+        spool.append(List.of(scene(id, 7L, 3L)));
+
+        TheaterSceneLogSpool restarted = new TheaterSceneLogSpool(dir, true);
+
+        assertEquals(1, restarted.orphans().size());
+        List<Document> docs = TheaterSceneLogSpool.read(restarted.orphans().get(0));
+        assertEquals(1, docs.size());
+        assertEquals(id, docs.get(0).get("_id"));
+        assertEquals(7L, docs.get(0).get("roomId"));
+        assertEquals(3L, docs.get(0).get("globalSceneSeq"));
+        assertInstanceOf(Date.class, docs.get(0).get("createdAt"));
+        spool.close();
+        restarted.close();
+    }
+
+    @Test
+    @DisplayName("잘린 마지막 줄은 건너뛰고 앞선 줄은 살린다")
+    void skipsTornTail() throws IOException {
+        TheaterSceneLogSpool spool = new TheaterSceneLogSpool(dir, false);
+        spool.append(List.of(scene(new ObjectId(), 1L, 0L), scene(new ObjectId(), 1L, 1L)));
+        Path sealed = spool.rotate();
+        Files.writeString(sealed, "{\"_id\": {\"$oid\": \"65", StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+
+        List<Document> docs = TheaterSceneLogSpool.read(sealed);
+
+        assertEquals(2, docs.size());
+        spool.close();
+    }
+
+    @Test
+    @DisplayName("rotate는 새 세그먼트로 넘어가고, 봉인된 세그먼트만 지울 수 있다")
+    void rotateSealsSegment() throws IOException {
+        TheaterSceneLogSpool spool = new TheaterSceneLogSpool(dir, false);
+        spool.append(List.of(scene(new ObjectId(), 1L, 0L)));
+        Path sealed = spool.rotate();
+        spool.append(List.of(scene(new ObjectId(), 1L, 1L)));
+
+        spool.delete(sealed);
+        spool.close();
+
+        TheaterSceneLogSpool restarted = new TheaterSceneLogSpool(dir, false);
+        assertEquals(1, restarted.orphans().size());
+        assertEquals(1L, TheaterSceneLogSpool.read(restarted.orphans().get(0)).get(0).get("globalSceneSeq"));
+        restarted.close();
+    }
+
+    private static Document scene(ObjectId id, long roomId, long seq) {
+        return new Document("_id", id)
+            .append("roomId", roomId)
+            .append("globalSceneSeq", seq)
+            .append("narration", "비가 그친 옥상.\n바람이 분다.")
+            .append("createdAt", new Date());
+    }
+}
@@ -0,0 +1,273 @@
+package com.spring.aichat.service.theater;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.MongoException;
+import com.mongodb.ServerAddress;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.InsertManyOptions;
+import com.spring.aichat.domain.theater.TheaterSceneLog;
+import com.spring.aichat.domain.theater.TheaterSceneLogRepository;
+import com.spring.aichat.service.metrics.ChatMetrics;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+/**
+ * {@link TheaterSceneLogWriter} — ordered insertMany 부분 실패, 남은 문서의 버퍼 · 스풀 이월, 중복 키 멱등 재시도, 스풀 복구.
+ * Mongo는 ordered insertMany를 흉내 내는 가짜 컬렉션 (앞에서부터 넣다가 첫 오류 위치에서 멈춤), 변환은 실제 매핑 컨버터.
+ */
+class TheaterSceneLogWriterTest {
+
+    private static final String COLLECTION = "theater_scene_logs";
+    private static final int DUPLICATE_KEY = 11000;
+    private static final int DOCUMENT_TOO_LARGE = 10334;
+
+    @TempDir
+    Path dir;
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+    private final TheaterSceneLogRepository sceneLogRepository = mock(TheaterSceneLogRepository.class);
+    @SuppressWarnings("unchecked")
+    private final MongoCollection<Document> collection = mock(MongoCollection.class);
+    private final MappingMongoConverter converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, new MongoMappingContext());
+
+    /** 가짜 컬렉션에 들어간 문서 (_id → 문서, 기록 순서) */
+    private final Map<Object, Document> stored = new LinkedHashMap<>();
+    /** 이 globalSceneSeq 문서는 문서 단위 오류 (재시도해도 실패) */
+    private final Set<Long> unwritable = new HashSet<>();
+    /** 저장 문서 수가 이만큼이 되면 연결 오류 — 어디까지 들어갔는지 호출부는 모른다 */
+    private int outageAt = Integer.MAX_VALUE;
+    private final AtomicInteger insertCalls = new AtomicInteger();
+    private TheaterSceneLogWriter writer;
+
+    @BeforeEach
+    void setUp() {
+        converter.afterPropertiesSet();
+        when(mongoTemplate.getConverter()).thenReturn(converter);
+        when(mongoTemplate.getCollectionName(TheaterSceneLog.class)).thenReturn(COLLECTION);
+        when(mongoTemplate.getCollection(COLLECTION)).thenReturn(collection);
+        doAnswer(inv -> {
+            insertCalls.incrementAndGet();
+            List<Document> docs = inv.getArgument(0);
+            for (int i = 0; i < docs.size(); i++) {
+                Document doc = docs.get(i);
+                if (stored.size() >= outageAt) throw new MongoException("connection reset");
+                if (stored.containsKey(doc.get("_id"))) throw bulkError(DUPLICATE_KEY, i);
+                if (unwritable.contains(doc.getLong("globalSceneSeq"))) throw bulkError(DOCUMENT_TOO_LARGE, i);
+                stored.put(doc.get("_id"), doc);
+            }
+            return null;
+        }).when(collection).insertMany(anyList(), any(InsertManyOptions.class));
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (writer != null) writer.shutdown();
+    }
+
+    @Test
+    @DisplayName("flush는 모든 방의 버퍼를 (roomId, globalSceneSeq) 순 insertMany 1회로 쓰고 봉인 세그먼트를 지운다")
+    void flushesAllRoomsInOneInsert() throws IOException {
+        writer = writer(dir.toString());
+        writer.append(2L, List.of(scene(2L, 0)));
+        writer.append(1L, List.of(scene(1L, 0), scene(1L, 1)));
+        assertEquals(3, spooled().size(), "버퍼에 든 문서는 스풀에도 있다");
+
+        writer.flush();
+
+        assertEquals(1, insertCalls.get());
+        assertEquals(List.of("1:0", "1:1", "2:0"), storedKeys());
+        assertEquals(0, writer.bufferedCount());
+        assertTrue(spooled().isEmpty());
+        assertEquals(1, flushes("ok"));
+    }
+
+    @Test
+    @DisplayName("ordered insert가 중간에 멈추면 앞부분 · 기록 불가 문서만 빼고, 나머지는 버퍼와 스풀에 남아 다음 flush에서 이어 쓴다")
+    void partialFailureCarriesOverTail() throws IOException {
+        writer = writer(dir.toString());
+        writer.append(1L, List.of(scene(1L, 0), scene(1L, 1), scene(1L, 2), scene(1L, 3)));
+        unwritable.add(1L);
+        outageAt = 2;
+
+        writer.flush();
+
+        assertEquals(List.of("1:0", "1:2"), storedKeys(), "seq 2는 들어갔지만 연결 오류로 결과를 모른다");
+        assertEquals(List.of(2L, 3L), seqs(writer.unflushed(1L)), "seq 1(기록 불가)은 버리고 2 · 3은 이월");
+        assertEquals(2, writer.bufferedCount());
+        assertEquals(List.of(2L, 3L), spooled().stream().map(d -> d.getLong("globalSceneSeq")).toList(),
+            "봉인 세그먼트는 지우고 이월분만 새 세그먼트에");
+        assertEquals(1, flushes("partial"));
+
+        List<TheaterSceneLog> fromMongo = List.of(writer.unflushed(1L).get(0));
+        assertEquals(2, writer.withUnflushed(1L, fromMongo, l -> true).size(), "Mongo에도 보이는 씬은 id로 한 번만");
+
+        outageAt = Integer.MAX_VALUE;
+        writer.flush();
+
+        assertEquals(List.of("1:0", "1:2", "1:3"), storedKeys());
+        assertEquals(0, writer.bufferedCount());
+        assertTrue(spooled().isEmpty());
+        assertEquals(1, flushes("ok"));
+    }
+
+    @Test
+    @DisplayName("결과를 모르는 실패 뒤 재시도는 중복 키(E11000)를 기록됨으로 보고 건너뛴다 — 같은 씬이 두 번 들어가지 않는다")
+    void retryAfterAmbiguousFailureIsIdempotent() {
+        writer = writer(dir.toString());
+        writer.append(1L, List.of(scene(1L, 0), scene(1L, 1), scene(1L, 2), scene(1L, 3)));
+        outageAt = 2;
+
+        writer.flush();
+
+        assertEquals(4, writer.bufferedCount(), "어디까지 들어갔는지 모르니 전부 남긴다");
+        assertEquals(1, flushes("failed"));
+
+        outageAt = Integer.MAX_VALUE;
+        insertCalls.set(0);
+        writer.flush();
+
+        assertEquals(List.of("1:0", "1:1", "1:2", "1:3"), storedKeys());
+        assertEquals(3, insertCalls.get(), "중복 키 2건마다 그 다음부터 다시 insert");
+        assertEquals(0, writer.bufferedCount());
+    }
+
+    @Test
+    @DisplayName("기동 시 지난 프로세스의 스풀 세그먼트를 id 중복 없이 방 · seq 순으로 버퍼에 싣고, 새 세그먼트로 옮긴 뒤 옛 세그먼트를 지운다")
+    void recoverReloadsOrphanSegments() throws IOException {
+        Document room2 = doc(2L, 1);
+        TheaterSceneLogSpool previous = new TheaterSceneLogSpool(dir, false);
+        previous.append(List.of(room2, doc(1L, 5)));
+        previous.rotate();
+        previous.append(List.of(doc(1L, 4), room2));
+        previous.close();
+
+        writer = writer(dir.toString());
+
+        assertEquals(3, writer.bufferedCount());
+        assertEquals(List.of(4L, 5L), seqs(writer.unflushed(1L)));
+        assertEquals(List.of(1L), seqs(writer.unflushed(2L)));
+        assertEquals(1, segments().size(), "옛 세그먼트 2개는 지우고 새 활성 세그먼트 1개");
+        assertEquals(3, spooled().size());
+
+        writer.flush();
+
+        assertEquals(List.of("1:4", "1:5", "2:1"), storedKeys());
+        assertTrue(spooled().isEmpty());
+    }
+
+    @Test
+    @DisplayName("spool-dir이 비었거나 상대 경로면 write-behind를 켜지 않고 곧바로 saveAll")
+    void requiresAbsoluteSpoolDir() {
+        for (String spoolDir : List.of("", "data/scene-log-spool")) {
+            TheaterSceneLogWriter direct = writer(spoolDir);
+            List<TheaterSceneLog> logs = List.of(scene(1L, 0));
+
+            direct.append(1L, logs);
+
+            verify(sceneLogRepository).saveAll(logs);
+            assertEquals(0, direct.bufferedCount());
+            assertNull(direct.getTimer());
+            direct.shutdown();
+            clearInvocations(sceneLogRepository);
+        }
+    }
+
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+    //  Helpers
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+
+    /** 타이머 · 임계치 flush는 사실상 끔 — 테스트가 flush를 직접 부른다 */
+    private TheaterSceneLogWriter writer(String spoolDir) {
+        TheaterSceneLogWriter w = new TheaterSceneLogWriter(mongoTemplate, sceneLogRepository,
+            new ChatMetrics(registry), true, 600_000, 1_000, 20_000, spoolDir, false);
+        w.start();
+        return w;
+    }
+
+    private static TheaterSceneLog scene(Long roomId, long seq) {
+        return TheaterSceneLog.builder()
+            .roomId(roomId)
+            .actNumber(1)
+            .chapterNumber(1)
+            .batchId(1)
+            .sceneIndexInBatch((int) seq)
+            .sceneSeqInChapter((int) seq)
+            .globalSceneSeq(seq)
+            .narration("n" + seq)
+            .build();
+    }
+
+    /** 지난 프로세스가 스풀에 남긴 문서 */
+    private Document doc(Long roomId, long seq) {
+        Document doc = new Document();
+        converter.write(scene(roomId, seq), doc);
+        doc.put("_id", new ObjectId());
+        return doc;
+    }
+
+    private List<String> storedKeys() {
+        return stored.values().stream().map(d -> d.getLong("roomId") + ":" + d.getLong("globalSceneSeq")).toList();
+    }
+
+    private static List<Long> seqs(List<TheaterSceneLog> logs) {
+        return logs.stream().map(TheaterSceneLog::getGlobalSceneSeq).toList();
+    }
+
+    private List<Path> segments() throws IOException {
+        List<Path> found = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, "*.spool")) {
+            stream.forEach(found::add);
+        }
+        return found;
+    }
+
+    /** 디스크에 남은 모든 세그먼트의 문서 */
+    private List<Document> spooled() throws IOException {
+        List<Document> docs = new ArrayList<>();
+        for (Path segment : segments()) docs.addAll(TheaterSceneLogSpool.read(segment));
+        return docs;
+    }
+
+    private long flushes(String outcome) {
+        Timer timer = registry.find("theater.scene_log.flush").tag("outcome", outcome).timer();
+        return timer == null ? 0 : timer.count();
+    }
+
+    private static MongoBulkWriteException bulkError(int code, int index) {
+        return new MongoBulkWriteException(BulkWriteResult.unacknowledged(),
+            List.of(new BulkWriteError(code, "E" + code, new BsonDocument(), index)),
+            null, new ServerAddress(), Set.of());
+    }
+}
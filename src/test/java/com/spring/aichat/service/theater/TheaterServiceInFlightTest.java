@@ -0,0 +1,89 @@
+package com.spring.aichat.service.theater;
+
+import com.spring.aichat.dto.theater.TheaterResponses.SceneBatch;
+import com.spring.aichat.dto.theater.TheaterResponses.TheaterScene;
+import com.spring.aichat.service.theater.TheaterBatchCacheService.PartialBatch;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * {@link TheaterService} 따라잡기 — 부분 배치 정체(heartbeat 끊김) 시 포기, heartbeat가 오면 계속 대기, 생성 실패 시 빈 값.
+ */
+class TheaterServiceInFlightTest {
+
+    private static final Long ROOM_ID = 1L;
+    private static final int BATCH_ID = 4;
+    private static final long STALL_MS = 300;
+
+    private final TheaterBatchCacheService batchCache = mock(TheaterBatchCacheService.class);
+    private final TheaterService service = new TheaterService(
+        null, null, null, null, null, batchCache, null, null, null, null);
+
+    TheaterServiceInFlightTest() {
+        ReflectionTestUtils.setField(service, "inFlightStallMs", STALL_MS);
+    }
+
+    @Test
+    @DisplayName("부분 배치가 정체 기준 동안 그대로면(생성 노드 사망) 130초 상한을 기다리지 않고 포기한다")
+    void stalledProducerIsAbandoned() {
+        when(batchCache.getBatch(ROOM_ID, BATCH_ID)).thenReturn(Optional.empty());
+        when(batchCache.getPartialBatch(ROOM_ID, BATCH_ID))
+            .thenReturn(Optional.of(new PartialBatch(batch(2), 6, 1_000L)));
+        List<Integer> progress = new ArrayList<>();
+
+        long start = System.currentTimeMillis();
+        Optional<SceneBatch> result = service.awaitInFlightBatch(ROOM_ID, BATCH_ID, p -> progress.add(p.sceneCount()));
+
+        assertTrue(result.isEmpty());
+        long waited = System.currentTimeMillis() - start;
+        assertTrue(waited >= STALL_MS && waited < 5_000, "waited=" + waited);
+        assertEquals(List.of(2), progress, "이미 도착한 씬은 한 번 전달");
+    }
+
+    @Test
+    @DisplayName("씬이 없어도 heartbeat로 updatedAt이 바뀌는 동안은 정체 기준을 넘겨 기다리고, 완성본이 오면 반환")
+    void heartbeatKeepsWaiting() {
+        AtomicInteger polls = new AtomicInteger();
+        SceneBatch done = batch(6);
+        int pollsUntilDone = (int) (STALL_MS * 3 / 150);
+        when(batchCache.getBatch(ROOM_ID, BATCH_ID)).thenAnswer(inv ->
+            polls.get() >= pollsUntilDone ? Optional.of(done) : Optional.empty());
+        when(batchCache.getPartialBatch(ROOM_ID, BATCH_ID)).thenAnswer(inv ->
+            Optional.of(new PartialBatch(batch(0), 6, polls.incrementAndGet())));
+
+        Optional<SceneBatch> result = service.awaitInFlightBatch(ROOM_ID, BATCH_ID, null);
+
+        assertSame(done, result.orElseThrow());
+    }
+
+    @Test
+    @DisplayName("부분 배치가 사라지면 완성본을 한 번 더 보고, 없으면(생성 실패) 빈 값 — 호출부가 직접 생성")
+    void vanishedPartial() {
+        SceneBatch done = batch(6);
+        when(batchCache.getPartialBatch(ROOM_ID, BATCH_ID)).thenReturn(Optional.empty());
+        when(batchCache.getBatch(ROOM_ID, BATCH_ID)).thenReturn(Optional.empty(), Optional.of(done));
+        assertSame(done, service.awaitInFlightBatch(ROOM_ID, BATCH_ID, null).orElseThrow());
+
+        when(batchCache.getBatch(ROOM_ID, BATCH_ID)).thenReturn(Optional.empty());
+        assertTrue(service.awaitInFlightBatch(ROOM_ID, BATCH_ID, null).isEmpty());
+    }
+
+    private static SceneBatch batch(int sceneCount) {
+        List<TheaterScene> scenes = new ArrayList<>();
+        for (int i = 0; i < sceneCount; i++) {
+            scenes.add(new TheaterScene(i, "아이리", "n" + i, null, null, null, "d" + i,
+                "narration", "NEUTRAL", null, null, null, null, null, null));
+        }
+        return new SceneBatch(BATCH_ID, 1, 1, 10L, "아이리", scenes, false, null, false, null);
+    }
+}
@@ -0,0 +1,191 @@
+package com.spring.aichat.service.theater;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 세이브 스냅샷 벤치마크 — 세이브당 기록 바이트(델타 + 새 청크 vs 전체 JSON), 체인 depth별 로드 지연 p50/p99
+ *
+ * <p>기본 600회 세이브 (슬롯 6개 순환, max-chain-depth 8, inline-max-bytes 64).
+ * 스냅샷은 진행 상태 + 히로인 8명 호감도 + ~2KB 롤링 요약(10회마다 교체) + 분기 맥락 — 실제보다 큰 쪽으로 잡았다.
+ * 세이브 사이에는 스탯 1~2개와 히로인 1~2명 호감도만 바뀐다.
+ * DB 대신 {@link TheaterSnapshotStore}와 같은 규칙(방의 최신 매니페스트 기준 델타, depth 상한 초과 시 전체)을 메모리에서 흉내 낸다.
+ * <pre>./gradlew loadTest --tests '*TheaterSnapshotBenchmarkLoadTest' -Dsnapshot.bench.saves=2000</pre>
+ */
+@Tag("load")
+class TheaterSnapshotBenchmarkLoadTest {
+
+    private static final int SLOTS = 6;
+    private static final int MAX_CHAIN_DEPTH = 8;
+    private static final int INLINE_MAX_BYTES = 64;
+    private static final int HEROINES = 8;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    /** 매니페스트 (parent = -1 이면 전체) */
+    private record Manifest(int parent, int depth, JsonNode delta) {}
+
+    @Test
+    @DisplayName("델타 세이브 기록 바이트 < 전체의 40%, 로드 지연 출력")
+    void bytesWrittenAndLoadLatency() throws Exception {
+        int saves = Integer.getInteger("snapshot.bench.saves", 600);
+        Random random = new Random(42);
+        Map<String, Object> state = initialState();
+        List<Map<String, Object>> affections = initialAffections();
+        String summary = summary(random, 0);
+
+        Map<String, String> chunkStore = new HashMap<>();
+        List<Manifest> manifests = new ArrayList<>();
+        Map<String, JsonNode> latestEntries = Map.of();
+        int[] slotHeads = new int[SLOTS];
+        Map<Integer, String> expected = new HashMap<>();
+
+        long fullBytes = 0;
+        long writtenBytes = 0;
+        for (int i = 0; i < saves; i++) {
+            mutate(random, state, affections);
+            if (i % 10 == 9) summary = summary(random, i);
+            String json = snapshot(state, affections, summary, i);
+
+            TheaterSnapshotCodec.Encoded encoded = TheaterSnapshotCodec.encode(mapper, json, INLINE_MAX_BYTES);
+            int latest = manifests.size() - 1;
+            boolean full = latest < 0 || manifests.get(latest).depth() + 1 > MAX_CHAIN_DEPTH;
+            JsonNode delta = TheaterSnapshotCodec.delta(mapper, full ? Map.of() : latestEntries, encoded.entries());
+
+            long written = bytes(mapper.writeValueAsString(delta));
+            Set<String> referenced = TheaterSnapshotCodec.hashesOfDelta(delta);
+            for (String hash : referenced) {
+                String content = encoded.chunks().get(hash);
+                if (chunkStore.putIfAbsent(hash, content) == null) written += bytes(content);
+            }
+            manifests.add(new Manifest(full ? -1 : latest, full ? 0 : manifests.get(latest).depth() + 1, delta));
+            latestEntries = encoded.entries();
+            slotHeads[i % SLOTS] = manifests.size() - 1;
+            expected.put(manifests.size() - 1, json);
+
+            fullBytes += bytes(json);
+            writtenBytes += written;
+        }
+
+        for (int w = 0; w < 500; w++) load(manifests, chunkStore, w % manifests.size());  // 워밍업
+
+        long[][] latencies = new long[MAX_CHAIN_DEPTH + 1][];
+        for (int depth = 0; depth <= MAX_CHAIN_DEPTH; depth++) {
+            List<Integer> targets = new ArrayList<>();
+            for (int id = 0; id < manifests.size(); id++) {
+                if (manifests.get(id).depth() == depth) targets.add(id);
+            }
+            latencies[depth] = new long[targets.size()];
+            for (int t = 0; t < targets.size(); t++) {
+                long start = System.nanoTime();
+                String loaded = load(manifests, chunkStore, targets.get(t));
+                latencies[depth][t] = System.nanoTime() - start;
+                assertEquals(mapper.readTree(expected.get(targets.get(t))), mapper.readTree(loaded));
+            }
+            Arrays.sort(latencies[depth]);
+        }
+
+        double ratio = (double) writtenBytes / fullBytes;
+        System.out.printf("[SNAPSHOT-BENCH] saves=%,d | full=%,dB/save | written=%,dB/save (%.1f%%) | chunks=%,d (%,dKB)%n",
+            saves, fullBytes / saves, writtenBytes / saves, ratio * 100, chunkStore.size(),
+            chunkStore.values().stream().mapToLong(TheaterSnapshotBenchmarkLoadTest::bytes).sum() / 1024);
+        for (int depth = 0; depth <= MAX_CHAIN_DEPTH; depth++) {
+            long[] l = latencies[depth];
+            if (l.length == 0) continue;
+            System.out.printf("[SNAPSHOT-BENCH] depth=%d | loads=%,d | p50=%.0fµs | p99=%.0fµs%n",
+                depth, l.length, l[l.length / 2] / 1_000.0, l[l.length * 99 / 100] / 1_000.0);
+        }
+        System.out.printf("[SNAPSHOT-BENCH] slot heads=%s%n", Arrays.toString(slotHeads));
+        assertTrue(ratio < 0.4, "written/full=" + ratio);
+    }
+
+    /** 스토어의 CHAIN_SQL + resolve + decode와 같은 순서 */
+    private String load(List<Manifest> manifests, Map<String, String> chunkStore, int manifestId) throws Exception {
+        List<JsonNode> chain = new ArrayList<>();
+        for (int id = manifestId; id >= 0; id = manifests.get(id).parent()) chain.add(0, manifests.get(id).delta());
+        Map<String, JsonNode> entries = TheaterSnapshotCodec.resolve(chain);
+        Map<String, String> chunks = new HashMap<>();
+        for (String hash : TheaterSnapshotCodec.hashes(entries.values())) chunks.put(hash, chunkStore.get(hash));
+        return TheaterSnapshotCodec.decode(mapper, entries, chunks);
+    }
+
+    private static Map<String, Object> initialState() {
+        Map<String, Object> state = new LinkedHashMap<>();
+        state.put("currentAct", "ACT_2_CONFLICT");
+        state.put("currentChapter", 3);
+        state.put("scenesInCurrentChapter", 0);
+        state.put("totalSceneCount", 120L);
+        for (String stat : List.of("statCharm", "statWit", "statCourage", "statKindness", "statMystery")) {
+            state.put(stat, 10);
+        }
+        return state;
+    }
+
+    private static List<Map<String, Object>> initialAffections() {
+        List<Map<String, Object>> affections = new ArrayList<>();
+        for (int c = 1; c <= HEROINES; c++) {
+            Map<String, Object> a = new LinkedHashMap<>();
+            a.put("characterId", (long) c);
+            a.put("affection", 20 + c);
+            a.put("totalScenes", 10 * c);
+            a.put("confirmedMain", false);
+            affections.add(a);
+        }
+        return affections;
+    }
+
+    private static void mutate(Random random, Map<String, Object> state, List<Map<String, Object>> affections) {
+        state.merge("scenesInCurrentChapter", 1, (a, b) -> (Integer) a + (Integer) b);
+        state.merge("totalSceneCount", 1L, (a, b) -> (Long) a + (Long) b);
+        List<String> stats = List.of("statCharm", "statWit", "statCourage", "statKindness", "statMystery");
+        for (int k = 0, n = 1 + random.nextInt(2); k < n; k++) {
+            state.merge(stats.get(random.nextInt(stats.size())), 1, (a, b) -> (Integer) a + (Integer) b);
+        }
+        for (int k = 0, n = 1 + random.nextInt(2); k < n; k++) {
+            Map<String, Object> a = affections.get(random.nextInt(affections.size()));
+            a.merge("affection", random.nextInt(7) - 2, (x, y) -> (Integer) x + (Integer) y);
+            a.merge("totalScenes", 1, (x, y) -> (Integer) x + (Integer) y);
+        }
+    }
+
+    private static String summary(Random random, int seed) {
+        StringBuilder sb = new StringBuilder("[요약 #").append(seed).append("] ");
+        while (sb.length() < 700) {  // 한글 3바이트 — ~2KB
+            sb.append("비가 그친 옥상에서 ").append(random.nextInt(HEROINES) + 1).append("번 히로인과 이야기를 나눴다. ");
+        }
+        return sb.toString();
+    }
+
+    private String snapshot(Map<String, Object> state, List<Map<String, Object>> affections,
+                            String summary, int seq) throws Exception {
+        Map<String, Object> snap = new LinkedHashMap<>();
+        snap.put("stateSnapshot", state);
+        snap.put("affections", affections);
+        snap.put("rollingSummary", summary);
+        snap.put("branchContext", Map.of(
+            "lastBranchSceneSeq", seq - seq % 5,
+            "choices", List.of("옥상으로 간다", "도서관에 남는다", "집으로 돌아간다")));
+        snap.put("savedAt", "2026-10-16T10:00:" + String.format("%02d", seq % 60));
+        return mapper.writeValueAsString(snap);
+    }
+
+    private static long bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8).length;
+    }
+}
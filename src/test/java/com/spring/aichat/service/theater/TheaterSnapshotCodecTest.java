@@ -0,0 +1,133 @@
+package com.spring.aichat.service.theater;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * {@link TheaterSnapshotCodec} — 청크 분할 · 델타 · 체인 복원.
+ */
+class TheaterSnapshotCodecTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Test
+    @DisplayName("encode → decode는 원래 스냅샷과 같다 (작은 값은 인라인, 배열은 원소별 청크)")
+    void roundTrip() throws Exception {
+        String json = snapshot(10, 55, "2026-10-16T10:00:00");
+
+        TheaterSnapshotCodec.Encoded encoded = TheaterSnapshotCodec.encode(mapper, json, 64);
+
+        assertTrue(encoded.entries().get("savedAt").has("v"));
+        assertTrue(encoded.entries().get("stateSnapshot").has("h"));
+        assertEquals(3, encoded.entries().get("affections").get("a").size());
+        assertEquals(mapper.readTree(json),
+            mapper.readTree(TheaterSnapshotCodec.decode(mapper, encoded.entries(), encoded.chunks())));
+    }
+
+    @Test
+    @DisplayName("히로인 1명 호감도만 바뀌면 델타는 affections · savedAt만, 새 청크는 1개")
+    void deltaCarriesOnlyChangedFields() throws Exception {
+        TheaterSnapshotCodec.Encoded prev = TheaterSnapshotCodec.encode(mapper, snapshot(10, 55, "t1"), 64);
+        TheaterSnapshotCodec.Encoded next = TheaterSnapshotCodec.encode(mapper, snapshot(10, 60, "t2"), 64);
+
+        ObjectNode delta = TheaterSnapshotCodec.delta(mapper, prev.entries(), next.entries());
+
+        assertEquals(Set.of("affections", "savedAt"), fieldNames(delta.get("set")));
+        assertEquals(Set.of("0"), fieldNames(delta.get("set").get("affections").get("ai")));
+        Set<String> fresh = TheaterSnapshotCodec.hashesOfDelta(delta);
+        fresh.removeAll(prev.chunks().keySet());
+        assertEquals(1, fresh.size());
+    }
+
+    @Test
+    @DisplayName("체인 resolve는 마지막 스냅샷을 복원하고 빠진 필드는 unset으로 지운다")
+    void resolveChain() throws Exception {
+        TheaterSnapshotCodec.Encoded s0 = TheaterSnapshotCodec.encode(mapper, snapshot(10, 55, "t0"), 64);
+        TheaterSnapshotCodec.Encoded s1 = TheaterSnapshotCodec.encode(mapper, snapshot(11, 55, "t1"), 64);
+        ObjectNode withoutSavedAt = (ObjectNode) mapper.readTree(snapshot(12, 70, "t2"));
+        withoutSavedAt.remove("savedAt");
+        TheaterSnapshotCodec.Encoded s2 = TheaterSnapshotCodec.encode(mapper, mapper.writeValueAsString(withoutSavedAt), 64);
+
+        List<JsonNode> deltas = List.of(
+            TheaterSnapshotCodec.delta(mapper, Map.of(), s0.entries()),
+            TheaterSnapshotCodec.delta(mapper, s0.entries(), s1.entries()),
+            TheaterSnapshotCodec.delta(mapper, s1.entries(), s2.entries()));
+        Map<String, String> chunks = new HashMap<>();
+        List.of(s0, s1, s2).forEach(s -> chunks.putAll(s.chunks()));
+
+        Map<String, JsonNode> resolved = TheaterSnapshotCodec.resolve(deltas);
+
+        assertFalse(resolved.containsKey("savedAt"));
+        assertEquals(withoutSavedAt, mapper.readTree(TheaterSnapshotCodec.decode(mapper, resolved, chunks)));
+    }
+
+    @Test
+    @DisplayName("배열 길이가 바뀌면 원소 패치 대신 배열 전체를 싣는다")
+    void arrayResizeSendsWholeArray() throws Exception {
+        TheaterSnapshotCodec.Encoded prev = TheaterSnapshotCodec.encode(mapper, snapshot(10, 55, "t1"), 64);
+        ObjectNode grown = (ObjectNode) mapper.readTree(snapshot(10, 55, "t2"));
+        grown.withArray("affections").add(mapper.valueToTree(
+            Map.of("characterId", 4, "affection", 0, "totalScenes", 0, "confirmedMain", false)));
+        TheaterSnapshotCodec.Encoded next = TheaterSnapshotCodec.encode(mapper, mapper.writeValueAsString(grown), 64);
+
+        ObjectNode delta = TheaterSnapshotCodec.delta(mapper, prev.entries(), next.entries());
+
+        assertEquals(4, delta.get("set").get("affections").get("a").size());
+        assertEquals(next.entries(), TheaterSnapshotCodec.apply(prev.entries(), delta));
+    }
+
+    @Test
+    @DisplayName("인라인 값 안의 \"h\" 키는 청크 참조로 보지 않는다")
+    void inlineValuesAreOpaque() {
+        ObjectNode entry = mapper.createObjectNode();
+        entry.set("v", mapper.createObjectNode().put("h", "not-a-chunk"));
+
+        assertTrue(TheaterSnapshotCodec.hashes(List.of(entry)).isEmpty());
+    }
+
+    @Test
+    @DisplayName("청크가 없으면 복원하지 않고 실패한다")
+    void missingChunkFails() throws Exception {
+        TheaterSnapshotCodec.Encoded encoded = TheaterSnapshotCodec.encode(mapper, snapshot(10, 55, "t"), 64);
+
+        assertThrows(IllegalStateException.class,
+            () -> TheaterSnapshotCodec.decode(mapper, encoded.entries(), Map.of()));
+    }
+
+    private String snapshot(int charm, int firstAffection, String savedAt) throws Exception {
+        Map<String, Object> state = new LinkedHashMap<>();
+        state.put("currentAct", "ACT_2_CONFLICT");
+        state.put("currentChapter", 3);
+        state.put("scenesInCurrentChapter", 12);
+        state.put("totalSceneCount", 140L);
+        state.put("statCharm", charm);
+        state.put("statWit", 7);
+
+        Map<String, Object> snap = new LinkedHashMap<>();
+        snap.put("stateSnapshot", state);
+        snap.put("affections", List.of(
+            Map.of("characterId", 1, "affection", firstAffection, "totalScenes", 40, "confirmedMain", false),
+            Map.of("characterId", 2, "affection", 30, "totalScenes", 35, "confirmedMain", false),
+            Map.of("characterId", 3, "affection", 12, "totalScenes", 20, "confirmedMain", false)));
+        snap.put("savedAt", savedAt);
+        return mapper.writeValueAsString(snap);
+    }
+
+    private static Set<String> fieldNames(JsonNode node) {
+        Set<String> names = new HashSet<>();
+        node.fieldNames().forEachRemaining(names::add);
+        return names;
+    }
+}
@@ -0,0 +1,121 @@
+package com.spring.aichat.service.theater;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+/**
+ * {@link TheaterSnapshotCompactor} — depth 기준, 커밋 후 예약, 실행 중 트리거 합치기, 큐 포화 시 버림.
+ */
+class TheaterSnapshotCompactorTest {
+
+    private static final Long ROOM_ID = 1L;
+    private static final int DEPTH = 4;
+    private static final TheaterSnapshotStore.Compaction NOTHING = new TheaterSnapshotStore.Compaction(0, 0, 0);
+
+    private final TheaterSnapshotStore store = mock(TheaterSnapshotStore.class);
+    private final TransactionTemplate txTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
+    private TheaterSnapshotCompactor compactor;
+
+    @AfterEach
+    void tearDown() {
+        if (compactor != null) compactor.shutdown();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    @DisplayName("depth가 compact-depth 미만이면 예약하지 않는다")
+    void ignoresShallowSaves() {
+        compactor = compactor(128);
+
+        compactor.onSaved(ROOM_ID, DEPTH - 1);
+
+        verify(store, after(200).never()).compact(anyLong(), anyInt());
+    }
+
+    @Test
+    @DisplayName("트랜잭션 안의 세이브는 커밋 뒤에만 압축한다")
+    void runsAfterCommit() {
+        when(store.compact(ROOM_ID, DEPTH)).thenReturn(NOTHING);
+        compactor = compactor(128);
+        TransactionSynchronizationManager.initSynchronization();
+
+        compactor.onSaved(ROOM_ID, DEPTH);
+        verify(store, after(200).never()).compact(anyLong(), anyInt());
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        verify(store, timeout(2000)).compact(ROOM_ID, DEPTH);
+    }
+
+    @Test
+    @DisplayName("실행 중 들어온 트리거 여러 개는 끝난 뒤 정확히 1회 재실행으로 합쳐진다")
+    void coalescesTriggersWhileRunning() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(store.compact(ROOM_ID, DEPTH)).thenAnswer(inv -> {
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return NOTHING;
+        });
+        compactor = compactor(128);
+
+        compactor.onSaved(ROOM_ID, DEPTH);
+        assertTrue(started.await(2, TimeUnit.SECONDS));
+        compactor.onSaved(ROOM_ID, DEPTH);
+        compactor.onSaved(ROOM_ID, DEPTH + 1);
+        compactor.submit(ROOM_ID);
+        release.countDown();
+
+        verify(store, timeout(2000).times(2)).compact(ROOM_ID, DEPTH);
+        verify(store, after(200).times(2)).compact(ROOM_ID, DEPTH);
+        assertEquals(0, compactor.getRejectedCount());
+    }
+
+    @Test
+    @DisplayName("큐가 차면 버리고 세기만 한다 — 다음 세이브가 다시 트리거")
+    void rejectsWhenQueueFull() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(store.compact(anyLong(), anyInt())).thenAnswer(inv -> {
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return NOTHING;
+        });
+        compactor = compactor(1);
+
+        compactor.submit(1L);
+        assertTrue(started.await(2, TimeUnit.SECONDS));
+        compactor.submit(2L);
+        compactor.submit(3L);
+        release.countDown();
+
+        assertEquals(1, compactor.getRejectedCount());
+        verify(store, timeout(2000)).compact(2L, DEPTH);
+        verify(store, after(200).never()).compact(3L, DEPTH);
+
+        compactor.submit(3L);
+        verify(store, timeout(2000)).compact(3L, DEPTH);
+    }
+
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+    //  Helpers
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+
+    private TheaterSnapshotCompactor compactor(int queue) {
+        return new TheaterSnapshotCompactor(store, txTemplate, true, DEPTH, queue);
+    }
+}
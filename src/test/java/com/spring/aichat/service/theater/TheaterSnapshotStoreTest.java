@@ -0,0 +1,377 @@
+package com.spring.aichat.service.theater;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.spring.aichat.domain.theater.TheaterSaveSlot;
+import com.spring.aichat.exception.BusinessException;
+import com.spring.aichat.service.metrics.ChatMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.Proxy;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * {@link TheaterSnapshotStore} — 델타 depth 상한 초과 시 전체 매니페스트, 슬롯 간 청크 중복 제거, 평탄화 + 슬롯 이동,
+ * 참조 없는 매니페스트 · 청크 정리, 압축과 겹친 로드의 재시도, 레거시 snapshot_json 슬롯.
+ * DB는 저장소가 쓰는 SQL만 흉내 내는 메모리 테이블 ({@link FakeSnapshotDb}).
+ */
+class TheaterSnapshotStoreTest {
+
+    private static final Long ROOM_ID = 1L;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final FakeSnapshotDb db = new FakeSnapshotDb();
+
+    @Test
+    @DisplayName("depth가 max-chain-depth를 넘으면 전체 매니페스트로 새 체인 — 어느 depth에서 읽어도 원래 스냅샷")
+    void deltaDepthRollsOver() throws Exception {
+        TheaterSnapshotStore store = store(2);
+        List<Integer> depths = new ArrayList<>();
+        List<String> saved = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            saved.add(snapshot("A", "t" + i));
+            depths.add(save(store, (long) i, saved.get(i)).depth());
+        }
+
+        assertEquals(List.of(0, 1, 2, 0, 1), depths);
+        assertNull(db.manifests.get(4L).baseId(), "4번째 세이브는 base 없는 전체 매니페스트");
+        for (int i = 0; i < 5; i++) {
+            assertEquals(mapper.readTree(saved.get(i)), mapper.readTree(store.read(ROOM_ID, i, db.slots.get((long) i))));
+        }
+    }
+
+    @Test
+    @DisplayName("같은 내용의 청크는 슬롯 · 체인이 달라도 방 안에서 1번만 쓰고, 델타 세이브는 바뀐 필드만 기록한다")
+    void chunksAreSharedAcrossSlots() {
+        TheaterSnapshotStore store = store(2);
+        TheaterSnapshotStore.Written first = save(store, 1L, snapshot("A", "t0"));
+        TheaterSnapshotStore.Written second = save(store, 2L, snapshot("A", "t1"));
+        save(store, 3L, snapshot("A", "t2"));
+        save(store, 4L, snapshot("A", "t3"));
+
+        assertEquals(2, db.chunkInserts, "상태 · 요약 청크 2개 — 전체 매니페스트로 넘어가도 기존 청크 재사용");
+        assertTrue(second.bytesWritten() < first.bytesWritten() / 4, "savedAt만 바뀐 델타");
+
+        save(store, 5L, snapshot("B", "t4"));
+        assertEquals(3, db.chunkInserts, "바뀐 요약만 새 청크");
+    }
+
+    @Test
+    @DisplayName("압축은 깊은 슬롯 체인을 전체 매니페스트로 접어 슬롯을 옮기고, 다음 압축에서 옛 체인을 지운다")
+    void compactFlattensAndMovesSlot() throws Exception {
+        TheaterSnapshotStore store = store(8);
+        String j0 = snapshot("A", "t0");
+        String j3 = snapshot("A", "t3");
+        save(store, 1L, j0);
+        save(store, null, snapshot("A", "t1"));
+        save(store, null, snapshot("A", "t2"));
+        save(store, 2L, j3);
+
+        TheaterSnapshotStore.Compaction first = store.compact(ROOM_ID, 3);
+
+        assertEquals(new TheaterSnapshotStore.Compaction(1, 0, 0), first, "최신 체인이 아직 옛 매니페스트를 쓴다");
+        long flat = db.slots.get(2L);
+        assertEquals(5L, flat);
+        assertEquals(0, db.manifests.get(flat).depth());
+        assertNull(db.manifests.get(flat).baseId());
+        assertEquals(mapper.readTree(j3), mapper.readTree(store.read(ROOM_ID, 2L, flat)));
+
+        TheaterSnapshotStore.Written next = save(store, null, snapshot("A", "t4"));
+        assertEquals(1, next.depth(), "평탄화 매니페스트가 방의 새 최신 — 그 위에 델타");
+
+        TheaterSnapshotStore.Compaction second = store.compact(ROOM_ID, 3);
+
+        assertEquals(new TheaterSnapshotStore.Compaction(0, 3, 0), second);
+        assertEquals(Set.of(1L, 5L, 6L), db.manifests.keySet());
+        assertEquals(mapper.readTree(j0), mapper.readTree(store.read(ROOM_ID, 1L, 1L)));
+        assertEquals(mapper.readTree(j3), mapper.readTree(store.read(ROOM_ID, 2L, flat)));
+    }
+
+    @Test
+    @DisplayName("어느 슬롯 · 최신 체인에도 없는 매니페스트와 그것만 참조하던 청크를 지운다")
+    void compactDeletesUnreferenced() throws Exception {
+        TheaterSnapshotStore store = store(2);
+        String j0 = snapshot("A", "t0");
+        save(store, 1L, j0);
+        save(store, null, snapshot("A", "t1"));
+        save(store, null, snapshot("B", "t2"));
+        save(store, null, snapshot("C", "t3"));
+        save(store, null, snapshot("C", "t4"));
+        String orphanChunk = ROOM_ID + ":" + TheaterSnapshotCodec.sha256(mapper.writeValueAsString(summary("B")));
+        assertTrue(db.chunks.containsKey(orphanChunk));
+
+        TheaterSnapshotStore.Compaction result = store.compact(ROOM_ID, 8);
+
+        assertEquals(new TheaterSnapshotStore.Compaction(0, 2, 1), result);
+        assertEquals(Set.of(1L, 4L, 5L), db.manifests.keySet());
+        assertFalse(db.chunks.containsKey(orphanChunk));
+        assertEquals(mapper.readTree(j0), mapper.readTree(store.read(ROOM_ID, 1L, 1L)));
+
+        String j5 = snapshot("C", "t5");
+        save(store, 2L, j5);
+        assertEquals(mapper.readTree(j5), mapper.readTree(store.read(ROOM_ID, 2L, db.slots.get(2L))));
+    }
+
+    @Test
+    @DisplayName("슬롯을 읽은 뒤 압축이 커밋해 매니페스트가 지워졌으면 슬롯의 현재 매니페스트로 1회 재시도한다")
+    void readRetriesAfterConcurrentCompaction() throws Exception {
+        TheaterSnapshotStore store = store(3);
+        String j3 = snapshot("A", "t3");
+        save(store, null, snapshot("A", "t0"));
+        save(store, null, snapshot("A", "t1"));
+        save(store, null, snapshot("A", "t2"));
+        long loadedManifest = save(store, 2L, j3).manifestId();
+        save(store, null, snapshot("A", "t4"));
+        save(store, null, snapshot("A", "t5"));
+
+        // 로드가 슬롯(→ 4)을 읽은 직후 압축 커밋
+        TheaterSnapshotStore.Compaction result = store.compact(ROOM_ID, 3);
+
+        assertEquals(new TheaterSnapshotStore.Compaction(1, 4, 0), result);
+        assertFalse(db.manifests.containsKey(loadedManifest));
+        assertEquals(mapper.readTree(j3), mapper.readTree(store.read(ROOM_ID, 2L, loadedManifest)));
+
+        db.slots.put(9L, 99L);
+        assertThrows(BusinessException.class, () -> store.read(ROOM_ID, 9L, 99L), "슬롯이 그대로면 정말 없는 것");
+    }
+
+    @Test
+    @DisplayName("레거시 슬롯(snapshot_json)은 저장소를 거치지 않고 그대로, 압축도 건드리지 않는다")
+    void legacySlotsReadAsIs() throws Exception {
+        TheaterSnapshotStore store = store(8);
+        TheaterSaveLoadService service = new TheaterSaveLoadService(null, null, null, null, null,
+            mapper, store, null, new ChatMetrics(new SimpleMeterRegistry()));
+        String legacyJson = snapshot("L", "t-legacy");
+        TheaterSaveSlot legacy = TheaterSaveSlot.create(null, 1, "legacy", "", 1, 1, null, legacyJson, null, false);
+
+        assertEquals(legacyJson, service.readSnapshot(ROOM_ID, legacy));
+        assertEquals(0, db.statements);
+
+        String j0 = snapshot("A", "t0");
+        TheaterSnapshotStore.Written written = store.write(ROOM_ID, j0);
+        TheaterSaveSlot slot = TheaterSaveSlot.create(null, 2, "delta", "", 1, 1, null, null, written.manifestId(), false);
+        ReflectionTestUtils.setField(slot, "id", 2L);
+        db.slots.put(2L, written.manifestId());
+        db.slots.put(1L, null);
+
+        assertEquals(mapper.readTree(j0), mapper.readTree(service.readSnapshot(ROOM_ID, slot)));
+        assertEquals(new TheaterSnapshotStore.Compaction(0, 0, 0), store.compact(ROOM_ID, 1));
+        assertNull(db.slots.get(1L));
+    }
+
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+    //  Helpers
+    // ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+
+    private TheaterSnapshotStore store(int maxChainDepth) {
+        return new TheaterSnapshotStore(db, mapper, 64, maxChainDepth);
+    }
+
+    /** @param slotId null이면 슬롯 없이 (다른 슬롯 세이브가 지나간 자리) */
+    private TheaterSnapshotStore.Written save(TheaterSnapshotStore store, Long slotId, String json) {
+        TheaterSnapshotStore.Written written = store.write(ROOM_ID, json);
+        if (slotId != null) db.slots.put(slotId, written.manifestId());
+        return written;
+    }
+
+    /** 상태 청크는 늘 같고, 요약 청크는 tag별, savedAt은 인라인 */
+    private String snapshot(String tag, String savedAt) {
+        ObjectNode root = mapper.createObjectNode();
+        root.set("stateSnapshot", mapper.createObjectNode()
+            .put("currentAct", "ACT_2_CONFLICT")
+            .put("currentChapter", 3)
+            .put("scenesInCurrentChapter", 12)
+            .put("statCharm", 10));
+        root.put("summary", summary(tag));
+        root.put("savedAt", savedAt);
+        return root.toString();
+    }
+
+    private static String summary(String tag) {
+        return ("비 오는 옥상에서 " + tag + "의 고백. ").repeat(8);
+    }
+
+    /**
+     * theater_snapshot_manifests · theater_snapshot_chunks · theater_save_slots(한 방)를 메모리에서 흉내 —
+     * {@link TheaterSnapshotStore}가 내는 SQL만 받는다.
+     */
+    static final class FakeSnapshotDb extends JdbcTemplate {
+
+        record Row(long id, Long roomId, Long baseId, int depth, String deltaJson) {}
+
+        final TreeMap<Long, Row> manifests = new TreeMap<>();
+        /** roomId:hash → content */
+        final Map<String, String> chunks = new LinkedHashMap<>();
+        /** slotId → snapshot_manifest_id (null = 레거시 snapshot_json 슬롯) */
+        final Map<Long, Long> slots = new HashMap<>();
+        int chunkInserts;
+        int statements;
+        private long nextId = 1;
+
+        @Override
+        public <T> List<T> query(String sql, RowMapper<T> rowMapper, Object... args) {
+            statements++;
+            List<Map<Object, Object>> rows;
+            if (sql.contains("FOR UPDATE")) {
+                rows = manifests.descendingMap().values().stream()
+                    .filter(r -> r.roomId().equals(args[0]))
+                    .limit(1)
+                    .map(FakeSnapshotDb::columns)
+                    .toList();
+            } else if (sql.contains("WITH RECURSIVE")) {
+                List<Map<Object, Object>> chain = new ArrayList<>();
+                Row row = manifests.get((Long) args[0]);
+                while (row != null) {
+                    chain.add(0, columns(row));
+                    row = row.baseId() == null ? null : manifests.get(row.baseId());
+                }
+                rows = chain;
+            } else if (sql.contains("FROM theater_save_slots")) {
+                rows = slots.entrySet().stream()
+                    .filter(e -> e.getValue() != null)
+                    .sorted(Map.Entry.comparingByValue())
+                    .map(e -> Map.<Object, Object>of(1, e.getKey(), 2, e.getValue()))
+                    .toList();
+            } else {
+                throw new UnsupportedOperationException(sql);
+            }
+            List<T> out = new ArrayList<>();
+            try {
+                for (int i = 0; i < rows.size(); i++) out.add(rowMapper.mapRow(resultSet(rows.get(i)), i));
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+            return out;
+        }
+
+        @Override
+        public void query(String sql, RowCallbackHandler rch, Object... args) {
+            statements++;
+            if (!sql.contains("SELECT hash, content")) throw new UnsupportedOperationException(sql);
+            try {
+                for (Object hash : Arrays.copyOfRange(args, 1, args.length)) {
+                    String content = chunks.get(args[0] + ":" + hash);
+                    if (content != null) rch.processRow(resultSet(Map.of(1, hash, 2, content)));
+                }
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public <T> T queryForObject(String sql, Class<T> requiredType, Object... args) {
+            statements++;
+            if (!sql.contains("INSERT INTO theater_snapshot_manifests")) throw new UnsupportedOperationException(sql);
+            long id = nextId++;
+            manifests.put(id, new Row(id, (Long) args[0], (Long) args[1], (Integer) args[2], (String) args[3]));
+            return requiredType.cast(id);
+        }
+
+        @Override
+        public <T> List<T> queryForList(String sql, Class<T> elementType, Object... args) {
+            statements++;
+            if (sql.contains("SELECT hash FROM theater_snapshot_chunks")) {
+                return Arrays.stream(args).skip(1)
+                    .filter(hash -> chunks.containsKey(args[0] + ":" + hash))
+                    .map(elementType::cast)
+                    .toList();
+            }
+            if (sql.contains("SELECT snapshot_manifest_id FROM theater_save_slots")) {
+                Long slotId = (Long) args[0];
+                return slots.containsKey(slotId)
+                    ? Collections.singletonList(elementType.cast(slots.get(slotId)))
+                    : List.of();
+            }
+            throw new UnsupportedOperationException(sql);
+        }
+
+        @Override
+        public <T> int[][] batchUpdate(String sql, Collection<T> batchArgs, int batchSize,
+                                       ParameterizedPreparedStatementSetter<T> pss) {
+            statements++;
+            if (!sql.contains("INSERT INTO theater_snapshot_chunks")) throw new UnsupportedOperationException(sql);
+            for (T arg : batchArgs) {
+                Map<Object, Object> params = new HashMap<>();
+                PreparedStatement ps = (PreparedStatement) Proxy.newProxyInstance(
+                    PreparedStatement.class.getClassLoader(), new Class<?>[]{PreparedStatement.class},
+                    (proxy, method, margs) -> {
+                        if (method.getName().startsWith("set")) params.put(margs[0], margs[1]);
+                        return null;
+                    });
+                try {
+                    pss.setValues(ps, arg);
+                } catch (SQLException e) {
+                    throw new IllegalStateException(e);
+                }
+                if (chunks.putIfAbsent(params.get(1) + ":" + params.get(2), (String) params.get(3)) == null) chunkInserts++;
+            }
+            return new int[0][];
+        }
+
+        @Override
+        public int update(String sql, Object... args) {
+            statements++;
+            if (sql.startsWith("UPDATE theater_save_slots")) {
+                Long slotId = (Long) args[1];
+                if (!Objects.equals(slots.get(slotId), args[2])) return 0;
+                slots.put(slotId, (Long) args[0]);
+                return 1;
+            }
+            Set<Object> keep = new HashSet<>(Arrays.asList(args).subList(1, args.length));
+            if (sql.startsWith("DELETE FROM theater_snapshot_manifests")) {
+                int before = manifests.size();
+                manifests.values().removeIf(r -> r.roomId().equals(args[0]) && !keep.contains(r.id()));
+                return before - manifests.size();
+            }
+            if (sql.startsWith("DELETE FROM theater_snapshot_chunks")) {
+                String prefix = args[0] + ":";
+                int before = chunks.size();
+                chunks.keySet().removeIf(k -> k.startsWith(prefix) && !keep.contains(k.substring(prefix.length())));
+                return before - chunks.size();
+            }
+            throw new UnsupportedOperationException(sql);
+        }
+
+        private static Map<Object, Object> columns(Row row) {
+            Map<Object, Object> columns = new HashMap<>();
+            columns.put("id", row.id());
+            columns.put("base_id", row.baseId());
+            columns.put("depth", row.depth());
+            columns.put("delta_json", row.deltaJson());
+            return columns;
+        }
+
+        private static ResultSet resultSet(Map<Object, Object> row) {
+            return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[]{ResultSet.class},
+                (proxy, method, margs) -> switch (method.getName()) {
+                    case "getLong" -> ((Number) row.get(margs[0])).longValue();
+                    case "getInt" -> ((Number) row.get(margs[0])).intValue();
+                    case "getString", "getObject" -> row.get(margs[0]);
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+        }
+    }
+}